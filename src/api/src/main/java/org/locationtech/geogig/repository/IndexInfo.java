@@ -28,7 +28,17 @@ import com.vividsolutions.jts.geom.Envelope;
 
 public final class IndexInfo {
     public static enum IndexType {
-        QUADTREE
+        /**
+         * Spatial index, clusters the nodes of the indexed tree by the quadrant their bounds fall
+         * into
+         */
+        QUADTREE,
+        /**
+         * Attribute index, clusters the nodes of the indexed tree by the value of the indexed
+         * attribute, which is always {@link IndexInfo#getMaterializedAttributeNames
+         * materialized}
+         */
+        ATTRIBUTE
     }
 
     /**
@@ -114,6 +124,10 @@ public final class IndexInfo {
         if (attNames != null) {
             availableAttNames = Sets.newHashSet(attNames);
         }
+        if (IndexType.ATTRIBUTE.equals(info.getIndexType())) {
+            availableAttNames = Sets.newHashSet(availableAttNames);
+            availableAttNames.add(info.getAttributeName());
+        }
         return availableAttNames;
     }
 
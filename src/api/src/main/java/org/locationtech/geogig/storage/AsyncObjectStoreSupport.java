@@ -0,0 +1,82 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.storage;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevObject;
+
+import com.google.common.annotations.Beta;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Support for the asynchronous {@link ObjectStore} methods: the executor blocking operations run
+ * on when they're not handled by the store natively, and the adapters used by the
+ * {@link ObjectStore#getAllAsync default} {@link ObjectStore#putAllAsync implementations}.
+ * <p>
+ * The executor is a cached thread pool of daemon threads, since the tasks it runs block on I/O
+ * and shall not starve the {@link java.util.concurrent.ForkJoinPool#commonPool() common pool}.
+ *
+ * @since 1.2
+ */
+@Beta
+public final class AsyncObjectStoreSupport {
+
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setNameFormat("geogig-async-objectstore-%d")
+                    .setDaemon(true).build());
+
+    private AsyncObjectStoreSupport() {
+        // utility class
+    }
+
+    /**
+     * @return the executor to run blocking object store operations on
+     */
+    public static ExecutorService executor() {
+        return EXECUTOR;
+    }
+
+    /**
+     * Runs {@link ObjectStore#getAll(Iterable, BulkOpListener, Class) store.getAll} on the
+     * {@link #executor() executor} and collects its results.
+     */
+    public static <T extends RevObject> CompletableFuture<List<T>> getAllAsync(
+            final ObjectStore store, final Iterable<ObjectId> ids, final BulkOpListener listener,
+            final Class<T> type) {
+        checkNotNull(ids, "ids is null");
+        checkNotNull(listener, "listener is null");
+        checkNotNull(type, "type is null");
+        return CompletableFuture.supplyAsync(() -> {
+            List<T> objects = new ArrayList<>();
+            store.getAll(ids, listener, type).forEachRemaining(objects::add);
+            return objects;
+        }, EXECUTOR);
+    }
+
+    /**
+     * Runs {@link ObjectStore#putAll(Iterator, BulkOpListener) store.putAll} on the
+     * {@link #executor() executor}.
+     */
+    public static CompletableFuture<Void> putAllAsync(final ObjectStore store,
+            final Iterator<? extends RevObject> objects, final BulkOpListener listener) {
+        checkNotNull(objects, "objects is null");
+        checkNotNull(listener, "listener is null");
+        return CompletableFuture.runAsync(() -> store.putAll(objects, listener), EXECUTOR);
+    }
+}
@@ -0,0 +1,113 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.storage;
+
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevCommit;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Function;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * A compact index of the repository commit graph that stores, for each indexed commit, its
+ * parents, its generation number, and its commit timestamp.
+ * <p>
+ * The generation number of a commit with no parents is {@code 1}, and the generation of any other
+ * commit is one more than the maximum generation of its parents. Hence a commit can only be an
+ * ancestor of commits with a greater generation, which allows reachability and lowest common
+ * ancestor queries to stop walking the history as soon as they reach generations that can no
+ * longer contribute to the result.
+ * <p>
+ * A commit is only indexed once all its parents are, so the whole history of an indexed commit is
+ * guaranteed to be indexed as well. Queries are only valid for {@link #contains(ObjectId) indexed}
+ * commits, callers shall fall back to walking the {@link GraphDatabase} otherwise.
+ *
+ * @see GraphDatabase#getCommitGraph()
+ * @since 1.2
+ */
+@Beta
+public interface CommitGraph {
+
+    /**
+     * Generation number of commits that are not indexed
+     */
+    public static final int GENERATION_UNKNOWN = 0;
+
+    /**
+     * @return {@code true} if the commit and hence all its ancestors are indexed
+     */
+    public boolean contains(ObjectId commitId);
+
+    /**
+     * @return the number of indexed commits
+     */
+    public long size();
+
+    /**
+     * Indexes {@code commitId} and all its ancestors that are not indexed yet, resolving the
+     * commits through {@code commits}. Used to index the existing history of a repository, or the
+     * commits whose parents were not indexed by the time they were added, without blocking the
+     * commits being added meanwhile.
+     * <p>
+     * The default implementation does nothing.
+     *
+     * @param commitId the commit to index
+     * @param commits resolves a commit by id, returning {@link Optional#absent() absent} if it's
+     *        not (yet) available
+     * @return {@code true} if the commit is indexed, {@code false} if some of its ancestors could
+     *         not be resolved
+     */
+    public default boolean index(ObjectId commitId,
+            Function<ObjectId, Optional<RevCommit>> commits) {
+        return contains(commitId);
+    }
+
+    /**
+     * @return the generation number of the commit, or {@link #GENERATION_UNKNOWN} if the commit is
+     *         not indexed
+     */
+    public int getGeneration(ObjectId commitId);
+
+    /**
+     * @return the commit timestamp recorded for the commit, or {@code 0} if unknown
+     * @throws IllegalArgumentException if the commit is not indexed
+     */
+    public long getTimestamp(ObjectId commitId) throws IllegalArgumentException;
+
+    /**
+     * @return the parents of the commit
+     * @throws IllegalArgumentException if the commit is not indexed
+     */
+    public ImmutableList<ObjectId> getParents(ObjectId commitId) throws IllegalArgumentException;
+
+    /**
+     * Determines whether {@code ancestor} is reachable from {@code descendant} following parent
+     * links. A commit is considered its own ancestor.
+     *
+     * @throws IllegalArgumentException if any of the commits is not indexed
+     */
+    public boolean isAncestor(ObjectId ancestor, ObjectId descendant)
+            throws IllegalArgumentException;
+
+    /**
+     * Finds the lowest common ancestor of two commits, that is, a common ancestor that's not an
+     * ancestor of any other common ancestor. If there are several (e.g. criss-cross merges), the
+     * one with the highest generation number, and then the most recent commit timestamp, is
+     * returned.
+     *
+     * @return the lowest common ancestor, or {@link Optional#absent() absent} if the two commits
+     *         don't share history
+     * @throws IllegalArgumentException if any of the commits is not indexed
+     */
+    public Optional<ObjectId> findLowestCommonAncestor(ObjectId left, ObjectId right)
+            throws IllegalArgumentException;
+}
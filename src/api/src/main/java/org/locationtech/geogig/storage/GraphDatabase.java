@@ -16,6 +16,7 @@ import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.repository.RepositoryConnectionException;
 
 import com.google.common.annotations.Beta;
+import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
 
 /**
@@ -196,6 +197,23 @@ public interface GraphDatabase extends Closeable {
      */
     public boolean put(final ObjectId commitId, ImmutableList<ObjectId> parentIds);
 
+    /**
+     * Adds a commit to the database with the given parents, recording its commit timestamp in the
+     * {@link #getCommitGraph() commit graph index} if the database maintains one.
+     * <p>
+     * The default implementation ignores the timestamp and calls {@link #put(ObjectId,
+     * ImmutableList)}.
+     * 
+     * @param commitId the commit id to insert
+     * @param parentIds the commit ids of the commit's parents
+     * @param timestamp the commit's committer timestamp
+     * @return true if the commit id was inserted or updated, false if it was already there
+     */
+    public default boolean put(final ObjectId commitId, ImmutableList<ObjectId> parentIds,
+            long timestamp) {
+        return put(commitId, parentIds);
+    }
+
     /**
      * Maps a commit to another original commit. This is used in sparse repositories.
      * 
@@ -240,4 +258,16 @@ public interface GraphDatabase extends Closeable {
      * Drops all data from the graph database. Usually used when rebuilding the graph.
      */
     public void truncate();
+
+    /**
+     * Returns the commit graph index maintained by this database, if any, to be used to speed up
+     * reachability and common ancestor queries.
+     * <p>
+     * The default implementation returns {@link Optional#absent()}.
+     * 
+     * @return the commit graph index, or absent if this database doesn't maintain one
+     */
+    public default Optional<CommitGraph> getCommitGraph() {
+        return Optional.absent();
+    }
 }
@@ -12,6 +12,7 @@ package org.locationtech.geogig.storage;
 import java.io.Closeable;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.model.NodeRef;
@@ -250,4 +251,43 @@ public interface ObjectStore extends Closeable {
     public <T extends RevObject> AutoCloseableIterator<ObjectInfo<T>> getObjects(
             Iterator<NodeRef> nodes, BulkOpListener listener, Class<T> type);
 
+    /**
+     * Asynchronous version of {@link #getAll(Iterable, BulkOpListener, Class)}, returns
+     * immediately with a future that completes with all the objects found once they're fetched.
+     * <p>
+     * Implementations that can fetch several batches of objects at once do so, and the
+     * {@code listener} may hence be called from any thread.
+     * <p>
+     * The default implementation runs {@link #getAll(Iterable, BulkOpListener, Class) getAll} on
+     * the {@link AsyncObjectStoreSupport#executor() shared executor}.
+     * 
+     * @return a future for the objects <b>found</b> on the database, in no particular order
+     * @since 1.2
+     */
+    @Beta
+    public default <T extends RevObject> CompletableFuture<List<T>> getAllAsync(
+            Iterable<ObjectId> ids, BulkOpListener listener, Class<T> type) {
+        return AsyncObjectStoreSupport.getAllAsync(this, ids, listener, type);
+    }
+
+    /**
+     * Asynchronous version of {@link #putAll(Iterator, BulkOpListener)}, returns immediately with
+     * a future that completes once all the objects are inserted.
+     * <p>
+     * The {@code objects} iterator is consumed from a single thread other than the calling one,
+     * so it shall not be used by the caller afterwards. Implementations may overlap serializing
+     * objects with writing the previous ones, and the {@code listener} may be called from any
+     * thread.
+     * <p>
+     * The default implementation runs {@link #putAll(Iterator, BulkOpListener) putAll} on the
+     * {@link AsyncObjectStoreSupport#executor() shared executor}.
+     * 
+     * @since 1.2
+     */
+    @Beta
+    public default CompletableFuture<Void> putAllAsync(Iterator<? extends RevObject> objects,
+            BulkOpListener listener) {
+        return AsyncObjectStoreSupport.putAllAsync(this, objects, listener);
+    }
+
 }
\ No newline at end of file
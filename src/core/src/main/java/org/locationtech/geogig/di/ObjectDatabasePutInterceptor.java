@@ -10,11 +10,14 @@
 package org.locationtech.geogig.di;
 
 import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
 
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.RevCommit;
 import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.plumbing.IndexCommitGraphOp;
 import org.locationtech.geogig.storage.BulkOpListener;
+import org.locationtech.geogig.storage.CommitGraph;
 import org.locationtech.geogig.storage.GraphDatabase;
 import org.locationtech.geogig.storage.ObjectDatabase;
 import org.locationtech.geogig.storage.ObjectStore;
@@ -28,6 +31,10 @@ import com.google.inject.util.Providers;
 /**
  * Method interceptor for {@link ObjectDatabase#put(RevObject)} that adds new commits to the graph
  * database.
+ * <p>
+ * New commits are only appended to the graph database's {@link CommitGraph commit graph}, if any.
+ * Indexing history that's missing from it is left to {@link IndexCommitGraphOp}, so that no
+ * insert pays for walking the history of an existing repository.
  */
 class ObjectDatabasePutInterceptor implements Decorator {
 
@@ -66,7 +73,9 @@ class ObjectDatabasePutInterceptor implements Decorator {
 
             if (inserted && RevObject.TYPE.COMMIT.equals(object.getType())) {
                 RevCommit commit = (RevCommit) object;
-                graphDb.get().put(commit.getId(), commit.getParentIds());
+                GraphDatabase graphDatabase = graphDb.get();
+                graphDatabase.put(commit.getId(), commit.getParentIds(),
+                        commit.getCommitter().getTimestamp());
             }
             return inserted;
         }
@@ -78,33 +87,28 @@ class ObjectDatabasePutInterceptor implements Decorator {
 
         @Override
         public void putAll(Iterator<? extends RevObject> objects, BulkOpListener listener) {
+            super.putAll(updatingGraph(objects), listener);
+        }
+
+        @Override
+        public CompletableFuture<Void> putAllAsync(Iterator<? extends RevObject> objects,
+                BulkOpListener listener) {
+            return super.putAllAsync(updatingGraph(objects), listener);
+        }
 
-            // final List<RevCommit> addedCommits = Lists.newLinkedList();
-
-            final Iterator<? extends RevObject> collectingIterator = Iterators.transform(objects,
-                    (obj) -> {
-                        if (obj instanceof RevCommit) {
-                            final GraphDatabase graphDatabase = graphDb.get();
-                            RevCommit commit = (RevCommit) obj;
-                            ObjectId commitId = commit.getId();
-                            ImmutableList<ObjectId> parentIds = commit.getParentIds();
-                            graphDatabase.put(commitId, parentIds);
-
-                            // addedCommits.add((RevCommit) input);
-                        }
-                        return obj;
-
-                    });
-            super.putAll(collectingIterator, listener);
-
-            // if (!addedCommits.isEmpty()) {
-            // GraphDatabase graphDatabase = graphDb.get();
-            // for (RevCommit commit : addedCommits) {
-            // ObjectId commitId = commit.getId();
-            // ImmutableList<ObjectId> parentIds = commit.getParentIds();
-            // graphDatabase.put(commitId, parentIds);
-            // }
-            // }
+        private Iterator<? extends RevObject> updatingGraph(
+                Iterator<? extends RevObject> objects) {
+            return Iterators.transform(objects, (obj) -> {
+                if (obj instanceof RevCommit) {
+                    final GraphDatabase graphDatabase = graphDb.get();
+                    RevCommit commit = (RevCommit) obj;
+                    ObjectId commitId = commit.getId();
+                    ImmutableList<ObjectId> parentIds = commit.getParentIds();
+                    long timestamp = commit.getCommitter().getTimestamp();
+                    graphDatabase.put(commitId, parentIds, timestamp);
+                }
+                return obj;
+            });
         }
 
     }
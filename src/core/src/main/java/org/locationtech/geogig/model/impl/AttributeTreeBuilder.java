@@ -0,0 +1,57 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.model.impl;
+
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.internal.ClusteringStrategy;
+import org.locationtech.geogig.model.internal.ClusteringStrategyBuilder;
+import org.locationtech.geogig.repository.impl.AttributeIndexKeys;
+import org.locationtech.geogig.storage.ObjectStore;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Builds the {@link RevTree} of an attribute index, whose nodes are clustered by the value of the
+ * indexed attribute as mandated by {@link AttributeIndexKeys}.
+ * <p>
+ * The nodes added to this builder must have the value of the indexed attribute materialized in
+ * their extra data.
+ */
+public class AttributeTreeBuilder extends AbstractTreeBuilder implements RevTreeBuilder {
+
+    private final ClusteringStrategy clusteringStrategy;
+
+    protected AttributeTreeBuilder(ObjectStore store, RevTree original,
+            ClusteringStrategy strategy) {
+        super(store, original);
+        clusteringStrategy = strategy;
+    }
+
+    @Override
+    protected final ClusteringStrategy clusteringStrategy() {
+        return clusteringStrategy;
+    }
+
+    public static AttributeTreeBuilder create(final ObjectStore source, final ObjectStore target,
+            final RevTree original, final String attributeName) {
+        Preconditions.checkNotNull(source);
+        Preconditions.checkNotNull(target);
+        Preconditions.checkNotNull(original);
+        Preconditions.checkNotNull(attributeName);
+
+        ClusteringStrategy strategy = ClusteringStrategyBuilder//
+                .attribute(source)//
+                .original(original)//
+                .attributeName(attributeName)//
+                .build();
+        AttributeTreeBuilder builder = new AttributeTreeBuilder(target, RevTree.EMPTY, strategy);
+        return builder;
+    }
+}
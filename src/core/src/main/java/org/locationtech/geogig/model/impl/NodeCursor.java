@@ -0,0 +1,95 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.model.impl;
+
+import org.locationtech.geogig.model.Node;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevObject.TYPE;
+import org.locationtech.geogig.model.RevTree;
+
+import com.google.common.annotations.Beta;
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * A forward only cursor over the direct children of a {@link RevTree}, allowing to inspect the
+ * current node's name, object id and bounds without creating a {@link Node} instance per entry.
+ * <p>
+ * Storage formats that keep trees in their serialized form can provide cursors that read straight
+ * from the tree bytes by implementing {@link Source} in their {@link RevTree} implementation,
+ * otherwise {@link NodeCursors} adapts the tree's node lists.
+ * <p>
+ * The accessor methods are only valid after {@link #next()} returned {@code true}. Cursors are not
+ * thread safe.
+ *
+ * @see NodeCursors
+ * @since 1.2
+ */
+@Beta
+public interface NodeCursor {
+
+    /**
+     * Implemented by {@link RevTree}s that can provide {@link NodeCursor cursors} over their
+     * serialized form
+     */
+    public static interface Source {
+
+        /**
+         * @return a cursor over the tree's direct {@link RevTree#trees() tree} nodes
+         */
+        public NodeCursor treesCursor();
+
+        /**
+         * @return a cursor over the tree's direct {@link RevTree#features() feature} nodes
+         */
+        public NodeCursor featuresCursor();
+    }
+
+    /**
+     * Advances the cursor to the next node
+     *
+     * @return {@code true} if the cursor is positioned at a node, {@code false} if there are no
+     *         more nodes
+     */
+    public boolean next();
+
+    public TYPE getType();
+
+    public String getName();
+
+    /**
+     * @return the object id of the current node; this creates an {@link ObjectId} instance, prefer
+     *         {@link #objectIdEquals(NodeCursor)} when only checking for equality
+     */
+    public ObjectId getObjectId();
+
+    /**
+     * @return whether the object id of the current node is the same than the one of the current
+     *         node of {@code other}
+     */
+    public boolean objectIdEquals(NodeCursor other);
+
+    /**
+     * @return whether the current node has bounds and they intersect {@code env}
+     * @see Node#intersects(Envelope)
+     */
+    public boolean intersects(Envelope env);
+
+    /**
+     * Expands {@code env} to include the bounds of the current node, if any
+     *
+     * @see Node#expand(Envelope)
+     */
+    public void expand(Envelope env);
+
+    /**
+     * @return the current node
+     */
+    public Node node();
+}
@@ -0,0 +1,238 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.model.impl;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.util.Iterator;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.CanonicalNodeNameOrder;
+import org.locationtech.geogig.model.Node;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevObject.TYPE;
+import org.locationtech.geogig.model.RevTree;
+
+import com.google.common.annotations.Beta;
+import com.google.common.collect.AbstractIterator;
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * Factory methods for {@link NodeCursor}s
+ *
+ * @since 1.2
+ */
+@Beta
+public class NodeCursors {
+
+    /**
+     * @return a cursor over the tree's direct {@link RevTree#features() feature} nodes
+     */
+    public static NodeCursor features(RevTree tree) {
+        if (tree instanceof NodeCursor.Source) {
+            return ((NodeCursor.Source) tree).featuresCursor();
+        }
+        return of(tree.features().iterator());
+    }
+
+    /**
+     * @return a cursor over the tree's direct {@link RevTree#trees() tree} nodes
+     */
+    public static NodeCursor trees(RevTree tree) {
+        if (tree instanceof NodeCursor.Source) {
+            return ((NodeCursor.Source) tree).treesCursor();
+        }
+        return of(tree.trees().iterator());
+    }
+
+    /**
+     * @return a cursor over the tree's direct tree and feature nodes in
+     *         {@link CanonicalNodeNameOrder canonical order}
+     */
+    public static NodeCursor children(RevTree tree) {
+        if (tree.numTrees() == 0) {
+            return features(tree);
+        }
+        if (tree.size() == 0L) {
+            return trees(tree);
+        }
+        return new MergeCursor(trees(tree), features(tree));
+    }
+
+    /**
+     * @return a cursor over the nodes returned by {@code nodes}
+     */
+    public static NodeCursor of(Iterator<Node> nodes) {
+        return new IteratorCursor(nodes);
+    }
+
+    /**
+     * Adapts the cursor as an iterator; the iterator creates a {@link Node} instance for every
+     * entry so it's meant to ease the transition of code that still needs {@code Node}s. The
+     * cursor shall not have been advanced yet.
+     */
+    public static Iterator<Node> iterator(final NodeCursor cursor) {
+        checkNotNull(cursor);
+        if (cursor instanceof IteratorCursor) {
+            return ((IteratorCursor) cursor).nodes;
+        }
+        return new AbstractIterator<Node>() {
+            @Override
+            protected Node computeNext() {
+                return cursor.next() ? cursor.node() : endOfData();
+            }
+        };
+    }
+
+    private static class IteratorCursor implements NodeCursor {
+
+        private final Iterator<Node> nodes;
+
+        private @Nullable Node current;
+
+        IteratorCursor(Iterator<Node> nodes) {
+            checkNotNull(nodes);
+            this.nodes = nodes;
+        }
+
+        @Override
+        public boolean next() {
+            current = nodes.hasNext() ? nodes.next() : null;
+            return current != null;
+        }
+
+        @Override
+        public Node node() {
+            checkState(current != null, "cursor is not positioned at a node");
+            return current;
+        }
+
+        @Override
+        public TYPE getType() {
+            return node().getType();
+        }
+
+        @Override
+        public String getName() {
+            return node().getName();
+        }
+
+        @Override
+        public ObjectId getObjectId() {
+            return node().getObjectId();
+        }
+
+        @Override
+        public boolean objectIdEquals(NodeCursor other) {
+            if (other instanceof IteratorCursor) {
+                return getObjectId().equals(other.getObjectId());
+            }
+            // let the other cursor do the comparison, it may avoid creating an ObjectId
+            return other.objectIdEquals(this);
+        }
+
+        @Override
+        public boolean intersects(Envelope env) {
+            return node().intersects(env);
+        }
+
+        @Override
+        public void expand(Envelope env) {
+            node().expand(env);
+        }
+    }
+
+    /**
+     * Merges a cursor over tree nodes and one over feature nodes, both in canonical order
+     */
+    private static class MergeCursor implements NodeCursor {
+
+        private final NodeCursor trees, features;
+
+        private boolean treesAvailable, featuresAvailable;
+
+        private @Nullable NodeCursor current;
+
+        MergeCursor(NodeCursor trees, NodeCursor features) {
+            this.trees = trees;
+            this.features = features;
+            this.treesAvailable = trees.next();
+            this.featuresAvailable = features.next();
+        }
+
+        @Override
+        public boolean next() {
+            if (current == trees) {
+                treesAvailable = trees.next();
+            } else if (current == features) {
+                featuresAvailable = features.next();
+            }
+            if (treesAvailable && featuresAvailable) {
+                int c = CanonicalNodeNameOrder.INSTANCE.compare(trees.getName(),
+                        features.getName());
+                current = c <= 0 ? trees : features;
+            } else if (treesAvailable) {
+                current = trees;
+            } else if (featuresAvailable) {
+                current = features;
+            } else {
+                current = null;
+                // don't advance the exhausted cursors again
+                treesAvailable = featuresAvailable = false;
+                return false;
+            }
+            return true;
+        }
+
+        private NodeCursor current() {
+            checkState(current != null, "cursor is not positioned at a node");
+            return current;
+        }
+
+        @Override
+        public TYPE getType() {
+            return current().getType();
+        }
+
+        @Override
+        public String getName() {
+            return current().getName();
+        }
+
+        @Override
+        public ObjectId getObjectId() {
+            return current().getObjectId();
+        }
+
+        @Override
+        public boolean objectIdEquals(NodeCursor other) {
+            if (other instanceof MergeCursor) {
+                other = ((MergeCursor) other).current();
+            }
+            return current().objectIdEquals(other);
+        }
+
+        @Override
+        public boolean intersects(Envelope env) {
+            return current().intersects(env);
+        }
+
+        @Override
+        public void expand(Envelope env) {
+            current().expand(env);
+        }
+
+        @Override
+        public Node node() {
+            return current().node();
+        }
+    }
+}
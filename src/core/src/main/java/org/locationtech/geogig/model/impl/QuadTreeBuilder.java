@@ -20,6 +20,12 @@ import com.vividsolutions.jts.geom.Envelope;
 
 public class QuadTreeBuilder extends AbstractTreeBuilder implements RevTreeBuilder {
 
+    /**
+     * Index of the bucket holding the nodes that don't fit in a single quadrant at a given depth,
+     * right after the four quadrant buckets. At the root, it also holds the nodes with no bounds.
+     */
+    public static final int UNPROMOTABLE_BUCKET_INDEX = 4;
+
     private final ClusteringStrategy clusteringStrategy;
 
     protected QuadTreeBuilder(ObjectStore store, RevTree original, ClusteringStrategy strategy) {
@@ -47,6 +53,17 @@ public class QuadTreeBuilder extends AbstractTreeBuilder implements RevTreeBuild
         return clusteringStrategy;
     }
 
+    /**
+     * Determines whether the bucket at the given position of a quad-tree may contain nodes with no
+     * bounds (e.g. features with no geometry), which can't be assigned a quadrant and hence are
+     * only kept under the root's {@link #UNPROMOTABLE_BUCKET_INDEX unpromotable bucket}.
+     * 
+     * @param bucketPath the bucket indices from the root of the quad-tree down to the bucket
+     */
+    public static boolean mayContainUnboundedNodes(int[] bucketPath) {
+        return bucketPath.length > 0 && bucketPath[0] == UNPROMOTABLE_BUCKET_INDEX;
+    }
+
     public static QuadTreeBuilder create(final ObjectStore source, final ObjectStore target,
             final RevTree original, final Envelope maxBounds) {
         Preconditions.checkNotNull(source);
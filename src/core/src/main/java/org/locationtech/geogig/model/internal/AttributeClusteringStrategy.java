@@ -0,0 +1,115 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.model.internal;
+
+import java.util.Comparator;
+import java.util.Objects;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.Node;
+import org.locationtech.geogig.model.RevObject.TYPE;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.repository.IndexInfo;
+import org.locationtech.geogig.repository.impl.AttributeIndexKeys;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Clusters the nodes of an attribute index by the value of the indexed attribute, as materialized
+ * in the nodes' {@link IndexInfo#FEATURE_ATTRIBUTES_EXTRA_DATA extra data}.
+ * <p>
+ * The bucket a node falls into at each depth is given by the
+ * {@link AttributeIndexKeys#bucket(byte[], int) nibbles} of its value's key, so buckets are
+ * ordered by value and a range of values can be looked up by only traversing the buckets that
+ * may contain it (see {@link AttributeIndexKeys#overlaps}). Nodes sharing the same key, (i.e. too
+ * many features with the same value to fit on a single leaf tree) are split in canonical order
+ * below the {@link AttributeIndexKeys#EXHAUSTED_KEY_BUCKET exhausted key bucket}.
+ * <p>
+ * Nodes with no value for the attribute are kept in the exhausted key bucket at the root, so that
+ * the index tree has as many nodes as the canonical tree.
+ */
+final class AttributeClusteringStrategy extends ClusteringStrategy {
+
+    private final String attributeName;
+
+    AttributeClusteringStrategy(RevTree original, DAGStorageProvider storageProvider,
+            String attributeName) {
+        super(original, storageProvider);
+        this.attributeName = attributeName;
+    }
+
+    public String getAttributeName() {
+        return attributeName;
+    }
+
+    /**
+     * The fixed maximum size of a leaf {@link RevTree}, at any depth, when built as an attribute
+     * index.
+     *
+     * @return {@code 256}
+     */
+    @Override
+    int normalizedSizeLimit(final int depthIndex) {
+        return 256;
+    }
+
+    @Override
+    protected Comparator<NodeId> getNodeOrdering() {
+        return CanonicalClusteringStrategy.CANONICAL_ORDER;
+    }
+
+    /**
+     * @return a {@link NodeId} whose {@link NodeId#value() value} is the node's materialized
+     *         value for the indexed attribute, possibly {@code null}
+     */
+    @Override
+    public NodeId computeId(final Node node) {
+        @Nullable
+        Object value = IndexInfo.getMaterializedAttribute(attributeName, node);
+        return new NodeId(node.getName(), value);
+    }
+
+    @Override
+    public int bucket(final NodeId nodeId, final int depthIndex) {
+        byte[] key = AttributeIndexKeys.encode(nodeId.value());
+        return AttributeIndexKeys.bucket(key, depthIndex);
+    }
+
+    @Override
+    protected int unpromotableBucketIndex(final int depthIndex) {
+        return AttributeIndexKeys.EXHAUSTED_KEY_BUCKET;
+    }
+
+    @Override
+    public int put(final Node node) {
+        Preconditions.checkArgument(TYPE.FEATURE == node.getType(),
+                "Can't add non feature nodes to attribute index: %s", node);
+        return super.put(node);
+    }
+
+    /**
+     * Overrides to only call {@link #put(Node) put(newNode)} if the attribute value didn't change,
+     * since both nodes are then guaranteed to fall on the same bucket at any depth.
+     */
+    @Override
+    public int update(Node oldNode, Node newNode) {
+        Preconditions.checkArgument(oldNode.getName().equals(newNode.getName()));
+        Object oldValue = IndexInfo.getMaterializedAttribute(attributeName, oldNode);
+        Object newValue = IndexInfo.getMaterializedAttribute(attributeName, newNode);
+        if (Objects.equals(oldValue, newValue)) {
+            int delta = put(newNode);
+            if (delta == 0 && !oldNode.equals(newNode)) {
+                delta = 1;
+            }
+            return delta;
+        }
+        return super.update(oldNode, newNode);
+    }
+}
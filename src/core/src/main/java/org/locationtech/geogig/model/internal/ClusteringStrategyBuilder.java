@@ -63,6 +63,10 @@ public abstract class ClusteringStrategyBuilder {
         return new QuadTreeClusteringStrategyBuilder(treeStore);
     }
 
+    public static AttributeClusteringStrategyBuilder attribute(ObjectStore treeStore) {
+        return new AttributeClusteringStrategyBuilder(treeStore);
+    }
+
     public static class CanonicalClusteringStrategyBuilder extends ClusteringStrategyBuilder {
 
         CanonicalClusteringStrategyBuilder(ObjectStore treeStore) {
@@ -146,4 +150,31 @@ public abstract class ClusteringStrategyBuilder {
             return this;
         }
     }
+
+    public static class AttributeClusteringStrategyBuilder extends ClusteringStrategyBuilder {
+
+        private String attributeName;
+
+        AttributeClusteringStrategyBuilder(ObjectStore treeStore) {
+            super(treeStore);
+        }
+
+        @Override
+        public AttributeClusteringStrategyBuilder original(RevTree original) {
+            super.original(original);
+            return this;
+        }
+
+        @Override
+        protected ClusteringStrategy buildInternal(DAGStorageProvider dagStoreProvider) {
+            checkState(attributeName != null, "indexed attribute name was not set");
+            return new AttributeClusteringStrategy(original, dagStoreProvider, attributeName);
+        }
+
+        public AttributeClusteringStrategyBuilder attributeName(String attributeName) {
+            checkNotNull(attributeName, "attributeName is null");
+            this.attributeName = attributeName;
+            return this;
+        }
+    }
 }
@@ -40,6 +40,8 @@ public class DiffIndex extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>
 
     private boolean preserveIterationOrder;
 
+    private String startAfter;
+
     /**
      * @param pathFilter the path filter to use during the diff operation
      * @return {@code this}
@@ -79,6 +81,17 @@ public class DiffIndex extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>
         return this;
     }
 
+    /**
+     * @param path the path of the last entry returned by a previous call with the same arguments,
+     *        to resume the diff after it, or {@code null} to start from the beginning
+     * @return {@code this}
+     * @see DiffTree#setStartAfter(String)
+     */
+    public DiffIndex setStartAfter(@Nullable String path) {
+        this.startAfter = path;
+        return this;
+    }
+
     /**
      * Finds differences between the tree pointed to by the given ref and the index.
      * 
@@ -103,7 +116,7 @@ public class DiffIndex extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>
         DiffTree diff = command(DiffTree.class).setPathFilter(this.pathFilters)
                 .setReportTrees(this.reportTrees).setOldTree(rootTree.getId())
                 .setNewTree(newTree.getId()).setPreserveIterationOrder(preserveIterationOrder)
-                .setMaxDiffs(limit);
+                .setMaxDiffs(limit).setStartAfter(startAfter);
 
         return diff.call();
     }
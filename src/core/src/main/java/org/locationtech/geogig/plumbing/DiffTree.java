@@ -10,6 +10,7 @@
 package org.locationtech.geogig.plumbing;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.LinkedList;
 import java.util.List;
@@ -35,6 +36,8 @@ import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk;
 import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.BucketIndex;
 import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.Consumer;
 import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.ForwardingConsumer;
+import org.locationtech.geogig.plumbing.diff.StartAfterDiffConsumer;
+import org.locationtech.geogig.plumbing.diff.WalkPosition;
 import org.locationtech.geogig.repository.AbstractGeoGigOp;
 import org.locationtech.geogig.repository.DiffEntry;
 import org.locationtech.geogig.repository.DiffEntry.ChangeType;
@@ -78,6 +81,8 @@ public class DiffTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
 
     private Predicate<Bounded> customFilter;
 
+    private Predicate<BucketIndex> bucketFilter;
+
     private Long limit;
 
     private ObjectId metadataId;
@@ -92,6 +97,8 @@ public class DiffTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
 
     private boolean preserveIterationOrder = false;
 
+    private WalkPosition startAfter;
+
     private static ExecutorService producerThreads;
 
     private Stats stats;
@@ -167,6 +174,21 @@ public class DiffTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
         return this;
     }
 
+    /**
+     * Resumes the diff after the entry at the given path, as returned by a previous call with the
+     * same arguments, skipping the trees and buckets that precede it without traversing them.
+     * <p>
+     * Implies {@link #setPreserveIterationOrder(boolean) preserving the iteration order}.
+     * 
+     * @param path the path of the last entry returned by the previous call, or {@code null} to
+     *        start from the beginning
+     * @return {@code this}
+     */
+    public DiffTree setStartAfter(@Nullable String path) {
+        this.startAfter = path == null ? null : new WalkPosition(path);
+        return this;
+    }
+
     /**
      * @param path the path filter to use during the diff operation, replaces any other filter
      *        previously set
@@ -199,6 +221,23 @@ public class DiffTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
         return this;
     }
 
+    /**
+     * Sets a filter on the position of the buckets to traverse, for trees whose structure allows
+     * to tell what a bucket contains by its {@link BucketIndex}, as opposed to its bounds. Buckets
+     * the filter doesn't accept are skipped, with all their contents.
+     * <p>
+     * Note bucket indices are only meaningful if both trees were built with the same clustering
+     * strategy and are either bucket trees or empty, otherwise the nodes of a leaf tree compared
+     * against a bucket tree are split in canonical order.
+     * 
+     * @param bucketFilter the filter to apply to the buckets, or {@code null} for no filtering
+     * @return {@code this}
+     */
+    public DiffTree setBucketFilter(@Nullable Predicate<BucketIndex> bucketFilter) {
+        this.bucketFilter = bucketFilter;
+        return this;
+    }
+
     public DiffTree setChangeTypeFilter(@Nullable ChangeType changeType) {
         this.changeTypeFilter = changeType;
         return this;
@@ -236,13 +275,14 @@ public class DiffTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
         }
 
         final PreOrderDiffWalk visitor = new PreOrderDiffWalk(oldTree, newTree, leftSource,
-                rightSource, preserveIterationOrder);
+                rightSource, preserveIterationOrder || startAfter != null);
         visitor.setDefaultMetadataId(this.metadataId);
 
         final BlockingQueue<DiffEntry> queue = new ArrayBlockingQueue<>(1000_000);
         final DiffEntryProducer diffProducer = new DiffEntryProducer(queue);
         diffProducer.setReportTrees(this.reportTrees);
         diffProducer.setRecursive(this.recursive);
+        diffProducer.setStartAfter(this.startAfter);
 
         final List<RuntimeException> producerErrors = new LinkedList<>();
         if (recordStats) {
@@ -258,19 +298,7 @@ public class DiffTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
                 if (limit != null) {// evaluated the latest
                     consumer = new PreOrderDiffWalk.MaxFeatureDiffsLimiter(consumer, limit);
                 }
-                if (customFilter != null) {
-                    consumer = new PreOrderDiffWalk.FilteringConsumer(consumer, customFilter);
-                }
-                if (changeTypeFilter != null) {
-                    consumer = new ChangeTypeFilteringDiffConsumer(changeTypeFilter, consumer);
-                }
-                if (boundsFilter != null) {
-                    consumer = new BoundsFilteringDiffConsumer(boundsFilter, consumer,
-                            objectDatabase());
-                }
-                if (!pathFilters.isEmpty()) {// evaluated the former
-                    consumer = new PathFilteringDiffConsumer(pathFilters, consumer);
-                }
+                consumer = applyFilters(consumer);
                 if (recordStats) {
                     consumer = new StatsConsumer(consumer, stats);
                 }
@@ -349,6 +377,67 @@ public class DiffTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
         return consumerIterator;
     }
 
+    /**
+     * Walks the diff in "consumer mode": instead of producing {@link DiffEntry diff entries}, the
+     * events of the traversal are given to the provided consumer on the calling thread, after
+     * applying the same path, bounds, bucket, change type, and custom filters {@link #call()}
+     * would.
+     * <p>
+     * This allows to compute aggregates over the diff while skipping whole trees and buckets,
+     * since the consumer can decide not to traverse the contents of a
+     * {@link Consumer#tree(NodeRef, NodeRef) tree} or
+     * {@link Consumer#bucket(NodeRef, NodeRef, BucketIndex, Bucket, Bucket) bucket} the filters
+     * accepted.
+     * 
+     * @param consumer the consumer to walk the diff with
+     */
+    public void walk(final Consumer consumer) {
+        checkNotNull(consumer);
+        checkArgument(oldRefSpec != null || oldTreeId != null, "old version not specified");
+        checkArgument(newRefSpec != null || newTreeId != null, "new version not specified");
+        final ObjectStore leftSource = this.leftSource == null ? objectDatabase()
+                : this.leftSource;
+        final ObjectStore rightSource = this.rightSource == null ? objectDatabase()
+                : this.rightSource;
+
+        final RevTree oldTree = resolveTree(oldRefSpec, this.oldTreeId, leftSource);
+        final RevTree newTree = resolveTree(newRefSpec, this.newTreeId, rightSource);
+        if (oldTree.equals(newTree)) {
+            return;
+        }
+        final PreOrderDiffWalk visitor = new PreOrderDiffWalk(oldTree, newTree, leftSource,
+                rightSource, preserveIterationOrder || startAfter != null);
+        visitor.setDefaultMetadataId(this.metadataId);
+
+        Consumer filtered = consumer;
+        if (limit != null) {
+            filtered = new PreOrderDiffWalk.MaxFeatureDiffsLimiter(filtered, limit);
+        }
+        visitor.walk(applyFilters(filtered));
+    }
+
+    private Consumer applyFilters(Consumer consumer) {
+        if (customFilter != null) {
+            consumer = new PreOrderDiffWalk.FilteringConsumer(consumer, customFilter);
+        }
+        if (bucketFilter != null) {
+            consumer = new BucketFilteringDiffConsumer(bucketFilter, consumer);
+        }
+        if (changeTypeFilter != null) {
+            consumer = new ChangeTypeFilteringDiffConsumer(changeTypeFilter, consumer);
+        }
+        if (boundsFilter != null) {
+            consumer = new BoundsFilteringDiffConsumer(boundsFilter, consumer, objectDatabase());
+        }
+        if (!pathFilters.isEmpty()) {// evaluated the former
+            consumer = new PathFilteringDiffConsumer(pathFilters, consumer);
+        }
+        if (startAfter != null) {
+            consumer = new StartAfterDiffConsumer(startAfter, consumer);
+        }
+        return consumer;
+    }
+
     private RevTree resolveTree(@Nullable final String treeIsh, @Nullable final ObjectId treeOid,
             final ObjectStore source) {
 
@@ -377,6 +466,32 @@ public class DiffTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
         return tree;
     }
 
+    private static class BucketFilteringDiffConsumer extends ForwardingConsumer {
+
+        private final Predicate<BucketIndex> bucketFilter;
+
+        public BucketFilteringDiffConsumer(Predicate<BucketIndex> bucketFilter,
+                Consumer consumer) {
+            super(consumer);
+            this.bucketFilter = bucketFilter;
+        }
+
+        @Override
+        public boolean bucket(NodeRef lparent, NodeRef rparent, final BucketIndex bucketIndex,
+                final Bucket left, final Bucket right) {
+            return bucketFilter.apply(bucketIndex)
+                    && super.bucket(lparent, rparent, bucketIndex, left, right);
+        }
+
+        @Override
+        public void endBucket(NodeRef lparent, NodeRef rparent, BucketIndex bucketIndex,
+                Bucket left, Bucket right) {
+            if (bucketFilter.apply(bucketIndex)) {
+                super.endBucket(lparent, rparent, bucketIndex, left, right);
+            }
+        }
+    }
+
     private static class ChangeTypeFilteringDiffConsumer extends ForwardingConsumer {
 
         private final ChangeType changeTypeFilter;
@@ -471,6 +586,8 @@ public class DiffTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
 
         private boolean recursive = true;
 
+        private WalkPosition startAfter;
+
         public DiffEntryProducer(BlockingQueue<DiffEntry> queue) {
             this.entries = queue;
         }
@@ -495,6 +612,10 @@ public class DiffTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
             this.reportTrees = reportTrees;
         }
 
+        public void setStartAfter(@Nullable WalkPosition startAfter) {
+            this.startAfter = startAfter;
+        }
+
         public boolean isFinished() {
             return finished;
         }
@@ -504,7 +625,9 @@ public class DiffTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
             final String parentPath = left == null ? right.getParentPath() : left.getParentPath();
 
             if (!finished && reportTrees) {
-                if (parentPath != null) {// do not report the root tree
+                // do not report the root tree, nor the trees on the path of the start position
+                if (parentPath != null && (startAfter == null
+                        || startAfter.isAfter((left == null ? right : left).path()))) {
                     try {
                         entries.put(new DiffEntry(left, right));
                     } catch (InterruptedException e) {
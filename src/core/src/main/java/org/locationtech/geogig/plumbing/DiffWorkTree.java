@@ -41,6 +41,8 @@ public class DiffWorkTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEnt
 
     private boolean preserveIterationOrder;
 
+    private String startAfter;
+
     /**
      * @param refSpec the name of the root tree object in the to compare the working tree against.
      *        If {@code null} or not specified, defaults to the current state of the index.
@@ -69,6 +71,17 @@ public class DiffWorkTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEnt
         return this;
     }
 
+    /**
+     * @param path the path of the last entry returned by a previous call with the same arguments,
+     *        to resume the diff after it, or {@code null} to start from the beginning
+     * @return {@code this}
+     * @see DiffTree#setStartAfter(String)
+     */
+    public DiffWorkTree setStartAfter(@Nullable String path) {
+        this.startAfter = path;
+        return this;
+    }
+
     /**
      * If no {@link #setOldVersion(String) old version} was set, returns the differences between the
      * working tree and the index, otherwise the differences between the working tree and the
@@ -87,7 +100,7 @@ public class DiffWorkTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEnt
 
         DiffTree diff = command(DiffTree.class).setReportTrees(this.reportTrees)
                 .setOldTree(oldTree.getId()).setNewTree(newTree.getId()).setMaxDiffs(limit)
-                .setPreserveIterationOrder(preserveIterationOrder);
+                .setPreserveIterationOrder(preserveIterationOrder).setStartAfter(startAfter);
         if (this.pathFilter != null) {
             diff.setPathFilter(ImmutableList.of(pathFilter));
         }
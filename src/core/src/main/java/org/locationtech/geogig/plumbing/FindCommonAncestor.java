@@ -19,6 +19,7 @@ import java.util.Set;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.RevCommit;
 import org.locationtech.geogig.repository.AbstractGeoGigOp;
+import org.locationtech.geogig.storage.CommitGraph;
 import org.locationtech.geogig.storage.GraphDatabase;
 import org.locationtech.geogig.storage.GraphDatabase.Direction;
 import org.locationtech.geogig.storage.GraphDatabase.GraphEdge;
@@ -29,6 +30,10 @@ import com.google.common.base.Preconditions;
 
 /**
  * Finds the common {@link RevCommit commit} ancestor of two commits.
+ * <p>
+ * If the {@link GraphDatabase} maintains a {@link CommitGraph} and both commits are indexed in it,
+ * the query is resolved by the commit graph, pruning the walk by generation number. Otherwise the
+ * histories of both commits are traversed through the graph database.
  */
 public class FindCommonAncestor extends AbstractGeoGigOp<Optional<ObjectId>> {
 
@@ -102,13 +107,19 @@ public class FindCommonAncestor extends AbstractGeoGigOp<Optional<ObjectId>> {
      *         {@link Optional#absent()} if a common ancestor could not be found.
      */
     public Optional<ObjectId> findLowestCommonAncestor(ObjectId leftId, ObjectId rightId) {
+        GraphDatabase graphDb = graphDatabase();
+        Optional<CommitGraph> commitGraph = graphDb.getCommitGraph();
+        if (commitGraph.isPresent() && commitGraph.get().contains(leftId)
+                && commitGraph.get().contains(rightId)) {
+            return commitGraph.get().findLowestCommonAncestor(leftId, rightId);
+        }
+
         Set<GraphNode> leftSet = new HashSet<GraphNode>();
         Set<GraphNode> rightSet = new HashSet<GraphNode>();
 
         Queue<GraphNode> leftQueue = new LinkedList<GraphNode>();
         Queue<GraphNode> rightQueue = new LinkedList<GraphNode>();
 
-        GraphDatabase graphDb = graphDatabase();
         GraphNode leftNode = graphDb.getNode(leftId);
         leftQueue.add(leftNode);
 
@@ -0,0 +1,79 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.plumbing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.Ref;
+import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.porcelain.BranchListOp;
+import org.locationtech.geogig.repository.AbstractGeoGigOp;
+import org.locationtech.geogig.storage.CommitGraph;
+import org.locationtech.geogig.storage.GraphDatabase;
+import org.locationtech.geogig.storage.ObjectDatabase;
+
+import com.google.common.base.Optional;
+
+/**
+ * Indexes the history of the given commits, or of all the branches if none is given, in the
+ * {@link GraphDatabase#getCommitGraph() commit graph}, resolving the commits that are not indexed
+ * yet from the {@link ObjectDatabase}.
+ * <p>
+ * New commits are only appended to the commit graph as they're inserted, so this is what fills in
+ * the history of an existing repository the first time it's opened with a commit graph, or the
+ * commits the graph could not hold while waiting for their parents (e.g. during a large fetch).
+ * Commits whose history is already indexed are skipped right away.
+ *
+ * @return the number of commits added to the commit graph
+ */
+public class IndexCommitGraphOp extends AbstractGeoGigOp<Long> {
+
+    private List<ObjectId> commits = new ArrayList<>();
+
+    /**
+     * @param commitId a commit whose history to index, if none is given the history of all the
+     *        local and remote branches is indexed
+     */
+    public IndexCommitGraphOp addCommit(ObjectId commitId) {
+        this.commits.add(commitId);
+        return this;
+    }
+
+    @Override
+    protected Long _call() {
+        final Optional<CommitGraph> commitGraph = graphDatabase().getCommitGraph();
+        if (!commitGraph.isPresent()) {
+            return Long.valueOf(0L);
+        }
+        final CommitGraph graph = commitGraph.get();
+        final ObjectDatabase odb = objectDatabase();
+        final long initialSize = graph.size();
+
+        List<ObjectId> tips = commits;
+        if (tips.isEmpty()) {
+            tips = new ArrayList<>();
+            for (Ref ref : command(BranchListOp.class).setLocal(true).setRemotes(true).call()) {
+                tips.add(ref.getObjectId());
+            }
+        }
+        for (ObjectId tip : tips) {
+            if (getProgressListener().isCanceled()) {
+                break;
+            }
+            if (!tip.isNull() && !graph.contains(tip)) {
+                graph.index(tip,
+                        (id) -> Optional.fromNullable(odb.getIfPresent(id, RevCommit.class)));
+            }
+        }
+        return Long.valueOf(graph.size() - initialSize);
+    }
+}
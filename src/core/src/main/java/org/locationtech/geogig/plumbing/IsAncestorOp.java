@@ -0,0 +1,68 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.plumbing;
+
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.repository.AbstractGeoGigOp;
+import org.locationtech.geogig.storage.CommitGraph;
+import org.locationtech.geogig.storage.GraphDatabase;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+
+/**
+ * Determines whether a commit is reachable from another one following parent links, that is,
+ * whether the descendant already contains the ancestor's history (e.g. fast-forwards and pushes
+ * that don't lose history). A commit is considered its own ancestor.
+ * <p>
+ * If the {@link GraphDatabase} maintains a {@link CommitGraph} and both commits are indexed in it,
+ * the walk only visits commits with a greater generation number than the ancestor's. Otherwise the
+ * lowest common ancestor of both commits is {@link FindCommonAncestor computed}.
+ */
+public class IsAncestorOp extends AbstractGeoGigOp<Boolean> {
+
+    private ObjectId ancestor;
+
+    private ObjectId descendant;
+
+    /**
+     * @param ancestor the commit to look for in the history of the descendant
+     */
+    public IsAncestorOp setAncestor(ObjectId ancestor) {
+        this.ancestor = ancestor;
+        return this;
+    }
+
+    /**
+     * @param descendant the commit whose history to look the ancestor up in
+     */
+    public IsAncestorOp setDescendant(ObjectId descendant) {
+        this.descendant = descendant;
+        return this;
+    }
+
+    @Override
+    protected Boolean _call() {
+        Preconditions.checkState(ancestor != null, "Ancestor commit has not been set.");
+        Preconditions.checkState(descendant != null, "Descendant commit has not been set.");
+
+        if (ancestor.equals(descendant)) {
+            return Boolean.TRUE;
+        }
+        Optional<CommitGraph> commitGraph = graphDatabase().getCommitGraph();
+        if (commitGraph.isPresent() && commitGraph.get().contains(ancestor)
+                && commitGraph.get().contains(descendant)) {
+            return Boolean.valueOf(commitGraph.get().isAncestor(ancestor, descendant));
+        }
+        Optional<ObjectId> commonAncestor = command(FindCommonAncestor.class)
+                .setLeftId(ancestor).setRightId(descendant).call();
+        return Boolean.valueOf(commonAncestor.isPresent() && commonAncestor.get().equals(ancestor));
+    }
+}
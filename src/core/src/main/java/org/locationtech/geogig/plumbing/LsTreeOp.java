@@ -15,6 +15,7 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
+import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.di.CanRunDuringConflict;
 import org.locationtech.geogig.model.Bounded;
 import org.locationtech.geogig.model.NodeRef;
@@ -89,6 +90,8 @@ public class LsTreeOp extends AbstractGeoGigOp<Iterator<NodeRef>>
 
     private ObjectStore source;
 
+    private String startAfter;
+
     public LsTreeOp() {
         this.strategy = Strategy.CHILDREN;
     }
@@ -122,6 +125,17 @@ public class LsTreeOp extends AbstractGeoGigOp<Iterator<NodeRef>>
         return this;
     }
 
+    /**
+     * @param path the path of the last node returned by a previous call with the same arguments,
+     *        to resume the listing after it, or {@code null} to start from the beginning
+     * @return {@code this}
+     * @see DepthTreeIterator#setStartAfter(String)
+     */
+    public LsTreeOp setStartAfter(@Nullable String path) {
+        this.startAfter = path;
+        return this;
+    }
+
     /**
      * @see java.util.concurrent.Callable#call()
      */
@@ -246,6 +260,7 @@ public class LsTreeOp extends AbstractGeoGigOp<Iterator<NodeRef>>
             DepthTreeIterator iter = new DepthTreeIterator(path, metadataId, tree, source,
                     iterStrategy);
             iter.setBoundsFilter(refBoundsFilter);
+            iter.setStartAfter(startAfter);
             return iter;
         default:
             throw new IllegalArgumentException(String.format("Invalid reference: %s", ref));
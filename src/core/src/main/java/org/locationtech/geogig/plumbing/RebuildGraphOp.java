@@ -52,12 +52,21 @@ public class RebuildGraphOp extends AbstractGeoGigOp<ImmutableList<ObjectId>> {
             Iterator<RevCommit> commits = command(LogOp.class).setUntil(ref.getObjectId()).call();
             while (commits.hasNext()) {
                 RevCommit next = commits.next();
-                if (graphDb.put(next.getId(), next.getParentIds())) {
+                long timestamp = next.getCommitter().getTimestamp();
+                if (graphDb.put(next.getId(), next.getParentIds(), timestamp)) {
                     updated.add(next.getId());
                 }
             }
         }
 
+        // commits are added newest first, make sure the ones discarded by the commit graph while
+        // waiting for their parents get indexed
+        IndexCommitGraphOp indexCommitGraph = command(IndexCommitGraphOp.class);
+        for (Ref ref : branches) {
+            indexCommitGraph.addCommit(ref.getObjectId());
+        }
+        indexCommitGraph.call();
+
         return ImmutableList.copyOf(updated);
     }
 }
@@ -13,6 +13,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.Map.Entry;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.model.Bounded;
@@ -24,6 +25,9 @@ import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.RevObject.TYPE;
 import org.locationtech.geogig.model.RevObjects;
 import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.impl.NodeCursor;
+import org.locationtech.geogig.model.impl.NodeCursors;
+import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.BucketIndex;
 import org.locationtech.geogig.storage.ObjectStore;
 
 import com.google.common.base.Function;
@@ -84,6 +88,13 @@ public class DepthTreeIterator extends AbstractIterator<NodeRef> {
 
     private ObjectId metadataId;
 
+    private WalkPosition startAfter;
+
+    /**
+     * Whether the iteration went past {@link #startAfter}, since then everything comes after it
+     */
+    private boolean passed;
+
     private static class NodeToRef implements Function<Node, NodeRef> {
 
         private final String treePath;
@@ -123,12 +134,24 @@ public class DepthTreeIterator extends AbstractIterator<NodeRef> {
         this.boundsFilter = boundsFilter == null ? alwaysTrue : boundsFilter;
     }
 
+    /**
+     * Resumes the iteration after the node at the given path, as returned by a previous iteration
+     * with the same arguments, skipping the subtrees and buckets that precede it without loading
+     * them.
+     * 
+     * @param path the path of the last node returned by the previous iteration, or {@code null} to
+     *        start from the beginning
+     */
+    public void setStartAfter(@Nullable String path) {
+        this.startAfter = path == null ? null : new WalkPosition(path);
+    }
+
     @Override
     protected NodeRef computeNext() {
         if (iterator == null) {
             switch (strategy) {
             case CHILDREN:
-                iterator = Iterators.transform(new Children(tree), functor);
+                iterator = Iterators.transform(new Children(tree, treePath), functor);
                 break;
             case FEATURES_ONLY:
                 iterator = Iterators.transform(new Features(tree), functor);
@@ -148,6 +171,10 @@ public class DepthTreeIterator extends AbstractIterator<NodeRef> {
             default:
                 throw new IllegalArgumentException("Unrecognized strategy: " + strategy);
             }
+            if (startAfter != null) {
+                iterator = Iterators.filter(iterator,
+                        (ref) -> passed || (passed = startAfter.isAfter(ref.path())));
+            }
 
         }
         if (iterator.hasNext()) {
@@ -177,7 +204,7 @@ public class DepthTreeIterator extends AbstractIterator<NodeRef> {
             if (!features) {
                 this.myEntries = new Trees(tree);
             } else {
-                this.myEntries = new Children(tree);
+                this.myEntries = new Children(tree, treePath);
             }
             currEntryIterator = Collections.emptyIterator();
         }
@@ -203,10 +230,16 @@ public class DepthTreeIterator extends AbstractIterator<NodeRef> {
             }
             Preconditions.checkArgument(TYPE.TREE.equals(next.getType()));
 
+            String childTreePath = NodeRef.appendChild(this.functor.treePath, next.getName());
+            if (startAfter != null && !passed && !startAfter.isAfter(childTreePath)
+                    && !startAfter.isOnPath(childTreePath)) {
+                // the whole subtree precedes the start position
+                return Collections.emptyIterator();
+            }
+
             ObjectId treeId = next.getObjectId();
             RevTree childTree = source.getTree(treeId);
 
-            String childTreePath = NodeRef.appendChild(this.functor.treePath, next.getName());
             Iterator<NodeRef> children = new Recursive(childTreePath,
                     next.getMetadataId().or(functor.metadataId), childTree, features, trees);
             if (trees) {
@@ -217,16 +250,31 @@ public class DepthTreeIterator extends AbstractIterator<NodeRef> {
         }
     }
 
+    /**
+     * Streams the cursor's nodes through the {@link #setBoundsFilter bounds filter} without
+     * building the list of children up front
+     */
+    private Iterator<Node> filter(NodeCursor cursor) {
+        return Iterators.filter(NodeCursors.iterator(cursor), boundsFilter);
+    }
+
     private class Children extends AbstractIterator<Node> {
 
         private Iterator<Node> children;
 
         public Children(RevTree tree) {
+            this(tree, null);
+        }
+
+        /**
+         * @param treePath the path of {@code tree}, to skip its buckets that precede the
+         *        {@link #setStartAfter start position}, or {@code null} to skip none
+         */
+        public Children(RevTree tree, @Nullable String treePath) {
             if (!tree.buckets().isEmpty()) {
-                this.children = new Buckets(tree);
+                this.children = new Buckets(tree, treePath, BucketIndex.ROOT);
             } else {
-                this.children = Iterators.filter(
-                        RevObjects.children(tree, CanonicalNodeOrder.INSTANCE), boundsFilter);
+                this.children = filter(NodeCursors.children(tree));
             }
         }
 
@@ -244,12 +292,12 @@ public class DepthTreeIterator extends AbstractIterator<NodeRef> {
         private Iterator<Node> features;
 
         public Features(RevTree tree) {
-            if (!tree.features().isEmpty()) {
+            if (tree.buckets().isEmpty()) {
+                this.features = filter(NodeCursors.features(tree));
+            } else if (!tree.features().isEmpty()) {
                 this.features = Iterators.filter(tree.features().iterator(), boundsFilter);
-            } else if (!tree.buckets().isEmpty()) {
-                this.features = new FeatureBuckets(tree);
             } else {
-                this.features = Collections.emptyIterator();
+                this.features = new FeatureBuckets(tree);
             }
         }
 
@@ -269,12 +317,12 @@ public class DepthTreeIterator extends AbstractIterator<NodeRef> {
         public Trees(RevTree tree) {
             if (tree.numTrees() == 0) {
                 this.trees = Collections.emptyIterator();
+            } else if (tree.buckets().isEmpty()) {
+                this.trees = filter(NodeCursors.trees(tree));
             } else if (!tree.trees().isEmpty()) {
                 this.trees = Iterators.filter(tree.trees().iterator(), boundsFilter);
-            } else if (!tree.buckets().isEmpty()) {
-                this.trees = new TreeBuckets(tree);
             } else {
-                this.trees = Collections.emptyIterator();
+                this.trees = new TreeBuckets(tree);
             }
         }
 
@@ -292,13 +340,36 @@ public class DepthTreeIterator extends AbstractIterator<NodeRef> {
      */
     private class Buckets extends AbstractIterator<Node> {
 
-        private Iterator<Bucket> buckets;
+        private Iterator<Entry<Integer, Bucket>> buckets;
 
         private Iterator<Node> bucketEntries;
 
+        private final String treePath;
+
+        private final BucketIndex index;
+
+        private BucketIndex currentIndex;
+
         public Buckets(RevTree tree) {
+            this(tree, null, BucketIndex.ROOT);
+        }
+
+        /**
+         * @param treePath the path of the tree the buckets belong to, to skip the ones that
+         *        precede the {@link #setStartAfter start position}, or {@code null} to skip none
+         * @param index the index of the bucket {@code tree} is at, or the root index if it's not a
+         *        bucket tree
+         */
+        public Buckets(RevTree tree, @Nullable String treePath, BucketIndex index) {
             Preconditions.checkArgument(!tree.buckets().isEmpty());
-            buckets = Iterators.filter(tree.buckets().values().iterator(), boundsFilter);
+            this.treePath = treePath;
+            this.index = index;
+            Iterator<Entry<Integer, Bucket>> entries = tree.buckets().entrySet().iterator();
+            if (treePath != null && startAfter != null && startAfter.isOnPath(treePath)) {
+                entries = Iterators.filter(entries, (e) -> passed
+                        || startAfter.compareBucket(treePath, index.append(e.getKey())) >= 0);
+            }
+            buckets = Iterators.filter(entries, (e) -> boundsFilter.apply(e.getValue()));
             bucketEntries = Collections.emptyIterator();
             // may it be a mixed tree (having both direct children and buckets)
             bucketEntries = RevObjects.children(tree, CanonicalNodeOrder.INSTANCE);
@@ -308,8 +379,9 @@ public class DepthTreeIterator extends AbstractIterator<NodeRef> {
         protected Node computeNext() {
             while (!bucketEntries.hasNext()) {
                 if (buckets.hasNext()) {
-                    Bucket nextBucket = buckets.next();
-                    bucketEntries = resolveBucketEntries(nextBucket.getObjectId());
+                    Entry<Integer, Bucket> nextBucket = buckets.next();
+                    currentIndex = index.append(nextBucket.getKey());
+                    bucketEntries = resolveBucketEntries(nextBucket.getValue().getObjectId());
                 } else {
                     return endOfData();
                 }
@@ -324,7 +396,7 @@ public class DepthTreeIterator extends AbstractIterator<NodeRef> {
         protected Iterator<Node> resolveBucketEntries(ObjectId bucketId) {
             RevTree bucketTree = source.getTree(bucketId);
             if (!bucketTree.buckets().isEmpty()) {
-                return new Buckets(bucketTree);
+                return new Buckets(bucketTree, treePath, currentIndex);
             }
             return new Children(bucketTree);
         }
@@ -342,16 +414,7 @@ public class DepthTreeIterator extends AbstractIterator<NodeRef> {
         @Override
         protected Iterator<Node> resolveBucketEntries(ObjectId bucketId) {
             RevTree bucketTree = source.getTree(bucketId);
-            if (bucketTree.numTrees() == 0) {
-                return Collections.emptyIterator();
-            }
-            if (!bucketTree.trees().isEmpty()) {
-                return new Trees(bucketTree);
-            }
-            if (!bucketTree.buckets().isEmpty()) {
-                return new TreeBuckets(bucketTree);
-            }
-            return Collections.emptyIterator();
+            return new Trees(bucketTree);
         }
     }
 
@@ -367,13 +430,7 @@ public class DepthTreeIterator extends AbstractIterator<NodeRef> {
         @Override
         protected Iterator<Node> resolveBucketEntries(ObjectId bucketId) {
             RevTree bucketTree = source.getTree(bucketId);
-            if (!bucketTree.buckets().isEmpty()) {
-                return new FeatureBuckets(bucketTree);
-            }
-            if (!bucketTree.features().isEmpty()) {
-                return new Features(bucketTree);
-            }
-            return Collections.emptyIterator();
+            return new Features(bucketTree);
         }
     }
 }
@@ -0,0 +1,117 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.plumbing.diff;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.Bucket;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.BucketIndex;
+import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.Consumer;
+import org.locationtech.geogig.storage.ObjectStore;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * A {@link Consumer} for diffs that computes the number and bounds of the features added to the
+ * right side of the traversal, without traversing the buckets whose bounds are fully covered by a
+ * given envelope, whose precomputed {@link RevTree#size() size} and bounds are used instead.
+ * <p>
+ * Meant to be used behind a {@link BoundsFilteringDiffConsumer} with the same envelope (e.g.
+ * through {@link org.locationtech.geogig.plumbing.DiffTree#walk(Consumer) DiffTree.walk}), so that
+ * only the features and partially covered buckets that intersect the envelope are traversed.
+ * <p>
+ * Use {@link #getCount()} and {@link #getBounds()} after {@link PreOrderDiffWalk#walk(Consumer)
+ * visitor.walk(consumer)} to get the results.
+ */
+public class FeatureAggregatesConsumer extends PreOrderDiffWalk.AbstractConsumer {
+
+    private final ObjectStore treeSource;
+
+    private final @Nullable Envelope coverage;
+
+    private final Predicate<BucketIndex> aggregatable;
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final Envelope bounds = new Envelope();
+
+    /**
+     * @param treeSource where to get the bucket trees from
+     * @param coverage the envelope buckets must be fully within for their contents not to be
+     *        traversed, or {@code null} if all buckets are covered (i.e. there's no bounds filter)
+     * @param aggregatable which of the covered buckets can be aggregated as a whole, for example
+     *        to exclude buckets that may contain features with no bounds when counting
+     */
+    public FeatureAggregatesConsumer(ObjectStore treeSource, @Nullable Envelope coverage,
+            Predicate<BucketIndex> aggregatable) {
+        Preconditions.checkNotNull(treeSource);
+        Preconditions.checkNotNull(aggregatable);
+        this.treeSource = treeSource;
+        this.coverage = coverage;
+        this.aggregatable = aggregatable;
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return the bounds of the features found, {@link Envelope#isNull() null} if none
+     */
+    public Envelope getBounds() {
+        synchronized (bounds) {
+            return new Envelope(bounds);
+        }
+    }
+
+    @Override
+    public boolean feature(@Nullable NodeRef left, @Nullable NodeRef right) {
+        if (right != null) {
+            count.incrementAndGet();
+            expand(right.bounds());
+        }
+        return true;
+    }
+
+    @Override
+    public boolean bucket(NodeRef leftParent, NodeRef rightParent, BucketIndex bucketIndex,
+            @Nullable Bucket left, @Nullable Bucket right) {
+
+        if (left == null && right != null && isCovered(right) && aggregatable.apply(bucketIndex)) {
+            RevTree tree = treeSource.getTree(right.getObjectId());
+            count.addAndGet(tree.size());
+            expand(right.bounds());
+            return false;
+        }
+        return true;
+    }
+
+    private boolean isCovered(Bucket bucket) {
+        if (coverage == null) {
+            return true;
+        }
+        Optional<Envelope> bucketBounds = bucket.bounds();
+        return bucketBounds.isPresent() && coverage.contains(bucketBounds.get());
+    }
+
+    private void expand(Optional<Envelope> env) {
+        if (env.isPresent()) {
+            synchronized (bounds) {
+                bounds.expandToInclude(env.get());
+            }
+        }
+    }
+}
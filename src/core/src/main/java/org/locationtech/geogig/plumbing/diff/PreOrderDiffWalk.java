@@ -29,9 +29,16 @@ import java.util.Set;
 import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
 import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -39,6 +46,7 @@ import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.model.Bounded;
 import org.locationtech.geogig.model.Bucket;
+import org.locationtech.geogig.model.CanonicalNodeNameOrder;
 import org.locationtech.geogig.model.CanonicalNodeOrder;
 import org.locationtech.geogig.model.Node;
 import org.locationtech.geogig.model.NodeRef;
@@ -46,6 +54,8 @@ import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.RevObject.TYPE;
 import org.locationtech.geogig.model.RevObjects;
 import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.impl.NodeCursor;
+import org.locationtech.geogig.model.impl.NodeCursors;
 import org.locationtech.geogig.repository.impl.SpatialOps;
 import org.locationtech.geogig.storage.ObjectStore;
 
@@ -56,12 +66,14 @@ import com.google.common.base.Predicate;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.Iterables;
-import com.google.common.collect.Iterators;
 import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Multimaps;
-import com.google.common.collect.PeekingIterator;
 import com.google.common.collect.Sets;
 import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.vividsolutions.jts.geom.Envelope;
 
 /**
@@ -93,6 +105,12 @@ public class PreOrderDiffWalk {
 
     private static final ForkJoinPool SHARED_FORK_JOIN_POOL;
 
+    /**
+     * Default maximum number of bucket tree lookups a single walk can have in flight ahead of the
+     * comparison, see {@link #setPrefetchBudget(int)}
+     */
+    public static final int DEFAULT_PREFETCH_BUDGET = 16;
+
     static {
         final int parallelism = Math.max(2, Runtime.getRuntime().availableProcessors());
         // establishes local first-in-first-out scheduling mode for forked
@@ -148,6 +166,13 @@ public class PreOrderDiffWalk {
             return indexPath.length - 1;
         }
 
+        /**
+         * @return the bucket indices from the root tree down to the addressed bucket
+         */
+        public int[] getIndexPath() {
+            return indexPath.clone();
+        }
+
         /**
          * @return the bucket index at the last depth level
          */
@@ -202,6 +227,10 @@ public class PreOrderDiffWalk {
 
     private AtomicBoolean finished = new AtomicBoolean(false);
 
+    private int prefetchBudget = DEFAULT_PREFETCH_BUDGET;
+
+    private TreePrefetcher prefetcher = new TreePrefetcher(0);
+
     public PreOrderDiffWalk(RevTree left, RevTree right, ObjectStore leftSource,
             ObjectStore rightSource) {
         this(left, right, leftSource, rightSource, false);
@@ -230,6 +259,28 @@ public class PreOrderDiffWalk {
         this.metadataId = metadataId;
     }
 
+    /**
+     * Sets the maximum number of bucket tree lookups the walk issues ahead of time.
+     * <p>
+     * When comparing two bucket trees, the lookups for the bucket trees of the next level are
+     * started in the background while the current level is being compared, so that slow backends
+     * (e.g. a database server) are queried while the walk is busy elsewhere. This budget bounds
+     * the number of such lookups either in flight or loaded and waiting to be compared at any given
+     * time, {@code 0} disables prefetching. Lookups for buckets the walk doesn't get to compare
+     * (skipped by the consumer, or an aborted traversal) are discarded.
+     */
+    public void setPrefetchBudget(int maxInFlight) {
+        checkArgument(maxInFlight >= 0, "prefetch budget must be >= 0");
+        this.prefetchBudget = maxInFlight;
+    }
+
+    /**
+     * @return the prefetching statistics of the last (or current) {@link #walk}
+     */
+    public PrefetchStats getPrefetchStats() {
+        return prefetcher.stats();
+    }
+
     private static final class SideInfo {
 
         final ObjectStore source;
@@ -251,16 +302,20 @@ public class PreOrderDiffWalk {
 
         final SideInfo right;
 
-        WalkInfo(CancellableConsumer consumer, SideInfo left, SideInfo right) {
+        final TreePrefetcher prefetcher;
+
+        WalkInfo(CancellableConsumer consumer, SideInfo left, SideInfo right,
+                TreePrefetcher prefetcher) {
             this.consumer = consumer;
             this.left = left;
             this.right = right;
+            this.prefetcher = prefetcher;
         }
 
         public WalkInfo child(NodeRef leftChild, NodeRef rightChild) {
             SideInfo leftInfo = new SideInfo(left.source, leftChild);
             SideInfo rightInfo = new SideInfo(right.source, rightChild);
-            return new WalkInfo(consumer, leftInfo, rightInfo);
+            return new WalkInfo(consumer, leftInfo, rightInfo, prefetcher);
         }
     }
 
@@ -314,7 +369,9 @@ public class PreOrderDiffWalk {
         SideInfo leftInfo = new SideInfo(leftSource, leftRef);
         SideInfo rightInfo = new SideInfo(rightSource, rightRef);
 
-        WalkInfo walkInfo = new WalkInfo(walkConsumer, leftInfo, rightInfo);
+        this.prefetcher = new TreePrefetcher(prefetchBudget);
+
+        WalkInfo walkInfo = new WalkInfo(walkConsumer, leftInfo, rightInfo, prefetcher);
 
         TraverseTree task = new TraverseTree(walkInfo);
 
@@ -386,13 +443,19 @@ public class PreOrderDiffWalk {
         }
 
         TraverseLeafLeaf leafLeaf(Iterator<Node> leftChildren, Iterator<Node> rightChildren) {
+            return leafLeaf(NodeCursors.of(leftChildren), NodeCursors.of(rightChildren));
+        }
+
+        TraverseLeafLeaf leafLeaf(NodeCursor leftChildren, NodeCursor rightChildren) {
             return new TraverseLeafLeaf(info, leftChildren, rightChildren);
         }
 
-        List<WalkAction> bucketBucket(RevTree left, RevTree right) {
+        List<WalkAction> bucketBucket(RevTree left, RevTree right,
+                @Nullable PrefetchedTrees prefetched) {
             checkArgument(!left.buckets().isEmpty());
             checkArgument(!right.buckets().isEmpty());
             if (info.consumer.isCancelled()) {
+                info.prefetcher.discard(prefetched);
                 return Collections.emptyList();
             }
             final ImmutableSortedMap<Integer, Bucket> lb = left.buckets();
@@ -406,7 +469,7 @@ public class PreOrderDiffWalk {
             }
             final Map<ObjectId, RevTree> trees;
             try {
-                trees = loadTrees(lb, rb);
+                trees = info.prefetcher.get(prefetched, () -> loadTrees(lb, rb));
             } catch (RuntimeException e) {
                 info.consumer.abortTraversal();
                 return Collections.emptyList();
@@ -417,30 +480,56 @@ public class PreOrderDiffWalk {
             RevTree ltree, rtree;
 
             final List<WalkAction> tasks = new ArrayList<>();
-
-            for (BucketIndex index : childBucketIndexes) {
-                lbucket = lb.get(index.lastIndex());
-                rbucket = rb.get(index.lastIndex());
-                Preconditions.checkState(lbucket != null || rbucket != null);
-
-                if (!Objects.equal(lbucket, rbucket)) {
-
-                    ltree = lbucket == null ? RevTree.EMPTY : trees.get(lbucket.getObjectId());
-                    rtree = rbucket == null ? RevTree.EMPTY : trees.get(rbucket.getObjectId());
-
-                    WalkAction task;
-                    task = new TraverseBucketBucket(info, ltree, rtree, lbucket, rbucket, index);
-                    tasks.add(task);
+            try {
+                for (BucketIndex index : childBucketIndexes) {
+                    lbucket = lb.get(index.lastIndex());
+                    rbucket = rb.get(index.lastIndex());
+                    Preconditions.checkState(lbucket != null || rbucket != null);
+
+                    if (!Objects.equal(lbucket, rbucket)) {
+
+                        ltree = lbucket == null ? RevTree.EMPTY
+                                : trees.get(lbucket.getObjectId());
+                        rtree = rbucket == null ? RevTree.EMPTY
+                                : trees.get(rbucket.getObjectId());
+
+                        TraverseBucketBucket task;
+                        task = new TraverseBucketBucket(info, ltree, rtree, lbucket, rbucket,
+                                index);
+                        tasks.add(task);
+                        if (!ltree.buckets().isEmpty() && !rtree.buckets().isEmpty()) {
+                            final RevTree l = ltree, r = rtree;
+                            task.prefetched = info.prefetcher
+                                    .prefetch(() -> loadTrees(l.buckets(), r.buckets()));
+                        }
+                    }
                 }
+            } catch (RuntimeException e) {
+                discardPrefetched(tasks);
+                throw e;
             }
 
             if (info.consumer.isCancelled()) {
+                discardPrefetched(tasks);
                 return Collections.emptyList();
             }
 
             return tasks;
         }
 
+        /**
+         * Discards the prefetched bucket trees of the {@code tasks} that are not going to run, or
+         * didn't run, so they neither hold on to the loaded trees nor to the walk's prefetch
+         * budget. Tasks that did run already consumed or discarded their own.
+         */
+        void discardPrefetched(List<WalkAction> tasks) {
+            for (WalkAction t : tasks) {
+                if (t instanceof TraverseTreeContents) {
+                    ((TraverseTreeContents) t).discardPrefetched();
+                }
+            }
+        }
+
         private Map<ObjectId, RevTree> loadTrees(final ImmutableSortedMap<Integer, Bucket> lb,
                 final ImmutableSortedMap<Integer, Bucket> rb) {
             final Map<ObjectId, RevTree> trees;
@@ -701,6 +790,14 @@ public class PreOrderDiffWalk {
 
         private final RevTree left, right;
 
+        /**
+         * The bucket trees of {@code left} and {@code right}, being fetched ahead of time if both
+         * are bucket trees and the prefetch budget allowed it. Either consumed by
+         * {@link #bucketBucket} or {@link #discardPrefetched() discarded} on every other path.
+         */
+        @Nullable
+        PrefetchedTrees prefetched;
+
         public TraverseTreeContents(WalkInfo info, RevTree left, RevTree right,
                 BucketIndex bucketIndex) {
             super(info, bucketIndex);
@@ -710,12 +807,15 @@ public class PreOrderDiffWalk {
             this.right = right;
         }
 
+        void discardPrefetched() {
+            info.prefetcher.discard(prefetched);
+            prefetched = null;
+        }
+
         @Override
         protected void compute() {
-            if (Objects.equal(left, right)) {
-                return;
-            }
-            if (info.consumer.isCancelled()) {
+            if (Objects.equal(left, right) || info.consumer.isCancelled()) {
+                discardPrefetched();
                 return;
             }
             // Possible cases:
@@ -725,31 +825,36 @@ public class PreOrderDiffWalk {
             // 4- left is bucketed and right is leaf
             final boolean leftIsLeaf = left.buckets().isEmpty();
             final boolean rightIsLeaf = right.buckets().isEmpty();
-            Iterator<Node> leftc = leftIsLeaf
-                    ? RevObjects.children(left, CanonicalNodeOrder.INSTANCE) : null;
-            Iterator<Node> rightc = rightIsLeaf
-                    ? RevObjects.children(right, CanonicalNodeOrder.INSTANCE) : null;
 
             List<WalkAction> tasks = new ArrayList<>();
             if (leftIsLeaf && rightIsLeaf) {// 1-
 
-                leafLeaf(leftc, rightc).compute();
+                leafLeaf(NodeCursors.children(left), NodeCursors.children(right)).compute();
 
             } else if (!(leftIsLeaf || rightIsLeaf)) {// 2-
 
-                tasks.addAll(bucketBucket(left, right));
+                PrefetchedTrees prefetched = this.prefetched;
+                this.prefetched = null;
+                tasks.addAll(bucketBucket(left, right, prefetched));
 
             } else if (leftIsLeaf) {// 3-
 
+                Iterator<Node> leftc = RevObjects.children(left, CanonicalNodeOrder.INSTANCE);
                 tasks.addAll(leafBucket(leftc, right));
 
             } else {// 4-
 
+                Iterator<Node> rightc = RevObjects.children(right, CanonicalNodeOrder.INSTANCE);
                 tasks.addAll(bucketLeaf(left, rightc));
             }
 
-            if (!info.consumer.isCancelled()) {
-                invokeAll(tasks);
+            try {
+                if (!info.consumer.isCancelled()) {
+                    invokeAll(tasks);
+                }
+            } finally {
+                // tasks skipped on cancel or left unrun by a failing sibling
+                discardPrefetched(tasks);
             }
         }
 
@@ -758,11 +863,11 @@ public class PreOrderDiffWalk {
     @SuppressWarnings("serial")
     private static class TraverseLeafLeaf extends WalkAction {
 
-        private Iterator<Node> left;
+        private NodeCursor left;
 
-        private Iterator<Node> right;
+        private NodeCursor right;
 
-        TraverseLeafLeaf(WalkInfo info, Iterator<Node> leftChildren, Iterator<Node> rightChildren) {
+        TraverseLeafLeaf(WalkInfo info, NodeCursor leftChildren, NodeCursor rightChildren) {
             super(info);
             this.left = leftChildren;
             this.right = rightChildren;
@@ -771,66 +876,73 @@ public class PreOrderDiffWalk {
         /**
          * Traverse and compare the {@link RevObjects#children() children} nodes of two leaf trees,
          * calling {@link #node(Consumer, Node, Node)} for each diff.
+         * <p>
+         * Nodes are compared through {@link NodeCursor cursors}, so that unchanged nodes, the vast
+         * majority on most diffs, are skipped without creating {@link Node} instances if the tree
+         * storage format supports it.
          */
         @Override
         protected void compute() {
             if (info.consumer.isCancelled()) {
                 return;
             }
-            PeekingIterator<Node> li = Iterators.peekingIterator(left);
-            PeekingIterator<Node> ri = Iterators.peekingIterator(right);
+            final NodeCursor lc = this.left;
+            final NodeCursor rc = this.right;
+            boolean lhas = lc.next();
+            boolean rhas = rc.next();
 
             List<WalkAction> tasks = new ArrayList<>();
 
             final NodeRef leftParent = info.left.parentRef;
             final NodeRef rightParent = info.right.parentRef;
-            while (li.hasNext() && ri.hasNext() && !info.consumer.isCancelled()) {
-                final Node lpeek = li.peek();
-                final Node rpeek = ri.peek();
-                final int order = ORDER.compare(lpeek, rpeek);
+            while (lhas && rhas && !info.consumer.isCancelled()) {
+                final int order = CanonicalNodeNameOrder.INSTANCE.compare(lc.getName(),
+                        rc.getName());
                 @Nullable
                 WalkAction action = null;
                 if (order < 0) {
-                    NodeRef lref = newRef(leftParent, li.next());
+                    NodeRef lref = newRef(leftParent, lc.node());
                     action = node(lref, null);// removal
+                    lhas = lc.next();
                 } else if (order == 0) {// change
                     // same feature at both sides of the traversal, consume them and check if its
                     // changed it or not
-                    Node l = li.next();
-                    Node r = ri.next();
-                    if (!Objects.equal(l, r)) {
-                        NodeRef lref = newRef(leftParent, l);
-                        NodeRef rref = newRef(rightParent, r);
-                        if (!l.equals(r)) {
-                            action = node(lref, rref);
-                        }
+                    if (!(lc.getType().equals(rc.getType()) && lc.objectIdEquals(rc))) {
+                        NodeRef lref = newRef(leftParent, lc.node());
+                        NodeRef rref = newRef(rightParent, rc.node());
+                        action = node(lref, rref);
                     }
+                    lhas = lc.next();
+                    rhas = rc.next();
                 } else {
-                    NodeRef rref = newRef(rightParent, ri.next());
+                    NodeRef rref = newRef(rightParent, rc.node());
                     action = node(null, rref);// addition
+                    rhas = rc.next();
                 }
                 if (action != null) {
                     tasks.add(action);
                 }
             }
 
-            checkState(info.consumer.isCancelled() || !li.hasNext() || !ri.hasNext(),
+            checkState(info.consumer.isCancelled() || !lhas || !rhas,
                     "either the left or the right iterator should have been fully consumed");
 
             // right fully consumed, any remaining node in left is a removal
-            while (!info.consumer.isCancelled() && li.hasNext()) {
-                WalkAction action = node(newRef(leftParent, li.next()), null);
+            while (!info.consumer.isCancelled() && lhas) {
+                WalkAction action = node(newRef(leftParent, lc.node()), null);
                 if (action != null) {
                     tasks.add(action);
                 }
+                lhas = lc.next();
             }
 
             // left fully consumed, any remaining node in right is an add
-            while (!info.consumer.isCancelled() && ri.hasNext()) {
-                WalkAction action = node(null, newRef(rightParent, ri.next()));
+            while (!info.consumer.isCancelled() && rhas) {
+                WalkAction action = node(null, newRef(rightParent, rc.node()));
                 if (action != null) {
                     tasks.add(action);
                 }
+                rhas = rc.next();
             }
 
             if (!info.consumer.isCancelled()) {
@@ -891,6 +1003,7 @@ public class PreOrderDiffWalk {
         @Override
         protected void compute() {
             if (info.consumer.isCancelled()) {
+                discardPrefetched();
                 return;
             }
 
@@ -900,6 +1013,8 @@ public class PreOrderDiffWalk {
 
             if (info.consumer.bucket(leftParent, rightParent, index, leftBucket, rightBucket)) {
                 super.compute();
+            } else {
+                discardPrefetched();
             }
             info.consumer.endBucket(leftParent, rightParent, index, leftBucket, rightBucket);
         }
@@ -946,9 +1061,8 @@ public class PreOrderDiffWalk {
             final BucketIndex index = super.bucketIndex;
             if (rightNodes.hasNext()) {
                 if (leftTree.buckets().isEmpty()) {
-                    Iterator<Node> children;
-                    children = RevObjects.children(leftTree, CanonicalNodeOrder.INSTANCE);
-                    TraverseLeafLeaf task = leafLeaf(children, rightNodes);
+                    NodeCursor children = NodeCursors.children(leftTree);
+                    TraverseLeafLeaf task = leafLeaf(children, NodeCursors.of(rightNodes));
                     task.compute();
                 } else {
                     List<WalkAction> tasks = bucketLeaf(leftTree, rightNodes);
@@ -1005,9 +1119,8 @@ public class PreOrderDiffWalk {
             final BucketIndex index = super.bucketIndex;
             if (leftNodes.hasNext()) {
                 if (rightTree.buckets().isEmpty()) {
-                    Iterator<Node> children;
-                    children = RevObjects.children(rightTree, CanonicalNodeOrder.INSTANCE);
-                    TraverseLeafLeaf task = leafLeaf(leftNodes, children);
+                    NodeCursor children = NodeCursors.children(rightTree);
+                    TraverseLeafLeaf task = leafLeaf(NodeCursors.of(leftNodes), children);
                     task.compute();
                 } else {
                     List<WalkAction> tasks = leafBucket(leftNodes, rightTree);
@@ -1282,6 +1395,182 @@ public class PreOrderDiffWalk {
         }
     }
 
+    /**
+     * Immutable snapshot of the bucket tree prefetching statistics of a walk.
+     *
+     * @see PreOrderDiffWalk#getPrefetchStats()
+     */
+    public static final class PrefetchStats {
+
+        private final long issued, hits, stalls, misses, discarded;
+
+        PrefetchStats(long issued, long hits, long stalls, long misses, long discarded) {
+            this.issued = issued;
+            this.hits = hits;
+            this.stalls = stalls;
+            this.misses = misses;
+            this.discarded = discarded;
+        }
+
+        /**
+         * @return number of bucket tree lookups started ahead of time
+         */
+        public long getIssued() {
+            return issued;
+        }
+
+        /**
+         * @return number of prefetched lookups that were already complete when the walk needed
+         *         them
+         */
+        public long getHits() {
+            return hits;
+        }
+
+        /**
+         * @return number of prefetched lookups the walk had to wait for
+         */
+        public long getStalls() {
+            return stalls;
+        }
+
+        /**
+         * @return number of bucket tree lookups performed synchronously, either because the
+         *         prefetch budget was exhausted, prefetching is disabled, or the prefetch failed
+         */
+        public long getMisses() {
+            return misses;
+        }
+
+        /**
+         * @return number of prefetched lookups that were never used because the consumer chose to
+         *         skip the buckets or the walk was cancelled
+         */
+        public long getDiscarded() {
+            return discarded;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("PrefetchStats[issued: %,d, hits: %,d, stalls: %,d, misses: %,d,"
+                    + " discarded: %,d]", issued, hits, stalls, misses, discarded);
+        }
+    }
+
+    /**
+     * A bucket tree lookup issued ahead of time, holding a slot of the walk's prefetch budget
+     * until it's either consumed or discarded.
+     */
+    private static final class PrefetchedTrees {
+
+        final ListenableFuture<Map<ObjectId, RevTree>> future;
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        PrefetchedTrees(ListenableFuture<Map<ObjectId, RevTree>> future) {
+            this.future = future;
+        }
+
+        /**
+         * @return {@code true} only for the first caller, which owns the result from then on
+         */
+        boolean release() {
+            return released.compareAndSet(false, true);
+        }
+    }
+
+    /**
+     * Issues bucket tree lookups in the background, bounded by a per walk budget of lookups that
+     * are either in flight or loaded and not yet consumed, and keeps track of how useful they were.
+     */
+    private static final class TreePrefetcher {
+
+        private static final ListeningExecutorService PREFETCH_EXECUTOR;
+
+        static {
+            final int poolSize = Math.max(4, Runtime.getRuntime().availableProcessors());
+            ExecutorService executor = Executors.newFixedThreadPool(poolSize,
+                    new ThreadFactoryBuilder().setDaemon(true)
+                            .setNameFormat("PreOrderDiffWalk-prefetch-%d").build());
+            PREFETCH_EXECUTOR = MoreExecutors.listeningDecorator(executor);
+        }
+
+        private final Semaphore inFlight;
+
+        private final AtomicLong issued = new AtomicLong(), hits = new AtomicLong(),
+                stalls = new AtomicLong(), misses = new AtomicLong(),
+                discarded = new AtomicLong();
+
+        TreePrefetcher(final int maxInFlight) {
+            this.inFlight = new Semaphore(maxInFlight);
+        }
+
+        /**
+         * @return the lookup of {@code loader}'s result, or {@code null} if the budget is
+         *         exhausted. The caller must either {@link #get} or {@link #discard} it.
+         */
+        @Nullable
+        PrefetchedTrees prefetch(Callable<Map<ObjectId, RevTree>> loader) {
+            if (!inFlight.tryAcquire()) {
+                return null;
+            }
+            ListenableFuture<Map<ObjectId, RevTree>> future;
+            try {
+                future = PREFETCH_EXECUTOR.submit(loader);
+            } catch (RuntimeException e) {
+                inFlight.release();
+                return null;
+            }
+            issued.incrementAndGet();
+            return new PrefetchedTrees(future);
+        }
+
+        /**
+         * Returns the result of the {@code prefetched} lookup, waiting for it if needed, or calls
+         * {@code loader} directly if it wasn't prefetched, was already discarded, or the prefetch
+         * failed.
+         */
+        Map<ObjectId, RevTree> get(@Nullable PrefetchedTrees prefetched,
+                Callable<Map<ObjectId, RevTree>> loader) {
+            if (prefetched != null && prefetched.release()) {
+                inFlight.release();
+                final Future<Map<ObjectId, RevTree>> future = prefetched.future;
+                (future.isDone() ? hits : stalls).incrementAndGet();
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw Throwables.propagate(e);
+                } catch (ExecutionException | CancellationException e) {
+                    // fall back to loading synchronously so errors surface on the walk thread
+                }
+            }
+            misses.incrementAndGet();
+            try {
+                return loader.call();
+            } catch (Exception e) {
+                throw Throwables.propagate(e);
+            }
+        }
+
+        /**
+         * Cancels the {@code prefetched} lookup if it's still pending, and gives its slot back to
+         * the budget. Does nothing if it was already consumed or discarded.
+         */
+        void discard(@Nullable PrefetchedTrees prefetched) {
+            if (prefetched != null && prefetched.release()) {
+                prefetched.future.cancel(false);
+                inFlight.release();
+                discarded.incrementAndGet();
+            }
+        }
+
+        PrefetchStats stats() {
+            return new PrefetchStats(issued.get(), hits.get(), stalls.get(), misses.get(),
+                    discarded.get());
+        }
+    }
+
     private static final class CancellableConsumer extends ForwardingConsumer {
 
         private final AtomicBoolean cancel = new AtomicBoolean();
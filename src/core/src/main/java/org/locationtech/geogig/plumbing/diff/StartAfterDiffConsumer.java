@@ -0,0 +1,100 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.plumbing.diff;
+
+import org.locationtech.geogig.model.Bucket;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.BucketIndex;
+import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.Consumer;
+
+/**
+ * A {@link Consumer} decorator that resumes a diff walk after a given {@link WalkPosition
+ * position}, only delegating the features that come after it, and skipping the trees and buckets
+ * that precede it without them being traversed.
+ * <p>
+ * The trees on the path of the position are still delegated, so the delegate can decide whether to
+ * traverse them, but it's up to it not to report them again.
+ * <p>
+ * Requires the walk to preserve iteration order.
+ */
+public class StartAfterDiffConsumer extends PreOrderDiffWalk.ForwardingConsumer {
+
+    private final WalkPosition position;
+
+    /**
+     * Whether the walk went past the position, since then everything comes after it
+     */
+    private boolean passed;
+
+    public StartAfterDiffConsumer(WalkPosition position, Consumer delegate) {
+        super(delegate);
+        this.position = position;
+    }
+
+    @Override
+    public boolean feature(NodeRef left, NodeRef right) {
+        if (passed || (passed = position.isAfter(path(left, right)))) {
+            return super.feature(left, right);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean tree(NodeRef left, NodeRef right) {
+        if (passed) {
+            return super.tree(left, right);
+        }
+        final String path = path(left, right);
+        if (position.isAfter(path)) {
+            passed = true;
+            return super.tree(left, right);
+        }
+        if (position.isOnPath(path)) {
+            return super.tree(left, right);
+        }
+        return false;
+    }
+
+    @Override
+    public void endTree(NodeRef left, NodeRef right) {
+        if (passed || !isBefore(path(left, right))) {
+            super.endTree(left, right);
+        }
+    }
+
+    @Override
+    public boolean bucket(NodeRef leftParent, NodeRef rightParent, BucketIndex bucketIndex,
+            Bucket left, Bucket right) {
+        if (passed || !skip(path(leftParent, rightParent), bucketIndex)) {
+            return super.bucket(leftParent, rightParent, bucketIndex, left, right);
+        }
+        return false;
+    }
+
+    @Override
+    public void endBucket(NodeRef leftParent, NodeRef rightParent, BucketIndex bucketIndex,
+            Bucket left, Bucket right) {
+        if (passed || !skip(path(leftParent, rightParent), bucketIndex)) {
+            super.endBucket(leftParent, rightParent, bucketIndex, left, right);
+        }
+    }
+
+    private boolean isBefore(String path) {
+        return !position.isOnPath(path) && !position.isAfter(path);
+    }
+
+    private boolean skip(String treePath, BucketIndex bucketIndex) {
+        return position.isOnPath(treePath) && position.compareBucket(treePath, bucketIndex) < 0;
+    }
+
+    private static String path(NodeRef left, NodeRef right) {
+        return left == null ? right.path() : left.path();
+    }
+}
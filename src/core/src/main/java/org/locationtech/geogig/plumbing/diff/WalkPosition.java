@@ -0,0 +1,126 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.plumbing.diff;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import org.locationtech.geogig.model.CanonicalNodeNameOrder;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.BucketIndex;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * A position in the pre-order traversal of a tree in canonical order, as performed by
+ * {@link PreOrderDiffWalk} when preserving iteration order and by {@link DepthTreeIterator}, given
+ * by the path of the last node visited.
+ * <p>
+ * Trees are visited before their contents, and the nodes of a tree in
+ * {@link CanonicalNodeNameOrder canonical order}, so whether a node comes after the position can
+ * be told from their paths alone, and so can whether a whole subtree or bucket comes before it,
+ * which allows to resume a traversal without loading what precedes the position.
+ */
+public final class WalkPosition {
+
+    private static final CanonicalNodeNameOrder ORDER = CanonicalNodeNameOrder.INSTANCE;
+
+    private final String path;
+
+    private final ImmutableList<String> steps;
+
+    public WalkPosition(final String path) {
+        checkNotNull(path);
+        checkArgument(!path.isEmpty(), "the root tree is not a valid position");
+        this.path = path;
+        this.steps = NodeRef.split(path);
+    }
+
+    /**
+     * @return the path of the last node visited
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return {@code true} if the node at {@code nodePath} is visited after this position,
+     *         including if it's a child of it
+     */
+    public boolean isAfter(final String nodePath) {
+        return compare(nodePath) > 0;
+    }
+
+    /**
+     * @return {@code true} if the tree at {@code treePath} is the node at this position or one of
+     *         its parents, and hence needs to be traversed to resume from this position
+     */
+    public boolean isOnPath(final String treePath) {
+        ImmutableList<String> treeSteps = NodeRef.split(treePath);
+        return treeSteps.size() <= steps.size()
+                && treeSteps.equals(steps.subList(0, treeSteps.size()));
+    }
+
+    /**
+     * Compares a bucket of a tree {@link #isOnPath on the path} of this position against the
+     * bucket that holds the position's node, or its parent tree, at the same depth.
+     *
+     * @return a negative integer if the bucket is visited before the position and can hence be
+     *         skipped, zero if the bucket is on the path of the position, or a positive integer if
+     *         all of its contents are visited after the position
+     */
+    public int compareBucket(final String treePath, final BucketIndex bucketIndex) {
+        checkArgument(isOnPath(treePath), "%s is not on the path of %s", treePath, path);
+        final int treeDepth = NodeRef.depth(treePath);
+        if (treeDepth == steps.size()) {
+            // the bucket is part of the tree at this position, all its contents come after it
+            return 1;
+        }
+        final String childName = steps.get(treeDepth);
+        BucketIndex childBucket = BucketIndex.ROOT;
+        for (int depth = 0; depth <= bucketIndex.depthIndex(); depth++) {
+            childBucket = childBucket.append(CanonicalNodeNameOrder.bucket(childName, depth));
+        }
+        return bucketIndex.compareTo(childBucket);
+    }
+
+    /**
+     * @return a negative integer, zero, or a positive integer as the node at {@code nodePath} is
+     *         visited before, at, or after this position
+     */
+    public int compare(final String nodePath) {
+        final ImmutableList<String> nodeSteps = NodeRef.split(nodePath);
+        final int common = Math.min(nodeSteps.size(), steps.size());
+        for (int i = 0; i < common; i++) {
+            String nodeStep = nodeSteps.get(i);
+            String step = steps.get(i);
+            if (!nodeStep.equals(step)) {
+                return ORDER.compare(nodeStep, step);
+            }
+        }
+        // parents are visited before their children
+        return Integer.compare(nodeSteps.size(), steps.size());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof WalkPosition && path.equals(((WalkPosition) o).path);
+    }
+
+    @Override
+    public int hashCode() {
+        return path.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "WalkPosition[" + path + "]";
+    }
+}
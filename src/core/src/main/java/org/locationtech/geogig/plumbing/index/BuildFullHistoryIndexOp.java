@@ -12,8 +12,22 @@ package org.locationtech.geogig.plumbing.index;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 
-import java.util.Iterator;
+import java.math.RoundingMode;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.model.NodeRef;
@@ -22,27 +36,46 @@ import org.locationtech.geogig.model.Ref;
 import org.locationtech.geogig.model.RevCommit;
 import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.plumbing.FindTreeChild;
-import org.locationtech.geogig.plumbing.ResolveTreeish;
 import org.locationtech.geogig.porcelain.BranchListOp;
-import org.locationtech.geogig.porcelain.LogOp;
 import org.locationtech.geogig.porcelain.index.IndexUtils;
 import org.locationtech.geogig.repository.AbstractGeoGigOp;
 import org.locationtech.geogig.repository.IndexInfo;
 import org.locationtech.geogig.repository.ProgressListener;
+import org.locationtech.geogig.storage.IndexDatabase;
+import org.locationtech.geogig.storage.ObjectDatabase;
 
 import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
+import com.google.common.math.IntMath;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * Builds an index for every commit a given type tree is present at. Returns the number of trees
  * that were built.
+ * <p>
+ * The commits reachable from all the local and remote branches are visited once, parents first,
+ * and each distinct version of the type tree is indexed by applying its differences with an
+ * already indexed version (preferably one of its parent commits') to that version's index tree.
+ * The list of trees is split in up to {@link #setParallelism(int) parallelism} contiguous segments
+ * that are indexed concurrently, only the first tree of each segment may need to be built from
+ * scratch. Finally, the branches' index {@link IndexUtils#getCheckpoint checkpoints} are set to
+ * their current commits.
  */
 public class BuildFullHistoryIndexOp extends AbstractGeoGigOp<Integer> {
 
+    /**
+     * Minimum number of trees indexed by each concurrent task, the first tree of each task may not
+     * have an indexed tree to start from, so it's not worth splitting shorter histories
+     */
+    private static final int MIN_TREES_PER_TASK = 10;
+
     private String treeRefSpec;
 
     private @Nullable String attributeName;
 
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
     /**
      * @param treeRefSpec the tree refspec of the index to be built
      * @return {@code this}
@@ -61,6 +94,17 @@ public class BuildFullHistoryIndexOp extends AbstractGeoGigOp<Integer> {
         return this;
     }
 
+    /**
+     * @param parallelism the maximum number of trees to index concurrently, defaults to the number
+     *        of available processors
+     * @return {@code this}
+     */
+    public BuildFullHistoryIndexOp setParallelism(int parallelism) {
+        checkArgument(parallelism > 0, "parallelism must be > 0: %s", parallelism);
+        this.parallelism = parallelism;
+        return this;
+    }
+
     /**
      * Performs the operation.
      * 
@@ -86,6 +130,19 @@ public class BuildFullHistoryIndexOp extends AbstractGeoGigOp<Integer> {
         return builtTrees;
     }
 
+    /**
+     * A version of the type tree to index, and the versions at its commits' parents
+     */
+    private static class TreeVersion {
+
+        final NodeRef treeRef;
+
+        final Set<ObjectId> parentTrees = new LinkedHashSet<>();
+
+        TreeVersion(NodeRef treeRef) {
+            this.treeRef = treeRef;
+        }
+    }
 
     /**
      * Builds an index on every reachable commit in the history.
@@ -96,65 +153,212 @@ public class BuildFullHistoryIndexOp extends AbstractGeoGigOp<Integer> {
     private int indexHistory(IndexInfo index) {
         ImmutableList<Ref> branches = command(BranchListOp.class).setLocal(true).setRemotes(true)
                 .call();
-        int builtTrees = 0;
         ProgressListener listener = getProgressListener();
+
+        final List<RevCommit> commits = topologicalOrder(branches);
+        if (listener.isCanceled()) {
+            return 0;
+        }
+        final List<TreeVersion> trees = resolveTrees(index, commits);
+        final int builtTrees = indexTrees(index, trees);
+        if (listener.isCanceled()) {
+            return builtTrees;
+        }
+
+        final IndexDatabase indexDatabase = indexDatabase();
+        for (Ref ref : branches) {
+            if (ref.getObjectId().isNull()) {
+                continue;
+            }
+            RevCommit tip = objectDatabase().getCommit(ref.getObjectId());
+            NodeRef treeRef = findTypeTree(index, tip);
+            if (treeRef != null
+                    && indexDatabase.resolveIndexedTree(index, treeRef.getObjectId()).isPresent()) {
+                IndexUtils.setCheckpoint(indexDatabase, index, ref.getName(), ref.getObjectId());
+            }
+        }
+        return builtTrees;
+    }
+
+    /**
+     * @return all the commits reachable from the given branches, each one after all its parents
+     */
+    private List<RevCommit> topologicalOrder(List<Ref> branches) {
+        final ObjectDatabase objectDatabase = objectDatabase();
+        final ProgressListener listener = getProgressListener();
+
+        final Set<ObjectId> visited = new HashSet<>();
+        final List<RevCommit> ordered = new ArrayList<>();
+        // iterative depth first traversal, a commit is added after all its parents
+        final Deque<ObjectId> pending = new ArrayDeque<>();
+        final Map<ObjectId, RevCommit> expanded = new HashMap<>();
         for (Ref ref : branches) {
+            if (!ref.getObjectId().isNull()) {
+                pending.push(ref.getObjectId());
+            }
+        }
+        while (!pending.isEmpty() && !listener.isCanceled()) {
+            final ObjectId id = pending.peek();
+            if (visited.contains(id)) {
+                pending.pop();
+                continue;
+            }
+            RevCommit commit = expanded.get(id);
+            if (commit == null) {
+                commit = objectDatabase.getCommit(id);
+                expanded.put(id, commit);
+                for (ObjectId parentId : commit.getParentIds()) {
+                    // parents may be missing on shallow clones
+                    if (!visited.contains(parentId) && objectDatabase.exists(parentId)) {
+                        pending.push(parentId);
+                    }
+                }
+            } else {
+                pending.pop();
+                expanded.remove(id);
+                visited.add(id);
+                ordered.add(commit);
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * @return the distinct versions of the type tree at the given commits that are not indexed
+     *         yet, in the same order
+     */
+    private List<TreeVersion> resolveTrees(IndexInfo index, List<RevCommit> commits) {
+        final IndexDatabase indexDatabase = indexDatabase();
+        final ProgressListener listener = getProgressListener();
+
+        final Map<ObjectId, ObjectId> commitTrees = new HashMap<>();
+        final Map<ObjectId, TreeVersion> trees = new LinkedHashMap<>();
+        for (RevCommit commit : commits) {
             if (listener.isCanceled()) {
                 break;
             }
-            Iterator<RevCommit> commits = command(LogOp.class).setUntil(ref.getObjectId()).call();
-            while (commits.hasNext()) {
-                if (listener.isCanceled()) {
-                    break;
+            final NodeRef treeRef = findTypeTree(index, commit);
+            if (treeRef == null) {
+                continue;
+            }
+            final ObjectId treeId = treeRef.getObjectId();
+            commitTrees.put(commit.getId(), treeId);
+            TreeVersion version = trees.get(treeId);
+            if (version == null) {
+                if (indexDatabase.resolveIndexedTree(index, treeId).isPresent()) {
+                    continue;
                 }
-                RevCommit next = commits.next();
-                if (indexCommit(index, next)) {
-                    builtTrees++;
+                version = new TreeVersion(treeRef);
+                trees.put(treeId, version);
+            }
+            for (ObjectId parentId : commit.getParentIds()) {
+                ObjectId parentTree = commitTrees.get(parentId);
+                if (parentTree != null && !parentTree.equals(treeId)) {
+                    version.parentTrees.add(parentTree);
                 }
             }
         }
-        return builtTrees;
+        return new ArrayList<>(trees.values());
     }
 
     /**
-     * Builds an index for a single commit.
+     * Indexes the given trees, splitting them in contiguous segments that are indexed
+     * concurrently.
      * 
-     * @param index the {@link IndexInfo} to use
-     * @param commit the commit to build the index for
-     * @return {@code true} if an index tree was built, {@code false} otherwise
+     * @return the number of trees that were built
      */
-    private boolean indexCommit(IndexInfo index, RevCommit commit) {
-        RevTree commitTree = objectDatabase().getTree(commit.getTreeId());
-        Optional<NodeRef> treeNode = command(FindTreeChild.class).setChildPath(index.getTreeName())
-                .setParent(commitTree).call();
-        if (!treeNode.isPresent()) {
-            return false;
+    private int indexTrees(IndexInfo index, List<TreeVersion> trees) {
+        if (trees.isEmpty()) {
+            return 0;
         }
-        if (indexDatabase().resolveIndexedTree(index, treeNode.get().getObjectId()).isPresent()) {
-            return false;
+        final int numTasks = Math.min(parallelism,
+                IntMath.divide(trees.size(), MIN_TREES_PER_TASK, RoundingMode.CEILING));
+        if (numTasks == 1) {
+            return indexSegment(index, trees);
         }
-        RevTree newCanonicalTree = objectDatabase().getTree(treeNode.get().getObjectId());
-        ImmutableList<ObjectId> oldCommits = graphDatabase().getChildren(commit.getId());
-        RevTree oldCanonicalTree = RevTree.EMPTY;
-        for (ObjectId oldCommitId : oldCommits) {
-            Optional<ObjectId> oldTreeId = command(ResolveTreeish.class)
-                    .setTreeish(oldCommitId.toString() + ":" + index.getTreeName()).call();
-            if (oldTreeId.isPresent()
-                    && indexDatabase().resolveIndexedTree(index, oldTreeId.get()).isPresent()) {
-                oldCanonicalTree = objectDatabase().getTree(oldTreeId.get());
-                break;
+
+        final int segmentSize = IntMath.divide(trees.size(), numTasks, RoundingMode.CEILING);
+        final ExecutorService executor = Executors.newFixedThreadPool(numTasks,
+                new ThreadFactoryBuilder().setDaemon(true)
+                        .setNameFormat("geogig-history-index-%d").build());
+        try {
+            List<Future<Integer>> tasks = new ArrayList<>(numTasks);
+            for (int from = 0; from < trees.size(); from += segmentSize) {
+                final List<TreeVersion> segment = trees.subList(from,
+                        Math.min(trees.size(), from + segmentSize));
+                Callable<Integer> task = () -> indexSegment(index, segment);
+                tasks.add(executor.submit(task));
+            }
+            int builtTrees = 0;
+            for (Future<Integer> task : tasks) {
+                builtTrees += task.get().intValue();
             }
+            return builtTrees;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Throwables.propagate(e);
+        } catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        } finally {
+            executor.shutdownNow();
         }
-        command(BuildIndexOp.class)//
-                .setIndex(index)//
-                .setRevFeatureTypeId(treeNode.get().getMetadataId())//
-                .setOldCanonicalTree(oldCanonicalTree)//
-                .setNewCanonicalTree(newCanonicalTree)//
-                .setProgressListener(getProgressListener())//
-                .call();
-        if (getProgressListener().isCanceled()) {
-            return false;
+    }
+
+    /**
+     * Indexes the given trees sequentially, each one starting from the index tree of one of its
+     * parent versions if they're already indexed, or from the previous tree in the segment
+     * otherwise.
+     * 
+     * @return the number of trees that were built
+     */
+    private int indexSegment(IndexInfo index, List<TreeVersion> segment) {
+        final ObjectDatabase objectDatabase = objectDatabase();
+        final IndexDatabase indexDatabase = indexDatabase();
+        final ProgressListener listener = getProgressListener();
+
+        int builtTrees = 0;
+        RevTree previous = RevTree.EMPTY;
+        for (TreeVersion version : segment) {
+            if (listener.isCanceled()) {
+                break;
+            }
+            RevTree oldCanonicalTree = previous;
+            for (ObjectId parentTree : version.parentTrees) {
+                if (indexDatabase.resolveIndexedTree(index, parentTree).isPresent()) {
+                    oldCanonicalTree = getTree(objectDatabase, parentTree);
+                    break;
+                }
+            }
+            final NodeRef treeRef = version.treeRef;
+            final RevTree newCanonicalTree = getTree(objectDatabase, treeRef.getObjectId());
+            command(BuildIndexOp.class)//
+                    .setIndex(index)//
+                    .setRevFeatureTypeId(treeRef.getMetadataId())//
+                    .setOldCanonicalTree(oldCanonicalTree)//
+                    .setNewCanonicalTree(newCanonicalTree)//
+                    .setProgressListener(listener)//
+                    .call();
+            if (listener.isCanceled()) {
+                break;
+            }
+            previous = newCanonicalTree;
+            builtTrees++;
         }
-        return true;
+        return builtTrees;
+    }
+
+    private static RevTree getTree(ObjectDatabase objectDatabase, ObjectId treeId) {
+        return RevTree.EMPTY_TREE_ID.equals(treeId) ? RevTree.EMPTY
+                : objectDatabase.getTree(treeId);
+    }
+
+    /**
+     * @return the type tree at the given commit, or {@code null} if it's not present
+     */
+    private @Nullable NodeRef findTypeTree(IndexInfo index, RevCommit commit) {
+        RevTree commitTree = objectDatabase().getTree(commit.getTreeId());
+        Optional<NodeRef> treeNode = command(FindTreeChild.class).setChildPath(index.getTreeName())
+                .setParent(commitTree).call();
+        return treeNode.orNull();
     }
 }
@@ -18,6 +18,7 @@ import java.util.Set;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.RevFeatureType;
 import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.impl.AttributeTreeBuilder;
 import org.locationtech.geogig.model.impl.QuadTreeBuilder;
 import org.locationtech.geogig.model.impl.RevTreeBuilder;
 import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk;
@@ -61,7 +62,9 @@ public class BuildIndexOp extends AbstractGeoGigOp<RevTree> {
 
     /**
      * @param oldTree the previous canonical tree, used to optimize the construction of a new
-     *        indexed tree
+     *        indexed tree. If it has been indexed, only the differences between it and the new
+     *        canonical tree are applied to its index tree; otherwise the index is built from
+     *        scratch.
      * @return {@code this}
      */
     public BuildIndexOp setOldCanonicalTree(RevTree oldTree) {
@@ -99,13 +102,18 @@ public class BuildIndexOp extends AbstractGeoGigOp<RevTree> {
         checkState(newCanonicalTree != null, "new canonical version of the tree was not provided");
         checkState(revFeatureTypeId != null, "FeatureType id was not provided");
 
-        final RevTreeBuilder builder = resolveTreeBuilder();
+        final RevTree oldIndexTree = resolveOldIndexTree();
+        // the index tree is only updated with the changes since the old canonical tree if it's
+        // been indexed, otherwise all the new tree nodes need to be added
+        final RevTree baseCanonicalTree = oldIndexTree.isEmpty() ? RevTree.EMPTY
+                : oldCanonicalTree;
+        final RevTreeBuilder builder = resolveTreeBuilder(oldIndexTree);
         final ProgressListener progress = getProgressListener();
         final PreOrderDiffWalk.Consumer builderConsumer = resolveConsumer(builder, progress);
 
         boolean preserveIterationOrder = true;
         final ObjectDatabase canonicalStore = objectDatabase();
-        PreOrderDiffWalk walk = new PreOrderDiffWalk(oldCanonicalTree, newCanonicalTree,
+        PreOrderDiffWalk walk = new PreOrderDiffWalk(baseCanonicalTree, newCanonicalTree,
                 canonicalStore, canonicalStore, preserveIterationOrder);
 
         final Stopwatch dagTime = Stopwatch.createStarted();
@@ -141,8 +149,8 @@ public class BuildIndexOp extends AbstractGeoGigOp<RevTree> {
                 indexTree.getId());
 
         indexDatabase().addIndexedTree(index, newCanonicalTree.getId(), indexTree.getId());
-        progress.setDescription(String.format("QuadTree created. Size: %,d, time: %s",
-                indexTree.size(), revTreeTime));
+        progress.setDescription(String.format("%s index created. Size: %,d, time: %s",
+                index.getIndexType(), indexTree.size(), revTreeTime));
 
         progress.complete();
 
@@ -193,21 +201,21 @@ public class BuildIndexOp extends AbstractGeoGigOp<RevTree> {
                 featureType.getName().getLocalPart(), attName));
     }
 
-    private RevTreeBuilder resolveTreeBuilder() {
-        final IndexDatabase indexDatabase = indexDatabase();
-
-        final RevTree oldIndexTree;
+    private RevTree resolveOldIndexTree() {
         if (oldCanonicalTree.isEmpty()) {
-            oldIndexTree = RevTree.EMPTY;
-        } else {
-            final Optional<ObjectId> oldIndexTreeId = indexDatabase.resolveIndexedTree(index,
-                    oldCanonicalTree.getId());
-            if (oldIndexTreeId.isPresent()) {
-                oldIndexTree = indexDatabase.getTree(oldIndexTreeId.get());
-            } else {
-                oldIndexTree = RevTree.EMPTY;
-            }
+            return RevTree.EMPTY;
+        }
+        final IndexDatabase indexDatabase = indexDatabase();
+        final Optional<ObjectId> oldIndexTreeId = indexDatabase.resolveIndexedTree(index,
+                oldCanonicalTree.getId());
+        if (oldIndexTreeId.isPresent()) {
+            return indexDatabase.getTree(oldIndexTreeId.get());
         }
+        return RevTree.EMPTY;
+    }
+
+    private RevTreeBuilder resolveTreeBuilder(final RevTree oldIndexTree) {
+        final IndexDatabase indexDatabase = indexDatabase();
 
         final IndexType indexType = index.getIndexType();
         final RevTreeBuilder builder;
@@ -220,6 +228,10 @@ public class BuildIndexOp extends AbstractGeoGigOp<RevTree> {
             ObjectStore target = source;
             builder = QuadTreeBuilder.create(source, target, oldIndexTree, maxBounds);
             break;
+        case ATTRIBUTE:
+            builder = AttributeTreeBuilder.create(indexDatabase, indexDatabase, oldIndexTree,
+                    index.getAttributeName());
+            break;
         default:
             throw new UnsupportedOperationException("Uknown index type: " + indexType);
         }
@@ -161,6 +161,9 @@ public class CloneOp extends AbstractGeoGigOp<Void> {
 
         // Fetch remote data
         command(FetchOp.class).addRemote(remote.getName()).setDepth(depth.or(0)).setProgressListener(progressListener).call();
+        if (progressListener.isCanceled()) {
+            return null;
+        }
 
         // Set up remote tracking branches
         final ImmutableSet<Ref> remoteRefs = command(LsRemote.class).retrieveTags(false)
@@ -64,6 +64,8 @@ public class DiffOp extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
 
     private boolean preserveIterationOrder;
 
+    private String startAfter;
+
     /**
      * @param compareIndex if true, the index will be used in the comparison
      */
@@ -124,6 +126,17 @@ public class DiffOp extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
         return this;
     }
 
+    /**
+     * @param path the path of the last entry returned by a previous call with the same arguments,
+     *        to resume the diff after it, or {@code null} to start from the beginning
+     * @return {@code this}
+     * @see DiffTree#setStartAfter(String)
+     */
+    public DiffOp setStartAfter(@Nullable String path) {
+        this.startAfter = path;
+        return this;
+    }
+
     /**
      * Executes the diff operation.
      * 
@@ -143,7 +156,8 @@ public class DiffOp extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
         if (cached) {
             // compare the tree-ish (default to HEAD) and the index
             DiffIndex diffIndex = command(DiffIndex.class).addFilter(this.pathFilter)
-                    .setReportTrees(reportTrees).setPreserveIterationOrder(preserveIterationOrder);
+                    .setReportTrees(reportTrees).setPreserveIterationOrder(preserveIterationOrder)
+                    .setStartAfter(startAfter);
             if (oldRefSpec != null) {
                 diffIndex.setOldVersion(oldRefSpec);
             }
@@ -151,7 +165,8 @@ public class DiffOp extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
         } else if (newRefSpec == null) {
 
             DiffWorkTree workTreeIndexDiff = command(DiffWorkTree.class).setFilter(pathFilter)
-                    .setReportTrees(reportTrees).setPreserveIterationOrder(preserveIterationOrder);
+                    .setReportTrees(reportTrees).setPreserveIterationOrder(preserveIterationOrder)
+                    .setStartAfter(startAfter);
             if (oldRefSpec != null) {
                 workTreeIndexDiff.setOldVersion(oldRefSpec);
             }
@@ -160,7 +175,8 @@ public class DiffOp extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
 
             iterator = command(DiffTree.class).setOldVersion(oldRefSpec).setNewVersion(newRefSpec)
                     .setPathFilter(pathFilter).setReportTrees(reportTrees)
-                    .setPreserveIterationOrder(preserveIterationOrder).call();
+                    .setPreserveIterationOrder(preserveIterationOrder).setStartAfter(startAfter)
+                    .call();
         }
 
         return iterator;
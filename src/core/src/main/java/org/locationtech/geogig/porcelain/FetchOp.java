@@ -15,6 +15,7 @@ import java.util.List;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.Ref;
 import org.locationtech.geogig.model.SymRef;
+import org.locationtech.geogig.plumbing.IndexCommitGraphOp;
 import org.locationtech.geogig.plumbing.LsRemote;
 import org.locationtech.geogig.plumbing.RefParse;
 import org.locationtech.geogig.plumbing.UpdateRef;
@@ -23,6 +24,7 @@ import org.locationtech.geogig.porcelain.ConfigOp.ConfigAction;
 import org.locationtech.geogig.porcelain.ConfigOp.ConfigScope;
 import org.locationtech.geogig.porcelain.TransferSummary.ChangedRef;
 import org.locationtech.geogig.porcelain.TransferSummary.ChangedRef.ChangeTypes;
+import org.locationtech.geogig.porcelain.TransferSummary.PackStats;
 import org.locationtech.geogig.remote.IRemoteRepo;
 import org.locationtech.geogig.remote.RemoteUtils;
 import org.locationtech.geogig.repository.AbstractGeoGigOp;
@@ -191,6 +193,7 @@ public class FetchOp extends AbstractGeoGigOp<TransferSummary> {
         }
 
         TransferSummary result = new TransferSummary();
+        boolean fetched = false;
 
         for (Remote remote : remotes) {
             final ImmutableSet<Ref> remoteRemoteRefs = command(LsRemote.class)
@@ -255,6 +258,10 @@ public class FetchOp extends AbstractGeoGigOp<TransferSummary> {
                         // Fetch updated data from this ref
                         Ref newRef = ref.getNewRef();
                         remoteRepoInstance.fetchNewData(newRef, newFetchLimit, progressListener);
+                        if (progressListener.isCanceled()) {
+                            // the objects may be incomplete, leave the ref as it was
+                            return result;
+                        }
 
                         if (repoDepth.isPresent() && !fullDepth) {
                             // Update the repository depth if it is deeper than before.
@@ -278,6 +285,7 @@ public class FetchOp extends AbstractGeoGigOp<TransferSummary> {
                         // Update the ref
                         Ref updatedRef = updateLocalRef(newRef, remote, localRemoteRefs);
                         ref.setNewRef(updatedRef);
+                        fetched = true;
                     }
                 }
 
@@ -292,11 +300,22 @@ public class FetchOp extends AbstractGeoGigOp<TransferSummary> {
                         updateLocalRef(remoteHead, remote, localRemoteRefs);
                     }
                 }
+
+                Optional<PackStats> packStats = remoteRepoInstance.getPackStats();
+                if (packStats.isPresent()) {
+                    result.getPackStats().add(packStats.get());
+                }
             } finally {
                 remoteRepoInstance.close();
             }
         }
 
+        if (fetched) {
+            // fetched commits are inserted children first, the commit graph only holds so many
+            // of them while waiting for their parents, index the ones it had to discard
+            command(IndexCommitGraphOp.class).call();
+        }
+
         if (fullDepth) {
             // The full history was fetched, this is no longer a shallow clone
             command(ConfigOp.class).setAction(ConfigAction.CONFIG_UNSET).setScope(ConfigScope.LOCAL)
@@ -29,11 +29,13 @@ import org.locationtech.geogig.plumbing.FindTreeChild;
 import org.locationtech.geogig.plumbing.RevParse;
 import org.locationtech.geogig.repository.AbstractGeoGigOp;
 import org.locationtech.geogig.repository.Repository;
+import org.locationtech.geogig.storage.CommitGraph;
 import org.locationtech.geogig.storage.GraphDatabase;
 
 import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
+import com.google.common.base.Supplier;
 import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterators;
@@ -83,6 +85,10 @@ public class LogOp extends AbstractGeoGigOp<Iterator<RevCommit>> {
 
     private List<ObjectId> commits = Lists.newArrayList();
 
+    private List<ObjectId> resumePoints;
+
+    private Supplier<List<ObjectId>> pendingCommits;
+
     public LogOp() {
         timeRange = ALWAYS;
     }
@@ -167,6 +173,41 @@ public class LogOp extends AbstractGeoGigOp<Iterator<RevCommit>> {
         return this;
     }
 
+    /**
+     * Resumes the history walk of a previous call with the same arguments from the commits returned
+     * by its {@link #getResumePoints()}, instead of starting it from the
+     * {@link #setUntil(ObjectId) until} commit or the {@link #addCommit(ObjectId) added} ones.
+     * <p>
+     * Not supported in {@link #setTopoOrder(boolean) topological order}.
+     * 
+     * @param resumePoints the commits to resume the walk from, possibly empty if the walk was
+     *        finished
+     * @return {@code this}
+     */
+    public LogOp setResumePoints(List<ObjectId> resumePoints) {
+        this.resumePoints = ImmutableList.copyOf(resumePoints);
+        return this;
+    }
+
+    /**
+     * Returns the commits the history walk of the last call would continue from, that is, the
+     * commits whose children were all walked but that weren't walked themselves, so that another
+     * call can {@link #setResumePoints(List) resume} it from there.
+     * <p>
+     * Since evaluating whether the returned iterator {@link Iterator#hasNext() has more commits}
+     * may walk past commits that don't match the filter criteria, this method shall be called
+     * right after {@link Iterator#next()} to resume after the commit it returned.
+     * 
+     * @return the commits to resume the walk from, or {@link Optional#absent() absent} if the walk
+     *         is in {@link #setTopoOrder(boolean) topological order} or the op was not called yet
+     */
+    public Optional<List<ObjectId>> getResumePoints() {
+        if (pendingCommits == null) {
+            return Optional.absent();
+        }
+        return Optional.of(pendingCommits.get());
+    }
+
     /**
      * Sets the regexp to filter out author names
      * 
@@ -254,17 +295,34 @@ public class LogOp extends AbstractGeoGigOp<Iterator<RevCommit>> {
             }
         }
 
+        Preconditions.checkArgument(resumePoints == null || !topo,
+                "Topological order walks can't be resumed");
+        pendingCommits = null;
         Iterator<RevCommit> history;
         if (firstParent) {
-            history = new LinearHistoryIterator(newestCommitId, repository());
+            ObjectId tip = newestCommitId;
+            if (resumePoints != null) {
+                tip = resumePoints.isEmpty() ? ObjectId.NULL : resumePoints.get(0);
+            }
+            LinearHistoryIterator linear = new LinearHistoryIterator(tip, repository());
+            pendingCommits = linear::pending;
+            history = linear;
         } else {
-            if (commits.isEmpty()) {
+            if (resumePoints != null) {
+                commits = Lists.newArrayList(resumePoints);
+                if (commits.isEmpty()) {
+                    commits.add(ObjectId.NULL);
+                }
+            } else if (commits.isEmpty()) {
                 commits.add(newestCommitId);
             }
             if (topo) {
                 history = new TopologicalHistoryIterator(commits, repository(), graphDatabase());
             } else {
-                history = new ChronologicalHistoryIterator(commits, repository());
+                ChronologicalHistoryIterator chronological = new ChronologicalHistoryIterator(
+                        commits, repository());
+                pendingCommits = chronological::pending;
+                history = chronological;
             }
         }
         LogFilter filter = new LogFilter(oldestCommitId, timeRange, paths, author, commiter);
@@ -338,6 +396,17 @@ public class LogOp extends AbstractGeoGigOp<Iterator<RevCommit>> {
             }
 
         }
+
+        /**
+         * @return the commits that are yet to be walked, out of the parents of the walked ones
+         */
+        List<ObjectId> pending() {
+            List<ObjectId> pending = Lists.newArrayListWithCapacity(parents.size());
+            for (RevCommit commit : parents) {
+                pending.add(commit.getId());
+            }
+            return pending;
+        }
     }
 
     /**
@@ -357,6 +426,8 @@ public class LogOp extends AbstractGeoGigOp<Iterator<RevCommit>> {
 
         private GraphDatabase graphDb;
 
+        private Optional<CommitGraph> commitGraph;
+
         /**
          * Constructs a new {@code LinearHistoryIterator} with the given parameters.
          * 
@@ -367,6 +438,7 @@ public class LogOp extends AbstractGeoGigOp<Iterator<RevCommit>> {
         public TopologicalHistoryIterator(final List<ObjectId> tipsList, final Repository repo,
                 GraphDatabase graphDb) {
             this.graphDb = graphDb;
+            this.commitGraph = graphDb.getCommitGraph();
             tips = new Stack<RevCommit>();
             stopPoints = Lists.newArrayList();
             for (ObjectId tip : tipsList) {
@@ -393,7 +465,7 @@ public class LogOp extends AbstractGeoGigOp<Iterator<RevCommit>> {
             Optional<ObjectId> parent = Optional.absent();
             int index = 0;
             for (ObjectId parentId : lastCommit.getParentIds()) {
-                if (repo.commitExists(parentId)) {
+                if (exists(parentId)) {
                     parent = Optional.of(parentId);
                     break;
                 }
@@ -409,7 +481,7 @@ public class LogOp extends AbstractGeoGigOp<Iterator<RevCommit>> {
             } else {
                 List<ObjectId> parents = lastCommit.getParentIds();
                 for (int i = index + 1; i < parents.size(); i++) {
-                    if (repo.commitExists(parents.get(i))) {
+                    if (exists(parents.get(i))) {
                         final RevCommit commit = repo.getCommit(parents.get(i));
                         tips.push(commit);
                     }
@@ -423,6 +495,15 @@ public class LogOp extends AbstractGeoGigOp<Iterator<RevCommit>> {
 
             return lastCommit;
         }
+
+        /**
+         * @return whether the commit is in the repository, without looking it up if it's indexed
+         *         in the commit graph, since the history of indexed commits is always complete
+         */
+        private boolean exists(ObjectId commitId) {
+            return (commitGraph.isPresent() && commitGraph.get().contains(commitId))
+                    || repo.commitExists(commitId);
+        }
     }
 
     /**
@@ -467,6 +548,13 @@ public class LogOp extends AbstractGeoGigOp<Iterator<RevCommit>> {
             return endOfData();
         }
 
+        /**
+         * @return the next commit to walk, if any
+         */
+        List<ObjectId> pending() {
+            return nextCommitId.isPresent() ? ImmutableList.of(nextCommitId.get())
+                    : ImmutableList.of();
+        }
     }
 
     /**
@@ -24,6 +24,7 @@ import org.locationtech.geogig.model.RevCommit;
 import org.locationtech.geogig.model.SymRef;
 import org.locationtech.geogig.plumbing.DiffTree;
 import org.locationtech.geogig.plumbing.FindCommonAncestor;
+import org.locationtech.geogig.plumbing.IsAncestorOp;
 import org.locationtech.geogig.plumbing.RefParse;
 import org.locationtech.geogig.plumbing.ResolveBranchId;
 import org.locationtech.geogig.plumbing.UpdateRef;
@@ -292,8 +293,16 @@ public class MergeOp extends AbstractGeoGigOp<MergeOp.MergeReport> {
                 RevCommit headCommit = repository().getCommit(headRef.getObjectId());
                 final RevCommit targetCommit = repository().getCommit(commitId);
 
-                Optional<ObjectId> ancestorCommit = command(FindCommonAncestor.class)
-                        .setLeft(headCommit).setRight(targetCommit).call();
+                // fast-forwards only need to know the head is reachable from the commit, which
+                // the commit graph answers without computing the common ancestor
+                final Optional<ObjectId> ancestorCommit;
+                if (command(IsAncestorOp.class).setAncestor(headCommit.getId())
+                        .setDescendant(commitId).call()) {
+                    ancestorCommit = Optional.of(headCommit.getId());
+                } else {
+                    ancestorCommit = command(FindCommonAncestor.class).setLeft(headCommit)
+                            .setRight(targetCommit).call();
+                }
 
                 pairs.add(new CommitAncestorPair(commitId, ancestorCommit.get()));
 
@@ -196,6 +196,9 @@ public class PullOp extends AbstractGeoGigOp<PullResult> {
                 .setFullDepth(fullDepth).setAll(all).setProgressListener(subProgress(80.f)).call();
 
         result.setFetchResult(fetchResult);
+        if (getProgressListener().isCanceled()) {
+            return result;
+        }
 
         if (refSpecs.size() == 0) {
             // pull current branch
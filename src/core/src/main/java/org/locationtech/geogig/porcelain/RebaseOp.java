@@ -27,6 +27,7 @@ import org.locationtech.geogig.model.SymRef;
 import org.locationtech.geogig.model.impl.CommitBuilder;
 import org.locationtech.geogig.plumbing.CatObject;
 import org.locationtech.geogig.plumbing.FindCommonAncestor;
+import org.locationtech.geogig.plumbing.IsAncestorOp;
 import org.locationtech.geogig.plumbing.RefParse;
 import org.locationtech.geogig.plumbing.UpdateRef;
 import org.locationtech.geogig.plumbing.UpdateSymRef;
@@ -275,14 +276,8 @@ public class RebaseOp extends AbstractGeoGigOp<Boolean> {
 
             command(UpdateRef.class).setName(Ref.ORIG_HEAD).setNewValue(headCommit.getId());
 
-            Optional<ObjectId> ancestorCommit = command(FindCommonAncestor.class)
-                    .setLeft(headCommit).setRight(targetCommit)
-                    .setProgressListener(subProgress(10.f)).call();
-
-            Preconditions.checkState(ancestorCommit.isPresent(),
-                    "No ancestor commit could be found.");
-
-            if (ancestorCommit.get().equals(headCommit.getId())) {
+            if (command(IsAncestorOp.class).setAncestor(headCommit.getId())
+                    .setDescendant(targetCommit.getId()).call()) {
                 // Fast-forward
                 command(UpdateRef.class).setName(currentBranch).setNewValue(upstream.get()).call();
                 command(UpdateSymRef.class).setName(Ref.HEAD).setNewValue(currentBranch).call();
@@ -293,6 +288,13 @@ public class RebaseOp extends AbstractGeoGigOp<Boolean> {
                 return true;
             }
 
+            Optional<ObjectId> ancestorCommit = command(FindCommonAncestor.class)
+                    .setLeft(headCommit).setRight(targetCommit)
+                    .setProgressListener(subProgress(10.f)).call();
+
+            Preconditions.checkState(ancestorCommit.isPresent(),
+                    "No ancestor commit could be found.");
+
             // Get all commits between the head commit and the ancestor.
             Iterator<RevCommit> commitIterator = command(LogOp.class).call();
 
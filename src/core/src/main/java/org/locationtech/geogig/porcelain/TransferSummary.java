@@ -27,10 +27,111 @@ public class TransferSummary {
 
     private ArrayListMultimap<String, ChangedRef> changedRefs = ArrayListMultimap.create();
 
+    private final PackStats packStats = new PackStats();
+
     public Map<String, Collection<ChangedRef>> getChangedRefs() {
         return changedRefs.asMap();
     }
 
+    /**
+     * @return statistics about the delta compressed object packs received during the transfer
+     */
+    public PackStats getPackStats() {
+        return packStats;
+    }
+
+    /**
+     * Statistics about delta compressed object packs: how many objects were sent as deltas, how
+     * much smaller that made the pack, and the time spent encoding or decoding the deltas.
+     */
+    public static class PackStats {
+
+        private long objects;
+
+        private long deltas;
+
+        private long rawBytes;
+
+        private long packedBytes;
+
+        private long deltaNanos;
+
+        /**
+         * Records an object written to or read from a pack
+         * 
+         * @param rawSize the size of the object's full serialized form
+         * @param packedSize the number of bytes the object takes in the pack
+         * @param delta whether the object was packed as a delta
+         * @param nanos the time spent encoding or decoding the delta
+         */
+        public synchronized void add(int rawSize, int packedSize, boolean delta, long nanos) {
+            objects++;
+            if (delta) {
+                deltas++;
+            }
+            rawBytes += rawSize;
+            packedBytes += packedSize;
+            deltaNanos += nanos;
+        }
+
+        public synchronized void add(PackStats stats) {
+            synchronized (stats) {
+                objects += stats.objects;
+                deltas += stats.deltas;
+                rawBytes += stats.rawBytes;
+                packedBytes += stats.packedBytes;
+                deltaNanos += stats.deltaNanos;
+            }
+        }
+
+        public synchronized long getObjects() {
+            return objects;
+        }
+
+        public synchronized long getDeltas() {
+            return deltas;
+        }
+
+        /**
+         * @return the size the objects would have taken if sent in full
+         */
+        public synchronized long getRawBytes() {
+            return rawBytes;
+        }
+
+        public synchronized long getPackedBytes() {
+            return packedBytes;
+        }
+
+        /**
+         * @return the time spent encoding or decoding deltas, in milliseconds
+         */
+        public synchronized long getDeltaTimeMillis() {
+            return deltaNanos / 1_000_000;
+        }
+
+        /**
+         * @return the ratio of the size of the objects to the size of the pack, {@code 1} if
+         *         empty
+         */
+        public synchronized double getCompressionRatio() {
+            return packedBytes == 0 ? 1d : (double) rawBytes / packedBytes;
+        }
+
+        public synchronized boolean isEmpty() {
+            return objects == 0;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return String.format(
+                    "PackStats[objects: %,d, deltas: %,d, raw: %,d bytes, packed: %,d bytes, "
+                            + "ratio: %.2f, delta time: %,d ms]",
+                    objects, deltas, rawBytes, packedBytes, getCompressionRatio(),
+                    getDeltaTimeMillis());
+        }
+    }
+
     static public class ChangedRef {
         public enum ChangeTypes {
             ADDED_REF, REMOVED_REF, CHANGED_REF, DEEPENED_REF
@@ -101,6 +202,8 @@ public class TransferSummary {
     public String toString() {
         return Objects.toStringHelper(TransferSummary.class) //
                 .addValue(changedRefs) //
+                .add("packStats", packStats.isEmpty() ? null : packStats) //
+                .omitNullValues() //
                 .toString();
     }
 
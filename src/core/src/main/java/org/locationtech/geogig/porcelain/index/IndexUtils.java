@@ -18,6 +18,7 @@ import org.eclipse.jdt.annotation.Nullable;
 import org.geotools.referencing.CRS;
 import org.locationtech.geogig.data.FindFeatureTypeTrees;
 import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.RevFeatureType;
 import org.locationtech.geogig.repository.Context;
 import org.locationtech.geogig.repository.IndexInfo;
@@ -29,6 +30,7 @@ import org.opengis.feature.type.PropertyDescriptor;
 import org.opengis.referencing.FactoryException;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 
+import com.google.common.base.Charsets;
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
@@ -39,6 +41,9 @@ import com.vividsolutions.jts.geom.Envelope;
  * Utility functions that are shared between indexing commands.
  */
 public class IndexUtils {
+
+    private static final String CHECKPOINT_PREFIX = "@checkpoint:";
+
     /**
      * Resolve a tree refspec into a NodeRef.
      * 
@@ -164,4 +169,44 @@ public class IndexUtils {
         }
         return descriptor;
     }
+
+    /**
+     * Resolves the last commit of the given branch whose feature tree is known to be indexed by
+     * {@code index}.
+     * <p>
+     * Checkpoints are kept in the index database as index tree mappings whose key is derived from
+     * the branch name, so they don't need any support from the storage backends and get removed
+     * when the index is {@link IndexDatabase#clearIndex cleared}.
+     * 
+     * @param indexdb the index database
+     * @param index the index
+     * @param refName the full name of the branch
+     * @return the id of the checkpoint commit, or {@link Optional#absent()} if the branch has
+     *         never been indexed
+     */
+    public static Optional<ObjectId> getCheckpoint(IndexDatabase indexdb, IndexInfo index,
+            String refName) {
+        return indexdb.resolveIndexedTree(index, checkpointKey(refName));
+    }
+
+    /**
+     * Records {@code commitId} as the last commit of the given branch whose feature tree has been
+     * indexed by {@code index}.
+     * 
+     * @param indexdb the index database
+     * @param index the index
+     * @param refName the full name of the branch
+     * @param commitId the commit id
+     * @see #getCheckpoint
+     */
+    public static void setCheckpoint(IndexDatabase indexdb, IndexInfo index, String refName,
+            ObjectId commitId) {
+        indexdb.addIndexedTree(index, checkpointKey(refName), commitId);
+    }
+
+    private static ObjectId checkpointKey(String refName) {
+        checkArgument(refName != null, "branch name not provided");
+        byte[] key = (CHECKPOINT_PREFIX + refName).getBytes(Charsets.UTF_8);
+        return ObjectId.createNoClone(ObjectId.HASH_FUNCTION.hashBytes(key).asBytes());
+    }
 }
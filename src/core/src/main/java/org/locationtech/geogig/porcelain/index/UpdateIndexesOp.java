@@ -15,6 +15,7 @@ import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.Ref;
 import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.model.SymRef;
+import org.locationtech.geogig.plumbing.ResolveTreeish;
 import org.locationtech.geogig.plumbing.index.BuildIndexOp;
 import org.locationtech.geogig.repository.AbstractGeoGigOp;
 import org.locationtech.geogig.repository.IndexInfo;
@@ -32,6 +33,12 @@ import com.vividsolutions.jts.geom.Envelope;
  * Given a {@code refSpec} that resolves to a root tree, finds out which indexes are defined for all
  * its feature type trees, checks whether they need to be updated, and updates the indexes to match
  * the current canonical tree versions.
+ * <p>
+ * Each index keeps a checkpoint per branch with the last commit it was updated to (see
+ * {@link IndexUtils#getCheckpoint}), so that only the changes since then are applied to the
+ * previous index tree, even if the branch moved several commits at once. If there's no checkpoint
+ * the previous commit's tree is used instead, and the index is built from scratch only if none of
+ * them is indexed.
  *
  */
 public class UpdateIndexesOp extends AbstractGeoGigOp<List<Index>> {
@@ -87,7 +94,8 @@ public class UpdateIndexesOp extends AbstractGeoGigOp<List<Index>> {
             if (!layerIndexes.isEmpty()) {
                 final @Nullable NodeRef oldTreeRef = previousTreeRefs.get(treePath);
 
-                List<Index> updated = updateIndexes(oldTreeRef, treeRef, layerIndexes);
+                List<Index> updated = updateIndexes(branchRef, oldTreeRef, treeRef,
+                        layerIndexes);
                 if(getProgressListener().isCanceled()){
                     return null;
                 }
@@ -97,8 +105,8 @@ public class UpdateIndexesOp extends AbstractGeoGigOp<List<Index>> {
         return result;
     }
 
-    private List<Index> updateIndexes(final @Nullable NodeRef oldTreeRef, final NodeRef newTreeRef,
-            List<IndexInfo> indexes) {
+    private List<Index> updateIndexes(final Ref branchRef, final @Nullable NodeRef oldTreeRef,
+            final NodeRef newTreeRef, List<IndexInfo> indexes) {
 
         List<Index> updated = new ArrayList<>(indexes.size());
 
@@ -113,6 +121,8 @@ public class UpdateIndexesOp extends AbstractGeoGigOp<List<Index>> {
             if (indexTreeId.isPresent()) {
                 LOG.debug("Index for tree {}({}) exists: {}", newTreeRef.path(), newCanonicalTreeId,
                         indexTreeId.get());
+                IndexUtils.setCheckpoint(indexDatabase, index, branchRef.getName(),
+                        branchRef.getObjectId());
             } else {
                 if (progress.isCanceled()) {
                     return null;
@@ -122,13 +132,8 @@ public class UpdateIndexesOp extends AbstractGeoGigOp<List<Index>> {
 
                 final ObjectId revTypeId = newTreeRef.getMetadataId();
 
-                final RevTree oldCanonicalTree;
-                if (oldTreeRef != null && indexDatabase
-                        .resolveIndexedTree(index, oldTreeRef.getObjectId()).isPresent()) {
-                    oldCanonicalTree = objectDatabase().getTree(oldTreeRef.getObjectId());
-                } else {
-                    oldCanonicalTree = RevTree.EMPTY;
-                }
+                final RevTree oldCanonicalTree = resolveOldCanonicalTree(index, branchRef,
+                        oldTreeRef);
                 final RevTree newCanonicalTree = newCanonicalTreeId.equals(RevTree.EMPTY_TREE_ID)
                         ? RevTree.EMPTY : objectDatabase().getTree(newCanonicalTreeId);
 
@@ -149,6 +154,8 @@ public class UpdateIndexesOp extends AbstractGeoGigOp<List<Index>> {
                 progress.setDescription(String.format("Updated index: %s, size: %,d, bounds: %s",
                         id, size, bounds));
 
+                IndexUtils.setCheckpoint(indexDatabase, index, branchRef.getName(),
+                        branchRef.getObjectId());
                 updated.add(new Index(index, indexTree.getId(), indexDatabase));
             }
         }
@@ -157,4 +164,34 @@ public class UpdateIndexesOp extends AbstractGeoGigOp<List<Index>> {
         }
         return updated;
     }
+
+    /**
+     * @return the canonical tree at the branch's checkpoint for the given index, or the one at the
+     *         previous commit, whichever is indexed; or the empty tree if none is
+     */
+    private RevTree resolveOldCanonicalTree(IndexInfo index, Ref branchRef,
+            @Nullable NodeRef previousTreeRef) {
+
+        final IndexDatabase indexDatabase = indexDatabase();
+        final Optional<ObjectId> checkpoint = IndexUtils.getCheckpoint(indexDatabase, index,
+                branchRef.getName());
+        if (checkpoint.isPresent() && objectDatabase().exists(checkpoint.get())) {
+            // the branch may have been reset to a commit unrelated to the checkpoint, but any
+            // indexed tree is a valid starting point as only their differences are applied
+            Optional<ObjectId> checkpointTreeId = command(ResolveTreeish.class)
+                    .setTreeish(checkpoint.get().toString() + ":" + index.getTreeName()).call();
+            if (checkpointTreeId.isPresent()
+                    && !RevTree.EMPTY_TREE_ID.equals(checkpointTreeId.get()) && indexDatabase
+                            .resolveIndexedTree(index, checkpointTreeId.get()).isPresent()) {
+                LOG.debug("Updating index {} on {} since checkpoint {}", index.getAttributeName(),
+                        branchRef.getName(), checkpoint.get());
+                return objectDatabase().getTree(checkpointTreeId.get());
+            }
+        }
+        if (previousTreeRef != null && indexDatabase
+                .resolveIndexedTree(index, previousTreeRef.getObjectId()).isPresent()) {
+            return objectDatabase().getTree(previousTreeRef.getObjectId());
+        }
+        return RevTree.EMPTY;
+    }
 }
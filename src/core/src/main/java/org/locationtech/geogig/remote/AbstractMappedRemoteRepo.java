@@ -23,7 +23,7 @@ import org.locationtech.geogig.model.RevObject.TYPE;
 import org.locationtech.geogig.model.impl.CommitBuilder;
 import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.model.SymRef;
-import org.locationtech.geogig.plumbing.FindCommonAncestor;
+import org.locationtech.geogig.plumbing.IsAncestorOp;
 import org.locationtech.geogig.plumbing.ResolveTreeish;
 import org.locationtech.geogig.plumbing.WriteTree;
 import org.locationtech.geogig.porcelain.SynchronizationException;
@@ -397,17 +397,14 @@ public abstract class AbstractMappedRemoteRepo implements IRemoteRepo {
                 // The branches are equal, no need to push.
                 throw new SynchronizationException(StatusCode.NOTHING_TO_PUSH);
             } else if (localRepository.blobExists(mappedId)) {
-                Optional<ObjectId> ancestor = localRepository.command(FindCommonAncestor.class)
-                        .setLeftId(mappedId).setRightId(ref.getObjectId()).call();
-                if (!ancestor.isPresent()) {
-                    // There is no common ancestor, a push will overwrite history
-                    throw new SynchronizationException(StatusCode.REMOTE_HAS_CHANGES);
-                } else if (ancestor.get().equals(ref.getObjectId())) {
-                    // My last commit is the common ancestor, the remote already has my data.
-                    throw new SynchronizationException(StatusCode.NOTHING_TO_PUSH);
-                } else if (!ancestor.get().equals(mappedId)) {
-                    // The remote branch's latest commit is not my ancestor, a push will cause a
-                    // loss of history.
+                if (!isAncestor(mappedId, ref.getObjectId())) {
+                    if (isAncestor(ref.getObjectId(), mappedId)) {
+                        // My last commit is in the remote's history, the remote already has my
+                        // data.
+                        throw new SynchronizationException(StatusCode.NOTHING_TO_PUSH);
+                    }
+                    // The remote branch's latest commit is not my ancestor (or there's no common
+                    // ancestor), a push will cause a loss of history.
                     throw new SynchronizationException(StatusCode.REMOTE_HAS_CHANGES);
                 }
             } else {
@@ -416,4 +413,9 @@ public abstract class AbstractMappedRemoteRepo implements IRemoteRepo {
             }
         }
     }
+
+    private boolean isAncestor(ObjectId ancestor, ObjectId descendant) {
+        return localRepository.command(IsAncestorOp.class).setAncestor(ancestor)
+                .setDescendant(descendant).call().booleanValue();
+    }
 }
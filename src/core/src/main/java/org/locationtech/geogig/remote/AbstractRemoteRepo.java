@@ -12,7 +12,7 @@ package org.locationtech.geogig.remote;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.Ref;
 import org.locationtech.geogig.model.SymRef;
-import org.locationtech.geogig.plumbing.FindCommonAncestor;
+import org.locationtech.geogig.plumbing.IsAncestorOp;
 import org.locationtech.geogig.porcelain.SynchronizationException;
 import org.locationtech.geogig.porcelain.SynchronizationException.StatusCode;
 import org.locationtech.geogig.repository.ProgressListener;
@@ -260,17 +260,13 @@ public abstract class AbstractRemoteRepo implements IRemoteRepo {
             // The branches are equal, no need to push.
             throw new SynchronizationException(StatusCode.NOTHING_TO_PUSH);
         } else if (localRepository.blobExists(remoteObjectId)) {
-            Optional<ObjectId> ancestor = localRepository.command(FindCommonAncestor.class)
-                    .setLeftId(remoteObjectId).setRightId(localObjectId).call();
-            if (!ancestor.isPresent()) {
-                // There is no common ancestor, a push will overwrite history
-                throw new SynchronizationException(StatusCode.REMOTE_HAS_CHANGES);
-            } else if (ancestor.get().equals(localObjectId)) {
-                // My last commit is the common ancestor, the remote already has my data.
-                throw new SynchronizationException(StatusCode.NOTHING_TO_PUSH);
-            } else if (!ancestor.get().equals(remoteObjectId)) {
-                // The remote branch's latest commit is not my ancestor, a push will cause a
-                // loss of history.
+            if (!isAncestor(remoteObjectId, localObjectId)) {
+                if (isAncestor(localObjectId, remoteObjectId)) {
+                    // My last commit is in the remote's history, the remote already has my data.
+                    throw new SynchronizationException(StatusCode.NOTHING_TO_PUSH);
+                }
+                // The remote branch's latest commit is not my ancestor (or there's no common
+                // ancestor), a push will cause a loss of history.
                 throw new SynchronizationException(StatusCode.REMOTE_HAS_CHANGES);
             }
         } else if (!remoteObjectId.isNull()) {
@@ -279,4 +275,9 @@ public abstract class AbstractRemoteRepo implements IRemoteRepo {
         }
     }
 
+    private boolean isAncestor(ObjectId ancestor, ObjectId descendant) {
+        return localRepository.command(IsAncestorOp.class).setAncestor(ancestor)
+                .setDescendant(descendant).call().booleanValue();
+    }
+
 }
@@ -0,0 +1,315 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.remote;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.geogig.storage.impl.ObjectIdMap;
+import org.locationtech.geogig.storage.impl.ObjectIdSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Finds out which commits of a {@code source} repository also exist in a {@code destination}
+ * repository in a logarithmic number of round trips to the destination, instead of checking each
+ * commit individually.
+ * <p>
+ * The negotiation relies on the fact that if a commit exists in the destination, so do all its
+ * ancestors, and hence along a first parent chain all the commits up to some point (the frontier)
+ * are missing and all the commits after it exist. So starting at a given commit the negotiator
+ * walks the first parent chain in the source until it reaches the root or a commit whose status is
+ * already known, and then:
+ * <ul>
+ * <li>Asks the destination, in a single batch, about exponentially spaced samples of the chain
+ * (the commits at distance {@code 0, 1, 3, 7, 15...}), which bounds the frontier between the last
+ * missing and the first existing sample;
+ * <li>Narrows down that range asking about up to {@link #DEFAULT_BATCH_SIZE batchSize} evenly
+ * spaced samples per round trip, until the frontier is found.
+ * </ul>
+ * The status of every commit in the chain is then known without asking about it, and later
+ * negotiations stop at any commit already resolved, so the commits of merged branches only cost a
+ * negotiation of their own chain up to the commit they forked from.
+ * <p>
+ * Note the sampling is done in the source, where walking the history is cheap, and only the
+ * existence checks go to the destination. When fetching, the local repository is hence the source,
+ * and once the common commits are known the remote computes the ones to send through
+ * {@link #missingCommits}.
+ */
+public class CommitNegotiator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CommitNegotiator.class);
+
+    public static final int DEFAULT_BATCH_SIZE = 64;
+
+    private final RepositoryWrapper source;
+
+    private final RepositoryWrapper destination;
+
+    private final int batchSize;
+
+    private final ObjectIdMap<Boolean> known = new ObjectIdMap<>();
+
+    private int roundTrips;
+
+    public CommitNegotiator(RepositoryWrapper source, RepositoryWrapper destination) {
+        this(source, destination, DEFAULT_BATCH_SIZE);
+    }
+
+    public CommitNegotiator(RepositoryWrapper source, RepositoryWrapper destination,
+            int batchSize) {
+        checkNotNull(source);
+        checkNotNull(destination);
+        checkArgument(batchSize > 1, "batchSize must be > 1: %s", batchSize);
+        this.source = source;
+        this.destination = destination;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @return the number of batched existence checks sent to the destination so far
+     */
+    public int getRoundTrips() {
+        return roundTrips;
+    }
+
+    /**
+     * @return whether the source commit exists in the destination, negotiating its first parent
+     *         chain if its status is not known yet
+     */
+    public boolean exists(final ObjectId commitId) {
+        if (commitId.isNull()) {
+            return true;
+        }
+        Boolean exists = known.get(commitId);
+        if (exists == null) {
+            negotiate(commitId);
+            exists = known.get(commitId);
+        }
+        return exists.booleanValue();
+    }
+
+    /**
+     * Negotiates the first parent chain starting at {@code start}
+     *
+     * @return the most recent commit in the chain that exists in the destination, if any
+     */
+    public Optional<ObjectId> negotiate(final ObjectId start) {
+        final List<ObjectId> chain = new ArrayList<>();
+        ObjectId commit = start;
+        Boolean terminal = null;
+        while (commit != null) {
+            terminal = commit.isNull() ? Boolean.TRUE : known.get(commit);
+            if (terminal != null) {
+                break;
+            }
+            chain.add(commit);
+            ImmutableList<ObjectId> parents = source.getParents(commit);
+            commit = parents.isEmpty() ? null : parents.get(0);
+        }
+
+        // index of the first existing commit in the chain, chain.size() if none
+        final int frontier;
+        if (Boolean.FALSE.equals(terminal)) {
+            // an ancestor is missing, hence all its descendants are
+            frontier = chain.size();
+        } else {
+            frontier = findFrontier(chain);
+        }
+        for (int i = 0; i < chain.size(); i++) {
+            known.put(chain.get(i), Boolean.valueOf(i >= frontier));
+        }
+        LOGGER.debug("Negotiated chain of {} commits from {}, frontier at {}, round trips: {}",
+                chain.size(), start, frontier, roundTrips);
+
+        if (frontier < chain.size()) {
+            return Optional.of(chain.get(frontier));
+        }
+        return Optional.fromNullable(Boolean.TRUE.equals(terminal) && commit != null
+                && !commit.isNull() ? commit : null);
+    }
+
+    /**
+     * @return the index of the first commit in {@code chain} that exists in the destination, or
+     *         {@code chain.size()} if none does
+     */
+    private int findFrontier(final List<ObjectId> chain) {
+        // invariant: chain[0, low) are missing, chain[high, size) exist
+        int low = 0;
+        int high = chain.size();
+        if (high == 0) {
+            return 0;
+        }
+        List<Integer> samples = new ArrayList<>();
+        for (long i = 0; i < high && samples.size() < batchSize; i = 2 * i + 1) {
+            samples.add(Integer.valueOf((int) i));
+        }
+        while (true) {
+            Set<ObjectId> existing = query(chain, samples);
+            for (Integer sample : samples) {
+                final int index = sample.intValue();
+                if (existing.contains(chain.get(index))) {
+                    high = Math.min(high, index);
+                } else {
+                    low = Math.max(low, index + 1);
+                }
+            }
+            if (low >= high) {
+                return high;
+            }
+            samples.clear();
+            final int range = high - low;
+            final int count = Math.min(range, batchSize);
+            for (int s = 0; s < count; s++) {
+                samples.add(Integer.valueOf(low + (int) ((long) s * range / count)));
+            }
+        }
+    }
+
+    private static final Comparator<RevCommit> NEWEST_FIRST = (c1, c2) -> Long
+            .compare(c2.getCommitter().getTimestamp(), c1.getCommitter().getTimestamp());
+
+    /**
+     * Computes the commits reachable from {@code want} and not from {@code have}, walking both
+     * histories from the most recent commit backwards and stopping as soon as only commits
+     * reachable from {@code have} remain to be visited, instead of walking the whole history.
+     * <p>
+     * Commits in {@code have} that don't exist in {@code db} are ignored. Commits with skewed
+     * timestamps may make a few commits reachable from {@code have} be returned, but never make a
+     * missing commit be left out.
+     * 
+     * @return the missing commits, parents before children
+     */
+    public static List<ObjectId> missingCommits(final ObjectStore db, final Iterable<ObjectId> want,
+            final Iterable<ObjectId> have) {
+        final ObjectIdMap<RevCommit> visited = new ObjectIdMap<>();
+        final ObjectIdSet uninteresting = new ObjectIdSet();
+        final PriorityQueue<RevCommit> queue = new PriorityQueue<>(NEWEST_FIRST);
+        for (ObjectId id : have) {
+            RevCommit commit = db.getIfPresent(id, RevCommit.class);
+            if (commit != null && !visited.containsKey(id)) {
+                visited.put(id, commit);
+                uninteresting.add(id);
+                queue.add(commit);
+            }
+        }
+        for (ObjectId id : want) {
+            if (!visited.containsKey(id)) {
+                RevCommit commit = db.getCommit(id);
+                visited.put(id, commit);
+                queue.add(commit);
+            }
+        }
+
+        final List<ObjectId> interesting = new ArrayList<>();
+        while (!queue.isEmpty() && !allUninteresting(queue, uninteresting)) {
+            final RevCommit commit = queue.poll();
+            final boolean painted = uninteresting.contains(commit.getId());
+            if (!painted) {
+                interesting.add(commit.getId());
+            }
+            for (ObjectId parentId : commit.getParentIds()) {
+                if (painted) {
+                    paint(parentId, visited, uninteresting);
+                }
+                if (!visited.containsKey(parentId)) {
+                    // may be missing in a shallow clone
+                    RevCommit parent = db.getIfPresent(parentId, RevCommit.class);
+                    if (parent != null) {
+                        visited.put(parentId, parent);
+                        queue.add(parent);
+                    }
+                }
+            }
+        }
+
+        final ObjectIdSet missing = new ObjectIdSet();
+        interesting.stream().filter((id) -> !uninteresting.contains(id)).forEach(missing::add);
+        return sortParentsFirst(missing, visited);
+    }
+
+    private static boolean allUninteresting(Iterable<RevCommit> queue,
+            Set<ObjectId> uninteresting) {
+        for (RevCommit c : queue) {
+            if (!uninteresting.contains(c.getId())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Marks the commit as reachable from {@code have}, along with its ancestors that were already
+     * visited
+     */
+    private static void paint(ObjectId commitId, ObjectIdMap<RevCommit> visited,
+            Set<ObjectId> uninteresting) {
+        final Deque<ObjectId> pending = new ArrayDeque<>();
+        pending.push(commitId);
+        while (!pending.isEmpty()) {
+            ObjectId id = pending.pop();
+            if (uninteresting.add(id)) {
+                RevCommit commit = visited.get(id);
+                if (commit != null) {
+                    commit.getParentIds().forEach(pending::push);
+                }
+            }
+        }
+    }
+
+    private static List<ObjectId> sortParentsFirst(Set<ObjectId> commits,
+            ObjectIdMap<RevCommit> visited) {
+        final List<ObjectId> sorted = new ArrayList<>(commits.size());
+        final ObjectIdSet expanded = new ObjectIdSet();
+        final ObjectIdSet done = new ObjectIdSet();
+        final Deque<ObjectId> stack = new ArrayDeque<>();
+        for (ObjectId start : commits) {
+            stack.push(start);
+            while (!stack.isEmpty()) {
+                final ObjectId id = stack.peek();
+                if (done.contains(id)) {
+                    stack.pop();
+                } else if (expanded.add(id)) {
+                    for (ObjectId parentId : visited.get(id).getParentIds()) {
+                        if (commits.contains(parentId) && !done.contains(parentId)) {
+                            stack.push(parentId);
+                        }
+                    }
+                } else {
+                    stack.pop();
+                    done.add(id);
+                    sorted.add(id);
+                }
+            }
+        }
+        return sorted;
+    }
+
+    private Set<ObjectId> query(List<ObjectId> chain, List<Integer> samples) {
+        List<ObjectId> ids = new ArrayList<>(samples.size());
+        samples.forEach((i) -> ids.add(chain.get(i.intValue())));
+        roundTrips++;
+        return destination.objectsExist(ids);
+    }
+}
@@ -14,6 +14,7 @@ import org.locationtech.geogig.model.Ref;
 import org.locationtech.geogig.plumbing.ReceivePack;
 import org.locationtech.geogig.plumbing.SendPack;
 import org.locationtech.geogig.porcelain.SynchronizationException;
+import org.locationtech.geogig.porcelain.TransferSummary.PackStats;
 import org.locationtech.geogig.repository.ProgressListener;
 import org.locationtech.geogig.repository.RepositoryConnectionException;
 
@@ -99,4 +100,11 @@ public interface IRemoteRepo {
      */
     public Optional<Integer> getDepth();
 
+    /**
+     * @return statistics about the delta compressed object packs received since the remote was
+     *         opened, or {@link Optional#absent} if the implementation doesn't use them
+     */
+    public default Optional<PackStats> getPackStats() {
+        return Optional.absent();
+    }
 }
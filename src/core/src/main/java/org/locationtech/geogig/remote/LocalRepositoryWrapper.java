@@ -18,7 +18,7 @@ import com.google.common.collect.ImmutableList;
 /**
  * Provides an interface to make basic queries to a local repository.
  */
-class LocalRepositoryWrapper implements RepositoryWrapper {
+public class LocalRepositoryWrapper implements RepositoryWrapper {
 
     private Repository localRepository;
 
@@ -0,0 +1,59 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.remote;
+
+import org.locationtech.geogig.model.ObjectId;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * A {@link RepositoryWrapper} decorator for the destination of a transfer that resolves commit
+ * existence checks through a {@link CommitNegotiator}, so that a {@link CommitTraverser} finds out
+ * which commits to send in a logarithmic number of round trips to the destination instead of one
+ * per commit.
+ * <p>
+ * Only commits of the {@code source} repository shall be asked for.
+ */
+public class NegotiatingRepositoryWrapper implements RepositoryWrapper {
+
+    private final RepositoryWrapper destination;
+
+    private final CommitNegotiator negotiator;
+
+    public NegotiatingRepositoryWrapper(RepositoryWrapper source, RepositoryWrapper destination) {
+        this.destination = destination;
+        this.negotiator = new CommitNegotiator(source, destination);
+    }
+
+    public CommitNegotiator getNegotiator() {
+        return negotiator;
+    }
+
+    @Override
+    public boolean objectExists(ObjectId commitId) {
+        return negotiator.exists(commitId);
+    }
+
+    @Override
+    public ImmutableList<ObjectId> getParents(ObjectId commitId) {
+        return destination.getParents(commitId);
+    }
+
+    @Override
+    public int getDepth(ObjectId commitId) {
+        return destination.getDepth(commitId);
+    }
+
+    @Override
+    public Optional<Integer> getRepoDepth() {
+        return destination.getRepoDepth();
+    }
+}
@@ -9,6 +9,10 @@
  */
 package org.locationtech.geogig.remote;
 
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 import org.locationtech.geogig.model.ObjectId;
 
 import com.google.common.base.Optional;
@@ -27,6 +31,24 @@ public interface RepositoryWrapper {
      */
     public boolean objectExists(ObjectId objectId);
 
+    /**
+     * Determines which of the provided objects exist in the repository, with as few round trips
+     * as the implementation allows. The default implementation calls {@link #objectExists} for
+     * each object.
+     * 
+     * @param objectIds the objects to look for
+     * @return the subset of {@code objectIds} that exist in the repository
+     */
+    public default Set<ObjectId> objectsExist(List<ObjectId> objectIds) {
+        Set<ObjectId> existing = new HashSet<>();
+        for (ObjectId id : objectIds) {
+            if (objectExists(id)) {
+                existing.add(id);
+            }
+        }
+        return existing;
+    }
+
     /**
      * Gets the parents of the specified commit from the repository.
      * 
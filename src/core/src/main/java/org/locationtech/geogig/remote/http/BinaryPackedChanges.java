@@ -17,7 +17,6 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
 
@@ -33,6 +32,7 @@ import org.locationtech.geogig.storage.BulkOpListener.CountingListener;
 import org.locationtech.geogig.storage.ObjectStore;
 import org.locationtech.geogig.storage.datastream.DataStreamSerializationFactoryV1;
 import org.locationtech.geogig.storage.datastream.FormatCommonV1;
+import org.locationtech.geogig.storage.impl.ObjectIdSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -119,7 +119,7 @@ public final class BinaryPackedChanges {
         out = new CountingOutputStream(out);
 
         // avoids sending the same metadata object multiple times
-        Set<ObjectId> writtenMetadataIds = new HashSet<ObjectId>();
+        Set<ObjectId> writtenMetadataIds = new ObjectIdSet();
 
         // buffer to avoid ObjectId cloning its internal state for each object
         byte[] oidbuffer = new byte[ObjectId.NUM_BYTES];
@@ -9,28 +9,35 @@
  */
 package org.locationtech.geogig.remote.http;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static java.lang.String.format;
 
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.RevCommit;
 import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.porcelain.TransferSummary.PackStats;
 import org.locationtech.geogig.remote.ObjectFunnel;
+import org.locationtech.geogig.remote.http.IngestPipeline.Frame;
+import org.locationtech.geogig.remote.http.IngestPipeline.FrameReader;
+import org.locationtech.geogig.repository.ProgressListener;
 import org.locationtech.geogig.repository.impl.Deduplicator;
 import org.locationtech.geogig.storage.BulkOpListener;
 import org.locationtech.geogig.storage.BulkOpListener.CountingListener;
 import org.locationtech.geogig.storage.ObjectStore;
 import org.locationtech.geogig.storage.datastream.DataStreamSerializationFactoryV1;
+import org.locationtech.geogig.storage.impl.ObjectIdSet;
 import org.locationtech.geogig.storage.impl.ObjectSerializingFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,10 +47,10 @@ import com.google.common.base.Stopwatch;
 import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
 import com.google.common.base.Throwables;
-import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterators;
+import com.google.common.io.CountingInputStream;
 
 public final class BinaryPackedObjects {
 
@@ -53,17 +60,41 @@ public final class BinaryPackedObjects {
 
     private final ObjectStore database;
 
+    private int ingestThreads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+    @Nullable
+    private ProgressListener progress;
+
     public BinaryPackedObjects(ObjectStore database) {
         this.database = database;
         this.marshaller = DataStreamSerializationFactoryV1.INSTANCE;
     }
 
+    /**
+     * Sets the number of threads decoding the objects being ingested, defaults to the number of
+     * processors minus one, as reading and storing the objects take a thread each.
+     */
+    public BinaryPackedObjects setIngestThreads(int ingestThreads) {
+        checkArgument(ingestThreads > 0, "ingestThreads shall be > 0: %s", ingestThreads);
+        this.ingestThreads = ingestThreads;
+        return this;
+    }
+
+    /**
+     * Sets the listener to report the {@link IngestMetrics progress} of ingests to, through its
+     * {@link ProgressListener#setDescription description}
+     */
+    public BinaryPackedObjects setProgressListener(@Nullable ProgressListener progress) {
+        this.progress = progress;
+        return this;
+    }
+
     /**
      * @return the number of objects written
      */
     public long write(ObjectFunnel funnel, List<ObjectId> want, List<ObjectId> have,
             boolean traverseCommits, Deduplicator deduplicator) throws IOException {
-        return write(funnel, want, have, new HashSet<ObjectId>(), DEFAULT_CALLBACK, traverseCommits,
+        return write(funnel, want, have, new ObjectIdSet(), DEFAULT_CALLBACK, traverseCommits,
                 deduplicator);
     }
 
@@ -74,6 +105,34 @@ public final class BinaryPackedObjects {
             Set<ObjectId> sent, Callback callback, boolean traverseCommits,
             Deduplicator deduplicator) throws IOException {
 
+        Iterator<RevObject> objects = traverse(want, have, traverseCommits, deduplicator);
+        long objectCount = 0;
+
+        try {
+            LOGGER.info("writing objects to remote...");
+            while (objects.hasNext()) {
+                RevObject object = objects.next();
+                funnel.funnel(object);
+                objectCount++;
+                callback.callback(Suppliers.ofInstance(object));
+            }
+        } catch (IOException e) {
+            String causeMessage = Throwables.getRootCause(e).getMessage();
+            LOGGER.info(String.format("writing of objects failed after %,d objects. Cause: '%s'",
+                    objectCount, causeMessage));
+            throw e;
+        }
+        return objectCount;
+    }
+
+    /**
+     * Returns the objects reachable from {@code want} and not from {@code have}, in post order
+     * (i.e. any object comes after all the objects it references), as written by
+     * {@link #write(ObjectFunnel, List, List, Set, Callback, boolean, Deduplicator) write}.
+     */
+    public Iterator<RevObject> traverse(List<ObjectId> want, List<ObjectId> have,
+            boolean traverseCommits, Deduplicator deduplicator) {
+
         for (ObjectId i : want) {
             if (!database.exists(i)) {
                 throw new NoSuchElementException(format("Wanted commit: '%s' is not known", i));
@@ -102,24 +161,8 @@ public final class BinaryPackedObjects {
 
         Iterator<RevObject> objects = PostOrderIterator.range(want,
                 new ArrayList<ObjectId>(previsitResults), database, traverseCommits, deduplicator);
-        long objectCount = 0;
         LOGGER.info("PostOrderIterator.range took {}", sw.stop());
-
-        try {
-            LOGGER.info("writing objects to remote...");
-            while (objects.hasNext()) {
-                RevObject object = objects.next();
-                funnel.funnel(object);
-                objectCount++;
-                callback.callback(Suppliers.ofInstance(object));
-            }
-        } catch (IOException e) {
-            String causeMessage = Throwables.getRootCause(e).getMessage();
-            LOGGER.info(String.format("writing of objects failed after %,d objects. Cause: '%s'",
-                    objectCount, causeMessage));
-            throw e;
-        }
-        return objectCount;
+        return objects;
     }
 
     /**
@@ -169,10 +212,12 @@ public final class BinaryPackedObjects {
 
         private long existing;
 
-        private IngestResults(long inserted, long existing) {
+        private IngestMetrics metrics;
+
+        private IngestResults(long inserted, long existing, IngestMetrics metrics) {
             this.inserted = inserted;
             this.existing = existing;
-
+            this.metrics = metrics;
         }
 
         /**
@@ -192,6 +237,144 @@ public final class BinaryPackedObjects {
         public long total() {
             return inserted + existing;
         }
+
+        /**
+         * @return the throughput and queue depths of each stage of the ingest
+         */
+        public IngestMetrics getMetrics() {
+            return metrics;
+        }
+    }
+
+    /**
+     * Throughput and queue depth metrics of the stages of an ingest: reading the objects off the
+     * stream, decoding them, and storing them.
+     * <p>
+     * The rate of each stage is computed over the time it spent working, as opposed to waiting
+     * for the other stages, so the stage with the lowest rate is the bottleneck. The decoding rate
+     * is per thread.
+     */
+    public static class IngestMetrics {
+
+        private final long startNanos = System.nanoTime();
+
+        private volatile long endNanos;
+
+        private final AtomicLong read = new AtomicLong(), readBytes = new AtomicLong(),
+                readNanos = new AtomicLong();
+
+        private final AtomicLong decoded = new AtomicLong(), decodeNanos = new AtomicLong();
+
+        private final AtomicLong written = new AtomicLong(), writeNanos = new AtomicLong();
+
+        private final AtomicLong hashMismatches = new AtomicLong();
+
+        private volatile int decodeQueueDepth, writeQueueDepth;
+
+        void read(int bytes, long nanos) {
+            read.incrementAndGet();
+            readBytes.addAndGet(bytes);
+            readNanos.addAndGet(nanos);
+        }
+
+        void decoded(int count, long nanos) {
+            decoded.addAndGet(count);
+            decodeNanos.addAndGet(nanos);
+        }
+
+        void written(int count, long nanos) {
+            written.addAndGet(count);
+            writeNanos.addAndGet(nanos);
+        }
+
+        void hashMismatch() {
+            hashMismatches.incrementAndGet();
+        }
+
+        void queueDepths(int decodeQueue, int writeQueue) {
+            this.decodeQueueDepth = decodeQueue;
+            this.writeQueueDepth = writeQueue;
+        }
+
+        void finished() {
+            endNanos = System.nanoTime();
+        }
+
+        public long getObjectsRead() {
+            return read.get();
+        }
+
+        public long getBytesRead() {
+            return readBytes.get();
+        }
+
+        public long getObjectsDecoded() {
+            return decoded.get();
+        }
+
+        public long getObjectsWritten() {
+            return written.get();
+        }
+
+        /**
+         * @return the number of objects whose contents don't hash to their id
+         */
+        public long getHashMismatches() {
+            return hashMismatches.get();
+        }
+
+        /**
+         * @return the number of batches waiting to be decoded when last sampled
+         */
+        public int getDecodeQueueDepth() {
+            return decodeQueueDepth;
+        }
+
+        /**
+         * @return the number of batches waiting to be stored when last sampled
+         */
+        public int getWriteQueueDepth() {
+            return writeQueueDepth;
+        }
+
+        public long getElapsedMillis() {
+            long end = endNanos == 0L ? System.nanoTime() : endNanos;
+            return TimeUnit.NANOSECONDS.toMillis(end - startNanos);
+        }
+
+        /**
+         * @return MB per second read off the stream
+         */
+        public double getReadRate() {
+            return rate(readBytes.get() / (1024d * 1024d), readNanos.get());
+        }
+
+        /**
+         * @return objects per second decoded by each thread
+         */
+        public double getDecodeRate() {
+            return rate(decoded.get(), decodeNanos.get());
+        }
+
+        /**
+         * @return objects per second stored
+         */
+        public double getWriteRate() {
+            return rate(written.get(), writeNanos.get());
+        }
+
+        private static double rate(double amount, long nanos) {
+            return nanos == 0L ? 0d : amount / (nanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "read: %,d objects, %,.1f MB/s; decoded: %,d, %,.0f/s per thread; "
+                            + "stored: %,d, %,.0f/s; queued: %d to decode, %d to store",
+                    getObjectsRead(), getReadRate(), getObjectsDecoded(), getDecodeRate(),
+                    getObjectsWritten(), getWriteRate(), decodeQueueDepth, writeQueueDepth);
+        }
     }
 
     /**
@@ -202,11 +385,26 @@ public final class BinaryPackedObjects {
     }
 
     /**
+     * Ingests the objects in the stream reading, decoding and storing them concurrently, with as
+     * many {@link #setIngestThreads decoding threads} as configured
+     * 
      * @return the number of objects parsed from the input stream
      */
     public IngestResults ingest(final InputStream in, final Callback callback) {
-        Iterator<RevObject> objects = streamToObjects(in);
+        return ingest(frames(in), callback);
+    }
 
+    /**
+     * Ingests a {@link DeltaPack delta pack}, resolving delta bases from the objects database
+     * 
+     * @return the number of objects parsed from the input stream
+     */
+    public IngestResults ingestDeltas(final InputStream in, final Callback callback,
+            final PackStats stats) {
+        return ingest(DeltaPack.frames(in, database, stats), callback);
+    }
+
+    private IngestResults ingest(final FrameReader frames, final Callback callback) {
         BulkOpListener listener = new BulkOpListener() {
             @Override
             public void inserted(final ObjectId objectId, @Nullable Integer storageSizeBytes) {
@@ -221,24 +419,29 @@ public final class BinaryPackedObjects {
 
         CountingListener countingListener = BulkOpListener.newCountingListener();
         listener = BulkOpListener.composite(countingListener, listener);
-        database.putAll(objects, listener);
-        return new IngestResults(countingListener.inserted(), countingListener.found());
+        IngestPipeline pipeline = new IngestPipeline(database, ingestThreads, progress);
+        pipeline.run(frames, listener);
+        return new IngestResults(countingListener.inserted(), countingListener.found(),
+                pipeline.getMetrics());
     }
 
-    private Iterator<RevObject> streamToObjects(final InputStream in) {
-        return new AbstractIterator<RevObject>() {
+    /**
+     * Objects have no length prefix in a pack, so they're deserialized when read off the stream,
+     * leaving only the verification of their ids to the decoding stage
+     */
+    private FrameReader frames(final InputStream stream) {
+        final CountingInputStream in = new CountingInputStream(stream);
+        return new FrameReader() {
             @Override
-            protected RevObject computeNext() {
+            public Frame read() throws IOException {
+                final long start = in.getCount();
                 try {
                     ObjectId id = readObjectId(in);
                     RevObject revObj = marshaller.read(id, in);
-                    return revObj;
+                    return IngestPipeline.decoded(revObj, (int) (in.getCount() - start));
                 } catch (EOFException eof) {
-                    return endOfData();
-                } catch (IOException e) {
-                    Throwables.propagate(e);
+                    return null;
                 }
-                throw new IllegalStateException("stream should have been fully consumed");
             }
         };
     }
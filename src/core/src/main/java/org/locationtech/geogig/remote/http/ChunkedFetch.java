@@ -0,0 +1,499 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.remote.http;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.porcelain.TransferSummary.PackStats;
+import org.locationtech.geogig.remote.ObjectFunnel;
+import org.locationtech.geogig.remote.ObjectFunnels;
+import org.locationtech.geogig.remote.http.BinaryPackedObjects.Callback;
+import org.locationtech.geogig.remote.http.BinaryPackedObjects.IngestResults;
+import org.locationtech.geogig.repository.impl.Deduplicator;
+import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.geogig.storage.datastream.DataStreamSerializationFactoryV1;
+import org.locationtech.geogig.storage.impl.ObjectIdMap;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingOutputStream;
+import com.google.common.io.ByteStreams;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * Support for the chunked fetch protocol, which splits the objects a fetch transfers into
+ * independently addressable and checksummed chunks, so that a client can download several chunks
+ * in parallel and resume an interrupted fetch from the last chunk it committed.
+ * <p>
+ * The protocol goes as follows:
+ * <ul>
+ * <li>The client {@code POST}s the usual {@code want}/{@code have} message, plus the desired
+ * {@code chunkSize} in number of objects, to {@code /repo/batchchunks}. The server computes the
+ * list of objects to send, as a {@link Plan}, and responds with its {@link Manifest}.
+ * <li>The client {@code GET}s each chunk from {@code /repo/batchchunks?fetchId=<id>&chunk=<n>}.
+ * A chunk is the same stream of objects {@code /repo/batchobjects} sends, followed by the SHA-1
+ * checksum of the stream.
+ * <li>Objects are listed in post order, so chunks shall be committed sequentially for the
+ * repository to never hold an object whose referenced objects are missing.
+ * </ul>
+ * The fetch id is derived from the fetch parameters, and the objects to send are a function of the
+ * same parameters, so if the server discards a plan (e.g. because it was restarted) the client
+ * can request it again and check that the chunks it already committed are still the same,
+ * comparing the {@link Manifest#getChunkHash(int) hashes of their object ids}.
+ * <p>
+ * If the client sets the {@value DeltaPack#CAPABILITY} property of the request and the server
+ * supports it, the manifest says so and chunks are {@link DeltaPack delta packs} instead.
+ *
+ * @since 1.2
+ */
+public final class ChunkedFetch {
+
+    /**
+     * Default number of objects per chunk
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 10_000;
+
+    static final int CHECKSUM_SIZE = 20;
+
+    private ChunkedFetch() {
+        // utility class
+    }
+
+    /**
+     * @return a stable identifier for the fetch of {@code want} and {@code have} in chunks of
+     *         {@code chunkSize} objects
+     */
+    public static String fetchId(List<ObjectId> want, List<ObjectId> have, int chunkSize) {
+        return fetchId(want, have, chunkSize, false);
+    }
+
+    /**
+     * @return a stable identifier for the fetch of {@code want} and {@code have} in chunks of
+     *         {@code chunkSize} objects, sent as delta packs or not
+     */
+    public static String fetchId(List<ObjectId> want, List<ObjectId> have, int chunkSize,
+            boolean deltas) {
+        Hasher hasher = Hashing.sha1().newHasher();
+        hasher.putInt(chunkSize);
+        hasher.putInt(want.size());
+        want.forEach((id) -> hasher.putBytes(id.getRawValue()));
+        hasher.putInt(have.size());
+        have.forEach((id) -> hasher.putBytes(id.getRawValue()));
+        if (deltas) {
+            hasher.putBoolean(true);
+        }
+        return hasher.hash().toString();
+    }
+
+    /**
+     * Writes the objects to {@code out} in the format {@link BinaryPackedObjects} reads them,
+     * followed by the SHA-1 checksum of the written bytes
+     *
+     * @return the number of objects written
+     */
+    public static long writeChunk(Iterator<? extends RevObject> objects, OutputStream out)
+            throws IOException {
+        return writeChunk(objects, out,
+                (o) -> ObjectFunnels.newFunnel(o, DataStreamSerializationFactoryV1.INSTANCE));
+    }
+
+    private static long writeChunk(Iterator<? extends RevObject> objects, OutputStream out,
+            Function<OutputStream, ObjectFunnel> funnelFactory) throws IOException {
+        HashingOutputStream hashing = new HashingOutputStream(Hashing.sha1(), out);
+        ObjectFunnel funnel = funnelFactory.apply(hashing);
+        long count = 0;
+        while (objects.hasNext()) {
+            funnel.funnel(objects.next());
+            count++;
+        }
+        out.write(hashing.hash().asBytes());
+        out.flush();
+        return count;
+    }
+
+    /**
+     * @return whether the chunk file is complete and its checksum matches its contents
+     */
+    public static boolean verifyChunk(File chunk) throws IOException {
+        final long length = chunk.length();
+        if (length < CHECKSUM_SIZE) {
+            return false;
+        }
+        Hasher hasher = Hashing.sha1().newHasher();
+        byte[] checksum = new byte[CHECKSUM_SIZE];
+        try (InputStream in = new BufferedInputStream(new FileInputStream(chunk), 64 * 1024)) {
+            byte[] buff = new byte[8192];
+            long remaining = length - CHECKSUM_SIZE;
+            while (remaining > 0) {
+                int read = in.read(buff, 0, (int) Math.min(buff.length, remaining));
+                if (read < 0) {
+                    return false;
+                }
+                hasher.putBytes(buff, 0, read);
+                remaining -= read;
+            }
+            ByteStreams.readFully(in, checksum);
+        }
+        return Arrays.equals(checksum, hasher.hash().asBytes());
+    }
+
+    /**
+     * Ingests the objects of a {@link #verifyChunk(File) verified} chunk file
+     */
+    public static IngestResults ingestChunk(File chunk, BinaryPackedObjects unpacker,
+            Callback callback) throws IOException {
+        return ingestChunk(chunk, unpacker, false, null, callback);
+    }
+
+    /**
+     * Ingests the objects of a {@link #verifyChunk(File) verified} chunk file, which is a
+     * {@link DeltaPack delta pack} if {@code deltas} is {@code true}, in which case its contents
+     * are recorded to {@code stats}
+     */
+    public static IngestResults ingestChunk(File chunk, BinaryPackedObjects unpacker,
+            boolean deltas, @Nullable PackStats stats, Callback callback) throws IOException {
+        final long length = chunk.length() - CHECKSUM_SIZE;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(chunk), 64 * 1024)) {
+            InputStream limited = ByteStreams.limit(in, length);
+            if (deltas) {
+                return unpacker.ingestDeltas(limited, callback,
+                        stats == null ? new PackStats() : stats);
+            }
+            return unpacker.ingest(limited, callback);
+        }
+    }
+
+    /**
+     * Describes how the objects of a fetch are split in chunks
+     */
+    public static class Manifest {
+
+        private final String fetchId;
+
+        private final int chunkSize;
+
+        private final long objectCount;
+
+        private final ImmutableList<String> chunkHashes;
+
+        private final boolean deltas;
+
+        public Manifest(String fetchId, int chunkSize, long objectCount,
+                List<String> chunkHashes) {
+            this(fetchId, chunkSize, objectCount, chunkHashes, false);
+        }
+
+        public Manifest(String fetchId, int chunkSize, long objectCount, List<String> chunkHashes,
+                boolean deltas) {
+            checkNotNull(fetchId);
+            checkArgument(chunkSize > 0);
+            this.fetchId = fetchId;
+            this.chunkSize = chunkSize;
+            this.objectCount = objectCount;
+            this.chunkHashes = ImmutableList.copyOf(chunkHashes);
+            this.deltas = deltas;
+        }
+
+        public String getFetchId() {
+            return fetchId;
+        }
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public long getObjectCount() {
+            return objectCount;
+        }
+
+        /**
+         * @return whether chunks are {@link DeltaPack delta packs}
+         */
+        public boolean isDeltas() {
+            return deltas;
+        }
+
+        public int getNumChunks() {
+            return chunkHashes.size();
+        }
+
+        /**
+         * @return the SHA-1 of the ids of the objects in the given chunk
+         */
+        public String getChunkHash(int chunk) {
+            return chunkHashes.get(chunk);
+        }
+
+        public JsonObject toJson() {
+            JsonObject json = new JsonObject();
+            json.addProperty("fetchId", fetchId);
+            json.addProperty("chunkSize", chunkSize);
+            json.addProperty("objects", objectCount);
+            JsonArray chunks = new JsonArray();
+            chunkHashes.forEach((h) -> chunks.add(new JsonPrimitive(h)));
+            json.add("chunks", chunks);
+            if (deltas) {
+                json.addProperty(DeltaPack.CAPABILITY, true);
+            }
+            return json;
+        }
+
+        public static Manifest fromJson(JsonObject json) {
+            checkArgument(json.has("fetchId") && json.has("chunks"), "invalid manifest: %s",
+                    json);
+            List<String> chunks = new ArrayList<>();
+            for (JsonElement e : json.get("chunks").getAsJsonArray()) {
+                chunks.add(e.getAsString());
+            }
+            boolean deltas = json.has(DeltaPack.CAPABILITY)
+                    && json.get(DeltaPack.CAPABILITY).getAsBoolean();
+            return new Manifest(json.get("fetchId").getAsString(),
+                    json.get("chunkSize").getAsInt(), json.get("objects").getAsLong(), chunks,
+                    deltas);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Manifest)) {
+                return false;
+            }
+            Manifest m = (Manifest) o;
+            return fetchId.equals(m.fetchId) && chunkSize == m.chunkSize
+                    && objectCount == m.objectCount && chunkHashes.equals(m.chunkHashes)
+                    && deltas == m.deltas;
+        }
+
+        @Override
+        public int hashCode() {
+            return fetchId.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Manifest[%s, objects: %,d, chunks: %,d%s]", fetchId,
+                    objectCount, chunkHashes.size(), deltas ? ", deltas" : "");
+        }
+    }
+
+    /**
+     * Server side list of the objects to send on a chunked fetch, spooled to a file as raw object
+     * ids in post order so that any chunk can be served without traversing the objects again.
+     * <p>
+     * A plan is shared by the requests for its chunks and may be {@link #close() closed} by its
+     * owner while some of them are still reading it, so it's reference counted: readers
+     * {@link #retain()} it before using it and {@link #release()} it afterwards, and the ids file
+     * is deleted once it's closed and the last reader released it.
+     */
+    public static class Plan implements Closeable {
+
+        private final Manifest manifest;
+
+        private final File idsFile;
+
+        private final Map<ObjectId, ObjectId> deltaBases;
+
+        private final PackStats stats = new PackStats();
+
+        // one reference held by the owner until close()
+        private int references = 1;
+
+        private boolean closed;
+
+        private Plan(Manifest manifest, File idsFile, Map<ObjectId, ObjectId> deltaBases) {
+            this.manifest = manifest;
+            this.idsFile = idsFile;
+            this.deltaBases = deltaBases;
+        }
+
+        /**
+         * Traverses the objects to send and saves their ids to a temporary file in
+         * {@code directory}
+         */
+        public static Plan create(final ObjectStore database, final List<ObjectId> want,
+                final List<ObjectId> have, final int chunkSize, final boolean traverseCommits,
+                final Deduplicator deduplicator, final File directory) throws IOException {
+            return create(database, want, have, chunkSize, traverseCommits, false, deduplicator,
+                    directory);
+        }
+
+        /**
+         * Traverses the objects to send and saves their ids to a temporary file in
+         * {@code directory}, finding out their {@link DeltaPack#findBases delta bases} if
+         * {@code deltas} is {@code true}
+         */
+        public static Plan create(final ObjectStore database, final List<ObjectId> want,
+                final List<ObjectId> have, final int chunkSize, final boolean traverseCommits,
+                final boolean deltas, final Deduplicator deduplicator, final File directory)
+                throws IOException {
+            checkArgument(chunkSize > 0, "chunkSize must be > 0: %s", chunkSize);
+            final String fetchId = fetchId(want, have, chunkSize, deltas);
+            final File idsFile = File.createTempFile("fetch-" + fetchId, ".ids", directory);
+            final List<String> chunkHashes = new ArrayList<>();
+            long count = 0;
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(idsFile), 64 * 1024))) {
+                Iterator<RevObject> objects = new BinaryPackedObjects(database).traverse(want,
+                        have, traverseCommits, deduplicator);
+                byte[] raw = new byte[ObjectId.NUM_BYTES];
+                Hasher chunkHasher = Hashing.sha1().newHasher();
+                while (objects.hasNext()) {
+                    objects.next().getId().getRawValue(raw);
+                    out.write(raw);
+                    chunkHasher.putBytes(raw);
+                    if (++count % chunkSize == 0) {
+                        chunkHashes.add(chunkHasher.hash().toString());
+                        chunkHasher = Hashing.sha1().newHasher();
+                    }
+                }
+                if (count % chunkSize != 0) {
+                    chunkHashes.add(chunkHasher.hash().toString());
+                }
+            } catch (IOException | RuntimeException e) {
+                idsFile.delete();
+                throw e;
+            }
+            Manifest manifest = new Manifest(fetchId, chunkSize, count, chunkHashes, deltas);
+            Map<ObjectId, ObjectId> bases = deltas ? DeltaPack.findBases(database, want, have)
+                    : ImmutableMap.of();
+            return new Plan(manifest, idsFile, bases);
+        }
+
+        public Manifest getManifest() {
+            return manifest;
+        }
+
+        /**
+         * @return statistics about the delta compressed chunks written so far
+         */
+        public PackStats getPackStats() {
+            return stats;
+        }
+
+        /**
+         * Adds a reference to the plan, to be given back through {@link #release()}, so that its
+         * ids file is not deleted while in use
+         *
+         * @return {@code false} if the plan is already closed, in which case it shall not be used
+         */
+        public synchronized boolean retain() {
+            if (closed) {
+                return false;
+            }
+            references++;
+            return true;
+        }
+
+        /**
+         * Gives back a reference acquired through {@link #retain()}, deleting the ids file if the
+         * plan is closed and this was the last one
+         */
+        public synchronized void release() {
+            checkState(references > 0, "plan already released");
+            if (--references == 0) {
+                idsFile.delete();
+            }
+        }
+
+        /**
+         * @return the ids of the objects in the given chunk, in the order they're to be sent
+         */
+        public List<ObjectId> getChunkIds(final int chunk) throws IOException {
+            checkArgument(chunk >= 0 && chunk < manifest.getNumChunks(),
+                    "chunk index out of bounds: %s", chunk);
+            final long first = (long) chunk * manifest.getChunkSize();
+            final int count = (int) Math.min(manifest.getChunkSize(),
+                    manifest.getObjectCount() - first);
+            byte[] raw = new byte[count * ObjectId.NUM_BYTES];
+            try (RandomAccessFile file = new RandomAccessFile(idsFile, "r")) {
+                file.seek(first * ObjectId.NUM_BYTES);
+                file.readFully(raw);
+            }
+            List<ObjectId> ids = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                ids.add(ObjectId.createNoClone(Arrays.copyOfRange(raw, i * ObjectId.NUM_BYTES,
+                        (i + 1) * ObjectId.NUM_BYTES)));
+            }
+            return ids;
+        }
+
+        /**
+         * Writes the given chunk to {@code out}, as described in {@link ChunkedFetch}
+         *
+         * @return the number of objects written
+         */
+        public long writeChunk(final int chunk, final ObjectStore database,
+                final OutputStream out) throws IOException {
+            return writeChunk(getChunkIds(chunk), database, out);
+        }
+
+        /**
+         * Writes the chunk made of the given {@link #getChunkIds(int) ids} to {@code out}, as
+         * described in {@link ChunkedFetch}. Unlike {@link #writeChunk(int, ObjectStore,
+         * OutputStream)}, it doesn't read the ids file and hence can be called after the plan is
+         * closed.
+         *
+         * @return the number of objects written
+         */
+        public long writeChunk(final List<ObjectId> ids, final ObjectStore database,
+                final OutputStream out) throws IOException {
+            final ObjectIdMap<RevObject> objects = new ObjectIdMap<>(ids.size());
+            database.getAll(ids).forEachRemaining((o) -> objects.put(o.getId(), o));
+            Iterator<RevObject> ordered = ids.stream().map((id) -> {
+                RevObject o = objects.get(id);
+                checkState(o != null, "object %s not found", id);
+                return o;
+            }).iterator();
+            if (manifest.isDeltas()) {
+                return ChunkedFetch.writeChunk(ordered, out,
+                        (o) -> DeltaPack.newFunnel(o, database, deltaBases, stats));
+            }
+            return ChunkedFetch.writeChunk(ordered, out);
+        }
+
+        /**
+         * Gives back the owner's reference, deleting the ids file as soon as no reader is using it
+         */
+        @Override
+        public synchronized void close() {
+            if (!closed) {
+                closed = true;
+                release();
+            }
+        }
+    }
+}
@@ -0,0 +1,503 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.remote.http;
+
+import static com.google.common.base.Preconditions.checkState;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.Ref;
+import org.locationtech.geogig.porcelain.TransferSummary.PackStats;
+import org.locationtech.geogig.remote.http.BinaryPackedObjects.Callback;
+import org.locationtech.geogig.remote.http.BinaryPackedObjects.IngestResults;
+import org.locationtech.geogig.remote.http.ChunkedFetch.Manifest;
+import org.locationtech.geogig.repository.ProgressListener;
+import org.locationtech.geogig.repository.Repository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.base.Throwables;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * Client side of the {@link ChunkedFetch chunked fetch protocol}.
+ * <p>
+ * Chunks are downloaded by up to {@code parallelism} concurrent connections into a state directory
+ * for the fetch, and ingested sequentially as soon as the next chunk in order is available. After
+ * each chunk is ingested its index is recorded in the state directory, so that running the same
+ * fetch again after a failure skips the committed chunks, as well as re-downloading the chunks
+ * already downloaded and verified.
+ * <p>
+ * The state directory is identified by the remote URL and the name of the ref being fetched, and
+ * records the original {@code want} and {@code have} lists. The commits ingested by an interrupted
+ * fetch are local the next time, so the lists computed then are different; as long as the remote
+ * ref still points to the same commit the saved ones are requested again instead, getting the
+ * same manifest back.
+ * <p>
+ * State directories live in {@code <repository>/fetch} for file based repositories, or a
+ * directory under {@code java.io.tmpdir} otherwise. They're deleted once the fetch completes, and
+ * the ones left over by fetches that were never resumed are deleted after
+ * {@value #STALE_STATE_DAYS} days.
+ */
+class ChunkedFetcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChunkedFetcher.class);
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private static final String MANIFEST_FILE = "manifest.json";
+
+    private static final String COMMITTED_FILE = "committed";
+
+    private static final String REQUEST_FILE = "request.json";
+
+    static final int STALE_STATE_DAYS = 7;
+
+    private final URL repositoryURL;
+
+    private final Repository localRepository;
+
+    private final int chunkSize;
+
+    private final int parallelism;
+
+    private final boolean deltas;
+
+    private final PackStats stats;
+
+    private final String acceptEncoding;
+
+    private List<ObjectId> want;
+
+    private List<ObjectId> have;
+
+    private Manifest manifest;
+
+    /**
+     * @param deltas whether to ask the remote for {@link DeltaPack delta packs}
+     * @param stats where to record the contents of the delta packs received
+     */
+    ChunkedFetcher(URL repositoryURL, Repository localRepository, int chunkSize,
+            int parallelism, boolean deltas, PackStats stats) {
+        this.repositoryURL = repositoryURL;
+        this.localRepository = localRepository;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+        this.deltas = deltas;
+        this.stats = stats;
+        this.acceptEncoding = StreamCodec.acceptEncoding(HttpUtils.preferredCodec(localRepository));
+    }
+
+    /**
+     * Fetches all the objects reachable from {@code want} and not from {@code have}, which are the
+     * commits missing to update the local copy of {@code ref}
+     *
+     * @return {@code true} if all the objects were fetched, {@code false} if the remote does not
+     *         support chunked fetches, in which case nothing was fetched, or the fetch was
+     *         canceled, as reported by {@link ProgressListener#isCanceled()}
+     */
+    public boolean fetch(final Ref ref, final List<ObjectId> want, final Set<ObjectId> have,
+            final Callback callback, final ProgressListener progress) {
+        try {
+            final File stateDir = stateDirectory(ref.getName());
+            deleteStaleState(stateDir);
+            if (!readRequest(stateDir, ref.getObjectId())) {
+                this.want = new ArrayList<>(want);
+                this.have = new ArrayList<>(have);
+                // sorted for the fetch id to not depend on the set's iteration order
+                Collections.sort(this.have);
+            }
+            this.manifest = requestManifest();
+            if (manifest == null) {
+                LOGGER.info("Remote does not support chunked fetches, using a single stream");
+                return false;
+            }
+            final int committed = prepareStateDirectory(stateDir, ref.getObjectId());
+            LOGGER.info("Fetching {}, starting at chunk {}", manifest, committed);
+            if (!fetchChunks(stateDir, committed, callback, progress)) {
+                // keep the state to resume the fetch
+                return false;
+            }
+            deleteRecursively(stateDir);
+        } catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+        return true;
+    }
+
+    /**
+     * @return {@code true} if all chunks were committed, {@code false} if the fetch was canceled
+     */
+    private boolean fetchChunks(final File stateDir, final int firstChunk,
+            final Callback callback, final ProgressListener progress) throws IOException {
+
+        final int numChunks = manifest.getNumChunks();
+        final BinaryPackedObjects unpacker = new BinaryPackedObjects(
+                localRepository.objectDatabase()).setProgressListener(progress);
+        final ExecutorService executor = Executors.newFixedThreadPool(parallelism,
+                new ThreadFactoryBuilder().setNameFormat("geogig-fetch-chunk-%d")
+                        .setDaemon(true).build());
+        // downloads in flight, in chunk order; kept ahead of ingestion by at most twice the number
+        // of connections to bound the disk space used by downloaded chunks
+        final Deque<Future<File>> downloads = new ArrayDeque<>();
+        final int maxDownloads = 2 * parallelism;
+        int nextDownload = firstChunk;
+        try {
+            for (int chunk = firstChunk; chunk < numChunks; chunk++) {
+                if (progress.isCanceled()) {
+                    return false;
+                }
+                while (nextDownload < numChunks && downloads.size() < maxDownloads) {
+                    final int index = nextDownload++;
+                    downloads.add(executor.submit(() -> download(stateDir, index)));
+                }
+                final File chunkFile = get(downloads.removeFirst());
+                progress.setDescription(String.format("Fetching objects: chunk %,d of %,d",
+                        chunk + 1, numChunks));
+                Stopwatch sw = Stopwatch.createStarted();
+                IngestResults results = ChunkedFetch.ingestChunk(chunkFile, unpacker,
+                        manifest.isDeltas(), stats, callback);
+                commit(stateDir, chunk + 1);
+                chunkFile.delete();
+                LOGGER.debug("Chunk {} of {} ingested in {}. Inserted: {}, existing: {}, {}",
+                        chunk + 1, numChunks, sw.stop(), results.getInserted(),
+                        results.getExisting(), results.getMetrics());
+            }
+            return true;
+        } finally {
+            downloads.forEach((f) -> f.cancel(true));
+            executor.shutdownNow();
+        }
+    }
+
+    private static <T> T get(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Throwables.propagate(e);
+        } catch (ExecutionException e) {
+            Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    /**
+     * Downloads and verifies the given chunk, unless a previous attempt already did so
+     */
+    private File download(final File stateDir, final int chunk) throws IOException {
+        final File chunkFile = new File(stateDir, "chunk-" + chunk + ".pack");
+        if (chunkFile.exists() && ChunkedFetch.verifyChunk(chunkFile)) {
+            return chunkFile;
+        }
+        IOException failure = null;
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            final File tmp = File.createTempFile("chunk-" + chunk, ".tmp", stateDir);
+            try {
+                if (!download(chunk, tmp)) {
+                    // the remote discarded the plan, request it again and retry
+                    refreshManifest();
+                    continue;
+                }
+                if (ChunkedFetch.verifyChunk(tmp)) {
+                    Files.move(tmp.toPath(), chunkFile.toPath(),
+                            StandardCopyOption.REPLACE_EXISTING);
+                    return chunkFile;
+                }
+                failure = new IOException("checksum mismatch for chunk " + chunk);
+            } catch (IOException e) {
+                failure = e;
+            } finally {
+                tmp.delete();
+            }
+            LOGGER.info("Attempt {} to download chunk {} failed: {}", attempt, chunk,
+                    failure.getMessage());
+        }
+        throw failure == null ? new IOException("unable to download chunk " + chunk) : failure;
+    }
+
+    /**
+     * @return {@code false} if the remote doesn't know about the fetch
+     */
+    private boolean download(final int chunk, final File target) throws IOException {
+        final String url = String.format("%s/repo/batchchunks?fetchId=%s&chunk=%d",
+                repositoryURL, manifest().getFetchId(), chunk);
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setUseCaches(false);
+            connection.addRequestProperty("Accept-Encoding", acceptEncoding);
+            final int responseCode = connection.getResponseCode();
+            if (responseCode == HttpURLConnection.HTTP_NOT_FOUND) {
+                return false;
+            }
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                // fail with an IOException for the download to be retried
+                throw new IOException(String.format("HTTP %d downloading chunk %d: %s",
+                        responseCode, chunk, connection.getResponseMessage()));
+            }
+            try (InputStream in = HttpUtils.getResponseStream(connection);
+                    OutputStream out = new BufferedOutputStream(new FileOutputStream(target),
+                            64 * 1024)) {
+                ByteStreams.copy(in, out);
+            }
+            return true;
+        } finally {
+            HttpUtils.consumeErrStreamAndCloseConnection(connection);
+        }
+    }
+
+    private synchronized Manifest manifest() {
+        return manifest;
+    }
+
+    private synchronized void refreshManifest() throws IOException {
+        Manifest current = requestManifest();
+        checkState(current != null, "remote no longer supports chunked fetches");
+        checkState(current.equals(manifest),
+                "the objects to fetch changed on the remote, please fetch again");
+    }
+
+    /**
+     * @return the manifest for the fetch, or {@code null} if the remote doesn't support chunked
+     *         fetches
+     */
+    private @Nullable Manifest requestManifest() throws IOException {
+        JsonObject message = new JsonObject();
+        message.add("want", toJson(want));
+        message.add("have", toJson(have));
+        message.addProperty("chunkSize", chunkSize);
+        if (deltas) {
+            message.addProperty(DeltaPack.CAPABILITY, true);
+        }
+
+        final URL resourceURL = new URL(repositoryURL.toString() + "/repo/batchchunks");
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) resourceURL.openConnection();
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setDoInput(true);
+            connection.setUseCaches(false);
+            try (Writer writer = new OutputStreamWriter(connection.getOutputStream(),
+                    StandardCharsets.UTF_8)) {
+                new Gson().toJson(message, writer);
+            }
+            if (connection.getResponseCode() == HttpURLConnection.HTTP_NOT_FOUND) {
+                return null;
+            }
+            try (Reader reader = new InputStreamReader(HttpUtils.getResponseStream(connection),
+                    StandardCharsets.UTF_8)) {
+                return Manifest.fromJson(new JsonParser().parse(reader).getAsJsonObject());
+            }
+        } finally {
+            HttpUtils.consumeErrStreamAndCloseConnection(connection);
+        }
+    }
+
+    private static JsonArray toJson(List<ObjectId> ids) {
+        JsonArray array = new JsonArray();
+        ids.forEach((id) -> array.add(new JsonPrimitive(id.toString())));
+        return array;
+    }
+
+    private File stateDirectory(final String refName) {
+        String stateId = Hashing.sha1().newHasher()
+                .putString(repositoryURL.toString(), StandardCharsets.UTF_8).putByte((byte) 0)
+                .putString(refName, StandardCharsets.UTF_8).hash().toString();
+        return new File(fetchDirectory(localRepository), stateId);
+    }
+
+    /**
+     * Deletes the state directories of fetches that were not resumed in
+     * {@value #STALE_STATE_DAYS} days, except for {@code current}
+     */
+    private void deleteStaleState(final File current) {
+        final File[] states = fetchDirectory(localRepository).listFiles();
+        if (states == null) {
+            return;
+        }
+        final long expired = System.currentTimeMillis()
+                - TimeUnit.DAYS.toMillis(STALE_STATE_DAYS);
+        for (File state : states) {
+            if (state.isDirectory() && !state.equals(current)
+                    && state.lastModified() < expired) {
+                LOGGER.info("Deleting the state of an abandoned fetch: {}", state);
+                deleteRecursively(state);
+            }
+        }
+    }
+
+    /**
+     * Restores the {@code want} and {@code have} lists of a previous fetch of the ref in
+     * {@code stateDir}, if it was for the same {@code tip}
+     *
+     * @return whether the lists were restored
+     */
+    private boolean readRequest(final File stateDir, final ObjectId tip) {
+        final File requestFile = new File(stateDir, REQUEST_FILE);
+        if (!requestFile.exists()) {
+            return false;
+        }
+        try (Reader reader = Files.newBufferedReader(requestFile.toPath(),
+                StandardCharsets.UTF_8)) {
+            JsonObject request = new JsonParser().parse(reader).getAsJsonObject();
+            if (!tip.equals(ObjectId.valueOf(request.get("tip").getAsString()))) {
+                return false;
+            }
+            this.want = fromJson(request.get("want").getAsJsonArray());
+            this.have = fromJson(request.get("have").getAsJsonArray());
+            return true;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.info("Ignoring unreadable fetch request {}: {}", requestFile, e.getMessage());
+            return false;
+        }
+    }
+
+    private void writeRequest(final File stateDir, final ObjectId tip) throws IOException {
+        JsonObject request = new JsonObject();
+        request.addProperty("tip", tip.toString());
+        request.add("want", toJson(want));
+        request.add("have", toJson(have));
+        writeAtomically(new File(stateDir, REQUEST_FILE), new Gson().toJson(request));
+    }
+
+    private static List<ObjectId> fromJson(JsonArray array) {
+        List<ObjectId> ids = new ArrayList<>(array.size());
+        for (JsonElement e : array) {
+            ids.add(ObjectId.valueOf(e.getAsString()));
+        }
+        return ids;
+    }
+
+    /**
+     * @return the directory to keep the state of resumable fetches into {@code repository} in
+     */
+    static File fetchDirectory(Repository repository) {
+        final URI location = repository.getLocation();
+        if ("file".equals(location.getScheme())) {
+            return new File(new File(location), "fetch");
+        }
+        String repoId = Hashing.sha1().hashString(location.toString(), StandardCharsets.UTF_8)
+                .toString();
+        return new File(new File(System.getProperty("java.io.tmpdir"), "geogig-fetch"), repoId);
+    }
+
+    /**
+     * Makes sure the state directory matches the current manifest, resetting it otherwise
+     *
+     * @return the number of chunks already committed
+     */
+    private int prepareStateDirectory(final File stateDir, final ObjectId tip)
+            throws IOException {
+        final File manifestFile = new File(stateDir, MANIFEST_FILE);
+        if (manifestFile.exists()) {
+            Manifest saved;
+            try (Reader reader = Files.newBufferedReader(manifestFile.toPath(),
+                    StandardCharsets.UTF_8)) {
+                saved = Manifest.fromJson(new JsonParser().parse(reader).getAsJsonObject());
+            } catch (RuntimeException e) {
+                saved = null;
+            }
+            if (manifest.equals(saved)) {
+                int committed = readCommitted(stateDir);
+                if (committed > 0) {
+                    LOGGER.info("Resuming fetch {} after {} committed chunks",
+                            manifest.getFetchId(), committed);
+                }
+                // flag the state as in use for deleteStaleState
+                stateDir.setLastModified(System.currentTimeMillis());
+                return committed;
+            }
+            LOGGER.info("Discarding the state of a previous fetch that no longer applies");
+            deleteRecursively(stateDir);
+        }
+        if (!stateDir.exists() && !stateDir.mkdirs()) {
+            throw new FileNotFoundException("Unable to create directory " + stateDir);
+        }
+        writeRequest(stateDir, tip);
+        writeAtomically(manifestFile, new Gson().toJson(manifest.toJson()));
+        return 0;
+    }
+
+    private static int readCommitted(final File stateDir) throws IOException {
+        final File file = new File(stateDir, COMMITTED_FILE);
+        if (!file.exists()) {
+            return 0;
+        }
+        String value = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static void commit(final File stateDir, final int committedChunks)
+            throws IOException {
+        writeAtomically(new File(stateDir, COMMITTED_FILE), String.valueOf(committedChunks));
+    }
+
+    static void writeAtomically(final File file, final String contents)
+            throws IOException {
+        final File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        Files.write(tmp.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static void deleteRecursively(final File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,281 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.remote.http;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.locationtech.geogig.model.ObjectId;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * Describes a clone bundle: a pre-computed pack of all the objects reachable from a branch tip,
+ * that a server keeps on disk (see {@link CloneBundleStore}) so that cloning a repository doesn't
+ * require traversing its whole history for each client.
+ * <p>
+ * The protocol goes as follows:
+ * <ul>
+ * <li>The client {@code GET}s {@code /repo/bundle?ref=<ref name>}, and the server responds with
+ * the descriptor of the bundle for that ref, or with a {@code 404 Not Found} status if there's
+ * none yet. The bundle may lag behind the ref, as it's refreshed in the background when the ref
+ * moves.
+ * <li>The client {@code GET}s the bundle contents from
+ * {@code /repo/bundle?ref=<ref name>&generation=<generation>&size=<size>}, using a
+ * {@code Range: bytes=<offset>-} header to resume an interrupted download. The response is the
+ * same stream of objects {@code /repo/batchobjects} sends.
+ * <li>The client ingests the bundle, and then fetches the commits between the bundle
+ * {@link #getTip() tip} and the ref as on any other fetch.
+ * </ul>
+ * When the ref moves forward, the objects reachable from the new tip and not from the old one are
+ * appended to the bundle as a new {@link Segment segment}, so a bundle's contents up to a given
+ * size never change within a {@link #getGeneration() generation}, and a download can be resumed
+ * even if the bundle was refreshed meanwhile. A new generation is built from scratch when the ref
+ * is rewritten, or when the bundle has too many segments.
+ *
+ * @since 1.2
+ */
+public final class CloneBundle {
+
+    private final String ref;
+
+    private final ObjectId tip;
+
+    private final String generation;
+
+    private final ImmutableList<Segment> segments;
+
+    public CloneBundle(String ref, ObjectId tip, String generation, List<Segment> segments) {
+        checkNotNull(ref);
+        checkNotNull(tip);
+        checkNotNull(generation);
+        this.ref = ref;
+        this.tip = tip;
+        this.generation = generation;
+        this.segments = ImmutableList.copyOf(segments);
+    }
+
+    /**
+     * A contiguous part of a bundle, holding the objects added by a single refresh
+     */
+    public static class Segment {
+
+        private final long length;
+
+        private final long objects;
+
+        private final String checksum;
+
+        public Segment(long length, long objects, String checksum) {
+            checkArgument(length >= 0 && objects >= 0);
+            checkNotNull(checksum);
+            this.length = length;
+            this.objects = objects;
+            this.checksum = checksum;
+        }
+
+        /**
+         * @return the length of the segment in bytes
+         */
+        public long getLength() {
+            return length;
+        }
+
+        public long getObjects() {
+            return objects;
+        }
+
+        /**
+         * @return the SHA-1 of the segment contents
+         */
+        public String getChecksum() {
+            return checksum;
+        }
+
+        JsonObject toJson() {
+            JsonObject json = new JsonObject();
+            json.addProperty("length", length);
+            json.addProperty("objects", objects);
+            json.addProperty("sha1", checksum);
+            return json;
+        }
+
+        static Segment fromJson(JsonObject json) {
+            return new Segment(json.get("length").getAsLong(), json.get("objects").getAsLong(),
+                    json.get("sha1").getAsString());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Segment)) {
+                return false;
+            }
+            Segment s = (Segment) o;
+            return length == s.length && objects == s.objects && checksum.equals(s.checksum);
+        }
+
+        @Override
+        public int hashCode() {
+            return checksum.hashCode();
+        }
+    }
+
+    /**
+     * @return the name of the ref the bundle is for
+     */
+    public String getRef() {
+        return ref;
+    }
+
+    /**
+     * @return the commit the bundle holds all the reachable objects from
+     */
+    public ObjectId getTip() {
+        return tip;
+    }
+
+    /**
+     * @return an identifier of the bundle file, that changes when the bundle is rebuilt
+     */
+    public String getGeneration() {
+        return generation;
+    }
+
+    public List<Segment> getSegments() {
+        return segments;
+    }
+
+    /**
+     * @return the size of the bundle in bytes
+     */
+    public long getSize() {
+        long size = 0;
+        for (Segment s : segments) {
+            size += s.getLength();
+        }
+        return size;
+    }
+
+    public long getObjects() {
+        long objects = 0;
+        for (Segment s : segments) {
+            objects += s.getObjects();
+        }
+        return objects;
+    }
+
+    /**
+     * @return a bundle of the same generation as this one, with {@code segment} appended and
+     *         {@code newTip} as its tip
+     */
+    public CloneBundle append(ObjectId newTip, Segment segment) {
+        List<Segment> appended = new ArrayList<>(segments);
+        appended.add(segment);
+        return new CloneBundle(ref, newTip, generation, appended);
+    }
+
+    /**
+     * @return whether the contents of this bundle are a prefix of the contents of {@code other},
+     *         that is, whether it's the same bundle or a refresh of it
+     */
+    public boolean isPrefixOf(CloneBundle other) {
+        return ref.equals(other.ref) && generation.equals(other.generation)
+                && segments.size() <= other.segments.size()
+                && segments.equals(other.segments.subList(0, segments.size()));
+    }
+
+    /**
+     * @return whether the contents of {@code file} match the checksums of all the segments of this
+     *         bundle
+     */
+    public boolean verify(File file) throws IOException {
+        if (file.length() != getSize()) {
+            return false;
+        }
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file), 64 * 1024)) {
+            byte[] buff = new byte[8192];
+            for (Segment segment : segments) {
+                Hasher hasher = Hashing.sha1().newHasher();
+                long remaining = segment.getLength();
+                while (remaining > 0) {
+                    int read = in.read(buff, 0, (int) Math.min(buff.length, remaining));
+                    if (read < 0) {
+                        return false;
+                    }
+                    hasher.putBytes(buff, 0, read);
+                    remaining -= read;
+                }
+                if (!segment.getChecksum().equals(hasher.hash().toString())) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public JsonObject toJson() {
+        JsonObject json = new JsonObject();
+        json.addProperty("ref", ref);
+        json.addProperty("tip", tip.toString());
+        json.addProperty("generation", generation);
+        json.addProperty("size", getSize());
+        json.addProperty("objects", getObjects());
+        JsonArray array = new JsonArray();
+        segments.forEach((s) -> array.add(s.toJson()));
+        json.add("segments", array);
+        return json;
+    }
+
+    public static CloneBundle fromJson(JsonObject json) {
+        checkArgument(json.has("ref") && json.has("tip") && json.has("generation")
+                && json.has("segments"), "invalid clone bundle: %s", json);
+        List<Segment> segments = new ArrayList<>();
+        for (JsonElement e : json.get("segments").getAsJsonArray()) {
+            segments.add(Segment.fromJson(e.getAsJsonObject()));
+        }
+        return new CloneBundle(json.get("ref").getAsString(),
+                ObjectId.valueOf(json.get("tip").getAsString()),
+                json.get("generation").getAsString(), segments);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof CloneBundle)) {
+            return false;
+        }
+        CloneBundle b = (CloneBundle) o;
+        return ref.equals(b.ref) && tip.equals(b.tip) && generation.equals(b.generation)
+                && segments.equals(b.segments);
+    }
+
+    @Override
+    public int hashCode() {
+        return generation.hashCode() * 31 + tip.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CloneBundle[%s at %s, generation: %s, segments: %,d, objects: %,d, "
+                + "size: %,d]", ref, tip, generation, segments.size(), getObjects(), getSize());
+    }
+}
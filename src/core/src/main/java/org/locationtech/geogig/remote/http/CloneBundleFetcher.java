@@ -0,0 +1,234 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.remote.http;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.remote.http.BinaryPackedObjects.Callback;
+import org.locationtech.geogig.remote.http.BinaryPackedObjects.IngestResults;
+import org.locationtech.geogig.repository.ProgressListener;
+import org.locationtech.geogig.repository.Repository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Stopwatch;
+import com.google.common.base.Throwables;
+import com.google.common.io.ByteStreams;
+import com.google.gson.Gson;
+import com.google.gson.JsonParser;
+
+/**
+ * Client side of the {@link CloneBundle clone bundle} protocol.
+ * <p>
+ * The bundle is downloaded to {@code bundle-<generation>} in the same state directory as
+ * {@link ChunkedFetcher chunked fetches}, verified against the checksums of its segments, and
+ * ingested. An interrupted download is resumed from where it left off by the next attempt, or the
+ * next fetch, as long as the remote still serves the same bundle generation.
+ */
+class CloneBundleFetcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CloneBundleFetcher.class);
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private static final String DESCRIPTOR_FILE = "bundle.json";
+
+    private static final String PACK_FILE = "bundle.pack";
+
+    private final URL repositoryURL;
+
+    private final Repository localRepository;
+
+    private final String acceptEncoding;
+
+    CloneBundleFetcher(URL repositoryURL, Repository localRepository) {
+        this.repositoryURL = repositoryURL;
+        this.localRepository = localRepository;
+        this.acceptEncoding = StreamCodec.acceptEncoding(HttpUtils.preferredCodec(localRepository));
+    }
+
+    /**
+     * Downloads and ingests the remote's bundle for the given ref
+     *
+     * @return the tip of the ingested bundle, or absent if the remote has no bundle for the ref or
+     *         the fetch was canceled, in which case the objects shall be fetched as usual
+     */
+    public Optional<ObjectId> fetch(final String refName, final Callback callback,
+            final ProgressListener progress) {
+        try {
+            final CloneBundle bundle = requestBundle(refName);
+            if (bundle == null) {
+                LOGGER.info("Remote has no clone bundle for {}", refName);
+                return Optional.absent();
+            }
+            if (localRepository.commitExists(bundle.getTip())) {
+                return Optional.of(bundle.getTip());
+            }
+            final File stateDir = new File(ChunkedFetcher.fetchDirectory(localRepository),
+                    "bundle-" + bundle.getGeneration());
+            final File pack = download(stateDir, bundle, progress);
+            if (pack == null) {
+                return Optional.absent();
+            }
+            progress.setDescription(String.format("Ingesting clone bundle of %s: %,d objects",
+                    refName, bundle.getObjects()));
+            Stopwatch sw = Stopwatch.createStarted();
+            IngestResults results;
+            try (InputStream in = new BufferedInputStream(new FileInputStream(pack), 64 * 1024)) {
+                results = new BinaryPackedObjects(localRepository.objectDatabase())
+                        .setProgressListener(progress).ingest(in, callback);
+            }
+            LOGGER.info("Ingested {} in {}. Inserted: {}, existing: {}, {}", bundle, sw.stop(),
+                    results.getInserted(), results.getExisting(), results.getMetrics());
+            ChunkedFetcher.deleteRecursively(stateDir);
+            return Optional.of(bundle.getTip());
+        } catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    /**
+     * Downloads the bundle into the state directory, resuming a previous download of the same
+     * bundle generation if there's one
+     *
+     * @return the downloaded and verified pack file, or {@code null} if the fetch was canceled or
+     *         the remote no longer serves the bundle
+     */
+    private @Nullable File download(final File stateDir, final CloneBundle bundle,
+            final ProgressListener progress) throws IOException {
+        final File descriptorFile = new File(stateDir, DESCRIPTOR_FILE);
+        final File pack = new File(stateDir, PACK_FILE);
+        final CloneBundle saved = readDescriptor(descriptorFile);
+        if (saved == null || !saved.isPrefixOf(bundle)) {
+            ChunkedFetcher.deleteRecursively(stateDir);
+        }
+        if (!stateDir.exists() && !stateDir.mkdirs()) {
+            throw new FileNotFoundException("Unable to create directory " + stateDir);
+        }
+        ChunkedFetcher.writeAtomically(descriptorFile, new Gson().toJson(bundle.toJson()));
+
+        IOException failure = null;
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            if (progress.isCanceled()) {
+                return null;
+            }
+            final long offset = pack.length() > bundle.getSize() ? 0L : pack.length();
+            progress.setDescription(String.format("Downloading clone bundle of %s: %,d bytes%s",
+                    bundle.getRef(), bundle.getSize(),
+                    offset > 0 ? String.format(", resuming at %,d", offset) : ""));
+            try {
+                if (offset < bundle.getSize() && !download(bundle, pack, offset)) {
+                    LOGGER.info("Remote no longer serves {}", bundle);
+                    ChunkedFetcher.deleteRecursively(stateDir);
+                    return null;
+                }
+                if (bundle.verify(pack)) {
+                    return pack;
+                }
+                failure = new IOException("checksum mismatch for " + bundle);
+                pack.delete();
+            } catch (IOException e) {
+                failure = e;
+            }
+            LOGGER.info("Attempt {} to download {} failed: {}", attempt, bundle,
+                    failure.getMessage());
+        }
+        throw failure;
+    }
+
+    /**
+     * Downloads the bundle contents starting at {@code offset} into {@code target}, or all of them
+     * if the remote ignores the requested range
+     *
+     * @return {@code false} if the remote no longer serves the bundle
+     */
+    private boolean download(final CloneBundle bundle, final File target, final long offset)
+            throws IOException {
+        final String url = String.format("%s/repo/bundle?ref=%s&generation=%s&size=%d",
+                repositoryURL, URLEncoder.encode(bundle.getRef(), "UTF-8"),
+                bundle.getGeneration(), bundle.getSize());
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setUseCaches(false);
+            connection.addRequestProperty("Accept-Encoding", acceptEncoding);
+            if (offset > 0) {
+                connection.addRequestProperty("Range", "bytes=" + offset + "-");
+            }
+            final int status = connection.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NOT_FOUND) {
+                return false;
+            }
+            if (status != HttpURLConnection.HTTP_OK && status != HttpURLConnection.HTTP_PARTIAL) {
+                throw new IOException("Unexpected response downloading bundle: " + status);
+            }
+            final boolean append = status == HttpURLConnection.HTTP_PARTIAL;
+            try (InputStream in = HttpUtils.getResponseStream(connection);
+                    OutputStream out = new BufferedOutputStream(
+                            new FileOutputStream(target, append), 64 * 1024)) {
+                ByteStreams.copy(in, out);
+            }
+            return true;
+        } finally {
+            HttpUtils.consumeErrStreamAndCloseConnection(connection);
+        }
+    }
+
+    /**
+     * @return the remote's bundle for the given ref, or {@code null} if it has none
+     */
+    private @Nullable CloneBundle requestBundle(final String refName) throws IOException {
+        final URL url = new URL(String.format("%s/repo/bundle?ref=%s", repositoryURL,
+                URLEncoder.encode(refName, "UTF-8")));
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) url.openConnection();
+            connection.setUseCaches(false);
+            if (connection.getResponseCode() == HttpURLConnection.HTTP_NOT_FOUND) {
+                return null;
+            }
+            try (Reader reader = new InputStreamReader(HttpUtils.getResponseStream(connection),
+                    StandardCharsets.UTF_8)) {
+                return CloneBundle.fromJson(new JsonParser().parse(reader).getAsJsonObject());
+            }
+        } finally {
+            HttpUtils.consumeErrStreamAndCloseConnection(connection);
+        }
+    }
+
+    private static @Nullable CloneBundle readDescriptor(final File file) {
+        if (!file.exists()) {
+            return null;
+        }
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            return CloneBundle.fromJson(new JsonParser().parse(reader).getAsJsonObject());
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.remote.http;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.UUID;
+
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.Ref;
+import org.locationtech.geogig.plumbing.CreateDeduplicator;
+import org.locationtech.geogig.plumbing.FindCommonAncestor;
+import org.locationtech.geogig.remote.ObjectFunnel;
+import org.locationtech.geogig.remote.ObjectFunnels;
+import org.locationtech.geogig.remote.http.CloneBundle.Segment;
+import org.locationtech.geogig.repository.Repository;
+import org.locationtech.geogig.repository.impl.Deduplicator;
+import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.geogig.storage.datastream.DataStreamSerializationFactoryV1;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingOutputStream;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingOutputStream;
+import com.google.gson.Gson;
+import com.google.gson.JsonParser;
+
+/**
+ * Server side storage of {@link CloneBundle clone bundles}, as a pack file and a descriptor per
+ * ref in a directory.
+ * <p>
+ * The directory is {@code <repository>/bundles} for file based repositories, or a directory under
+ * {@code java.io.tmpdir} otherwise.
+ * <p>
+ * {@link #refresh Refreshes} are serialized, while bundles can be {@link #get looked up} and
+ * {@link #open read} concurrently with them: descriptors are replaced atomically, and appending
+ * to a pack file leaves the contents readers are given access to untouched.
+ *
+ * @since 1.2
+ */
+public class CloneBundleStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CloneBundleStore.class);
+
+    /**
+     * Maximum number of segments before a bundle is rebuilt instead of appended to
+     */
+    static final int MAX_SEGMENTS = 64;
+
+    private final File directory;
+
+    public CloneBundleStore(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @return the directory bundles for the repository at the given location are stored in
+     */
+    public static File defaultDirectory(URI location) {
+        if ("file".equals(location.getScheme())) {
+            return new File(new File(location), "bundles");
+        }
+        String repoId = Hashing.sha1().hashString(location.toString(), StandardCharsets.UTF_8)
+                .toString();
+        return new File(new File(System.getProperty("java.io.tmpdir"), "geogig-bundles"),
+                repoId);
+    }
+
+    /**
+     * @return the current bundle for the given ref, if any
+     */
+    public Optional<CloneBundle> get(final String refName) throws IOException {
+        final File descriptor = descriptorFile(refName);
+        if (!descriptor.exists()) {
+            return Optional.absent();
+        }
+        try (Reader reader = Files.newBufferedReader(descriptor.toPath(),
+                StandardCharsets.UTF_8)) {
+            return Optional.of(
+                    CloneBundle.fromJson(new JsonParser().parse(reader).getAsJsonObject()));
+        } catch (RuntimeException e) {
+            LOGGER.warn("Ignoring invalid clone bundle descriptor {}", descriptor, e);
+            return Optional.absent();
+        }
+    }
+
+    /**
+     * Brings the bundle for {@code ref} up to date with the ref's tip, appending the objects
+     * reachable from the new tip to it if the ref moved forward, or building it from scratch
+     * otherwise.
+     *
+     * @return the up to date bundle
+     */
+    public synchronized CloneBundle refresh(final Repository repository, final Ref ref)
+            throws IOException {
+        final String refName = ref.getName();
+        final ObjectId tip = ref.getObjectId();
+        final Optional<CloneBundle> current = get(refName);
+        if (current.isPresent() && current.get().getTip().equals(tip)) {
+            return current.get();
+        }
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new FileNotFoundException("Unable to create directory " + directory);
+        }
+        final Deduplicator deduplicator = repository.command(CreateDeduplicator.class).call()
+                .createDeduplicator();
+        final Stopwatch sw = Stopwatch.createStarted();
+        final CloneBundle bundle;
+        try {
+            final ObjectStore db = repository.objectDatabase();
+            if (current.isPresent() && canAppend(repository, current.get(), tip)) {
+                CloneBundle previous = current.get();
+                Segment segment = writeSegment(db, packFile(previous), previous.getSize(),
+                        ImmutableList.of(tip), ImmutableList.of(previous.getTip()),
+                        deduplicator);
+                bundle = previous.append(tip, segment);
+            } else {
+                CloneBundle empty = new CloneBundle(refName, tip, UUID.randomUUID().toString(),
+                        ImmutableList.of());
+                Segment segment = writeSegment(db, packFile(empty), 0L, ImmutableList.of(tip),
+                        ImmutableList.of(), deduplicator);
+                bundle = empty.append(tip, segment);
+            }
+        } finally {
+            deduplicator.release();
+        }
+        writeDescriptor(bundle);
+        if (current.isPresent() && !current.get().getGeneration().equals(bundle.getGeneration())) {
+            // readers of the old generation will get a 404 and start over with the new one
+            packFile(current.get()).delete();
+        }
+        LOGGER.info("Refreshed {} in {}", bundle, sw.stop());
+        return bundle;
+    }
+
+    private boolean canAppend(final Repository repository, final CloneBundle bundle,
+            final ObjectId tip) {
+        if (bundle.getSegments().size() >= MAX_SEGMENTS || !packFile(bundle).exists()
+                || !repository.commitExists(bundle.getTip())) {
+            return false;
+        }
+        Optional<ObjectId> ancestor = repository.command(FindCommonAncestor.class)
+                .setLeftId(bundle.getTip()).setRightId(tip).call();
+        return ancestor.isPresent() && ancestor.get().equals(bundle.getTip());
+    }
+
+    /**
+     * Writes the objects reachable from {@code want} and not from {@code have} at {@code offset}
+     * of {@code file}, discarding anything past it, as left by a refresh that failed midway
+     */
+    private static Segment writeSegment(final ObjectStore db, final File file, final long offset,
+            final List<ObjectId> want, final List<ObjectId> have, final Deduplicator deduplicator)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE)) {
+            channel.truncate(offset);
+            channel.position(offset);
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel),
+                    64 * 1024);
+            HashingOutputStream hashing = new HashingOutputStream(Hashing.sha1(), out);
+            CountingOutputStream counting = new CountingOutputStream(hashing);
+            ObjectFunnel funnel = ObjectFunnels.newFunnel(counting,
+                    DataStreamSerializationFactoryV1.INSTANCE);
+            long objects = new BinaryPackedObjects(db).write(funnel, want, have, true,
+                    deduplicator);
+            counting.flush();
+            channel.force(true);
+            return new Segment(counting.getCount(), objects, hashing.hash().toString());
+        }
+    }
+
+    /**
+     * @return the contents of {@code bundle} starting at {@code offset}
+     * @throws FileNotFoundException if the bundle's generation is no longer available
+     */
+    public InputStream open(final CloneBundle bundle, final long offset) throws IOException {
+        checkArgument(offset >= 0 && offset <= bundle.getSize(), "offset out of bounds: %s",
+                offset);
+        FileInputStream in = new FileInputStream(packFile(bundle));
+        try {
+            in.getChannel().position(offset);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return ByteStreams.limit(in, bundle.getSize() - offset);
+    }
+
+    private void writeDescriptor(final CloneBundle bundle) throws IOException {
+        final File file = descriptorFile(bundle.getRef());
+        final File tmp = new File(directory, file.getName() + ".tmp");
+        Files.write(tmp.toPath(),
+                new Gson().toJson(bundle.toJson()).getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private File descriptorFile(final String refName) {
+        return new File(directory, key(refName) + ".json");
+    }
+
+    private File packFile(final CloneBundle bundle) {
+        return new File(directory, key(bundle.getRef()) + "-" + bundle.getGeneration() + ".pack");
+    }
+
+    /**
+     * Ref names are hashed to be safe file names
+     */
+    private static String key(final String refName) {
+        return Hashing.sha1().hashString(refName, StandardCharsets.UTF_8).toString();
+    }
+}
@@ -0,0 +1,420 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.remote.http;
+
+import static com.google.common.base.Preconditions.checkState;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.Bucket;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk;
+import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.AbstractConsumer;
+import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.BucketIndex;
+import org.locationtech.geogig.porcelain.TransferSummary.PackStats;
+import org.locationtech.geogig.remote.ObjectFunnel;
+import org.locationtech.geogig.remote.http.IngestPipeline.Frame;
+import org.locationtech.geogig.remote.http.IngestPipeline.FrameReader;
+import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.geogig.storage.datastream.DataStreamSerializationFactoryV1;
+import org.locationtech.geogig.storage.impl.ObjectSerializingFactory;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.AbstractIterator;
+
+/**
+ * Delta compressed object packs, where an object may be sent as the {@link ObjectDelta delta} to
+ * a previous version of it the receiving end already has, instead of in full.
+ * <p>
+ * The bases are found {@link #findBases diffing} the tree of each wanted commit against the tree of
+ * a commit the receiver has: a feature is encoded against the feature at the same path, and a
+ * tree against the tree at the same path or bucket position. So bases are always reachable from the
+ * {@code have} commits and never part of the pack itself, which keeps packs (and chunks of a
+ * {@link ChunkedFetch chunked fetch}) independently ingestible.
+ * <p>
+ * The format is a sequence of entries made of the object id, followed by either a {@code 0} byte
+ * and the length prefixed serialized object, or a {@code 1} byte, the base object id and the
+ * length prefixed delta.
+ * <p>
+ * Delta packs are only sent to clients asking for them through the {@value #CAPABILITY} property
+ * of a fetch request, and are sent with the {@value #MEDIA_TYPE} content type, so that old clients
+ * and servers keep using plain packs.
+ *
+ * @since 1.2
+ */
+public final class DeltaPack {
+
+    /**
+     * Name of the fetch request property a client sets to {@code true} to accept delta packs
+     */
+    public static final String CAPABILITY = "deltas";
+
+    /**
+     * Content type of a delta pack response
+     */
+    public static final String MEDIA_TYPE = "application/x-geogig-delta-pack";
+
+    private static final int FULL = 0;
+
+    private static final int DELTA = 1;
+
+    private static final ObjectSerializingFactory MARSHALLER = //
+            DataStreamSerializationFactoryV1.INSTANCE;
+
+    private DeltaPack() {
+        // utility class
+    }
+
+    /**
+     * @return whether a response with the given content type is a delta pack
+     */
+    public static boolean isDeltaPack(@Nullable String contentType) {
+        return contentType != null && contentType.startsWith(MEDIA_TYPE);
+    }
+
+    /**
+     * Finds the objects reachable from {@code want} that can be encoded as deltas of objects
+     * reachable from {@code have}.
+     * <p>
+     * Each wanted commit is compared to the closest {@code have} commit along its first parent
+     * chain, or to the first {@code have} commit if there's none, and the comparison of each tree
+     * stops at the trees already paired with a base by a previous comparison.
+     *
+     * @return a map of object id to the id of its delta base
+     */
+    public static Map<ObjectId, ObjectId> findBases(final ObjectStore db,
+            final List<ObjectId> want, final List<ObjectId> have) {
+        final Map<ObjectId, ObjectId> bases = new ConcurrentHashMap<>();
+        final Set<ObjectId> haveSet = new HashSet<>();
+        for (ObjectId id : have) {
+            if (db.getIfPresent(id) instanceof RevCommit) {
+                haveSet.add(id);
+            }
+        }
+        if (haveSet.isEmpty()) {
+            return bases;
+        }
+        final ObjectId fallback = have.stream().filter(haveSet::contains).findFirst().get();
+        final Set<ObjectId> wantSet = new HashSet<>(want);
+        final Map<ObjectId, ObjectId> baseCommits = new HashMap<>();
+        final BaseCollector collector = new BaseCollector(bases);
+        for (ObjectId wantId : want) {
+            RevObject wanted = db.getIfPresent(wantId);
+            if (!(wanted instanceof RevCommit)) {
+                continue;
+            }
+            ObjectId baseCommitId = findBaseCommit((RevCommit) wanted, db, haveSet, wantSet,
+                    baseCommits);
+            RevTree left = db.getTree(db.getCommit(baseCommitId == null ? fallback : baseCommitId)
+                    .getTreeId());
+            RevTree right = db.getTree(((RevCommit) wanted).getTreeId());
+            new PreOrderDiffWalk(left, right, db, db).walk(collector);
+        }
+        return bases;
+    }
+
+    private static @Nullable ObjectId findBaseCommit(final RevCommit commit, final ObjectStore db,
+            final Set<ObjectId> have, final Set<ObjectId> want,
+            final Map<ObjectId, ObjectId> baseCommits) {
+        RevCommit current = commit;
+        ObjectId base = null;
+        while (base == null && !current.getParentIds().isEmpty()) {
+            final ObjectId parent = current.getParentIds().get(0);
+            if (have.contains(parent)) {
+                base = parent;
+            } else if (baseCommits.containsKey(parent)) {
+                base = baseCommits.get(parent);
+                break;
+            } else if (want.contains(parent)) {
+                current = db.getCommit(parent);
+            } else {
+                break;
+            }
+        }
+        baseCommits.put(commit.getId(), base);
+        return base;
+    }
+
+    /**
+     * Pairs modified objects with their previous version; thread safe as the diff walk is
+     * parallel
+     */
+    private static class BaseCollector extends AbstractConsumer {
+
+        private final Map<ObjectId, ObjectId> bases;
+
+        BaseCollector(Map<ObjectId, ObjectId> bases) {
+            this.bases = bases;
+        }
+
+        @Override
+        public boolean feature(@Nullable NodeRef left, @Nullable NodeRef right) {
+            if (left != null && right != null) {
+                bases.putIfAbsent(right.getObjectId(), left.getObjectId());
+            }
+            return true;
+        }
+
+        @Override
+        public boolean tree(@Nullable NodeRef left, @Nullable NodeRef right) {
+            return pair(left == null ? null : left.getObjectId(),
+                    right == null ? null : right.getObjectId());
+        }
+
+        @Override
+        public boolean bucket(NodeRef leftParent, NodeRef rightParent, BucketIndex bucketIndex,
+                @Nullable Bucket left, @Nullable Bucket right) {
+            return pair(left == null ? null : left.getObjectId(),
+                    right == null ? null : right.getObjectId());
+        }
+
+        /**
+         * @return whether to keep on comparing the two trees, which is not the case if there's
+         *         nothing to compare against or the right tree was already compared
+         */
+        private boolean pair(@Nullable ObjectId left, @Nullable ObjectId right) {
+            if (left == null || right == null || RevTree.EMPTY_TREE_ID.equals(left)) {
+                return false;
+            }
+            return bases.putIfAbsent(right, left) == null;
+        }
+    }
+
+    /**
+     * @return a funnel that writes objects to {@code out} as a delta pack, using the objects in
+     *         {@code db} as bases as given by {@code bases}, and records what it writes to
+     *         {@code stats}
+     */
+    public static ObjectFunnel newFunnel(final OutputStream out, final ObjectStore db,
+            final Map<ObjectId, ObjectId> bases, final PackStats stats) {
+        return new DeltaFunnel(out, db, bases, stats);
+    }
+
+    private static class DeltaFunnel implements ObjectFunnel {
+
+        private DataOutputStream out;
+
+        private final ObjectStore db;
+
+        private final Map<ObjectId, ObjectId> bases;
+
+        private final PackStats stats;
+
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+        DeltaFunnel(OutputStream out, ObjectStore db, Map<ObjectId, ObjectId> bases,
+                PackStats stats) {
+            this.out = new DataOutputStream(out);
+            this.db = db;
+            this.bases = bases;
+            this.stats = stats;
+        }
+
+        @Override
+        public void funnel(final RevObject object) throws IOException {
+            final byte[] full = serialize(object, buffer);
+            final ObjectId baseId = bases.get(object.getId());
+            byte[] delta = null;
+            long nanos = 0;
+            if (baseId != null) {
+                RevObject base = db.getIfPresent(baseId);
+                if (base != null) {
+                    final long start = System.nanoTime();
+                    delta = ObjectDelta.encode(serialize(base, buffer), full);
+                    nanos = System.nanoTime() - start;
+                }
+            }
+            out.write(object.getId().getRawValue());
+            final int packedSize;
+            if (delta != null && delta.length + ObjectId.NUM_BYTES < full.length) {
+                out.writeByte(DELTA);
+                out.write(baseId.getRawValue());
+                out.writeInt(delta.length);
+                out.write(delta);
+                packedSize = 2 * ObjectId.NUM_BYTES + 5 + delta.length;
+            } else {
+                delta = null;
+                out.writeByte(FULL);
+                out.writeInt(full.length);
+                out.write(full);
+                packedSize = ObjectId.NUM_BYTES + 5 + full.length;
+            }
+            stats.add(full.length, packedSize, delta != null, nanos);
+        }
+
+        @Override
+        public void close() throws IOException {
+            OutputStream out = this.out;
+            this.out = null;
+            if (out != null) {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * @return the objects in the delta pack read from {@code in}, resolving delta bases from
+     *         {@code db} and recording what's read to {@code stats}
+     */
+    public static Iterator<RevObject> read(final InputStream in, final ObjectStore db,
+            final PackStats stats) {
+        final FrameReader frames = frames(in, db, stats);
+        return new AbstractIterator<RevObject>() {
+            @Override
+            protected RevObject computeNext() {
+                try {
+                    Frame frame = frames.read();
+                    return frame == null ? endOfData() : frame.decode();
+                } catch (IOException e) {
+                    throw Throwables.propagate(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * @return the entries of the delta pack read from {@code in} as frames for an
+     *         {@link IngestPipeline}, leaving the resolution of delta bases from {@code db} and the
+     *         deserialization of the objects to {@link Frame#decode()}
+     */
+    static FrameReader frames(final InputStream in, final ObjectStore db, final PackStats stats) {
+        final DataInputStream data = new DataInputStream(in);
+        return new FrameReader() {
+            @Override
+            public Frame read() throws IOException {
+                final int first = data.read();
+                if (first < 0) {
+                    return null;
+                }
+                final ObjectId id = readObjectId(first, data);
+                final int kind = data.readUnsignedByte();
+                if (kind == FULL) {
+                    return new FullFrame(id, readBytes(data), stats);
+                }
+                checkState(kind == DELTA, "invalid pack entry type: %s", kind);
+                final ObjectId baseId = readObjectId(data.readUnsignedByte(), data);
+                return new DeltaFrame(id, baseId, readBytes(data), db, stats);
+            }
+        };
+    }
+
+    private static class FullFrame implements Frame {
+
+        private final ObjectId id;
+
+        private final byte[] full;
+
+        private final PackStats stats;
+
+        FullFrame(ObjectId id, byte[] full, PackStats stats) {
+            this.id = id;
+            this.full = full;
+            this.stats = stats;
+        }
+
+        @Override
+        public ObjectId getId() {
+            return id;
+        }
+
+        @Override
+        public int getSize() {
+            return ObjectId.NUM_BYTES + 5 + full.length;
+        }
+
+        @Override
+        public RevObject decode() throws IOException {
+            stats.add(full.length, getSize(), false, 0L);
+            return MARSHALLER.read(id, full, 0, full.length);
+        }
+    }
+
+    private static class DeltaFrame implements Frame {
+
+        private final ObjectId id;
+
+        private final ObjectId baseId;
+
+        private final byte[] delta;
+
+        private final ObjectStore db;
+
+        private final PackStats stats;
+
+        DeltaFrame(ObjectId id, ObjectId baseId, byte[] delta, ObjectStore db, PackStats stats) {
+            this.id = id;
+            this.baseId = baseId;
+            this.delta = delta;
+            this.db = db;
+            this.stats = stats;
+        }
+
+        @Override
+        public ObjectId getId() {
+            return id;
+        }
+
+        @Override
+        public int getSize() {
+            return 2 * ObjectId.NUM_BYTES + 5 + delta.length;
+        }
+
+        @Override
+        public RevObject decode() throws IOException {
+            final RevObject base = db.getIfPresent(baseId);
+            checkState(base != null, "delta base %s of %s not found", baseId, id);
+
+            final long start = System.nanoTime();
+            final byte[] full = ObjectDelta.apply(serialize(base, new ByteArrayOutputStream()),
+                    delta);
+            final long nanos = System.nanoTime() - start;
+            stats.add(full.length, getSize(), true, nanos);
+            return MARSHALLER.read(id, full, 0, full.length);
+        }
+    }
+
+    private static ObjectId readObjectId(final int firstByte, final DataInputStream in)
+            throws IOException {
+        byte[] raw = new byte[ObjectId.NUM_BYTES];
+        raw[0] = (byte) firstByte;
+        in.readFully(raw, 1, raw.length - 1);
+        return ObjectId.createNoClone(raw);
+    }
+
+    private static byte[] readBytes(final DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static byte[] serialize(final RevObject object, final ByteArrayOutputStream buffer)
+            throws IOException {
+        buffer.reset();
+        MARSHALLER.write(object, buffer);
+        return buffer.toByteArray();
+    }
+}
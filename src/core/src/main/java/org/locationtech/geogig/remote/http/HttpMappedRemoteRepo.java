@@ -60,6 +60,9 @@ public class HttpMappedRemoteRepo extends AbstractMappedRemoteRepo {
 
     private URL repositoryURL;
 
+    /** Codec to compress pushed changes with, as negotiated when beginning the push */
+    private StreamCodec pushCodec = StreamCodec.GZIP;
+
     /**
      * Constructs a new {@code HttpMappedRemoteRepo}.
      * 
@@ -242,6 +245,8 @@ public class HttpMappedRemoteRepo extends AbstractMappedRemoteRepo {
             connection = (HttpURLConnection) resourceURL.openConnection();
             connection.setDoOutput(true);
             connection.setDoInput(true);
+            connection.addRequestProperty("Accept-Encoding",
+                    StreamCodec.acceptEncoding(HttpUtils.preferredCodec(localRepository)));
             out = connection.getOutputStream();
             writer = new OutputStreamWriter(out);
             gson.toJson(message, writer);
@@ -250,12 +255,7 @@ public class HttpMappedRemoteRepo extends AbstractMappedRemoteRepo {
             throw Throwables.propagate(e);
         }
 
-        final InputStream in;
-        try {
-            in = connection.getInputStream();
-        } catch (IOException e) {
-            throw Throwables.propagate(e);
-        }
+        final InputStream in = HttpUtils.getResponseStream(connection);
 
         BinaryPackedChanges unpacker = new BinaryPackedChanges(localRepository);
 
@@ -299,7 +299,7 @@ public class HttpMappedRemoteRepo extends AbstractMappedRemoteRepo {
      */
     @Override
     protected void beginPush() {
-        HttpUtils.beginPush(repositoryURL);
+        pushCodec = HttpUtils.beginPush(repositoryURL, HttpUtils.preferredCodec(localRepository));
     }
 
     /**
@@ -366,7 +366,10 @@ public class HttpMappedRemoteRepo extends AbstractMappedRemoteRepo {
                     connection = (HttpURLConnection) resourceURL.openConnection();
                     connection.setDoOutput(true);
                     connection.setDoInput(true);
-                    out = connection.getOutputStream();
+                    if (!StreamCodec.IDENTITY.equals(pushCodec)) {
+                        connection.setRequestProperty("content-encoding", pushCodec.getName());
+                    }
+                    out = pushCodec.encode(connection.getOutputStream());
                     // pack the commit object
                     final ObjectSerializingFactory writer = DataStreamSerializationFactoryV1.INSTANCE;
                     writer.write(commit, out);
@@ -380,6 +383,7 @@ public class HttpMappedRemoteRepo extends AbstractMappedRemoteRepo {
                     // pack the changes
                     BinaryPackedChanges changes = new BinaryPackedChanges(from);
                     changes.write(out, diffIter);
+                    out.close();
                 } catch (IOException e) {
                     throw Throwables.propagate(e);
                 }
@@ -21,7 +21,6 @@ import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
@@ -31,10 +30,16 @@ import org.locationtech.geogig.model.Ref;
 import org.locationtech.geogig.model.RevCommit;
 import org.locationtech.geogig.model.RevObject;
 import org.locationtech.geogig.model.RevTag;
+import org.locationtech.geogig.model.SymRef;
+import org.locationtech.geogig.plumbing.ForEachRef;
 import org.locationtech.geogig.porcelain.ConfigGet;
 import org.locationtech.geogig.porcelain.SynchronizationException;
+import org.locationtech.geogig.porcelain.TransferSummary.PackStats;
 import org.locationtech.geogig.remote.AbstractRemoteRepo;
+import org.locationtech.geogig.remote.CommitNegotiator;
 import org.locationtech.geogig.remote.CommitTraverser;
+import org.locationtech.geogig.remote.LocalRepositoryWrapper;
+import org.locationtech.geogig.remote.NegotiatingRepositoryWrapper;
 import org.locationtech.geogig.remote.ObjectFunnel;
 import org.locationtech.geogig.remote.ObjectFunnels;
 import org.locationtech.geogig.remote.RepositoryWrapper;
@@ -46,11 +51,13 @@ import org.locationtech.geogig.repository.impl.DeduplicationService;
 import org.locationtech.geogig.repository.impl.Deduplicator;
 import org.locationtech.geogig.storage.ObjectStore;
 import org.locationtech.geogig.storage.datastream.DataStreamSerializationFactoryV1;
+import org.locationtech.geogig.storage.impl.ObjectIdSet;
 import org.locationtech.geogig.storage.impl.ObjectSerializingFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Optional;
+import com.google.common.base.Predicate;
 import com.google.common.base.Stopwatch;
 import com.google.common.base.Supplier;
 import com.google.common.base.Throwables;
@@ -74,10 +81,33 @@ public class HttpRemoteRepo extends AbstractRemoteRepo {
     /** Default limit in bytes for push to split the sent objects */
     private static final int DEFAULT_PUSH_BATCH_LIMIT = 4 * 1024 * 1024;
 
+    private static final String FETCH_CHUNKED_KEY = "fetch.chunked";
+
+    /** Number of objects per chunk on chunked fetches */
+    private static final String FETCH_CHUNK_SIZE_KEY = "fetch.chunk.size";
+
+    /** Number of concurrent connections on chunked fetches */
+    private static final String FETCH_PARALLELISM_KEY = "fetch.chunk.parallelism";
+
+    private static final int DEFAULT_FETCH_PARALLELISM = 4;
+
+    /** Whether to ask the remote for delta compressed packs */
+    private static final String FETCH_DELTAS_KEY = "fetch.deltas";
+
+    /** Whether to bootstrap clones from clone bundles */
+    private static final String FETCH_BUNDLES_KEY = "fetch.bundles";
+
     private URL repositoryURL;
 
     final private DeduplicationService deduplicationService;
 
+    private Boolean negotiationSupported;
+
+    private final PackStats packStats = new PackStats();
+
+    /** Codec to compress pushed objects with, as negotiated when beginning the push */
+    private StreamCodec pushCodec = StreamCodec.GZIP;
+
     /**
      * Constructs a new {@code HttpRemoteRepo} with the given parameters.
      * 
@@ -198,17 +228,29 @@ public class HttpRemoteRepo extends AbstractRemoteRepo {
     @Override
     public void fetchNewData(Ref ref, Optional<Integer> fetchLimit, ProgressListener progress) {
 
-        CommitTraverser traverser = getFetchTraverser(fetchLimit);
-
         try {
             progress.setDescription("Fetching objects from " + ref.getName());
-            traverser.traverse(ref.getObjectId());
             List<ObjectId> want = new LinkedList<ObjectId>();
-            want.addAll(traverser.commits);
-            Collections.reverse(want);
-            Set<ObjectId> have = new HashSet<ObjectId>();
-            have.addAll(traverser.have);
-            while (!want.isEmpty()) {
+            Set<ObjectId> have = new ObjectIdSet();
+            if (!fetchCloneBundle(ref, fetchLimit, want, have, progress)
+                    && !negotiateFetch(ref.getObjectId(), want, have)) {
+                CommitTraverser traverser = getFetchTraverser(fetchLimit);
+                traverser.traverse(ref.getObjectId());
+                want.addAll(traverser.commits);
+                Collections.reverse(want);
+                have.addAll(traverser.have);
+            }
+            if (!want.isEmpty() && useChunkedFetch()) {
+                ChunkedFetcher fetcher = new ChunkedFetcher(repositoryURL, localRepository,
+                        getIntConfig(FETCH_CHUNK_SIZE_KEY, ChunkedFetch.DEFAULT_CHUNK_SIZE),
+                        getIntConfig(FETCH_PARALLELISM_KEY, DEFAULT_FETCH_PARALLELISM),
+                        useDeltas(), packStats);
+                if (fetcher.fetch(ref, want, have, newFetchCallback(want, have, progress),
+                        progress)) {
+                    want.clear();
+                }
+            }
+            while (!want.isEmpty() && !progress.isCanceled()) {
                 progress.setProgress(0);
                 fetchMoreData(want, have, progress);
             }
@@ -217,6 +259,128 @@ public class HttpRemoteRepo extends AbstractRemoteRepo {
         }
     }
 
+    /**
+     * Bootstraps a full clone from the remote's {@link CloneBundle clone bundle} for {@code ref},
+     * if the local repository has no commits yet and the remote has a bundle, and then negotiates
+     * the commits between the bundle tip and the ref, if any.
+     * 
+     * @return {@code true} if the bundle was ingested and {@code want} and {@code have} hold the
+     *         commits left to fetch, {@code false} if the fetch shall proceed as usual
+     */
+    private boolean fetchCloneBundle(final Ref ref, final Optional<Integer> fetchLimit,
+            final List<ObjectId> want, final Set<ObjectId> have, final ProgressListener progress) {
+        if (fetchLimit.isPresent() || localRepository.getDepth().isPresent()
+                || getDepth().isPresent() || !useBundles() || !isNegotiationSupported()
+                || !localCommitRefs().isEmpty()) {
+            return false;
+        }
+        final ObjectId tip = ref.getObjectId();
+        // the bundle holds the whole history, no need to track the commits it brings
+        BinaryPackedObjects.Callback callback = new BinaryPackedObjects.Callback() {
+            @Override
+            public void callback(Supplier<RevObject> object) {
+                progress.setProgress(progress.getProgress() + 1);
+            }
+        };
+        CloneBundleFetcher fetcher = new CloneBundleFetcher(repositoryURL, localRepository);
+        Optional<ObjectId> bundleTip = fetcher.fetch(ref.getName(), callback, progress);
+        if (!bundleTip.isPresent()) {
+            return false;
+        }
+        if (localRepository.commitExists(tip)) {
+            return true;
+        }
+        Optional<List<ObjectId>> missing = HttpUtils.getMissingCommits(repositoryURL,
+                ImmutableList.of(tip), ImmutableList.of(bundleTip.get()));
+        if (!missing.isPresent()) {
+            return false;
+        }
+        LOGGER.debug("Fetching {} commits past the clone bundle of {}", missing.get().size(),
+                ref.getName());
+        want.addAll(missing.get());
+        have.add(bundleTip.get());
+        return true;
+    }
+
+    /**
+     * @return the local branches and remote tracking branches pointing to existing commits
+     */
+    private ImmutableSet<Ref> localCommitRefs() {
+        final Predicate<Ref> filter = (r) -> !(r instanceof SymRef)
+                && (r.getName().startsWith(Ref.HEADS_PREFIX)
+                        || r.getName().startsWith(Ref.REMOTES_PREFIX))
+                && localRepository.commitExists(r.getObjectId());
+        return localRepository.command(ForEachRef.class).setFilter(filter).call();
+    }
+
+    /**
+     * Figures out the commits to fetch between two full repositories by negotiating which commits
+     * of the local refs the remote already has, and then asking the remote for the commits
+     * reachable from {@code tip} and not from those in a single request.
+     * 
+     * @return {@code false} if either repository is shallow or the remote does not support
+     *         negotiation, in which case the remote history shall be traversed instead
+     */
+    private boolean negotiateFetch(final ObjectId tip, final List<ObjectId> want,
+            final Set<ObjectId> have) {
+        if (localRepository.getDepth().isPresent() || getDepth().isPresent()
+                || !isNegotiationSupported()) {
+            return false;
+        }
+        if (localRepository.commitExists(tip)) {
+            return true;
+        }
+        final RepositoryWrapper localWrapper = new LocalRepositoryWrapper(localRepository);
+        final CommitNegotiator negotiator = new CommitNegotiator(localWrapper,
+                getRemoteWrapper());
+        final Set<ObjectId> common = new ObjectIdSet();
+        for (Ref localRef : localCommitRefs()) {
+            Optional<ObjectId> frontier = negotiator.negotiate(localRef.getObjectId());
+            if (frontier.isPresent()) {
+                common.add(frontier.get());
+            }
+        }
+        Optional<List<ObjectId>> missing = HttpUtils.getMissingCommits(repositoryURL,
+                ImmutableList.of(tip), common);
+        if (!missing.isPresent()) {
+            return false;
+        }
+        LOGGER.debug("Negotiated {} commits to fetch in {} round trips", missing.get().size(),
+                negotiator.getRoundTrips() + 1);
+        want.addAll(missing.get());
+        have.addAll(common);
+        return true;
+    }
+
+    /**
+     * Uses a {@link NegotiatingRepositoryWrapper} to find out the commits to push between two full
+     * repositories if the remote supports it.
+     */
+    @Override
+    protected CommitTraverser getPushTraverser(Optional<Ref> remoteRef)
+            throws SynchronizationException {
+        RepositoryWrapper remoteWrapper = getRemoteWrapper();
+        if (localRepository.getDepth().isPresent() || remoteWrapper.getRepoDepth().isPresent()
+                || !isNegotiationSupported()) {
+            return super.getPushTraverser(remoteRef);
+        }
+        RepositoryWrapper localWrapper = new LocalRepositoryWrapper(localRepository);
+        return new FullCommitTraverser(localWrapper,
+                new NegotiatingRepositoryWrapper(localWrapper, remoteWrapper));
+    }
+
+    /**
+     * @return whether the remote supports batched commit negotiation, as found out by an empty
+     *         existence check the first time it's called
+     */
+    private boolean isNegotiationSupported() {
+        if (negotiationSupported == null) {
+            negotiationSupported = Boolean.valueOf(HttpUtils
+                    .networkObjectsExist(repositoryURL, ImmutableList.of()).isPresent());
+        }
+        return negotiationSupported.booleanValue();
+    }
+
     /**
      * Push all new objects from the specified {@link Ref} to the remote.
      * 
@@ -239,7 +403,8 @@ public class HttpRemoteRepo extends AbstractRemoteRepo {
 
         List<ObjectId> toSend = new LinkedList<ObjectId>(traverser.commits);
         Collections.reverse(toSend);
-        Set<ObjectId> have = new HashSet<ObjectId>(traverser.have);
+        Set<ObjectId> have = new ObjectIdSet();
+        have.addAll(traverser.have);
 
         Deduplicator deduplicator = deduplicationService.createDeduplicator();
         try {
@@ -261,7 +426,7 @@ public class HttpRemoteRepo extends AbstractRemoteRepo {
 
     private void sendPackedObjects(final List<ObjectId> toSend, final Set<ObjectId> roots,
             Deduplicator deduplicator, final ProgressListener progress) {
-        Set<ObjectId> sent = new HashSet<ObjectId>();
+        Set<ObjectId> sent = new ObjectIdSet();
         while (!toSend.isEmpty()) {
             try {
                 BinaryPackedObjects.Callback callback = new BinaryPackedObjects.Callback() {
@@ -288,7 +453,7 @@ public class HttpRemoteRepo extends AbstractRemoteRepo {
                 SendObjectsConnectionFactory outFactory;
                 ObjectFunnel objectFunnel;
 
-                outFactory = new SendObjectsConnectionFactory(repositoryURL);
+                outFactory = new SendObjectsConnectionFactory(repositoryURL, pushCodec);
                 int pushBytesLimit = parsePushLimit();
                 objectFunnel = ObjectFunnels.newFunnel(outFactory, serializer, pushBytesLimit);
                 final long writtenObjectsCount = packer.write(objectFunnel, toSend, have, sent,
@@ -338,11 +503,61 @@ public class HttpRemoteRepo extends AbstractRemoteRepo {
         return limit;
     }
 
+    /**
+     * Whether to use the {@link ChunkedFetch chunked fetch protocol}, as configured by
+     * {@code fetch.chunked} (defaults to {@code true}). Remotes that don't support it fall back to
+     * fetching a single stream anyway.
+     */
+    private boolean useChunkedFetch() {
+        return getBooleanConfig(FETCH_CHUNKED_KEY, true);
+    }
+
+    /**
+     * Whether to ask for {@link DeltaPack delta packs}, as configured by {@code fetch.deltas}
+     * (defaults to {@code true}). Remotes that don't support them send plain packs anyway.
+     */
+    private boolean useDeltas() {
+        return getBooleanConfig(FETCH_DELTAS_KEY, true);
+    }
+
+    /**
+     * Whether to bootstrap clones from the remote's {@link CloneBundle clone bundles}, as
+     * configured by {@code fetch.bundles} (defaults to {@code true})
+     */
+    private boolean useBundles() {
+        return getBooleanConfig(FETCH_BUNDLES_KEY, true);
+    }
+
+    private boolean getBooleanConfig(final String confKey, final boolean defaultValue) {
+        Optional<String> value = localRepository.command(ConfigGet.class).setName(confKey).call();
+        return value.isPresent() ? Boolean.parseBoolean(value.get()) : defaultValue;
+    }
+
+    private int getIntConfig(final String confKey, final int defaultValue) {
+        Optional<String> value = localRepository.command(ConfigGet.class).setName(confKey).call();
+        if (value.isPresent()) {
+            try {
+                int configured = Integer.parseInt(value.get());
+                if (configured > 0) {
+                    return configured;
+                }
+            } catch (NumberFormatException e) {
+                // fall through
+            }
+            LOGGER.warn("Invalid config value for {}, using the default of {}", confKey,
+                    defaultValue);
+        }
+        return defaultValue;
+    }
+
     private static class SendObjectsConnectionFactory implements Supplier<OutputStream> {
         private URL repositoryURL;
 
-        public SendObjectsConnectionFactory(URL repositoryURL) {
+        private final StreamCodec codec;
+
+        public SendObjectsConnectionFactory(URL repositoryURL, StreamCodec codec) {
             this.repositoryURL = repositoryURL;
+            this.codec = codec;
         }
 
         private long compressedSize, uncompressedSize;
@@ -359,10 +574,12 @@ public class HttpRemoteRepo extends AbstractRemoteRepo {
                 connection.setRequestMethod("POST");
                 connection.setChunkedStreamingMode(4096);
                 connection.setRequestProperty("content-length", "-1");
-                connection.setRequestProperty("content-encoding", "gzip");
+                if (!StreamCodec.IDENTITY.equals(codec)) {
+                    connection.setRequestProperty("content-encoding", codec.getName());
+                }
                 OutputStream out = connection.getOutputStream();
                 final ReportingOutputStream rout = HttpUtils.newReportingOutputStream(connection,
-                        out, true);
+                        out, codec);
                 return new FilterOutputStream(rout) {
                     @Override
                     public void close() throws IOException {
@@ -389,7 +606,8 @@ public class HttpRemoteRepo extends AbstractRemoteRepo {
     }
 
     private void beginPush() {
-        HttpUtils.beginPush(repositoryURL);
+        pushCodec = HttpUtils.beginPush(repositoryURL, HttpUtils.preferredCodec(localRepository));
+        LOGGER.debug("Pushing objects compressed with {}", pushCodec);
     }
 
     private void endPush(String refspec, ObjectId newCommitId, String originalRefValue) {
@@ -425,7 +643,8 @@ public class HttpRemoteRepo extends AbstractRemoteRepo {
             connection = (HttpURLConnection) resourceURL.openConnection();
             connection.setDoOutput(true);
             connection.setDoInput(true);
-            connection.addRequestProperty("Accept-Encoding", "gzip");
+            connection.addRequestProperty("Accept-Encoding",
+                    StreamCodec.acceptEncoding(HttpUtils.preferredCodec(localRepository)));
             out = connection.getOutputStream();
             writer = new OutputStreamWriter(out);
             gson.toJson(message, writer);
@@ -436,9 +655,33 @@ public class HttpRemoteRepo extends AbstractRemoteRepo {
         }
 
         final HttpUtils.ReportingInputStream in = HttpUtils.getResponseStream(connection);
+        final boolean deltaPack = DeltaPack.isDeltaPack(connection.getContentType());
 
-        BinaryPackedObjects unpacker = new BinaryPackedObjects(localRepository.objectDatabase());
-        BinaryPackedObjects.Callback callback = new BinaryPackedObjects.Callback() {
+        BinaryPackedObjects unpacker = new BinaryPackedObjects(localRepository.objectDatabase())
+                .setProgressListener(progress);
+        BinaryPackedObjects.Callback callback = newFetchCallback(want, have, progress);
+
+        Stopwatch sw = Stopwatch.createStarted();
+        IngestResults ingestResults = deltaPack ? unpacker.ingestDeltas(in, callback, packStats)
+                : unpacker.ingest(in, callback);
+        sw.stop();
+
+        String msg = String.format(
+                "Processed %,d objects. Inserted: %,d. Existing: %,d. Time: %s. Compressed size: %,d bytes. Uncompressed size: %,d bytes.",
+                ingestResults.total(), ingestResults.getInserted(), ingestResults.getExisting(), sw,
+                in.compressedSize(), in.unCompressedSize());
+        LOGGER.info(msg);
+        LOGGER.debug("Ingest metrics: {}", ingestResults.getMetrics());
+        progress.setDescription(msg);
+    }
+
+    /**
+     * @return a callback that removes the fetched commits and tags from the want list and updates
+     *         the have list accordingly
+     */
+    private BinaryPackedObjects.Callback newFetchCallback(final List<ObjectId> want,
+            final Set<ObjectId> have, final ProgressListener progress) {
+        return new BinaryPackedObjects.Callback() {
             @Override
             public void callback(Supplier<RevObject> supplier) {
                 RevObject object = supplier.get();
@@ -456,17 +699,6 @@ public class HttpRemoteRepo extends AbstractRemoteRepo {
                 }
             }
         };
-
-        Stopwatch sw = Stopwatch.createStarted();
-        IngestResults ingestResults = unpacker.ingest(in, callback);
-        sw.stop();
-
-        String msg = String.format(
-                "Processed %,d objects. Inserted: %,d. Existing: %,d. Time: %s. Compressed size: %,d bytes. Uncompressed size: %,d bytes.",
-                ingestResults.total(), ingestResults.getInserted(), ingestResults.getExisting(), sw,
-                in.compressedSize(), in.unCompressedSize());
-        LOGGER.info(msg);
-        progress.setDescription(msg);
     }
 
     private JsonObject createFetchMessage(List<ObjectId> want, Set<ObjectId> have) {
@@ -481,6 +713,9 @@ public class HttpRemoteRepo extends AbstractRemoteRepo {
         }
         message.add("want", wantArray);
         message.add("have", haveArray);
+        if (useDeltas()) {
+            message.addProperty(DeltaPack.CAPABILITY, true);
+        }
         return message;
     }
 
@@ -492,6 +727,14 @@ public class HttpRemoteRepo extends AbstractRemoteRepo {
         return new HttpRepositoryWrapper(repositoryURL);
     }
 
+    /**
+     * @return statistics about the delta packs fetched from the remote
+     */
+    @Override
+    public Optional<PackStats> getPackStats() {
+        return Optional.of(packStats);
+    }
+
     /**
      * Gets the depth of the remote repository.
      * 
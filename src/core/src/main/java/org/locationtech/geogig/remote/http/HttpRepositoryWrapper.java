@@ -10,6 +10,8 @@
 package org.locationtech.geogig.remote.http;
 
 import java.net.URL;
+import java.util.List;
+import java.util.Set;
 
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.remote.RepositoryWrapper;
@@ -24,6 +26,8 @@ class HttpRepositoryWrapper implements RepositoryWrapper {
 
     private URL repositoryURL;
 
+    private boolean batchedExistsSupported = true;
+
     /**
      * Constructs a new {@code HttpRepositoryWrapper} with the provided URL.
      * 
@@ -44,6 +48,23 @@ class HttpRepositoryWrapper implements RepositoryWrapper {
         return objectId.isNull() || HttpUtils.networkObjectExists(repositoryURL, objectId);
     }
 
+    /**
+     * Determines which of the provided objects exist in the repository with a single request, or
+     * one request per object if the remote does not support batched existence checks.
+     */
+    @Override
+    public Set<ObjectId> objectsExist(List<ObjectId> objectIds) {
+        if (batchedExistsSupported) {
+            Optional<Set<ObjectId>> existing = HttpUtils.networkObjectsExist(repositoryURL,
+                    objectIds);
+            if (existing.isPresent()) {
+                return existing.get();
+            }
+            batchedExistsSupported = false;
+        }
+        return RepositoryWrapper.super.objectsExist(objectIds);
+    }
+
     /**
      * Gets the parents of the specified commit from the repository.
      * 
@@ -16,11 +16,18 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
 import java.net.HttpURLConnection;
 import java.net.InetAddress;
 import java.net.URL;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
@@ -31,6 +38,7 @@ import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.Ref;
 import org.locationtech.geogig.model.RevObject;
 import org.locationtech.geogig.model.SymRef;
+import org.locationtech.geogig.porcelain.ConfigGet;
 import org.locationtech.geogig.repository.Repository;
 import org.locationtech.geogig.storage.datastream.DataStreamSerializationFactoryV1;
 import org.locationtech.geogig.storage.impl.ObjectSerializingFactory;
@@ -45,6 +53,12 @@ import com.google.common.collect.ImmutableList.Builder;
 import com.google.common.io.Closeables;
 import com.google.common.io.CountingInputStream;
 import com.google.common.io.CountingOutputStream;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
 
 /**
  * Utility functions for performing common communications and operations with http remotes.
@@ -220,6 +234,90 @@ class HttpUtils {
         return exists;
     }
 
+    /**
+     * Determines which of the given objects exist in the remote repository with a single request.
+     * 
+     * @param repositoryURL the URL of the repository
+     * @param objectIds the ids to check for
+     * @return the ids that exist in the remote, or {@link Optional#absent()} if the remote does not
+     *         support batched existence checks
+     */
+    public static Optional<Set<ObjectId>> networkObjectsExist(URL repositoryURL,
+            List<ObjectId> objectIds) {
+        JsonObject message = new JsonObject();
+        message.add("have", toJsonArray(objectIds));
+        Optional<JsonObject> response = negotiate(repositoryURL, message);
+        if (!response.isPresent()) {
+            return Optional.absent();
+        }
+        return Optional.of(new HashSet<>(parseIds(response.get(), "common")));
+    }
+
+    /**
+     * Asks the remote repository for the commits reachable from {@code want} and not from
+     * {@code have}.
+     * 
+     * @param repositoryURL the URL of the repository
+     * @param want the commits to fetch
+     * @param have commits known to exist in both repositories
+     * @return the missing commits, parents before children, or {@link Optional#absent()} if the
+     *         remote does not support negotiation
+     */
+    public static Optional<List<ObjectId>> getMissingCommits(URL repositoryURL,
+            List<ObjectId> want, Collection<ObjectId> have) {
+        JsonObject message = new JsonObject();
+        message.add("want", toJsonArray(want));
+        message.add("have", toJsonArray(have));
+        Optional<JsonObject> response = negotiate(repositoryURL, message);
+        if (!response.isPresent()) {
+            return Optional.absent();
+        }
+        return Optional.of(parseIds(response.get(), "commits"));
+    }
+
+    private static Optional<JsonObject> negotiate(URL repositoryURL, JsonObject message) {
+        HttpURLConnection connection = null;
+        try {
+            URL url = new URL(repositoryURL.toString() + "/repo/negotiate");
+            connection = (HttpURLConnection) url.openConnection();
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setDoInput(true);
+            connection.setUseCaches(false);
+            try (Writer writer = new OutputStreamWriter(connection.getOutputStream(),
+                    StandardCharsets.UTF_8)) {
+                new Gson().toJson(message, writer);
+            }
+            if (connection.getResponseCode() == HttpURLConnection.HTTP_NOT_FOUND) {
+                return Optional.absent();
+            }
+            InputStream is = HttpUtils.getResponseStream(connection);
+            try (Reader reader = new InputStreamReader(is, StandardCharsets.UTF_8)) {
+                return Optional.of(new JsonParser().parse(reader).getAsJsonObject());
+            }
+        } catch (IOException e) {
+            throw Throwables.propagate(e);
+        } finally {
+            consumeErrStreamAndCloseConnection(connection);
+        }
+    }
+
+    private static JsonArray toJsonArray(Collection<ObjectId> ids) {
+        JsonArray array = new JsonArray();
+        ids.forEach((id) -> array.add(new JsonPrimitive(id.toString())));
+        return array;
+    }
+
+    private static List<ObjectId> parseIds(JsonObject response, String property) {
+        List<ObjectId> ids = new ArrayList<>();
+        if (response.has(property)) {
+            for (JsonElement e : response.get(property).getAsJsonArray()) {
+                ids.add(ObjectId.valueOf(e.getAsString()));
+            }
+        }
+        return ids;
+    }
+
     /**
      * Updates the ref on the remote repository that matches the provided refspec to the new value.
      * 
@@ -462,13 +560,29 @@ class HttpUtils {
      * @param repositoryURL the URL of the repository
      */
     public static void beginPush(URL repositoryURL) {
+        beginPush(repositoryURL, StreamCodec.IDENTITY);
+    }
+
+    /**
+     * Begins a push operation to the target repository, offering it the codecs to compress the
+     * objects sent to it with
+     * 
+     * @param repositoryURL the URL of the repository
+     * @param preferred the codec to use if the remote supports it
+     * @return the codec the remote answered with, which it hence supports for the objects pushed
+     *         to it, {@link StreamCodec#IDENTITY identity} if it didn't compress the response, or
+     *         {@link StreamCodec#GZIP gzip} for servers that don't know about other codecs
+     */
+    public static StreamCodec beginPush(URL repositoryURL, StreamCodec preferred) {
         HttpURLConnection connection = null;
+        StreamCodec codec = StreamCodec.IDENTITY;
         try {
             String internalIp = InetAddress.getLocalHost().getHostName();
             String expanded = repositoryURL.toString() + "/repo/beginpush?internalIp=" + internalIp;
 
-            connection = connect(expanded);
-            InputStream stream = HttpUtils.getResponseStream(connection);
+            connection = connect(expanded, StreamCodec.acceptEncoding(preferred));
+            ReportingInputStream stream = HttpUtils.getResponseStream(connection);
+            codec = stream.getCodec();
             HttpUtils.consumeAndCloseStream(stream);
 
         } catch (Exception e) {
@@ -476,17 +590,64 @@ class HttpUtils {
         } finally {
             HttpUtils.consumeErrStreamAndCloseConnection(connection);
         }
+        // keep the configured compression level
+        return codec.getName().equals(preferred.getName()) ? preferred : codec;
+    }
+
+    /**
+     * @return the codec configured through {@code transfer.codec} and {@code transfer.zstd.level}
+     *         to compress the streams exchanged with http remotes, defaults to Zstandard if
+     *         available and LZ4 otherwise
+     */
+    public static StreamCodec preferredCodec(Repository repository) {
+        Optional<String> name = repository.command(ConfigGet.class)
+                .setName(StreamCodec.CODEC_CONFIG_KEY).call();
+        Optional<String> level = repository.command(ConfigGet.class)
+                .setName(StreamCodec.ZSTD_LEVEL_CONFIG_KEY).call();
+        int zstdLevel = StreamCodec.DEFAULT_ZSTD_LEVEL;
+        if (level.isPresent()) {
+            try {
+                int configured = Integer.parseInt(level.get().trim());
+                StreamCodec.zstd(configured);
+                zstdLevel = configured;
+            } catch (IllegalArgumentException e) {
+                LOGGER.warn("Invalid config value for {}, using the default of {}",
+                        StreamCodec.ZSTD_LEVEL_CONFIG_KEY, zstdLevel);
+            }
+        }
+        StreamCodec codec = StreamCodec.available(zstdLevel).get(0);
+        if (name.isPresent()) {
+            Optional<StreamCodec> configured = StreamCodec.forName(name.get(), zstdLevel);
+            if (configured.isPresent()) {
+                codec = configured.get();
+            } else {
+                LOGGER.warn("Codec {} configured through {} is not available, using {}",
+                        name.get(), StreamCodec.CODEC_CONFIG_KEY, codec);
+            }
+        }
+        return codec;
     }
 
     /**
      * Connects to the given URL using HTTP GET method
      */
     public static HttpURLConnection connect(String url) throws IOException {
+        return connect(url, null);
+    }
+
+    /**
+     * Connects to the given URL using HTTP GET method, accepting the response in any of the
+     * {@code acceptEncoding} content codings
+     */
+    public static HttpURLConnection connect(String url, @Nullable String acceptEncoding)
+            throws IOException {
         HttpURLConnection connection;
         connection = (HttpURLConnection) new URL(url).openConnection();
         connection.setRequestMethod("GET");
         connection.setUseCaches(false);
-        // connection.addRequestProperty("Accept-Encoding", "gzip");
+        if (acceptEncoding != null) {
+            connection.addRequestProperty("Accept-Encoding", acceptEncoding);
+        }
         LOGGER.debug("Connecting to '{}'...", url);
         connection.connect();
         int responseCode = connection.getResponseCode();
@@ -524,6 +685,10 @@ class HttpUtils {
         }
     }
 
+    /**
+     * @return the response stream of the connection, decoded as given by its
+     *         {@code Content-Encoding}
+     */
     public static HttpUtils.ReportingInputStream getResponseStream(
             final HttpURLConnection connection) {
 
@@ -531,8 +696,8 @@ class HttpUtils {
         try {
             InputStream in = connection.getInputStream();
             String contentEncoding = connection.getHeaderField("Content-Encoding");
-            boolean gzip = "gzip".equalsIgnoreCase(contentEncoding);
-            reportingStream = HttpUtils.newReportingInputStream(in, gzip);
+            StreamCodec codec = StreamCodec.forName(contentEncoding).or(StreamCodec.IDENTITY);
+            reportingStream = HttpUtils.newReportingInputStream(in, codec);
         } catch (IOException e) {
             throw Throwables.propagate(e);
         }
@@ -540,43 +705,58 @@ class HttpUtils {
     }
 
     public static ReportingInputStream newReportingInputStream(InputStream in, boolean gzip) {
-        return new ReportingInputStream(in, gzip);
+        return newReportingInputStream(in, gzip ? StreamCodec.GZIP : StreamCodec.IDENTITY);
+    }
+
+    public static ReportingInputStream newReportingInputStream(InputStream in,
+            StreamCodec codec) {
+        return new ReportingInputStream(in, codec);
     }
 
     public static ReportingOutputStream newReportingOutputStream(HttpURLConnection connection,
             OutputStream out, boolean gzipEncode) {
-        return new ReportingOutputStream(connection, out, gzipEncode);
+        return newReportingOutputStream(connection, out,
+                gzipEncode ? StreamCodec.GZIP : StreamCodec.IDENTITY);
+    }
+
+    public static ReportingOutputStream newReportingOutputStream(HttpURLConnection connection,
+            OutputStream out, StreamCodec codec) {
+        return new ReportingOutputStream(connection, out, codec);
     }
 
     public static class ReportingInputStream extends FilterInputStream {
 
-        private boolean isGzipEncoded;
+        private StreamCodec codec;
 
         private CountingInputStream uncompressed;
 
         private CountingInputStream compressed;
 
-        private ReportingInputStream(InputStream in, boolean isGzipEncoded) {
+        private ReportingInputStream(InputStream in, StreamCodec codec) {
             super(new CountingInputStream(in));
-            this.isGzipEncoded = isGzipEncoded;
-            if (isGzipEncoded) {
+            this.codec = codec;
+            if (StreamCodec.IDENTITY.equals(codec)) {
+                uncompressed = ((CountingInputStream) super.in);
+                compressed = uncompressed;
+            } else {
                 compressed = (CountingInputStream) super.in;
-                GZIPInputStream gzipIn;
+                InputStream decoded;
                 try {
-                    gzipIn = new GZIPInputStream(compressed);
+                    decoded = codec.decode(compressed);
                 } catch (IOException e) {
                     throw Throwables.propagate(e);
                 }
-                uncompressed = new CountingInputStream(gzipIn);
+                uncompressed = new CountingInputStream(decoded);
                 super.in = uncompressed;
-            } else {
-                uncompressed = ((CountingInputStream) super.in);
-                compressed = uncompressed;
             }
         }
 
         public boolean isCompressed() {
-            return isGzipEncoded;
+            return !StreamCodec.IDENTITY.equals(codec);
+        }
+
+        public StreamCodec getCodec() {
+            return codec;
         }
 
         public long compressedSize() {
@@ -590,7 +770,7 @@ class HttpUtils {
 
     public static class ReportingOutputStream extends FilterOutputStream {
 
-        private boolean gzipEncode;
+        private StreamCodec codec;
 
         private HttpURLConnection connection;
 
@@ -599,27 +779,31 @@ class HttpUtils {
         private final CountingOutputStream compressed;
 
         private ReportingOutputStream(HttpURLConnection connection, OutputStream out,
-                boolean gzipEncode) {
+                StreamCodec codec) {
             super(new CountingOutputStream(out));
-            this.gzipEncode = gzipEncode;
+            this.codec = codec;
             this.connection = connection;
             compressed = (CountingOutputStream) super.out;
-            if (gzipEncode) {
-                GZIPOutputStream gzipOut;
+            if (StreamCodec.IDENTITY.equals(codec)) {
+                uncompressed = compressed;
+            } else {
+                OutputStream encoded;
                 try {
-                    gzipOut = new GZIPOutputStream(compressed);
+                    encoded = codec.encode(compressed);
                 } catch (IOException e) {
                     throw Throwables.propagate(e);
                 }
-                uncompressed = new CountingOutputStream(gzipOut);
+                uncompressed = new CountingOutputStream(encoded);
                 super.out = uncompressed;
-            } else {
-                uncompressed = compressed;
             }
         }
 
         public boolean isCompressed() {
-            return gzipEncode;
+            return !StreamCodec.IDENTITY.equals(codec);
+        }
+
+        public StreamCodec getCodec() {
+            return codec;
         }
 
         public long compressedSize() {
@@ -630,6 +814,11 @@ class HttpUtils {
             return uncompressed.getCount();
         }
 
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
         @Override
         public void close() throws IOException {
             super.close();
@@ -0,0 +1,335 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.remote.http;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.plumbing.HashObject;
+import org.locationtech.geogig.remote.http.BinaryPackedObjects.IngestMetrics;
+import org.locationtech.geogig.repository.ProgressListener;
+import org.locationtech.geogig.storage.BulkOpListener;
+import org.locationtech.geogig.storage.ObjectStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Ingests the objects of a pack in three stages, so that reading off the network, decoding and
+ * storing the objects happen concurrently:
+ * <ul>
+ * <li>A reader splits the stream into {@link Frame frames} in a background thread, in batches of
+ * {@value #FRAMES_PER_BATCH};
+ * <li>A pool of workers decode the frames into objects and verify their ids match their contents,
+ * failing the ingest otherwise;
+ * <li>The calling thread stores the decoded batches, in the order they were read, through
+ * {@link ObjectStore#putAll}, grouping the batches already decoded into a single call.
+ * </ul>
+ * The stages are connected by bounded queues, and the number of batches in flight is limited, so
+ * that a slow stage holds back the previous ones instead of buffering the whole pack.
+ * <p>
+ * A failure in any stage aborts the others and is rethrown by {@link #run}.
+ */
+final class IngestPipeline {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IngestPipeline.class);
+
+    static final int FRAMES_PER_BATCH = 256;
+
+    static final int MAX_OBJECTS_PER_WRITE = 10_000;
+
+    private static final long REPORT_INTERVAL_MILLIS = 1000;
+
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("geogig-ingest-%d").build());
+
+    /**
+     * An object as read from the stream, yet to be decoded
+     */
+    interface Frame {
+
+        ObjectId getId();
+
+        /**
+         * @return the number of bytes the frame took in the stream
+         */
+        int getSize();
+
+        RevObject decode() throws IOException;
+    }
+
+    interface FrameReader {
+
+        /**
+         * @return the next frame in the stream, or {@code null} at the end of it
+         */
+        @Nullable
+        Frame read() throws IOException;
+    }
+
+    /**
+     * A frame for objects that had to be deserialized to be read off the stream
+     */
+    static Frame decoded(final RevObject object, final int size) {
+        return new Frame() {
+            @Override
+            public ObjectId getId() {
+                return object.getId();
+            }
+
+            @Override
+            public int getSize() {
+                return size;
+            }
+
+            @Override
+            public RevObject decode() {
+                return object;
+            }
+        };
+    }
+
+    private static final class Batch {
+
+        final long sequence;
+
+        final List<Frame> frames;
+
+        List<RevObject> objects;
+
+        Batch(long sequence, List<Frame> frames) {
+            this.sequence = sequence;
+            this.frames = frames;
+        }
+    }
+
+    private static final Batch END = new Batch(-1, Collections.emptyList());
+
+    private final ObjectStore database;
+
+    private final int workers;
+
+    private final int maxBatchesInFlight;
+
+    @Nullable
+    private final ProgressListener progress;
+
+    private final IngestMetrics metrics = new IngestMetrics();
+
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    IngestPipeline(ObjectStore database, int workers, @Nullable ProgressListener progress) {
+        checkArgument(workers > 0, "workers shall be > 0: %s", workers);
+        this.database = database;
+        this.workers = workers;
+        this.maxBatchesInFlight = 2 * workers + 2;
+        this.progress = progress;
+    }
+
+    IngestMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Ingests all the frames in {@code reader}, reporting the objects inserted and found to
+     * {@code listener} from the calling thread
+     */
+    void run(final FrameReader reader, final BulkOpListener listener) {
+        final Semaphore inFlight = new Semaphore(maxBatchesInFlight);
+        final BlockingQueue<Batch> decodeQueue = new ArrayBlockingQueue<>(
+                maxBatchesInFlight + workers);
+        final BlockingQueue<Batch> writeQueue = new ArrayBlockingQueue<>(maxBatchesInFlight + 1);
+        final AtomicInteger liveWorkers = new AtomicInteger(workers);
+
+        final List<Future<?>> tasks = new ArrayList<>(workers + 1);
+        final String baseDescription = progress == null ? null : progress.getDescription();
+        boolean completed = false;
+        try {
+            tasks.add(EXECUTOR.submit(() -> read(reader, inFlight, decodeQueue)));
+            for (int i = 0; i < workers; i++) {
+                tasks.add(EXECUTOR.submit(
+                        () -> decode(decodeQueue, writeQueue, liveWorkers)));
+            }
+            write(writeQueue, inFlight, decodeQueue, listener, baseDescription);
+            completed = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Throwables.propagate(e);
+        } finally {
+            if (!completed) {
+                failure.compareAndSet(null, new IllegalStateException("ingest aborted"));
+                tasks.forEach((t) -> t.cancel(true));
+            }
+            metrics.finished();
+            if (progress != null && baseDescription != null) {
+                progress.setDescription(baseDescription);
+            }
+        }
+        LOGGER.debug("Ingest finished: {}", metrics);
+    }
+
+    private void read(final FrameReader reader, final Semaphore inFlight,
+            final BlockingQueue<Batch> decodeQueue) {
+        long sequence = 0;
+        try {
+            List<Frame> frames = new ArrayList<>(FRAMES_PER_BATCH);
+            while (failure.get() == null) {
+                long start = System.nanoTime();
+                Frame frame = reader.read();
+                if (frame != null) {
+                    metrics.read(frame.getSize(), System.nanoTime() - start);
+                    frames.add(frame);
+                }
+                if (frames.size() == FRAMES_PER_BATCH || (frame == null && !frames.isEmpty())) {
+                    inFlight.acquire();
+                    decodeQueue.put(new Batch(sequence++, frames));
+                    frames = new ArrayList<>(FRAMES_PER_BATCH);
+                }
+                if (frame == null) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            failure.compareAndSet(null, e);
+        } catch (Throwable e) {
+            failure.compareAndSet(null, e);
+        } finally {
+            // there's always room for these, as the batches in the queue are limited by inFlight
+            for (int i = 0; i < workers; i++) {
+                decodeQueue.offer(END);
+            }
+        }
+    }
+
+    private void decode(final BlockingQueue<Batch> decodeQueue,
+            final BlockingQueue<Batch> writeQueue, final AtomicInteger liveWorkers) {
+        try {
+            Batch batch;
+            while ((batch = decodeQueue.take()) != END) {
+                if (failure.get() == null) {
+                    try {
+                        batch.objects = decode(batch.frames);
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+                writeQueue.put(batch);
+            }
+        } catch (InterruptedException e) {
+            failure.compareAndSet(null, e);
+        } finally {
+            if (liveWorkers.decrementAndGet() == 0) {
+                writeQueue.offer(END);
+            }
+        }
+    }
+
+    private List<RevObject> decode(final List<Frame> frames) throws IOException {
+        final long start = System.nanoTime();
+        final List<RevObject> objects = new ArrayList<>(frames.size());
+        for (Frame frame : frames) {
+            RevObject object = frame.decode();
+            ObjectId hash = new HashObject().setObject(object).call();
+            if (!hash.equals(frame.getId())) {
+                // don't store it under an id that doesn't identify its contents, the whole batch
+                // is discarded and the failure aborts the ingest
+                metrics.hashMismatch();
+                throw new IllegalStateException(String.format("%s %s's contents hash to %s",
+                        object.getType(), frame.getId(), hash));
+            }
+            objects.add(object);
+        }
+        metrics.decoded(objects.size(), System.nanoTime() - start);
+        return objects;
+    }
+
+    private void write(final BlockingQueue<Batch> writeQueue, final Semaphore inFlight,
+            final BlockingQueue<Batch> decodeQueue, final BulkOpListener listener,
+            final String baseDescription) throws InterruptedException {
+
+        final Map<Long, Batch> pending = new HashMap<>();
+        final List<RevObject> toWrite = new ArrayList<>();
+        long next = 0;
+        int batchesToRelease = 0;
+        long lastReport = System.currentTimeMillis();
+        boolean done = false;
+        while (!done) {
+            Batch batch = writeQueue.poll(REPORT_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            // drain what's already decoded, writing as soon as the queue is empty
+            while (batch != null) {
+                checkFailure();
+                if (batch == END) {
+                    done = true;
+                    break;
+                }
+                pending.put(Long.valueOf(batch.sequence), batch);
+                Batch ready;
+                while ((ready = pending.remove(Long.valueOf(next))) != null) {
+                    toWrite.addAll(ready.objects);
+                    batchesToRelease++;
+                    next++;
+                }
+                if (toWrite.size() >= MAX_OBJECTS_PER_WRITE) {
+                    break;
+                }
+                batch = writeQueue.poll();
+            }
+            checkFailure();
+            if (!toWrite.isEmpty()) {
+                final long start = System.nanoTime();
+                database.putAll(toWrite.iterator(), listener);
+                metrics.written(toWrite.size(), System.nanoTime() - start);
+                toWrite.clear();
+            }
+            inFlight.release(batchesToRelease);
+            batchesToRelease = 0;
+
+            metrics.queueDepths(decodeQueue.size(), writeQueue.size() + pending.size());
+            final long now = System.currentTimeMillis();
+            if (progress != null && now - lastReport >= REPORT_INTERVAL_MILLIS) {
+                lastReport = now;
+                progress.setDescription(baseDescription == null ? metrics.toString()
+                        : String.format("%s [%s]", baseDescription, metrics));
+            }
+        }
+        if (!pending.isEmpty()) {
+            throw new IllegalStateException(
+                    String.format("%d batches were not ingested", pending.size()));
+        }
+    }
+
+    private void checkFailure() {
+        Throwable e = failure.get();
+        if (e != null) {
+            Throwables.propagateIfPossible(e);
+            throw Throwables.propagate(e);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.remote.http;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.ByteArrayOutputStream;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Binary delta encoding of a byte array against a similar one, used to send the serialized form of
+ * an object as the difference to a previous version of it.
+ * <p>
+ * A delta is the varint encoded lengths of the base and target arrays followed by a sequence of
+ * instructions to rebuild the target:
+ * <ul>
+ * <li>{@code COPY}: a {@code 0x80} byte followed by the varint encoded offset and length of the
+ * range of the base array to copy;
+ * <li>{@code INSERT}: a byte {@code n} between {@code 1} and {@code 127} followed by {@code n}
+ * literal bytes.
+ * </ul>
+ * Matches are found hashing the base array in blocks of {@value #BLOCK_SIZE} bytes and looking up
+ * the rolling hash of each position in the target array, as in git's pack deltas, which finds the
+ * ranges a small edit leaves untouched in linear time.
+ */
+public final class ObjectDelta {
+
+    static final int BLOCK_SIZE = 16;
+
+    private static final int COPY = 0x80;
+
+    private static final int MAX_INSERT = 0x7F;
+
+    /**
+     * {@code 31^BLOCK_SIZE}, to remove the byte leaving the rolling hash window
+     */
+    private static final int OUT_FACTOR;
+    static {
+        int f = 1;
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            f *= 31;
+        }
+        OUT_FACTOR = f;
+    }
+
+    private ObjectDelta() {
+        // utility class
+    }
+
+    /**
+     * @return the delta to rebuild {@code target} out of {@code base}, or {@code null} if it's not
+     *         smaller than {@code target} itself
+     */
+    public static @Nullable byte[] encode(final byte[] base, final byte[] target) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(64 + target.length / 4);
+        writeVarInt(base.length, out);
+        writeVarInt(target.length, out);
+
+        final int[] index = index(base);
+        final int mask = index.length - 1;
+        int pending = 0; // start of the bytes not yet copied nor inserted
+        int pos = 0;
+        int hash = target.length >= BLOCK_SIZE ? hash(target, 0) : 0;
+        while (pos + BLOCK_SIZE <= target.length) {
+            final int candidate = index[mix(hash) & mask] - 1;
+            if (candidate >= 0 && equal(base, candidate, target, pos)) {
+                // extend the match backwards over the pending bytes and then forwards
+                int start = pos;
+                int baseStart = candidate;
+                while (start > pending && baseStart > 0
+                        && base[baseStart - 1] == target[start - 1]) {
+                    start--;
+                    baseStart--;
+                }
+                int end = pos + BLOCK_SIZE;
+                int baseEnd = candidate + BLOCK_SIZE;
+                while (end < target.length && baseEnd < base.length
+                        && base[baseEnd] == target[end]) {
+                    end++;
+                    baseEnd++;
+                }
+                insert(target, pending, start, out);
+                out.write(COPY);
+                writeVarInt(baseStart, out);
+                writeVarInt(end - start, out);
+                if (out.size() >= target.length) {
+                    return null;
+                }
+                pending = pos = end;
+                if (pos + BLOCK_SIZE <= target.length) {
+                    hash = hash(target, pos);
+                }
+                continue;
+            }
+            if (pos + BLOCK_SIZE < target.length) {
+                hash = 31 * hash - OUT_FACTOR * target[pos] + target[pos + BLOCK_SIZE];
+            }
+            pos++;
+        }
+        insert(target, pending, target.length, out);
+        return out.size() < target.length ? out.toByteArray() : null;
+    }
+
+    /**
+     * Rebuilds the target array out of its base and the delta returned by {@link #encode}
+     */
+    public static byte[] apply(final byte[] base, final byte[] delta) {
+        final int[] pos = { 0 };
+        final int baseLength = readVarInt(delta, pos);
+        checkArgument(baseLength == base.length, "delta base length mismatch: %s, expected %s",
+                base.length, baseLength);
+        final byte[] target = new byte[readVarInt(delta, pos)];
+        int written = 0;
+        while (pos[0] < delta.length) {
+            final int op = delta[pos[0]++] & 0xFF;
+            if (op == COPY) {
+                final int offset = readVarInt(delta, pos);
+                final int length = readVarInt(delta, pos);
+                System.arraycopy(base, offset, target, written, length);
+                written += length;
+            } else {
+                checkArgument(op > 0 && op <= MAX_INSERT, "invalid delta instruction: %s", op);
+                System.arraycopy(delta, pos[0], target, written, op);
+                pos[0] += op;
+                written += op;
+            }
+        }
+        checkArgument(written == target.length, "delta produced %s bytes, expected %s", written,
+                target.length);
+        return target;
+    }
+
+    /**
+     * @return a hash table of the offsets of the base array blocks, plus one so that zero means no
+     *         block
+     */
+    private static int[] index(final byte[] base) {
+        final int blocks = base.length / BLOCK_SIZE;
+        final int[] index = new int[Math.max(2, Integer.highestOneBit(Math.max(1, blocks)) << 2)];
+        final int mask = index.length - 1;
+        // iterate backwards so the first occurrence of a repeated block wins
+        for (int b = blocks - 1; b >= 0; b--) {
+            final int offset = b * BLOCK_SIZE;
+            index[mix(hash(base, offset)) & mask] = offset + 1;
+        }
+        return index;
+    }
+
+    private static int hash(final byte[] data, final int offset) {
+        int h = 0;
+        for (int i = offset; i < offset + BLOCK_SIZE; i++) {
+            h = 31 * h + data[i];
+        }
+        return h;
+    }
+
+    private static int mix(int h) {
+        h ^= (h >>> 16);
+        h *= 0x85EBCA6B;
+        return h ^ (h >>> 13);
+    }
+
+    private static boolean equal(byte[] base, int baseOffset, byte[] target, int offset) {
+        if (baseOffset + BLOCK_SIZE > base.length) {
+            return false;
+        }
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            if (base[baseOffset + i] != target[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void insert(byte[] target, int from, int to, ByteArrayOutputStream out) {
+        while (from < to) {
+            final int length = Math.min(MAX_INSERT, to - from);
+            out.write(length);
+            out.write(target, from, length);
+            from += length;
+        }
+    }
+
+    static void writeVarInt(int value, ByteArrayOutputStream out) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarInt(byte[] data, int[] pos) {
+        int value = 0;
+        for (int shift = 0;; shift += 7) {
+            final int b = data[pos[0]++] & 0xFF;
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+}
@@ -13,7 +13,6 @@ import static org.locationtech.geogig.storage.BulkOpListener.NOOP_LISTENER;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -28,12 +27,12 @@ import org.locationtech.geogig.model.RevTag;
 import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.repository.impl.Deduplicator;
 import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.geogig.storage.impl.ObjectIdSet;
 
 import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Sets;
 
 /**
  * The PostOrderIterator class provides utilities for traversing a GeoGig revision history graph in
@@ -366,7 +365,7 @@ class PostOrderIterator extends AbstractIterator<RevObject> {
             final RevTree tree = (RevTree) object;
             ImmutableList<Node> features = tree.features();
             if (!features.isEmpty()) {
-                final Set<ObjectId> seen = Sets.newHashSet();
+                final Set<ObjectId> seen = new ObjectIdSet(features.size() * 2);
                 features.forEach((n) -> {
                     if (n.getMetadataId().isPresent()) {
                         seen.add(n.getMetadataId().get());
@@ -392,7 +391,7 @@ class PostOrderIterator extends AbstractIterator<RevObject> {
             if (object instanceof RevTree) {
                 final RevTree tree = (RevTree) object;
                 if (!tree.trees().isEmpty()) {
-                    final Set<ObjectId> seen = new HashSet<ObjectId>();
+                    final Set<ObjectId> seen = new ObjectIdSet();
                     for (Node n : tree.trees()) {
                         seen.add(n.getMetadataId().get());
                         seen.add(n.getObjectId());
@@ -505,7 +504,8 @@ class PostOrderIterator extends AbstractIterator<RevObject> {
      */
     private final static Successors blacklist(final Successors delegate,
             final List<ObjectId> base) {
-        final Set<ObjectId> baseSet = new HashSet<ObjectId>(base);
+        final Set<ObjectId> baseSet = new ObjectIdSet(base.size());
+        baseSet.addAll(base);
         return new Successors() {
             public @Override void findSuccessors(final Object object, final List<Object> successors,
                     ObjectStore database) {
@@ -0,0 +1,275 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.remote.http;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+import com.google.common.base.Optional;
+
+import net.jpountz.lz4.LZ4BlockInputStream;
+import net.jpountz.lz4.LZ4BlockOutputStream;
+import net.jpountz.lz4.LZ4Factory;
+
+/**
+ * Compression codecs for the object and change streams exchanged with HTTP remotes, identified by
+ * the content coding name they're negotiated with through the {@code Accept-Encoding} and
+ * {@code Content-Encoding} headers:
+ * <ul>
+ * <li>{@code zstd}: Zstandard at a configurable level, compressing about as well as gzip at a
+ * fraction of its CPU cost;
+ * <li>{@code lz4}: LZ4 in the block format of the lz4-java library, the cheapest to compress and
+ * decompress, at a lower ratio;
+ * <li>{@code gzip}: the only codec older clients and servers understand;
+ * <li>{@code identity}: no compression.
+ * </ul>
+ * Zstandard needs a native library, if it can't be loaded on the running platform the codec is
+ * {@link #isAvailable() not available} and is neither offered nor accepted.
+ *
+ * @since 1.2
+ */
+public abstract class StreamCodec {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StreamCodec.class);
+
+    /**
+     * Name of the config property that sets the codec a client prefers
+     */
+    public static final String CODEC_CONFIG_KEY = "transfer.codec";
+
+    /**
+     * Name of the config property that sets the Zstandard compression level
+     */
+    public static final String ZSTD_LEVEL_CONFIG_KEY = "transfer.zstd.level";
+
+    public static final int DEFAULT_ZSTD_LEVEL = 3;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public static final StreamCodec IDENTITY = new StreamCodec("identity") {
+        @Override
+        public OutputStream encode(OutputStream out) {
+            return out;
+        }
+
+        @Override
+        public InputStream decode(InputStream in) {
+            return in;
+        }
+    };
+
+    public static final StreamCodec GZIP = new StreamCodec("gzip") {
+        @Override
+        public OutputStream encode(OutputStream out) throws IOException {
+            return new GZIPOutputStream(out, BUFFER_SIZE);
+        }
+
+        @Override
+        public InputStream decode(InputStream in) throws IOException {
+            return new GZIPInputStream(in, BUFFER_SIZE);
+        }
+    };
+
+    public static final StreamCodec LZ4 = new StreamCodec("lz4") {
+        @Override
+        public OutputStream encode(OutputStream out) {
+            return new LZ4BlockOutputStream(out, BUFFER_SIZE,
+                    LZ4Factory.fastestInstance().fastCompressor());
+        }
+
+        @Override
+        public InputStream decode(InputStream in) {
+            return new LZ4BlockInputStream(in, LZ4Factory.fastestInstance().fastDecompressor());
+        }
+    };
+
+    private static final boolean ZSTD_AVAILABLE = loadZstd();
+
+    private final String name;
+
+    private StreamCodec(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return the content coding name of this codec
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return whether this codec can be used in the running platform
+     */
+    public boolean isAvailable() {
+        return true;
+    }
+
+    /**
+     * @return a stream that compresses what's written to it into {@code out}, closing it closes
+     *         {@code out}
+     */
+    public abstract OutputStream encode(OutputStream out) throws IOException;
+
+    /**
+     * @return a stream that decompresses what's read from {@code in}
+     */
+    public abstract InputStream decode(InputStream in) throws IOException;
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * @return the Zstandard codec at the given compression level
+     */
+    public static StreamCodec zstd(final int level) {
+        checkArgument(level >= 1 && level <= 22, "zstd level shall be between 1 and 22: %s",
+                level);
+        return new Zstandard(level);
+    }
+
+    private static boolean loadZstd() {
+        try {
+            Zstd.compress(new byte[1], 1);
+            return true;
+        } catch (Exception | LinkageError e) {
+            LOGGER.info("Zstandard transport compression is not available: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private static class Zstandard extends StreamCodec {
+
+        private final int level;
+
+        Zstandard(int level) {
+            super("zstd");
+            this.level = level;
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return ZSTD_AVAILABLE;
+        }
+
+        @Override
+        public OutputStream encode(OutputStream out) throws IOException {
+            return new ZstdOutputStream(out, level);
+        }
+
+        @Override
+        public InputStream decode(InputStream in) throws IOException {
+            return new ZstdInputStream(in);
+        }
+
+        @Override
+        public String toString() {
+            return getName() + ":" + level;
+        }
+    }
+
+    /**
+     * @return the available codecs, most preferred first, as used when the peer likes them all the
+     *         same
+     */
+    public static List<StreamCodec> available(final int zstdLevel) {
+        List<StreamCodec> codecs = new ArrayList<>(4);
+        StreamCodec zstd = zstd(zstdLevel);
+        if (zstd.isAvailable()) {
+            codecs.add(zstd);
+        }
+        codecs.add(LZ4);
+        codecs.add(GZIP);
+        codecs.add(IDENTITY);
+        return codecs;
+    }
+
+    /**
+     * @return the available codec with the given content coding name, using
+     *         {@link #DEFAULT_ZSTD_LEVEL the default level} for Zstandard
+     */
+    public static Optional<StreamCodec> forName(@Nullable String name) {
+        return forName(name, DEFAULT_ZSTD_LEVEL);
+    }
+
+    /**
+     * @return the available codec with the given content coding name, or absent if {@code name}
+     *         is {@code null} or there's no such codec
+     */
+    public static Optional<StreamCodec> forName(@Nullable String name, final int zstdLevel) {
+        if (name != null) {
+            final String lookup = name.trim().toLowerCase(Locale.ENGLISH);
+            for (StreamCodec codec : available(zstdLevel)) {
+                if (codec.getName().equals(lookup)) {
+                    return Optional.of(codec);
+                }
+            }
+            if ("none".equals(lookup) || lookup.isEmpty()) {
+                return Optional.of(IDENTITY);
+            }
+        }
+        return Optional.absent();
+    }
+
+    /**
+     * Picks the codec to encode a stream sent to a peer that accepts the given content codings
+     *
+     * @param accepted the content coding names the peer accepts, most preferred first
+     * @return the first available codec in {@code accepted}, or {@link #IDENTITY} if none is
+     */
+    public static StreamCodec negotiate(final Iterable<String> accepted, final int zstdLevel) {
+        for (String name : accepted) {
+            Optional<StreamCodec> codec = forName(name, zstdLevel);
+            if (codec.isPresent()) {
+                return codec.get();
+            }
+        }
+        return IDENTITY;
+    }
+
+    /**
+     * @return the {@code Accept-Encoding} header value listing the available codecs, starting with
+     *         {@code preferred} and followed by the others in decreasing quality order
+     */
+    public static String acceptEncoding(final StreamCodec preferred) {
+        List<String> names = new ArrayList<>();
+        if (preferred.isAvailable()) {
+            names.add(preferred.getName());
+        }
+        for (StreamCodec codec : available(DEFAULT_ZSTD_LEVEL)) {
+            if (!names.contains(codec.getName())) {
+                names.add(codec.getName());
+            }
+        }
+        StringBuilder header = new StringBuilder(names.get(0));
+        for (int i = 1; i < names.size(); i++) {
+            header.append(", ").append(names.get(i)).append(";q=0.")
+                    .append(Math.max(1, 10 - i));
+        }
+        return header.toString();
+    }
+}
@@ -0,0 +1,171 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.repository.impl;
+
+import java.util.Date;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.repository.IndexInfo.IndexType;
+
+/**
+ * Order preserving binary encoding of attribute values, used to cluster the nodes of an
+ * {@link IndexType#ATTRIBUTE attribute index} tree by value, and to figure out which buckets of
+ * such a tree may contain a given range of values.
+ * <p>
+ * Keys compare as unsigned byte arrays, shorter keys first, in the same order as the values they
+ * encode, though different values may encode to the same key (e.g. numbers are encoded as their
+ * {@code double} value, and strings are truncated to {@link #MAX_KEY_LENGTH} bytes). Hence keys
+ * can only be used to discard values, which then need to be compared by the actual values.
+ * <p>
+ * An attribute index tree uses one bucket per half byte ("nibble") of the key at each depth,
+ * numbered {@code 1-16} in key order, and bucket {@code 0} for nodes whose key has no more
+ * nibbles at that depth, which are then split in canonical order.
+ */
+public class AttributeIndexKeys {
+
+    /**
+     * Maximum length of a key, longer strings are truncated
+     */
+    public static final int MAX_KEY_LENGTH = 32;
+
+    /**
+     * Index of the bucket that holds the nodes whose key is exhausted at a given depth
+     */
+    public static final int EXHAUSTED_KEY_BUCKET = 0;
+
+    private static final byte[] NULL_KEY = new byte[0];
+
+    /**
+     * @return whether values of the given type can be indexed by an attribute index
+     */
+    public static boolean isSupported(Class<?> binding) {
+        return Number.class.isAssignableFrom(binding) || Date.class.isAssignableFrom(binding)
+                || String.class.equals(binding) || Boolean.class.equals(binding)
+                || Character.class.equals(binding);
+    }
+
+    /**
+     * @return the key for the given value, an empty array for {@code null}
+     * @throws IllegalArgumentException if the value's type is not {@link #isSupported supported}
+     */
+    public static byte[] encode(@Nullable Object value) {
+        if (value == null) {
+            return NULL_KEY;
+        }
+        if (value instanceof Number) {
+            return encode(((Number) value).doubleValue());
+        }
+        if (value instanceof Date) {
+            return encode((double) ((Date) value).getTime());
+        }
+        if (value instanceof String) {
+            return encode((String) value);
+        }
+        if (value instanceof Boolean) {
+            return new byte[] { (byte) (((Boolean) value).booleanValue() ? 1 : 0) };
+        }
+        if (value instanceof Character) {
+            char c = ((Character) value).charValue();
+            return new byte[] { (byte) (c >>> 8), (byte) c };
+        }
+        throw new IllegalArgumentException(
+                "Unsupported attribute index value type: " + value.getClass().getName());
+    }
+
+    private static byte[] encode(double value) {
+        // make sure -0.0 and 0.0 get the same key
+        long bits = Double.doubleToLongBits(value == 0d ? 0d : value);
+        // flip the sign bit of positive numbers and all the bits of negative ones for them to
+        // compare as unsigned
+        bits = bits < 0 ? ~bits : bits ^ Long.MIN_VALUE;
+        byte[] key = new byte[8];
+        for (int i = 7; i >= 0; i--) {
+            key[i] = (byte) bits;
+            bits >>>= 8;
+        }
+        return key;
+    }
+
+    private static byte[] encode(String value) {
+        // UTF-16 code units compare as String.compareTo does
+        final int length = Math.min(value.length(), MAX_KEY_LENGTH / 2);
+        byte[] key = new byte[2 * length];
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            key[2 * i] = (byte) (c >>> 8);
+            key[2 * i + 1] = (byte) c;
+        }
+        return key;
+    }
+
+    /**
+     * @return the bucket index ({@code 1-16}) of the given key at the given depth, or {@code -1}
+     *         if the key has no more nibbles at that depth
+     */
+    public static int bucket(byte[] key, final int depthIndex) {
+        int nibble = nibble(key, depthIndex);
+        return nibble == -1 ? -1 : nibble + 1;
+    }
+
+    private static int nibble(byte[] key, final int nibbleIndex) {
+        if (nibbleIndex >= 2 * key.length) {
+            return -1;
+        }
+        int b = key[nibbleIndex / 2] & 0xFF;
+        return nibbleIndex % 2 == 0 ? b >>> 4 : b & 0x0F;
+    }
+
+    /**
+     * Determines whether the bucket of an attribute index tree at the given bucket path may
+     * contain values in the given range.
+     *
+     * @param bucketPath the bucket indices from the root of the index tree down to the bucket
+     * @param lowerBound the key of the (inclusive) lower bound of the range, or {@code null} if
+     *        unbounded
+     * @param upperBound the key of the (inclusive) upper bound of the range, or {@code null} if
+     *        unbounded
+     */
+    public static boolean overlaps(final int[] bucketPath, @Nullable byte[] lowerBound,
+            @Nullable byte[] upperBound) {
+        // all the keys in the bucket start with these nibbles, anything past an exhausted key
+        // bucket is in canonical order
+        int prefixLength = 0;
+        while (prefixLength < bucketPath.length
+                && bucketPath[prefixLength] != EXHAUSTED_KEY_BUCKET) {
+            prefixLength++;
+        }
+        if (lowerBound != null && comparePrefix(bucketPath, prefixLength, lowerBound) < 0) {
+            return false;
+        }
+        if (upperBound != null && comparePrefix(bucketPath, prefixLength, upperBound) > 0) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Compares the first {@code prefixLength} bucket indices in {@code bucketPath} with the key
+     * truncated to as many nibbles, considering a longer sequence greater if the shorter one is
+     * a prefix of it.
+     */
+    private static int comparePrefix(final int[] bucketPath, final int prefixLength, byte[] key) {
+        for (int i = 0; i < prefixLength; i++) {
+            int keyBucket = bucket(key, i);
+            if (keyBucket == -1) {
+                return 1;
+            }
+            int c = bucketPath[i] - keyBucket;
+            if (c != 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+}
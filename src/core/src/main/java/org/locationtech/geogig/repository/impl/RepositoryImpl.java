@@ -14,6 +14,7 @@ import java.net.URI;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.locationtech.geogig.model.Node;
 import org.locationtech.geogig.model.NodeRef;
@@ -24,6 +25,7 @@ import org.locationtech.geogig.model.RevFeature;
 import org.locationtech.geogig.model.RevObject;
 import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.plumbing.FindTreeChild;
+import org.locationtech.geogig.plumbing.IndexCommitGraphOp;
 import org.locationtech.geogig.plumbing.RefParse;
 import org.locationtech.geogig.plumbing.ResolveGeogigURI;
 import org.locationtech.geogig.plumbing.ResolveTreeish;
@@ -131,6 +133,35 @@ public class RepositoryImpl implements Repository {
             l.opened(this);
         }
         open = true;
+        indexCommitGraph();
+    }
+
+    /**
+     * Indexes the history missing from the graph database's commit graph, if it maintains one, in
+     * the background. Commits are only appended to the commit graph as they're inserted, so this
+     * fills in the history of repositories created before the commit graph, or whose commit graph
+     * is kept in memory, without making opening the repository wait for it.
+     */
+    private void indexCommitGraph() {
+        if (!context.graphDatabase().getCommitGraph().isPresent()) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    Long indexed = command(IndexCommitGraphOp.class).call();
+                    LOGGER.debug("Indexed {} commits of {}", indexed, repositoryLocation);
+                } catch (RuntimeException e) {
+                    if (open) {
+                        LOGGER.warn("Error indexing the commit graph of {}", repositoryLocation,
+                                e);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // reopened after being closed, the executor no longer runs background tasks
+            LOGGER.debug("Not indexing the commit graph of {}", repositoryLocation, e);
+        }
     }
 
     /**
@@ -17,6 +17,7 @@ import java.lang.management.ManagementFactory;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -71,7 +72,14 @@ public class CacheManager implements CacheManagerBean {
 
     private static final Logger LOG = LoggerFactory.getLogger(CacheManager.class);
 
-    public static final CacheManager INSTANCE = new CacheManager();
+    /**
+     * How long to keep a repository's cache after the repository was closed, so that reopening it
+     * shortly after, as the web API's repository cache does, doesn't find it cold
+     */
+    private static final long RELEASE_DELAY_MILLIS = TimeUnit.SECONDS
+            .toMillis(Long.getLong("geogig.cache.releaseDelaySeconds", 60));
+
+    public static final CacheManager INSTANCE = new CacheManager(RELEASE_DELAY_MILLIS);
 
     static {
         registerMBeanServer();
@@ -105,9 +113,22 @@ public class CacheManager implements CacheManagerBean {
      */
     private long currentMaxCacheSize = -1;
 
+    /**
+     * Cached value of {@link #resolveOffHeapSize()}
+     */
+    private long resolvedOffHeapSize = -1L;
+
     @VisibleForTesting
     CacheManager() {
-        CACHES = new CacheConnections(this);
+        this(0L);
+    }
+
+    /**
+     * @param releaseDelayMillis how long to keep an {@link ObjectCache} after all its handles were
+     *        released before invalidating it
+     */
+    CacheManager(long releaseDelayMillis) {
+        CACHES = new CacheConnections(this, releaseDelayMillis);
     }
 
     final SharedCache sharedCache() {
@@ -199,6 +220,40 @@ public class CacheManager implements CacheManagerBean {
         return maxCacheSize;
     }
 
+    /**
+     * Resolves the capacity of the off-heap cache tier in bytes, as given by the
+     * {@code GEOGIG_CACHE_OFFHEAP_SIZE} System property or environment variable, in that order of
+     * precedence, or zero if neither is set.
+     * <p>
+     * The off-heap capacity is not bound by the JVM heap size but by its maximum direct memory
+     * size, so it is not checked against {@link #getAbsoluteMaximumSize()}.
+     */
+    long resolveOffHeapSize() {
+        if (resolvedOffHeapSize != -1L) {
+            return resolvedOffHeapSize;
+        }
+        long offHeapSize = 0L;
+        String arg = System.getProperty(GEOGIG_CACHE_OFFHEAP_SIZE);
+        String source = "System property";
+        if (isNullOrEmpty(arg)) {
+            arg = System.getenv(GEOGIG_CACHE_OFFHEAP_SIZE);
+            source = "environment variable";
+        }
+        if (!isNullOrEmpty(arg)) {
+            try {
+                offHeapSize = Math.max(0L, parseCacheSizeArgument(arg));
+                LOG.info(String.format(
+                        "Configuring GeoGig shared object off-heap cache size to %,d bytes as given by the %s %s=%s",
+                        offHeapSize, source, GEOGIG_CACHE_OFFHEAP_SIZE, arg));
+            } catch (IllegalArgumentException e) {
+                LOG.warn("Unable to parse {} {}={}. Off-heap cache disabled", source,
+                        GEOGIG_CACHE_OFFHEAP_SIZE, arg, e);
+            }
+        }
+        resolvedOffHeapSize = offHeapSize;
+        return offHeapSize;
+    }
+
     long getCacheSizePercent(double percent) {
         checkArgument(percent >= 0d && percent <= 0.9,
                 "percent must be between zero and 90% (0.9)");
@@ -273,8 +328,8 @@ public class CacheManager implements CacheManagerBean {
      * Returns a {@link RevObject} cache
      * <p>
      * Multiple invocations of this method for the same key are guaranteed to return the same
-     * {@link ObjectCache} as long as there's still at least one handle to the same cache, or a new
-     * one otherwise.
+     * {@link ObjectCache} as long as there's still at least one handle to the same cache, or the
+     * last one was released less than the release delay ago, or a new one otherwise.
      * 
      * @param uniqueCacheIdentifier a client defined identifier for the objectcache
      */
@@ -296,7 +351,7 @@ public class CacheManager implements CacheManagerBean {
     /**
      * Indicates the client code that obtained the {@link ObjectCache} through the {@link #acquire}
      * method does no longer need it and hence the cache manager is free to release the object cache
-     * if there are no more clients for it.
+     * if there are no more clients for it, once the release delay has passed.
      * 
      * @param cache the cache to return to the pool.
      */
@@ -316,7 +371,8 @@ public class CacheManager implements CacheManagerBean {
 
         private CacheManager cacheManager;
 
-        public CacheConnections(CacheManager cacheManager) {
+        public CacheConnections(CacheManager cacheManager, long releaseDelayMillis) {
+            super(releaseDelayMillis);
             this.cacheManager = cacheManager;
         }
 
@@ -389,6 +445,61 @@ public class CacheManager implements CacheManagerBean {
         return sharedCache().getStats().evictionCount();
     }
 
+    @Override
+    public long getL1HitCount() {
+        return sharedCache().getL1Stats().hitCount();
+    }
+
+    @Override
+    public double getL1HitRate() {
+        return sharedCache().getL1Stats().hitRate();
+    }
+
+    @Override
+    public long getL1EvictionCount() {
+        return sharedCache().getL1Stats().evictionCount();
+    }
+
+    @Override
+    public long getL1Size() {
+        return sharedCache().l1ObjectCount();
+    }
+
+    @Override
+    public double getOffHeapMaximumSizeMB() {
+        return resolveOffHeapSize() / (1024D * 1024D);
+    }
+
+    @Override
+    public long getOffHeapSizeBytes() {
+        return sharedCache().offHeapSizeBytes();
+    }
+
+    @Override
+    public long getOffHeapSize() {
+        return sharedCache().offHeapObjectCount();
+    }
+
+    @Override
+    public long getOffHeapHitCount() {
+        return sharedCache().getOffHeapStats().hitCount();
+    }
+
+    @Override
+    public double getOffHeapHitRate() {
+        return sharedCache().getOffHeapStats().hitRate();
+    }
+
+    @Override
+    public long getOffHeapMissCount() {
+        return sharedCache().getOffHeapStats().missCount();
+    }
+
+    @Override
+    public long getOffHeapEvictionCount() {
+        return sharedCache().getOffHeapStats().evictionCount();
+    }
+
     @Override
     public void setMaximumSizePercent(double percent) {
         long maxSize = getCacheSizePercent(percent);
@@ -417,12 +528,10 @@ public class CacheManager implements CacheManagerBean {
         checkArgument(maxSizeBytes >= 0 && maxSizeBytes <= absoluteMaximumSize,
                 "Cache max size must be between 0 and %s, got %s", absoluteMaximumSize,
                 maxSizeBytes);
-        SharedCache cache = SharedCache.build(maxSizeBytes);
-        SharedCache old = _SHARED_CACHE;
-        _SHARED_CACHE = cache;
-        if (old != null) {
-            old.invalidateAll();
-        }
+        final SharedCache old = _SHARED_CACHE;
+        // only the heap tiers are resized, the off-heap tier, if any, is handed over
+        _SHARED_CACHE = old == null ? SharedCache.build(maxSizeBytes, resolveOffHeapSize())
+                : SharedCache.resize(old, maxSizeBytes, resolveOffHeapSize());
         this.currentMaxCacheSize = maxSizeBytes;
     }
 
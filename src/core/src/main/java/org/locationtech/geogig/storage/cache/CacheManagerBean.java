@@ -32,6 +32,13 @@ public interface CacheManagerBean {
 
     final String GEOGIG_CACHE_MAX_SIZE = "GEOGIG_CACHE_MAX_SIZE";
 
+    /**
+     * Name of the System property or environment variable that sets the capacity of the off-heap
+     * cache tier, as an absolute size (e.g. {@code 4G}). Defaults to zero, meaning no off-heap
+     * tier.
+     */
+    final String GEOGIG_CACHE_OFFHEAP_SIZE = "GEOGIG_CACHE_OFFHEAP_SIZE";
+
     /**
      * The default maximum cache capacity, used if neither the {@code GEOGIG_CACHE_MAX_SIZE}
      * environment variable or system property where provided, or couldn't be parsed; expressed as
@@ -156,6 +163,10 @@ public interface CacheManagerBean {
 
     /**
      * @return the approximate size of the cache entries in bytes
+     *         <p>
+     *         This and the following size and statistics methods without a tier prefix refer to
+     *         the on-heap cache of serialized objects, the {@code L1} and {@code OffHeap} methods
+     *         to the cache of parsed trees and to the off-heap cache respectively.
      */
     long getSizeBytes();
 
@@ -195,4 +206,60 @@ public interface CacheManagerBean {
      */
     long getEvictionCount();
 
+    /**
+     * @return number of parsed trees in the L1 cache
+     */
+    long getL1Size();
+
+    /**
+     * @return number of L1 cache queries that were hits
+     */
+    long getL1HitCount();
+
+    /**
+     * @return ratio between number of L1 cache queries and those that were hits
+     */
+    double getL1HitRate();
+
+    /**
+     * @return number of times a L1 cache entry was dropped due to size restrictions
+     */
+    long getL1EvictionCount();
+
+    /**
+     * @return the capacity of the off-heap cache in MB, zero if there's no off-heap cache
+     * @see #GEOGIG_CACHE_OFFHEAP_SIZE
+     */
+    double getOffHeapMaximumSizeMB();
+
+    /**
+     * @return the size of the off-heap cache entries in bytes
+     */
+    long getOffHeapSizeBytes();
+
+    /**
+     * @return number of {@link RevObject}s in the off-heap cache
+     */
+    long getOffHeapSize();
+
+    /**
+     * @return number of off-heap cache queries that were hits
+     */
+    long getOffHeapHitCount();
+
+    /**
+     * @return ratio between number of off-heap cache queries and those that were hits
+     */
+    double getOffHeapHitRate();
+
+    /**
+     * @return number of off-heap cache queries that were misses
+     */
+    long getOffHeapMissCount();
+
+    /**
+     * @return number of times an off-heap cache entry was dropped to make room for new ones
+     */
+    long getOffHeapEvictionCount();
+
 }
@@ -0,0 +1,283 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.storage.cache;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import com.google.common.cache.CacheStats;
+
+/**
+ * A byte array cache that keeps its values outside of the Java heap, in direct {@link ByteBuffer}
+ * segments, so that its size does not add to garbage collection pauses.
+ * <p>
+ * Used by {@link SharedCache} as the last tier, holding the serialized objects evicted from the
+ * on-heap caches.
+ * <p>
+ * The key space is split across a number of segments, each one guarded by its own lock and backed
+ * by a single direct buffer of up to 1GB. Values are laid out in the buffer in allocation order,
+ * and space for new values is made with the CLOCK algorithm: a hand sweeps the buffer from where
+ * the last value was written, evicting entries that weren't read since the hand last passed over
+ * them and giving a second chance to those that were, until a contiguous free region large enough
+ * for the new value is found.
+ * <p>
+ * Only the values live off-heap, the key to buffer offset index of each segment is kept on the
+ * heap.
+ */
+class OffHeapCache {
+
+    private static final long MAX_SEGMENT_SIZE = 1024 * 1024 * 1024;
+
+    private static final int MIN_SEGMENTS = 16;
+
+    private final Segment[] segments;
+
+    private final long maxSizeBytes;
+
+    OffHeapCache(final long maxSizeBytes) {
+        checkArgument(maxSizeBytes > 0, "Off-heap cache size must be > 0");
+        final int numSegments = (int) Math.max(MIN_SEGMENTS,
+                (maxSizeBytes + MAX_SEGMENT_SIZE - 1) / MAX_SEGMENT_SIZE);
+        final int segmentSize = (int) (maxSizeBytes / numSegments);
+        this.segments = new Segment[numSegments];
+        for (int i = 0; i < numSegments; i++) {
+            segments[i] = new Segment(segmentSize);
+        }
+        this.maxSizeBytes = (long) segmentSize * numSegments;
+    }
+
+    private Segment segment(Key key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segments[(h & Integer.MAX_VALUE) % segments.length];
+    }
+
+    public long maxSizeBytes() {
+        return maxSizeBytes;
+    }
+
+    public boolean contains(Key key) {
+        return segment(key).contains(key);
+    }
+
+    public @Nullable byte[] getIfPresent(Key key) {
+        return segment(key).get(key);
+    }
+
+    /**
+     * Adds the value to the cache, if not already present. Empty values and values larger than a
+     * segment are ignored.
+     */
+    public void put(Key key, byte[] value) {
+        segment(key).put(key, value);
+    }
+
+    public void invalidate(Key key) {
+        segment(key).remove(key);
+    }
+
+    public void invalidateAll() {
+        for (Segment s : segments) {
+            s.clear();
+        }
+    }
+
+    public void invalidateAll(CacheIdentifier prefix) {
+        final int expectedPrefix = prefix.prefix();
+        for (Segment s : segments) {
+            s.removeAll(expectedPrefix);
+        }
+    }
+
+    public long sizeBytes() {
+        long size = 0;
+        for (Segment s : segments) {
+            size += s.sizeBytes();
+        }
+        return size;
+    }
+
+    public long objectCount() {
+        long count = 0;
+        for (Segment s : segments) {
+            count += s.count();
+        }
+        return count;
+    }
+
+    public CacheStats getStats() {
+        long hits = 0, misses = 0, evictions = 0;
+        for (Segment s : segments) {
+            synchronized (s) {
+                hits += s.hitCount;
+                misses += s.missCount;
+                evictions += s.evictionCount;
+            }
+        }
+        return new CacheStats(hits, misses, 0, 0, 0, evictions);
+    }
+
+    private static class Entry {
+
+        final Key key;
+
+        final int offset;
+
+        final int length;
+
+        boolean referenced;
+
+        Entry(Key key, int offset, int length) {
+            this.key = key;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        int end() {
+            return offset + length;
+        }
+    }
+
+    private static class Segment {
+
+        private final ByteBuffer buffer;
+
+        private final Map<Key, Entry> index = new HashMap<>();
+
+        private final TreeMap<Integer, Entry> byOffset = new TreeMap<>();
+
+        private int hand;
+
+        private long sizeBytes;
+
+        long hitCount, missCount, evictionCount;
+
+        Segment(int capacity) {
+            this.buffer = ByteBuffer.allocateDirect(capacity);
+        }
+
+        synchronized boolean contains(Key key) {
+            return index.containsKey(key);
+        }
+
+        synchronized @Nullable byte[] get(Key key) {
+            Entry e = index.get(key);
+            if (e == null) {
+                missCount++;
+                return null;
+            }
+            hitCount++;
+            e.referenced = true;
+            byte[] value = new byte[e.length];
+            ByteBuffer src = buffer.duplicate();
+            src.position(e.offset);
+            src.get(value);
+            return value;
+        }
+
+        synchronized void put(Key key, byte[] value) {
+            final int length = value.length;
+            if (length == 0 || length > buffer.capacity() || index.containsKey(key)) {
+                return;
+            }
+            final int offset = allocate(length);
+            ByteBuffer dst = buffer.duplicate();
+            dst.position(offset);
+            dst.put(value);
+
+            Entry e = new Entry(key, offset, length);
+            index.put(key, e);
+            byOffset.put(Integer.valueOf(offset), e);
+            sizeBytes += length;
+        }
+
+        /**
+         * Advances the clock hand until there's a free region of {@code length} bytes, evicting
+         * unreferenced entries and clearing the reference bit of the others along the way.
+         */
+        private int allocate(final int length) {
+            final int capacity = buffer.capacity();
+            int runStart = hand;
+            // two full turns are enough, the first one clears all reference bits
+            for (int wraps = 0; wraps < 3;) {
+                Map.Entry<Integer, Entry> next = byOffset.ceilingEntry(Integer.valueOf(runStart));
+                final int nextStart = next == null ? capacity : next.getKey().intValue();
+                if (nextStart - runStart >= length) {
+                    hand = runStart + length;
+                    return runStart;
+                }
+                if (next == null) {
+                    runStart = 0;
+                    wraps++;
+                    continue;
+                }
+                Entry e = next.getValue();
+                if (e.referenced) {
+                    e.referenced = false;
+                    runStart = e.end();
+                } else {
+                    evict(e);
+                }
+            }
+            throw new IllegalStateException("Unable to allocate " + length + " bytes");
+        }
+
+        private void evict(Entry e) {
+            remove(e);
+            evictionCount++;
+        }
+
+        private void remove(Entry e) {
+            index.remove(e.key);
+            byOffset.remove(Integer.valueOf(e.offset));
+            sizeBytes -= e.length;
+        }
+
+        synchronized void remove(Key key) {
+            Entry e = index.get(key);
+            if (e != null) {
+                remove(e);
+            }
+        }
+
+        synchronized void removeAll(final int prefix) {
+            for (Iterator<Entry> it = index.values().iterator(); it.hasNext();) {
+                Entry e = it.next();
+                if (e.key.prefix() == prefix) {
+                    it.remove();
+                    byOffset.remove(Integer.valueOf(e.offset));
+                    sizeBytes -= e.length;
+                }
+            }
+        }
+
+        synchronized void clear() {
+            index.clear();
+            byOffset.clear();
+            sizeBytes = 0;
+            hand = 0;
+        }
+
+        synchronized long sizeBytes() {
+            return sizeBytes;
+        }
+
+        synchronized int count() {
+            return index.size();
+        }
+    }
+}
@@ -76,18 +76,75 @@ interface SharedCache {
      *         meaning no caching at all.
      */
     public static SharedCache build(final long maxCacheSizeBytes) {
-        return SharedCache.build(Impl.L1_CACHE_SIZE, maxCacheSizeBytes);
+        return SharedCache.build(Impl.L1_CACHE_SIZE, maxCacheSizeBytes, 0L);
+    }
+
+    /**
+     * Creates and returns a shared cache with the given maximum heap memory capacity in bytes, and
+     * an additional {@link OffHeapCache off-heap} tier of {@code offHeapSizeBytes} for the
+     * serialized objects evicted from the heap, if {@code offHeapSizeBytes > 0}.
+     * <p>
+     * The off-heap capacity is allocated upfront as direct memory, so the JVM's
+     * {@code -XX:MaxDirectMemorySize} must be large enough to hold it.
+     * 
+     * @throws IllegalArgumentException if {@code maxCacheSizeBytes} or {@code offHeapSizeBytes}
+     *         are lower than zero
+     */
+    public static SharedCache build(final long maxCacheSizeBytes, final long offHeapSizeBytes) {
+        return SharedCache.build(Impl.L1_CACHE_SIZE, maxCacheSizeBytes, offHeapSizeBytes);
+    }
+
+    /**
+     * Creates and returns a shared cache with the given maximum heap memory capacity in bytes, like
+     * {@link #build(long, long)}, but taking over the off-heap tier of {@code previous}, if it has
+     * one, instead of allocating a new one, so that resizing the cache never holds two off-heap
+     * tiers at once. {@code previous} is invalidated and shall not be used afterwards.
+     */
+    public static SharedCache resize(final SharedCache previous, final long maxCacheSizeBytes,
+            final long offHeapSizeBytes) {
+        checkArgument(maxCacheSizeBytes >= 0, "Cache size can't be < 0, 0 meaning no cache at all");
+        checkArgument(offHeapSizeBytes >= 0,
+                "Off-heap cache size can't be < 0, 0 meaning no off-heap cache");
+        previous.invalidateAll();
+        if (0L == maxCacheSizeBytes) {
+            return NO_CACHE;
+        }
+        @Nullable
+        OffHeapCache offHeapCache = null;
+        if (offHeapSizeBytes > 0) {
+            offHeapCache = previous instanceof Impl ? ((Impl) previous).offHeapCache : null;
+            if (offHeapCache == null) {
+                offHeapCache = new OffHeapCache(offHeapSizeBytes);
+            }
+        }
+        return build(Impl.L1_CACHE_SIZE, maxCacheSizeBytes, offHeapCache);
     }
 
     @VisibleForTesting
     static SharedCache build(int L1capacity, long maxCacheSizeBytes) {
+        return build(L1capacity, maxCacheSizeBytes, 0L);
+    }
+
+    @VisibleForTesting
+    static SharedCache build(int L1capacity, long maxCacheSizeBytes, long offHeapSizeBytes) {
         checkArgument(L1capacity >= 0);
         checkArgument(maxCacheSizeBytes >= 0, "Cache size can't be < 0, 0 meaning no cache at all");
+        checkArgument(offHeapSizeBytes >= 0,
+                "Off-heap cache size can't be < 0, 0 meaning no off-heap cache");
 
         if (0L == maxCacheSizeBytes) {
             return NO_CACHE;
         }
+        @Nullable
+        OffHeapCache offHeapCache = null;
+        if (offHeapSizeBytes > 0) {
+            offHeapCache = new OffHeapCache(offHeapSizeBytes);
+        }
+        return build(L1capacity, maxCacheSizeBytes, offHeapCache);
+    }
 
+    static SharedCache build(int L1capacity, long maxCacheSizeBytes,
+            @Nullable OffHeapCache offHeapCache) {
         int initialCapacityCount = 1_000_000;
         int concurrencyLevel = 16;
 
@@ -99,12 +156,12 @@ interface SharedCache {
         cacheBuilder.concurrencyLevel(concurrencyLevel);
         cacheBuilder.recordStats();
 
-        Impl.SizeTracker sizeTracker = new Impl.SizeTracker();
+        Impl.SizeTracker sizeTracker = new Impl.SizeTracker(offHeapCache);
         cacheBuilder.removalListener(sizeTracker);
 
         Cache<Key, byte[]> byteCache = cacheBuilder.build();
 
-        return new Impl(L1capacity, byteCache, sizeTracker);
+        return new Impl(L1capacity, byteCache, sizeTracker, offHeapCache);
     }
 
     default boolean contains(Key id) {
@@ -143,6 +200,29 @@ interface SharedCache {
         return new CacheStats(0, 0, 0, 0, 0, 0);
     }
 
+    /**
+     * @return the stats of the L1 cache of parsed {@link RevTree}s
+     */
+    default CacheStats getL1Stats() {
+        return new CacheStats(0, 0, 0, 0, 0, 0);
+    }
+
+    default long l1ObjectCount() {
+        return 0L;
+    }
+
+    default long offHeapSizeBytes() {
+        return 0L;
+    }
+
+    default long offHeapObjectCount() {
+        return 0L;
+    }
+
+    default CacheStats getOffHeapStats() {
+        return new CacheStats(0, 0, 0, 0, 0, 0);
+    }
+
     static class Impl implements SharedCache {
         /**
          * Executor service used to encode a {@link RevObject} to a {@code byte[]} and add it to the
@@ -183,7 +263,8 @@ interface SharedCache {
 
         /**
          * Used to track the size in bytes of the cache, since {@link Cache} can return only the
-         * approximate number of entries but not the accumulated {@link Weigher#weigh weight}
+         * approximate number of entries but not the accumulated {@link Weigher#weigh weight}, and to
+         * move the entries evicted due to size constraints to the off-heap cache, if any
          *
          */
         private static class SizeTracker implements RemovalListener<Key, byte[]> {
@@ -201,12 +282,25 @@ interface SharedCache {
 
             public final AtomicLong size = new AtomicLong();
 
+            private final @Nullable OffHeapCache offHeapCache;
+
+            SizeTracker() {
+                this(null);
+            }
+
+            SizeTracker(@Nullable OffHeapCache offHeapCache) {
+                this.offHeapCache = offHeapCache;
+            }
+
             @Override
             public void onRemoval(RemovalNotification<Key, byte[]> notification) {
                 Key key = notification.getKey();
                 byte[] value = notification.getValue();
                 int weigh = WEIGHER.weigh(key, value);
                 size.addAndGet(-weigh);
+                if (offHeapCache != null && RemovalCause.SIZE == notification.getCause()) {
+                    offHeapCache.put(key, value);
+                }
             }
 
             public void inserted(Key id, byte[] value) {
@@ -238,17 +332,31 @@ interface SharedCache {
          */
         final Cache<Key, byte[]> L2Cache;
 
+        /**
+         * The optional off-heap tier, contains the serialized RevObjects evicted from the
+         * {@link #L2Cache} due to size constraints. Objects found here are promoted back to the
+         * {@code L2Cache}.
+         */
+        final @Nullable OffHeapCache offHeapCache;
+
         private final SizeTracker sizeTracker;
 
         Impl() {
             this.L1Cache = CacheBuilder.newBuilder().maximumSize(0).build();
             this.L2Cache = CacheBuilder.newBuilder().maximumSize(0).build();
             this.sizeTracker = new SizeTracker();
+            this.offHeapCache = null;
         }
 
         Impl(final int L1Capacity, Cache<Key, byte[]> byteCache, SizeTracker sizeTracker) {
+            this(L1Capacity, byteCache, sizeTracker, null);
+        }
+
+        Impl(final int L1Capacity, Cache<Key, byte[]> byteCache, SizeTracker sizeTracker,
+                @Nullable OffHeapCache offHeapCache) {
             this.L2Cache = byteCache;
             this.sizeTracker = sizeTracker;
+            this.offHeapCache = offHeapCache;
 
             RemovalListener<Key, RevObject> L1WriteBack = (notification) -> {
                 RemovalCause cause = notification.getCause();
@@ -265,12 +373,14 @@ interface SharedCache {
                     .concurrencyLevel(1)//
                     .maximumSize(L1Capacity)//
                     .softValues()//
+                    .recordStats()//
                     .removalListener(L1WriteBack)//
                     .build();
         }
 
         public boolean contains(Key id) {
-            boolean contains = L1Cache.asMap().containsKey(id) || L2Cache.asMap().containsKey(id);
+            boolean contains = L1Cache.asMap().containsKey(id) || L2Cache.asMap().containsKey(id)
+                    || (offHeapCache != null && offHeapCache.contains(id));
             return contains;
         }
 
@@ -280,11 +390,17 @@ interface SharedCache {
 
             L1Cache.cleanUp();
             L2Cache.cleanUp();
+            if (offHeapCache != null) {
+                offHeapCache.invalidateAll();
+            }
         }
 
         public void invalidateAll(CacheIdentifier prefix) {
             invalidateAll(prefix, L1Cache.asMap());
             invalidateAll(prefix, L2Cache.asMap());
+            if (offHeapCache != null) {
+                offHeapCache.invalidateAll(prefix);
+            }
         }
 
         private void invalidateAll(CacheIdentifier prefix, ConcurrentMap<Key, ?> map) {
@@ -303,6 +419,9 @@ interface SharedCache {
 
         public void invalidate(Key id) {
             L2Cache.invalidate(id);
+            if (offHeapCache != null) {
+                offHeapCache.invalidate(id);
+            }
         }
 
         /**
@@ -312,6 +431,8 @@ interface SharedCache {
          * As {@link RevTree}s are frequently requested and tend to be slower to parse, cache miss
          * to the L1 cache that resulted in a cache hit to the L2 cache, and where the resulting
          * object is a {@code RevTree}, will result in the tree being added back to the L1 cache.
+         * <p>
+         * Likewise, objects found in the off-heap cache are added back to the L2 cache.
          */
         public @Nullable RevObject getIfPresent(Key key) {
             RevObject obj = L1Cache.getIfPresent(key);
@@ -319,6 +440,12 @@ interface SharedCache {
                 // call cache.getIfPresent instead of map.get() or the cache stats don't record the
                 // hits/misses
                 byte[] val = L2Cache.getIfPresent(key);
+                if (val == null && offHeapCache != null) {
+                    val = offHeapCache.getIfPresent(key);
+                    if (val != null && null == L2Cache.asMap().putIfAbsent(key, val)) {
+                        sizeTracker.inserted(key, val);
+                    }
+                }
                 if (val != null) {
                     obj = decode(key, val);
                     if (TYPE.TREE == obj.getType()) {// keep L1 hot on tree objects
@@ -400,5 +527,26 @@ interface SharedCache {
         public CacheStats getStats() {
             return L2Cache.stats();
         }
+
+        public CacheStats getL1Stats() {
+            return L1Cache.stats();
+        }
+
+        public long l1ObjectCount() {
+            return L1Cache.size();
+        }
+
+        public long offHeapSizeBytes() {
+            return offHeapCache == null ? 0L : offHeapCache.sizeBytes();
+        }
+
+        public long offHeapObjectCount() {
+            return offHeapCache == null ? 0L : offHeapCache.objectCount();
+        }
+
+        public CacheStats getOffHeapStats() {
+            return offHeapCache == null ? new CacheStats(0, 0, 0, 0, 0, 0)
+                    : offHeapCache.getStats();
+        }
     }
 }
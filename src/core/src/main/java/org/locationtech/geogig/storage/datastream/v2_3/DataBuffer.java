@@ -124,6 +124,36 @@ class DataBuffer {
         return ObjectId.createNoClone(buff);
     }
 
+    /**
+     * Compares the object id stored at {@code offset} against {@code id} without creating an
+     * {@link ObjectId} instance. Uses absolute gets, hence it's thread safe.
+     */
+    public boolean objectIdEquals(final int offset, final ObjectId id) {
+        for (int i = 0; i < ObjectId.NUM_BYTES; i++) {
+            if ((raw.get(offset + i) & 0xFF) != id.byteN(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares the object id stored at {@code offset} against the one stored at
+     * {@code otherOffset} in {@code other} without creating {@link ObjectId} instances.
+     */
+    public boolean objectIdEquals(final int offset, final DataBuffer other,
+            final int otherOffset) {
+        final ByteBuffer otherRaw = other.raw;
+        // compare longs first, object ids are likely to differ in their first bytes
+        if (raw.getLong(offset) != otherRaw.getLong(otherOffset)) {
+            return false;
+        }
+        if (raw.getLong(offset + 8) != otherRaw.getLong(otherOffset + 8)) {
+            return false;
+        }
+        return raw.getInt(offset + 16) == otherRaw.getInt(otherOffset + 16);
+    }
+
     public void get(byte[] buff, final int offset) {
         // duplicate() instead of mark()/reset() to preserve thread safety
         ByteBuffer raw = this.raw.duplicate();
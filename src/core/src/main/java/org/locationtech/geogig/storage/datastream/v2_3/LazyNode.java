@@ -76,19 +76,12 @@ class LazyNode extends Node {
 
     @Override
     public boolean intersects(Envelope env) {
-        Optional<Envelope> bounds = bounds();
-        if (bounds.isPresent()) {
-            return env.intersects(bounds.get());
-        }
-        return false;
+        return set.intersects(nodeIndex, boundsIndex, env);
     }
 
     @Override
     public void expand(Envelope env) {
-        Optional<Envelope> bounds = bounds();
-        if (bounds.isPresent()) {
-            env.expandToInclude(bounds.get());
-        }
+        set.expand(nodeIndex, boundsIndex, env);
     }
 
     @Override
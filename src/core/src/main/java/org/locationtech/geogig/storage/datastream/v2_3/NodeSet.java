@@ -412,10 +412,25 @@ class NodeSet {
         return nodeType;
     }
 
-    public ObjectId getObjectId(int objectIdIndex) {
+    boolean hasMetadataId(int nodeIndex) {
+        return header.nodeFlags.metadataPresent(nodeIndex);
+    }
+
+    boolean hasBounds(int nodeIndex) {
+        return header.nodeFlags.boundsPresent(nodeIndex);
+    }
+
+    boolean hasExtraData(int nodeIndex) {
+        return header.nodeFlags.extraDataPresent(nodeIndex);
+    }
+
+    int objectIdOffset(int objectIdIndex) {
         Preconditions.checkArgument(objectIdIndex > -1);
-        final int offset = header.objectIdsOffset() + ObjectId.NUM_BYTES * objectIdIndex;
-        return data.getObjectId(offset);
+        return header.objectIdsOffset() + ObjectId.NUM_BYTES * objectIdIndex;
+    }
+
+    public ObjectId getObjectId(int objectIdIndex) {
+        return data.getObjectId(objectIdOffset(objectIdIndex));
     }
 
     public Optional<ObjectId> getMetadataId(final int objectIdIndex) {
@@ -442,6 +457,42 @@ class NodeSet {
         return Optional.of(env);
     }
 
+    /**
+     * Allocation free equivalent of {@code getBounds(nodeIndex, boundsIndex)} followed by
+     * {@link Envelope#intersects(Envelope)}
+     */
+    public boolean intersects(final int nodeIndex, final int boundsIndex, final Envelope env) {
+        if (-1 == boundsIndex || env.isNull()) {
+            return false;
+        }
+        final boolean isPoint = header.nodeFlags.isPoint(nodeIndex);
+        CoordinateSequence coordSeq = boundsSequence.get();
+        double minx = coordSeq.getOrdinate(boundsIndex, 0);
+        double miny = coordSeq.getOrdinate(boundsIndex, 1);
+        double maxx = isPoint ? minx : coordSeq.getOrdinate(boundsIndex + 1, 0);
+        double maxy = isPoint ? miny : coordSeq.getOrdinate(boundsIndex + 1, 1);
+        return !(minx > env.getMaxX() || maxx < env.getMinX() || miny > env.getMaxY()
+                || maxy < env.getMinY());
+    }
+
+    /**
+     * Allocation free equivalent of {@code getBounds(nodeIndex, boundsIndex)} followed by
+     * {@link Envelope#expandToInclude(Envelope)}
+     */
+    public void expand(final int nodeIndex, final int boundsIndex, final Envelope env) {
+        if (-1 == boundsIndex) {
+            return;
+        }
+        final boolean isPoint = header.nodeFlags.isPoint(nodeIndex);
+        CoordinateSequence coordSeq = boundsSequence.get();
+        env.expandToInclude(coordSeq.getOrdinate(boundsIndex, 0),
+                coordSeq.getOrdinate(boundsIndex, 1));
+        if (!isPoint) {
+            env.expandToInclude(coordSeq.getOrdinate(boundsIndex + 1, 0),
+                    coordSeq.getOrdinate(boundsIndex + 1, 1));
+        }
+    }
+
     public Map<String, Object> getExtraData(final int nodeExtraDataRelOffset) {
         if (nodeExtraDataRelOffset < 0) {
             return ImmutableMap.of();
@@ -457,46 +508,24 @@ class NodeSet {
 
     public ImmutableList<Node> build() {
         ImmutableList.Builder<Node> builder = ImmutableList.builder();
-        final int size = size();
-        final int dataOffset = header.nodeDataSectionOffset();
-        DataInput in = data.asDataInput(dataOffset);
-        try {
-            for (int i = 0; i < size; i++) {
-                Node node = buildNode(i, in);
-                builder.add(node);
-            }
-        } catch (IOException e) {
-            throw Throwables.propagate(e);
+        NodeSetCursor cursor = cursor();
+        while (cursor.next()) {
+            builder.add(cursor.node());
         }
         return builder.build();
     }
 
+    /**
+     * @return a cursor over the nodes of this set that reads straight from the serialized data
+     */
+    public NodeSetCursor cursor() {
+        return new NodeSetCursor(this);
+    }
+
     public String getName(final int nameIndex) {
         StringTable stringTable = data.getStringTable().get();
         String name = stringTable.get(nameIndex);
         return name;
     }
 
-    private Node buildNode(final int nodeIndex, final DataInput in) throws IOException {
-        int nameIndex = readUnsignedVarInt(in);
-        checkState(nameIndex > -1);
-        int oidIndex = readUnsignedVarInt(in);
-        checkState(nameIndex > -1);
-        int mdIdIndex = -1;
-        int boundsIndex = -1;
-        int extraDataRelOffset = -1;
-        NodeFlags flags = header.nodeFlags;
-        if (flags.metadataPresent(nodeIndex)) {
-            mdIdIndex = readUnsignedVarInt(in);
-        }
-        if (flags.boundsPresent(nodeIndex)) {
-            boundsIndex = readUnsignedVarInt(in);
-        }
-        if (flags.extraDataPresent(nodeIndex)) {
-            extraDataRelOffset = readUnsignedVarInt(in);
-        }
-        return new LazyNode(this, nodeIndex, nameIndex, oidIndex, mdIdIndex, boundsIndex,
-                extraDataRelOffset);
-    }
-
 }
@@ -0,0 +1,121 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.storage.datastream.v2_3;
+
+import static com.google.common.base.Preconditions.checkState;
+import static org.locationtech.geogig.storage.datastream.Varint.readUnsignedVarInt;
+
+import java.io.DataInput;
+import java.io.IOException;
+
+import org.locationtech.geogig.model.Node;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevObject.TYPE;
+import org.locationtech.geogig.model.impl.NodeCursor;
+
+import com.google.common.base.Throwables;
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * A {@link NodeCursor} that decodes the node data section of a {@link NodeSet} sequentially,
+ * keeping only the indexes of the current node, and answers questions about it directly from the
+ * serialized tree.
+ */
+class NodeSetCursor implements NodeCursor {
+
+    private final NodeSet set;
+
+    private final int size;
+
+    private DataInput in;
+
+    private int nodeIndex = -1;
+
+    private int nameIndex, oidIndex, mdIdIndex, boundsIndex, extraDataRelOffset;
+
+    NodeSetCursor(NodeSet set) {
+        this.set = set;
+        this.size = set.size();
+    }
+
+    @Override
+    public boolean next() {
+        if (nodeIndex + 1 >= size) {
+            nodeIndex = size;
+            return false;
+        }
+        nodeIndex++;
+        if (in == null) {
+            in = set.data.asDataInput(set.header.nodeDataSectionOffset());
+        }
+        try {
+            nameIndex = readUnsignedVarInt(in);
+            oidIndex = readUnsignedVarInt(in);
+            mdIdIndex = set.hasMetadataId(nodeIndex) ? readUnsignedVarInt(in) : -1;
+            boundsIndex = set.hasBounds(nodeIndex) ? readUnsignedVarInt(in) : -1;
+            extraDataRelOffset = set.hasExtraData(nodeIndex) ? readUnsignedVarInt(in) : -1;
+        } catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+        return true;
+    }
+
+    private void checkPositioned() {
+        checkState(nodeIndex > -1 && nodeIndex < size, "cursor is not positioned at a node");
+    }
+
+    @Override
+    public TYPE getType() {
+        return set.getType();
+    }
+
+    @Override
+    public String getName() {
+        checkPositioned();
+        return set.getName(nameIndex);
+    }
+
+    @Override
+    public ObjectId getObjectId() {
+        checkPositioned();
+        return set.getObjectId(oidIndex);
+    }
+
+    @Override
+    public boolean objectIdEquals(NodeCursor other) {
+        checkPositioned();
+        final int offset = set.objectIdOffset(oidIndex);
+        if (other instanceof NodeSetCursor) {
+            NodeSetCursor o = (NodeSetCursor) other;
+            o.checkPositioned();
+            return set.data.objectIdEquals(offset, o.set.data, o.set.objectIdOffset(o.oidIndex));
+        }
+        return set.data.objectIdEquals(offset, other.getObjectId());
+    }
+
+    @Override
+    public boolean intersects(Envelope env) {
+        checkPositioned();
+        return set.intersects(nodeIndex, boundsIndex, env);
+    }
+
+    @Override
+    public void expand(Envelope env) {
+        checkPositioned();
+        set.expand(nodeIndex, boundsIndex, env);
+    }
+
+    @Override
+    public Node node() {
+        checkPositioned();
+        return new LazyNode(set, nodeIndex, nameIndex, oidIndex, mdIdIndex, boundsIndex,
+                extraDataRelOffset);
+    }
+}
@@ -23,6 +23,7 @@ import org.locationtech.geogig.model.Node;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.RevObject.TYPE;
 import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.impl.NodeCursor;
 import org.locationtech.geogig.plumbing.HashObject;
 
 import com.google.common.annotations.Beta;
@@ -104,6 +105,22 @@ class RevTreeFormat {
         return nodes;
     }
 
+    static NodeCursor treesCursor(DataBuffer data) {
+        final int offset = data.tail().getOffsetOfTreesNodeset();
+        if (0 == offset) {
+            return NodeSet.EMPTY_TREES.cursor();
+        }
+        return NodeSet.decode(data, offset, TYPE.TREE).cursor();
+    }
+
+    static NodeCursor featuresCursor(DataBuffer data) {
+        final int offset = data.tail().getOffsetOfFeaturesNodeset();
+        if (0 == offset) {
+            return NodeSet.EMPTY_FEATURES.cursor();
+        }
+        return NodeSet.decode(data, offset, TYPE.FEATURE).cursor();
+    }
+
     static ImmutableSortedMap<Integer, Bucket> buckets(DataBuffer data) {
         final int offset = data.tail().getOffsetOfBuckets();
         if (0 == offset) {
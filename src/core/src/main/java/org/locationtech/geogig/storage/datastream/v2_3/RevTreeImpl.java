@@ -16,11 +16,12 @@ import org.locationtech.geogig.model.Node;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.model.impl.AbstractRevObject;
+import org.locationtech.geogig.model.impl.NodeCursor;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSortedMap;
 
-class RevTreeImpl implements RevTree {
+class RevTreeImpl implements RevTree, NodeCursor.Source {
 
     private final ObjectId id;
 
@@ -71,6 +72,16 @@ class RevTreeImpl implements RevTree {
         return RevTreeFormat.features(data);
     }
 
+    @Override
+    public NodeCursor treesCursor() {
+        return RevTreeFormat.treesCursor(data);
+    }
+
+    @Override
+    public NodeCursor featuresCursor() {
+        return RevTreeFormat.featuresCursor(data);
+    }
+
     @Override
     public ImmutableSortedMap<Integer, Bucket> buckets() {
         return RevTreeFormat.buckets(data);
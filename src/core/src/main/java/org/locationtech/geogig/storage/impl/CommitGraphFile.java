@@ -0,0 +1,681 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.storage.impl;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.storage.CommitGraph;
+
+import com.google.common.base.Function;
+import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ListMultimap;
+
+/**
+ * {@link CommitGraph} implementation that stores the commit graph in an append-only buffer,
+ * either memory-mapped from a file or on the heap.
+ * <p>
+ * The buffer starts with a 16 bytes header (magic number, format version, and the offset where
+ * the next record will be written) followed by one record per commit, laid out as:
+ *
+ * <pre>
+ * <code>
+ * commit id:       20 bytes
+ * generation:      int
+ * timestamp:       long
+ * parent count:    int
+ * parent offsets:  int[parent count]
+ * </code>
+ * </pre>
+ *
+ * Parents are referenced by the offset of their record in the buffer instead of by id, so that
+ * walking the history never needs to go through the {@code ObjectId} to offset index, which is
+ * the only part kept on the heap for file backed graphs and is rebuilt when the file is opened.
+ * <p>
+ * Since a record can only point to records written before it, commits whose parents are not yet
+ * indexed are held in memory until all their parents are added (e.g. when a fetch inserts commits
+ * children first). At most {@value #MAX_PENDING} commits are held, the oldest ones are discarded
+ * beyond that. Commits whose history is not indexed, either because the graph was created for an
+ * existing repository or because they were discarded, are indexed by {@link #index(ObjectId,
+ * Function)}, which resolves the missing ancestors from the object database. Until then they're
+ * just not {@link #contains(ObjectId) contained} in the graph and callers fall back to the
+ * regular graph traversal for them.
+ * <p>
+ * File backed instances are shared by all the callers that {@link #open(File) open} the same file
+ * and the file is unmapped when the last of them {@link #close() closes} it.
+ */
+public class CommitGraphFile implements CommitGraph, Closeable {
+
+    private static final int MAGIC = 0x47474347;// GGCG
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 16;
+
+    private static final int END_OFFSET = 8;
+
+    private static final int GENERATION = ObjectId.NUM_BYTES;
+
+    private static final int TIMESTAMP = GENERATION + 4;
+
+    private static final int PARENT_COUNT = TIMESTAMP + 8;
+
+    private static final int PARENTS = PARENT_COUNT + 4;
+
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+
+    /**
+     * Maximum number of commits held in memory waiting for their parents, and of commits known to
+     * have unresolvable ancestors
+     */
+    static final int MAX_PENDING = 10_000;
+
+    private static final int LEFT = 1, RIGHT = 2, STALE = 4, RESULT = 8;
+
+    private static final Map<File, CommitGraphFile> OPEN_FILES = new HashMap<>();
+
+    private final @Nullable File file;
+
+    private @Nullable FileChannel channel;
+
+    private ByteBuffer buffer;
+
+    private int end;
+
+    private int refCount;
+
+    private final Map<ObjectId, Integer> index = new HashMap<>();
+
+    /**
+     * Commits waiting for their parents, in insertion order so that the oldest are discarded first
+     */
+    private final Map<ObjectId, PendingCommit> pending = new LinkedHashMap<>();
+
+    private final ListMultimap<ObjectId, ObjectId> waitingOnParent = ArrayListMultimap.create();
+
+    /**
+     * Commits that {@link #index(ObjectId, Function)} found to have ancestors that can't be
+     * resolved, so that indexing their descendants doesn't walk their history again. Cleared when
+     * any of them is {@link #add added}, since its descendants may be resolvable now.
+     */
+    private final Set<ObjectId> unresolvable = new HashSet<>();
+
+    private final Comparator<Integer> newestFirst = (o1, o2) -> {
+        int c = Integer.compare(generation(o2), generation(o1));
+        if (c == 0) {
+            c = Long.compare(timestamp(o2), timestamp(o1));
+        }
+        return c == 0 ? Integer.compare(o2, o1) : c;
+    };
+
+    private CommitGraphFile(@Nullable File file) {
+        this.file = file;
+    }
+
+    /**
+     * @return a new commit graph whose buffer lives on the heap
+     */
+    public static CommitGraphFile inMemory() {
+        CommitGraphFile graph = new CommitGraphFile(null);
+        graph.buffer = ByteBuffer.allocate(INITIAL_CAPACITY);
+        graph.initHeader();
+        return graph;
+    }
+
+    /**
+     * Opens the commit graph stored at {@code file}, creating the file if it doesn't exist. Callers
+     * must {@link #close()} the returned instance when done.
+     */
+    public static CommitGraphFile open(File file) {
+        checkNotNull(file);
+        final File key = file.getAbsoluteFile();
+        synchronized (OPEN_FILES) {
+            CommitGraphFile graph = OPEN_FILES.get(key);
+            if (graph == null) {
+                graph = new CommitGraphFile(key);
+                try {
+                    graph.load();
+                } catch (IOException e) {
+                    throw Throwables.propagate(e);
+                }
+                OPEN_FILES.put(key, graph);
+            }
+            graph.refCount++;
+            return graph;
+        }
+    }
+
+    private void load() throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        final long size = channel.size();
+        checkState(size <= Integer.MAX_VALUE, "Commit graph file %s is too big", file);
+        if (size < HEADER_SIZE) {
+            map(INITIAL_CAPACITY);
+            initHeader();
+            return;
+        }
+        map((int) size);
+        checkState(MAGIC == buffer.getInt(0), "%s is not a commit graph file", file);
+        checkState(VERSION == buffer.getInt(4), "Unsupported commit graph version %s in %s",
+                buffer.getInt(4), file);
+        final long endOffset = buffer.getLong(END_OFFSET);
+        checkState(endOffset >= HEADER_SIZE && endOffset <= size,
+                "Commit graph file %s is corrupt, rebuild the graph database", file);
+        this.end = (int) endOffset;
+        for (int offset = HEADER_SIZE; offset < end; offset = next(offset)) {
+            index.put(id(offset), Integer.valueOf(offset));
+        }
+    }
+
+    private void map(int capacity) throws IOException {
+        this.buffer = channel.map(MapMode.READ_WRITE, 0, capacity);
+    }
+
+    private void initHeader() {
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        setEnd(HEADER_SIZE);
+    }
+
+    private void setEnd(int end) {
+        this.end = end;
+        buffer.putLong(END_OFFSET, end);
+    }
+
+    /**
+     * Decrements the reference count of a file backed graph and unmaps it when no longer in use.
+     * Does nothing for heap based graphs.
+     */
+    @Override
+    public void close() {
+        if (file == null) {
+            return;
+        }
+        synchronized (OPEN_FILES) {
+            if (--refCount > 0) {
+                return;
+            }
+            OPEN_FILES.remove(file);
+        }
+        synchronized (this) {
+            try {
+                ((MappedByteBuffer) buffer).force();
+                channel.close();
+            } catch (IOException e) {
+                throw Throwables.propagate(e);
+            } finally {
+                channel = null;
+                index.clear();
+                pending.clear();
+                waitingOnParent.clear();
+                unresolvable.clear();
+            }
+        }
+    }
+
+    /**
+     * Adds a commit to the graph. The commit is written right away if all its parents are already
+     * in the graph, or held in memory until they are.
+     *
+     * @return {@code false} if the commit was already added, {@code true} otherwise
+     */
+    public synchronized boolean add(ObjectId commitId, List<ObjectId> parentIds, long timestamp) {
+        checkNotNull(commitId);
+        checkNotNull(parentIds);
+        if (index.containsKey(commitId) || pending.containsKey(commitId)) {
+            return false;
+        }
+        if (unresolvable.contains(commitId)) {
+            unresolvable.clear();
+        }
+        PendingCommit commit = new PendingCommit(commitId, parentIds, timestamp);
+        boolean ready = true;
+        for (ObjectId parent : parentIds) {
+            if (!index.containsKey(parent)) {
+                ready = false;
+                waitingOnParent.put(parent, commitId);
+            }
+        }
+        if (ready) {
+            append(commit);
+            appendWaitingChildren(commitId);
+        } else {
+            pending.put(commitId, commit);
+            discardOldestPending();
+        }
+        return true;
+    }
+
+    private void discardOldestPending() {
+        Iterator<PendingCommit> oldest = pending.values().iterator();
+        while (pending.size() > MAX_PENDING) {
+            PendingCommit discarded = oldest.next();
+            oldest.remove();
+            for (ObjectId parent : discarded.parents) {
+                waitingOnParent.remove(parent, discarded.id);
+            }
+        }
+    }
+
+    private void removePending(PendingCommit commit) {
+        if (pending.remove(commit.id) != null) {
+            for (ObjectId parent : commit.parents) {
+                waitingOnParent.remove(parent, commit.id);
+            }
+        }
+    }
+
+    /**
+     * Indexes {@code commitId} and its ancestors that are not indexed yet. Pending commits are
+     * taken from memory, and any other commit is resolved through {@code commits}. If an ancestor
+     * can't be resolved, the commits that depend on it are not indexed and are remembered as
+     * unresolvable until that ancestor is {@link #add added}.
+     * <p>
+     * The graph is only locked to append each commit once all its parents are, not while
+     * resolving them, so that indexing the history of a large repository doesn't hold back the
+     * commits being {@link #add added} meanwhile.
+     */
+    @Override
+    public boolean index(final ObjectId commitId,
+            Function<ObjectId, Optional<RevCommit>> commits) {
+        checkNotNull(commitId);
+        checkNotNull(commits);
+
+        final Map<ObjectId, PendingCommit> resolved = new HashMap<>();
+        // depth first, a commit is appended once all its parents are
+        final Deque<ObjectId> stack = new ArrayDeque<>();
+        stack.push(commitId);
+        while (!stack.isEmpty()) {
+            final ObjectId id = stack.peek();
+            if (contains(id)) {
+                stack.pop();
+                resolved.remove(id);
+                continue;
+            }
+            PendingCommit commit = resolved.get(id);
+            if (commit == null) {
+                commit = pendingOrNull(id);
+                if (commit == null && !isUnresolvable(id)) {
+                    commit = resolve(id, commits);
+                }
+                if (commit == null) {
+                    markUnresolvable(id, resolved.keySet());
+                    return false;
+                }
+                resolved.put(id, commit);
+            }
+            boolean ready = true;
+            for (ObjectId parent : commit.parents) {
+                if (!contains(parent)) {
+                    ready = false;
+                    stack.push(parent);
+                }
+            }
+            if (ready) {
+                if (!appendResolved(commit)) {
+                    // the graph was cleared or closed meanwhile
+                    return false;
+                }
+                stack.pop();
+                resolved.remove(id);
+            }
+        }
+        return true;
+    }
+
+    private synchronized @Nullable PendingCommit pendingOrNull(ObjectId id) {
+        return pending.get(id);
+    }
+
+    private synchronized boolean isUnresolvable(ObjectId id) {
+        return unresolvable.contains(id);
+    }
+
+    private synchronized boolean appendResolved(PendingCommit commit) {
+        if (isClosed() || !index.keySet().containsAll(commit.parents)) {
+            return false;
+        }
+        if (!index.containsKey(commit.id)) {
+            removePending(commit);
+            append(commit);
+            appendWaitingChildren(commit.id);
+        }
+        return true;
+    }
+
+    private boolean isClosed() {
+        return file != null && channel == null;
+    }
+
+    private @Nullable PendingCommit resolve(ObjectId id,
+            Function<ObjectId, Optional<RevCommit>> commits) {
+        Optional<RevCommit> commit = commits.apply(id);
+        if (commit.isPresent()) {
+            RevCommit c = commit.get();
+            return new PendingCommit(id, c.getParentIds(), c.getCommitter().getTimestamp());
+        }
+        return null;
+    }
+
+    private synchronized void markUnresolvable(ObjectId missing, Set<ObjectId> descendants) {
+        if (unresolvable.size() + descendants.size() >= MAX_PENDING) {
+            unresolvable.clear();
+        }
+        unresolvable.add(missing);
+        for (ObjectId id : descendants) {
+            if (unresolvable.size() >= MAX_PENDING) {
+                break;
+            }
+            if (!index.containsKey(id)) {
+                unresolvable.add(id);
+            }
+        }
+    }
+
+    private void appendWaitingChildren(ObjectId appended) {
+        Deque<ObjectId> parents = new ArrayDeque<>();
+        parents.add(appended);
+        while (!parents.isEmpty()) {
+            ObjectId parent = parents.poll();
+            for (ObjectId childId : waitingOnParent.removeAll(parent)) {
+                PendingCommit child = pending.get(childId);
+                if (child != null && index.keySet().containsAll(child.parents)) {
+                    removePending(child);
+                    append(child);
+                    parents.add(childId);
+                }
+            }
+        }
+    }
+
+    private void append(PendingCommit commit) {
+        final int parentCount = commit.parents.size();
+        final int[] parents = new int[parentCount];
+        int generation = 0;
+        for (int i = 0; i < parentCount; i++) {
+            parents[i] = index.get(commit.parents.get(i)).intValue();
+            generation = Math.max(generation, generation(parents[i]));
+        }
+        generation++;
+
+        final int offset = end;
+        ensureCapacity(PARENTS + 4 * parentCount);
+        ByteBuffer target = buffer.duplicate();
+        target.position(offset);
+        target.put(commit.id.getRawValue());
+        target.putInt(generation);
+        target.putLong(commit.timestamp);
+        target.putInt(parentCount);
+        for (int p : parents) {
+            target.putInt(p);
+        }
+        setEnd(target.position());
+        index.put(commit.id, Integer.valueOf(offset));
+    }
+
+    private void ensureCapacity(final int recordSize) {
+        final long required = (long) end + recordSize;
+        final int capacity = buffer.capacity();
+        if (required <= capacity) {
+            return;
+        }
+        checkState(required <= Integer.MAX_VALUE, "Commit graph is full");
+        final int newCapacity = (int) Math.min(Integer.MAX_VALUE,
+                Math.max(required, 2L * capacity));
+        if (file == null) {
+            ByteBuffer grown = ByteBuffer.allocate(newCapacity);
+            ByteBuffer current = buffer.duplicate();
+            current.clear();
+            grown.put(current);
+            this.buffer = grown;
+        } else {
+            try {
+                map(newCapacity);
+            } catch (IOException e) {
+                throw Throwables.propagate(e);
+            }
+        }
+    }
+
+    /**
+     * Removes all the commits from the graph
+     */
+    public synchronized void clear() {
+        index.clear();
+        pending.clear();
+        waitingOnParent.clear();
+        unresolvable.clear();
+        setEnd(HEADER_SIZE);
+    }
+
+    @Override
+    public synchronized boolean contains(ObjectId commitId) {
+        return index.containsKey(commitId);
+    }
+
+    @Override
+    public synchronized long size() {
+        return index.size();
+    }
+
+    /**
+     * @return the number of commits held in memory waiting for their parents
+     */
+    synchronized int pendingSize() {
+        return pending.size();
+    }
+
+    @Override
+    public synchronized int getGeneration(ObjectId commitId) {
+        Integer offset = index.get(commitId);
+        return offset == null ? GENERATION_UNKNOWN : generation(offset.intValue());
+    }
+
+    @Override
+    public synchronized long getTimestamp(ObjectId commitId) {
+        return timestamp(offset(commitId));
+    }
+
+    @Override
+    public synchronized ImmutableList<ObjectId> getParents(ObjectId commitId) {
+        final int offset = offset(commitId);
+        final int parentCount = parentCount(offset);
+        ImmutableList.Builder<ObjectId> parents = ImmutableList.builder();
+        for (int i = 0; i < parentCount; i++) {
+            parents.add(id(parent(offset, i)));
+        }
+        return parents.build();
+    }
+
+    @Override
+    public synchronized boolean isAncestor(ObjectId ancestor, ObjectId descendant) {
+        return isAncestor(offset(ancestor), offset(descendant));
+    }
+
+    private boolean isAncestor(final int ancestor, final int descendant) {
+        if (ancestor == descendant) {
+            return true;
+        }
+        final int minGeneration = generation(ancestor);
+        if (generation(descendant) <= minGeneration) {
+            return false;
+        }
+        Set<Integer> visited = new HashSet<>();
+        Deque<Integer> stack = new ArrayDeque<>();
+        stack.push(Integer.valueOf(descendant));
+        while (!stack.isEmpty()) {
+            final int offset = stack.pop().intValue();
+            final int parentCount = parentCount(offset);
+            for (int i = 0; i < parentCount; i++) {
+                final int parent = parent(offset, i);
+                if (parent == ancestor) {
+                    return true;
+                }
+                // only commits with a greater generation can have the ancestor in their history
+                if (generation(parent) > minGeneration && visited.add(Integer.valueOf(parent))) {
+                    stack.push(Integer.valueOf(parent));
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Walks the history of both commits newest generation first, painting each commit with the
+     * side(s) it's reachable from. Commits reachable from both sides are common ancestors, and
+     * their own history is painted as stale, since it can't contain a lower common ancestor. The
+     * walk stops as soon as only stale commits are left to visit.
+     */
+    @Override
+    public synchronized Optional<ObjectId> findLowestCommonAncestor(ObjectId left,
+            ObjectId right) {
+        final int leftOffset = offset(left);
+        final int rightOffset = offset(right);
+        if (leftOffset == rightOffset) {
+            return Optional.of(left);
+        }
+        Map<Integer, Integer> flags = new HashMap<>();
+        PriorityQueue<Integer> queue = new PriorityQueue<>(newestFirst);
+        flags.put(leftOffset, LEFT);
+        flags.put(rightOffset, RIGHT);
+        queue.add(leftOffset);
+        queue.add(rightOffset);
+
+        List<Integer> candidates = new ArrayList<>(2);
+        while (hasNonStale(queue, flags)) {
+            final Integer offset = queue.poll();
+            final int commitFlags = flags.get(offset).intValue();
+            int paint = commitFlags & (LEFT | RIGHT | STALE);
+            if ((paint & (LEFT | RIGHT)) == (LEFT | RIGHT)) {
+                if ((commitFlags & (RESULT | STALE)) == 0) {
+                    flags.put(offset, commitFlags | RESULT);
+                    candidates.add(offset);
+                }
+                paint |= STALE;
+            }
+            final int parentCount = parentCount(offset.intValue());
+            for (int i = 0; i < parentCount; i++) {
+                final Integer parent = Integer.valueOf(parent(offset.intValue(), i));
+                Integer parentFlags = flags.get(parent);
+                int current = parentFlags == null ? 0 : parentFlags.intValue();
+                if ((current & paint) != paint) {
+                    flags.put(parent, current | paint);
+                    queue.add(parent);
+                }
+            }
+        }
+        if (candidates.isEmpty()) {
+            return Optional.absent();
+        }
+        // discard candidates that are ancestors of another candidate
+        candidates.sort(newestFirst);
+        for (Integer candidate : candidates) {
+            boolean redundant = false;
+            for (Integer other : candidates) {
+                if (!other.equals(candidate)
+                        && isAncestor(candidate.intValue(), other.intValue())) {
+                    redundant = true;
+                    break;
+                }
+            }
+            if (!redundant) {
+                return Optional.of(id(candidate.intValue()));
+            }
+        }
+        return Optional.of(id(candidates.get(0).intValue()));
+    }
+
+    private boolean hasNonStale(PriorityQueue<Integer> queue, Map<Integer, Integer> flags) {
+        for (Integer offset : queue) {
+            if ((flags.get(offset).intValue() & STALE) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int offset(ObjectId commitId) {
+        Integer offset = index.get(checkNotNull(commitId));
+        checkArgument(offset != null, "Commit %s is not in the commit graph", commitId);
+        return offset.intValue();
+    }
+
+    private ObjectId id(int offset) {
+        byte[] raw = new byte[ObjectId.NUM_BYTES];
+        ByteBuffer source = buffer.duplicate();
+        source.position(offset);
+        source.get(raw);
+        return ObjectId.createNoClone(raw);
+    }
+
+    private int generation(int offset) {
+        return buffer.getInt(offset + GENERATION);
+    }
+
+    private long timestamp(int offset) {
+        return buffer.getLong(offset + TIMESTAMP);
+    }
+
+    private int parentCount(int offset) {
+        return buffer.getInt(offset + PARENT_COUNT);
+    }
+
+    private int parent(int offset, int parentIndex) {
+        return buffer.getInt(offset + PARENTS + 4 * parentIndex);
+    }
+
+    private int next(int offset) {
+        return offset + PARENTS + 4 * parentCount(offset);
+    }
+
+    private static class PendingCommit {
+
+        final ObjectId id;
+
+        final ImmutableList<ObjectId> parents;
+
+        final long timestamp;
+
+        PendingCommit(ObjectId id, List<ObjectId> parents, long timestamp) {
+            this.id = id;
+            this.parents = ImmutableList.copyOf(parents);
+            this.timestamp = timestamp;
+        }
+    }
+}
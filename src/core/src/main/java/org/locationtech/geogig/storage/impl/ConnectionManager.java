@@ -9,8 +9,18 @@
  */
 package org.locationtech.geogig.storage.impl;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * A connection manager for ensuring that connections are acquired or released in a threadsafe way.
@@ -21,8 +31,36 @@ import java.util.concurrent.ConcurrentHashMap;
  * and hashCode() implementations which are consistent with each other.)
  * 
  * Implementors should use the @Singleton scope with this class when configuring Guice.
+ * 
+ * A connection is disconnected when its last client releases it, or, if the manager was created
+ * with a linger time, once it went that long without clients, so that clients that come and go
+ * (like repositories opened and closed per request) keep reusing the same connection.
  */
 public abstract class ConnectionManager<A, C> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ConnectionManager.class);
+
+    /**
+     * Disconnects lingering connections once they've been idle long enough, shared by all managers
+     * and lazily created
+     */
+    private static ScheduledExecutorService reaper;
+
+    private final long lingerMillis;
+
+    protected ConnectionManager() {
+        this(0L);
+    }
+
+    /**
+     * @param lingerMillis how long to keep a connection with no clients before disconnecting it, or
+     *        zero to disconnect it as soon as its last client releases it
+     */
+    protected ConnectionManager(final long lingerMillis) {
+        checkArgument(lingerMillis >= 0, "linger time can't be negative: %s", lingerMillis);
+        this.lingerMillis = lingerMillis;
+    }
+
     protected abstract C connect(A address);
 
     protected abstract void disconnect(C connection);
@@ -32,6 +70,11 @@ public abstract class ConnectionManager<A, C> {
 
         public int clients;
 
+        /**
+         * {@link System#nanoTime()} at which the last client released the connection
+         */
+        public long idleSince;
+
         public PoolEntry(C connection) {
             this.connection = connection;
         }
@@ -66,6 +109,10 @@ public abstract class ConnectionManager<A, C> {
         return entry.connection;
     }
 
+    /**
+     * @return {@code true} if the connection was disconnected, {@code false} if it still has
+     *         clients or lingers waiting for new ones
+     */
     public final synchronized boolean release(C connection) {
         Map.Entry<A, PoolEntry<C>> record = lookupConnection(connection);
         A address = record.getKey();
@@ -74,6 +121,12 @@ public abstract class ConnectionManager<A, C> {
         if (poolentry.clients < 0)
             throw new IllegalStateException("Negative client count for connection pool entry!");
         if (poolentry.clients == 0) {
+            if (lingerMillis > 0) {
+                poolentry.idleSince = System.nanoTime();
+                reaper().schedule(() -> expire(address, poolentry), lingerMillis,
+                        TimeUnit.MILLISECONDS);
+                return false;
+            }
             try {
                 disconnect(poolentry.connection);
             } finally {
@@ -83,4 +136,29 @@ public abstract class ConnectionManager<A, C> {
         }
         return false;
     }
+
+    /**
+     * Disconnects a lingering connection if it had no clients since it was scheduled to expire.
+     * If it was acquired and released again in the meantime, a later check will take care of it.
+     */
+    private synchronized void expire(A address, PoolEntry<C> entry) {
+        final long idleMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - entry.idleSince);
+        if (entry.clients == 0 && pool.get(address) == entry && idleMillis >= lingerMillis) {
+            try {
+                disconnect(entry.connection);
+            } catch (RuntimeException e) {
+                LOG.warn("Error disconnecting idle connection {}", entry.connection, e);
+            } finally {
+                pool.remove(address);
+            }
+        }
+    }
+
+    private static synchronized ScheduledExecutorService reaper() {
+        if (reaper == null) {
+            reaper = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                    .setDaemon(true).setNameFormat("geogig-idle-connections-%d").build());
+        }
+        return reaper;
+    }
 }
@@ -11,6 +11,7 @@ package org.locationtech.geogig.storage.impl;
 
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.locationtech.geogig.model.NodeRef;
 import org.locationtech.geogig.model.ObjectId;
@@ -190,4 +191,16 @@ public class ForwardingObjectDatabase implements ObjectDatabase {
             Iterator<NodeRef> refs, BulkOpListener listener, Class<T> type) {
         return subject.get().getObjects(refs, listener, type);
     }
+
+    @Override
+    public <T extends RevObject> CompletableFuture<List<T>> getAllAsync(Iterable<ObjectId> ids,
+            BulkOpListener listener, Class<T> type) {
+        return subject.get().getAllAsync(ids, listener, type);
+    }
+
+    @Override
+    public CompletableFuture<Void> putAllAsync(Iterator<? extends RevObject> objects,
+            BulkOpListener listener) {
+        return subject.get().putAllAsync(objects, listener);
+    }
 }
@@ -0,0 +1,396 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.storage.impl;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.nio.ByteBuffer;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.ObjectId;
+
+/**
+ * Open addressing hash table backing {@link ObjectIdSet} and {@link ObjectIdMap}.
+ * <p>
+ * Keys are stored as their raw 20 bytes, contiguously, in a single {@link ByteBuffer} that's
+ * either on or off heap; collisions are resolved by linear probing and removals by backward shift
+ * deletion, so there are no tombstones. A slot whose 20 bytes are all zero is empty, hence
+ * {@link ObjectId#NULL} is tracked apart.
+ * <p>
+ * Lookups copy the key to a scratch buffer and compare it against the table as two longs and an
+ * int, so no objects are created except when the table is iterated. As a consequence instances
+ * are not thread safe, not even for concurrent reads.
+ */
+final class ObjectIdHashTable<V> {
+
+    private static final int KEY_SIZE = ObjectId.NUM_BYTES;
+
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private static final int MIN_CAPACITY = 16;
+
+    /**
+     * Largest power of two whose keys fit in a single {@link ByteBuffer}
+     */
+    static final int MAX_CAPACITY = 1 << 26;
+
+    private final boolean offHeap;
+
+    private final boolean hasValues;
+
+    private ByteBuffer keys;
+
+    private Object[] values;
+
+    private int mask;
+
+    private int threshold;
+
+    /**
+     * Number of keys in the table, not counting {@link ObjectId#NULL}
+     */
+    private int size;
+
+    private boolean containsNullId;
+
+    private Object nullIdValue;
+
+    private final byte[] scratch = new byte[KEY_SIZE];
+
+    // the key being looked up, as set by setKey()
+    private long k0, k1;
+
+    private int k2;
+
+    ObjectIdHashTable(final int expectedSize, final boolean offHeap, final boolean hasValues) {
+        checkArgument(expectedSize >= 0, "expectedSize must be >= 0: %s", expectedSize);
+        this.offHeap = offHeap;
+        this.hasValues = hasValues;
+        allocate(capacityFor(expectedSize));
+    }
+
+    private static int capacityFor(final int expectedSize) {
+        final long minCapacity = (long) Math.ceil(expectedSize / (double) LOAD_FACTOR) + 1;
+        checkArgument(minCapacity <= MAX_CAPACITY, "expectedSize too large: %s", expectedSize);
+        int capacity = MIN_CAPACITY;
+        while (capacity < minCapacity) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private void allocate(final int capacity) {
+        final int bytes = capacity * KEY_SIZE;
+        this.keys = offHeap ? ByteBuffer.allocateDirect(bytes) : ByteBuffer.allocate(bytes);
+        this.values = hasValues ? new Object[capacity] : null;
+        this.mask = capacity - 1;
+        this.threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    public int size() {
+        return containsNullId ? size + 1 : size;
+    }
+
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    /**
+     * @return the number of bytes allocated for the keys, plus the values array if any
+     */
+    public long sizeInBytes() {
+        long bytes = keys.capacity();
+        if (values != null) {
+            bytes += (long) values.length * Integer.BYTES;
+        }
+        return bytes;
+    }
+
+    public boolean containsKey(final ObjectId id) {
+        if (setKey(id)) {
+            return containsNullId;
+        }
+        return find() >= 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public @Nullable V get(final ObjectId id) {
+        if (setKey(id)) {
+            return (V) nullIdValue;
+        }
+        final int slot = find();
+        return slot < 0 ? null : (V) values[slot];
+    }
+
+    /**
+     * @return {@code true} if the key was added, {@code false} if it was already present
+     */
+    public boolean add(final ObjectId id) {
+        if (setKey(id)) {
+            boolean added = !containsNullId;
+            containsNullId = true;
+            return added;
+        }
+        final int slot = find();
+        if (slot >= 0) {
+            return false;
+        }
+        insert(-(slot + 1));
+        return true;
+    }
+
+    /**
+     * @return the previous value associated to the key, or {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    public @Nullable V put(final ObjectId id, final V value) {
+        checkState(hasValues);
+        if (setKey(id)) {
+            Object prev = nullIdValue;
+            containsNullId = true;
+            nullIdValue = value;
+            return (V) prev;
+        }
+        int slot = find();
+        if (slot >= 0) {
+            Object prev = values[slot];
+            values[slot] = value;
+            return (V) prev;
+        }
+        slot = insert(-(slot + 1));
+        values[slot] = value;
+        return null;
+    }
+
+    /**
+     * @return {@code true} if the key was present and hence removed
+     */
+    public boolean remove(final ObjectId id) {
+        if (setKey(id)) {
+            boolean removed = containsNullId;
+            containsNullId = false;
+            nullIdValue = null;
+            return removed;
+        }
+        final int slot = find();
+        if (slot < 0) {
+            return false;
+        }
+        delete(slot);
+        return true;
+    }
+
+    public void clear() {
+        if (size > 0) {
+            final int capacity = mask + 1;
+            for (int i = 0; i < capacity; i++) {
+                clearSlot(i);
+            }
+        }
+        size = 0;
+        containsNullId = false;
+        nullIdValue = null;
+    }
+
+    /**
+     * @return whether {@link ObjectId#NULL} is in the table, which is not reachable through
+     *         {@link #nextSlot(int)}
+     */
+    public boolean containsNullId() {
+        return containsNullId;
+    }
+
+    @SuppressWarnings("unchecked")
+    public @Nullable V nullIdValue() {
+        return (V) nullIdValue;
+    }
+
+    /**
+     * @return the first occupied slot at or after {@code from}, or {@code -1} if there are no more
+     */
+    public int nextSlot(int from) {
+        final int capacity = mask + 1;
+        for (int i = from; i < capacity; i++) {
+            if (!isEmpty(i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public ObjectId keyAt(final int slot) {
+        final int offset = slot * KEY_SIZE;
+        byte[] raw = new byte[KEY_SIZE];
+        for (int i = 0; i < KEY_SIZE; i++) {
+            raw[i] = keys.get(offset + i);
+        }
+        return ObjectId.createNoClone(raw);
+    }
+
+    @SuppressWarnings("unchecked")
+    public @Nullable V valueAt(final int slot) {
+        return values == null ? null : (V) values[slot];
+    }
+
+    /**
+     * Sets the key being looked up from {@code id}
+     *
+     * @return {@code true} if {@code id} is {@link ObjectId#NULL}
+     */
+    private boolean setKey(final ObjectId id) {
+        final byte[] b = scratch;
+        id.getRawValue(b);
+        k0 = getLong(b, 0);
+        k1 = getLong(b, 8);
+        k2 = ((b[16] & 0xFF) << 24) | ((b[17] & 0xFF) << 16) | ((b[18] & 0xFF) << 8)
+                | (b[19] & 0xFF);
+        return k0 == 0L && k1 == 0L && k2 == 0;
+    }
+
+    private static long getLong(final byte[] b, final int off) {
+        long l = 0;
+        for (int i = off; i < off + 8; i++) {
+            l = (l << 8) | (b[i] & 0xFF);
+        }
+        return l;
+    }
+
+    /**
+     * Same as {@link ObjectId#hashCode()}, mixed so that ids that share their first bytes don't
+     * cluster
+     */
+    private static int hash(final long k0) {
+        int h = 17 ^ Integer.reverseBytes((int) (k0 >>> 32));
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * @return the slot of the current key, or {@code -(insertionSlot + 1)} if it's not present
+     */
+    private int find() {
+        int slot = hash(k0) & mask;
+        while (true) {
+            final int offset = slot * KEY_SIZE;
+            final long s0 = keys.getLong(offset);
+            final long s1 = keys.getLong(offset + 8);
+            final int s2 = keys.getInt(offset + 16);
+            if (s0 == k0 && s1 == k1 && s2 == k2) {
+                return slot;
+            }
+            if (s0 == 0L && s1 == 0L && s2 == 0) {
+                return -(slot + 1);
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Stores the current key at the given empty slot, resizing the table if needed
+     *
+     * @return the slot the key ended up at
+     */
+    private int insert(int slot) {
+        if (size >= threshold) {
+            resize();
+            slot = -(find() + 1);
+        }
+        final int offset = slot * KEY_SIZE;
+        keys.putLong(offset, k0);
+        keys.putLong(offset + 8, k1);
+        keys.putInt(offset + 16, k2);
+        size++;
+        return slot;
+    }
+
+    private void resize() {
+        final int oldCapacity = mask + 1;
+        checkState(oldCapacity < MAX_CAPACITY, "ObjectId hash table is full: %s", size);
+        final ByteBuffer oldKeys = this.keys;
+        final Object[] oldValues = this.values;
+        allocate(oldCapacity << 1);
+        for (int i = 0; i < oldCapacity; i++) {
+            final int offset = i * KEY_SIZE;
+            final long s0 = oldKeys.getLong(offset);
+            final long s1 = oldKeys.getLong(offset + 8);
+            final int s2 = oldKeys.getInt(offset + 16);
+            if (s0 == 0L && s1 == 0L && s2 == 0) {
+                continue;
+            }
+            int slot = hash(s0) & mask;
+            while (!isEmpty(slot)) {
+                slot = (slot + 1) & mask;
+            }
+            final int target = slot * KEY_SIZE;
+            keys.putLong(target, s0);
+            keys.putLong(target + 8, s1);
+            keys.putInt(target + 16, s2);
+            if (oldValues != null) {
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Backward shift deletion: moves back any entry in the probe sequence following {@code slot}
+     * that would otherwise become unreachable
+     */
+    private void delete(int slot) {
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            if (isEmpty(next)) {
+                break;
+            }
+            final int home = hash(keys.getLong(next * KEY_SIZE)) & mask;
+            // move the entry unless its home slot lies cyclically in (slot, next]
+            final boolean reachable = slot <= next ? (slot < home && home <= next)
+                    : (slot < home || home <= next);
+            if (!reachable) {
+                copySlot(next, slot);
+                slot = next;
+            }
+        }
+        clearSlot(slot);
+        size--;
+    }
+
+    private void copySlot(final int from, final int to) {
+        final int src = from * KEY_SIZE;
+        final int dst = to * KEY_SIZE;
+        keys.putLong(dst, keys.getLong(src));
+        keys.putLong(dst + 8, keys.getLong(src + 8));
+        keys.putInt(dst + 16, keys.getInt(src + 16));
+        if (values != null) {
+            values[to] = values[from];
+        }
+    }
+
+    private void clearSlot(final int slot) {
+        final int offset = slot * KEY_SIZE;
+        keys.putLong(offset, 0L);
+        keys.putLong(offset + 8, 0L);
+        keys.putInt(offset + 16, 0);
+        if (values != null) {
+            values[slot] = null;
+        }
+    }
+
+    private boolean isEmpty(final int slot) {
+        final int offset = slot * KEY_SIZE;
+        return keys.getLong(offset) == 0L && keys.getLong(offset + 8) == 0L
+                && keys.getInt(offset + 16) == 0;
+    }
+}
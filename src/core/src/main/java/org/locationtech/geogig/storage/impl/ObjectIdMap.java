@@ -0,0 +1,119 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.storage.impl;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.function.BiConsumer;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.ObjectId;
+
+/**
+ * A map keyed by {@link ObjectId} that stores the raw keys contiguously in an open addressing
+ * hash table, the same way {@link ObjectIdSet} does, and the values in a parallel array, so that
+ * no entry objects are created.
+ * <p>
+ * It's not a {@link java.util.Map} on purpose, since a {@code Map}'s views would need to create
+ * entries and keys on the fly. {@code null} values are not supported.
+ * <p>
+ * Note this map is not thread safe.
+ *
+ * @since 1.2
+ */
+public class ObjectIdMap<V> {
+
+    private final ObjectIdHashTable<V> table;
+
+    public ObjectIdMap() {
+        this(0);
+    }
+
+    /**
+     * @param expectedSize the number of entries the map is expected to hold, to avoid resizing it
+     */
+    public ObjectIdMap(final int expectedSize) {
+        this(expectedSize, false);
+    }
+
+    private ObjectIdMap(final int expectedSize, final boolean offHeap) {
+        this.table = new ObjectIdHashTable<>(expectedSize, offHeap, true);
+    }
+
+    /**
+     * Creates a map whose keys are allocated off the Java heap
+     */
+    public static <V> ObjectIdMap<V> offHeap(final int expectedSize) {
+        return new ObjectIdMap<>(expectedSize, true);
+    }
+
+    /**
+     * @return the number of bytes allocated for the map's keys plus the references to its values
+     */
+    public long sizeInBytes() {
+        return table.sizeInBytes();
+    }
+
+    public int size() {
+        return table.size();
+    }
+
+    public boolean isEmpty() {
+        return table.size() == 0;
+    }
+
+    public boolean containsKey(final ObjectId id) {
+        checkNotNull(id, "null ObjectId");
+        return table.containsKey(id);
+    }
+
+    public @Nullable V get(final ObjectId id) {
+        checkNotNull(id, "null ObjectId");
+        return table.get(id);
+    }
+
+    /**
+     * @return the value previously associated to {@code id}, or {@code null}
+     */
+    public @Nullable V put(final ObjectId id, final V value) {
+        checkNotNull(id, "null ObjectId");
+        checkNotNull(value, "null value");
+        return table.put(id, value);
+    }
+
+    /**
+     * @return the value that was associated to {@code id}, or {@code null}
+     */
+    public @Nullable V remove(final ObjectId id) {
+        checkNotNull(id, "null ObjectId");
+        final V value = table.get(id);
+        if (value != null) {
+            table.remove(id);
+        }
+        return value;
+    }
+
+    public void clear() {
+        table.clear();
+    }
+
+    /**
+     * Calls {@code action} for each entry in the map, in no particular order
+     */
+    public void forEach(final BiConsumer<ObjectId, ? super V> action) {
+        checkNotNull(action);
+        if (table.containsNullId()) {
+            action.accept(ObjectId.NULL, table.nullIdValue());
+        }
+        for (int slot = table.nextSlot(0); slot > -1; slot = table.nextSlot(slot + 1)) {
+            action.accept(table.keyAt(slot), table.valueAt(slot));
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.storage.impl;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.locationtech.geogig.model.ObjectId;
+
+/**
+ * A {@link java.util.Set} of {@link ObjectId}s that stores the raw ids contiguously in an open
+ * addressing hash table instead of creating an entry object per element, reducing the memory
+ * footprint of large sets to 27 to 54 bytes per id, depending on how full the table is, and
+ * sparing the garbage collector from tracking them.
+ * <p>
+ * The table can live {@link #offHeap(int) off heap}, in which case its memory is released once
+ * the set is garbage collected.
+ * <p>
+ * Note this set is not thread safe, and its iterator does not support {@link Iterator#remove()}
+ * nor detect concurrent modifications; hence neither does {@link #retainAll(Collection)}.
+ *
+ * @since 1.2
+ */
+public class ObjectIdSet extends AbstractSet<ObjectId> {
+
+    private final ObjectIdHashTable<Void> table;
+
+    public ObjectIdSet() {
+        this(0);
+    }
+
+    /**
+     * @param expectedSize the number of elements the set is expected to hold, to avoid resizing
+     *        it
+     */
+    public ObjectIdSet(final int expectedSize) {
+        this(expectedSize, false);
+    }
+
+    private ObjectIdSet(final int expectedSize, final boolean offHeap) {
+        this.table = new ObjectIdHashTable<>(expectedSize, offHeap, false);
+    }
+
+    /**
+     * Creates a set whose hash table is allocated off the Java heap
+     */
+    public static ObjectIdSet offHeap(final int expectedSize) {
+        return new ObjectIdSet(expectedSize, true);
+    }
+
+    /**
+     * @return the number of bytes allocated for the set's hash table
+     */
+    public long sizeInBytes() {
+        return table.sizeInBytes();
+    }
+
+    public boolean isOffHeap() {
+        return table.isOffHeap();
+    }
+
+    @Override
+    public int size() {
+        return table.size();
+    }
+
+    @Override
+    public boolean add(final ObjectId id) {
+        checkNotNull(id, "null ObjectId");
+        return table.add(id);
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        return o instanceof ObjectId && table.containsKey((ObjectId) o);
+    }
+
+    @Override
+    public boolean remove(final Object o) {
+        return o instanceof ObjectId && table.remove((ObjectId) o);
+    }
+
+    /**
+     * Overrides {@link AbstractSet#removeAll(Collection)}, which may use the iterator's
+     * {@code remove()}, to always look up the elements of {@code c}
+     */
+    @Override
+    public boolean removeAll(final Collection<?> c) {
+        boolean modified = false;
+        for (Object o : c) {
+            modified |= remove(o);
+        }
+        return modified;
+    }
+
+    @Override
+    public void clear() {
+        table.clear();
+    }
+
+    @Override
+    public Iterator<ObjectId> iterator() {
+        return new Iterator<ObjectId>() {
+
+            private boolean nullIdPending = table.containsNullId();
+
+            private int slot = table.nextSlot(0);
+
+            @Override
+            public boolean hasNext() {
+                return nullIdPending || slot > -1;
+            }
+
+            @Override
+            public ObjectId next() {
+                if (nullIdPending) {
+                    nullIdPending = false;
+                    return ObjectId.NULL;
+                }
+                if (slot < 0) {
+                    throw new NoSuchElementException();
+                }
+                ObjectId id = table.keyAt(slot);
+                slot = table.nextSlot(slot + 1);
+                return id;
+            }
+        };
+    }
+}
@@ -11,8 +11,10 @@ package org.locationtech.geogig.storage.impl;
 
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.repository.RepositoryConnectionException;
+import org.locationtech.geogig.storage.CommitGraph;
 import org.locationtech.geogig.storage.GraphDatabase;
 
+import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
 
 public class SynchronizedGraphDatabase implements GraphDatabase {
@@ -76,6 +78,12 @@ public class SynchronizedGraphDatabase implements GraphDatabase {
         }
     }
 
+    public boolean put(ObjectId commitId, ImmutableList<ObjectId> parentIds, long timestamp) {
+        synchronized (delegate) {
+            return delegate.put(commitId, parentIds, timestamp);
+        }
+    }
+
     public void map(ObjectId mapped, ObjectId original) {
         synchronized (delegate) {
             delegate.map(mapped, original);
@@ -111,4 +119,10 @@ public class SynchronizedGraphDatabase implements GraphDatabase {
             return delegate.getNode(id);
         }
     }
+
+    public Optional<CommitGraph> getCommitGraph() {
+        synchronized (delegate) {
+            return delegate.getCommitGraph();
+        }
+    }
 }
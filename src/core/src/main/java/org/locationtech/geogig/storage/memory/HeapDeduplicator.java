@@ -10,34 +10,63 @@
 package org.locationtech.geogig.storage.memory;
 
 import java.util.List;
-import java.util.Set;
 
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.repository.impl.Deduplicator;
+import org.locationtech.geogig.storage.impl.ObjectIdSet;
 
-import com.google.common.collect.Sets;
-
+/**
+ * A {@link Deduplicator} that keeps track of the visited ids in memory.
+ * <p>
+ * Ids are held in {@link ObjectIdSet}s instead of a concurrent {@code Set<ObjectId>}, striped by
+ * the id's first byte and each guarded by its own lock, in order to keep the memory footprint and
+ * garbage collection pressure of large traversals low while still supporting concurrent callers.
+ */
 public class HeapDeduplicator implements Deduplicator {
-    private Set<ObjectId> seen = Sets.newConcurrentHashSet();
+
+    private static final int STRIPES = 16;
+
+    private ObjectIdSet[] seen;
+
+    public HeapDeduplicator() {
+        seen = new ObjectIdSet[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            seen[i] = new ObjectIdSet();
+        }
+    }
+
+    private ObjectIdSet stripe(ObjectId id) {
+        return seen[id.byteN(0) & (STRIPES - 1)];
+    }
 
     @Override
     public boolean visit(ObjectId id) {
-        return !seen.add(id);
+        final ObjectIdSet set = stripe(id);
+        synchronized (set) {
+            return !set.add(id);
+        }
     }
 
     @Override
     public boolean isDuplicate(ObjectId id) {
-        return seen.contains(id);
+        final ObjectIdSet set = stripe(id);
+        synchronized (set) {
+            return set.contains(id);
+        }
     }
 
     @Override
     public void removeDuplicates(List<ObjectId> ids) {
-        ids.removeAll(seen);
+        ids.removeIf(this::isDuplicate);
     }
 
     @Override
     public void reset() {
-        seen.clear();
+        for (ObjectIdSet set : seen) {
+            synchronized (set) {
+                set.clear();
+            }
+        }
     }
 
     @Override
@@ -35,6 +35,7 @@ import org.locationtech.geogig.model.impl.CanonicalTreeBuilder;
 import org.locationtech.geogig.model.impl.RevFeatureTypeBuilder;
 import org.locationtech.geogig.model.impl.RevObjectTestSupport;
 import org.locationtech.geogig.model.impl.RevTreeBuilder;
+import org.locationtech.geogig.plumbing.diff.WalkPosition;
 import org.locationtech.geogig.repository.Context;
 import org.locationtech.geogig.repository.DiffEntry;
 import org.locationtech.geogig.repository.DiffEntry.ChangeType;
@@ -50,6 +51,7 @@ import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Iterators;
 import com.google.inject.Guice;
 import com.google.inject.util.Modules;
@@ -292,6 +294,49 @@ public class DiffTreeTest extends Assert {
         assertChangeTypeFilter(rootId2, rootId1, 2, 0, 0);
     }
 
+    @Test
+    public void testStartAfter() {
+        ObjectDatabase db = geogig.getContext().objectDatabase();
+        final RevTree tree1 = tree(1000, db);
+        final RevTree tree2 = tree(50, db);
+        final RevTree root = createRoot(db, tree1, tree2);
+
+        assertStartAfter(ObjectId.NULL, root.getId(), false);
+        assertStartAfter(ObjectId.NULL, root.getId(), true);
+        assertStartAfter(root.getId(), ObjectId.NULL, true);
+    }
+
+    private void assertStartAfter(ObjectId leftTree, ObjectId rightTree, boolean reportTrees) {
+        diffTree.setOldTree(leftTree).setNewTree(rightTree).setReportTrees(reportTrees)
+                .setPreserveIterationOrder(true);
+        final List<String> all = paths(diffTree.call());
+        assertEquals(1050 + (reportTrees ? 2 : 0), all.size());
+
+        diffTree.setPreserveIterationOrder(false);
+        for (int i = 0; i < all.size(); i += 97) {
+            String startAfter = all.get(i);
+            diffTree.setStartAfter(startAfter);
+            assertEquals("after " + startAfter, all.subList(i + 1, all.size()),
+                    paths(diffTree.call()));
+        }
+        // resuming after a node that's no longer there
+        WalkPosition position = new WalkPosition("tree1/1000");
+        diffTree.setStartAfter(position.getPath());
+        assertEquals(newArrayList(Iterables.filter(all, (p) -> position.isAfter(p))),
+                paths(diffTree.call()));
+        diffTree.setStartAfter(null);
+    }
+
+    private List<String> paths(AutoCloseableIterator<DiffEntry> diffs) {
+        List<String> paths = newArrayList();
+        try {
+            diffs.forEachRemaining((e) -> paths.add(e.path()));
+        } finally {
+            diffs.close();
+        }
+        return paths;
+    }
+
     private void assertChangeTypeFilter(final ObjectId leftTree, final ObjectId rightTree,
             final int expectedAdds, final int expectedRemoves, final int expectedChanges) {
 
@@ -29,6 +29,7 @@ import org.locationtech.geogig.plumbing.diff.DepthTreeIterator.Strategy;
 import org.locationtech.geogig.storage.ObjectDatabase;
 import org.locationtech.geogig.storage.memory.HeapObjectDatabase;
 
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 
 /**
@@ -183,6 +184,40 @@ public class DepthTreeIteratorTest extends Assert {
         assertEquals(numSubTrees, list(mixedBucketsTree, Strategy.RECURSIVE_TREES_ONLY).size());
     }
 
+    @Test
+    public void testStartAfter() {
+        int numSubTrees = CanonicalNodeNameOrder.normalizedSizeLimit(0) + 1;
+        int featuresPerTree = CanonicalNodeNameOrder.normalizedSizeLimit(0) + 1;
+        RevTreeBuilder builder = createTreesTreeBuilder(source, numSubTrees, featuresPerTree,
+                metadataId);
+        for (int i = 0; i < 5000; i++) {
+            builder.put(featureNode("f", i));
+        }
+        RevTree mixedBucketsTree = builder.build();
+
+        for (Strategy strategy : Strategy.values()) {
+            testStartAfter(featuresLeafTree, strategy);
+            testStartAfter(mixedLeafTree, strategy);
+            testStartAfter(featuresBucketsTree, strategy);
+            testStartAfter(mixedBucketsTree, strategy);
+        }
+    }
+
+    private void testStartAfter(RevTree tree, Strategy strategy) {
+        List<String> all = paths(iterator(tree, strategy));
+        int step = Math.max(1, all.size() / 7);
+        for (int i = 0; i < all.size(); i += step) {
+            DepthTreeIterator iterator = iterator(tree, strategy);
+            iterator.setStartAfter(all.get(i));
+            assertEquals(strategy + " after " + all.get(i), all.subList(i + 1, all.size()),
+                    paths(iterator));
+        }
+    }
+
+    private List<String> paths(DepthTreeIterator iterator) {
+        return Lists.newArrayList(Iterators.transform(iterator, (ref) -> ref.path()));
+    }
+
     private List<NodeRef> list(RevTree tree, Strategy strategy) {
         List<NodeRef> refs = Lists.newArrayList(iterator(tree, strategy));
         return refs;
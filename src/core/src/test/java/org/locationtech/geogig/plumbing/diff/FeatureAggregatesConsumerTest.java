@@ -0,0 +1,134 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.plumbing.diff;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.geogig.model.CanonicalNodeNameOrder;
+import org.locationtech.geogig.model.Node;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevObject.TYPE;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.impl.CanonicalTreeBuilder;
+import org.locationtech.geogig.model.impl.RevObjectTestSupport;
+import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.BucketIndex;
+import org.locationtech.geogig.storage.ObjectDatabase;
+import org.locationtech.geogig.storage.memory.HeapObjectDatabase;
+
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import com.vividsolutions.jts.geom.Envelope;
+
+public class FeatureAggregatesConsumerTest extends Assert {
+
+    private static final ObjectId FAKE_FEATURE_ID = RevObjectTestSupport
+            .hashString("1100000000000000000000000000000000000000");
+
+    private ObjectDatabase odb;
+
+    private int numFeatures;
+
+    /**
+     * single level tree with 2 * {@link CanonicalNodeNameOrder#NORMALIZED_SIZE_LIMIT} feature
+     * references, the i'th one with bounds {@code (i, i, i, i)}
+     */
+    private RevTree bucketsFeatureTree;
+
+    @Before
+    public void setUp() {
+        odb = new HeapObjectDatabase();
+        odb.open();
+        numFeatures = 2 * CanonicalNodeNameOrder.normalizedSizeLimit(0);
+        CanonicalTreeBuilder builder = CanonicalTreeBuilder.create(odb);
+        for (int i = 0; i < numFeatures; i++) {
+            Envelope bounds = new Envelope(i, i, i, i);
+            builder.put(Node.create(String.valueOf(i), FAKE_FEATURE_ID, ObjectId.NULL,
+                    TYPE.FEATURE, bounds));
+        }
+        bucketsFeatureTree = builder.build();
+        odb.put(bucketsFeatureTree);
+        assertFalse(bucketsFeatureTree.buckets().isEmpty());
+    }
+
+    /**
+     * Counts the features that were traversed instead of aggregated
+     */
+    private static class TestConsumer extends FeatureAggregatesConsumer {
+
+        final AtomicInteger traversedFeatures = new AtomicInteger();
+
+        TestConsumer(ObjectDatabase odb, @Nullable Envelope coverage,
+                Predicate<BucketIndex> aggregatable) {
+            super(odb, coverage, aggregatable);
+        }
+
+        @Override
+        public boolean feature(@Nullable NodeRef left, @Nullable NodeRef right) {
+            traversedFeatures.incrementAndGet();
+            return super.feature(left, right);
+        }
+    }
+
+    private TestConsumer walk(@Nullable Envelope coverage, Predicate<BucketIndex> aggregatable) {
+        PreOrderDiffWalk visitor = new PreOrderDiffWalk(RevTree.EMPTY, bucketsFeatureTree, odb,
+                odb);
+        TestConsumer consumer = new TestConsumer(odb, coverage, aggregatable);
+        visitor.walk(consumer);
+        return consumer;
+    }
+
+    @Test
+    public void testAllBucketsCovered() {
+        TestConsumer consumer = walk(null, Predicates.alwaysTrue());
+        assertEquals(numFeatures, consumer.getCount());
+        assertEquals(0, consumer.traversedFeatures.get());
+        assertEquals(new Envelope(0, numFeatures - 1, 0, numFeatures - 1), consumer.getBounds());
+    }
+
+    @Test
+    public void testCoveringEnvelope() {
+        Envelope coverage = new Envelope(-1, numFeatures, -1, numFeatures);
+        TestConsumer consumer = walk(coverage, Predicates.alwaysTrue());
+        assertEquals(numFeatures, consumer.getCount());
+        assertEquals(0, consumer.traversedFeatures.get());
+        assertEquals(new Envelope(0, numFeatures - 1, 0, numFeatures - 1), consumer.getBounds());
+    }
+
+    @Test
+    public void testBucketsNotCoveredAreTraversed() {
+        Envelope coverage = new Envelope(-10, -5, -10, -5);
+        TestConsumer consumer = walk(coverage, Predicates.alwaysTrue());
+        assertEquals(numFeatures, consumer.getCount());
+        assertEquals(numFeatures, consumer.traversedFeatures.get());
+        assertEquals(new Envelope(0, numFeatures - 1, 0, numFeatures - 1), consumer.getBounds());
+    }
+
+    @Test
+    public void testBucketsNotAggregatableAreTraversed() {
+        TestConsumer consumer = walk(null, Predicates.alwaysFalse());
+        assertEquals(numFeatures, consumer.getCount());
+        assertEquals(numFeatures, consumer.traversedFeatures.get());
+    }
+
+    @Test
+    public void testEmptyTree() {
+        PreOrderDiffWalk visitor = new PreOrderDiffWalk(RevTree.EMPTY, RevTree.EMPTY, odb, odb);
+        FeatureAggregatesConsumer consumer = new FeatureAggregatesConsumer(odb, null,
+                Predicates.alwaysTrue());
+        visitor.walk(consumer);
+        assertEquals(0, consumer.getCount());
+        assertTrue(consumer.getBounds().isNull());
+    }
+}
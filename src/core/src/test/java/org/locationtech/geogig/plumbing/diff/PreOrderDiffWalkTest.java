@@ -22,7 +22,9 @@ import static org.mockito.Matchers.argThat;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isNull;
 import static org.mockito.Matchers.notNull;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -53,19 +55,23 @@ import org.locationtech.geogig.model.RevObject.TYPE;
 import org.locationtech.geogig.model.impl.CanonicalTreeBuilder;
 import org.locationtech.geogig.model.impl.RevObjectTestSupport;
 import org.locationtech.geogig.model.impl.RevTreeBuilder;
+import org.locationtech.geogig.model.impl.RevTreeImpl;
 import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.plumbing.diff.DepthTreeIterator.Strategy;
 import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.AbstractConsumer;
 import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.BucketIndex;
 import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.Consumer;
 import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.MaxFeatureDiffsLimiter;
+import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.PrefetchStats;
 import org.locationtech.geogig.repository.impl.SpatialOps;
+import org.locationtech.geogig.storage.BulkOpListener;
 import org.locationtech.geogig.storage.ObjectDatabase;
 import org.locationtech.geogig.storage.ObjectStore;
 import org.locationtech.geogig.storage.memory.HeapObjectDatabase;
 import org.mockito.ArgumentCaptor;
 
 import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.Lists;
 import com.vividsolutions.jts.geom.Envelope;
 
@@ -1005,7 +1011,140 @@ public class PreOrderDiffWalkTest {
         assertEquals(3, abortedAtCount);
     }
 
-    private static final class FeatureCountingConsumer extends PreOrderDiffWalk.AbstractConsumer {
+    @Test
+    public void testPrefetchNextLevelBucketTrees() {
+        RevTree left = createNestedBucketTree(leftSource, 2, 4, 10, false);
+        RevTree right = createNestedBucketTree(rightSource, 2, 4, 10, true);
+
+        FeatureCountingConsumer counter = new FeatureCountingConsumer();
+        PreOrderDiffWalk walk = newVisitor(left, right);
+        walk.walk(counter);
+        assertEquals(4 * 4 * 10, counter.count.intValue());
+
+        PrefetchStats stats = walk.getPrefetchStats();
+        // the second level bucket trees of each of the four root buckets were prefetched
+        assertEquals(4, stats.getIssued());
+        assertEquals(4, stats.getHits() + stats.getStalls());
+        assertEquals(0, stats.getDiscarded());
+        // the root buckets are loaded synchronously
+        assertEquals(1, stats.getMisses());
+    }
+
+    @Test
+    public void testPrefetchDisabled() {
+        RevTree left = createNestedBucketTree(leftSource, 2, 4, 10, false);
+        RevTree right = createNestedBucketTree(rightSource, 2, 4, 10, true);
+
+        FeatureCountingConsumer counter = new FeatureCountingConsumer();
+        PreOrderDiffWalk walk = newVisitor(left, right);
+        walk.setPrefetchBudget(0);
+        walk.walk(counter);
+        assertEquals(4 * 4 * 10, counter.count.intValue());
+
+        PrefetchStats stats = walk.getPrefetchStats();
+        assertEquals(0, stats.getIssued());
+        assertEquals(0, stats.getHits() + stats.getStalls());
+        assertEquals(5, stats.getMisses());
+    }
+
+    @Test
+    public void testPrefetchDiscardedOnSkippedBucket() {
+        RevTree left = createNestedBucketTree(leftSource, 2, 4, 10, false);
+        RevTree right = createNestedBucketTree(rightSource, 2, 4, 10, true);
+
+        FeatureCountingConsumer counter = new FeatureCountingConsumer() {
+            @Override
+            public boolean bucket(NodeRef leftParent, NodeRef rightParent,
+                    BucketIndex bucketIndex, @Nullable Bucket left, @Nullable Bucket right) {
+                return bucketIndex.depthIndex() > 0;
+            }
+        };
+        PreOrderDiffWalk walk = newVisitor(left, right);
+        walk.walk(counter);
+        assertEquals(0, counter.count.intValue());
+
+        PrefetchStats stats = walk.getPrefetchStats();
+        assertEquals(4, stats.getIssued());
+        assertEquals(4, stats.getDiscarded());
+        assertEquals(0, stats.getHits() + stats.getStalls());
+    }
+
+    @Test
+    public void testPrefetchDiscardedOnAbortedTraversal() {
+        RevTree left = createNestedBucketTree(leftSource, 3, 4, 10, false);
+        RevTree right = createNestedBucketTree(rightSource, 3, 4, 10, true);
+
+        FeatureCountingConsumer counter = new FeatureCountingConsumer();
+        PreOrderDiffWalk walk = newVisitor(left, right);
+        walk.walk(new MaxFeatureDiffsLimiter(counter, 1));
+        assertEquals(1, counter.count.intValue());
+
+        PrefetchStats stats = walk.getPrefetchStats();
+        assertTrue(stats.getIssued() > 0);
+        // every prefetch was either used or discarded, none is left holding its trees
+        assertEquals(stats.getIssued(),
+                stats.getHits() + stats.getStalls() + stats.getDiscarded());
+    }
+
+    @Test
+    public void testPrefetchDiscardedOnFailedLookup() {
+        RevTree left = createNestedBucketTree(leftSource, 3, 4, 10, false);
+        RevTree right = createNestedBucketTree(rightSource, 3, 4, 10, true);
+
+        // only the root buckets can be loaded, every other lookup fails and aborts the traversal
+        final AtomicInteger lookups = new AtomicInteger();
+        ObjectDatabase failingSource = spy(rightSource);
+        doAnswer((invocation) -> {
+            if (lookups.incrementAndGet() > 1) {
+                throw new IllegalStateException("expected");
+            }
+            return invocation.callRealMethod();
+        }).when(failingSource).getAll(any(Iterable.class), any(BulkOpListener.class),
+                eq(RevTree.class));
+
+        FeatureCountingConsumer counter = new FeatureCountingConsumer();
+        PreOrderDiffWalk walk = new PreOrderDiffWalk(left, right, leftSource, failingSource);
+        walk.walk(counter);
+        assertEquals(0, counter.count.intValue());
+
+        PrefetchStats stats = walk.getPrefetchStats();
+        assertEquals(4, stats.getIssued());
+        assertEquals(stats.getIssued(),
+                stats.getHits() + stats.getStalls() + stats.getDiscarded());
+    }
+
+    /**
+     * Creates a tree with {@code depth} levels of {@code bucketsPerLevel} buckets, whose leaf
+     * trees have {@code featuresPerLeaf} features each
+     */
+    private RevTree createNestedBucketTree(ObjectDatabase source, int depth, int bucketsPerLevel,
+            int featuresPerLeaf, boolean randomIds) {
+        return createNestedBucketTree(source, depth, bucketsPerLevel, featuresPerLeaf, randomIds,
+                new AtomicInteger());
+    }
+
+    private RevTree createNestedBucketTree(ObjectDatabase source, int depth, int bucketsPerLevel,
+            int featuresPerLeaf, boolean randomIds, AtomicInteger leafCount) {
+        if (depth == 0) {
+            int startIndex = leafCount.getAndIncrement() * featuresPerLeaf;
+            return createFeaturesTree(source, "f", featuresPerLeaf, startIndex, randomIds);
+        }
+        ImmutableSortedMap.Builder<Integer, Bucket> buckets = ImmutableSortedMap.naturalOrder();
+        long size = 0;
+        for (int i = 0; i < bucketsPerLevel; i++) {
+            RevTree child = createNestedBucketTree(source, depth - 1, bucketsPerLevel,
+                    featuresPerLeaf, randomIds, leafCount);
+            size += child.size();
+            buckets.put(Integer.valueOf(i), Bucket.create(child.getId(), new Envelope()));
+        }
+        ObjectId id = RevObjectTestSupport.hashString(
+                (randomIds ? "right-" : "left-") + depth + "-" + leafCount.get());
+        RevTree tree = RevTreeImpl.create(id, size, 0, null, null, buckets.build());
+        source.put(tree);
+        return tree;
+    }
+
+    private static class FeatureCountingConsumer extends PreOrderDiffWalk.AbstractConsumer {
 
         final AtomicLong count = new AtomicLong();
 
@@ -26,9 +26,11 @@ import org.locationtech.geogig.model.NodeRef;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.plumbing.ResolveTreeish;
+import org.locationtech.geogig.plumbing.RevParse;
 import org.locationtech.geogig.porcelain.BranchCreateOp;
 import org.locationtech.geogig.porcelain.CheckoutOp;
 import org.locationtech.geogig.porcelain.RemoveOp;
+import org.locationtech.geogig.porcelain.index.IndexUtils;
 import org.locationtech.geogig.repository.IndexInfo;
 import org.locationtech.geogig.repository.IndexInfo.IndexType;
 import org.locationtech.geogig.repository.Repository;
@@ -272,4 +274,54 @@ public class BuildFullHistoryIndexOpTest extends RepositoryTestCase {
         }
     }
 
+    @Test
+    public void testBuildFullHistorySetsCheckpoints() {
+        indexInfo = createIndex();
+        geogig.command(BuildFullHistoryIndexOp.class)//
+                .setTreeRefSpec(indexInfo.getTreeName())//
+                .setAttributeName(indexInfo.getAttributeName())//
+                .call();
+
+        ObjectId master = geogig.command(RevParse.class).setRefSpec("master").call().get();
+        ObjectId branch1 = geogig.command(RevParse.class).setRefSpec("branch1").call().get();
+        assertEquals(Optional.of(master),
+                IndexUtils.getCheckpoint(indexdb, indexInfo, "refs/heads/master"));
+        assertEquals(Optional.of(branch1),
+                IndexUtils.getCheckpoint(indexdb, indexInfo, "refs/heads/branch1"));
+    }
+
+    @Test
+    public void testBuildFullHistoryInParallel() {
+        final int extraCommits = 25;
+        for (int i = 0; i < extraCommits; i++) {
+            String fid = IndexTestSupport.getPointFid(-180 + 5 * i, 0);
+            geogig.command(RemoveOp.class)
+                    .addPathToRemove(NodeRef.appendChild(worldPointsLayer.getName(), fid)).call();
+            add();
+            commit("deleted " + fid);
+        }
+        indexInfo = createIndex("x");
+        int treesUpdated = geogig.command(BuildFullHistoryIndexOp.class)//
+                .setTreeRefSpec(indexInfo.getTreeName())//
+                .setAttributeName(indexInfo.getAttributeName())//
+                .setParallelism(4)//
+                .call();
+
+        assertEquals(4 + extraCommits, treesUpdated);
+
+        for (int i = 0; i <= extraCommits + 2; i++) {
+            ObjectId canonicalFeatureTreeId = geogig.command(ResolveTreeish.class)
+                    .setTreeish("HEAD~" + i + ":" + worldPointsLayer.getName()).call().get();
+            Optional<ObjectId> indexedTreeId = indexdb.resolveIndexedTree(indexInfo,
+                    canonicalFeatureTreeId);
+            assertTrue(indexedTreeId.isPresent());
+            IndexTestSupport.verifyIndex(geogig, indexedTreeId.get(), canonicalFeatureTreeId, "x");
+        }
+        ObjectId canonicalFeatureTreeId = geogig.command(ResolveTreeish.class)
+                .setTreeish("branch1:" + worldPointsLayer.getName()).call().get();
+        Optional<ObjectId> indexedTreeId = indexdb.resolveIndexedTree(indexInfo,
+                canonicalFeatureTreeId);
+        assertTrue(indexedTreeId.isPresent());
+        IndexTestSupport.verifyIndex(geogig, indexedTreeId.get(), canonicalFeatureTreeId, "x");
+    }
 }
@@ -122,6 +122,28 @@ public class BuildIndexOpTest extends RepositoryTestCase {
         assertEquals(RevTree.EMPTY, deletedNodesIndexTree);
     }
 
+    @Test
+    public void testOldTreeNotIndexedBuildsFullIndex() {
+        indexInfo = createIndex();
+        final RevTree oldCanonicalTree = worldPointsTree;
+        final RevTree newCanonicalTree;
+        {
+            ObjectStore objectStore = getRepository().objectDatabase();
+            CanonicalTreeBuilder builder = CanonicalTreeBuilder.create(objectStore,
+                    oldCanonicalTree);
+            builder.remove(IndexTestSupport.getPointFid(0, 0));
+            builder.remove(IndexTestSupport.getPointFid(5, 5));
+            newCanonicalTree = builder.build();
+        }
+        assertEquals(oldCanonicalTree.size() - 2, newCanonicalTree.size());
+        assertFalse(indexdb.resolveIndexedTree(indexInfo, oldCanonicalTree.getId()).isPresent());
+
+        // there's no old index tree to apply the diff to, the index is built from scratch
+        RevTree indexTree = updateIndex(oldCanonicalTree, newCanonicalTree);
+        assertEquals(newCanonicalTree.size(), indexTree.size());
+        IndexTestSupport.verifyIndex(geogig, indexTree.getId(), newCanonicalTree.getId());
+    }
+
     @Test
     public void testUpdatesNodes() {
         indexInfo = createIndex();
@@ -11,6 +11,8 @@ package org.locationtech.geogig.porcelain.index;
 
 import static org.locationtech.geogig.plumbing.index.IndexTestSupport.getPointFid;
 
+import java.util.List;
+
 import org.eclipse.jdt.annotation.Nullable;
 import org.junit.Rule;
 import org.junit.Test;
@@ -19,7 +21,9 @@ import org.locationtech.geogig.model.Node;
 import org.locationtech.geogig.model.NodeRef;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.model.Ref;
 import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.plumbing.RefParse;
 import org.locationtech.geogig.plumbing.TransactionBegin;
 import org.locationtech.geogig.plumbing.TransactionEnd;
 import org.locationtech.geogig.plumbing.index.IndexTestSupport;
@@ -562,4 +566,50 @@ public class UpdateIndexesOpTest extends RepositoryTestCase {
 
         IndexTestSupport.verifyIndex(geogig, commitIndex.get(), featureTree.getObjectId(), "x");
     }
+
+    @Test
+    public void testUpdateIndexesHookSetsCheckpoint() {
+        IndexInfo indexInfo = createIndex(true, "x");
+
+        String fid = IndexTestSupport.getPointFid(5, 5);
+        geogig.command(RemoveOp.class)
+                .addPathToRemove(NodeRef.appendChild(worldPointsLayer.getName(), fid)).call();
+        add();
+        RevCommit commit = commit("deleted 5, 5");
+
+        assertEquals(Optional.of(commit.getId()),
+                IndexUtils.getCheckpoint(indexdb, indexInfo, "refs/heads/master"));
+    }
+
+    @Test
+    public void testUpdateIndexesFromCheckpoint() {
+        // only index master's tip
+        IndexInfo indexInfo = createIndex(false, "x");
+        final Ref master = geogig.command(RefParse.class).setName("master").call().get();
+        final Ref branch1 = geogig.command(RefParse.class).setName("branch1").call().get();
+        NodeRef branchTree = IndexUtils.resolveTypeTreeRef(geogig.getContext(),
+                "branch1:" + worldPointsLayer.getName());
+        NodeRef branchParentTree = IndexUtils.resolveTypeTreeRef(geogig.getContext(),
+                "branch1~1:" + worldPointsLayer.getName());
+        assertFalse(indexdb.resolveIndexedTree(indexInfo, branchTree.getObjectId()).isPresent());
+        assertFalse(
+                indexdb.resolveIndexedTree(indexInfo, branchParentTree.getObjectId()).isPresent());
+
+        // neither branch1's tip nor its parent are indexed, the branch1 index is updated from
+        // the checkpoint's indexed tree
+        IndexUtils.setCheckpoint(indexdb, indexInfo, branch1.getName(), master.getObjectId());
+        List<Index> updated = geogig.command(UpdateIndexesOp.class).setRef(branch1).call();
+        assertEquals(1, updated.size());
+
+        Optional<ObjectId> commitIndex = indexdb.resolveIndexedTree(indexInfo,
+                branchTree.getObjectId());
+        assertTrue(commitIndex.isPresent());
+        assertEquals(commitIndex.get(), updated.get(0).indexTreeId());
+        IndexTestSupport.verifyIndex(geogig, commitIndex.get(), branchTree.getObjectId(), "x");
+
+        assertFalse(
+                indexdb.resolveIndexedTree(indexInfo, branchParentTree.getObjectId()).isPresent());
+        assertEquals(Optional.of(branch1.getObjectId()),
+                IndexUtils.getCheckpoint(indexdb, indexInfo, branch1.getName()));
+    }
 }
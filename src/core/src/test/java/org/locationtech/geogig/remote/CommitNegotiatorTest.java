@@ -0,0 +1,183 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.remote;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.model.impl.RevObjectTestSupport;
+import org.locationtech.geogig.porcelain.BranchCreateOp;
+import org.locationtech.geogig.porcelain.CheckoutOp;
+import org.locationtech.geogig.porcelain.CommitOp;
+import org.locationtech.geogig.porcelain.MergeOp;
+import org.locationtech.geogig.test.integration.RepositoryTestCase;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+
+public class CommitNegotiatorTest extends RepositoryTestCase {
+
+    @Override
+    protected void setUpInternal() throws Exception {
+    }
+
+    /**
+     * A fake repository holding a linear history, where commit {@code i}'s parent is commit
+     * {@code i + 1}, and only the commits from {@code frontier} onwards exist
+     */
+    private static class LinearHistory implements RepositoryWrapper {
+
+        final List<ObjectId> chain;
+
+        final Map<ObjectId, Integer> index = Maps.newHashMap();
+
+        final int frontier;
+
+        int existsCalls;
+
+        LinearHistory(int size, int frontier) {
+            ImmutableList.Builder<ObjectId> builder = ImmutableList.builder();
+            for (int i = 0; i < size; i++) {
+                ObjectId id = RevObjectTestSupport.hashString("commit-" + i);
+                builder.add(id);
+                index.put(id, Integer.valueOf(i));
+            }
+            this.chain = builder.build();
+            this.frontier = frontier;
+        }
+
+        @Override
+        public boolean objectExists(ObjectId objectId) {
+            existsCalls++;
+            Integer i = index.get(objectId);
+            return i != null && i.intValue() >= frontier;
+        }
+
+        @Override
+        public ImmutableList<ObjectId> getParents(ObjectId commitId) {
+            int i = index.get(commitId).intValue();
+            return i + 1 < chain.size() ? ImmutableList.of(chain.get(i + 1)) : ImmutableList.of();
+        }
+
+        @Override
+        public int getDepth(ObjectId commitId) {
+            return 0;
+        }
+
+        @Override
+        public Optional<Integer> getRepoDepth() {
+            return Optional.absent();
+        }
+    }
+
+    private void assertNegotiation(final int size, final int frontier, final int maxRoundTrips) {
+        LinearHistory history = new LinearHistory(size, frontier);
+        CommitNegotiator negotiator = new CommitNegotiator(history, history);
+
+        Optional<ObjectId> common = negotiator.negotiate(history.chain.get(0));
+        if (frontier < size) {
+            assertEquals(history.chain.get(frontier), common.orNull());
+        } else {
+            assertFalse(common.isPresent());
+        }
+        assertTrue(String.format("%d round trips", negotiator.getRoundTrips()),
+                negotiator.getRoundTrips() <= maxRoundTrips);
+
+        final int calls = history.existsCalls;
+        for (int i = 0; i < size; i++) {
+            assertEquals(i >= frontier, negotiator.exists(history.chain.get(i)));
+        }
+        assertEquals("known commits shall not be asked for again", calls, history.existsCalls);
+    }
+
+    @Test
+    public void testLinearHistory() {
+        assertNegotiation(1, 0, 1);
+        assertNegotiation(1, 1, 1);
+        assertNegotiation(10, 0, 1);
+        assertNegotiation(10, 3, 2);
+        assertNegotiation(10, 10, 2);
+        assertNegotiation(100_000, 0, 1);
+        assertNegotiation(100_000, 1, 2);
+        assertNegotiation(100_000, 99_999, 4);
+        assertNegotiation(100_000, 100_000, 4);
+        assertNegotiation(100_000, 12_345, 4);
+        assertNegotiation(100_000, 54_321, 4);
+    }
+
+    @Test
+    public void testKnownAncestorIsNotAskedFor() {
+        LinearHistory history = new LinearHistory(1000, 500);
+        CommitNegotiator negotiator = new CommitNegotiator(history, history);
+        negotiator.negotiate(history.chain.get(400));
+        final int roundTrips = negotiator.getRoundTrips();
+
+        // commit 400 is known to be missing, hence so are its descendants
+        assertFalse(negotiator.negotiate(history.chain.get(0)).isPresent());
+        assertFalse(negotiator.exists(history.chain.get(0)));
+        assertTrue(negotiator.exists(history.chain.get(500)));
+        assertEquals(roundTrips, negotiator.getRoundTrips());
+    }
+
+    @Test
+    public void testMissingCommits() throws Exception {
+        insertAndAdd(points1);
+        final RevCommit c1 = geogig.command(CommitOp.class).setMessage("commit").call();
+        geogig.command(BranchCreateOp.class).setAutoCheckout(true).setName("branch1").call();
+        insertAndAdd(points2);
+        final RevCommit c2 = geogig.command(CommitOp.class).setMessage("commit").call();
+        geogig.command(CheckoutOp.class).setSource("master").call();
+        insertAndAdd(points3);
+        final RevCommit c3 = geogig.command(CommitOp.class).setMessage("commit").call();
+        insertAndAdd(lines1);
+        final RevCommit c4 = geogig.command(CommitOp.class).setMessage("commit").call();
+        final RevCommit merge = geogig.command(MergeOp.class).addCommit(c2.getId())
+                .setMessage("merge").call().getMergeCommit();
+
+        List<ObjectId> missing = CommitNegotiator.missingCommits(repo.objectDatabase(),
+                ImmutableList.of(merge.getId()), ImmutableList.of(c3.getId()));
+        assertEquals(ImmutableSet.of(c2.getId(), c4.getId(), merge.getId()),
+                new HashSet<>(missing));
+        assertEquals(3, missing.size());
+        assertEquals(merge.getId(), missing.get(2));
+
+        missing = CommitNegotiator.missingCommits(repo.objectDatabase(),
+                ImmutableList.of(merge.getId()), ImmutableList.of());
+        assertEquals(5, missing.size());
+        assertEquals(c1.getId(), missing.get(0));
+        assertParentsFirst(missing);
+
+        ObjectId unknown = RevObjectTestSupport.hashString("unknown");
+        missing = CommitNegotiator.missingCommits(repo.objectDatabase(),
+                ImmutableList.of(c4.getId()), ImmutableList.of(unknown, c2.getId()));
+        assertEquals(ImmutableList.of(c3.getId(), c4.getId()), missing);
+
+        missing = CommitNegotiator.missingCommits(repo.objectDatabase(),
+                ImmutableList.of(c4.getId()), ImmutableList.of(merge.getId()));
+        assertTrue(missing.isEmpty());
+    }
+
+    private void assertParentsFirst(List<ObjectId> commits) {
+        Set<ObjectId> seen = new HashSet<>();
+        for (ObjectId id : commits) {
+            for (ObjectId parent : repo.getCommit(id).getParentIds()) {
+                assertTrue(seen.contains(parent));
+            }
+            seen.add(id);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.remote.http;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.remote.http.ChunkedFetch.Manifest;
+import org.locationtech.geogig.remote.http.ChunkedFetch.Plan;
+import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.geogig.storage.datastream.DataStreamSerializationFactoryV1;
+import org.locationtech.geogig.storage.memory.HeapDeduplicator;
+import org.locationtech.geogig.storage.memory.HeapObjectStore;
+import org.locationtech.geogig.test.integration.RepositoryTestCase;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+public class ChunkedFetchTest extends RepositoryTestCase {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private List<ObjectId> want;
+
+    @Override
+    protected void setUpInternal() throws Exception {
+        List<RevCommit> commits = populate(true, points1, points2, points3, lines1, lines2,
+                lines3, poly1, poly2, poly3);
+        want = new ArrayList<>(Lists.transform(commits, (c) -> c.getId()));
+    }
+
+    private Plan plan(int chunkSize) throws Exception {
+        return Plan.create(repo.objectDatabase(), want, ImmutableList.of(), chunkSize, false,
+                new HeapDeduplicator(), tmp.getRoot());
+    }
+
+    @Test
+    public void testFetchId() {
+        List<ObjectId> have = ImmutableList.of(want.get(0));
+        String id = ChunkedFetch.fetchId(want, have, 10);
+        assertEquals(id, ChunkedFetch.fetchId(new ArrayList<>(want), have, 10));
+        assertNotEquals(id, ChunkedFetch.fetchId(want, have, 11));
+        assertNotEquals(id, ChunkedFetch.fetchId(want, ImmutableList.of(), 10));
+        assertEquals(id, ChunkedFetch.fetchId(want, have, 10, false));
+        assertNotEquals(id, ChunkedFetch.fetchId(want, have, 10, true));
+    }
+
+    @Test
+    public void testPlanIsStable() throws Exception {
+        try (Plan plan1 = plan(5); Plan plan2 = plan(5)) {
+            Manifest manifest = plan1.getManifest();
+            assertEquals(manifest, plan2.getManifest());
+            assertEquals(manifest.getFetchId(),
+                    ChunkedFetch.fetchId(want, ImmutableList.of(), 5));
+            assertTrue(manifest.getObjectCount() > 5);
+            assertEquals((manifest.getObjectCount() + 4) / 5, manifest.getNumChunks());
+        }
+    }
+
+    @Test
+    public void testManifestJson() throws Exception {
+        try (Plan plan = plan(3)) {
+            Manifest manifest = plan.getManifest();
+            assertEquals(manifest, Manifest.fromJson(manifest.toJson()));
+        }
+        try (Plan plan = Plan.create(repo.objectDatabase(), want, ImmutableList.of(), 3, false,
+                true, new HeapDeduplicator(), tmp.getRoot())) {
+            Manifest manifest = plan.getManifest();
+            assertTrue(manifest.isDeltas());
+            assertEquals(manifest, Manifest.fromJson(manifest.toJson()));
+        }
+    }
+
+    @Test
+    public void testWriteVerifyAndIngestChunks() throws Exception {
+        final ObjectStore target = new HeapObjectStore(DataStreamSerializationFactoryV1.INSTANCE);
+        target.open();
+        try (Plan plan = plan(4)) {
+            final Manifest manifest = plan.getManifest();
+            final BinaryPackedObjects unpacker = new BinaryPackedObjects(target);
+            long total = 0;
+            for (int chunk = 0; chunk < manifest.getNumChunks(); chunk++) {
+                List<ObjectId> ids = plan.getChunkIds(chunk);
+                File file = tmp.newFile("chunk-" + chunk);
+                try (OutputStream out = new FileOutputStream(file)) {
+                    assertEquals(ids.size(), plan.writeChunk(chunk, repo.objectDatabase(), out));
+                }
+                assertTrue(ChunkedFetch.verifyChunk(file));
+                BinaryPackedObjects.IngestResults results = ChunkedFetch.ingestChunk(file,
+                        unpacker, (o) -> {
+                        });
+                assertEquals(ids.size(), results.total());
+                for (ObjectId id : ids) {
+                    assertTrue(target.exists(id));
+                }
+                total += results.total();
+            }
+            assertEquals(manifest.getObjectCount(), total);
+            for (ObjectId commitId : want) {
+                assertTrue(target.exists(commitId));
+            }
+        } finally {
+            target.close();
+        }
+    }
+
+    @Test
+    public void testCloseWhileRetained() throws Exception {
+        Plan plan = plan(4);
+        assertTrue(plan.retain());
+        plan.close();
+        assertFalse(plan.retain());
+        File[] idsFiles = tmp.getRoot().listFiles();
+        assertEquals(1, idsFiles.length);
+
+        // the retained plan can still be read after it's closed
+        List<ObjectId> ids = plan.getChunkIds(0);
+        assertEquals(4, ids.size());
+        plan.release();
+        assertFalse(idsFiles[0].exists());
+
+        File file = tmp.newFile("chunk");
+        try (OutputStream out = new FileOutputStream(file)) {
+            assertEquals(4, plan.writeChunk(ids, repo.objectDatabase(), out));
+        }
+        assertTrue(ChunkedFetch.verifyChunk(file));
+    }
+
+    @Test
+    public void testVerifyCorruptChunk() throws Exception {
+        File file = tmp.newFile("chunk");
+        try (Plan plan = plan(100)) {
+            try (OutputStream out = new FileOutputStream(file)) {
+                plan.writeChunk(0, repo.objectDatabase(), out);
+            }
+        }
+        assertTrue(ChunkedFetch.verifyChunk(file));
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(25);
+            int b = raf.read();
+            raf.seek(25);
+            raf.write(b ^ 0xFF);
+        }
+        assertFalse(ChunkedFetch.verifyChunk(file));
+
+        // truncated
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() / 2);
+        }
+        assertFalse(ChunkedFetch.verifyChunk(file));
+    }
+}
@@ -0,0 +1,393 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.remote.http;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.Ref;
+import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.porcelain.TransferSummary.PackStats;
+import org.locationtech.geogig.remote.http.ChunkedFetch.Plan;
+import org.locationtech.geogig.repository.DefaultProgressListener;
+import org.locationtech.geogig.repository.Hints;
+import org.locationtech.geogig.repository.Repository;
+import org.locationtech.geogig.repository.impl.GeoGIG;
+import org.locationtech.geogig.storage.memory.HeapDeduplicator;
+import org.locationtech.geogig.test.TestPlatform;
+import org.locationtech.geogig.test.integration.RepositoryTestCase;
+import org.locationtech.geogig.test.integration.TestContextBuilder;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class ChunkedFetcherTest extends RepositoryTestCase {
+
+    private static final int CHUNK_SIZE = 5;
+
+    private static final String REF_NAME = "refs/remotes/origin/master";
+
+    private List<ObjectId> want;
+
+    private Ref ref;
+
+    private Repository local;
+
+    private HttpServer server;
+
+    private ExecutorService serverThreads;
+
+    private FakeRemote remote;
+
+    @Override
+    protected void setUpInternal() throws Exception {
+        List<RevCommit> commits = populate(true, points1, points2, points3, lines1, lines2,
+                lines3, poly1, poly2, poly3);
+        want = new ArrayList<>(Lists.transform(commits, (c) -> c.getId()));
+        ref = new Ref(REF_NAME, want.get(want.size() - 1));
+
+        File localDirectory = repositoryTempFolder.newFolder("local");
+        Hints hints = new Hints().uri(localDirectory.toURI())
+                .platform(new TestPlatform(localDirectory));
+        local = new GeoGIG(new TestContextBuilder().build(hints)).getOrCreateRepository();
+
+        remote = new FakeRemote();
+        serverThreads = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/repo/batchchunks", (exchange) -> remote.handle(exchange));
+        server.setExecutor(serverThreads);
+        server.start();
+    }
+
+    @Override
+    protected void tearDownInternal() throws Exception {
+        server.stop(0);
+        serverThreads.shutdownNow();
+        remote.discardPlans();
+        local.close();
+    }
+
+    /**
+     * Stands for the {@code BatchedObjectChunksResource} of the remote, serving the objects of
+     * the test repository
+     */
+    private class FakeRemote {
+
+        final Map<String, Plan> plans = new HashMap<>();
+
+        final AtomicInteger manifestRequests = new AtomicInteger();
+
+        final List<Integer> chunkRequests = Collections.synchronizedList(new ArrayList<>());
+
+        final AtomicInteger inFlight = new AtomicInteger();
+
+        final AtomicInteger maxInFlight = new AtomicInteger();
+
+        // responds with an error to every request for this chunk
+        volatile int failChunk = -1;
+
+        // discards the plans, as a restarted server would, when this chunk is requested
+        volatile int discardPlansAt = -1;
+
+        // whether plans computed again leave the last commit out, as if the remote lost it
+        volatile boolean changeOnReplan;
+
+        // if set, holds chunk requests until as many as its count are in flight
+        volatile CountDownLatch concurrentRequests;
+
+        void handle(HttpExchange exchange) throws IOException {
+            try {
+                if ("POST".equals(exchange.getRequestMethod())) {
+                    manifest(exchange);
+                } else {
+                    chunk(exchange);
+                }
+            } finally {
+                exchange.close();
+            }
+        }
+
+        private void manifest(HttpExchange exchange) throws IOException {
+            final int requests = manifestRequests.incrementAndGet();
+            final JsonObject message;
+            try (Reader reader = new InputStreamReader(exchange.getRequestBody(),
+                    StandardCharsets.UTF_8)) {
+                message = new JsonParser().parse(reader).getAsJsonObject();
+            }
+            List<ObjectId> want = ids(message.get("want").getAsJsonArray());
+            List<ObjectId> have = ids(message.get("have").getAsJsonArray());
+            int chunkSize = message.get("chunkSize").getAsInt();
+            if (changeOnReplan && requests > 1) {
+                want = want.subList(0, want.size() - 1);
+            }
+            Plan plan;
+            synchronized (plans) {
+                String fetchId = ChunkedFetch.fetchId(want, have, chunkSize);
+                plan = plans.get(fetchId);
+                if (plan == null) {
+                    plan = plan(want, have, chunkSize);
+                    plans.put(fetchId, plan);
+                }
+            }
+            byte[] manifest = plan.getManifest().toJson().toString()
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, manifest.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(manifest);
+            }
+        }
+
+        private void chunk(HttpExchange exchange) throws IOException {
+            final Map<String, String> query = new HashMap<>();
+            for (String param : exchange.getRequestURI().getQuery().split("&")) {
+                String[] kvp = param.split("=");
+                query.put(kvp[0], kvp[1]);
+            }
+            final int chunk = Integer.parseInt(query.get("chunk"));
+            chunkRequests.add(Integer.valueOf(chunk));
+            final int concurrent = inFlight.incrementAndGet();
+            maxInFlight.accumulateAndGet(concurrent, Math::max);
+            try {
+                CountDownLatch latch = concurrentRequests;
+                if (latch != null) {
+                    latch.countDown();
+                    latch.await(5, TimeUnit.SECONDS);
+                }
+                if (chunk == discardPlansAt) {
+                    discardPlansAt = -1;
+                    discardPlans();
+                }
+                final Plan plan;
+                synchronized (plans) {
+                    plan = plans.get(query.get("fetchId"));
+                }
+                if (plan == null) {
+                    exchange.sendResponseHeaders(404, -1);
+                    return;
+                }
+                if (chunk == failChunk) {
+                    exchange.sendResponseHeaders(500, -1);
+                    return;
+                }
+                exchange.sendResponseHeaders(200, 0);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    plan.writeChunk(chunk, repo.objectDatabase(), out);
+                }
+            } catch (InterruptedException e) {
+                exchange.sendResponseHeaders(503, -1);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+
+        void discardPlans() {
+            synchronized (plans) {
+                plans.values().forEach((p) -> p.close());
+                plans.clear();
+            }
+        }
+
+        private List<ObjectId> ids(JsonArray array) {
+            List<ObjectId> ids = new ArrayList<>();
+            for (JsonElement e : array) {
+                ids.add(ObjectId.valueOf(e.getAsString()));
+            }
+            return ids;
+        }
+
+        /**
+         * @return the number of requests for the given chunk
+         */
+        int requests(int chunk) {
+            return Collections.frequency(chunkRequests, Integer.valueOf(chunk));
+        }
+    }
+
+    private Plan plan(List<ObjectId> want, List<ObjectId> have, int chunkSize)
+            throws IOException {
+        return Plan.create(repo.objectDatabase(), want, have, chunkSize, false,
+                new HeapDeduplicator(), repositoryTempFolder.getRoot());
+    }
+
+    private ChunkedFetcher fetcher(int parallelism) throws Exception {
+        URL url = new URL("http://localhost:" + server.getAddress().getPort());
+        return new ChunkedFetcher(url, local, CHUNK_SIZE, parallelism, false, new PackStats());
+    }
+
+    private boolean fetch(ChunkedFetcher fetcher, Set<ObjectId> have,
+            BinaryPackedObjects.Callback callback, DefaultProgressListener progress) {
+        return fetcher.fetch(ref, want, have, callback, progress);
+    }
+
+    private boolean fetch(int parallelism) throws Exception {
+        return fetch(fetcher(parallelism), ImmutableSet.of(), (o) -> {
+        }, new DefaultProgressListener());
+    }
+
+    private int numChunks() throws IOException {
+        try (Plan plan = plan(want, ImmutableList.of(), CHUNK_SIZE)) {
+            return plan.getManifest().getNumChunks();
+        }
+    }
+
+    /**
+     * Asserts the objects of the given chunks have been fetched, or not
+     */
+    private void assertFetched(int fromChunk, int toChunk, boolean fetched) throws IOException {
+        try (Plan plan = plan(want, ImmutableList.of(), CHUNK_SIZE)) {
+            for (int chunk = fromChunk; chunk < toChunk; chunk++) {
+                for (ObjectId id : plan.getChunkIds(chunk)) {
+                    assertEquals(String.format("chunk %d, object %s", chunk, id), fetched,
+                            local.objectDatabase().exists(id));
+                }
+            }
+        }
+    }
+
+    private String[] fetchStates() {
+        String[] states = ChunkedFetcher.fetchDirectory(local).list();
+        return states == null ? new String[0] : states;
+    }
+
+    @Test
+    public void testFetch() throws Exception {
+        final int numChunks = numChunks();
+        assertTrue(numChunks > 3);
+
+        assertTrue(fetch(1));
+        assertFetched(0, numChunks, true);
+        assertEquals(1, remote.manifestRequests.get());
+        for (int chunk = 0; chunk < numChunks; chunk++) {
+            assertEquals(1, remote.requests(chunk));
+        }
+        assertEquals(1, remote.maxInFlight.get());
+        // the state is deleted once the fetch completes
+        assertEquals(0, fetchStates().length);
+    }
+
+    @Test
+    public void testParallelDownloads() throws Exception {
+        final int numChunks = numChunks();
+        final int parallelism = 3;
+        assertTrue(numChunks > parallelism);
+        remote.concurrentRequests = new CountDownLatch(parallelism);
+
+        assertTrue(fetch(parallelism));
+        assertFetched(0, numChunks, true);
+        assertEquals(parallelism, remote.maxInFlight.get());
+        for (int chunk = 0; chunk < numChunks; chunk++) {
+            assertEquals(1, remote.requests(chunk));
+        }
+    }
+
+    @Test
+    public void testResumeAfterFailure() throws Exception {
+        final int numChunks = numChunks();
+        final int failChunk = 3;
+        remote.failChunk = failChunk;
+        try {
+            fetch(2);
+            fail("expected exception");
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        assertEquals(3, remote.requests(failChunk));
+        // the chunks before the failed one were committed
+        assertFetched(0, failChunk, true);
+        assertFetched(failChunk, failChunk + 1, false);
+        assertEquals(1, fetchStates().length);
+
+        remote.failChunk = -1;
+        remote.chunkRequests.clear();
+        // the commits fetched already make up a different have list, the saved request is used
+        Set<ObjectId> have = ImmutableSet.of(want.get(0));
+        assertTrue(fetch(fetcher(2), have, (o) -> {
+        }, new DefaultProgressListener()));
+        assertFetched(0, numChunks, true);
+        assertEquals(1, remote.plans.size());
+        assertEquals(1, remote.requests(failChunk));
+        for (int chunk = 0; chunk < failChunk; chunk++) {
+            assertEquals(0, remote.requests(chunk));
+        }
+        assertEquals(0, fetchStates().length);
+    }
+
+    @Test
+    public void testReplanAfterNotFound() throws Exception {
+        final int numChunks = numChunks();
+        remote.discardPlansAt = 2;
+
+        assertTrue(fetch(1));
+        assertFetched(0, numChunks, true);
+        assertEquals(2, remote.manifestRequests.get());
+        assertEquals(2, remote.requests(2));
+        assertEquals(1, remote.requests(3));
+    }
+
+    @Test
+    public void testObjectsChangedOnReplan() throws Exception {
+        remote.discardPlansAt = 2;
+        remote.changeOnReplan = true;
+        try {
+            fetch(1);
+            fail("expected exception");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("changed on the remote"));
+        }
+        assertEquals(2, remote.manifestRequests.get());
+        assertFetched(0, 2, true);
+        assertFetched(2, 3, false);
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        final int numChunks = numChunks();
+        final DefaultProgressListener progress = new DefaultProgressListener();
+        // cancel while ingesting the first chunk
+        assertFalse(fetch(fetcher(1), ImmutableSet.of(), (o) -> progress.cancel(), progress));
+        assertFetched(0, 1, true);
+        assertFetched(numChunks - 1, numChunks, false);
+        // the state is kept to resume the fetch
+        assertEquals(1, fetchStates().length);
+
+        remote.chunkRequests.clear();
+        assertTrue(fetch(1));
+        assertFetched(0, numChunks, true);
+        assertEquals(0, remote.requests(0));
+        assertEquals(1, remote.requests(numChunks - 1));
+        assertEquals(0, fetchStates().length);
+    }
+}
@@ -0,0 +1,170 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.remote.http;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+import org.junit.Test;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.Ref;
+import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.plumbing.RefParse;
+import org.locationtech.geogig.plumbing.UpdateRef;
+import org.locationtech.geogig.porcelain.CommitOp;
+import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.geogig.storage.memory.HeapDeduplicator;
+import org.locationtech.geogig.storage.memory.HeapObjectStore;
+import org.locationtech.geogig.test.integration.RepositoryTestCase;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
+
+public class CloneBundleStoreTest extends RepositoryTestCase {
+
+    private CloneBundleStore store;
+
+    private RevCommit first;
+
+    @Override
+    protected void setUpInternal() throws Exception {
+        store = new CloneBundleStore(repositoryTempFolder.newFolder("bundles"));
+        insertAndAdd(points1, points2, lines1);
+        first = geogig.command(CommitOp.class).setMessage("first").call();
+    }
+
+    private Ref master() {
+        return geogig.command(RefParse.class).setName(Ref.MASTER).call().get();
+    }
+
+    @Test
+    public void testBuild() throws Exception {
+        assertFalse(store.get(Ref.MASTER).isPresent());
+
+        CloneBundle bundle = store.refresh(repo, master());
+        assertEquals(Ref.MASTER, bundle.getRef());
+        assertEquals(first.getId(), bundle.getTip());
+        assertEquals(1, bundle.getSegments().size());
+        assertEquals(bundle, store.get(Ref.MASTER).get());
+        assertEquals(reachable(first.getId(), null).size(), bundle.getObjects());
+        // refreshing an up to date bundle is a no-op
+        assertEquals(bundle, store.refresh(repo, master()));
+
+        assertIngests(bundle, first.getId());
+    }
+
+    @Test
+    public void testAppend() throws Exception {
+        CloneBundle bundle = store.refresh(repo, master());
+
+        insertAndAdd(points1_modified, points3);
+        RevCommit second = geogig.command(CommitOp.class).setMessage("second").call();
+        CloneBundle refreshed = store.refresh(repo, master());
+
+        assertEquals(second.getId(), refreshed.getTip());
+        assertEquals(bundle.getGeneration(), refreshed.getGeneration());
+        assertEquals(2, refreshed.getSegments().size());
+        assertTrue(bundle.isPrefixOf(refreshed));
+        assertFalse(refreshed.isPrefixOf(bundle));
+        assertEquals(reachable(second.getId(), first.getId()).size(),
+                refreshed.getSegments().get(1).getObjects());
+
+        // the old descriptor still reads the same contents
+        File prefix = download(bundle);
+        assertTrue(bundle.verify(prefix));
+
+        assertIngests(refreshed, second.getId());
+    }
+
+    @Test
+    public void testRebuildOnRewrite() throws Exception {
+        insertAndAdd(points3);
+        geogig.command(CommitOp.class).setMessage("second").call();
+        CloneBundle bundle = store.refresh(repo, master());
+
+        // rewind master and commit something else
+        geogig.command(UpdateRef.class).setName(Ref.MASTER).setNewValue(first.getId()).call();
+        insertAndAdd(points1_modified);
+        RevCommit rewritten = geogig.command(CommitOp.class).setMessage("rewritten").call();
+
+        CloneBundle rebuilt = store.refresh(repo, master());
+        assertEquals(rewritten.getId(), rebuilt.getTip());
+        assertFalse(bundle.getGeneration().equals(rebuilt.getGeneration()));
+        assertEquals(1, rebuilt.getSegments().size());
+        assertFalse(bundle.isPrefixOf(rebuilt));
+        try {
+            store.open(bundle, 0).close();
+            fail("expected FileNotFoundException");
+        } catch (FileNotFoundException expected) {
+            // the old generation was deleted
+        }
+        assertIngests(rebuilt, rewritten.getId());
+    }
+
+    @Test
+    public void testOpenAtOffset() throws Exception {
+        CloneBundle bundle = store.refresh(repo, master());
+        final long offset = bundle.getSize() / 2;
+        byte[] all;
+        byte[] tail;
+        try (InputStream in = store.open(bundle, 0)) {
+            all = ByteStreams.toByteArray(in);
+        }
+        try (InputStream in = store.open(bundle, offset)) {
+            tail = ByteStreams.toByteArray(in);
+        }
+        assertEquals(bundle.getSize(), all.length);
+        assertEquals(bundle.getSize() - offset, tail.length);
+        assertEquals(all[(int) offset], tail[0]);
+    }
+
+    @Test
+    public void testJson() throws Exception {
+        CloneBundle bundle = store.refresh(repo, master());
+        assertEquals(bundle, CloneBundle.fromJson(bundle.toJson()));
+        assertTrue(bundle.toJson().get("size").getAsLong() > 0);
+    }
+
+    private File download(CloneBundle bundle) throws Exception {
+        File file = repositoryTempFolder.newFile();
+        try (InputStream in = store.open(bundle, 0);
+                OutputStream out = new FileOutputStream(file)) {
+            ByteStreams.copy(in, out);
+        }
+        return file;
+    }
+
+    private void assertIngests(CloneBundle bundle, ObjectId tip) throws Exception {
+        File file = download(bundle);
+        assertTrue(bundle.verify(file));
+
+        ObjectStore target = new HeapObjectStore();
+        target.open();
+        try (InputStream in = store.open(bundle, 0)) {
+            new BinaryPackedObjects(target).ingest(in);
+        }
+        for (RevObject o : reachable(tip, null)) {
+            assertTrue(o + " not found", target.exists(o.getId()));
+        }
+        target.close();
+    }
+
+    private List<RevObject> reachable(ObjectId want, ObjectId have) {
+        return Lists.newArrayList(new BinaryPackedObjects(repo.objectDatabase()).traverse(
+                ImmutableList.of(want), have == null ? ImmutableList.of() : ImmutableList.of(have),
+                true, new HeapDeduplicator()));
+    }
+}
@@ -0,0 +1,110 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.remote.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.plumbing.RevParse;
+import org.locationtech.geogig.porcelain.CommitOp;
+import org.locationtech.geogig.porcelain.TransferSummary.PackStats;
+import org.locationtech.geogig.remote.ObjectFunnel;
+import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.geogig.storage.memory.HeapDeduplicator;
+import org.locationtech.geogig.test.integration.RepositoryTestCase;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+public class DeltaPackTest extends RepositoryTestCase {
+
+    private RevCommit base;
+
+    private RevCommit modified;
+
+    @Override
+    protected void setUpInternal() throws Exception {
+        insertAndAdd(points1, points2, lines1);
+        base = geogig.command(CommitOp.class).setMessage("base").call();
+        insertAndAdd(points1_modified, points3);
+        modified = geogig.command(CommitOp.class).setMessage("modified").call();
+    }
+
+    @Test
+    public void testFindBases() {
+        ObjectStore db = repo.objectDatabase();
+        Map<ObjectId, ObjectId> bases = DeltaPack.findBases(db, ImmutableList.of(modified.getId()),
+                ImmutableList.of(base.getId()));
+
+        assertEquals(base.getTreeId(), bases.get(modified.getTreeId()));
+        ObjectId oldPoint = getNodeId(base, "Points/" + idP1);
+        ObjectId newPoint = getNodeId(modified, "Points/" + idP1);
+        assertEquals(oldPoint, bases.get(newPoint));
+        assertEquals(getNodeId(base, "Points"), bases.get(getNodeId(modified, "Points")));
+        // added feature has no base
+        assertFalse(bases.containsKey(getNodeId(modified, "Points/" + idP3)));
+
+        assertTrue(DeltaPack.findBases(db, ImmutableList.of(modified.getId()), ImmutableList.of())
+                .isEmpty());
+    }
+
+    private ObjectId getNodeId(RevCommit commit, String path) {
+        return geogig.command(RevParse.class).setRefSpec(commit.getId() + ":" + path).call().get();
+    }
+
+    @Test
+    public void testWriteAndRead() throws Exception {
+        ObjectStore db = repo.objectDatabase();
+        List<ObjectId> want = ImmutableList.of(modified.getId());
+        List<ObjectId> have = ImmutableList.of(base.getId());
+        Map<ObjectId, ObjectId> bases = DeltaPack.findBases(db, want, have);
+
+        List<RevObject> objects = Lists.newArrayList(new BinaryPackedObjects(db).traverse(want,
+                have, false, new HeapDeduplicator()));
+        assertFalse(objects.isEmpty());
+
+        PackStats written = new PackStats();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ObjectFunnel funnel = DeltaPack.newFunnel(out, db, bases, written)) {
+            for (RevObject o : objects) {
+                funnel.funnel(o);
+            }
+        }
+        assertEquals(objects.size(), written.getObjects());
+        assertTrue(written.getDeltas() > 0);
+        assertEquals(out.size(), written.getPackedBytes());
+
+        PackStats read = new PackStats();
+        Iterator<RevObject> it = DeltaPack.read(new ByteArrayInputStream(out.toByteArray()), db,
+                read);
+        List<RevObject> result = new ArrayList<>();
+        it.forEachRemaining(result::add);
+        assertEquals(objects, result);
+        assertEquals(written.getDeltas(), read.getDeltas());
+        assertEquals(written.getRawBytes(), read.getRawBytes());
+        assertEquals(written.getPackedBytes(), read.getPackedBytes());
+    }
+
+    @Test
+    public void testIsDeltaPack() {
+        assertTrue(DeltaPack.isDeltaPack(DeltaPack.MEDIA_TYPE));
+        assertTrue(DeltaPack.isDeltaPack(DeltaPack.MEDIA_TYPE + "; charset=UTF-8"));
+        assertFalse(DeltaPack.isDeltaPack("application/octet-stream"));
+        assertFalse(DeltaPack.isDeltaPack(null));
+    }
+}
@@ -0,0 +1,236 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.remote.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevFeature;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.model.impl.RevFeatureBuilder;
+import org.locationtech.geogig.remote.ObjectFunnel;
+import org.locationtech.geogig.remote.ObjectFunnels;
+import org.locationtech.geogig.remote.http.BinaryPackedObjects.IngestMetrics;
+import org.locationtech.geogig.remote.http.BinaryPackedObjects.IngestResults;
+import org.locationtech.geogig.remote.http.IngestPipeline.Frame;
+import org.locationtech.geogig.remote.http.IngestPipeline.FrameReader;
+import org.locationtech.geogig.storage.BulkOpListener;
+import org.locationtech.geogig.storage.datastream.DataStreamSerializationFactoryV1;
+import org.locationtech.geogig.storage.memory.HeapObjectStore;
+
+import com.google.common.base.Supplier;
+
+public class IngestPipelineTest {
+
+    private HeapObjectStore db;
+
+    private List<RevObject> objects;
+
+    @Before
+    public void setUp() {
+        db = new HeapObjectStore();
+        db.open();
+        objects = new ArrayList<>();
+        // a few batches, the last one partial
+        for (int i = 0; i < 10 * IngestPipeline.FRAMES_PER_BATCH + 17; i++) {
+            RevFeature feature = RevFeatureBuilder.builder().addValue(Integer.valueOf(i))
+                    .addValue("feature " + i).build();
+            objects.add(feature);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void testIngestPack() throws Exception {
+        ByteArrayOutputStream pack = new ByteArrayOutputStream();
+        try (ObjectFunnel funnel = ObjectFunnels.newFunnel(pack,
+                DataStreamSerializationFactoryV1.INSTANCE)) {
+            for (RevObject o : objects) {
+                funnel.funnel(o);
+            }
+        }
+        final List<ObjectId> inserted = new ArrayList<>();
+        BinaryPackedObjects unpacker = new BinaryPackedObjects(db).setIngestThreads(3);
+        IngestResults results = unpacker.ingest(new ByteArrayInputStream(pack.toByteArray()),
+                new BinaryPackedObjects.Callback() {
+                    @Override
+                    public void callback(Supplier<RevObject> object) {
+                        inserted.add(object.get().getId());
+                    }
+                });
+
+        assertEquals(objects.size(), results.getInserted());
+        assertEquals(0, results.getExisting());
+        assertEquals(ids(objects), inserted);
+
+        IngestMetrics metrics = results.getMetrics();
+        assertEquals(objects.size(), metrics.getObjectsRead());
+        assertEquals(objects.size(), metrics.getObjectsDecoded());
+        assertEquals(objects.size(), metrics.getObjectsWritten());
+        assertEquals(pack.size(), metrics.getBytesRead());
+        assertEquals(0, metrics.getHashMismatches());
+
+        // ingesting again finds them all
+        results = new BinaryPackedObjects(db).ingest(new ByteArrayInputStream(pack.toByteArray()));
+        assertEquals(0, results.getInserted());
+        assertEquals(objects.size(), results.getExisting());
+    }
+
+    @Test
+    public void testPreservesOrder() {
+        final List<ObjectId> inserted = new ArrayList<>();
+        IngestPipeline pipeline = new IngestPipeline(db, 4, null);
+        pipeline.run(reader(objects.iterator(), -1), new BulkOpListener() {
+            @Override
+            public void inserted(ObjectId object, Integer storageSizeBytes) {
+                inserted.add(object);
+            }
+        });
+        assertEquals(ids(objects), inserted);
+    }
+
+    @Test
+    public void testReaderFailure() {
+        final int failAt = 3 * IngestPipeline.FRAMES_PER_BATCH + 5;
+        IngestPipeline pipeline = new IngestPipeline(db, 2, null);
+        try {
+            pipeline.run(reader(objects.iterator(), failAt), BulkOpListener.NOOP_LISTENER);
+            fail("expected exception");
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof IOException);
+            assertEquals("broken pipe", e.getCause().getMessage());
+        }
+        assertTrue(pipeline.getMetrics().getObjectsWritten() <= failAt);
+    }
+
+    @Test
+    public void testDecodeFailure() {
+        FrameReader reader = reader(objects.iterator(), -1);
+        final int failAt = 5 * IngestPipeline.FRAMES_PER_BATCH;
+        FrameReader failing = new FrameReader() {
+            int count;
+
+            @Override
+            public Frame read() throws IOException {
+                final Frame frame = reader.read();
+                if (frame == null || count++ != failAt) {
+                    return frame;
+                }
+                return new Frame() {
+                    @Override
+                    public ObjectId getId() {
+                        return frame.getId();
+                    }
+
+                    @Override
+                    public int getSize() {
+                        return frame.getSize();
+                    }
+
+                    @Override
+                    public RevObject decode() throws IOException {
+                        throw new IllegalStateException("corrupt object");
+                    }
+                };
+            }
+        };
+        IngestPipeline pipeline = new IngestPipeline(db, 3, null);
+        try {
+            pipeline.run(failing, BulkOpListener.NOOP_LISTENER);
+            fail("expected exception");
+        } catch (IllegalStateException e) {
+            assertEquals("corrupt object", e.getMessage());
+        }
+        assertTrue(pipeline.getMetrics().getObjectsWritten() <= failAt);
+    }
+
+    @Test
+    public void testHashMismatch() {
+        FrameReader reader = reader(objects.iterator(), -1);
+        final int mismatchAt = 5 * IngestPipeline.FRAMES_PER_BATCH + 3;
+        final RevObject other = objects.get(0);
+        FrameReader tampered = new FrameReader() {
+            int count;
+
+            @Override
+            public Frame read() throws IOException {
+                final Frame frame = reader.read();
+                if (frame == null || count++ != mismatchAt) {
+                    return frame;
+                }
+                // another object's contents under the id the sender claims
+                return new Frame() {
+                    @Override
+                    public ObjectId getId() {
+                        return frame.getId();
+                    }
+
+                    @Override
+                    public int getSize() {
+                        return frame.getSize();
+                    }
+
+                    @Override
+                    public RevObject decode() throws IOException {
+                        return other;
+                    }
+                };
+            }
+        };
+        final ObjectId claimedId = objects.get(mismatchAt).getId();
+        IngestPipeline pipeline = new IngestPipeline(db, 3, null);
+        try {
+            pipeline.run(tampered, BulkOpListener.NOOP_LISTENER);
+            fail("expected exception");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(claimedId.toString()));
+        }
+        assertEquals(1, pipeline.getMetrics().getHashMismatches());
+        assertTrue(pipeline.getMetrics().getObjectsWritten() <= mismatchAt);
+        assertFalse(db.exists(claimedId));
+    }
+
+    private static FrameReader reader(final Iterator<RevObject> objects, final int failAt) {
+        return new FrameReader() {
+            int count;
+
+            @Override
+            public Frame read() throws IOException {
+                if (count++ == failAt) {
+                    throw new IOException("broken pipe");
+                }
+                return objects.hasNext() ? IngestPipeline.decoded(objects.next(), 1) : null;
+            }
+        };
+    }
+
+    private static List<ObjectId> ids(List<RevObject> objects) {
+        List<ObjectId> ids = new ArrayList<>();
+        objects.forEach((o) -> ids.add(o.getId()));
+        return ids;
+    }
+}
@@ -0,0 +1,84 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.remote.http;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ObjectDeltaTest {
+
+    private final Random random = new Random(1);
+
+    private byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private byte[] roundTrip(byte[] base, byte[] target) {
+        byte[] delta = ObjectDelta.encode(base, target);
+        assertNotNull(delta);
+        assertArrayEquals(target, ObjectDelta.apply(base, delta));
+        return delta;
+    }
+
+    @Test
+    public void testSmallEdit() {
+        byte[] base = randomBytes(4096);
+        byte[] target = base.clone();
+        target[1000] ^= 0x7F;
+        target[3000] ^= 0x7F;
+        byte[] delta = roundTrip(base, target);
+        assertTrue("delta size: " + delta.length, delta.length < 64);
+    }
+
+    @Test
+    public void testInsertionsAndDeletions() {
+        byte[] base = randomBytes(10_000);
+        byte[] inserted = randomBytes(300);
+        byte[] target = new byte[base.length + inserted.length - 500];
+        System.arraycopy(base, 0, target, 0, 2000);
+        System.arraycopy(inserted, 0, target, 2000, inserted.length);
+        System.arraycopy(base, 2500, target, 2000 + inserted.length, base.length - 2500);
+        byte[] delta = roundTrip(base, target);
+        assertTrue("delta size: " + delta.length, delta.length < inserted.length + 64);
+    }
+
+    @Test
+    public void testIdentical() {
+        byte[] base = randomBytes(1000);
+        byte[] delta = roundTrip(base, base.clone());
+        assertTrue(delta.length < 16);
+    }
+
+    @Test
+    public void testUnrelated() {
+        assertNull(ObjectDelta.encode(randomBytes(1000), randomBytes(1000)));
+        assertNull(ObjectDelta.encode(new byte[0], randomBytes(100)));
+        assertNull(ObjectDelta.encode(randomBytes(100), new byte[5]));
+    }
+
+    @Test
+    public void testRepeatedContent() {
+        byte[] base = new byte[2048];
+        Arrays.fill(base, (byte) 7);
+        byte[] target = new byte[3000];
+        Arrays.fill(target, (byte) 7);
+        target[0] = 1;
+        roundTrip(base, target);
+    }
+}
@@ -0,0 +1,94 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.remote.http;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+
+public class StreamCodecTest {
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        byte[] data = new byte[256 * 1024];
+        Random random = new Random(1);
+        for (int i = 0; i < data.length; i++) {
+            // compressible, but not trivially
+            data[i] = (byte) (random.nextInt(16) + (i / 1024));
+        }
+        for (StreamCodec codec : StreamCodec.available(StreamCodec.DEFAULT_ZSTD_LEVEL)) {
+            ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+            try (OutputStream out = codec.encode(encoded)) {
+                out.write(data, 0, 1000);
+                out.write(data, 1000, data.length - 1000);
+            }
+            if (!StreamCodec.IDENTITY.equals(codec)) {
+                assertTrue(codec + " didn't compress", encoded.size() < data.length);
+            }
+            byte[] decoded;
+            try (InputStream in = codec.decode(new ByteArrayInputStream(encoded.toByteArray()))) {
+                decoded = ByteStreams.toByteArray(in);
+            }
+            assertArrayEquals(codec.toString(), data, decoded);
+        }
+    }
+
+    @Test
+    public void testForName() {
+        assertSame(StreamCodec.GZIP, StreamCodec.forName("gzip").get());
+        assertSame(StreamCodec.LZ4, StreamCodec.forName(" LZ4 ").get());
+        assertSame(StreamCodec.IDENTITY, StreamCodec.forName("identity").get());
+        assertSame(StreamCodec.IDENTITY, StreamCodec.forName("none").get());
+        assertFalse(StreamCodec.forName("br").isPresent());
+        assertFalse(StreamCodec.forName(null).isPresent());
+        assertEquals(StreamCodec.zstd(1).isAvailable(), StreamCodec.forName("zstd").isPresent());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidZstdLevel() {
+        StreamCodec.zstd(23);
+    }
+
+    @Test
+    public void testNegotiate() {
+        assertSame(StreamCodec.IDENTITY, StreamCodec.negotiate(ImmutableList.of(), 3));
+        assertSame(StreamCodec.IDENTITY, StreamCodec.negotiate(ImmutableList.of("br"), 3));
+        assertSame(StreamCodec.LZ4,
+                StreamCodec.negotiate(ImmutableList.of("br", "lz4", "gzip"), 3));
+        assertSame(StreamCodec.GZIP, StreamCodec.negotiate(ImmutableList.of("gzip", "lz4"), 3));
+        StreamCodec zstd = StreamCodec.negotiate(ImmutableList.of("zstd", "lz4"), 5);
+        assertEquals(StreamCodec.zstd(1).isAvailable() ? "zstd" : "lz4", zstd.getName());
+    }
+
+    @Test
+    public void testAcceptEncoding() {
+        String header = StreamCodec.acceptEncoding(StreamCodec.GZIP);
+        assertTrue(header, header.startsWith("gzip, "));
+        assertTrue(header, header.contains("lz4;q=0."));
+        assertFalse(header, header.contains("gzip;"));
+
+        header = StreamCodec.acceptEncoding(StreamCodec.LZ4);
+        assertTrue(header, header.startsWith("lz4, "));
+        assertTrue(header, header.contains("gzip;q=0."));
+    }
+}
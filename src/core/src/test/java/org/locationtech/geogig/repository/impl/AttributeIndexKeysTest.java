@@ -0,0 +1,136 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.repository.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.UnsignedBytes;
+
+public class AttributeIndexKeysTest {
+
+    private static final Comparator<byte[]> KEY_ORDER = UnsignedBytes
+            .lexicographicalComparator();
+
+    @Test
+    public void testIsSupported() {
+        assertTrue(AttributeIndexKeys.isSupported(Integer.class));
+        assertTrue(AttributeIndexKeys.isSupported(Double.class));
+        assertTrue(AttributeIndexKeys.isSupported(String.class));
+        assertTrue(AttributeIndexKeys.isSupported(java.sql.Timestamp.class));
+        assertTrue(AttributeIndexKeys.isSupported(Boolean.class));
+        assertFalse(AttributeIndexKeys.isSupported(Object.class));
+        assertFalse(AttributeIndexKeys.isSupported(byte[].class));
+    }
+
+    @Test
+    public void testNumberKeysPreserveOrder() {
+        List<Number> values = ImmutableList.<Number> of(Double.NEGATIVE_INFINITY, -1e10, -1000L,
+                -1, -0.5f, 0, 0.25d, 1, 1000, Long.MAX_VALUE, Double.POSITIVE_INFINITY);
+        for (int i = 1; i < values.size(); i++) {
+            byte[] k1 = AttributeIndexKeys.encode(values.get(i - 1));
+            byte[] k2 = AttributeIndexKeys.encode(values.get(i));
+            assertTrue(values.get(i - 1) + " < " + values.get(i), KEY_ORDER.compare(k1, k2) < 0);
+        }
+        assertArrayEquals(AttributeIndexKeys.encode(0d), AttributeIndexKeys.encode(-0d));
+        assertArrayEquals(AttributeIndexKeys.encode(10), AttributeIndexKeys.encode(10d));
+    }
+
+    @Test
+    public void testStringKeysPreserveOrder() {
+        List<String> values = ImmutableList.of("", "A", "AB", "Ab", "a", "ab", "abc", "b",
+                "á");
+        for (int i = 1; i < values.size(); i++) {
+            byte[] k1 = AttributeIndexKeys.encode(values.get(i - 1));
+            byte[] k2 = AttributeIndexKeys.encode(values.get(i));
+            assertTrue(values.get(i - 1) + " < " + values.get(i), KEY_ORDER.compare(k1, k2) < 0);
+        }
+    }
+
+    @Test
+    public void testLongStringsAreTruncated() {
+        String longString = "0123456789abcdefghijklmnopqrstuvwxyz";
+        byte[] key = AttributeIndexKeys.encode(longString);
+        assertEquals(AttributeIndexKeys.MAX_KEY_LENGTH, key.length);
+        assertArrayEquals(key, AttributeIndexKeys.encode(longString + "suffix"));
+    }
+
+    @Test
+    public void testDateKeys() {
+        Date d1 = new Date(1000);
+        Date d2 = new Date(2000);
+        assertTrue(KEY_ORDER.compare(AttributeIndexKeys.encode(d1),
+                AttributeIndexKeys.encode(d2)) < 0);
+    }
+
+    @Test
+    public void testNullKey() {
+        byte[] key = AttributeIndexKeys.encode(null);
+        assertEquals(0, key.length);
+        assertEquals(-1, AttributeIndexKeys.bucket(key, 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedValue() {
+        AttributeIndexKeys.encode(new Object());
+    }
+
+    @Test
+    public void testBucket() {
+        byte[] key = { (byte) 0xA5, (byte) 0x0F };
+        assertEquals(0xA + 1, AttributeIndexKeys.bucket(key, 0));
+        assertEquals(0x5 + 1, AttributeIndexKeys.bucket(key, 1));
+        assertEquals(0x0 + 1, AttributeIndexKeys.bucket(key, 2));
+        assertEquals(0xF + 1, AttributeIndexKeys.bucket(key, 3));
+        assertEquals(-1, AttributeIndexKeys.bucket(key, 4));
+    }
+
+    @Test
+    public void testOverlaps() {
+        final byte[] lower = { (byte) 0x52 };
+        final byte[] upper = { (byte) 0x71 };
+
+        // root
+        assertTrue(AttributeIndexKeys.overlaps(new int[0], lower, upper));
+        // exhausted key bucket at the root holds the null values
+        assertTrue(AttributeIndexKeys.overlaps(new int[] { 0 }, null, null));
+
+        assertFalse(AttributeIndexKeys.overlaps(new int[] { 0x4 + 1 }, lower, upper));
+        assertTrue(AttributeIndexKeys.overlaps(new int[] { 0x5 + 1 }, lower, upper));
+        assertTrue(AttributeIndexKeys.overlaps(new int[] { 0x6 + 1 }, lower, upper));
+        assertTrue(AttributeIndexKeys.overlaps(new int[] { 0x7 + 1 }, lower, upper));
+        assertFalse(AttributeIndexKeys.overlaps(new int[] { 0x8 + 1 }, lower, upper));
+
+        assertFalse(AttributeIndexKeys.overlaps(new int[] { 0x5 + 1, 0x1 + 1 }, lower, upper));
+        assertTrue(AttributeIndexKeys.overlaps(new int[] { 0x5 + 1, 0x2 + 1 }, lower, upper));
+        assertTrue(AttributeIndexKeys.overlaps(new int[] { 0x7 + 1, 0x1 + 1 }, lower, upper));
+        assertFalse(AttributeIndexKeys.overlaps(new int[] { 0x7 + 1, 0x2 + 1 }, lower, upper));
+
+        // keys longer than the upper bound are greater than it
+        assertFalse(AttributeIndexKeys.overlaps(new int[] { 0x7 + 1, 0x1 + 1, 0x0 + 1 }, lower,
+                upper));
+        // unless the path is past an exhausted key bucket
+        assertTrue(AttributeIndexKeys.overlaps(new int[] { 0x7 + 1, 0x1 + 1, 0, 3 }, lower,
+                upper));
+
+        // unbounded ranges
+        assertTrue(AttributeIndexKeys.overlaps(new int[] { 0xF + 1 }, lower, null));
+        assertFalse(AttributeIndexKeys.overlaps(new int[] { 0xF + 1 }, null, upper));
+    }
+}
@@ -0,0 +1,156 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.storage.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.locationtech.geogig.model.impl.RevObjectTestSupport.hashString;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.model.impl.RevObjectTestSupport;
+
+import com.google.common.cache.CacheStats;
+
+public class OffHeapCacheTest {
+
+    private static final int SEGMENT_SIZE = 1024;
+
+    private OffHeapCache cache;
+
+    private CacheIdentifier repo1Id, repo2Id;
+
+    public @Before void before() {
+        cache = new OffHeapCache(16 * SEGMENT_SIZE);
+        repo1Id = new CacheIdentifier(1);
+        repo2Id = new CacheIdentifier(1000);
+    }
+
+    private Key key(CacheIdentifier prefix, int i) {
+        return prefix.create(hashString(String.valueOf(i)));
+    }
+
+    private byte[] value(int i, int size) {
+        byte[] value = new byte[size];
+        Arrays.fill(value, (byte) i);
+        return value;
+    }
+
+    public @Test void testPutGet() {
+        Key k1 = key(repo1Id, 1);
+        Key k2 = key(repo2Id, 1);
+        assertNull(cache.getIfPresent(k1));
+        cache.put(k1, value(1, 100));
+        assertTrue(cache.contains(k1));
+        assertFalse(cache.contains(k2));
+        assertArrayEquals(value(1, 100), cache.getIfPresent(k1));
+        assertEquals(100L, cache.sizeBytes());
+        assertEquals(1L, cache.objectCount());
+
+        CacheStats stats = cache.getStats();
+        assertEquals(1L, stats.hitCount());
+        assertEquals(1L, stats.missCount());
+    }
+
+    public @Test void testPutIfAbsent() {
+        Key k1 = key(repo1Id, 1);
+        cache.put(k1, value(1, 100));
+        cache.put(k1, value(2, 50));
+        assertArrayEquals(value(1, 100), cache.getIfPresent(k1));
+        assertEquals(100L, cache.sizeBytes());
+    }
+
+    public @Test void testValueLargerThanSegmentIgnored() {
+        Key k1 = key(repo1Id, 1);
+        cache.put(k1, value(1, SEGMENT_SIZE + 1));
+        assertFalse(cache.contains(k1));
+        assertEquals(0L, cache.sizeBytes());
+    }
+
+    public @Test void testEviction() {
+        final int count = 1000;
+        for (int i = 0; i < count; i++) {
+            cache.put(key(repo1Id, i), value(i, 100));
+        }
+        assertTrue(cache.sizeBytes() <= cache.maxSizeBytes());
+        assertTrue(cache.objectCount() < count);
+        CacheStats stats = cache.getStats();
+        assertEquals(count - cache.objectCount(), stats.evictionCount());
+        // the latest one is always there
+        assertArrayEquals(value(count - 1, 100), cache.getIfPresent(key(repo1Id, count - 1)));
+    }
+
+    public @Test void testReferencedEntriesSurviveEviction() {
+        final Key hot = key(repo1Id, -1);
+        cache.put(hot, value(1, 100));
+        for (int i = 0; i < 1000; i++) {
+            cache.put(key(repo1Id, i), value(i, 100));
+            assertNotNull(cache.getIfPresent(hot));
+        }
+        assertArrayEquals(value(1, 100), cache.getIfPresent(hot));
+    }
+
+    public @Test void testInvalidate() {
+        Key k1 = key(repo1Id, 1);
+        cache.put(k1, value(1, 100));
+        cache.invalidate(k1);
+        assertFalse(cache.contains(k1));
+        assertEquals(0L, cache.sizeBytes());
+        // space is reusable
+        cache.put(k1, value(2, 100));
+        assertArrayEquals(value(2, 100), cache.getIfPresent(k1));
+    }
+
+    public @Test void testInvalidateAllForPrefix() {
+        for (int i = 0; i < 10; i++) {
+            cache.put(key(repo1Id, i), value(i, 10));
+            cache.put(key(repo2Id, i), value(i, 10));
+        }
+        cache.invalidateAll(repo2Id);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(cache.contains(key(repo1Id, i)));
+            assertFalse(cache.contains(key(repo2Id, i)));
+        }
+        assertEquals(100L, cache.sizeBytes());
+
+        cache.invalidateAll();
+        assertEquals(0L, cache.objectCount());
+        assertEquals(0L, cache.sizeBytes());
+    }
+
+    public @Test void testSharedCacheSpillsToOffHeap() {
+        // a L2 cache that only fits a few objects, so most of them get evicted to the off-heap
+        // tier
+        final long L2Size = 2 * 1024;
+        SharedCache sharedCache = SharedCache.build(0, L2Size, 1024 * 1024);
+
+        RevObject[] objects = new RevObject[200];
+        for (int i = 0; i < objects.length; i++) {
+            objects[i] = RevObjectTestSupport.feature(i, null, "value " + i);
+            ((SharedCache.Impl) sharedCache).insert(repo1Id.create(objects[i].getId()),
+                    objects[i]);
+        }
+        assertTrue(sharedCache.offHeapObjectCount() > 0);
+        for (RevObject o : objects) {
+            assertEquals(o, sharedCache.getIfPresent(repo1Id.create(o.getId())));
+        }
+        assertTrue(sharedCache.getOffHeapStats().hitCount() > 0);
+
+        sharedCache.invalidateAll(repo1Id);
+        assertEquals(0L, sharedCache.offHeapObjectCount());
+    }
+}
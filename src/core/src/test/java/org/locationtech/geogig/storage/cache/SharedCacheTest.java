@@ -13,6 +13,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.spy;
 
@@ -163,6 +164,24 @@ public class SharedCacheTest {
         objects.forEach((o) -> assertNull(cache.getIfPresent(repo1Id.create(o.getId()))));
     }
 
+    public @Test void testResizeHandsOverOffHeapTier() {
+        final long offHeapSize = 16 * 1024 * 1024;
+        SharedCache cache = SharedCache.build(maxCacheSizeBytes, offHeapSize);
+        OffHeapCache offHeapCache = ((SharedCache.Impl) cache).offHeapCache;
+        assertNotNull(offHeapCache);
+        Key key = repo1Id.create(obj.getId());
+        cache.put(key, obj);
+
+        SharedCache resized = SharedCache.resize(cache, 2 * maxCacheSizeBytes, offHeapSize);
+        assertSame(offHeapCache, ((SharedCache.Impl) resized).offHeapCache);
+        assertFalse(resized.contains(key));
+        resized.put(key, obj);
+        assertTrue(resized.contains(key));
+
+        assertSame(SharedCache.NO_CACHE, SharedCache.resize(resized, 0L, offHeapSize));
+        assertFalse(offHeapCache.contains(key));
+    }
+
     private List<RevObject> createObjects(int count) {
         List<RevObject> list = new ArrayList<>();
         for (int i = 0; i < count; i++) {
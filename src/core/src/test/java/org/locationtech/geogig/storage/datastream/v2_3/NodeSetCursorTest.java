@@ -0,0 +1,142 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.storage.datastream.v2_3;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+import org.locationtech.geogig.model.Bucket;
+import org.locationtech.geogig.model.CanonicalNodeOrder;
+import org.locationtech.geogig.model.Node;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevObject.TYPE;
+import org.locationtech.geogig.model.RevObjects;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.impl.NodeCursor;
+import org.locationtech.geogig.model.impl.NodeCursors;
+import org.locationtech.geogig.model.impl.RevObjectTestSupport;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Lists;
+import com.vividsolutions.jts.geom.Envelope;
+
+public class NodeSetCursorTest {
+
+    private static final ImmutableSortedMap<Integer, Bucket> NO_BUCKETS = ImmutableSortedMap
+            .of();
+
+    private RevTree encodeDecode(RevTree tree) {
+        byte[] encoded = RevTreeFormat.encode(tree);
+        RevTree decoded = RevTreeFormat.decode(tree.getId(), encoded);
+        assertTrue(decoded instanceof NodeCursor.Source);
+        return decoded;
+    }
+
+    private RevTree leafTree(List<Node> trees, List<Node> features) {
+        trees = CanonicalNodeOrder.INSTANCE.sortedCopy(trees);
+        features = CanonicalNodeOrder.INSTANCE.sortedCopy(features);
+        return encodeDecode(TestSupport.tree(features.size(), trees, features, NO_BUCKETS));
+    }
+
+    @Test
+    public void testCursorMatchesNodes() {
+        List<Node> features = TestSupport.nodes(TYPE.FEATURE, 512, true, true, true);
+        RevTree tree = leafTree(ImmutableList.of(), features);
+
+        final Envelope filter = new Envelope(100, 200, 100, 200);
+        final Envelope expected = new Envelope();
+        final Envelope actual = new Envelope();
+
+        NodeCursor cursor = NodeCursors.features(tree);
+        Iterator<Node> nodes = tree.features().iterator();
+        int count = 0;
+        while (cursor.next()) {
+            Node node = nodes.next();
+            assertEquals(TYPE.FEATURE, cursor.getType());
+            assertEquals(node.getName(), cursor.getName());
+            assertEquals(node.getObjectId(), cursor.getObjectId());
+            assertEquals(node.intersects(filter), cursor.intersects(filter));
+            assertFalse(cursor.intersects(new Envelope()));
+            node.expand(expected);
+            cursor.expand(actual);
+            assertEquals(expected, actual);
+            TestSupport.assertEqualsFully(ImmutableList.of(node), ImmutableList.of(cursor.node()));
+            count++;
+        }
+        assertFalse(nodes.hasNext());
+        assertFalse(cursor.next());
+        assertEquals(512, count);
+    }
+
+    @Test
+    public void testEmptyCursor() {
+        RevTree tree = leafTree(ImmutableList.of(), TestSupport.featureNodes(10));
+        assertFalse(NodeCursors.trees(tree).next());
+    }
+
+    @Test
+    public void testObjectIdEquals() {
+        List<Node> leftNodes = TestSupport.nodes(TYPE.FEATURE, 100, false, true, false);
+        List<Node> rightNodes = new ArrayList<>(leftNodes);
+        for (int i = 0; i < rightNodes.size(); i += 10) {
+            Node node = rightNodes.get(i);
+            rightNodes.set(i, node.update(RevObjectTestSupport.hashString("changed" + i)));
+        }
+        RevTree left = leafTree(ImmutableList.of(), leftNodes);
+        RevTree right = leafTree(ImmutableList.of(), rightNodes);
+
+        NodeCursor lc = NodeCursors.features(left);
+        NodeCursor rc = NodeCursors.features(right);
+        // mixing a serialized cursor and one over Node instances
+        NodeCursor nc = NodeCursors.of(right.features().iterator());
+        while (lc.next()) {
+            assertTrue(rc.next());
+            assertTrue(nc.next());
+            assertEquals(lc.getName(), rc.getName());
+            boolean expected = lc.getObjectId().equals(rc.getObjectId());
+            assertEquals(expected, lc.objectIdEquals(rc));
+            assertEquals(expected, rc.objectIdEquals(lc));
+            assertEquals(expected, nc.objectIdEquals(lc));
+            assertEquals(expected, lc.objectIdEquals(nc));
+        }
+    }
+
+    @Test
+    public void testChildrenCanonicalOrder() {
+        List<Node> trees = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            String name = "tree-" + i;
+            trees.add(Node.tree(name, RevObjectTestSupport.hashString(name), ObjectId.NULL));
+        }
+        List<Node> features = TestSupport.nodes(TYPE.FEATURE, 200, false, true, false);
+        RevTree tree = leafTree(trees, features);
+
+        List<Node> expected = Lists
+                .newArrayList(RevObjects.children(tree, CanonicalNodeOrder.INSTANCE));
+        List<Node> actual = Lists.newArrayList(NodeCursors.iterator(NodeCursors.children(tree)));
+        assertEquals(250, actual.size());
+        assertEquals(expected, actual);
+
+        NodeCursor cursor = NodeCursors.children(tree);
+        for (Node node : expected) {
+            assertTrue(cursor.next());
+            assertEquals(node.getType(), cursor.getType());
+            assertEquals(node.getObjectId(), cursor.getObjectId());
+        }
+        assertFalse(cursor.next());
+    }
+}
@@ -0,0 +1,262 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.storage.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.impl.CommitBuilder;
+import org.locationtech.geogig.model.impl.RevObjectTestSupport;
+
+import com.google.common.base.Function;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+
+public class CommitGraphFileTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    private static ObjectId id(String name) {
+        return RevObjectTestSupport.hashString(name);
+    }
+
+    public @Test void testLinearHistoryGenerations() {
+        CommitGraphFile graph = CommitGraphFile.inMemory();
+        List<ObjectId> history = createLinearHistory(graph, "c", 10_000);
+        assertEquals(10_000, graph.size());
+        for (int i = 0; i < history.size(); i++) {
+            assertEquals(i + 1, graph.getGeneration(history.get(i)));
+        }
+        ObjectId first = history.get(0);
+        ObjectId last = history.get(history.size() - 1);
+        assertTrue(graph.isAncestor(first, last));
+        assertFalse(graph.isAncestor(last, first));
+        assertEquals(Optional.of(history.get(5000)),
+                graph.findLowestCommonAncestor(history.get(5000), last));
+    }
+
+    public @Test void testDisjointHistories() {
+        CommitGraphFile graph = CommitGraphFile.inMemory();
+        List<ObjectId> left = createLinearHistory(graph, "left", 10);
+        List<ObjectId> right = createLinearHistory(graph, "right", 10);
+        assertEquals(Optional.absent(), graph.findLowestCommonAncestor(left.get(9), right.get(9)));
+        assertFalse(graph.isAncestor(left.get(0), right.get(9)));
+    }
+
+    public @Test void testCrissCrossMerge() {
+        // root - a1 - a2(a1,b1)
+        //    \     \/
+        //     \    /\
+        //      - b1 - b2(b1,a1)
+        CommitGraphFile graph = CommitGraphFile.inMemory();
+        graph.add(id("root"), ImmutableList.of(), 1);
+        graph.add(id("a1"), ImmutableList.of(id("root")), 2);
+        graph.add(id("b1"), ImmutableList.of(id("root")), 3);
+        graph.add(id("a2"), ImmutableList.of(id("a1"), id("b1")), 4);
+        graph.add(id("b2"), ImmutableList.of(id("b1"), id("a1")), 5);
+
+        Optional<ObjectId> lca = graph.findLowestCommonAncestor(id("a2"), id("b2"));
+        // both a1 and b1 are lowest common ancestors, b1 has the most recent timestamp
+        assertEquals(Optional.of(id("b1")), lca);
+    }
+
+    public @Test void testNotIndexed() {
+        CommitGraphFile graph = CommitGraphFile.inMemory();
+        graph.add(id("c1"), ImmutableList.of(id("missing")), 1);
+        assertFalse(graph.contains(id("c1")));
+        assertEquals(0, graph.getGeneration(id("c1")));
+        exception.expect(IllegalArgumentException.class);
+        graph.isAncestor(id("missing"), id("c1"));
+    }
+
+    public @Test void testPersistence() throws Exception {
+        File file = new File(tmp.getRoot(), "commit-graph");
+        CommitGraphFile graph = CommitGraphFile.open(file);
+        List<ObjectId> history = createLinearHistory(graph, "c", 5_000);
+        graph.add(id("merge"), ImmutableList.of(history.get(4_999), history.get(10)), 42);
+        graph.close();
+
+        graph = CommitGraphFile.open(file);
+        try {
+            assertEquals(5_001, graph.size());
+            assertEquals(5_001, graph.getGeneration(id("merge")));
+            assertEquals(42L, graph.getTimestamp(id("merge")));
+            assertEquals(ImmutableList.of(history.get(4_999), history.get(10)),
+                    graph.getParents(id("merge")));
+            assertTrue(graph.isAncestor(history.get(0), id("merge")));
+
+            graph.add(id("next"), ImmutableList.of(id("merge")), 43);
+            assertEquals(5_002, graph.getGeneration(id("next")));
+        } finally {
+            graph.close();
+        }
+    }
+
+    public @Test void testOpenIsShared() throws Exception {
+        File file = new File(tmp.getRoot(), "commit-graph");
+        CommitGraphFile graph1 = CommitGraphFile.open(file);
+        CommitGraphFile graph2 = CommitGraphFile.open(file);
+        try {
+            assertSame(graph1, graph2);
+        } finally {
+            graph1.close();
+            graph2.close();
+        }
+    }
+
+    public @Test void testIndexBackfillsHistory() {
+        Map<ObjectId, RevCommit> commits = new HashMap<>();
+        List<RevCommit> history = createLinearHistory(commits, ImmutableList.of(), 100);
+        RevCommit last = history.get(99);
+
+        CommitGraphFile graph = CommitGraphFile.inMemory();
+        // the history of an existing repository is not indexed
+        graph.add(last.getId(), last.getParentIds(), last.getCommitter().getTimestamp());
+        assertFalse(graph.contains(last.getId()));
+        assertEquals(1, graph.pendingSize());
+
+        assertTrue(graph.index(last.getId(), resolver(commits, new AtomicInteger())));
+        assertEquals(100, graph.size());
+        assertEquals(0, graph.pendingSize());
+        for (int i = 0; i < history.size(); i++) {
+            RevCommit commit = history.get(i);
+            assertEquals(i + 1, graph.getGeneration(commit.getId()));
+            assertEquals(commit.getCommitter().getTimestamp(),
+                    graph.getTimestamp(commit.getId()));
+        }
+    }
+
+    public @Test void testIndexUnresolvableAncestor() {
+        final ObjectId missing = id("missing");
+        Map<ObjectId, RevCommit> commits = new HashMap<>();
+        List<RevCommit> history = createLinearHistory(commits, ImmutableList.of(missing), 10);
+        final ObjectId last = history.get(9).getId();
+
+        CommitGraphFile graph = CommitGraphFile.inMemory();
+        AtomicInteger lookups = new AtomicInteger();
+        assertFalse(graph.index(last, resolver(commits, lookups)));
+        assertEquals(11, lookups.get());
+        assertEquals(0, graph.size());
+
+        // the walked commits are remembered as unresolvable
+        lookups.set(0);
+        assertFalse(graph.index(last, resolver(commits, lookups)));
+        assertEquals(0, lookups.get());
+
+        // until the missing ancestor is added
+        graph.add(missing, ImmutableList.of(), 0);
+        assertTrue(graph.index(last, resolver(commits, lookups)));
+        assertEquals(11, graph.size());
+        assertEquals(11, graph.getGeneration(last));
+    }
+
+    public @Test void testIndexDoesNotBlockAdd() throws Exception {
+        Map<ObjectId, RevCommit> commits = new HashMap<>();
+        List<RevCommit> history = createLinearHistory(commits, ImmutableList.of(), 10);
+        final RevCommit last = history.get(9);
+
+        final CommitGraphFile graph = CommitGraphFile.inMemory();
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // commits are added from another thread while the history is being resolved
+            AtomicInteger added = new AtomicInteger();
+            Function<ObjectId, Optional<RevCommit>> resolver = (id) -> {
+                int i = added.getAndIncrement();
+                try {
+                    executor.submit(() -> graph.add(id("other" + i), ImmutableList.of(), i))
+                            .get(10, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new IllegalStateException("add blocked while indexing", e);
+                }
+                return Optional.fromNullable(commits.get(id));
+            };
+            assertTrue(graph.index(last.getId(), resolver));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(20, graph.size());
+        assertEquals(10, graph.getGeneration(last.getId()));
+    }
+
+    public @Test void testPendingIsBounded() {
+        CommitGraphFile graph = CommitGraphFile.inMemory();
+        final int count = CommitGraphFile.MAX_PENDING + 100;
+        for (int i = 0; i < count; i++) {
+            graph.add(id("child" + i), ImmutableList.of(id("parent" + i)), i);
+        }
+        assertEquals(CommitGraphFile.MAX_PENDING, graph.pendingSize());
+        assertEquals(0, graph.size());
+
+        // the oldest pending commits were discarded
+        graph.add(id("parent0"), ImmutableList.of(), 0);
+        assertFalse(graph.contains(id("child0")));
+        graph.add(id("parent" + (count - 1)), ImmutableList.of(), 0);
+        assertTrue(graph.contains(id("child" + (count - 1))));
+        assertEquals(CommitGraphFile.MAX_PENDING - 1, graph.pendingSize());
+    }
+
+    private Function<ObjectId, Optional<RevCommit>> resolver(Map<ObjectId, RevCommit> commits,
+            AtomicInteger lookups) {
+        return (id) -> {
+            lookups.incrementAndGet();
+            return Optional.fromNullable(commits.get(id));
+        };
+    }
+
+    private List<RevCommit> createLinearHistory(Map<ObjectId, RevCommit> commits,
+            ImmutableList<ObjectId> rootParents, int size) {
+        List<RevCommit> history = new ArrayList<>(size);
+        List<ObjectId> parents = rootParents;
+        for (int i = 0; i < size; i++) {
+            RevCommit commit = new CommitBuilder().setTreeId(RevTree.EMPTY_TREE_ID)
+                    .setParentIds(parents).setMessage("commit " + i).setAuthorTimestamp(1000 + i)
+                    .setCommitterTimestamp(1000 + i).build();
+            commits.put(commit.getId(), commit);
+            history.add(commit);
+            parents = ImmutableList.of(commit.getId());
+        }
+        return history;
+    }
+
+    private List<ObjectId> createLinearHistory(CommitGraphFile graph, String prefix, int size) {
+        List<ObjectId> history = new ArrayList<>(size);
+        ImmutableList<ObjectId> parents = ImmutableList.of();
+        for (int i = 0; i < size; i++) {
+            ObjectId id = id(prefix + i);
+            graph.add(id, parents, i);
+            history.add(id);
+            parents = ImmutableList.of(id);
+        }
+        return history;
+    }
+}
@@ -0,0 +1,83 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.storage.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class ConnectionManagerTest {
+
+    private static class TestConnectionManager extends ConnectionManager<String, Object> {
+
+        private final AtomicInteger connects = new AtomicInteger();
+
+        private final List<Object> disconnected = Lists.newCopyOnWriteArrayList();
+
+        TestConnectionManager(long lingerMillis) {
+            super(lingerMillis);
+        }
+
+        @Override
+        protected Object connect(String address) {
+            connects.incrementAndGet();
+            return new Object();
+        }
+
+        @Override
+        protected void disconnect(Object connection) {
+            disconnected.add(connection);
+        }
+    }
+
+    @Test
+    public void testReleaseWithoutLinger() {
+        TestConnectionManager manager = new TestConnectionManager(0);
+        Object c1 = manager.acquire("a");
+        assertSame(c1, manager.acquire("a"));
+        assertFalse(manager.release(c1));
+        assertTrue(manager.release(c1));
+        assertEquals(Lists.newArrayList(c1), manager.disconnected);
+
+        assertNotSame(c1, manager.acquire("a"));
+        assertEquals(2, manager.connects.get());
+    }
+
+    @Test
+    public void testLinger() throws Exception {
+        TestConnectionManager manager = new TestConnectionManager(200);
+        Object c1 = manager.acquire("a");
+        assertFalse(manager.release(c1));
+        assertTrue(manager.disconnected.isEmpty());
+
+        // reacquired while lingering
+        assertSame(c1, manager.acquire("a"));
+        assertEquals(1, manager.connects.get());
+        Thread.sleep(300);
+        assertTrue(manager.disconnected.isEmpty());
+
+        assertFalse(manager.release(c1));
+        for (int i = 0; i < 100 && manager.disconnected.isEmpty(); i++) {
+            Thread.sleep(50);
+        }
+        assertEquals(Lists.newArrayList(c1), manager.disconnected);
+        assertNotSame(c1, manager.acquire("a"));
+        assertEquals(2, manager.connects.get());
+    }
+}
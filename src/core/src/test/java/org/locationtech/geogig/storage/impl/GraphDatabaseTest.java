@@ -32,12 +32,14 @@ import org.junit.rules.TemporaryFolder;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.impl.RevObjectTestSupport;
 import org.locationtech.geogig.repository.Platform;
+import org.locationtech.geogig.storage.CommitGraph;
 import org.locationtech.geogig.storage.GraphDatabase;
 import org.locationtech.geogig.storage.GraphDatabase.Direction;
 import org.locationtech.geogig.storage.GraphDatabase.GraphEdge;
 import org.locationtech.geogig.storage.GraphDatabase.GraphNode;
 import org.locationtech.geogig.test.TestPlatform;
 
+import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
 
 /**
@@ -362,6 +364,52 @@ public abstract class GraphDatabaseTest {
         assertFalse(node.isSparse());
     }
 
+    @Test
+    public void testCommitGraph() {
+        final Optional<CommitGraph> commitGraph = database.getCommitGraph();
+        if (!commitGraph.isPresent()) {
+            return;
+        }
+        // root - c1 - c2 ------ merge
+        //          \           /
+        //           branch1 --
+        ObjectId root = RevObjectTestSupport.hashString("root");
+        ObjectId c1 = RevObjectTestSupport.hashString("c1");
+        ObjectId c2 = RevObjectTestSupport.hashString("c2");
+        ObjectId branch1 = RevObjectTestSupport.hashString("branch1");
+        ObjectId merge = RevObjectTestSupport.hashString("merge");
+
+        database.put(root, ImmutableList.of(), 1000L);
+        database.put(c1, ImmutableList.of(root), 2000L);
+        database.put(c2, ImmutableList.of(c1), 3000L);
+        // children before parents are held until the parents are added
+        database.put(merge, ImmutableList.of(c2, branch1), 5000L);
+        assertFalse(commitGraph.get().contains(merge));
+        database.put(branch1, ImmutableList.of(c1), 4000L);
+
+        CommitGraph graph = commitGraph.get();
+        assertEquals(5, graph.size());
+        assertEquals(1, graph.getGeneration(root));
+        assertEquals(2, graph.getGeneration(c1));
+        assertEquals(3, graph.getGeneration(c2));
+        assertEquals(3, graph.getGeneration(branch1));
+        assertEquals(4, graph.getGeneration(merge));
+        assertEquals(5000L, graph.getTimestamp(merge));
+        assertEquals(ImmutableList.of(c2, branch1), graph.getParents(merge));
+
+        assertTrue(graph.isAncestor(root, merge));
+        assertTrue(graph.isAncestor(branch1, merge));
+        assertFalse(graph.isAncestor(c2, branch1));
+        assertFalse(graph.isAncestor(merge, root));
+
+        assertEquals(Optional.of(c1), graph.findLowestCommonAncestor(c2, branch1));
+        assertEquals(Optional.of(branch1), graph.findLowestCommonAncestor(merge, branch1));
+
+        database.truncate();
+        assertFalse(graph.contains(root));
+        assertEquals(CommitGraph.GENERATION_UNKNOWN, graph.getGeneration(root));
+    }
+
     @Test
     public void testPutConcurrency() throws InterruptedException, ExecutionException {
         final int threadCount = 4;
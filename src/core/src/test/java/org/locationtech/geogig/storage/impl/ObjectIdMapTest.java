@@ -0,0 +1,91 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.storage.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.impl.RevObjectTestSupport;
+
+public class ObjectIdMapTest {
+
+    private static ObjectId id(int i) {
+        return RevObjectTestSupport.hashString("id-" + i);
+    }
+
+    public @Test void testPutGetRemove() {
+        testPutGetRemove(new ObjectIdMap<>());
+    }
+
+    public @Test void testPutGetRemoveOffHeap() {
+        testPutGetRemove(ObjectIdMap.offHeap(10));
+    }
+
+    private void testPutGetRemove(ObjectIdMap<Integer> map) {
+        final int count = 10_000;
+        assertTrue(map.isEmpty());
+        for (int i = 0; i < count; i++) {
+            assertNull(map.put(id(i), Integer.valueOf(i)));
+        }
+        assertEquals(count, map.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(Integer.valueOf(i), map.get(id(i)));
+        }
+        assertEquals(Integer.valueOf(0), map.put(id(0), Integer.valueOf(-1)));
+        assertEquals(Integer.valueOf(-1), map.get(id(0)));
+        assertEquals(count, map.size());
+
+        for (int i = 0; i < count; i += 2) {
+            assertEquals(i == 0 ? Integer.valueOf(-1) : Integer.valueOf(i), map.remove(id(i)));
+            assertNull(map.remove(id(i)));
+        }
+        assertEquals(count / 2, map.size());
+        for (int i = 1; i < count; i += 2) {
+            assertTrue(map.containsKey(id(i)));
+            assertEquals(Integer.valueOf(i), map.get(id(i)));
+            assertFalse(map.containsKey(id(i - 1)));
+        }
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(id(1)));
+    }
+
+    public @Test void testNullIdKey() {
+        ObjectIdMap<String> map = new ObjectIdMap<>();
+        assertNull(map.put(ObjectId.NULL, "null"));
+        assertEquals("null", map.put(ObjectId.NULL, "NULL"));
+        assertEquals(1, map.size());
+        assertEquals("NULL", map.get(ObjectId.NULL));
+        assertEquals("NULL", map.remove(ObjectId.NULL));
+        assertFalse(map.containsKey(ObjectId.NULL));
+        assertTrue(map.isEmpty());
+    }
+
+    public @Test void testForEach() {
+        ObjectIdMap<Integer> map = new ObjectIdMap<>();
+        Map<ObjectId, Integer> expected = new HashMap<>();
+        expected.put(ObjectId.NULL, -1);
+        for (int i = 0; i < 1000; i++) {
+            expected.put(id(i), i);
+        }
+        expected.forEach(map::put);
+
+        Map<ObjectId, Integer> actual = new HashMap<>();
+        map.forEach(actual::put);
+        assertEquals(expected, actual);
+    }
+}
@@ -0,0 +1,143 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.storage.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.impl.RevObjectTestSupport;
+
+import com.google.common.collect.ImmutableSet;
+
+public class ObjectIdSetTest {
+
+    private static List<ObjectId> ids(String prefix, int count) {
+        List<ObjectId> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(RevObjectTestSupport.hashString(prefix + i));
+        }
+        return ids;
+    }
+
+    /**
+     * Ids that only differ in their last bytes, and hence hash to the same slot
+     */
+    private static List<ObjectId> collidingIds(int count) {
+        List<ObjectId> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] raw = new byte[ObjectId.NUM_BYTES];
+            raw[0] = 1;
+            raw[18] = (byte) (i >>> 8);
+            raw[19] = (byte) i;
+            ids.add(ObjectId.createNoClone(raw));
+        }
+        return ids;
+    }
+
+    public @Test void testEmpty() {
+        ObjectIdSet set = new ObjectIdSet();
+        assertEquals(0, set.size());
+        assertTrue(set.isEmpty());
+        assertFalse(set.iterator().hasNext());
+        assertFalse(set.contains(RevObjectTestSupport.hashString("id")));
+        assertFalse(set.contains(ObjectId.NULL));
+        assertFalse(set.contains("not an id"));
+    }
+
+    public @Test void testAddContainsRemove() {
+        testAddContainsRemove(new ObjectIdSet(), ids("id-", 10_000));
+    }
+
+    public @Test void testAddContainsRemoveOffHeap() {
+        ObjectIdSet set = ObjectIdSet.offHeap(100);
+        assertTrue(set.isOffHeap());
+        testAddContainsRemove(set, ids("id-", 10_000));
+    }
+
+    public @Test void testCollisions() {
+        testAddContainsRemove(new ObjectIdSet(), collidingIds(1000));
+    }
+
+    private void testAddContainsRemove(ObjectIdSet set, List<ObjectId> ids) {
+        for (ObjectId id : ids) {
+            assertTrue(set.add(id));
+            assertFalse(set.add(id));
+        }
+        assertEquals(ids.size(), set.size());
+        assertEquals(new HashSet<>(ids), set);
+        assertEquals(new HashSet<>(ids), new HashSet<>(set));
+
+        // remove every other id, the rest must still be reachable
+        for (int i = 0; i < ids.size(); i += 2) {
+            assertTrue(set.remove(ids.get(i)));
+            assertFalse(set.remove(ids.get(i)));
+        }
+        assertEquals(ids.size() / 2, set.size());
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(i % 2 == 1, set.contains(ids.get(i)));
+        }
+
+        set.clear();
+        assertTrue(set.isEmpty());
+        for (ObjectId id : ids) {
+            assertFalse(set.contains(id));
+        }
+        assertTrue(set.addAll(ids));
+        assertEquals(ids.size(), set.size());
+    }
+
+    public @Test void testNullId() {
+        ObjectIdSet set = new ObjectIdSet();
+        ObjectId id = RevObjectTestSupport.hashString("id");
+        assertTrue(set.add(ObjectId.NULL));
+        assertFalse(set.add(ObjectId.NULL));
+        set.add(id);
+        assertEquals(2, set.size());
+        assertTrue(set.contains(ObjectId.NULL));
+        assertEquals(ImmutableSet.of(ObjectId.NULL, id), new HashSet<>(set));
+
+        assertTrue(set.remove(ObjectId.NULL));
+        assertFalse(set.contains(ObjectId.NULL));
+        assertEquals(ImmutableSet.of(id), set);
+    }
+
+    public @Test void testRemoveAll() {
+        List<ObjectId> ids = ids("id-", 1000);
+        ObjectIdSet set = new ObjectIdSet();
+        set.addAll(ids);
+        assertTrue(set.removeAll(ids.subList(0, 500)));
+        assertFalse(set.removeAll(ids.subList(0, 500)));
+        assertEquals(new HashSet<>(ids.subList(500, 1000)), set);
+    }
+
+    public @Test void testExpectedSize() {
+        ObjectIdSet set = new ObjectIdSet(10_000);
+        final long sizeInBytes = set.sizeInBytes();
+        set.addAll(ids("id-", 10_000));
+        assertEquals("set shall not have been resized", sizeInBytes, set.sizeInBytes());
+    }
+
+    public @Test void testRetainAllOnOtherSet() {
+        List<ObjectId> ids = ids("id-", 100);
+        Set<ObjectId> other = new HashSet<>(ids);
+        ObjectIdSet set = new ObjectIdSet();
+        set.addAll(ids.subList(0, 10));
+        assertTrue(other.retainAll(set));
+        assertEquals(set, other);
+    }
+}
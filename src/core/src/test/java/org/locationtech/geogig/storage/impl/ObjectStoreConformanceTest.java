@@ -33,6 +33,7 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.eclipse.jdt.annotation.Nullable;
@@ -457,6 +458,53 @@ public abstract class ObjectStoreConformanceTest {
 
     }
 
+    @Test
+    public void testGetAllAsync() throws Exception {
+        final RevFeature f1 = feature(0, null, "some value");
+        final RevFeature f2 = feature(1, "value", new Integer(111));
+        final RevTree t1 = createFeaturesTree(db, "t", 10);
+        db.putAll(ImmutableList.of(f1, f2, t1).iterator());
+
+        // more ids than a single batch of most implementations
+        List<ObjectId> queryIds = Lists.newArrayList(f1.getId(), f2.getId(), t1.getId());
+        for (int i = 0; i < 2500; i++) {
+            queryIds.add(RevObjectTestSupport.hashString("notfound" + i));
+        }
+
+        CountingListener listener = BulkOpListener.newCountingListener();
+        CompletableFuture<List<RevFeature>> features = db.getAllAsync(queryIds, listener,
+                RevFeature.class);
+        assertEquals(Sets.newHashSet(f1, f2), Sets.newHashSet(features.get()));
+        assertEquals(2, listener.found());
+        assertEquals(2501, listener.notFound());
+
+        listener = BulkOpListener.newCountingListener();
+        List<RevObject> all = db.getAllAsync(queryIds, listener, RevObject.class).get();
+        assertEquals(Sets.newHashSet(f1, f2, t1), Sets.newHashSet(all));
+        assertEquals(3, listener.found());
+        assertEquals(2500, listener.notFound());
+    }
+
+    @Test
+    public void testPutAllAsync() throws Exception {
+        List<RevObject> expected = Lists.newArrayList();
+        for (int i = 0; i < 25_000; i++) {
+            expected.add(feature(i, "value " + i));
+        }
+        CountingListener listener = BulkOpListener.newCountingListener();
+        db.putAllAsync(expected.iterator(), listener).get();
+        assertEquals(expected.size(), listener.inserted());
+        assertEquals(0, listener.found());
+        for (RevObject o : expected) {
+            assertEquals(o, db.get(o.getId()));
+        }
+
+        listener = BulkOpListener.newCountingListener();
+        db.putAllAsync(expected.iterator(), listener).get();
+        assertEquals(0, listener.inserted());
+        assertEquals(expected.size(), listener.found());
+    }
+
     @Test
     public void testGetIfPresent() {
         ImmutableList<RevObject> expected = ImmutableList.of(feature(0, null, "some value"),
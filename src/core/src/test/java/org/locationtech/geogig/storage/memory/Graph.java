@@ -12,6 +12,7 @@ package org.locationtech.geogig.storage.memory;
 import java.util.concurrent.ConcurrentMap;
 
 import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.storage.impl.CommitGraphFile;
 
 import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
@@ -32,6 +33,8 @@ class Graph {
 
     final ConcurrentMap<ObjectId, ObjectId> mappings;
 
+    final CommitGraphFile commitGraph = CommitGraphFile.inMemory();
+
     /**
      * Creates an empty graph.
      */
@@ -102,6 +105,7 @@ class Graph {
     public void clear() {
         nodes.clear();
         mappings.clear();
+        commitGraph.clear();
     }
 
 }
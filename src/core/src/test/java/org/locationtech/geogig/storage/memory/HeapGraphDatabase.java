@@ -21,6 +21,7 @@ import java.util.Map;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.plumbing.ResolveGeogigURI;
 import org.locationtech.geogig.repository.Platform;
+import org.locationtech.geogig.storage.CommitGraph;
 import org.locationtech.geogig.storage.GraphDatabase;
 
 import com.google.common.base.Function;
@@ -138,6 +139,17 @@ public class HeapGraphDatabase implements GraphDatabase {
 
     @Override
     public boolean put(ObjectId commitId, ImmutableList<ObjectId> parentIds) {
+        return put(commitId, parentIds, 0L);
+    }
+
+    @Override
+    public boolean put(ObjectId commitId, ImmutableList<ObjectId> parentIds, long timestamp) {
+        boolean updated = putInternal(commitId, parentIds);
+        graph.commitGraph.add(commitId, parentIds, timestamp);
+        return updated;
+    }
+
+    private boolean putInternal(ObjectId commitId, ImmutableList<ObjectId> parentIds) {
         Node n = graph.getOrAdd(commitId);
         synchronized (n) {
             if (parentIds.isEmpty()) {
@@ -205,6 +217,11 @@ public class HeapGraphDatabase implements GraphDatabase {
         graph.clear();
     }
 
+    @Override
+    public Optional<CommitGraph> getCommitGraph() {
+        return Optional.of(graph.commitGraph);
+    }
+
     static class Ref {
 
         int count;
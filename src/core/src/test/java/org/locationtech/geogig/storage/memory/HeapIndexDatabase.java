@@ -13,6 +13,7 @@ import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.model.ObjectId;
@@ -85,7 +86,7 @@ public class HeapIndexDatabase extends ForwardingObjectStore implements IndexDat
             return;
         }
         indexes = new HashMap<String, List<IndexInfo>>();
-        indexTreeMappings = new HashMap<ObjectId, Map<ObjectId, ObjectId>>();
+        indexTreeMappings = new ConcurrentHashMap<ObjectId, Map<ObjectId, ObjectId>>();
         super.open();
     }
 
@@ -202,10 +203,8 @@ public class HeapIndexDatabase extends ForwardingObjectStore implements IndexDat
 
     @Override
     public void addIndexedTree(IndexInfo index, ObjectId originalTree, ObjectId indexedTree) {
-        if (!indexTreeMappings.containsKey(index.getId())) {
-            indexTreeMappings.put(index.getId(), new HashMap<ObjectId, ObjectId>());
-        }
-        indexTreeMappings.get(index.getId()).put(originalTree, indexedTree);
+        indexTreeMappings.computeIfAbsent(index.getId(), (id) -> new ConcurrentHashMap<>())
+                .put(originalTree, indexedTree);
     }
 
     @Override
@@ -29,6 +29,7 @@ import org.locationtech.geogig.storage.BulkOpListener;
 import org.locationtech.geogig.storage.ObjectInfo;
 import org.locationtech.geogig.storage.datastream.SerializationFactoryProxy;
 import org.locationtech.geogig.storage.impl.AbstractObjectStore;
+import org.locationtech.geogig.storage.impl.ObjectSerializingFactory;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
@@ -50,6 +51,10 @@ public class HeapObjectStore extends AbstractObjectStore {
         super(new SerializationFactoryProxy());
     }
 
+    public HeapObjectStore(ObjectSerializingFactory serializer) {
+        super(serializer);
+    }
+
     /**
      * Closes the database.
      * 
@@ -0,0 +1,85 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.test.integration;
+
+import org.junit.Test;
+import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.plumbing.IndexCommitGraphOp;
+import org.locationtech.geogig.porcelain.BranchCreateOp;
+import org.locationtech.geogig.porcelain.CheckoutOp;
+import org.locationtech.geogig.porcelain.CommitOp;
+import org.locationtech.geogig.storage.CommitGraph;
+import org.locationtech.geogig.storage.GraphDatabase;
+
+public class IndexCommitGraphOpTest extends RepositoryTestCase {
+
+    private GraphDatabase database;
+
+    private CommitGraph commitGraph;
+
+    @Override
+    protected void setUpInternal() throws Exception {
+        database = geogig.getRepository().graphDatabase();
+        commitGraph = database.getCommitGraph().get();
+    }
+
+    @Test
+    public void testIndexExistingHistory() throws Exception {
+        insertAndAdd(points1);
+        final RevCommit c1 = geogig.command(CommitOp.class).setMessage("c1").call();
+        geogig.command(BranchCreateOp.class).setAutoCheckout(true).setName("branch1").call();
+        insertAndAdd(points2);
+        final RevCommit c2 = geogig.command(CommitOp.class).setMessage("c2").call();
+        geogig.command(CheckoutOp.class).setSource("master").call();
+        insertAndAdd(points3);
+        final RevCommit c3 = geogig.command(CommitOp.class).setMessage("c3").call();
+
+        // an existing repository whose history is not indexed
+        database.truncate();
+        assertEquals(0, commitGraph.size());
+
+        // new commits are only appended, they wait for their history to be indexed
+        insertAndAdd(lines1);
+        final RevCommit c4 = geogig.command(CommitOp.class).setMessage("c4").call();
+        assertFalse(commitGraph.contains(c4.getId()));
+
+        assertEquals(4L, geogig.command(IndexCommitGraphOp.class).call().longValue());
+        assertEquals(4, commitGraph.size());
+        assertEquals(1, commitGraph.getGeneration(c1.getId()));
+        assertEquals(2, commitGraph.getGeneration(c2.getId()));
+        assertEquals(2, commitGraph.getGeneration(c3.getId()));
+        assertEquals(3, commitGraph.getGeneration(c4.getId()));
+
+        // indexed history is not walked again
+        assertEquals(0L, geogig.command(IndexCommitGraphOp.class).call().longValue());
+
+        // and new commits are appended right away
+        insertAndAdd(lines2);
+        final RevCommit c5 = geogig.command(CommitOp.class).setMessage("c5").call();
+        assertTrue(commitGraph.contains(c5.getId()));
+        assertEquals(4, commitGraph.getGeneration(c5.getId()));
+    }
+
+    @Test
+    public void testIndexGivenCommits() throws Exception {
+        insertAndAdd(points1);
+        final RevCommit c1 = geogig.command(CommitOp.class).setMessage("c1").call();
+        geogig.command(BranchCreateOp.class).setAutoCheckout(true).setName("branch1").call();
+        insertAndAdd(points2);
+        final RevCommit c2 = geogig.command(CommitOp.class).setMessage("c2").call();
+
+        database.truncate();
+
+        assertEquals(1L, geogig.command(IndexCommitGraphOp.class).addCommit(c1.getId()).call()
+                .longValue());
+        assertTrue(commitGraph.contains(c1.getId()));
+        assertFalse(commitGraph.contains(c2.getId()));
+    }
+}
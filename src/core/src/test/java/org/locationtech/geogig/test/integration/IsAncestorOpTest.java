@@ -0,0 +1,81 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.test.integration;
+
+import org.junit.Test;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.plumbing.IsAncestorOp;
+import org.locationtech.geogig.porcelain.BranchCreateOp;
+import org.locationtech.geogig.porcelain.CheckoutOp;
+import org.locationtech.geogig.porcelain.CommitOp;
+import org.locationtech.geogig.storage.CommitGraph;
+
+public class IsAncestorOpTest extends RepositoryTestCase {
+
+    private RevCommit c1, c2, c3, c4;
+
+    @Override
+    protected void setUpInternal() throws Exception {
+        // o - c1 - c3 - c4 (master)
+        //       \
+        //        c2 (branch1)
+        insertAndAdd(points1);
+        c1 = geogig.command(CommitOp.class).setMessage("c1").call();
+        geogig.command(BranchCreateOp.class).setAutoCheckout(true).setName("branch1").call();
+        insertAndAdd(points2);
+        c2 = geogig.command(CommitOp.class).setMessage("c2").call();
+        geogig.command(CheckoutOp.class).setSource("master").call();
+        insertAndAdd(points3);
+        c3 = geogig.command(CommitOp.class).setMessage("c3").call();
+        insertAndAdd(lines1);
+        c4 = geogig.command(CommitOp.class).setMessage("c4").call();
+    }
+
+    private boolean isAncestor(RevCommit ancestor, RevCommit descendant) {
+        return isAncestor(ancestor.getId(), descendant.getId());
+    }
+
+    private boolean isAncestor(ObjectId ancestor, ObjectId descendant) {
+        return geogig.command(IsAncestorOp.class).setAncestor(ancestor).setDescendant(descendant)
+                .call().booleanValue();
+    }
+
+    private void assertAncestry() {
+        assertTrue(isAncestor(c1, c1));
+        assertTrue(isAncestor(c1, c2));
+        assertTrue(isAncestor(c1, c4));
+        assertTrue(isAncestor(c3, c4));
+        assertFalse(isAncestor(c4, c3));
+        assertFalse(isAncestor(c2, c4));
+        assertFalse(isAncestor(c3, c2));
+    }
+
+    @Test
+    public void testIndexed() {
+        CommitGraph commitGraph = geogig.getRepository().graphDatabase().getCommitGraph().get();
+        assertTrue(commitGraph.contains(c2.getId()));
+        assertTrue(commitGraph.contains(c4.getId()));
+        assertAncestry();
+    }
+
+    @Test
+    public void testNotIndexed() {
+        geogig.getRepository().graphDatabase().truncate();
+        // put back the graph database edges, without the root commit so that the commit graph
+        // can't index their history
+        for (RevCommit c : new RevCommit[] { c2, c3, c4 }) {
+            geogig.getRepository().graphDatabase().put(c.getId(), c.getParentIds());
+        }
+        CommitGraph commitGraph = geogig.getRepository().graphDatabase().getCommitGraph().get();
+        assertFalse(commitGraph.contains(c4.getId()));
+        assertAncestry();
+    }
+}
@@ -34,6 +34,7 @@ import org.locationtech.geogig.porcelain.MergeOp;
 import org.locationtech.geogig.porcelain.MergeOp.MergeReport;
 import org.opengis.feature.Feature;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 
@@ -420,6 +421,55 @@ public class LogOpTest extends RepositoryTestCase {
 
     }
 
+    @Test
+    public void testResumePoints() throws Exception {
+        insertAndAdd(points1);
+        geogig.command(CommitOp.class).call();
+        geogig.command(BranchCreateOp.class).setAutoCheckout(true).setName("branch1").call();
+        insertAndAdd(points2);
+        geogig.command(CommitOp.class).call();
+        insertAndAdd(lines2);
+        geogig.command(CommitOp.class).call();
+        geogig.command(CheckoutOp.class).setSource("master").call();
+        insertAndAdd(points3);
+        geogig.command(CommitOp.class).call();
+        insertAndAdd(lines1);
+        geogig.command(CommitOp.class).call();
+        Ref branch1 = geogig.command(RefParse.class).setName("branch1").call().get();
+        geogig.command(MergeOp.class).addCommit(branch1.getObjectId()).call();
+
+        for (boolean firstParent : new boolean[] { false, true }) {
+            List<RevCommit> expected = Lists.newArrayList(
+                    geogig.command(LogOp.class).setFirstParentOnly(firstParent).call());
+            for (int pageSize = 1; pageSize <= expected.size(); pageSize++) {
+                assertEquals(expected, pagedLog(firstParent, pageSize));
+            }
+        }
+
+        exception.expect(IllegalArgumentException.class);
+        logOp.setTopoOrder(true).setResumePoints(ImmutableList.of()).call();
+    }
+
+    private List<RevCommit> pagedLog(boolean firstParent, int pageSize) {
+        List<RevCommit> log = Lists.newArrayList();
+        List<ObjectId> resumePoints = null;
+        boolean hasNext = true;
+        while (hasNext) {
+            LogOp op = geogig.command(LogOp.class).setFirstParentOnly(firstParent);
+            if (resumePoints != null) {
+                op.setResumePoints(resumePoints);
+            }
+            Iterator<RevCommit> page = op.call();
+            for (int i = 0; i < pageSize && page.hasNext(); i++) {
+                log.add(page.next());
+                // captured before hasNext() may walk ahead
+                resumePoints = op.getResumePoints().get();
+            }
+            hasNext = page.hasNext();
+        }
+        return log;
+    }
+
     @Test
     public void testMergedWithPathFilter() throws Exception {
         // Create the following revision graph
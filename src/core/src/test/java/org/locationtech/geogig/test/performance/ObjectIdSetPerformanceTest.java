@@ -0,0 +1,142 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.test.performance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import org.junit.ClassRule;
+import org.junit.FixMethodOrder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestName;
+import org.junit.runners.MethodSorters;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.storage.impl.ObjectIdSet;
+
+import com.google.common.base.Stopwatch;
+import com.sun.management.ThreadMXBean;
+
+/**
+ * Compares the insertion and lookup times, heap allocation, and retained memory of
+ * {@link ObjectIdSet} against {@link HashSet} for {@code 10M} ids.
+ * <p>
+ * Ids are created on the fly out of a counter so that they don't count as retained memory; their
+ * allocation is the same for all the set implementations.
+ * <p>
+ * The test is only run if the System property {@code geogig.runPerformanceTests} is set to
+ * {@code true}, and needs a heap of at least {@code 2GB} ({@code -Xmx2g}).
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class ObjectIdSetPerformanceTest {
+
+    private static final int NUM_IDS = 10_000_000;
+
+    @ClassRule
+    public static EnablePerformanceTestRule performanceRule = new EnablePerformanceTestRule();
+
+    @Rule
+    public TestName testName = new TestName();
+
+    @Test
+    public void test_01_HashSet() {
+        run(() -> new HashSet<>());
+    }
+
+    @Test
+    public void test_02_ObjectIdSet() {
+        run(() -> new ObjectIdSet());
+    }
+
+    @Test
+    public void test_03_ObjectIdSetPresized() {
+        run(() -> new ObjectIdSet(NUM_IDS));
+    }
+
+    @Test
+    public void test_04_ObjectIdSetOffHeap() {
+        run(() -> ObjectIdSet.offHeap(NUM_IDS));
+    }
+
+    private void run(Supplier<Set<ObjectId>> factory) {
+        System.err.println(testName.getMethodName() + ":\n----------------------");
+        for (int run = 0; run < 3; run++) {
+            final String label = run == 0 ? "warm up:" : "run " + run + ":";
+            final long heapBefore = usedHeap();
+
+            long allocatedBefore = allocatedBytes();
+            Stopwatch sw = Stopwatch.createStarted();
+            Set<ObjectId> set = factory.get();
+            for (int i = 0; i < NUM_IDS; i++) {
+                set.add(id(i));
+            }
+            sw.stop();
+            report(label, "insert", sw, allocatedBytes() - allocatedBefore);
+
+            allocatedBefore = allocatedBytes();
+            sw.reset().start();
+            for (int i = 0; i < NUM_IDS; i++) {
+                assertTrue(set.contains(id(i)));
+            }
+            sw.stop();
+            report(label, "lookup", sw, allocatedBytes() - allocatedBefore);
+
+            final long retained = usedHeap() - heapBefore;
+            final long offHeap = set instanceof ObjectIdSet && ((ObjectIdSet) set).isOffHeap()
+                    ? ((ObjectIdSet) set).sizeInBytes() : 0L;
+            System.err.printf("\t%s retained %,d bytes on heap, %,d off heap (%,d bytes per id)\n",
+                    label, retained, offHeap, (retained + offHeap) / NUM_IDS);
+            assertEquals(NUM_IDS, set.size());
+        }
+    }
+
+    /**
+     * Creates a well distributed, unique id out of {@code i}
+     */
+    private static ObjectId id(int i) {
+        byte[] raw = new byte[ObjectId.NUM_BYTES];
+        long h = i * 0x9E3779B97F4A7C15L;
+        for (int b = 0; b < ObjectId.NUM_BYTES; b++) {
+            if (b % 8 == 0) {
+                h ^= h >>> 31;
+                h *= 0xBF58476D1CE4E5B9L;
+            }
+            raw[b] = (byte) (h >>> ((b % 8) * 8));
+        }
+        // keep it unique regardless of the mixing
+        raw[16] = (byte) (i >>> 24);
+        raw[17] = (byte) (i >>> 16);
+        raw[18] = (byte) (i >>> 8);
+        raw[19] = (byte) i;
+        return ObjectId.createNoClone(raw);
+    }
+
+    private void report(String label, String what, Stopwatch sw, long allocated) {
+        System.err.printf("\t%s %s %,d ids in %s, allocated %,d bytes (%,d bytes per id)\n",
+                label, what, NUM_IDS, sw, allocated, allocated / NUM_IDS);
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long allocatedBytes() {
+        ThreadMXBean mxBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return mxBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,147 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.test.performance;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.locationtech.geogig.model.RevFeature;
+import org.locationtech.geogig.model.impl.RevFeatureBuilder;
+import org.locationtech.geogig.remote.ObjectFunnel;
+import org.locationtech.geogig.remote.ObjectFunnels;
+import org.locationtech.geogig.remote.http.StreamCodec;
+import org.locationtech.geogig.storage.datastream.DataStreamSerializationFactoryV1;
+
+import com.google.common.collect.ImmutableList;
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+
+/**
+ * Measures the compression ratio and the throughput per core of each {@link StreamCodec} on a pack
+ * of {@code 200K} features as sent to and from http remotes, each with a few attributes out of a
+ * small vocabulary and a line string geometry, like a roads layer.
+ * <p>
+ * Throughput is given in MB of uncompressed pack per second of CPU time of the thread doing the
+ * encoding or decoding.
+ * <p>
+ * The test is only run if the System property {@code geogig.runPerformanceTests} is set to
+ * {@code true}.
+ */
+public class StreamCodecPerformanceTest {
+
+    private static final int NUM_FEATURES = 200_000;
+
+    private static final String[] NAMES = { "Main St", "Broadway", "Oak Ave", "Elm St",
+            "Maple Rd", "Highland Ave", "Park Blvd", "River Rd" };
+
+    private static final String[] KINDS = { "primary", "secondary", "residential", "service" };
+
+    @ClassRule
+    public static EnablePerformanceTestRule performanceRule = new EnablePerformanceTestRule();
+
+    private static byte[] pack;
+
+    @BeforeClass
+    public static void createPack() throws Exception {
+        GeometryFactory gf = new GeometryFactory();
+        Random random = new Random(1);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024 * 1024);
+        try (ObjectFunnel funnel = ObjectFunnels.newFunnel(out,
+                DataStreamSerializationFactoryV1.INSTANCE)) {
+            for (int i = 0; i < NUM_FEATURES; i++) {
+                Coordinate[] coords = new Coordinate[2 + random.nextInt(20)];
+                double x = -180 + 360 * random.nextDouble();
+                double y = -90 + 180 * random.nextDouble();
+                for (int c = 0; c < coords.length; c++) {
+                    x += random.nextGaussian() / 1000;
+                    y += random.nextGaussian() / 1000;
+                    coords[c] = new Coordinate(x, y);
+                }
+                RevFeature feature = RevFeatureBuilder.builder()//
+                        .addValue(Integer.valueOf(i))//
+                        .addValue(NAMES[random.nextInt(NAMES.length)])//
+                        .addValue(KINDS[random.nextInt(KINDS.length)])//
+                        .addValue(Integer.valueOf(1 + random.nextInt(4)))//
+                        .addValue(Double.valueOf(random.nextInt(130)))//
+                        .addValue(Boolean.valueOf(random.nextBoolean()))//
+                        .addValue(gf.createLineString(coords))//
+                        .build();
+                funnel.funnel(feature);
+            }
+        }
+        pack = out.toByteArray();
+        System.err.printf("Pack of %,d features, %,d bytes\n", NUM_FEATURES, pack.length);
+    }
+
+    @Test
+    public void testCodecs() throws Exception {
+        List<StreamCodec> codecs = ImmutableList.<StreamCodec> builder()//
+                .add(StreamCodec.IDENTITY, StreamCodec.GZIP, StreamCodec.LZ4)//
+                .add(StreamCodec.zstd(1), StreamCodec.zstd(3), StreamCodec.zstd(9))//
+                .build();
+        for (StreamCodec codec : codecs) {
+            if (!codec.isAvailable()) {
+                System.err.printf("%-10s not available\n", codec);
+                continue;
+            }
+            for (int run = 0; run < 3; run++) {
+                run(codec, run == 0 ? "warm up" : "run " + run);
+            }
+        }
+    }
+
+    private void run(StreamCodec codec, String label) throws Exception {
+        final ByteArrayOutputStream encoded = new ByteArrayOutputStream(pack.length);
+        long start = cpuTime();
+        try (OutputStream out = codec.encode(encoded)) {
+            for (int off = 0; off < pack.length; off += 4096) {
+                out.write(pack, off, Math.min(4096, pack.length - off));
+            }
+        }
+        final long encodeNanos = cpuTime() - start;
+
+        final byte[] buffer = new byte[4096];
+        long decodedSize = 0;
+        start = cpuTime();
+        try (InputStream in = codec.decode(new ByteArrayInputStream(encoded.toByteArray()))) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                decodedSize += read;
+            }
+        }
+        final long decodeNanos = cpuTime() - start;
+        assertEquals(pack.length, decodedSize);
+
+        System.err.printf("%-10s %-8s ratio: %5.2f, encode: %,8.1f MB/s per core, "
+                + "decode: %,8.1f MB/s per core\n", codec, label,
+                (double) pack.length / encoded.size(), mbPerSecond(encodeNanos),
+                mbPerSecond(decodeNanos));
+    }
+
+    private static double mbPerSecond(long nanos) {
+        return (pack.length / (1024d * 1024d)) / (Math.max(1, nanos) / 1e9);
+    }
+
+    private static long cpuTime() {
+        ThreadMXBean mxBean = ManagementFactory.getThreadMXBean();
+        return mxBean.getCurrentThreadCpuTime();
+    }
+}
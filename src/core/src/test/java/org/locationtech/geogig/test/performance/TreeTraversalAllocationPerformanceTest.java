@@ -0,0 +1,163 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.test.performance;
+
+import java.lang.management.ManagementFactory;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.ClassRule;
+import org.junit.FixMethodOrder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestName;
+import org.junit.runners.MethodSorters;
+import org.locationtech.geogig.model.Node;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevObject.TYPE;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.impl.CanonicalTreeBuilder;
+import org.locationtech.geogig.model.impl.RevObjectTestSupport;
+import org.locationtech.geogig.model.impl.RevTreeBuilder;
+import org.locationtech.geogig.plumbing.LsTreeOp;
+import org.locationtech.geogig.plumbing.LsTreeOp.Strategy;
+import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk;
+import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.geogig.storage.datastream.v2_3.DataStreamSerializationFactoryV2_3;
+import org.locationtech.geogig.storage.memory.HeapObjectStore;
+import org.locationtech.geogig.test.integration.RepositoryTestCase;
+
+import com.google.common.base.Stopwatch;
+import com.sun.management.ThreadMXBean;
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * Reports the heap allocation rate of {@link PreOrderDiffWalk} and {@link LsTreeOp} over a
+ * {@code 1M} features tree stored in the {@code 2.3} serialization format, the one trees are
+ * cached with, which {@link org.locationtech.geogig.model.impl.NodeCursor cursors} can read
+ * without creating a {@link Node} per entry.
+ * <p>
+ * Allocated bytes are the sum of the allocations of all live threads, since the diff walk runs on
+ * a fork join pool.
+ * <p>
+ * The test is only run if the System property {@code geogig.runPerformanceTests} is set to
+ * {@code true}
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TreeTraversalAllocationPerformanceTest extends RepositoryTestCase {
+
+    private static final int NUM_FEATURES = 1000_000;
+
+    /**
+     * One every {@code CHANGE_RATIO} features is changed in the right tree of the diffs
+     */
+    private static final int CHANGE_RATIO = 100;
+
+    private static final ObjectId FAKE_ID = RevObjectTestSupport.hashString("fake");
+
+    @ClassRule
+    public static EnablePerformanceTestRule performanceRule = new EnablePerformanceTestRule();
+
+    @Rule
+    public TestName testName = new TestName();
+
+    private ObjectStore store;
+
+    private RevTree left, right;
+
+    @Override
+    protected void setUpInternal() throws Exception {
+        store = new HeapObjectStore(DataStreamSerializationFactoryV2_3.INSTANCE);
+        store.open();
+
+        RevTreeBuilder leftBuilder = CanonicalTreeBuilder.create(store);
+        RevTreeBuilder rightBuilder = CanonicalTreeBuilder.create(store);
+        for (int i = 0; i < NUM_FEATURES; i++) {
+            Node node = createNode(i, FAKE_ID);
+            leftBuilder.put(node);
+            if (i % CHANGE_RATIO == 0) {
+                node = createNode(i, RevObjectTestSupport.hashString("changed" + i));
+            }
+            rightBuilder.put(node);
+        }
+        left = leftBuilder.build();
+        right = rightBuilder.build();
+    }
+
+    @Override
+    protected void tearDownInternal() throws Exception {
+        store.close();
+    }
+
+    private static Node createNode(int i, ObjectId id) {
+        String name = "Feature." + i;
+        Envelope env = new Envelope(i, i, i, i);
+        return Node.create(name, id, FAKE_ID, TYPE.FEATURE, env);
+    }
+
+    @Test
+    public void test_01_PreOrderDiffWalk() {
+        System.err.println(testName.getMethodName() + ":\n----------------------");
+        for (int run = 0; run < 3; run++) {
+            final AtomicLong features = new AtomicLong();
+            final long before = allocatedBytes();
+            Stopwatch sw = Stopwatch.createStarted();
+            PreOrderDiffWalk walk = new PreOrderDiffWalk(left, right, store, store);
+            walk.walk(new PreOrderDiffWalk.AbstractConsumer() {
+                @Override
+                public boolean feature(NodeRef left, NodeRef right) {
+                    features.incrementAndGet();
+                    return true;
+                }
+            });
+            sw.stop();
+            report(run, "diffs", features.get(), before, sw);
+            assertEquals(NUM_FEATURES / CHANGE_RATIO, features.get());
+        }
+    }
+
+    @Test
+    public void test_02_LsTreeOp() {
+        System.err.println(testName.getMethodName() + ":\n----------------------");
+        for (int run = 0; run < 3; run++) {
+            final long before = allocatedBytes();
+            Stopwatch sw = Stopwatch.createStarted();
+            Iterator<NodeRef> it = geogig.command(LsTreeOp.class).setSource(store)
+                    .setReference(left.getId().toString())
+                    .setStrategy(Strategy.DEPTHFIRST_ONLY_FEATURES).call();
+            long count = 0;
+            while (it.hasNext()) {
+                it.next();
+                count++;
+            }
+            sw.stop();
+            report(run, "features", count, before, sw);
+            assertEquals(NUM_FEATURES, count);
+        }
+    }
+
+    private void report(int run, String what, long count, long allocatedBefore, Stopwatch sw) {
+        final long allocated = allocatedBytes() - allocatedBefore;
+        System.err.printf("\t%s %,d %s in %s, allocated %,d bytes (%,d bytes per feature)\n",
+                run == 0 ? "warm up:" : "run " + run + ":", count, what, sw, allocated,
+                allocated / NUM_FEATURES);
+    }
+
+    private static long allocatedBytes() {
+        ThreadMXBean mxBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long total = 0;
+        for (long bytes : mxBean.getThreadAllocatedBytes(mxBean.getAllThreadIds())) {
+            // -1 for threads that died or if measuring is not supported
+            total += Math.max(0, bytes);
+        }
+        return total;
+    }
+}
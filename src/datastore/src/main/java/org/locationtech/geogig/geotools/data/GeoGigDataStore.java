@@ -13,6 +13,8 @@ import java.io.IOException;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -23,6 +25,7 @@ import org.geotools.data.simple.SimpleFeatureSource;
 import org.geotools.data.store.ContentDataStore;
 import org.geotools.data.store.ContentEntry;
 import org.geotools.data.store.ContentState;
+import org.geotools.factory.Hints;
 import org.geotools.feature.NameImpl;
 import org.geotools.util.logging.Logging;
 import org.locationtech.geogig.data.FindFeatureTypeTrees;
@@ -57,6 +60,7 @@ import com.google.common.base.Throwables;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * A GeoTools {@link DataStore} that serves and edits {@link SimpleFeature}s in a geogig repository.
@@ -87,6 +91,12 @@ import com.google.common.collect.Lists;
 public class GeoGigDataStore extends ContentDataStore implements DataStore {
 
     private static final Logger LOGGER = Logging.getLogger(GeoGigDataStore.class);
+
+    /**
+     * Query hint to override the datastore's {@link #setParallelReads(int) parallel reads} setting
+     * for a single query, as the {@link Integer} number of threads to read its features with
+     */
+    public static final Hints.Key PARALLEL_READS = new Hints.Key(Integer.class);
     
     private final Repository repository;
 
@@ -105,6 +115,12 @@ public class GeoGigDataStore extends ContentDataStore implements DataStore {
     @Deprecated
     private boolean autoIndexing;
 
+    /** @see #setParallelReads(int) */
+    private int parallelReads = 1;
+
+    /** Thread pool for parallel reads, lazily created */
+    private ExecutorService readerPool;
+
     public GeoGigDataStore(Repository repository) {
         super();
         Preconditions.checkNotNull(repository);
@@ -116,9 +132,49 @@ public class GeoGigDataStore extends ContentDataStore implements DataStore {
     @Override
     public void dispose() {
         super.dispose();
+        synchronized (this) {
+            if (readerPool != null) {
+                // don't interrupt the storage I/O of running reads, they stop once closed
+                readerPool.shutdown();
+                readerPool = null;
+            }
+        }
         repository.close();
     }
 
+    /**
+     * Sets the default number of threads to read each query's features with, by splitting the
+     * feature tree in partitions of top level buckets that are read concurrently.
+     * <p>
+     * {@code 1} or less means features are read sequentially on the calling thread, which is the
+     * default. Can be overridden per query with the {@link #PARALLEL_READS} hint.
+     */
+    public void setParallelReads(int parallelReads) {
+        this.parallelReads = parallelReads;
+    }
+
+    /**
+     * @see #setParallelReads(int)
+     */
+    public int getParallelReads() {
+        return parallelReads;
+    }
+
+    /**
+     * @return the thread pool the feature sources of this datastore use for parallel reads,
+     *         shared by all queries and sized to the number of available processors. Partitions
+     *         don't hold on to its threads while their consumer is behind, so a slow query
+     *         doesn't hold back the others
+     */
+    synchronized ExecutorService getReaderPool() {
+        if (readerPool == null) {
+            final int poolSize = Runtime.getRuntime().availableProcessors();
+            readerPool = Executors.newFixedThreadPool(poolSize, new ThreadFactoryBuilder()
+                    .setNameFormat("geogig-reader-%d").setDaemon(true).build());
+        }
+        return readerPool;
+    }
+
     /**
      * Instructs the datastore to operate against the specified refspec, or against the checked out
      * branch, whatever it is, if the argument is {@code null}.
@@ -87,6 +87,11 @@ public class GeoGigDataStoreFactory implements DataStoreFactorySpi {
             false/* required */, false/* default */, //
             ImmutableMap.of(Parameter.LEVEL, "advanced"));
 
+    public static final Param PARALLEL_READS = new Param("parallelReads", Integer.class,
+            "Number of threads to read each query's features with, by splitting the feature trees by top level bucket. 1 reads sequentially",
+            false/* required */, Integer.valueOf(1)/* default */, //
+            ImmutableMap.of(Parameter.LEVEL, "advanced"));
+
     @Override
     public String getDisplayName() {
         return DISPLAY_NAME;
@@ -99,7 +104,8 @@ public class GeoGigDataStoreFactory implements DataStoreFactorySpi {
 
     @Override
     public Param[] getParametersInfo() {
-        return new Param[] { REPOSITORY, BRANCH, HEAD, DEFAULT_NAMESPACE, AUTO_INDEXING };
+        return new Param[] { REPOSITORY, BRANCH, HEAD, DEFAULT_NAMESPACE, AUTO_INDEXING,
+                PARALLEL_READS };
     }
 
     private URI resolveURI(String repoParam) {
@@ -170,6 +176,9 @@ public class GeoGigDataStoreFactory implements DataStoreFactorySpi {
         @Nullable
         final String effectiveHead = (head == null) ? branch : head;
 
+        @Nullable
+        final Integer parallelReads = (Integer) PARALLEL_READS.lookUp(params);
+
         final URI repositoryUri = resolveURI(repositoryLocation);
 
         final RepositoryResolver initializer;
@@ -193,6 +202,9 @@ public class GeoGigDataStoreFactory implements DataStoreFactorySpi {
         if (effectiveHead != null) {
             store.setHead(effectiveHead);
         }
+        if (parallelReads != null) {
+            store.setParallelReads(parallelReads.intValue());
+        }
         return store;
     }
 
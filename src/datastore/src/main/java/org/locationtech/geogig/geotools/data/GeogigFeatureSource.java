@@ -16,6 +16,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.geotools.data.FeatureReader;
@@ -87,6 +88,7 @@ class GeogigFeatureSource extends ContentFeatureSource {
         if (!ignorescreenmap)
             hints.add(Hints.SCREENMAP);
         hints.add(Hints.JTS_GEOMETRY_FACTORY);
+        hints.add(GeoGigDataStore.PARALLEL_READS);
     }
 
     @Override
@@ -94,6 +96,10 @@ class GeogigFeatureSource extends ContentFeatureSource {
         return true;
     }
 
+    /**
+     * @return {@code true}, the feature reader sorts natively by any attribute with comparable
+     *         values, see {@link QueryCapabilities#supportsSorting(SortBy[])}
+     */
     @Override
     protected boolean canSort() {
         return true;
@@ -157,6 +163,8 @@ class GeogigFeatureSource extends ContentFeatureSource {
      * {@link Hints#USE_PROVIDED_FID} key associated to a {@link Boolean#TRUE} value, if the
      * key/value pair is there an attempt to use the provided id will be made, and the operation
      * will fail if the key cannot be parsed into a valid storage identifier.
+     * <p>
+     * Also declares support for sorting by any attribute whose values are comparable.
      */
     @Override
     protected QueryCapabilities buildQueryCapabilities() {
@@ -179,6 +187,14 @@ class GeogigFeatureSource extends ContentFeatureSource {
                 return false;
             }
 
+            /**
+             * @return whether all the sort attributes exist and have comparable values
+             */
+            @Override
+            public boolean supportsSorting(SortBy[] sortAttributes) {
+                return FeatureReaderBuilder.canSort(getSchema(), sortAttributes);
+            }
+
         };
     }
 
@@ -201,6 +217,16 @@ class GeogigFeatureSource extends ContentFeatureSource {
         query = new Query(query);
         query.setPropertyNames(Query.NO_NAMES);
 
+        if (query.getStartIndex() == null && query.isMaxFeaturesUnlimited()) {
+            // aggregate the bounds of the buckets fully covered by the filter, if supported
+            Optional<ReferencedEnvelope> aggregate = newReaderBuilder(query).bounds();
+            if (aggregate.isPresent()) {
+                ReferencedEnvelope bounds = new ReferencedEnvelope(crs);
+                bounds.expandToInclude(aggregate.get());
+                return bounds;
+            }
+        }
+
         ReferencedEnvelope bounds = new ReferencedEnvelope(crs);
         try (FeatureReader<SimpleFeatureType, SimpleFeature> features = getNativeReader(query,
                 false)) {
@@ -242,6 +268,19 @@ class GeogigFeatureSource extends ContentFeatureSource {
         query.setPropertyNames(Query.NO_NAMES);
         query.setSortBy(null);
 
+        // aggregate the size of the buckets fully covered by the filter, if supported
+        Optional<Long> aggregate = newReaderBuilder(query).count();
+        if (aggregate.isPresent()) {
+            size = aggregate.get().intValue();
+            if (offset != null) {
+                size = Math.max(0, size - offset.intValue());
+            }
+            if (maxFeatures != null) {
+                size = Math.min(size, maxFeatures.intValue());
+            }
+            return size;
+        }
+
         int count = 0;
         try (FeatureReader<SimpleFeatureType, SimpleFeature> features = getNativeReader(query,
                 false)) {
@@ -302,6 +341,15 @@ class GeogigFeatureSource extends ContentFeatureSource {
     private FeatureReader<SimpleFeatureType, SimpleFeature> getNativeReader(final Query query,
             final boolean retypeIfNeeded) throws IOException {
 
+        FeatureReader<SimpleFeatureType, SimpleFeature> featureReader = newReaderBuilder(query)//
+                .retypeIfNeeded(retypeIfNeeded)//
+                .build();
+
+        return featureReader;
+
+    }
+
+    private FeatureReaderBuilder newReaderBuilder(final Query query) {
         final Context context = getCommandLocator();
 
         final Hints hints = query.getHints();
@@ -314,6 +362,11 @@ class GeogigFeatureSource extends ContentFeatureSource {
         final @Nullable String[] propertyNames = query.getPropertyNames();
         final @Nullable SortBy[] sortBy = query.getSortBy();
         final Name assignedName = getEntry().getName();
+        final Integer parallelReadsHint = (Integer) hints.get(GeoGigDataStore.PARALLEL_READS);
+        final int parallelReads = parallelReadsHint == null ? getDataStore().getParallelReads()
+                : parallelReadsHint.intValue();
+        final @Nullable ExecutorService readerPool = parallelReads > 1
+                ? getDataStore().getReaderPool() : null;
 
         final Filter filter = query.getFilter();
 
@@ -322,7 +375,7 @@ class GeogigFeatureSource extends ContentFeatureSource {
 
         FeatureReaderBuilder builder = FeatureReaderBuilder.builder(context, nativeType, typeRef);
 
-        FeatureReader<SimpleFeatureType, SimpleFeature> featureReader = builder//
+        return builder//
                 .targetSchema(getSchema())//
                 .filter(filter)//
                 .headRef(getRootRef())//
@@ -334,11 +387,7 @@ class GeogigFeatureSource extends ContentFeatureSource {
                 .propertyNames(propertyNames)//
                 .screenMap(screenMap)//
                 .sortBy(sortBy)//
-                .retypeIfNeeded(retypeIfNeeded)//
-                .build();
-
-        return featureReader;
-
+                .parallelism(parallelReads, readerPool);
     }
 
     public void setChangeType(GeoGigDataStore.ChangeType changeType) {
@@ -0,0 +1,222 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.geotools.data.reader;
+
+import java.util.Comparator;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.plumbing.DiffTree;
+import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.BucketIndex;
+import org.locationtech.geogig.repository.IndexInfo.IndexType;
+import org.locationtech.geogig.repository.impl.AttributeIndexKeys;
+import org.opengis.filter.And;
+import org.opengis.filter.BinaryComparisonOperator;
+import org.opengis.filter.Filter;
+import org.opengis.filter.Or;
+import org.opengis.filter.PropertyIsBetween;
+import org.opengis.filter.PropertyIsEqualTo;
+import org.opengis.filter.PropertyIsGreaterThan;
+import org.opengis.filter.PropertyIsGreaterThanOrEqualTo;
+import org.opengis.filter.PropertyIsLessThan;
+import org.opengis.filter.PropertyIsLessThanOrEqualTo;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.Literal;
+import org.opengis.filter.expression.PropertyName;
+
+import com.google.common.base.Predicate;
+import com.google.common.primitives.UnsignedBytes;
+
+/**
+ * The range of values of an attribute implied by the equality and range predicates of a query
+ * filter, used as a {@link DiffTree#setBucketFilter bucket filter} to only traverse the buckets of
+ * an {@link IndexType#ATTRIBUTE attribute index} tree that may contain them.
+ * <p>
+ * The range is a relaxed version of the filter (e.g. bounds are inclusive, and keys may collide),
+ * so the filter shall still be evaluated against the nodes or features.
+ */
+final class AttributeIndexRange implements Predicate<BucketIndex> {
+
+    private static final Comparator<byte[]> KEY_ORDER = UnsignedBytes
+            .lexicographicalComparator();
+
+    private static final AttributeIndexRange UNBOUNDED = new AttributeIndexRange(null, null);
+
+    private final @Nullable byte[] lowerBound;
+
+    private final @Nullable byte[] upperBound;
+
+    private AttributeIndexRange(@Nullable byte[] lowerBound, @Nullable byte[] upperBound) {
+        this.lowerBound = lowerBound;
+        this.upperBound = upperBound;
+    }
+
+    @Override
+    public boolean apply(BucketIndex bucketIndex) {
+        return AttributeIndexKeys.overlaps(bucketIndex.getIndexPath(), lowerBound, upperBound);
+    }
+
+    public boolean isUnbounded() {
+        return lowerBound == null && upperBound == null;
+    }
+
+    /**
+     * @return whether the range is a single key, as for an equality predicate
+     */
+    public boolean isEquality() {
+        return lowerBound != null && upperBound != null
+                && KEY_ORDER.compare(lowerBound, upperBound) == 0;
+    }
+
+    private AttributeIndexRange intersect(AttributeIndexRange r) {
+        return new AttributeIndexRange(max(lowerBound, r.lowerBound, true),
+                min(upperBound, r.upperBound, true));
+    }
+
+    private AttributeIndexRange union(AttributeIndexRange r) {
+        return new AttributeIndexRange(min(lowerBound, r.lowerBound, false),
+                max(upperBound, r.upperBound, false));
+    }
+
+    /**
+     * @param nullIsIdentity whether a {@code null} (unbounded) argument shall be ignored, or be the
+     *        result
+     */
+    private static @Nullable byte[] min(@Nullable byte[] k1, @Nullable byte[] k2,
+            boolean nullIsIdentity) {
+        if (k1 == null || k2 == null) {
+            return nullIsIdentity ? (k1 == null ? k2 : k1) : null;
+        }
+        return KEY_ORDER.compare(k1, k2) <= 0 ? k1 : k2;
+    }
+
+    private static @Nullable byte[] max(@Nullable byte[] k1, @Nullable byte[] k2,
+            boolean nullIsIdentity) {
+        if (k1 == null || k2 == null) {
+            return nullIsIdentity ? (k1 == null ? k2 : k1) : null;
+        }
+        return KEY_ORDER.compare(k1, k2) >= 0 ? k1 : k2;
+    }
+
+    /**
+     * Extracts the range of values of {@code attributeName} implied by {@code filter}.
+     *
+     * @param binding the attribute's type, literals are converted to it before encoding
+     * @return the range of values, or {@code null} if the filter does not constrain the attribute
+     */
+    public static @Nullable AttributeIndexRange of(Filter filter, String attributeName,
+            Class<?> binding) {
+        AttributeIndexRange range = extract(filter, attributeName, binding);
+        return range.isUnbounded() ? null : range;
+    }
+
+    private static AttributeIndexRange extract(Filter filter, String attributeName,
+            Class<?> binding) {
+        if (filter instanceof And) {
+            AttributeIndexRange range = UNBOUNDED;
+            for (Filter child : ((And) filter).getChildren()) {
+                range = range.intersect(extract(child, attributeName, binding));
+            }
+            return range;
+        }
+        if (filter instanceof Or) {
+            AttributeIndexRange range = null;
+            for (Filter child : ((Or) filter).getChildren()) {
+                AttributeIndexRange childRange = extract(child, attributeName, binding);
+                range = range == null ? childRange : range.union(childRange);
+            }
+            return range == null ? UNBOUNDED : range;
+        }
+        if (filter instanceof PropertyIsBetween) {
+            PropertyIsBetween between = (PropertyIsBetween) filter;
+            if (isProperty(between.getExpression(), attributeName)) {
+                byte[] lower = key(between.getLowerBoundary(), binding);
+                byte[] upper = key(between.getUpperBoundary(), binding);
+                return new AttributeIndexRange(lower, upper);
+            }
+            return UNBOUNDED;
+        }
+        if (filter instanceof BinaryComparisonOperator) {
+            return extract((BinaryComparisonOperator) filter, attributeName, binding);
+        }
+        return UNBOUNDED;
+    }
+
+    private static AttributeIndexRange extract(BinaryComparisonOperator filter,
+            String attributeName, Class<?> binding) {
+        if (String.class.equals(binding) && !filter.isMatchingCase()) {
+            return UNBOUNDED;
+        }
+        final Expression e1 = filter.getExpression1();
+        final Expression e2 = filter.getExpression2();
+        final boolean propertyFirst;
+        final byte[] key;
+        if (isProperty(e1, attributeName)) {
+            propertyFirst = true;
+            key = key(e2, binding);
+        } else if (isProperty(e2, attributeName)) {
+            propertyFirst = false;
+            key = key(e1, binding);
+        } else {
+            return UNBOUNDED;
+        }
+        if (key == null) {
+            return UNBOUNDED;
+        }
+        if (filter instanceof PropertyIsEqualTo) {
+            return new AttributeIndexRange(key, key);
+        }
+        final boolean greater = filter instanceof PropertyIsGreaterThan
+                || filter instanceof PropertyIsGreaterThanOrEqualTo;
+        final boolean less = filter instanceof PropertyIsLessThan
+                || filter instanceof PropertyIsLessThanOrEqualTo;
+        if (greater || less) {
+            // property > literal, or literal < property
+            boolean lowerBounded = greater == propertyFirst;
+            return lowerBounded ? new AttributeIndexRange(key, null)
+                    : new AttributeIndexRange(null, key);
+        }
+        return UNBOUNDED;
+    }
+
+    private static boolean isProperty(Expression e, String attributeName) {
+        if (e instanceof PropertyName) {
+            String name = ((PropertyName) e).getPropertyName();
+            return attributeName.equals(name.substring(name.indexOf(':') + 1));
+        }
+        return false;
+    }
+
+    private static @Nullable byte[] key(Expression e, Class<?> binding) {
+        if (e instanceof Literal) {
+            Object value = e.evaluate(null, binding);
+            if (value != null) {
+                return AttributeIndexKeys.encode(value);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("AttributeIndexRange[%s, %s]", toString(lowerBound),
+                toString(upperBound));
+    }
+
+    private static String toString(@Nullable byte[] key) {
+        if (key == null) {
+            return "*";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (byte b : key) {
+            sb.append(String.format("%02x", b & 0xFF));
+        }
+        return sb.toString();
+    }
+}
@@ -14,12 +14,17 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Predicates.notNull;
 
+import java.math.RoundingMode;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.geotools.data.DataUtilities;
@@ -45,13 +50,17 @@ import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.Ref;
 import org.locationtech.geogig.model.RevFeatureType;
 import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.impl.QuadTreeBuilder;
 import org.locationtech.geogig.plumbing.DiffTree;
 import org.locationtech.geogig.plumbing.FindTreeChild;
 import org.locationtech.geogig.plumbing.ResolveTreeish;
+import org.locationtech.geogig.plumbing.diff.FeatureAggregatesConsumer;
+import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.BucketIndex;
 import org.locationtech.geogig.porcelain.index.Index;
 import org.locationtech.geogig.repository.Context;
 import org.locationtech.geogig.repository.DiffEntry;
 import org.locationtech.geogig.repository.IndexInfo;
+import org.locationtech.geogig.repository.IndexInfo.IndexType;
 import org.locationtech.geogig.repository.impl.SpatialOps;
 import org.locationtech.geogig.storage.AutoCloseableIterator;
 import org.locationtech.geogig.storage.IndexDatabase;
@@ -64,6 +73,9 @@ import org.opengis.feature.type.Name;
 import org.opengis.filter.Filter;
 import org.opengis.filter.FilterFactory2;
 import org.opengis.filter.Id;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.Literal;
+import org.opengis.filter.expression.PropertyName;
 import org.opengis.filter.identity.FeatureId;
 import org.opengis.filter.identity.Identifier;
 import org.opengis.filter.sort.SortBy;
@@ -75,12 +87,14 @@ import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
+import com.google.common.base.Strings;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.google.common.math.IntMath;
 import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.GeometryFactory;
 import com.vividsolutions.jts.geom.impl.PackedCoordinateSequenceFactory;
@@ -152,6 +166,10 @@ public class FeatureReaderBuilder {
 
     private boolean retypeIfNeeded = true;
 
+    private int parallelism = 1;
+
+    private @Nullable ExecutorService executor;
+
     public FeatureReaderBuilder(Context repo, RevFeatureType nativeType, NodeRef typeRef) {
         this.repo = repo;
         this.nativeType = nativeType;
@@ -229,6 +247,37 @@ public class FeatureReaderBuilder {
         return this;
     }
 
+    /**
+     * @return whether a reader for features of the given type can return them in the order given
+     *         by {@code sortBy}, i.e. all the sort attributes exist and have comparable values
+     */
+    public static boolean canSort(SimpleFeatureType type, @Nullable SortBy... sortBy) {
+        return SortByComparators.canSort(type, sortBy);
+    }
+
+    /**
+     * Sets the number of partitions to read the feature tree in, each one on a thread of the given
+     * executor.
+     * <p>
+     * The feature tree (or its index) is partitioned by top level bucket, and each partition
+     * performs its own diff, feature fetching, and in-process filtering. The resulting features
+     * are merged through bounded queues, in storage order if the query is paging through the
+     * features without an explicit sort order, or as they become available otherwise.
+     * <p>
+     * Diffs between two versions of the feature tree and trees with no buckets are read
+     * sequentially.
+     * 
+     * @param parallelism the maximum number of partitions, {@code 1} or less reads sequentially
+     * @param executor the executor to run the partitions on, required if {@code parallelism > 1}
+     */
+    public FeatureReaderBuilder parallelism(int parallelism, @Nullable ExecutorService executor) {
+        Preconditions.checkArgument(parallelism < 2 || executor != null,
+                "an executor is required for parallel reads");
+        this.parallelism = parallelism;
+        this.executor = executor;
+        return this;
+    }
+
     public FeatureReaderBuilder offset(@Nullable Integer offset) {
         this.offset = offset;
         return this;
@@ -242,6 +291,11 @@ public class FeatureReaderBuilder {
     public FeatureReader<SimpleFeatureType, SimpleFeature> build() {
         fullSchema = resolveFullSchema();
 
+        // whether the features shall be returned in other than storage order
+        final boolean sort = !SortByComparators.isNaturalOrder(sortBy);
+        Preconditions.checkArgument(!sort || canSort(fullSchema, sortBy),
+                "Unsupported sort order: %s", sortBy == null ? null : Arrays.asList(sortBy));
+
         // query filter in native CRS
         final Filter nativeFilter = resolveNativeFilter();
         final Filter preFilter;
@@ -269,6 +323,9 @@ public class FeatureReaderBuilder {
         final ObjectId newFeatureTypeTree;
         // where to get RevTree instances from (either the object or the index database)
         final ObjectStore treeSource;
+        // the buckets to traverse when using an attribute index
+        @Nullable
+        Predicate<BucketIndex> bucketFilter = null;
         {
             final String nativeTypeName = nativeSchema.getTypeName();
 
@@ -295,13 +352,38 @@ public class FeatureReaderBuilder {
 
             // if native filter is a simple "fid filter" then force ignoring the index for a faster
             // look-up (looking up for a fid in the canonical tree is much faster)
-            final boolean ignoreIndex = geometryAttribute == null || this.ignoreIndex
-                    || nativeFilter instanceof Id;
+            final boolean ignoreIndex = this.ignoreIndex || nativeFilter instanceof Id;
             if (ignoreIndex) {
                 indexes = NO_INDEX;
             } else {
-                indexes = resolveIndex(oldCanonicalTreeId, newCanonicalTreeId, nativeTypeName,
-                        geometryAttribute.getLocalName());
+                indexes = NO_INDEX;
+                if (geometryAttribute != null) {
+                    indexes = resolveIndex(oldCanonicalTreeId, newCanonicalTreeId,
+                            nativeTypeName, geometryAttribute.getLocalName());
+                }
+                // use an attribute index instead if the filter constrains the indexed attribute,
+                // unless the spatial index is more likely to be selective
+                final @Nullable String indexedAttribute = resolveAttributeIndex(nativeTypeName,
+                        nativeFilter);
+                if (indexedAttribute != null) {
+                    final AttributeIndexRange range = attributeRange(nativeFilter,
+                            indexedAttribute);
+                    final boolean preferSpatialIndex = indexes[1].isPresent()
+                            && !range.isEquality()
+                            && !ExtractBounds.getBounds(nativeFilter).isEmpty();
+                    if (!preferSpatialIndex) {
+                        Optional<Index>[] attIndexes = resolveIndex(oldCanonicalTreeId,
+                                newCanonicalTreeId, nativeTypeName, indexedAttribute);
+                        if (attIndexes[1].isPresent()) {
+                            indexes = attIndexes;
+                            // bucket indices are only meaningful when not compared against an
+                            // existing index tree
+                            if (RevTree.EMPTY_TREE_ID.equals(oldCanonicalTreeId)) {
+                                bucketFilter = range;
+                            }
+                        }
+                    }
+                }
             }
             oldHeadIndex = indexes[0];
             headIndex = indexes[1];
@@ -333,64 +415,112 @@ public class FeatureReaderBuilder {
             treeSource = headIndex.isPresent() ? repo.indexDatabase() : repo.objectDatabase();
         }
 
-        // perform the diff op with the supported Bucket/NodeRef filtering that'll provide the
-        // NodeRef iterator to back the FeatureReader with
-        DiffTree diffOp = repo.command(DiffTree.class);
-        // TODO: for some reason setting the default metadata id is making several tests fail,
-        // though it's not really needed here because we have the FeatureType already. Nonetheless
-        // this is strange and needs to be revisited.
-        diffOp.setDefaultMetadataId(featureTypeId) //
-                .setPreserveIterationOrder(shallPreserveIterationOrder())//
-                .setPathFilter(createFidFilter(nativeFilter)) //
-                .setCustomFilter(createIndexPreFilter(preFilter, filterIsFullySupportedByIndex)) //
-                .setBoundsFilter(createBoundsFilter(nativeFilter, newFeatureTypeTree, treeSource)) //
-                .setChangeTypeFilter(resolveChangeType()) //
-                .setOldTree(oldFeatureTypeTree) //
-                .setNewTree(newFeatureTypeTree) //
-                .setLeftSource(treeSource) //
-                .setRightSource(treeSource) //
-                .recordStats();
-
-        AutoCloseableIterator<DiffEntry> diffs;
-        diffs = diffOp.call();
-
-        AutoCloseableIterator<NodeRef> featureRefs = toFeatureRefs(diffs, changeType);
-
-        // post-processing
-        if (filterIsFullySupportedByIndex) {
-            featureRefs = applyOffsetAndLimit(featureRefs);
-        }
-
-        final ObjectStore revFeatureSource = repo.objectDatabase();
+        // the top level buckets of the feature tree each worker thread reads, if reading in
+        // parallel
+        final List<Predicate<BucketIndex>> partitions = partition(oldFeatureTypeTree,
+                newFeatureTypeTree, treeSource);
+        final boolean partitioned = !partitions.isEmpty();
 
-        AutoCloseableIterator<? extends SimpleFeature> features;
+        // perform the diff op with the supported Bucket/NodeRef filtering that'll provide the
+        // NodeRef iterator to back the FeatureReader with, for the whole tree or a partition
+        final List<String> fidFilter = createFidFilter(nativeFilter);
+        final Predicate<Bounded> indexPreFilter = createIndexPreFilter(preFilter,
+                filterIsFullySupportedByIndex);
+        final @Nullable ReferencedEnvelope boundsFilter = createBoundsFilter(nativeFilter,
+                newFeatureTypeTree, treeSource);
+        final @Nullable Predicate<BucketIndex> indexBucketFilter = bucketFilter;
+        final Function<Predicate<BucketIndex>, AutoCloseableIterator<NodeRef>> diff = (
+                partition) -> {
+            DiffTree diffOp = repo.command(DiffTree.class);
+            // TODO: for some reason setting the default metadata id is making several tests
+            // fail, though it's not really needed here because we have the FeatureType already.
+            // Nonetheless this is strange and needs to be revisited.
+            diffOp.setDefaultMetadataId(featureTypeId) //
+                    .setPreserveIterationOrder(shallPreserveIterationOrder())//
+                    .setPathFilter(fidFilter) //
+                    .setCustomFilter(indexPreFilter) //
+                    .setBoundsFilter(boundsFilter) //
+                    .setBucketFilter(and(indexBucketFilter, partition)) //
+                    .setChangeTypeFilter(resolveChangeType()) //
+                    .setOldTree(oldFeatureTypeTree) //
+                    .setNewTree(newFeatureTypeTree) //
+                    .setLeftSource(treeSource) //
+                    .setRightSource(treeSource) //
+                    .recordStats();
+
+            AutoCloseableIterator<DiffEntry> diffs;
+            diffs = diffOp.call();
+
+            return toFeatureRefs(diffs, changeType);
+        };
 
         // contains only the attributes required to satisfy the output schema and the in-process
         // filter
         final SimpleFeatureType resultSchema;
-
+        final @Nullable Name typeNameOverride;
         if (indexContainsAllRequiredProperties) {
             resultSchema = resolveMinimalNativeSchema(requiredProperties);
-            CoordinateReferenceSystem nativeCrs = fullSchema.getCoordinateReferenceSystem();
-            features = MaterializedIndexFeatureIterator.create(resultSchema, featureRefs,
-                    geometryFactory, nativeCrs);
+            typeNameOverride = null;
+        } else if (simpleNames(nativeSchema).equals(simpleNames(fullSchema))) {
+            resultSchema = fullSchema;
+            typeNameOverride = fullSchema.getName();
         } else {
-            BulkFeatureRetriever retriever = new BulkFeatureRetriever(revFeatureSource);
-            Name typeNameOverride;
-            if (simpleNames(nativeSchema).equals(simpleNames(fullSchema))) {
-                resultSchema = fullSchema;
-                typeNameOverride = fullSchema.getName();
-            } else {
-                resultSchema = nativeSchema;
-                typeNameOverride = null;
+            resultSchema = nativeSchema;
+            typeNameOverride = null;
+        }
+
+        // if the index nodes contain the sort attributes, sort them and only fetch the features
+        // for the requested page, otherwise sort the features once fetched
+        final boolean sortNodes = sort && !partitioned && filterIsFullySupportedByIndex
+                && isTopK()
+                && materializedIndexProperties
+                        .containsAll(SortByComparators.sortAttributes(sortBy));
+        final boolean sortFeatures = sort && !sortNodes;
+        // the features of the page are sorted again if fetched from the object database, since
+        // bulk fetches don't preserve the order of the requested ids
+        final boolean resortFeatures = sortNodes && !indexContainsAllRequiredProperties;
+        // whether offset and limit can be applied before fetching the features
+        final boolean pageFeatureRefs = !partitioned && filterIsFullySupportedByIndex
+                && !sortFeatures;
+
+        AutoCloseableIterator<? extends SimpleFeature> features;
+        if (partitioned) {
+            List<Supplier<AutoCloseableIterator<? extends SimpleFeature>>> readers;
+            readers = new ArrayList<>(partitions.size());
+            for (Predicate<BucketIndex> partition : partitions) {
+                readers.add(() -> {
+                    AutoCloseableIterator<? extends SimpleFeature> partitionFeatures;
+                    partitionFeatures = fetchFeatures(diff.apply(partition),
+                            indexContainsAllRequiredProperties, resultSchema, typeNameOverride);
+                    if (!filterIsFullySupportedByIndex) {
+                        partitionFeatures = applyPostFilter(postFilter, partitionFeatures);
+                    }
+                    return partitionFeatures;
+                });
+            }
+            features = new PartitionedIterator<>(readers, executor,
+                    shallPreserveIterationOrder());
+        } else {
+            AutoCloseableIterator<NodeRef> featureRefs = diff.apply(null);
+            if (sortNodes) {
+                featureRefs = FeatureSorter.topK(featureRefs, SortByComparators.nodes(sortBy),
+                        pageEnd());
+            }
+            // post-processing
+            if (pageFeatureRefs) {
+                featureRefs = applyOffsetAndLimit(featureRefs);
+            }
+            features = fetchFeatures(featureRefs, indexContainsAllRequiredProperties,
+                    resultSchema, typeNameOverride);
+            if (!filterIsFullySupportedByIndex) {
+                features = applyPostFilter(postFilter, features);
             }
-            // using fullSchema here will build "normal" full-attribute lazy features
-            features = retriever.getGeoToolsFeatures(featureRefs, nativeType, typeNameOverride,
-                    geometryFactory);
         }
 
-        if (!filterIsFullySupportedByIndex) {
-            features = applyPostFilter(postFilter, features);
+        if (sortFeatures || resortFeatures) {
+            features = sort(features, resultSchema);
+        }
+        if (!pageFeatureRefs) {
             features = applyOffsetAndLimit(features);
         }
 
@@ -423,6 +553,125 @@ public class FeatureReaderBuilder {
         return featureReader;
     }
 
+    /**
+     * Computes the number of features the {@link #build() reader} would return, without
+     * traversing the buckets of the feature tree (or its spatial index) that are fully covered by
+     * the filter bounds, but using their precomputed size instead.
+     * <p>
+     * Only supported for queries on a single version of the feature tree (i.e. no
+     * {@link #oldHeadRef(String) old head}, and {@link ChangeType#ADDED} change type) with a
+     * {@link Filter#INCLUDE} or {@link BBOX} filter, {@link #offset(Integer) offset} and
+     * {@link #limit(Integer) limit} are not applied.
+     * 
+     * @return the number of features matching the filter, or {@code absent} if the query is not
+     *         supported
+     */
+    public Optional<Long> count() {
+        Optional<FeatureAggregatesConsumer> aggregates = aggregate(true);
+        if (aggregates.isPresent()) {
+            return Optional.of(Long.valueOf(aggregates.get().getCount()));
+        }
+        return absent();
+    }
+
+    /**
+     * Computes the bounds of the features the {@link #build() reader} would return, without
+     * traversing the buckets of the feature tree (or its spatial index) that are fully covered by
+     * the filter bounds, but using their precomputed bounds instead.
+     * <p>
+     * Supports the same kind of queries than {@link #count()}.
+     * 
+     * @return the bounds of the features matching the filter in the native CRS, or {@code absent}
+     *         if the query is not supported
+     */
+    public Optional<ReferencedEnvelope> bounds() {
+        Optional<FeatureAggregatesConsumer> aggregates = aggregate(false);
+        if (aggregates.isPresent()) {
+            CoordinateReferenceSystem nativeCrs = fullSchema.getCoordinateReferenceSystem();
+            Envelope bounds = aggregates.get().getBounds();
+            return Optional.of(new ReferencedEnvelope(bounds, nativeCrs));
+        }
+        return absent();
+    }
+
+    private Optional<FeatureAggregatesConsumer> aggregate(final boolean exactCount) {
+        fullSchema = resolveFullSchema();
+
+        final Filter nativeFilter = SimplifyingFilterVisitor.simplify(resolveNativeFilter(),
+                nativeSchema);
+        if (!ChangeType.ADDED.equals(changeType) || !isAggregatable(nativeFilter)) {
+            return absent();
+        }
+        final String nativeTypeName = nativeSchema.getTypeName();
+        if (resolveCanonicalTree(oldHeadRef, nativeTypeName).isPresent()) {
+            return absent();
+        }
+        final Optional<NodeRef> canonicalTree = resolveCanonicalTree(headRef, nativeTypeName);
+        final ObjectId canonicalTreeId = canonicalTree.isPresent()
+                ? canonicalTree.get().getObjectId() : RevTree.EMPTY_TREE_ID;
+
+        final @Nullable GeometryDescriptor geometryAttribute = nativeSchema
+                .getGeometryDescriptor();
+        Optional<Index> index = absent();
+        if (!ignoreIndex && geometryAttribute != null) {
+            index = resolveIndex(RevTree.EMPTY_TREE_ID, canonicalTreeId, nativeTypeName,
+                    geometryAttribute.getLocalName())[1];
+        }
+        final ObjectId treeId = index.isPresent() ? index.get().indexTreeId() : canonicalTreeId;
+        final ObjectStore treeSource = index.isPresent() ? repo.indexDatabase()
+                : repo.objectDatabase();
+
+        final @Nullable ReferencedEnvelope boundsFilter = createBoundsFilter(nativeFilter, treeId,
+                treeSource);
+
+        // features with no geometry don't match a bounds filter, but a bucket's size accounts
+        // for them. A quad-tree keeps them in a known bucket, a canonical tree anywhere
+        Predicate<BucketIndex> aggregatable = Predicates.alwaysTrue();
+        if (exactCount && boundsFilter != null) {
+            if (index.isPresent()) {
+                aggregatable = (b) -> !QuadTreeBuilder.mayContainUnboundedNodes(b.getIndexPath());
+            } else {
+                aggregatable = Predicates.alwaysFalse();
+            }
+        }
+
+        FeatureAggregatesConsumer aggregates = new FeatureAggregatesConsumer(treeSource,
+                boundsFilter, aggregatable);
+
+        repo.command(DiffTree.class)//
+                .setDefaultMetadataId(typeRef.getMetadataId())//
+                .setBoundsFilter(boundsFilter)//
+                .setOldTree(RevTree.EMPTY_TREE_ID)//
+                .setNewTree(treeId)//
+                .setLeftSource(treeSource)//
+                .setRightSource(treeSource)//
+                .walk(aggregates);
+
+        return Optional.of(aggregates);
+    }
+
+    /**
+     * @return whether the filter is evaluated by the features' bounds alone, so that a bucket
+     *         fully covered by the filter bounds only contains matching features
+     */
+    private boolean isAggregatable(Filter nativeFilter) {
+        if (Filter.INCLUDE.equals(nativeFilter)) {
+            return true;
+        }
+        if (nativeFilter instanceof BBOX) {
+            BBOX bbox = (BBOX) nativeFilter;
+            Expression property = bbox.getExpression1();
+            Expression literal = bbox.getExpression2();
+            if (property instanceof PropertyName && literal instanceof Literal) {
+                String name = ((PropertyName) property).getPropertyName();
+                GeometryDescriptor geometryAttribute = nativeSchema.getGeometryDescriptor();
+                return Strings.isNullOrEmpty(name) || (geometryAttribute != null
+                        && geometryAttribute.getLocalName().equals(name));
+            }
+        }
+        return false;
+    }
+
     private SimpleFeatureType resolveFullSchema() {
         SimpleFeatureType targetSchema = fullSchema;
         if (targetSchema == null) {
@@ -499,6 +748,94 @@ public class FeatureReaderBuilder {
         return resultSchema;
     }
 
+    private AutoCloseableIterator<? extends SimpleFeature> fetchFeatures(
+            AutoCloseableIterator<NodeRef> featureRefs, boolean fromIndex,
+            SimpleFeatureType resultSchema, @Nullable Name typeNameOverride) {
+
+        if (fromIndex) {
+            CoordinateReferenceSystem nativeCrs = fullSchema.getCoordinateReferenceSystem();
+            return MaterializedIndexFeatureIterator.create(resultSchema, featureRefs,
+                    geometryFactory, nativeCrs);
+        }
+        final ObjectStore revFeatureSource = repo.objectDatabase();
+        BulkFeatureRetriever retriever = new BulkFeatureRetriever(revFeatureSource);
+        // using fullSchema here will build "normal" full-attribute lazy features
+        return retriever.getGeoToolsFeatures(featureRefs, nativeType, typeNameOverride,
+                geometryFactory);
+    }
+
+    /**
+     * Splits the top level buckets of the tree to read in up to {@link #parallelism} partitions of
+     * contiguous buckets, so that reading the partitions in order preserves the storage order.
+     * 
+     * @return the bucket filters for each partition, or an empty list if the tree shall be read
+     *         sequentially
+     */
+    private List<Predicate<BucketIndex>> partition(final ObjectId oldTreeId,
+            final ObjectId newTreeId, final ObjectStore treeSource) {
+
+        if (parallelism < 2 || !RevTree.EMPTY_TREE_ID.equals(oldTreeId)
+                || RevTree.EMPTY_TREE_ID.equals(newTreeId)) {
+            return ImmutableList.of();
+        }
+        final List<Integer> buckets = treeSource.getTree(newTreeId).buckets().keySet().asList();
+        if (buckets.size() < 2) {
+            return ImmutableList.of();
+        }
+        final int partitionSize = IntMath.divide(buckets.size(), parallelism,
+                RoundingMode.CEILING);
+        List<Predicate<BucketIndex>> partitions = new ArrayList<>();
+        for (List<Integer> range : Lists.partition(buckets, partitionSize)) {
+            final Set<Integer> topLevelBuckets = ImmutableSet.copyOf(range);
+            partitions.add((b) -> {
+                int[] path = b.getIndexPath();
+                return path.length != 1 || topLevelBuckets.contains(Integer.valueOf(path[0]));
+            });
+        }
+        return partitions;
+    }
+
+    private static @Nullable Predicate<BucketIndex> and(@Nullable Predicate<BucketIndex> p1,
+            @Nullable Predicate<BucketIndex> p2) {
+        if (p1 == null || p2 == null) {
+            return p1 == null ? p2 : p1;
+        }
+        return Predicates.and(p1, p2);
+    }
+
+    /**
+     * Sorts the features in-process, keeping only the requested page in memory if possible, or
+     * resorting to an external merge sort otherwise
+     */
+    private AutoCloseableIterator<? extends SimpleFeature> sort(
+            AutoCloseableIterator<? extends SimpleFeature> features, SimpleFeatureType schema) {
+
+        final Comparator<SimpleFeature> comparator = SortByComparators.features(sortBy);
+        if (isTopK()) {
+            return FeatureSorter.topK(features, comparator, pageEnd());
+        }
+        return FeatureSorter.sort(features, comparator, schema, geometryFactory,
+                FeatureSorter.maxFeaturesInMemory(), FeatureSorter.maxMergeFanIn());
+    }
+
+    /**
+     * @return whether the sorted results are bounded by {@link #limit} to a number small enough
+     *         to be kept in memory
+     */
+    private boolean isTopK() {
+        return limit != null && pageEnd() <= FeatureSorter.maxFeaturesInMemory();
+    }
+
+    /**
+     * @return the number of sorted results needed to skip {@link #offset} and return
+     *         {@link #limit} of them
+     */
+    private int pageEnd() {
+        long pageEnd = (offset == null ? 0L : offset.longValue())
+                + (limit == null ? Integer.MAX_VALUE : limit.longValue());
+        return (int) Math.min(Integer.MAX_VALUE, pageEnd);
+    }
+
     private <T> AutoCloseableIterator<T> applyOffsetAndLimit(AutoCloseableIterator<T> iterator) {
         Integer offset = this.offset;
         Integer limit = this.limit;
@@ -543,6 +880,37 @@ public class FeatureReaderBuilder {
         return indexes;
     }
 
+    /**
+     * Finds an {@link IndexType#ATTRIBUTE attribute index} on an attribute constrained by the
+     * filter, preferring one the filter looks up by equality.
+     * 
+     * @return the name of the indexed attribute, or {@code null} if there's no such index
+     */
+    private @Nullable String resolveAttributeIndex(final String treeName, final Filter filter) {
+        String indexedAttribute = null;
+        boolean equality = false;
+        for (IndexInfo info : repo.indexDatabase().getIndexInfos(treeName)) {
+            if (!IndexType.ATTRIBUTE.equals(info.getIndexType())) {
+                continue;
+            }
+            String attributeName = info.getAttributeName();
+            if (nativeSchema.getDescriptor(attributeName) == null) {
+                continue;
+            }
+            AttributeIndexRange range = attributeRange(filter, attributeName);
+            if (range != null && (indexedAttribute == null || (range.isEquality() && !equality))) {
+                indexedAttribute = attributeName;
+                equality = range.isEquality();
+            }
+        }
+        return indexedAttribute;
+    }
+
+    private @Nullable AttributeIndexRange attributeRange(Filter filter, String attributeName) {
+        Class<?> binding = nativeSchema.getDescriptor(attributeName).getType().getBinding();
+        return AttributeIndexRange.of(filter, attributeName, binding);
+    }
+
     private Optional<NodeRef> resolveCanonicalTree(@Nullable String head, String treeName) {
         Optional<NodeRef> treeRef = Optional.absent();
         if (head != null) {
@@ -591,9 +959,10 @@ public class FeatureReaderBuilder {
         }
 
         final Set<String> filterAttributes = requiredAttributes(nativeFilter);
+        final Set<String> sortAttributes = SortByComparators.sortAttributes(sortBy);
 
         if (outputSchemaPropertyNames.length == 0
-                /* Query.NO_NAMES */ && filterAttributes.isEmpty()) {
+                /* Query.NO_NAMES */ && filterAttributes.isEmpty() && sortAttributes.isEmpty()) {
             return Collections.emptySet();
         }
 
@@ -603,6 +972,8 @@ public class FeatureReaderBuilder {
         if (!(nativeFilter instanceof BBOX)) {
             requiredProps.addAll(filterAttributes);
         }
+        // props required to sort in-process
+        requiredProps.addAll(sortAttributes);
         // props required to evaluate the filter in-process
         return requiredProps;
     }
@@ -740,14 +1111,14 @@ public class FeatureReaderBuilder {
      * <li>{@link #limit} and/or {@link #offset} have been set, since most probably the caller is
      * doing paging
      * </ul>
+     * Unless {@link #sortBy} sets an order other than the natural one, in which case the features
+     * are sorted in-process and the order is deterministic anyway, since ties are broken by feature
+     * id.
      */
     private boolean shallPreserveIterationOrder() {
         boolean preserveIterationOrder = false;
         preserveIterationOrder |= limit != null || offset != null;
-        // TODO: revisit, sortBy should only force iteration order if we can return features in the
-        // requested order, otherwise a higher level decorator will still perform the sort
-        // in-process so there's no point in forcing the iteration order here
-        // preserveIterationOrder |= sortBy != null && sortBy.length > 0;
+        preserveIterationOrder &= SortByComparators.isNaturalOrder(sortBy);
         return preserveIterationOrder;
     }
 
@@ -0,0 +1,293 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.geotools.data.reader;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.locationtech.geogig.model.FieldType;
+import org.locationtech.geogig.storage.AutoCloseableIterator;
+import org.locationtech.geogig.storage.datastream.DataStreamValueSerializerV2;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.Iterators;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+
+/**
+ * Sorts the features or feature references a {@link FeatureReaderBuilder} produces when the
+ * query's sort order is not the storage order.
+ * <p>
+ * When the number of results is bounded (i.e. the query has a limit), only the first
+ * {@code offset + limit} elements are kept in a bounded heap ({@link #topK}). Otherwise the
+ * features are sorted in runs of at most {@link #maxFeaturesInMemory()} features, which are spilled
+ * to temporary files and lazily merged ({@link #sort}). Since merging reads all its runs at once,
+ * with an open file and buffer each, runs are merged at most {@link #maxMergeFanIn()} at a time,
+ * writing the intermediate results back to disk, until they're few enough for the final merge.
+ */
+final class FeatureSorter {
+
+    /**
+     * System property to override the maximum number of features held in memory by an unbounded
+     * sort before spilling them to disk
+     */
+    static final String MAX_FEATURES_IN_MEMORY_PROPERTY = "geogig.sort.maxFeaturesInMemory";
+
+    static final int DEFAULT_MAX_FEATURES_IN_MEMORY = 10_000;
+
+    /**
+     * System property to override the maximum number of runs an unbounded sort merges at a time
+     */
+    static final String MAX_MERGE_FAN_IN_PROPERTY = "geogig.sort.maxMergeFanIn";
+
+    static final int DEFAULT_MAX_MERGE_FAN_IN = 64;
+
+    private static final DataStreamValueSerializerV2 SERIALIZER = //
+            DataStreamValueSerializerV2.INSTANCE;
+
+    private FeatureSorter() {
+        //
+    }
+
+    static int maxFeaturesInMemory() {
+        return Integer.getInteger(MAX_FEATURES_IN_MEMORY_PROPERTY, DEFAULT_MAX_FEATURES_IN_MEMORY);
+    }
+
+    static int maxMergeFanIn() {
+        return Integer.getInteger(MAX_MERGE_FAN_IN_PROPERTY, DEFAULT_MAX_MERGE_FAN_IN);
+    }
+
+    /**
+     * Consumes and closes {@code source}, returning its first {@code k} elements in
+     * {@code comparator} order.
+     */
+    public static <T> AutoCloseableIterator<T> topK(AutoCloseableIterator<? extends T> source,
+            Comparator<? super T> comparator, final int k) {
+        checkArgument(k >= 0, "k must be positive: %s", k);
+
+        final Comparator<? super T> reverse = comparator.reversed();
+        // head is the greatest of the top k elements
+        final PriorityQueue<T> heap = new PriorityQueue<>(Math.max(1, Math.min(k, 1024)),
+                reverse);
+        try (AutoCloseableIterator<? extends T> it = source) {
+            while (k > 0 && it.hasNext()) {
+                T next = it.next();
+                if (heap.size() < k) {
+                    heap.add(next);
+                } else if (comparator.compare(next, heap.peek()) < 0) {
+                    heap.poll();
+                    heap.add(next);
+                }
+            }
+        }
+        List<T> sorted = new ArrayList<>(heap);
+        sorted.sort(comparator);
+        return AutoCloseableIterator.fromIterator(sorted.iterator());
+    }
+
+    /**
+     * Consumes and closes {@code source}, returning its features in {@code comparator} order.
+     * <p>
+     * If there are more than {@code maxFeaturesInMemory} features, they're sorted in runs that are
+     * written to temporary files as features of the given schema, and the returned iterator merges
+     * them while reading them back. Closing the returned iterator deletes the files. No more than
+     * {@code maxMergeFanIn} runs are read at the same time, merging them in several passes if
+     * needed.
+     */
+    public static AutoCloseableIterator<SimpleFeature> sort(
+            AutoCloseableIterator<? extends SimpleFeature> source,
+            Comparator<SimpleFeature> comparator, SimpleFeatureType schema,
+            GeometryFactory geometryFactory, final int maxFeaturesInMemory,
+            final int maxMergeFanIn) {
+        checkArgument(maxFeaturesInMemory > 0, "maxFeaturesInMemory must be > 0");
+        checkArgument(maxMergeFanIn > 1, "maxMergeFanIn must be > 1");
+
+        final List<SimpleFeature> buffer = new ArrayList<>();
+        final List<Run> runs = new ArrayList<>();
+        try (AutoCloseableIterator<? extends SimpleFeature> it = source) {
+            while (it.hasNext()) {
+                buffer.add(it.next());
+                if (buffer.size() == maxFeaturesInMemory) {
+                    buffer.sort(comparator);
+                    runs.add(Run.write(buffer.iterator(), schema, geometryFactory));
+                    buffer.clear();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            close(runs);
+            throw Throwables.propagate(e);
+        }
+        buffer.sort(comparator);
+        if (runs.isEmpty()) {
+            return AutoCloseableIterator.fromIterator(buffer.iterator());
+        }
+
+        // leave room for the in-memory buffer in the final merge
+        final List<Run> finalRuns = merge(runs, comparator, schema, geometryFactory,
+                maxMergeFanIn - 1);
+        List<Iterator<SimpleFeature>> sortedRuns = new ArrayList<>(finalRuns);
+        sortedRuns.add(buffer.iterator());
+        Iterator<SimpleFeature> merged = Iterators.mergeSorted(sortedRuns, comparator);
+        return AutoCloseableIterator.fromIterator(merged, (i) -> close(finalRuns));
+    }
+
+    /**
+     * Merges {@code runs} in passes of up to {@code maxRuns} runs at a time, until there are no
+     * more than {@code maxRuns} left. The merged runs are closed, and so are all of them if
+     * merging fails.
+     */
+    private static List<Run> merge(List<Run> runs, Comparator<SimpleFeature> comparator,
+            SimpleFeatureType schema, GeometryFactory geometryFactory, final int maxRuns) {
+        while (runs.size() > maxRuns) {
+            final int fanIn = Math.max(2, maxRuns);
+            final List<Run> merged = new ArrayList<>();
+            try {
+                for (int i = 0; i < runs.size(); i += fanIn) {
+                    List<Run> group = runs.subList(i, Math.min(runs.size(), i + fanIn));
+                    if (group.size() == 1) {
+                        merged.add(group.get(0));
+                        continue;
+                    }
+                    try {
+                        merged.add(Run.write(Iterators.mergeSorted(group, comparator), schema,
+                                geometryFactory));
+                    } finally {
+                        close(group);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                close(runs);
+                close(merged);
+                throw Throwables.propagate(e);
+            }
+            runs = merged;
+        }
+        return runs;
+    }
+
+    private static void close(List<Run> runs) {
+        for (Run run : runs) {
+            run.close();
+        }
+    }
+
+    /**
+     * A sorted run of features spilled to a temporary file, as the feature id followed by each
+     * attribute value's {@link FieldType} tag and value
+     */
+    private static class Run implements Iterator<SimpleFeature>, Closeable {
+
+        private final File file;
+
+        private final SimpleFeatureBuilder builder;
+
+        private final GeometryFactory geometryFactory;
+
+        private int remaining;
+
+        private DataInputStream in;
+
+        private Run(File file, SimpleFeatureType schema, GeometryFactory geometryFactory) {
+            this.file = file;
+            this.builder = new SimpleFeatureBuilder(schema);
+            this.geometryFactory = geometryFactory;
+        }
+
+        static Run write(Iterator<SimpleFeature> features, SimpleFeatureType schema,
+                GeometryFactory geometryFactory) throws IOException {
+
+            File file = File.createTempFile("geogig-sort", ".run");
+            Run run = new Run(file, schema, geometryFactory);
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(file), 64 * 1024))) {
+                while (features.hasNext()) {
+                    SimpleFeature f = features.next();
+                    run.remaining++;
+                    out.writeUTF(f.getID());
+                    for (Object value : f.getAttributes()) {
+                        FieldType type = FieldType.forValue(value);
+                        out.writeByte(type.getTag());
+                        SERIALIZER.encode(type, value, out);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                run.close();
+                throw e;
+            }
+            return run;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public SimpleFeature next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            try {
+                if (in == null) {
+                    in = new DataInputStream(
+                            new BufferedInputStream(new FileInputStream(file), 64 * 1024));
+                }
+                final String id = in.readUTF();
+                final int attributeCount = builder.getFeatureType().getAttributeCount();
+                for (int i = 0; i < attributeCount; i++) {
+                    builder.add(readValue());
+                }
+                remaining--;
+                return builder.buildFeature(id);
+            } catch (IOException e) {
+                throw Throwables.propagate(e);
+            }
+        }
+
+        private Object readValue() throws IOException {
+            FieldType type = FieldType.valueOf(in.readUnsignedByte());
+            if (Geometry.class.isAssignableFrom(type.getBinding())) {
+                return SERIALIZER.readGeometry(in, geometryFactory);
+            }
+            return SERIALIZER.decode(type, in);
+        }
+
+        @Override
+        public void close() {
+            try {
+                if (in != null) {
+                    in.close();
+                }
+            } catch (IOException e) {
+                // ignore, the file is being deleted anyway
+            } finally {
+                file.delete();
+            }
+        }
+    }
+}
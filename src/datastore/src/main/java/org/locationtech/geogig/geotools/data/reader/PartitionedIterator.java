@@ -0,0 +1,282 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.geotools.data.reader;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.storage.AutoCloseableIterator;
+
+import com.google.common.base.Throwables;
+
+/**
+ * An iterator that consumes a number of partitions of a result set in parallel, each one on a
+ * thread of the provided executor, and merges them through bounded queues.
+ * <p>
+ * If {@code ordered}, each partition gets its own queue, and the queues are drained in partition
+ * order, so that the elements are returned in the same order than iterating over the partitions
+ * sequentially would. Otherwise all the partitions share a single queue and elements are returned
+ * as soon as they're available.
+ * <p>
+ * The partitions never block on a full queue. Instead, they give their executor thread back and
+ * are resubmitted once this iterator has consumed half of the queue. Hence a slow consumer or
+ * one that interleaves several iterators over the same executor doesn't hold its threads, and
+ * the other iterators sharing it keep making progress.
+ * <p>
+ * Partitions are opened and closed on the executor threads. An error in any partition is rethrown
+ * by {@link #hasNext()} once reached, and {@link #close() closing} this iterator makes the
+ * partitions that are still running stop and close at the next element, without interrupting
+ * them.
+ */
+final class PartitionedIterator<T> implements AutoCloseableIterator<T> {
+
+    static final int DEFAULT_QUEUE_CAPACITY = 1000;
+
+    /**
+     * Marks the end of a partition
+     */
+    private static final Object END = new Object();
+
+    private static final class Failure {
+        private final Throwable cause;
+
+        Failure(Throwable cause) {
+            this.cause = cause;
+        }
+    }
+
+    private final ExecutorService executor;
+
+    private final List<BlockingQueue<Object>> queues;
+
+    private final List<Producer> producers;
+
+    // suspended partitions are resumed once their queue is down to this size
+    private final int resumeThreshold;
+
+    // index of the queue to read from, when equal to the number of partitions all have finished
+    private int current;
+
+    private T next;
+
+    private volatile boolean closed;
+
+    public PartitionedIterator(List<Supplier<AutoCloseableIterator<? extends T>>> partitions,
+            ExecutorService executor, boolean ordered) {
+        this(partitions, executor, ordered, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    public PartitionedIterator(List<Supplier<AutoCloseableIterator<? extends T>>> partitions,
+            ExecutorService executor, boolean ordered, int queueCapacity) {
+        checkNotNull(partitions);
+        checkNotNull(executor);
+        checkArgument(!partitions.isEmpty(), "no partitions provided");
+        checkArgument(queueCapacity > 0, "queue capacity must be > 0");
+
+        final int size = partitions.size();
+        this.executor = executor;
+        this.resumeThreshold = queueCapacity / 2;
+        this.queues = new ArrayList<>(size);
+        this.producers = new ArrayList<>(size);
+        // when not ordered all the partitions share the queue, and the END markers of all of them
+        // have to be read from it
+        final BlockingQueue<Object> shared = ordered ? null
+                : new ArrayBlockingQueue<>(queueCapacity);
+        for (Supplier<AutoCloseableIterator<? extends T>> partition : partitions) {
+            BlockingQueue<Object> queue = ordered ? new ArrayBlockingQueue<>(queueCapacity)
+                    : shared;
+            queues.add(queue);
+            producers.add(new Producer(partition, queue));
+        }
+        producers.forEach((p) -> resume(p));
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next != null) {
+            return true;
+        }
+        while (!closed && current < queues.size()) {
+            final BlockingQueue<Object> queue = queues.get(current);
+            final Object element;
+            try {
+                element = queue.take();
+            } catch (InterruptedException e) {
+                close();
+                Thread.currentThread().interrupt();
+                throw Throwables.propagate(e);
+            }
+            if (queue.size() <= resumeThreshold) {
+                for (Producer p : producers) {
+                    if (p.queue == queue) {
+                        resume(p);
+                    }
+                }
+            }
+            if (element == END) {
+                current++;
+            } else if (element instanceof Failure) {
+                close();
+                throw Throwables.propagate(((Failure) element).cause);
+            } else {
+                @SuppressWarnings("unchecked")
+                T value = (T) element;
+                next = value;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        T value = next;
+        next = null;
+        return value;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        next = null;
+        // running producers stop at the next element, suspended ones are resumed to close their
+        // partitions
+        producers.forEach((p) -> resume(p));
+        for (BlockingQueue<Object> queue : queues) {
+            queue.clear();
+        }
+    }
+
+    private void resume(Producer producer) {
+        if (producer.suspended.get() && producer.suspended.compareAndSet(true, false)) {
+            try {
+                executor.execute(producer);
+            } catch (RejectedExecutionException e) {
+                // the executor's been shut down (e.g. the datastore disposed), the producer is not
+                // running so it's safe to close its partition from here
+                producer.closePartition();
+                if (!closed) {
+                    close();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Hands off the elements of a partition to its queue, returning when the partition is
+     * exhausted, the iterator closed, or the queue full. In the latter case the producer is marked
+     * as suspended, and the consumer resubmits it once it has made room in the queue.
+     * <p>
+     * The consumer only resubmits a producer after taking it out of the suspended state, so there
+     * is never more than one run of the same producer at a time.
+     */
+    private class Producer implements Runnable {
+
+        private final Supplier<AutoCloseableIterator<? extends T>> partition;
+
+        private final BlockingQueue<Object> queue;
+
+        // not scheduled, waiting to be started or for room in the queue
+        private final AtomicBoolean suspended = new AtomicBoolean(true);
+
+        private AutoCloseableIterator<? extends T> it;
+
+        // element to hand off that didn't fit in the queue
+        private Object pending;
+
+        private boolean finished;
+
+        Producer(Supplier<AutoCloseableIterator<? extends T>> partition,
+                BlockingQueue<Object> queue) {
+            this.partition = partition;
+            this.queue = queue;
+        }
+
+        @Override
+        public void run() {
+            while (!closed) {
+                if (pending == null) {
+                    pending = nextElement();
+                    if (pending == null) {
+                        return;
+                    }
+                }
+                if (queue.offer(pending)) {
+                    pending = null;
+                    continue;
+                }
+                suspended.set(true);
+                // the consumer may have made room before seeing it suspended, in which case
+                // carry on, unless it resubmitted it already
+                if (queue.remainingCapacity() == 0 || !suspended.compareAndSet(true, false)) {
+                    return;
+                }
+            }
+            closePartition();
+        }
+
+        /**
+         * @return the next element to hand off, {@link #END} or a {@link Failure} once the
+         *         partition is closed, or {@code null} once those were handed off
+         */
+        private @Nullable Object nextElement() {
+            if (finished) {
+                return null;
+            }
+            try {
+                if (it == null) {
+                    it = partition.get();
+                }
+                if (it.hasNext()) {
+                    return it.next();
+                }
+                finished = true;
+                AutoCloseableIterator<? extends T> exhausted = it;
+                it = null;
+                exhausted.close();
+                return END;
+            } catch (Throwable e) {
+                finished = true;
+                closePartition();
+                return new Failure(e);
+            }
+        }
+
+        void closePartition() {
+            AutoCloseableIterator<? extends T> partitionIterator = it;
+            it = null;
+            if (partitionIterator != null) {
+                try {
+                    partitionIterator.close();
+                } catch (RuntimeException e) {
+                    // the iterator's been closed, there's nobody to report it to
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.geotools.data.reader;
+
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.repository.IndexInfo;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.filter.sort.SortBy;
+import org.opengis.filter.sort.SortOrder;
+
+import com.google.common.collect.Ordering;
+
+/**
+ * Builds {@link Comparator comparators} for a query's {@link SortBy sort clauses}, either for
+ * features or for index nodes that have the sort attributes materialized.
+ * <p>
+ * The comparators always end up comparing by feature id, so that paging through the sorted
+ * results with successive offsets is consistent even if the sort attributes have repeated values.
+ */
+final class SortByComparators {
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private static final Comparator<Object> VALUE_ORDER = (Comparator) Ordering.natural()
+            .nullsFirst();
+
+    private SortByComparators() {
+        //
+    }
+
+    /**
+     * @return {@code true} if there's no sort clause other than {@link SortBy#NATURAL_ORDER}, and
+     *         hence the features can be returned in storage order
+     */
+    public static boolean isNaturalOrder(@Nullable SortBy[] sortBy) {
+        if (sortBy != null) {
+            for (SortBy s : sortBy) {
+                if (!isIdOrder(s) || SortOrder.DESCENDING.equals(s.getSortOrder())) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return whether all the sort clauses refer to attributes of the given type whose values can
+     *         be compared
+     */
+    public static boolean canSort(SimpleFeatureType schema, @Nullable SortBy[] sortBy) {
+        if (sortBy != null) {
+            for (SortBy s : sortBy) {
+                if (isIdOrder(s)) {
+                    continue;
+                }
+                AttributeDescriptor descriptor = schema.getDescriptor(propertyName(s));
+                if (descriptor == null
+                        || !Comparable.class.isAssignableFrom(descriptor.getType().getBinding())) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the names of the attributes needed to evaluate the sort clauses
+     */
+    public static Set<String> sortAttributes(@Nullable SortBy[] sortBy) {
+        Set<String> names = new LinkedHashSet<>();
+        if (sortBy != null) {
+            for (SortBy s : sortBy) {
+                if (!isIdOrder(s)) {
+                    names.add(propertyName(s));
+                }
+            }
+        }
+        return names;
+    }
+
+    public static Comparator<SimpleFeature> features(SortBy[] sortBy) {
+        return comparator(sortBy, (f, name) -> f.getAttribute(name), (f) -> f.getID());
+    }
+
+    /**
+     * @return a comparator for index nodes, whose extra data contain the sort attributes
+     */
+    public static Comparator<NodeRef> nodes(SortBy[] sortBy) {
+        return comparator(sortBy,
+                (n, name) -> IndexInfo.getMaterializedAttribute(name, n.getNode()),
+                (n) -> n.name());
+    }
+
+    private static <T> Comparator<T> comparator(SortBy[] sortBy,
+            BiFunction<T, String, Object> attribute, Function<T, String> id) {
+
+        Comparator<T> comparator = null;
+        for (SortBy s : sortBy) {
+            final Comparator<T> c;
+            if (isIdOrder(s)) {
+                c = Comparator.comparing(id);
+            } else {
+                final String name = propertyName(s);
+                c = (o1, o2) -> VALUE_ORDER.compare(attribute.apply(o1, name),
+                        attribute.apply(o2, name));
+            }
+            final boolean descending = SortOrder.DESCENDING.equals(s.getSortOrder());
+            comparator = append(comparator, descending ? c.reversed() : c);
+        }
+        // break ties by feature id
+        return append(comparator, Comparator.comparing(id));
+    }
+
+    private static <T> Comparator<T> append(@Nullable Comparator<T> first, Comparator<T> next) {
+        return first == null ? next : first.thenComparing(next);
+    }
+
+    /**
+     * @return whether the clause is {@link SortBy#NATURAL_ORDER} or {@link SortBy#REVERSE_ORDER},
+     *         i.e. by feature id
+     */
+    private static boolean isIdOrder(SortBy s) {
+        return s.getPropertyName() == null;
+    }
+
+    private static String propertyName(SortBy s) {
+        String name = s.getPropertyName().getPropertyName();
+        return name.substring(name.indexOf(':') + 1);
+    }
+}
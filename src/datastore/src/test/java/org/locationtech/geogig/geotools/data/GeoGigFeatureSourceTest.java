@@ -294,6 +294,43 @@ public class GeoGigFeatureSourceTest extends RepositoryTestCase {
         assertEquals(2, linesSource.getCount(new Query(linesName, filter)));
     }
 
+    @Test
+    public void testGetCountAndBoundsBBOX() throws Exception {
+        checkCountAndBoundsBBOX();
+    }
+
+    @Test
+    public void testGetCountAndBoundsBBOXWithSpatialIndex() throws Exception {
+        createQuadTree(pointsName);
+        checkCountAndBoundsBBOX();
+    }
+
+    private void checkCountAndBoundsBBOX() throws Exception {
+        final String geom = pointsType.getGeometryDescriptor().getLocalName();
+
+        Filter filter = ff.bbox(ff.property(geom), boundsOf(points1, points2));
+        Query query = new Query(pointsName, filter);
+        assertEquals(2, pointsSource.getCount(query));
+        assertEquals(boundsOf(points1, points2), pointsSource.getBounds(query));
+
+        filter = ff.bbox(ff.property(geom), boundsOf(points1, points2, points3));
+        query = new Query(pointsName, filter);
+        assertEquals(3, pointsSource.getCount(query));
+        assertEquals(boundsOf(points1, points2, points3), pointsSource.getBounds(query));
+
+        query.setMaxFeatures(2);
+        assertEquals(2, pointsSource.getCount(query));
+        query.setMaxFeatures(Query.DEFAULT_MAX);
+        query.setStartIndex(1);
+        assertEquals(2, pointsSource.getCount(query));
+
+        filter = ff.bbox(ff.property(geom), new ReferencedEnvelope(-10, -5, -10, -5,
+                pointsType.getCoordinateReferenceSystem()));
+        query = new Query(pointsName, filter);
+        assertEquals(0, pointsSource.getCount(query));
+        assertTrue(pointsSource.getBounds(query).isEmpty());
+    }
+
     @Test
     public void testGetFeatures() throws Exception {
         SimpleFeatureCollection collection;
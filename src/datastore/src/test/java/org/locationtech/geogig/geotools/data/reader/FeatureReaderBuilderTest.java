@@ -9,6 +9,7 @@
  */
 package org.locationtech.geogig.geotools.data.reader;
 
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
@@ -19,9 +20,15 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.geotools.data.FeatureReader;
@@ -37,8 +44,10 @@ import org.locationtech.geogig.model.Bounded;
 import org.locationtech.geogig.model.NodeRef;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.RevFeatureType;
+import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.model.impl.RevFeatureTypeBuilder;
 import org.locationtech.geogig.plumbing.DiffTree;
+import org.locationtech.geogig.porcelain.index.CreateAttributeIndex;
 import org.locationtech.geogig.porcelain.index.CreateQuadTree;
 import org.locationtech.geogig.porcelain.index.Index;
 import org.locationtech.geogig.repository.Context;
@@ -57,9 +66,11 @@ import org.opengis.filter.PropertyIsEqualTo;
 import org.opengis.filter.PropertyIsNotEqualTo;
 import org.opengis.filter.identity.FeatureId;
 import org.opengis.filter.sort.SortBy;
+import org.opengis.filter.sort.SortOrder;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
@@ -352,6 +363,267 @@ public class FeatureReaderBuilderTest extends RepositoryTestCase {
         verifyUsesIndex(index);
     }
 
+    @Test
+    public void testAttributeIndexEqualityQuery() throws Exception {
+        Index index = repo.command(CreateAttributeIndex.class).setTreeRefSpec(pointsName)
+                .setAttributeName("ip").call();
+        Query query = new Query();
+        FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2();
+        query.setFilter(ff.equals(ff.property("ip"), ff.literal(Integer.valueOf(2000))));
+        verifyFeatures(query, points2);
+        verifyUsesIndex(index);
+        verify(difftree).setBucketFilter(any(AttributeIndexRange.class));
+    }
+
+    @Test
+    public void testAttributeIndexRangeQuery() throws Exception {
+        Index index = repo.command(CreateAttributeIndex.class).setTreeRefSpec(pointsName)
+                .setAttributeName("ip").call();
+        Query query = new Query();
+        FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2();
+        query.setFilter(ff.greater(ff.property("ip"), ff.literal(Integer.valueOf(1500))));
+        verifyFeatures(query, points2, points3);
+        verifyUsesIndex(index);
+    }
+
+    @Test
+    public void testAttributeIndexNotUsedForOtherAttributes() throws Exception {
+        repo.command(CreateAttributeIndex.class).setTreeRefSpec(pointsName).setAttributeName("ip")
+                .call();
+        Query query = new Query();
+        FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2();
+        query.setFilter(ff.equals(ff.property("sp"), ff.literal("StringProp1_3")));
+        verifyFeatures(query, points3);
+        NodeRef typeRef = context.workingTree().getFeatureTypeTrees().get(0);
+        verify(difftree).setNewTree(eq(typeRef.getObjectId()));
+    }
+
+    @Test
+    public void testAttributeIndexWithBuckets() throws Exception {
+        // enough features for the index tree to have buckets, and more features sharing a value
+        // than fit in a leaf tree
+        final int numFeatures = 1000;
+        final int sharedValue = 7;
+        final int numShared = 400;
+        List<Feature> features = new ArrayList<>();
+        for (int i = 0; i < numFeatures; i++) {
+            Integer ip = Integer.valueOf(i < numShared ? sharedValue : i);
+            features.add(feature(pointsType, "Points.p" + i, "StringProp_" + i, ip,
+                    String.format("POINT(%d %d)", i % 90, i % 45)));
+        }
+        insertAndAdd(features.toArray(new Feature[numFeatures]));
+        commit("buckets");
+
+        Index index = repo.command(CreateAttributeIndex.class).setTreeRefSpec(pointsName)
+                .setAttributeName("ip").call();
+        RevTree indexTree = repo.objectDatabase().getTree(index.indexTreeId());
+        assertFalse(indexTree.buckets().isEmpty());
+        assertEquals(numFeatures + 3, indexTree.size());
+
+        FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2();
+        verifyAttributeIndexQuery(index, ff.equals(ff.property("ip"), ff.literal(sharedValue)),
+                numShared);
+        verifyAttributeIndexQuery(index, ff.equals(ff.property("ip"), ff.literal(650)), 1);
+        verifyAttributeIndexQuery(index, ff.equals(ff.property("ip"), ff.literal(5)), 0);
+        // points1 to points3 have 1000, 2000 and 3000
+        verifyAttributeIndexQuery(index, ff.greater(ff.property("ip"), ff.literal(900)),
+                99 + 3);
+        verifyAttributeIndexQuery(index, ff.less(ff.property("ip"), ff.literal(420)),
+                numShared + 20);
+        verifyAttributeIndexQuery(index,
+                ff.between(ff.property("ip"), ff.literal(450), ff.literal(460)), 11);
+        verifyAttributeIndexQuery(index,
+                ff.and(ff.greaterOrEqual(ff.property("ip"), ff.literal(sharedValue)),
+                        ff.lessOrEqual(ff.property("ip"), ff.literal(sharedValue))),
+                numShared);
+        verifyAttributeIndexQuery(index, ff.or(ff.equals(ff.property("ip"), ff.literal(650)),
+                ff.equals(ff.property("ip"), ff.literal(sharedValue))), numShared + 1);
+    }
+
+    /**
+     * Verifies the features {@code filter} selects through the attribute index, pruning its
+     * buckets, are the same a full scan of the feature tree does
+     */
+    private void verifyAttributeIndexQuery(Index index, Filter filter, int expectedCount)
+            throws IOException {
+        NodeRef typeRef = repo.context().workingTree().getFeatureTypeTrees().get(0);
+        RevFeatureType nativeType = RevFeatureTypeBuilder.build(pointsType);
+
+        Set<String> expected = new HashSet<>();
+        try (FeatureReader<SimpleFeatureType, SimpleFeature> all = FeatureReaderBuilder
+                .builder(repo.context(), nativeType, typeRef).build()) {
+            while (all.hasNext()) {
+                SimpleFeature f = all.next();
+                if (filter.evaluate(f)) {
+                    expected.add(f.getID());
+                }
+            }
+        }
+        assertEquals(expectedCount, expected.size());
+
+        difftree = spy(repo.context().command(DiffTree.class));
+        doReturn(difftree).when(context).command(eq(DiffTree.class));
+        List<String> actual = readIds(
+                FeatureReaderBuilder.builder(context, nativeType, typeRef).filter(filter));
+        assertEquals(expected, new HashSet<>(actual));
+        assertEquals(expected.size(), actual.size());
+        verifyUsesIndex(index);
+        verify(difftree).setBucketFilter(any(AttributeIndexRange.class));
+    }
+
+    @Test
+    public void testSortBy() throws Exception {
+        FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2();
+        Query query = new Query();
+        query.setSortBy(new SortBy[] { ff.sort("ip", SortOrder.DESCENDING) });
+        verifyOrder(query, points3, points2, points1);
+
+        query.setSortBy(new SortBy[] { ff.sort("sp", SortOrder.ASCENDING) });
+        verifyOrder(query, points1, points2, points3);
+    }
+
+    @Test
+    public void testSortByReturnsOnlyRequestedProperties() throws Exception {
+        FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2();
+        Query query = new Query();
+        query.setPropertyNames(new String[] { "sp" });
+        query.setSortBy(new SortBy[] { ff.sort("ip", SortOrder.DESCENDING) });
+        getReader(query);
+        assertEquals(ImmutableList.of("sp"), Lists.transform(
+                reader.getFeatureType().getAttributeDescriptors(), (d) -> d.getLocalName()));
+        reader.close();
+        verifyOrder(query, points3, points2, points1);
+    }
+
+    @Test
+    public void testSortByTopK() throws Exception {
+        FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2();
+        Query query = new Query();
+        query.setSortBy(new SortBy[] { ff.sort("ip", SortOrder.DESCENDING) });
+        query.setStartIndex(1);
+        query.setMaxFeatures(1);
+        verifyOrder(query, points2);
+        verify(difftree).setPreserveIterationOrder(eq(false));
+    }
+
+    @Test
+    public void testSortByTopKUsingIndexMaterializedAttributes() throws Exception {
+        Index index = createIndex("ip");
+        FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2();
+        Query query = new Query();
+        query.setSortBy(new SortBy[] { ff.sort("ip", SortOrder.DESCENDING) });
+        query.setMaxFeatures(2);
+        verifyOrder(query, points3, points2);
+        verifyUsesIndex(index);
+    }
+
+    @Test
+    public void testSortByExternalMergeSort() throws Exception {
+        System.setProperty(FeatureSorter.MAX_FEATURES_IN_MEMORY_PROPERTY, "1");
+        try {
+            FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2();
+            Query query = new Query();
+            query.setSortBy(new SortBy[] { ff.sort("ip", SortOrder.DESCENDING) });
+            Map<FeatureId, SimpleFeature> features = verifyOrder(query, points3, points2,
+                    points1);
+            Geometry expected = (Geometry) points1.getProperty("pp").getValue();
+            Geometry actual = (Geometry) features.get(points1.getIdentifier())
+                    .getAttribute("pp");
+            assertTrue(expected.equalsExact(actual));
+        } finally {
+            System.clearProperty(FeatureSorter.MAX_FEATURES_IN_MEMORY_PROPERTY);
+        }
+    }
+
+    @Test
+    public void testSortByMultiPassMergeSort() throws Exception {
+        // one feature per run, merged two runs at a time
+        System.setProperty(FeatureSorter.MAX_FEATURES_IN_MEMORY_PROPERTY, "1");
+        System.setProperty(FeatureSorter.MAX_MERGE_FAN_IN_PROPERTY, "2");
+        try {
+            FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2();
+            Query query = new Query();
+            query.setSortBy(new SortBy[] { ff.sort("ip", SortOrder.ASCENDING) });
+            verifyOrder(query, points1, points2, points3);
+        } finally {
+            System.clearProperty(FeatureSorter.MAX_FEATURES_IN_MEMORY_PROPERTY);
+            System.clearProperty(FeatureSorter.MAX_MERGE_FAN_IN_PROPERTY);
+        }
+    }
+
+    @Test
+    public void testSortByUnsupportedAttribute() throws Exception {
+        FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2();
+        Query query = new Query();
+        query.setSortBy(new SortBy[] { ff.sort("pp", SortOrder.ASCENDING) });
+        assertFalse(FeatureReaderBuilder.canSort(pointsType, query.getSortBy()));
+        try {
+            getReader(query);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("Unsupported sort order"));
+        }
+    }
+
+    @Test
+    public void testParallelReads() throws Exception {
+        // enough features for the feature tree to have buckets
+        final int numFeatures = 1000;
+        List<Feature> features = new ArrayList<>();
+        for (int i = 0; i < numFeatures; i++) {
+            features.add(feature(pointsType, "Points.p" + i, "StringProp_" + i,
+                    Integer.valueOf(i), String.format("POINT(%d %d)", i % 90, i % 45)));
+        }
+        insertAndAdd(features.toArray(new Feature[numFeatures]));
+        commit("buckets");
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            // not using the spied context, each partition runs its own DiffTree op
+            Context context = repo.context();
+            NodeRef typeRef = context.workingTree().getFeatureTypeTrees().get(0);
+            RevFeatureType nativeType = RevFeatureTypeBuilder.build(pointsType);
+            Supplier<FeatureReaderBuilder> sequential = () -> FeatureReaderBuilder
+                    .builder(context, nativeType, typeRef);
+            Supplier<FeatureReaderBuilder> parallel = () -> FeatureReaderBuilder
+                    .builder(context, nativeType, typeRef).parallelism(4, executor);
+
+            List<String> expected = readIds(sequential.get());
+            List<String> actual = readIds(parallel.get());
+            assertEquals(numFeatures + 3, expected.size());
+            assertEquals(ImmutableSet.copyOf(expected), ImmutableSet.copyOf(actual));
+            assertEquals(expected.size(), actual.size());
+
+            // paging preserves the storage order
+            expected = readIds(sequential.get().offset(100).limit(500));
+            actual = readIds(parallel.get().offset(100).limit(500));
+            assertEquals(500, actual.size());
+            assertEquals(expected, actual);
+
+            // post-filtered and sorted
+            FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2();
+            Filter filter = ff.less(ff.property("ip"), ff.literal(100));
+            SortBy sort = ff.sort("ip", SortOrder.DESCENDING);
+            expected = readIds(sequential.get().filter(filter).sortBy(sort).limit(10));
+            actual = readIds(parallel.get().filter(filter).sortBy(sort).limit(10));
+            assertEquals(10, actual.size());
+            assertEquals("Points.p99", actual.get(0));
+            assertEquals(expected, actual);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<String> readIds(FeatureReaderBuilder builder) throws IOException {
+        List<String> ids = new ArrayList<>();
+        try (FeatureReader<SimpleFeatureType, SimpleFeature> reader = builder.build()) {
+            while (reader.hasNext()) {
+                ids.add(reader.next().getID());
+            }
+        }
+        return ids;
+    }
+
     public @Test void testDiffTreeIteratorIsClosedOnError() throws IOException {
         RuntimeException expected = new RuntimeException();
         AutoCloseableIterator<DiffEntry> mockIt = mock(AutoCloseableIterator.class);
@@ -396,6 +668,29 @@ public class FeatureReaderBuilderTest extends RepositoryTestCase {
         return verifyFeatures(reader, expectedFeatures);
     }
 
+    /**
+     * Verifies the query returns the expected features in the expected order
+     */
+    private Map<FeatureId, SimpleFeature> verifyOrder(Query query, Feature... expectedFeatures)
+            throws Exception {
+        getReader(query);
+        List<String> actualIds = new ArrayList<>();
+        Map<FeatureId, SimpleFeature> actual = new HashMap<>();
+        try {
+            while (reader.hasNext()) {
+                SimpleFeature f = reader.next();
+                actualIds.add(f.getID());
+                actual.put(f.getIdentifier(), f);
+            }
+        } finally {
+            reader.close();
+        }
+        List<String> expectedIds = Lists.transform(Lists.newArrayList(expectedFeatures),
+                (f) -> f.getIdentifier().getID());
+        assertEquals(expectedIds, actualIds);
+        return actual;
+    }
+
     private FeatureReader<SimpleFeatureType, SimpleFeature> getReader(Query query) {
         GeometryFactory geometryFactory = (GeometryFactory) query.getHints()
                 .get(Hints.JTS_GEOMETRY_FACTORY);
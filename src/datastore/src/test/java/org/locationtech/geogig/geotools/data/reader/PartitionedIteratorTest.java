@@ -0,0 +1,251 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.geotools.data.reader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.geogig.storage.AutoCloseableIterator;
+
+import com.google.common.collect.ContiguousSet;
+import com.google.common.collect.DiscreteDomain;
+import com.google.common.collect.Range;
+
+public class PartitionedIteratorTest {
+
+    private ExecutorService executor;
+
+    @Before
+    public void before() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void after() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * A partition with the integers in {@code [from, to)}, counting down {@code closed} when closed
+     */
+    private Supplier<AutoCloseableIterator<? extends Integer>> partition(int from, int to,
+            CountDownLatch closed) {
+        return partition(from, to, new CountDownLatch(1), closed);
+    }
+
+    private Supplier<AutoCloseableIterator<? extends Integer>> partition(int from, int to,
+            CountDownLatch opened, CountDownLatch closed) {
+        return partition(from, to, opened, closed, new AtomicBoolean());
+    }
+
+    /**
+     * @param interrupted set if the thread closing the partition has been interrupted
+     */
+    private Supplier<AutoCloseableIterator<? extends Integer>> partition(int from, int to,
+            CountDownLatch opened, CountDownLatch closed, AtomicBoolean interrupted) {
+        return () -> {
+            opened.countDown();
+            return AutoCloseableIterator.fromIterator(
+                    ContiguousSet.create(Range.closedOpen(from, to), DiscreteDomain.integers())
+                            .iterator(),
+                    (it) -> {
+                        if (Thread.currentThread().isInterrupted()) {
+                            interrupted.set(true);
+                        }
+                        closed.countDown();
+                    });
+        };
+    }
+
+    private List<Integer> drain(AutoCloseableIterator<Integer> it) {
+        List<Integer> values = new ArrayList<>();
+        try {
+            while (it.hasNext()) {
+                values.add(it.next());
+            }
+        } finally {
+            it.close();
+        }
+        return values;
+    }
+
+    private List<Integer> range(int from, int to) {
+        return new ArrayList<>(
+                ContiguousSet.create(Range.closedOpen(from, to), DiscreteDomain.integers()));
+    }
+
+    @Test
+    public void testOrdered() throws Exception {
+        CountDownLatch closed = new CountDownLatch(3);
+        List<Supplier<AutoCloseableIterator<? extends Integer>>> partitions = new ArrayList<>();
+        partitions.add(partition(0, 1000, closed));
+        partitions.add(partition(1000, 1500, closed));
+        partitions.add(partition(1500, 5000, closed));
+
+        List<Integer> values = drain(new PartitionedIterator<>(partitions, executor, true, 10));
+        assertEquals(range(0, 5000), values);
+        assertTrue(closed.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testUnordered() throws Exception {
+        CountDownLatch closed = new CountDownLatch(3);
+        List<Supplier<AutoCloseableIterator<? extends Integer>>> partitions = new ArrayList<>();
+        partitions.add(partition(0, 1000, closed));
+        partitions.add(partition(1000, 1000, closed));
+        partitions.add(partition(1000, 5000, closed));
+
+        List<Integer> values = drain(new PartitionedIterator<>(partitions, executor, false, 10));
+        Collections.sort(values);
+        assertEquals(range(0, 5000), values);
+        assertTrue(closed.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testMorePartitionsThanThreads() throws Exception {
+        final int numPartitions = 16;
+        CountDownLatch closed = new CountDownLatch(numPartitions);
+        List<Supplier<AutoCloseableIterator<? extends Integer>>> partitions = new ArrayList<>();
+        for (int i = 0; i < numPartitions; i++) {
+            partitions.add(partition(100 * i, 100 * (i + 1), closed));
+        }
+        List<Integer> values = drain(new PartitionedIterator<>(partitions, executor, true, 1));
+        assertEquals(range(0, 100 * numPartitions), values);
+        assertTrue(closed.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testCloseCancelsPartitions() throws Exception {
+        CountDownLatch opened = new CountDownLatch(2);
+        CountDownLatch closed = new CountDownLatch(2);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        List<Supplier<AutoCloseableIterator<? extends Integer>>> partitions = new ArrayList<>();
+        partitions.add(partition(0, 1_000_000, opened, closed, interrupted));
+        partitions.add(partition(1_000_000, 2_000_000, opened, closed, interrupted));
+
+        PartitionedIterator<Integer> it = new PartitionedIterator<>(partitions, executor, true,
+                10);
+        assertTrue(it.hasNext());
+        assertEquals(Integer.valueOf(0), it.next());
+        // both producers are suspended on their full queues
+        assertTrue(opened.await(5, TimeUnit.SECONDS));
+        it.close();
+        assertFalse(it.hasNext());
+        assertTrue(closed.await(5, TimeUnit.SECONDS));
+        assertFalse("partitions shall not be interrupted", interrupted.get());
+    }
+
+    @Test
+    public void testFullQueuesDontHoldThreads() throws Exception {
+        ExecutorService singleThread = Executors.newSingleThreadExecutor();
+        ExecutorService consumer = Executors.newSingleThreadExecutor();
+        try {
+            // interleaving two readers on the same thread while sharing a single executor thread
+            // would deadlock if a producer held it while waiting on its full queue
+            Future<List<Integer>> interleaved = consumer.submit(() -> {
+                CountDownLatch closed = new CountDownLatch(4);
+                List<Supplier<AutoCloseableIterator<? extends Integer>>> p1, p2;
+                p1 = new ArrayList<>();
+                p1.add(partition(0, 100, closed));
+                p1.add(partition(100, 200, closed));
+                p2 = new ArrayList<>();
+                p2.add(partition(200, 300, closed));
+                p2.add(partition(300, 400, closed));
+                List<Integer> values = new ArrayList<>();
+                PartitionedIterator<Integer> it1 = new PartitionedIterator<>(p1, singleThread,
+                        true, 5);
+                PartitionedIterator<Integer> it2 = new PartitionedIterator<>(p2, singleThread,
+                        true, 5);
+                while (it1.hasNext() || it2.hasNext()) {
+                    if (it1.hasNext()) {
+                        values.add(it1.next());
+                    }
+                    if (it2.hasNext()) {
+                        values.add(it2.next());
+                    }
+                }
+                assertTrue(closed.await(5, TimeUnit.SECONDS));
+                return values;
+            });
+            List<Integer> values = interleaved.get(10, TimeUnit.SECONDS);
+            Collections.sort(values);
+            assertEquals(range(0, 400), values);
+        } finally {
+            consumer.shutdownNow();
+            singleThread.shutdownNow();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testSlowReaderDoesNotBlockOthers() throws Exception {
+        ExecutorService singleThread = Executors.newSingleThreadExecutor();
+        try {
+            List<Supplier<AutoCloseableIterator<? extends Integer>>> partitions;
+            partitions = new ArrayList<>();
+            partitions.add(partition(0, 1000, new CountDownLatch(1)));
+            partitions.add(partition(1000, 2000, new CountDownLatch(1)));
+            // a reader that stopped consuming with its queues full
+            PartitionedIterator<Integer> slow = new PartitionedIterator<>(partitions,
+                    singleThread, true, 10);
+            assertEquals(Integer.valueOf(0), slow.next());
+
+            CountDownLatch closed = new CountDownLatch(2);
+            partitions = new ArrayList<>();
+            partitions.add(partition(0, 500, closed));
+            partitions.add(partition(500, 1000, closed));
+            PartitionedIterator<Integer> other = new PartitionedIterator<>(partitions,
+                    singleThread, true, 10);
+            assertEquals(range(0, 1000), drain(other));
+            assertTrue(closed.await(5, TimeUnit.SECONDS));
+
+            assertEquals(range(1, 2000), drain(slow));
+        } finally {
+            singleThread.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testPartitionError() throws Exception {
+        final RuntimeException error = new IllegalStateException("expected");
+        CountDownLatch closed = new CountDownLatch(1);
+        List<Supplier<AutoCloseableIterator<? extends Integer>>> partitions = new ArrayList<>();
+        partitions.add(partition(0, 10, closed));
+        partitions.add(() -> {
+            throw error;
+        });
+
+        PartitionedIterator<Integer> it = new PartitionedIterator<>(partitions, executor, true,
+                10);
+        try {
+            drain(it);
+            fail("expected exception");
+        } catch (IllegalStateException e) {
+            assertSame(error, e);
+        }
+        assertTrue(closed.await(5, TimeUnit.SECONDS));
+    }
+}
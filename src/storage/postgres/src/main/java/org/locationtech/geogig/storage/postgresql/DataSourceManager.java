@@ -49,6 +49,17 @@ class DataSourceManager extends ConnectionManager<Environment.ConnectionConfig,
 
     private static int driverMajorVersion;
 
+    DataSourceManager() {
+        super();
+    }
+
+    /**
+     * @param lingerMillis how long to keep a connection pool after its last client released it
+     */
+    DataSourceManager(long lingerMillis) {
+        super(lingerMillis);
+    }
+
     @VisibleForTesting
     int getDriverMajorVersion() {
         return new org.postgresql.Driver().getMajorVersion();
@@ -56,6 +56,8 @@ public class Environment {
 
     public static final String KEY_PUTALL_BATCH_SIZE = "postgres.putAllBatchSize";
 
+    public static final String KEY_PUTALL_USE_COPY = "postgres.putAllUseCopy";
+
     public static final String KEY_ODB_BYTE_CACHE_MAX_SIZE = "postgres.bytecache.maxSize";
 
     public static final String KEY_ODB_BYTE_CACHE_CONCURRENCY_LEVEL = "postgres.bytecache.concurrencyLevel";
@@ -0,0 +1,105 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.storage.postgresql;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+
+/**
+ * Streams rows to a {@code COPY ... FROM STDIN (FORMAT BINARY)} statement.
+ * <p>
+ * Only the column types GeoGig stages through COPY are supported ({@code INTEGER}, {@code BIGINT}
+ * and {@code BYTEA}), composite types such as {@code OBJECTID} must be split into their members and
+ * re-assembled on the server side.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * <code>
+ * try (PGBinaryCopy copy = new PGBinaryCopy(cx, "COPY t (a, b) FROM STDIN (FORMAT BINARY)")) {
+ *     copy.startRow(2);
+ *     copy.writeInt(1);
+ *     copy.writeBytes(blob);
+ *     long rows = copy.endCopy();
+ * }
+ * </code>
+ * </pre>
+ *
+ * Closing the copy without calling {@link #endCopy()} cancels it.
+ */
+final class PGBinaryCopy implements AutoCloseable {
+
+    private static final byte[] SIGNATURE = { 'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF,
+            '\r', '\n', 0 };
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final PGCopyOutputStream copyStream;
+
+    private final DataOutputStream out;
+
+    private boolean ended;
+
+    PGBinaryCopy(Connection cx, String copySql) throws SQLException {
+        PGConnection pgcx = cx.unwrap(PGConnection.class);
+        this.copyStream = new PGCopyOutputStream(pgcx, copySql, BUFFER_SIZE);
+        this.out = new DataOutputStream(copyStream);
+        try {
+            out.write(SIGNATURE);
+            out.writeInt(0);// flags
+            out.writeInt(0);// header extension length
+        } catch (IOException e) {
+            throw new SQLException(e);
+        }
+    }
+
+    public void startRow(int fieldCount) throws IOException {
+        out.writeShort(fieldCount);
+    }
+
+    public void writeInt(int value) throws IOException {
+        out.writeInt(4);
+        out.writeInt(value);
+    }
+
+    public void writeLong(long value) throws IOException {
+        out.writeInt(8);
+        out.writeLong(value);
+    }
+
+    public void writeBytes(byte[] value) throws IOException {
+        out.writeInt(value.length);
+        out.write(value);
+    }
+
+    /**
+     * Writes the end of data marker and finishes the COPY operation
+     *
+     * @return the number of rows copied
+     */
+    public long endCopy() throws IOException, SQLException {
+        out.writeShort(-1);
+        out.flush();
+        ended = true;
+        return copyStream.endCopy();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (!ended && copyStream.isActive()) {
+            copyStream.cancelCopy();
+        }
+    }
+}
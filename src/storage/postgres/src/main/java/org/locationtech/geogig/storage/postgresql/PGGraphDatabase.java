@@ -34,12 +34,15 @@ import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.repository.Hints;
 import org.locationtech.geogig.repository.RepositoryConnectionException;
+import org.locationtech.geogig.storage.CommitGraph;
 import org.locationtech.geogig.storage.ConfigDatabase;
 import org.locationtech.geogig.storage.GraphDatabase;
 import org.locationtech.geogig.storage.StorageType;
+import org.locationtech.geogig.storage.impl.CommitGraphFile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
@@ -67,6 +70,15 @@ public class PGGraphDatabase implements GraphDatabase {
 
     private Environment config;
 
+    /**
+     * The commit graph is kept on the heap, since the repository may be shared by several
+     * processes. It indexes the commits added through this instance, and the history of the
+     * branches is indexed from the objects database in the background when the repository is
+     * opened (see {@code IndexCommitGraphOp}). Commits added by other processes meanwhile are
+     * just not indexed, and queries on them walk the graph tables instead.
+     */
+    private final CommitGraphFile commitGraph = CommitGraphFile.inMemory();
+
     @Inject
     public PGGraphDatabase(ConfigDatabase configdb, Hints hints) throws URISyntaxException {
         this(configdb, Environment.get(hints));
@@ -161,6 +173,11 @@ public class PGGraphDatabase implements GraphDatabase {
 
     @Override
     public boolean put(ObjectId commitId, ImmutableList<ObjectId> parentIds) {
+        return put(commitId, parentIds, 0L);
+    }
+
+    @Override
+    public boolean put(ObjectId commitId, ImmutableList<ObjectId> parentIds, long timestamp) {
         final PGId node = PGId.valueOf(commitId);
         boolean updated;
         try (Connection cx = PGStorage.newConnection(dataSource)) {
@@ -174,7 +191,7 @@ public class PGGraphDatabase implements GraphDatabase {
         } catch (SQLException e) {
             throw propagate(e);
         }
-
+        commitGraph.add(commitId, parentIds, timestamp);
         return updated;
     }
 
@@ -352,6 +369,7 @@ public class PGGraphDatabase implements GraphDatabase {
                     // this is a view now. st.execute(format("DELETE FROM %s", NODES));
                     cx.commit();
                 }
+                commitGraph.clear();
             } catch (SQLException e) {
                 cx.rollback();
                 throw e;
@@ -363,6 +381,11 @@ public class PGGraphDatabase implements GraphDatabase {
         }
     }
 
+    @Override
+    public Optional<CommitGraph> getCommitGraph() {
+        return Optional.of(commitGraph);
+    }
+
     @Override
     public GraphNode getNode(ObjectId id) {
         return new PGGraphNode(id);
@@ -19,6 +19,7 @@ import static java.util.Spliterator.IMMUTABLE;
 import static java.util.Spliterator.NONNULL;
 import static org.locationtech.geogig.storage.postgresql.Environment.KEY_GETALL_BATCH_SIZE;
 import static org.locationtech.geogig.storage.postgresql.Environment.KEY_PUTALL_BATCH_SIZE;
+import static org.locationtech.geogig.storage.postgresql.Environment.KEY_PUTALL_USE_COPY;
 import static org.locationtech.geogig.storage.postgresql.Environment.KEY_THREADPOOL_SIZE;
 import static org.locationtech.geogig.storage.postgresql.PGStorage.log;
 import static org.locationtech.geogig.storage.postgresql.PGStorage.rollbackAndRethrow;
@@ -29,8 +30,12 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -43,6 +48,7 @@ import java.util.Set;
 import java.util.Spliterator;
 import java.util.Spliterators;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -50,6 +56,7 @@ import java.util.concurrent.Future;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 import java.util.stream.StreamSupport;
 
 import javax.sql.DataSource;
@@ -65,6 +72,7 @@ import org.locationtech.geogig.model.RevObject.TYPE;
 import org.locationtech.geogig.model.RevTag;
 import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.repository.Hints;
+import org.locationtech.geogig.storage.AsyncObjectStoreSupport;
 import org.locationtech.geogig.storage.AutoCloseableIterator;
 import org.locationtech.geogig.storage.BulkOpListener;
 import org.locationtech.geogig.storage.ConfigDatabase;
@@ -74,6 +82,7 @@ import org.locationtech.geogig.storage.cache.CacheManager;
 import org.locationtech.geogig.storage.cache.ObjectCache;
 import org.locationtech.geogig.storage.datastream.SerializationFactoryProxy;
 import org.locationtech.geogig.storage.impl.ConnectionManager;
+import org.locationtech.geogig.storage.impl.ObjectIdSet;
 import org.locationtech.geogig.storage.postgresql.Environment.ConnectionConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -124,6 +133,8 @@ public class PGObjectStore implements ObjectStore {
 
     private int putAllBatchSize = DEFAULT_PUT_ALL_PARTITION_SIZE;
 
+    private boolean putAllUseCopy = true;
+
     private SharedResourceReference resources;
 
     @Inject
@@ -152,6 +163,7 @@ public class PGObjectStore implements ObjectStore {
 
         Optional<Integer> getAllFetchSize = configdb.get(KEY_GETALL_BATCH_SIZE, Integer.class);
         Optional<Integer> putAllBatchSize = configdb.get(KEY_PUTALL_BATCH_SIZE, Integer.class);
+        Optional<Boolean> putAllUseCopy = configdb.get(KEY_PUTALL_USE_COPY, Boolean.class);
         Optional<Integer> tpoolSize = configdb.getGlobal(KEY_THREADPOOL_SIZE, Integer.class);
         if (getAllFetchSize.isPresent()) {
             Integer fetchSize = getAllFetchSize.get();
@@ -167,6 +179,9 @@ public class PGObjectStore implements ObjectStore {
                     batchSize);
             this.putAllBatchSize = batchSize;
         }
+        if (putAllUseCopy.isPresent()) {
+            this.putAllUseCopy = putAllUseCopy.get().booleanValue();
+        }
         int threadPoolSize;
         if (tpoolSize.isPresent()) {
             Integer poolSize = tpoolSize.get();
@@ -232,6 +247,11 @@ public class PGObjectStore implements ObjectStore {
         this.putAllBatchSize = size;
     }
 
+    @VisibleForTesting
+    void setPutAllUseCopy(boolean useCopy) {
+        this.putAllUseCopy = useCopy;
+    }
+
     protected String objectsTable() {
         return config.getTables().objects();
     }
@@ -875,7 +895,8 @@ public class PGObjectStore implements ObjectStore {
 
         public GetAllOp(Collection<ObjectId> ids, BulkOpListener listener, PGObjectStore db,
                 Class<T> type) {
-            this.queryIds = Sets.newHashSet(ids);
+            this.queryIds = new ObjectIdSet(ids.size());
+            this.queryIds.addAll(ids);
             this.callback = listener;
             this.notify = !BulkOpListener.NOOP_LISTENER.equals(listener);
             this.db = db;
@@ -1093,6 +1114,8 @@ public class PGObjectStore implements ObjectStore {
 
     private static class InsertDbOp implements Callable<Void> {
 
+        private static final String STAGING_TABLE = "geogig_putall_staging";
+
         private final DataSource ds;
 
         private final AtomicBoolean abortFlag;
@@ -1120,13 +1143,19 @@ public class PGObjectStore implements ObjectStore {
             try (Connection cx = PGStorage.newConnection(ds)) {
                 cx.setAutoCommit(false);
                 try {
-                    Map<ObjectId, Integer> insertResults = doInsert(cx, batch);
+                    Map<ObjectId, Integer> insertResults;
+                    if (objectStore.putAllUseCopy) {
+                        insertResults = doCopy(cx, batch);
+                    } else {
+                        insertResults = doInsert(cx, batch);
+                    }
                     if (abortFlag.get()) {
+                        // nothing was stored, so nothing is reported
                         cx.rollback();
                     } else {
                         cx.commit();
+                        notifyInserted(insertResults, listener);
                     }
-                    notifyInserted(insertResults, listener);
                 } catch (Exception executionEx) {
                     rollbackAndRethrow(cx, executionEx);
                 } finally {
@@ -1165,7 +1194,7 @@ public class PGObjectStore implements ObjectStore {
             Map<ObjectId, Integer> insertResults = new HashMap<ObjectId, Integer>();
             for (String tableName : new HashSet<String>(perTableIds.keySet())) {
                 if (abortFlag.get()) {
-                    return null;
+                    return Collections.emptyMap();
                 }
                 PreparedStatement tableStatement;
                 tableStatement = perTableStatements.get(tableName);
@@ -1186,6 +1215,98 @@ public class PGObjectStore implements ObjectStore {
             return insertResults;
         }
 
+        /**
+         * Streams the batch to a temporary staging table through a binary {@code COPY} and merges
+         * it into each target table with a single {@code INSERT ... SELECT} that skips the ids
+         * already present, saving the per row round trip and statement parsing of
+         * {@link #doInsert}.
+         * <p>
+         * The object tables have no unique constraint (duplicates are filtered out by an
+         * {@code ON INSERT} rule), so the merge uses an anti-join instead of
+         * {@code ON CONFLICT DO NOTHING}.
+         * <p>
+         * The returned results are only valid once the transaction commits, and are empty if the
+         * operation was aborted.
+         */
+        private Map<ObjectId, Integer> doCopy(Connection cx, List<EncodedObject> partition)
+                throws Exception {
+            // temporary tables are not WAL logged, and ON COMMIT DELETE ROWS leaves it empty for
+            // the next batch that runs on this pooled connection
+            try (Statement st = cx.createStatement()) {
+                st.execute(format("CREATE TEMPORARY TABLE IF NOT EXISTS %s "
+                        + "(tbl INTEGER, h1 INTEGER, h2 BIGINT, h3 BIGINT, object BYTEA) "
+                        + "ON COMMIT DELETE ROWS", STAGING_TABLE));
+            }
+
+            Map<ObjectId, Integer> insertResults = new HashMap<ObjectId, Integer>();
+            List<String> tableNames = new ArrayList<>();
+            Map<String, Integer> tableIndexes = new HashMap<>();
+
+            final String copySql = format(
+                    "COPY %s (tbl, h1, h2, h3, object) FROM STDIN (FORMAT BINARY)", STAGING_TABLE);
+            try (PGBinaryCopy copy = new PGBinaryCopy(cx, log(copySql, LOG))) {
+                for (Iterator<EncodedObject> it = partition.iterator(); it.hasNext()
+                        && !abortFlag.get();) {
+                    EncodedObject obj = it.next();
+                    if (insertResults.containsKey(obj.id)) {
+                        continue;
+                    }
+                    final PGId pgid = PGId.valueOf(obj.id);
+                    final String tableName = objectStore.tableNameForType(obj.type, pgid);
+                    Integer tableIndex = tableIndexes.get(tableName);
+                    if (tableIndex == null) {
+                        tableIndex = Integer.valueOf(tableNames.size());
+                        tableNames.add(tableName);
+                        tableIndexes.put(tableName, tableIndex);
+                    }
+                    copy.startRow(5);
+                    copy.writeInt(tableIndex.intValue());
+                    copy.writeInt(pgid.hash1());
+                    copy.writeLong(pgid.hash2());
+                    copy.writeLong(pgid.hash3());
+                    copy.writeBytes(obj.serialized);
+                    insertResults.put(obj.id, Integer.valueOf(1));
+                }
+                if (abortFlag.get()) {
+                    return Collections.emptyMap();
+                }
+                copy.endCopy();
+            }
+
+            for (int tableIndex = 0; tableIndex < tableNames.size(); tableIndex++) {
+                if (abortFlag.get()) {
+                    return Collections.emptyMap();
+                }
+                final String tableName = tableNames.get(tableIndex);
+                final String existsClause = format("EXISTS (SELECT 1 FROM %s t"
+                        + " WHERE ((t.id).h1) = s.h1"
+                        + " AND t.id = CAST(ROW(s.h1, s.h2, s.h3) AS OBJECTID))", tableName);
+
+                final String foundSql = format(
+                        "SELECT s.h1, s.h2, s.h3 FROM %s s WHERE s.tbl = ? AND %s", STAGING_TABLE,
+                        existsClause);
+                try (PreparedStatement ps = cx.prepareStatement(log(foundSql, LOG, tableIndex))) {
+                    ps.setInt(1, tableIndex);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            ObjectId id = PGId.valueOf(rs, 1).toObjectId();
+                            insertResults.put(id, Integer.valueOf(0));
+                        }
+                    }
+                }
+
+                final String mergeSql = format("INSERT INTO %s (id, object)"
+                        + " SELECT CAST(ROW(s.h1, s.h2, s.h3) AS OBJECTID), s.object"
+                        + " FROM %s s WHERE s.tbl = ? AND NOT %s",
+                        tableName, STAGING_TABLE, existsClause);
+                try (PreparedStatement ps = cx.prepareStatement(log(mergeSql, LOG, tableIndex))) {
+                    ps.setInt(1, tableIndex);
+                    ps.executeUpdate();
+                }
+            }
+            return insertResults;
+        }
+
         private PreparedStatement prepare(final Connection cx, final String tableName,
                 Map<String, PreparedStatement> perTableStatements) throws SQLException {
 
@@ -1268,6 +1389,108 @@ public class PGObjectStore implements ObjectStore {
         }
     }
 
+    /**
+     * Serves the cached objects right away and queries the cache misses in batches of
+     * {@code postgres.getAllBatchSize} ids, each as an independent task on the connection pool's
+     * executor, completing once all of them are done without blocking any thread in between.
+     */
+    @Override
+    public <T extends RevObject> CompletableFuture<List<T>> getAllAsync(Iterable<ObjectId> ids,
+            BulkOpListener listener, Class<T> type) {
+        checkNotNull(ids, "ids is null");
+        checkNotNull(listener, "listener is null");
+        checkNotNull(type, "type is null");
+        checkState(isOpen(), "Database is closed");
+        config.checkRepositoryExists();
+
+        final List<T> hits = new ArrayList<>();
+        final List<ObjectId> misses = new ArrayList<>();
+        for (ObjectId id : ids) {
+            RevObject cached = sharedCache.getIfPresent(id);
+            if (cached == null) {
+                misses.add(id);
+            } else if (type.isInstance(cached)) {
+                listener.found(id, null);
+                hits.add(type.cast(cached));
+            } else {
+                listener.notFound(id);
+            }
+        }
+        // Avoid deadlocking by running the queries synchronously if we are already in one of the
+        // threads on the executor.
+        final boolean inPool = Thread.currentThread().getThreadGroup()
+                .equals(resources.threadGroup);
+        final List<CompletableFuture<List<T>>> queries = new ArrayList<>();
+        for (List<ObjectId> partition : Lists.partition(misses, getAllBatchSize)) {
+            final GetAllOp<T> op = new GetAllOp<T>(partition, listener, this, type);
+            final Supplier<List<T>> query = () -> {
+                try {
+                    return op.call();
+                } catch (Exception e) {
+                    throw propagate(e);
+                }
+            };
+            queries.add(inPool ? CompletableFuture.completedFuture(query.get())
+                    : CompletableFuture.supplyAsync(query, resources.executor()));
+        }
+        CompletableFuture<?>[] all = queries.toArray(new CompletableFuture<?>[queries.size()]);
+        return CompletableFuture.allOf(all).thenApply((v) -> {
+            List<T> objects = new ArrayList<>(hits);
+            for (CompletableFuture<List<T>> query : queries) {
+                objects.addAll(query.join());
+            }
+            return objects;
+        });
+    }
+
+    /**
+     * Encodes the objects on the {@link AsyncObjectStoreSupport#executor() async executor} and
+     * submits each batch of {@code postgres.putAllBatchSize} objects for insertion as soon as it's
+     * encoded, keeping up to as many batches in flight as {@link #putAll(Iterator, BulkOpListener)
+     * putAll} inserts at once, but without waiting for a whole round of batches to finish before
+     * encoding the next one.
+     */
+    @Override
+    public CompletableFuture<Void> putAllAsync(Iterator<? extends RevObject> objects,
+            BulkOpListener listener) {
+        checkNotNull(objects, "objects is null");
+        checkNotNull(listener, "listener is null");
+        checkWritable();
+        config.checkRepositoryExists();
+        return CompletableFuture.runAsync(() -> putAllPipelined(objects, listener),
+                AsyncObjectStoreSupport.executor());
+    }
+
+    private void putAllPipelined(final Iterator<? extends RevObject> objects,
+            final BulkOpListener listener) {
+
+        final int maxTasks = Math.min(Runtime.getRuntime().availableProcessors(),
+                resources.threadPoolSize());
+
+        final Iterator<List<EncodedObject>> partitions = Iterators
+                .partition(Iterators.transform(objects, (obj) -> encode(obj)), putAllBatchSize);
+
+        final AtomicBoolean abortFlag = new AtomicBoolean();
+        final Deque<Future<Void>> inFlight = new ArrayDeque<>(maxTasks);
+        try {
+            while (partitions.hasNext() && !abortFlag.get()) {
+                if (inFlight.size() == maxTasks) {
+                    inFlight.removeFirst().get();
+                }
+                List<EncodedObject> batch = partitions.next();
+                InsertDbOp task = new InsertDbOp(dataSource, abortFlag, batch, listener, this);
+                inFlight.addLast(resources.executor().submit(task));
+            }
+            while (!inFlight.isEmpty()) {
+                inFlight.removeFirst().get();
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            abortFlag.set(true);
+            throw propagate(e);
+        }
+        checkState(!abortFlag.get(), "Error inserting objects, batch insert aborted");
+    }
+
     static final String tableName(TableNames tables, TYPE type, int hash) {
         switch (type) {
         case COMMIT:
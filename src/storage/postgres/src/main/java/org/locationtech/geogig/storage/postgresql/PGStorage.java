@@ -23,6 +23,7 @@ import java.sql.SQLException;
 import java.sql.SQLTransientConnectionException;
 import java.sql.Statement;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import javax.sql.DataSource;
 
@@ -43,7 +44,16 @@ public class PGStorage {
 
     private static final Logger LOG = LoggerFactory.getLogger(PGStorage.class);
 
-    private static final DataSourceManager DATASOURCE_POOL = new DataSourceManager();
+    /**
+     * How long to keep a server's connection pool after the last repository using it was closed,
+     * so that repositories opened and closed in quick succession (e.g. by the web API's repository
+     * cache, or while listing the repositories in a database) don't connect to it every time.
+     */
+    private static final long POOL_LINGER_MILLIS = TimeUnit.SECONDS
+            .toMillis(Long.getLong("geogig.postgres.poolLingerSeconds", 60));
+
+    private static final DataSourceManager DATASOURCE_POOL = new DataSourceManager(
+            POOL_LINGER_MILLIS);
 
     /**
      * Logs a (prepared) sql statement.
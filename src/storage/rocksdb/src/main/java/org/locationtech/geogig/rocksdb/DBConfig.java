@@ -27,18 +27,34 @@ class DBConfig {
 
     private Set<String> columnFamilyNames;
 
+    private RocksdbProfile profile;
+
     public DBConfig(String dbpath, boolean readOnly) {
         this(dbpath, readOnly, ImmutableMap.of(), Collections.emptySet());
     }
 
     public DBConfig(String dbpath, boolean readOnly, Map<String, String> defaultMetadata,
             Set<String> columnFamilyNames) {
+        this(dbpath, readOnly, defaultMetadata, columnFamilyNames, RocksdbProfile.DEFAULT);
+    }
+
+    public DBConfig(String dbpath, boolean readOnly, Map<String, String> defaultMetadata,
+            Set<String> columnFamilyNames, RocksdbProfile profile) {
         this.dbpath = dbpath;
         this.readOnly = readOnly;
         this.columnFamilyNames = columnFamilyNames;
         this.defaultMetadata = ImmutableMap.copyOf(defaultMetadata);
+        this.profile = profile;
     }
-    
+
+    /**
+     * The engine profile to open the database with. Not part of the config identity, the
+     * database is shared with whatever profile it was first opened with.
+     */
+    public RocksdbProfile getProfile() {
+        return profile;
+    }
+
     /**
      * @return the names of extra columns to create when the database is created
      */
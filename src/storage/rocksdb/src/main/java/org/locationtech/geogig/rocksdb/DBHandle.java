@@ -9,6 +9,7 @@
  */
 package org.locationtech.geogig.rocksdb;
 
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -42,6 +43,14 @@ class DBHandle {
 
     private Map<String, ColumnFamilyHandle> extraColumns;
 
+    /**
+     * Native objects the database was configured with (e.g. column family options and bloom
+     * filters), closed after the database
+     */
+    private final List<AutoCloseable> nativeObjects;
+
+    private @Nullable RocksdbStats stats;
+
     /**
      * A reference to the RocksDB instance. This needs to be closed after it's used to free up the
      * reference.
@@ -67,12 +76,19 @@ class DBHandle {
     }
 
     public DBHandle(final DBConfig config, final org.rocksdb.DBOptions options, final RocksDB db,
-            @Nullable ColumnFamilyHandle metadata, Map<String, ColumnFamilyHandle> extraColumns) {
+            @Nullable ColumnFamilyHandle metadata, Map<String, ColumnFamilyHandle> extraColumns,
+            List<AutoCloseable> nativeObjects) {
         this.config = config;
         this.options = options;
         this.db = db;
         this.metadata = metadata;
         this.extraColumns = extraColumns;
+        this.nativeObjects = nativeObjects;
+        if (config.getProfile().isCollectStatistics()) {
+            this.stats = new RocksdbStats(config.getDbPath(), config.getProfile(),
+                    options.statisticsPtr());
+            this.stats.register();
+        }
     }
 
     public synchronized void close() {
@@ -87,10 +103,15 @@ class DBHandle {
             } catch (InterruptedException e) {
             }
         }
+        if (stats != null) {
+            stats.unregister();
+            stats = null;
+        }
         close(metadata);
         extraColumns.values().forEach((c) -> close(c));
         close(options);
         close(db);
+        nativeObjects.forEach((o) -> close(o));
     }
 
     /**
@@ -104,7 +125,7 @@ class DBHandle {
         return new RocksDBReference();
     }
 
-    private void close(@Nullable AutoCloseable nativeObject) {
+    static void close(@Nullable AutoCloseable nativeObject) {
         if (nativeObject == null) {
             return;
         }
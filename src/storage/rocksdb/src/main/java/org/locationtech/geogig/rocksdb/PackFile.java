@@ -0,0 +1,232 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.rocksdb;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.ObjectId;
+
+/**
+ * An immutable, memory-mapped file holding serialized {@link RevObject}s sorted by id.
+ * <p>
+ * Instances are thread safe, all reads use absolute positions or a duplicate of the mapped
+ * buffer.
+ * <p>
+ * Pack files are written by {@link PackWriter} and read by {@link PackObjectDatabase}. Since
+ * they're never modified once written, a repository's pack files can be safely copied around
+ * (e.g. with {@code rsync}) and shared by any number of readers.
+ * <p>
+ * Layout (all integers are big endian):
+ *
+ * <pre>
+ * <code>
+ * HEADER  = &lt;int&gt; magic ("GGPK"),
+ *           &lt;int&gt; format version,
+ *           &lt;int&gt; number of objects;
+ * FANOUT  = &lt;int[256]&gt; entry N is the number of objects whose id's first byte is &lt;= N;
+ * IDS     = &lt;byte[20][]&gt; object ids, sorted in ObjectId natural order;
+ * INDEX   = &lt;int, int&gt;[] absolute offset and length of each object's data, in the same order
+ *           than IDS;
+ * DATA    = &lt;byte[]&gt;[] serialized objects, as produced by the object database's serializer.
+ * </code>
+ * </pre>
+ *
+ * Lookups go to the fanout table to narrow the search down to the ids sharing the first byte,
+ * and then binary search the ids comparing them straight against the mapped bytes.
+ * <p>
+ * Pack files are limited to 2GB, which is the largest region a single {@link MappedByteBuffer}
+ * can map; {@link PackWriter} rolls over to a new file well before that.
+ */
+class PackFile {
+
+    static final int MAGIC = 0x4747504B;// GGPK
+
+    static final int VERSION = 1;
+
+    static final String EXTENSION = ".pack";
+
+    static final int HEADER_SIZE = 3 * Integer.BYTES;
+
+    static final int FANOUT_SIZE = 256 * Integer.BYTES;
+
+    static final int INDEX_ENTRY_SIZE = 2 * Integer.BYTES;
+
+    private final File file;
+
+    private final ByteBuffer buffer;
+
+    private final int size;
+
+    private final int idsOffset;
+
+    private final int indexOffset;
+
+    private PackFile(File file, ByteBuffer buffer) {
+        this.file = file;
+        this.buffer = buffer;
+        checkArgument(buffer.getInt(0) == MAGIC, "%s is not a pack file", file);
+        checkArgument(buffer.getInt(4) == VERSION, "unsupported pack file version %s: %s",
+                buffer.getInt(4), file);
+        this.size = buffer.getInt(8);
+        this.idsOffset = HEADER_SIZE + FANOUT_SIZE;
+        this.indexOffset = idsOffset + size * ObjectId.NUM_BYTES;
+        checkArgument(indexOffset + size * INDEX_ENTRY_SIZE <= buffer.capacity(),
+                "pack file is truncated: %s", file);
+    }
+
+    /**
+     * Maps the pack file in memory
+     */
+    public static PackFile open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+                FileChannel channel = raf.getChannel()) {
+            final long length = channel.size();
+            checkArgument(length >= HEADER_SIZE + FANOUT_SIZE, "%s is not a pack file", file);
+            checkArgument(length <= Integer.MAX_VALUE, "pack file is too large: %s", file);
+            // the mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, length);
+            return new PackFile(file, buffer);
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return the number of objects in this pack
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(ObjectId id) {
+        return indexOf(id) > -1;
+    }
+
+    /**
+     * @return the index of the object in this pack, or a negative value if it's not present
+     */
+    public int indexOf(final ObjectId id) {
+        final int firstByte = id.byteN(0);
+        int low = firstByte == 0 ? 0 : fanout(firstByte - 1);
+        int high = fanout(firstByte) - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int c = compare(mid, id);
+            if (c < 0) {
+                low = mid + 1;
+            } else if (c > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private int fanout(int firstByte) {
+        return buffer.getInt(HEADER_SIZE + firstByte * Integer.BYTES);
+    }
+
+    /**
+     * Compares the id at the given index against {@code id} without creating an {@link ObjectId}
+     */
+    private int compare(final int index, final ObjectId id) {
+        final int offset = idsOffset + index * ObjectId.NUM_BYTES;
+        for (int i = 0; i < ObjectId.NUM_BYTES; i++) {
+            int c = (buffer.get(offset + i) & 0xFF) - id.byteN(i);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+
+    public ObjectId getId(final int index) {
+        checkIndex(index);
+        byte[] raw = new byte[ObjectId.NUM_BYTES];
+        read(idsOffset + index * ObjectId.NUM_BYTES, raw);
+        return ObjectId.createNoClone(raw);
+    }
+
+    /**
+     * @return a copy of the serialized object at the given index
+     */
+    public byte[] getRaw(final int index) {
+        checkIndex(index);
+        final int entry = indexOffset + index * INDEX_ENTRY_SIZE;
+        final int offset = buffer.getInt(entry);
+        final int length = buffer.getInt(entry + Integer.BYTES);
+        byte[] raw = new byte[length];
+        read(offset, raw);
+        return raw;
+    }
+
+    /**
+     * @return a copy of the serialized object, or {@code null} if it's not in this pack
+     */
+    public @Nullable byte[] getRaw(final ObjectId id) {
+        final int index = indexOf(id);
+        return index < 0 ? null : getRaw(index);
+    }
+
+    /**
+     * @return the ids in this pack that start with the given prefix, in ascending order
+     */
+    public List<ObjectId> lookUp(final byte[] prefix) {
+        checkArgument(prefix.length > 0 && prefix.length <= ObjectId.NUM_BYTES);
+        final int firstByte = prefix[0] & 0xFF;
+        final int from = firstByte == 0 ? 0 : fanout(firstByte - 1);
+        final int to = fanout(firstByte);
+        List<ObjectId> matches = new ArrayList<>(2);
+        for (int i = from; i < to; i++) {
+            final int offset = idsOffset + i * ObjectId.NUM_BYTES;
+            int c = 0;
+            for (int b = 1; b < prefix.length && c == 0; b++) {
+                c = (buffer.get(offset + b) & 0xFF) - (prefix[b] & 0xFF);
+            }
+            if (c == 0) {
+                matches.add(getId(i));
+            } else if (c > 0) {
+                break;
+            }
+        }
+        return matches;
+    }
+
+    private void checkIndex(int index) {
+        checkArgument(index >= 0 && index < size, "index out of bounds: %s", index);
+    }
+
+    private void read(final int offset, final byte[] target) {
+        // duplicate() instead of mark()/reset() to preserve thread safety
+        ByteBuffer buff = this.buffer.duplicate();
+        buff.position(offset);
+        buff.get(target);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[%s, objects: %,d]", getClass().getSimpleName(), file.getName(),
+                size);
+    }
+}
@@ -0,0 +1,497 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.rocksdb;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.locationtech.geogig.rocksdb.PackStorageProvider.FORMAT_NAME;
+import static org.locationtech.geogig.rocksdb.PackStorageProvider.VERSION;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.repository.Hints;
+import org.locationtech.geogig.repository.Platform;
+import org.locationtech.geogig.repository.RepositoryConnectionException;
+import org.locationtech.geogig.rocksdb.DBHandle.RocksDBReference;
+import org.locationtech.geogig.storage.AsyncObjectStoreSupport;
+import org.locationtech.geogig.storage.AutoCloseableIterator;
+import org.locationtech.geogig.storage.BulkOpListener;
+import org.locationtech.geogig.storage.ConfigDatabase;
+import org.locationtech.geogig.storage.ObjectInfo;
+import org.locationtech.geogig.storage.StorageType;
+import org.rocksdb.RocksIterator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.google.inject.Inject;
+
+/**
+ * An {@link RocksdbObjectDatabase} that serves most of its objects out of immutable,
+ * memory-mapped {@link PackFile pack files}, meant for read-mostly repositories (e.g. the ones
+ * published through a server).
+ * <p>
+ * Pack files live in the {@code packs} directory of the repository. Bulk inserts of at least
+ * {@link #KEY_PUTALL_THRESHOLD pack.putAllThreshold} objects, like the ones performed by clone
+ * and fetch, are written straight to new pack files; any other insert goes to the RocksDB
+ * database as a "loose" object, and {@link #repack()} consolidates loose objects and existing
+ * packs into a single pack file.
+ * <p>
+ * Reads query the pack files first and the loose objects database next. Deletes only apply to
+ * loose objects, packed objects are never deleted other than by {@link #repack()}.
+ * <p>
+ * The conflicts database and the blob store are the same as {@link RocksdbObjectDatabase}'s.
+ */
+public class PackObjectDatabase extends RocksdbObjectDatabase {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PackObjectDatabase.class);
+
+    /**
+     * Config key for the minimum number of objects a {@link #putAll(Iterator, BulkOpListener)
+     * putAll} call must receive to be written as a pack file instead of as loose objects
+     */
+    public static final String KEY_PUTALL_THRESHOLD = "pack.putAllThreshold";
+
+    public static final int DEFAULT_PUTALL_THRESHOLD = 10_000;
+
+    private final ConfigDatabase configdb;
+
+    private final File packsDirectory;
+
+    private volatile ImmutableList<PackFile> packs = ImmutableList.of();
+
+    private int putAllThreshold = DEFAULT_PUTALL_THRESHOLD;
+
+    @Inject
+    public PackObjectDatabase(Platform platform, Hints hints, ConfigDatabase configdb) {
+        super(platform, hints, configdb);
+        this.configdb = configdb;
+        this.packsDirectory = new File(new File(super.path).getParentFile(), "packs");
+    }
+
+    @Override
+    public void configure() throws RepositoryConnectionException {
+        StorageType.OBJECT.configure(configdb, FORMAT_NAME, VERSION);
+    }
+
+    @Override
+    public boolean checkConfig() throws RepositoryConnectionException {
+        return StorageType.OBJECT.verify(configdb, FORMAT_NAME, VERSION);
+    }
+
+    /**
+     * Sets the minimum number of objects a {@link #putAll(Iterator, BulkOpListener) putAll} call
+     * must receive to be written as a pack file, overrides the
+     * {@link #KEY_PUTALL_THRESHOLD pack.putAllThreshold} config setting.
+     */
+    public void setPutAllThreshold(int threshold) {
+        checkArgument(threshold > 0, "threshold must be a positive integer: %s", threshold);
+        this.putAllThreshold = threshold;
+    }
+
+    public int getPutAllThreshold() {
+        return putAllThreshold;
+    }
+
+    /**
+     * @return the pack files currently in use
+     */
+    public List<File> getPackFiles() {
+        return Lists.transform(packs, (p) -> p.getFile());
+    }
+
+    @Override
+    public synchronized void open() {
+        if (isOpen()) {
+            return;
+        }
+        Optional<Integer> threshold = configdb.get(KEY_PUTALL_THRESHOLD, Integer.class);
+        if (threshold.isPresent()) {
+            setPutAllThreshold(threshold.get().intValue());
+        }
+        super.open();
+        if (!super.readOnly) {
+            packsDirectory.mkdir();
+        }
+        try {
+            this.packs = loadPacks();
+        } catch (IOException e) {
+            super.close();
+            throw Throwables.propagate(e);
+        }
+    }
+
+    private ImmutableList<PackFile> loadPacks() throws IOException {
+        File[] files = packsDirectory
+                .listFiles((dir, name) -> name.endsWith(PackFile.EXTENSION));
+        if (files == null) {
+            return ImmutableList.of();
+        }
+        Arrays.sort(files);
+        ImmutableList.Builder<PackFile> builder = ImmutableList.builder();
+        for (File file : files) {
+            builder.add(PackFile.open(file));
+        }
+        return builder.build();
+    }
+
+    @Override
+    public synchronized void close() {
+        // mappings are released once the PackFile instances are garbage collected
+        this.packs = ImmutableList.of();
+        super.close();
+    }
+
+    @Nullable
+    private static byte[] getPacked(List<PackFile> packs, ObjectId id) {
+        for (PackFile pack : packs) {
+            byte[] raw = pack.getRaw(id);
+            if (raw != null) {
+                return raw;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isPacked(List<PackFile> packs, ObjectId id) {
+        for (PackFile pack : packs) {
+            if (pack.contains(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean exists(ObjectId id) {
+        checkOpen();
+        checkNotNull(id, "argument id is null");
+        return isPacked(packs, id) || super.exists(id);
+    }
+
+    @Override
+    protected InputStream getRawInternal(ObjectId id, boolean failIfNotFound)
+            throws IllegalArgumentException {
+        checkOpen();
+        byte[] raw = getPacked(packs, id);
+        if (raw != null) {
+            return new ByteArrayInputStream(raw);
+        }
+        return super.getRawInternal(id, failIfNotFound);
+    }
+
+    @Override
+    protected boolean putInternal(ObjectId id, byte[] rawData) {
+        checkWritable();
+        if (isPacked(packs, id)) {
+            return false;
+        }
+        return super.putInternal(id, rawData);
+    }
+
+    @Override
+    protected List<ObjectId> lookUpInternal(byte[] idprefix) {
+        checkOpen();
+        TreeSet<ObjectId> matches = new TreeSet<>(super.lookUpInternal(idprefix));
+        for (PackFile pack : packs) {
+            matches.addAll(pack.lookUp(idprefix));
+        }
+        return new ArrayList<>(matches);
+    }
+
+    @Override
+    public <T extends RevObject> Iterator<T> getAll(final Iterable<ObjectId> ids,
+            final BulkOpListener listener, final Class<T> type) {
+        checkNotNull(ids, "ids is null");
+        checkNotNull(listener, "listener is null");
+        checkNotNull(type, "type is null");
+        checkOpen();
+
+        final List<PackFile> packs = this.packs;
+        if (packs.isEmpty()) {
+            return super.getAll(ids, listener, type);
+        }
+        Iterator<List<ObjectId>> batches = Iterators.partition(ids.iterator(),
+                getGetAllBatchSize());
+        return Iterators.concat(Iterators.transform(batches, (batch) -> {
+            List<T> found = new ArrayList<>(batch.size());
+            List<ObjectId> loose = new ArrayList<>();
+            for (ObjectId id : batch) {
+                byte[] raw = getPacked(packs, id);
+                if (raw == null) {
+                    loose.add(id);
+                } else {
+                    T object = decode(id, raw, type);
+                    if (object == null) {
+                        listener.notFound(id);
+                    } else {
+                        listener.found(id, Integer.valueOf(raw.length));
+                        found.add(object);
+                    }
+                }
+            }
+            if (loose.isEmpty()) {
+                return found.iterator();
+            }
+            return Iterators.concat(found.iterator(), super.getAll(loose, listener, type));
+        }));
+    }
+
+    @Override
+    public <T extends RevObject> AutoCloseableIterator<ObjectInfo<T>> getObjects(
+            Iterator<NodeRef> refs, BulkOpListener listener, Class<T> type) {
+        checkNotNull(refs, "refs is null");
+        checkNotNull(listener, "listener is null");
+        checkNotNull(type, "type is null");
+        checkOpen();
+
+        final List<PackFile> packs = this.packs;
+        if (packs.isEmpty()) {
+            return super.getObjects(refs, listener, type);
+        }
+        Iterator<List<NodeRef>> batches = Iterators.partition(refs, getGetAllBatchSize());
+        Iterator<ObjectInfo<T>> objects = Iterators.concat(Iterators.transform(batches, (batch) -> {
+            List<ObjectInfo<T>> found = new ArrayList<>(batch.size());
+            List<NodeRef> loose = new ArrayList<>();
+            for (NodeRef ref : batch) {
+                final ObjectId id = ref.getObjectId();
+                byte[] raw = getPacked(packs, id);
+                if (raw == null) {
+                    loose.add(ref);
+                } else {
+                    T object = decode(id, raw, type);
+                    if (object == null) {
+                        listener.notFound(id);
+                    } else {
+                        listener.found(id, Integer.valueOf(raw.length));
+                        found.add(ObjectInfo.of(ref, object));
+                    }
+                }
+            }
+            if (loose.isEmpty()) {
+                return found.iterator();
+            }
+            Iterator<ObjectInfo<T>> looseObjects = super.getObjects(loose.iterator(), listener,
+                    type);
+            return Iterators.concat(found.iterator(), looseObjects);
+        }));
+        return AutoCloseableIterator.fromIterator(objects);
+    }
+
+    /**
+     * Overrides {@link RocksdbObjectStore}'s batched implementation, which only reads loose
+     * objects, with the default adapter over {@link #getAll(Iterable, BulkOpListener, Class)}
+     */
+    @Override
+    public <T extends RevObject> CompletableFuture<List<T>> getAllAsync(Iterable<ObjectId> ids,
+            BulkOpListener listener, Class<T> type) {
+        checkOpen();
+        return AsyncObjectStoreSupport.getAllAsync(this, ids, listener, type);
+    }
+
+    /**
+     * Overrides {@link RocksdbObjectStore}'s pipelined implementation, which only writes loose
+     * objects, with the default adapter over {@link #putAll(Iterator, BulkOpListener)}
+     */
+    @Override
+    public CompletableFuture<Void> putAllAsync(Iterator<? extends RevObject> objects,
+            BulkOpListener listener) {
+        checkWritable();
+        return AsyncObjectStoreSupport.putAllAsync(this, objects, listener);
+    }
+
+    @Nullable
+    private <T extends RevObject> T decode(ObjectId id, byte[] raw, Class<T> type) {
+        RevObject object;
+        try {
+            object = serializer().read(id, raw, 0, raw.length);
+        } catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+        return type.isInstance(object) ? type.cast(object) : null;
+    }
+
+    /**
+     * Inserts the objects as loose objects if there are less than
+     * {@link #getPutAllThreshold() putAllThreshold} of them, or writes them to new pack files
+     * otherwise.
+     */
+    @Override
+    public void putAll(Iterator<? extends RevObject> objects, final BulkOpListener listener) {
+        checkNotNull(objects, "objects is null");
+        checkNotNull(listener, "listener is null");
+        checkWritable();
+
+        List<RevObject> head = new ArrayList<>();
+        Iterators.addAll(head, Iterators.limit(objects, putAllThreshold));
+        if (head.size() < putAllThreshold) {
+            super.putAll(head.iterator(), listener);
+            return;
+        }
+        try {
+            writePacks(Iterators.concat(head.iterator(), objects), listener);
+        } catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    private synchronized void writePacks(Iterator<? extends RevObject> objects,
+            BulkOpListener listener) throws IOException {
+
+        final boolean checkExists = !BulkOpListener.NOOP_LISTENER.equals(listener);
+        final ByteArrayOutputStream rawOut = new ByteArrayOutputStream(4096);
+        // listeners are notified of inserts once the pack is readable
+        final Map<ObjectId, Integer> inserted = new HashMap<>();
+
+        PackWriter writer = new PackWriter(packsDirectory);
+        try {
+            while (objects.hasNext()) {
+                RevObject object = objects.next();
+                final ObjectId id = object.getId();
+                if (isPacked(packs, id) || (checkExists && super.exists(id))) {
+                    listener.found(id, null);
+                    continue;
+                }
+                rawOut.reset();
+                writeObject(object, rawOut);
+                byte[] raw = rawOut.toByteArray();
+                if (writer.add(id, raw)) {
+                    if (checkExists) {
+                        inserted.put(id, Integer.valueOf(raw.length));
+                    }
+                } else {
+                    listener.found(id, null);
+                }
+                if (writer.isFull()) {
+                    addPack(writer.finish());
+                    writer.close();
+                    writer = new PackWriter(packsDirectory);
+                    notifyInserted(inserted, listener);
+                }
+            }
+            addPack(writer.finish());
+            notifyInserted(inserted, listener);
+        } finally {
+            writer.close();
+        }
+    }
+
+    private void notifyInserted(Map<ObjectId, Integer> inserted, BulkOpListener listener) {
+        for (Entry<ObjectId, Integer> entry : inserted.entrySet()) {
+            listener.inserted(entry.getKey(), entry.getValue());
+        }
+        inserted.clear();
+    }
+
+    private void addPack(@Nullable File packFile) throws IOException {
+        if (packFile == null) {
+            return;
+        }
+        PackFile pack = PackFile.open(packFile);
+        LOG.debug("Created {}", pack);
+        List<PackFile> current = this.packs;
+        ImmutableList.Builder<PackFile> builder = ImmutableList.builder();
+        for (PackFile p : current) {
+            // a pack with the very same contents replaced the existing file
+            if (!p.getFile().equals(packFile)) {
+                builder.add(p);
+            }
+        }
+        this.packs = builder.add(pack).build();
+    }
+
+    /**
+     * Consolidates all loose objects and pack files into as few pack files as possible, then
+     * deletes the loose objects and the old pack files.
+     * <p>
+     * Unlike {@code git gc}, all objects are packed regardless of whether they're reachable from
+     * any ref.
+     */
+    public synchronized void repack() {
+        checkWritable();
+        final List<PackFile> oldPacks = this.packs;
+        final List<File> newPacks = new ArrayList<>();
+        final List<ObjectId> looseIds = new ArrayList<>();
+        try {
+            PackWriter writer = new PackWriter(packsDirectory);
+            try {
+                try (RocksDBReference dbRef = dbhandle.getReference();
+                        RocksIterator it = dbRef.db().newIterator()) {
+                    for (it.seekToFirst(); it.isValid(); it.next()) {
+                        ObjectId id = ObjectId.createNoClone(it.key());
+                        looseIds.add(id);
+                        writer = add(writer, id, it.value(), newPacks);
+                    }
+                }
+                for (PackFile pack : oldPacks) {
+                    for (int i = 0; i < pack.size(); i++) {
+                        writer = add(writer, pack.getId(i), pack.getRaw(i), newPacks);
+                    }
+                }
+                File last = writer.finish();
+                if (last != null) {
+                    newPacks.add(last);
+                }
+            } finally {
+                writer.close();
+            }
+            ImmutableList.Builder<PackFile> builder = ImmutableList.builder();
+            for (File file : newPacks) {
+                builder.add(PackFile.open(file));
+            }
+            this.packs = builder.build();
+        } catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+
+        super.deleteAll(looseIds.iterator(), BulkOpListener.NOOP_LISTENER);
+        for (PackFile old : oldPacks) {
+            File file = old.getFile();
+            if (!newPacks.contains(file) && !file.delete()) {
+                LOG.warn("Unable to delete pack file {}", file);
+                file.deleteOnExit();
+            }
+        }
+        LOG.debug("Repacked {} loose objects and {} pack files into {}", looseIds.size(),
+                oldPacks.size(), newPacks);
+    }
+
+    private PackWriter add(PackWriter writer, ObjectId id, byte[] raw, List<File> newPacks)
+            throws IOException {
+        writer.add(id, raw);
+        if (writer.isFull()) {
+            newPacks.add(writer.finish());
+            writer.close();
+            writer = new PackWriter(packsDirectory);
+        }
+        return writer;
+    }
+}
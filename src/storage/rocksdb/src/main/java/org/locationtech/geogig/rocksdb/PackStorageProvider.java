@@ -0,0 +1,72 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.rocksdb;
+
+import org.locationtech.geogig.storage.StorageProvider;
+import org.locationtech.geogig.storage.VersionedFormat;
+
+/**
+ * Storage provider for repositories whose objects are stored in memory-mapped pack files (see
+ * {@link PackObjectDatabase}), to be selected with the {@code storage.objects=pack} and
+ * {@code pack.version=1} config settings.
+ * <p>
+ * The graph, index, and refs databases are the same as {@link RocksdbStorageProvider}'s.
+ */
+public class PackStorageProvider extends StorageProvider {
+
+    /**
+     * Format name used for configuration.
+     */
+    public static final String FORMAT_NAME = "pack";
+
+    /**
+     * Implementation version.
+     */
+    public static final String VERSION = "1";
+
+    static final VersionedFormat OBJECTS = new VersionedFormat(FORMAT_NAME, VERSION,
+            PackObjectDatabase.class);
+
+    @Override
+    public String getName() {
+        return FORMAT_NAME;
+    }
+
+    @Override
+    public String getVersion() {
+        return VERSION;
+    }
+
+    @Override
+    public String getDescription() {
+        return "Memory-mapped pack files object store";
+    }
+
+    @Override
+    public VersionedFormat getObjectDatabaseFormat() {
+        return OBJECTS;
+    }
+
+    @Override
+    public VersionedFormat getGraphDatabaseFormat() {
+        return RocksdbStorageProvider.GRAPH;
+    }
+
+    @Override
+    public VersionedFormat getRefsDatabaseFormat() {
+        return RocksdbStorageProvider.REFS;
+    }
+
+    @Override
+    public VersionedFormat getIndexDatabaseFormat() {
+        return RocksdbStorageProvider.INDEX;
+    }
+
+}
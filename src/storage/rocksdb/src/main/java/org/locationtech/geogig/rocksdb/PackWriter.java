@@ -0,0 +1,199 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.rocksdb;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.locationtech.geogig.model.ObjectId;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * Writes a {@link PackFile}.
+ * <p>
+ * Objects can be added in any order. Their data is spooled to a temporary file in the target
+ * directory as it's added, and only their ids, offsets and lengths are kept in memory until
+ * {@link #finish()} sorts them and writes the final pack file, named after the hash of its
+ * contents so that two packs holding the same objects end up in the same file.
+ * <p>
+ * A pack is considered {@link #isFull() full} once its data section reaches
+ * {@link #MAX_DATA_SIZE} or it holds {@link #MAX_OBJECTS} objects, at which point callers are
+ * expected to {@link #finish()} it and start a new one, keeping pack files addressable through a
+ * single memory mapping.
+ */
+class PackWriter implements AutoCloseable {
+
+    static final long MAX_DATA_SIZE = 1024L * 1024 * 1024;
+
+    static final int MAX_OBJECTS = 10_000_000;
+
+    private final File directory;
+
+    private final File dataFile;
+
+    private DataOutputStream data;
+
+    private long dataSize;
+
+    private final Set<ObjectId> ids = new HashSet<>();
+
+    private final List<ObjectId> idList = new ArrayList<>();
+
+    private final List<int[]> entries = new ArrayList<>();
+
+    private boolean finished;
+
+    public PackWriter(File directory) throws IOException {
+        checkArgument(directory.isDirectory(), "%s is not a directory", directory);
+        this.directory = directory;
+        this.dataFile = File.createTempFile("pack-", ".data", directory);
+        OutputStream out = new FileOutputStream(dataFile);
+        this.data = new DataOutputStream(new BufferedOutputStream(out, 64 * 1024));
+    }
+
+    /**
+     * @return {@code false} if the object was already added to this pack, {@code true} otherwise
+     */
+    public boolean add(ObjectId id, byte[] raw) throws IOException {
+        checkState(!finished, "pack writer is already finished");
+        checkState(!isFull(), "pack is full");
+        if (!ids.add(id)) {
+            return false;
+        }
+        data.write(raw);
+        idList.add(id);
+        entries.add(new int[] { (int) dataSize, raw.length });
+        dataSize += raw.length;
+        return true;
+    }
+
+    public boolean isFull() {
+        return dataSize >= MAX_DATA_SIZE || idList.size() >= MAX_OBJECTS;
+    }
+
+    public boolean isEmpty() {
+        return idList.isEmpty();
+    }
+
+    public int size() {
+        return idList.size();
+    }
+
+    /**
+     * Writes the pack file and returns it, or {@code null} if no objects were added.
+     */
+    public File finish() throws IOException {
+        checkState(!finished, "pack writer is already finished");
+        finished = true;
+        data.close();
+        data = null;
+        final int size = idList.size();
+        if (size == 0) {
+            return null;
+        }
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = Integer.valueOf(i);
+        }
+        Arrays.sort(order, (i1, i2) -> idList.get(i1).compareTo(idList.get(i2)));
+
+        final int[] fanout = new int[256];
+        final Hasher hasher = Hashing.sha1().newHasher();
+        for (Integer i : order) {
+            ObjectId id = idList.get(i);
+            fanout[id.byteN(0)]++;
+            hasher.putBytes(id.getRawValue());
+        }
+        for (int i = 1; i < 256; i++) {
+            fanout[i] += fanout[i - 1];
+        }
+
+        final long dataOffset = PackFile.HEADER_SIZE + PackFile.FANOUT_SIZE
+                + (long) size * (ObjectId.NUM_BYTES + PackFile.INDEX_ENTRY_SIZE);
+        checkState(dataOffset + dataSize <= Integer.MAX_VALUE, "pack file too large");
+
+        final File tmpFile = File.createTempFile("pack-", ".tmp", directory);
+        try {
+            try (FileOutputStream fout = new FileOutputStream(tmpFile);
+                    DataOutputStream out = new DataOutputStream(
+                            new BufferedOutputStream(fout, 64 * 1024))) {
+                out.writeInt(PackFile.MAGIC);
+                out.writeInt(PackFile.VERSION);
+                out.writeInt(size);
+                for (int count : fanout) {
+                    out.writeInt(count);
+                }
+                byte[] idbuff = new byte[ObjectId.NUM_BYTES];
+                for (Integer i : order) {
+                    idList.get(i).getRawValue(idbuff);
+                    out.write(idbuff);
+                }
+                for (Integer i : order) {
+                    int[] entry = entries.get(i);
+                    out.writeInt((int) dataOffset + entry[0]);
+                    out.writeInt(entry[1]);
+                }
+                out.flush();
+                try (FileChannel in = FileChannel.open(dataFile.toPath(),
+                        StandardOpenOption.READ)) {
+                    FileChannel target = fout.getChannel();
+                    long transferred = 0;
+                    while (transferred < dataSize) {
+                        transferred += in.transferTo(transferred, dataSize - transferred, target);
+                    }
+                }
+                fout.getFD().sync();
+            }
+            final String name = "pack-" + hasher.hash().toString() + PackFile.EXTENSION;
+            final File packFile = new File(directory, name);
+            Files.move(tmpFile.toPath(), packFile.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+            return packFile;
+        } finally {
+            tmpFile.delete();
+            dataFile.delete();
+        }
+    }
+
+    /**
+     * Discards the temporary data, call after {@link #finish()} or to abort writing the pack
+     */
+    @Override
+    public void close() {
+        if (data != null) {
+            try {
+                data.close();
+            } catch (IOException e) {
+                // nothing to do
+            }
+            data = null;
+        }
+        finished = true;
+        dataFile.delete();
+    }
+}
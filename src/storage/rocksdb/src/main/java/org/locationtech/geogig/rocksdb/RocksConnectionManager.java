@@ -20,7 +20,6 @@ import org.locationtech.geogig.storage.impl.ConnectionManager;
 import org.rocksdb.ColumnFamilyDescriptor;
 import org.rocksdb.ColumnFamilyHandle;
 import org.rocksdb.ColumnFamilyOptions;
-import org.rocksdb.CompressionType;
 import org.rocksdb.Options;
 import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
@@ -59,6 +58,7 @@ class RocksConnectionManager extends ConnectionManager<DBConfig, DBHandle> {
         final String os = System.getProperty("os.name");
         final boolean isWindows = os.toLowerCase().contains("windows");
         final boolean safeToUseMMappedFiles = !isWindows;
+        final RocksdbProfile profile = dbconfig.getProfile();
 
         org.rocksdb.DBOptions dbOptions = new org.rocksdb.DBOptions();
         dbOptions.setCreateIfMissing(true)//
@@ -66,8 +66,9 @@ class RocksConnectionManager extends ConnectionManager<DBConfig, DBHandle> {
                 .setAllowMmapReads(safeToUseMMappedFiles)//
                 .setAllowMmapWrites(safeToUseMMappedFiles)//
                 .setBytesPerSync(64 * 1024 * 1024);
+        profile.configure(dbOptions);
 
-        RocksDB db;
+        RocksDB db = null;
         final String path = dbconfig.getDbPath();
         final List<String> colFamilyNames;
         try {
@@ -85,88 +86,113 @@ class RocksConnectionManager extends ConnectionManager<DBConfig, DBHandle> {
         @Nullable
         ColumnFamilyHandle metadata = null;
         Map<String, ColumnFamilyHandle> extraColumns = new HashMap<>();
+        // column family options and the native objects they use, closed with the db
+        final List<AutoCloseable> nativeObjects = new ArrayList<>();
+        // all the column family handles obtained from the db, closed before it on failure
+        final List<ColumnFamilyHandle> colFamilyHandles = new ArrayList<>();
+        DBHandle dbHandle = null;
         try {
             List<ColumnFamilyDescriptor> colDescriptors = new ArrayList<>();
             for (String name : colFamilyNames) {
                 byte[] colFamilyName = name.getBytes(Charsets.UTF_8);
-                ColumnFamilyOptions colFamilyOptions = newColFamilyOptions();
+                ColumnFamilyOptions colFamilyOptions = newColFamilyOptions(name, profile,
+                        isWindows, nativeObjects);
                 colDescriptors.add(new ColumnFamilyDescriptor(colFamilyName, colFamilyOptions));
             }
 
-            DBHandle dbHandle;
             if (readOnly) {
-                List<ColumnFamilyHandle> colFamiliesTarget = new ArrayList<>();
                 Preconditions.checkState(dbExists, "database does not exist: %s", path);
-                db = RocksDB.openReadOnly(dbOptions, path, colDescriptors, colFamiliesTarget);
+                db = RocksDB.openReadOnly(dbOptions, path, colDescriptors, colFamilyHandles);
                 if (metadataExists) {
-                    metadata = colFamiliesTarget.get(colFamilyNames.indexOf("metadata"));
+                    metadata = colFamilyHandles.get(colFamilyNames.indexOf("metadata"));
                 }
                 for (int i = 0; i < colDescriptors.size(); i++) {
                     String name = colFamilyNames.get(i);
                     if (!"metadata".equals(name)) {
-                        ColumnFamilyHandle handle = colFamiliesTarget.get(i);
+                        ColumnFamilyHandle handle = colFamilyHandles.get(i);
                         extraColumns.put(name, handle);
                     }
                 }
-                dbHandle = new DBHandle(dbconfig, dbOptions, db, metadata, extraColumns);
+                dbHandle = new DBHandle(dbconfig, dbOptions, db, metadata, extraColumns,
+                        nativeObjects);
             } else {
                 if (!dbExists) {
-                    colDescriptors.add(newColDescriptor("default"));
+                    colDescriptors.add(
+                            newColDescriptor("default", profile, isWindows, nativeObjects));
                     for (String name : dbconfig.getColumnFamilyNames()) {
                         if (colFamilyNames.indexOf(name) > -1) {
-                            colDescriptors.add(newColDescriptor(name));
+                            colDescriptors.add(
+                                    newColDescriptor(name, profile, isWindows, nativeObjects));
                         }
                     }
                 }
 
-                List<ColumnFamilyHandle> colFamiliesTarget = new ArrayList<>();
-                db = RocksDB.open(dbOptions, path, colDescriptors, colFamiliesTarget);
+                db = RocksDB.open(dbOptions, path, colDescriptors, colFamilyHandles);
                 if (metadataExists) {
-                    metadata = colFamiliesTarget.get(colFamilyNames.indexOf("metadata"));
+                    metadata = colFamilyHandles.get(colFamilyNames.indexOf("metadata"));
                 } else {
-                    ColumnFamilyDescriptor mdd = newColDescriptor("metadata");
+                    ColumnFamilyDescriptor mdd = newColDescriptor("metadata", profile, isWindows,
+                            nativeObjects);
                     metadata = db.createColumnFamily(mdd);
+                    colFamilyHandles.add(metadata);
                 }
                 for (String name : dbconfig.getColumnFamilyNames()) {
                     ColumnFamilyDescriptor colDescriptor;
                     ColumnFamilyHandle colHandle;
                     if (colFamilyNames.indexOf(name) == -1) {
-                        colDescriptor = newColDescriptor(name);
+                        colDescriptor = newColDescriptor(name, profile, isWindows,
+                                nativeObjects);
                         colHandle = db.createColumnFamily(colDescriptor);
+                        colFamilyHandles.add(colHandle);
                     } else {
                         int colIndex = colFamilyNames.indexOf(name);
-                        colHandle = colFamiliesTarget.get(colIndex);
+                        colHandle = colFamilyHandles.get(colIndex);
                     }
                     extraColumns.put(name, colHandle);
                 }
 
-                dbHandle = new DBHandle(dbconfig, dbOptions, db, metadata, extraColumns);
+                dbHandle = new DBHandle(dbconfig, dbOptions, db, metadata, extraColumns,
+                        nativeObjects);
 
                 // save default metadata
                 if (!dbExists) {
                     ImmutableMap<String, String> defaultMetadata = dbconfig.getDefaultMetadata();
-                    defaultMetadata.forEach((k, v) -> dbHandle.setMetadata(k, v));
+                    for (Map.Entry<String, String> md : defaultMetadata.entrySet()) {
+                        dbHandle.setMetadata(md.getKey(), md.getValue());
+                    }
                 }
             }
             return dbHandle;
         } catch (Exception e) {
+            // close the column family handles and the db before the native objects they use, so
+            // the db LOCK is released even if opening it succeeded and a later step failed
+            colFamilyHandles.forEach((h) -> DBHandle.close(h));
+            if (dbHandle == null) {
+                DBHandle.close(db);
+                DBHandle.close(dbOptions);
+                nativeObjects.forEach((o) -> DBHandle.close(o));
+            } else {
+                dbHandle.close();
+            }
             throw Throwables.propagate(e);
         }
 
     }
 
-    private ColumnFamilyDescriptor newColDescriptor(String name) {
-        ColumnFamilyOptions options = newColFamilyOptions();
+    private ColumnFamilyDescriptor newColDescriptor(String name, RocksdbProfile profile,
+            boolean isWindows, List<AutoCloseable> nativeObjects) {
+        ColumnFamilyOptions options = newColFamilyOptions(name, profile, isWindows,
+                nativeObjects);
         ColumnFamilyDescriptor descriptor = new ColumnFamilyDescriptor(
                 name.getBytes(Charsets.UTF_8), options);
         return descriptor;
     }
 
-    private ColumnFamilyOptions newColFamilyOptions() {
+    private ColumnFamilyOptions newColFamilyOptions(String name, RocksdbProfile profile,
+            boolean isWindows, List<AutoCloseable> nativeObjects) {
         ColumnFamilyOptions colFamilyOptions = new ColumnFamilyOptions();
-        // cause the Windows jar doesn't come with
-        // snappy and hence fails
-        colFamilyOptions.setCompressionType(CompressionType.NO_COMPRESSION);
+        nativeObjects.add(colFamilyOptions);
+        profile.configure(colFamilyOptions, name, isWindows, nativeObjects);
         return colFamilyOptions;
     }
 
@@ -19,6 +19,7 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -33,10 +34,12 @@ import org.locationtech.geogig.repository.Hints;
 import org.locationtech.geogig.repository.Platform;
 import org.locationtech.geogig.repository.RepositoryConnectionException;
 import org.locationtech.geogig.rocksdb.DBHandle.RocksDBReference;
+import org.locationtech.geogig.storage.CommitGraph;
 import org.locationtech.geogig.storage.ConfigDatabase;
 import org.locationtech.geogig.storage.GraphDatabase;
 import org.locationtech.geogig.storage.StorageType;
 import org.locationtech.geogig.storage.datastream.Varint;
+import org.locationtech.geogig.storage.impl.CommitGraphFile;
 import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
 import org.rocksdb.RocksIterator;
@@ -48,6 +51,7 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
@@ -69,6 +73,8 @@ public class RocksdbGraphDatabase implements GraphDatabase {
 
     private DBHandle dbhandle;
 
+    private CommitGraphFile commitGraph;
+
     @Inject
     public RocksdbGraphDatabase(ConfigDatabase configdb, Platform platform, Hints hints) {
         this.configdb = configdb;
@@ -109,8 +115,11 @@ public class RocksdbGraphDatabase implements GraphDatabase {
             return;
         }
         String dbpath = dbdir.getAbsolutePath();
-        DBConfig opts = new DBConfig(dbpath, readOnly);
+        RocksdbProfile profile = RocksdbProfile.resolve(configdb);
+        DBConfig opts = new DBConfig(dbpath, readOnly, ImmutableMap.of(),
+                Collections.emptySet(), profile);
         this.dbhandle = RocksConnectionManager.INSTANCE.acquire(opts);
+        this.commitGraph = CommitGraphFile.open(commitGraphFile());
         this.open = true;
     }
 
@@ -122,6 +131,20 @@ public class RocksdbGraphDatabase implements GraphDatabase {
         this.open = false;
         RocksConnectionManager.INSTANCE.release(dbhandle);
         this.dbhandle = null;
+        this.commitGraph.close();
+        this.commitGraph = null;
+    }
+
+    /**
+     * @return the commit graph file, stored next to the database directory
+     */
+    private File commitGraphFile() {
+        return new File(dbdir.getAbsoluteFile().getParentFile(), "commit-graph");
+    }
+
+    @Override
+    public Optional<CommitGraph> getCommitGraph() {
+        return Optional.fromNullable(commitGraph);
     }
 
     private static final byte[] NODATA = new byte[0];
@@ -157,6 +180,11 @@ public class RocksdbGraphDatabase implements GraphDatabase {
 
     @Override
     public boolean put(ObjectId commitId, ImmutableList<ObjectId> parentIds) {
+        return put(commitId, parentIds, 0L);
+    }
+
+    @Override
+    public boolean put(ObjectId commitId, ImmutableList<ObjectId> parentIds, long timestamp) {
         @Nullable
         NodeData node = getNodeInternal(commitId, false);
 
@@ -191,6 +219,7 @@ public class RocksdbGraphDatabase implements GraphDatabase {
         } catch (Exception e) {
             throw Throwables.propagate(e);
         }
+        commitGraph.add(commitId, parentIds, timestamp);
         return updated;
     }
 
@@ -278,6 +307,7 @@ public class RocksdbGraphDatabase implements GraphDatabase {
                 throw propagate(e);
             }
         }
+        commitGraph.clear();
     }
 
     @Nullable
@@ -83,6 +83,7 @@ public class RocksdbIndexDatabase extends RocksdbObjectStore implements IndexDat
         if (isOpen()) {
             return;
         }
+        super.setProfile(RocksdbProfile.resolve(configdb));
         super.open(Sets.newHashSet("indexMetadata", "indexMappings"));
         this.indexMetadataColumn = super.dbhandle.getColumnFamily("indexMetadata");
         this.indexMappingsColumn = super.dbhandle.getColumnFamily("indexMappings");
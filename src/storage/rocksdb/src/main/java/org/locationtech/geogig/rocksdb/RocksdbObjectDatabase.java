@@ -21,10 +21,18 @@ import org.locationtech.geogig.storage.ConfigDatabase;
 import org.locationtech.geogig.storage.ObjectDatabase;
 import org.locationtech.geogig.storage.StorageType;
 
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
 import com.google.inject.Inject;
 
 public class RocksdbObjectDatabase extends RocksdbObjectStore implements ObjectDatabase {
 
+    /**
+     * Config key for the number of objects fetched per multiGet call on bulk reads, a value of
+     * {@code 1} makes bulk reads query one key at a time
+     */
+    public static final String KEY_GETALL_BATCH_SIZE = "rocksdb.getAllBatchSize";
+
     private RocksdbConflictsDatabase conflicts;
 
     private RocksdbBlobStore blobs;
@@ -67,6 +75,15 @@ public class RocksdbObjectDatabase extends RocksdbObjectStore implements ObjectD
         if (isOpen()) {
             return;
         }
+        Optional<Integer> getAllBatchSize = configdb.get(KEY_GETALL_BATCH_SIZE, Integer.class);
+        if (getAllBatchSize.isPresent()) {
+            Integer batchSize = getAllBatchSize.get();
+            Preconditions.checkState(batchSize.intValue() > 0,
+                    "rocksdb.getAllBatchSize must be a positive integer: %s. Check your config.",
+                    batchSize);
+            super.setGetAllBatchSize(batchSize.intValue());
+        }
+        super.setProfile(RocksdbProfile.resolve(configdb));
         super.open();
         File basedir = new File(super.path).getParentFile();
         File conflictsDir = new File(basedir, "conflicts");
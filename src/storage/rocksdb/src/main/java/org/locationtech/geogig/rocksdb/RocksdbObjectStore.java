@@ -15,6 +15,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.util.ArrayList;
@@ -26,6 +27,12 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.model.NodeRef;
@@ -35,6 +42,7 @@ import org.locationtech.geogig.plumbing.ResolveGeogigURI;
 import org.locationtech.geogig.repository.Hints;
 import org.locationtech.geogig.repository.Platform;
 import org.locationtech.geogig.rocksdb.DBHandle.RocksDBReference;
+import org.locationtech.geogig.storage.AsyncObjectStoreSupport;
 import org.locationtech.geogig.storage.AutoCloseableIterator;
 import org.locationtech.geogig.storage.BulkOpListener;
 import org.locationtech.geogig.storage.ObjectInfo;
@@ -61,6 +69,33 @@ import com.google.inject.Inject;
 
 public class RocksdbObjectStore extends AbstractObjectStore implements ObjectStore {
 
+    /**
+     * Default number of keys fetched per {@link RocksDB#multiGet(ReadOptions, List) multiGet} call
+     * by {@link #getAll(Iterable, BulkOpListener, Class) getAll} and
+     * {@link #getObjects(Iterator, BulkOpListener, Class) getObjects}
+     */
+    public static final int DEFAULT_GETALL_BATCH_SIZE = 1_000;
+
+    /**
+     * Minimum number of objects per deserialization task, smaller batches are decoded on the
+     * calling thread
+     */
+    private static final int MIN_DECODE_PARTITION_SIZE = 100;
+
+    private static final ForkJoinPool DECODE_POOL;
+
+    static {
+        ForkJoinPool.ForkJoinWorkerThreadFactory threadFactoryShared = pool -> {
+            final ForkJoinWorkerThread worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory
+                    .newThread(pool);
+            worker.setName("RocksdbObjectStore-decoder-" + worker.getPoolIndex());
+            worker.setDaemon(true);
+            return worker;
+        };
+        int parallelism = Math.min(4, Math.max(2, Runtime.getRuntime().availableProcessors()));
+        DECODE_POOL = new ForkJoinPool(parallelism, threadFactoryShared, null, false);
+    }
+
     private volatile boolean open;
 
     protected final String path;
@@ -71,6 +106,10 @@ public class RocksdbObjectStore extends AbstractObjectStore implements ObjectSto
 
     private ReadOptions bulkReadOptions;
 
+    private int getAllBatchSize = DEFAULT_GETALL_BATCH_SIZE;
+
+    private RocksdbProfile profile = RocksdbProfile.DEFAULT;
+
     @Inject
     public RocksdbObjectStore(Platform platform, @Nullable Hints hints) {
         this(platform, hints, "objects.rocksdb");
@@ -98,7 +137,8 @@ public class RocksdbObjectStore extends AbstractObjectStore implements ObjectSto
         Map<String, String> defaultMetadata = ImmutableMap.of("version",
                 RocksdbStorageProvider.VERSION, "serializer", "proxy");
 
-        DBConfig address = new DBConfig(path, readOnly, defaultMetadata, columnFamilyNames);
+        DBConfig address = new DBConfig(path, readOnly, defaultMetadata, columnFamilyNames,
+                profile);
         this.dbhandle = RocksConnectionManager.INSTANCE.acquire(address);
 
         this.bulkReadOptions = new ReadOptions();
@@ -139,6 +179,33 @@ public class RocksdbObjectStore extends AbstractObjectStore implements ObjectSto
         return open;
     }
 
+    /**
+     * Sets the number of objects to query per {@link RocksDB#multiGet(ReadOptions, List)
+     * multiGet} call on bulk reads. A value of {@code 1} disables batching and makes bulk reads
+     * look up one key at a time.
+     */
+    public void setGetAllBatchSize(int batchSize) {
+        checkArgument(batchSize > 0, "batch size must be a positive integer: %s", batchSize);
+        this.getAllBatchSize = batchSize;
+    }
+
+    public int getGetAllBatchSize() {
+        return getAllBatchSize;
+    }
+
+    /**
+     * Sets the {@link RocksdbProfile engine profile} to open the database with, must be called
+     * before {@link #open()}.
+     */
+    public void setProfile(RocksdbProfile profile) {
+        checkNotNull(profile);
+        this.profile = profile;
+    }
+
+    public RocksdbProfile getProfile() {
+        return profile;
+    }
+
     protected void checkOpen() {
         Preconditions.checkState(isOpen(), "Database is closed");
     }
@@ -240,6 +307,11 @@ public class RocksdbObjectStore extends AbstractObjectStore implements ObjectSto
         checkNotNull(type, "type is null");
         checkOpen();
 
+        if (getAllBatchSize > 1) {
+            return new MultiGetIterator<ObjectId, T, T>(ids.iterator(), listener, type,
+                    getAllBatchSize, (id) -> id, (id, obj) -> obj);
+        }
+
         return new AbstractIterator<T>() {
 
             private Iterator<ObjectId> oids = ids.iterator();
@@ -405,6 +477,13 @@ public class RocksdbObjectStore extends AbstractObjectStore implements ObjectSto
         checkNotNull(type, "type is null");
         checkOpen();
 
+        if (getAllBatchSize > 1) {
+            Iterator<ObjectInfo<T>> objects = new MultiGetIterator<NodeRef, T, ObjectInfo<T>>(refs,
+                    listener, type, getAllBatchSize, (ref) -> ref.getObjectId(),
+                    (ref, obj) -> ObjectInfo.of(ref, obj));
+            return AutoCloseableIterator.fromIterator(objects);
+        }
+
         return new AutoCloseableIterator<ObjectInfo<T>>() {
 
             private Iterator<NodeRef> noderefs = refs;
@@ -486,4 +565,298 @@ public class RocksdbObjectStore extends AbstractObjectStore implements ObjectSto
             }
         };
     }
+
+    /**
+     * Fetches the serialized objects with a single {@link RocksDB#multiGet(ReadOptions, List)
+     * multiGet} call
+     * 
+     * @return the serialized objects in the same order as {@code ids}, with {@code null} entries
+     *         for the ones not found
+     */
+    private byte[][] multiGet(final ObjectId[] ids) {
+        checkOpen();
+        final int size = ids.length;
+        final List<byte[]> keys = new ArrayList<>(size);
+        for (ObjectId id : ids) {
+            keys.add(id.getRawValue());
+        }
+        final Map<byte[], byte[]> values;
+        try (RocksDBReference dbRef = dbhandle.getReference()) {
+            values = dbRef.db().multiGet(bulkReadOptions, keys);
+        } catch (RocksDBException e) {
+            throw Throwables.propagate(e);
+        }
+        final byte[][] raw = new byte[size][];
+        for (int i = 0; i < size; i++) {
+            raw[i] = values.get(keys.get(i));
+        }
+        return raw;
+    }
+
+    private void decodeRange(ObjectId[] ids, byte[][] raw, RevObject[] target, int from, int to) {
+        final ObjectSerializingFactory serializer = serializer();
+        for (int i = from; i < to; i++) {
+            byte[] bytes = raw[i];
+            if (bytes != null) {
+                try {
+                    target[i] = serializer.read(ids[i], bytes, 0, bytes.length);
+                } catch (IOException e) {
+                    throw Throwables.propagate(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Fetches each batch of {@link #getGetAllBatchSize() getAllBatchSize} objects with a single
+     * {@link RocksDB#multiGet(ReadOptions, List) multiGet} call and decodes it as an independent
+     * task on the decoder pool, so that several batches are read and decoded at the same time.
+     * <p>
+     * The {@code listener} is notified once all the batches are done, from a single thread.
+     */
+    @Override
+    public <T extends RevObject> CompletableFuture<List<T>> getAllAsync(Iterable<ObjectId> ids,
+            BulkOpListener listener, Class<T> type) {
+        checkNotNull(ids, "ids is null");
+        checkNotNull(listener, "listener is null");
+        checkNotNull(type, "type is null");
+        checkOpen();
+
+        final List<CompletableFuture<FetchedBatch>> batches = new ArrayList<>();
+        final Iterator<List<ObjectId>> partitions = Iterators.partition(ids.iterator(),
+                getAllBatchSize);
+        while (partitions.hasNext()) {
+            final List<ObjectId> partition = partitions.next();
+            final ObjectId[] batchIds = partition.toArray(new ObjectId[partition.size()]);
+            batches.add(CompletableFuture.supplyAsync(() -> {
+                byte[][] raw = multiGet(batchIds);
+                RevObject[] decoded = new RevObject[batchIds.length];
+                decodeRange(batchIds, raw, decoded, 0, batchIds.length);
+                return new FetchedBatch(batchIds, raw, decoded);
+            }, DECODE_POOL));
+        }
+        CompletableFuture<?>[] all = batches.toArray(new CompletableFuture<?>[batches.size()]);
+        return CompletableFuture.allOf(all).thenApply((v) -> {
+            List<T> result = new ArrayList<>();
+            for (CompletableFuture<FetchedBatch> future : batches) {
+                FetchedBatch batch = future.join();
+                for (int i = 0; i < batch.ids.length; i++) {
+                    final ObjectId id = batch.ids[i];
+                    final RevObject object = batch.decoded[i];
+                    if (object != null && type.isInstance(object)) {
+                        listener.found(id, Integer.valueOf(batch.raw[i].length));
+                        result.add(type.cast(object));
+                    } else {
+                        listener.notFound(id);
+                    }
+                }
+            }
+            return result;
+        });
+    }
+
+    private static class FetchedBatch {
+
+        final ObjectId[] ids;
+
+        final byte[][] raw;
+
+        final RevObject[] decoded;
+
+        FetchedBatch(ObjectId[] ids, byte[][] raw, RevObject[] decoded) {
+            this.ids = ids;
+            this.raw = raw;
+            this.decoded = decoded;
+        }
+    }
+
+    /**
+     * Consumes and serializes the objects in batches of {@code 10,000} on the
+     * {@link AsyncObjectStoreSupport#executor() async executor}, overlapping the serialization of
+     * each batch with the synced write of the previous one.
+     * <p>
+     * The {@code listener} is notified from a single thread.
+     */
+    @Override
+    public CompletableFuture<Void> putAllAsync(Iterator<? extends RevObject> objects,
+            BulkOpListener listener) {
+        checkNotNull(objects, "objects is null");
+        checkNotNull(listener, "listener is null");
+        checkWritable();
+        return CompletableFuture.runAsync(() -> putAllPipelined(objects, listener),
+                AsyncObjectStoreSupport.executor());
+    }
+
+    private void putAllPipelined(Iterator<? extends RevObject> objects,
+            BulkOpListener listener) {
+
+        final boolean checkExists = !BulkOpListener.NOOP_LISTENER.equals(listener);
+        final ByteArrayOutputStream rawOut = new ByteArrayOutputStream(4096);
+        final byte[] keybuff = new byte[ObjectId.NUM_BYTES];
+
+        CompletableFuture<Map<ObjectId, Integer>> write = CompletableFuture
+                .completedFuture(Collections.emptyMap());
+        // objects of the batch being written are not visible to exists() until it's done
+        Map<ObjectId, Integer> writing = Collections.emptyMap();
+
+        try (RocksDBReference dbRef = dbhandle.getReference(); ReadOptions ro = new ReadOptions()) {
+            ro.setFillCache(false);
+            ro.setVerifyChecksums(false);
+            while (objects.hasNext()) {
+                final Map<ObjectId, Integer> inserted = new HashMap<>();
+                final WriteBatch batch = new WriteBatch();
+                try {
+                    Iterator<? extends RevObject> partition = Iterators.limit(objects, 10_000);
+                    while (partition.hasNext()) {
+                        RevObject object = partition.next();
+                        final ObjectId id = object.getId();
+                        id.getRawValue(keybuff);
+                        if (checkExists && (inserted.containsKey(id) || writing.containsKey(id)
+                                || exists(dbRef, ro, keybuff))) {
+                            listener.found(id, null);
+                            continue;
+                        }
+                        rawOut.reset();
+                        writeObject(object, rawOut);
+                        final byte[] value = rawOut.toByteArray();
+                        batch.put(keybuff, value);
+                        inserted.put(id, Integer.valueOf(value.length));
+                    }
+                } catch (RuntimeException e) {
+                    batch.close();
+                    throw e;
+                }
+                notifyInserted(write.join(), listener);
+                writing = inserted;
+                write = CompletableFuture.supplyAsync(() -> write(batch, inserted),
+                        AsyncObjectStoreSupport.executor());
+            }
+            notifyInserted(write.join(), listener);
+        }
+    }
+
+    private Map<ObjectId, Integer> write(WriteBatch batch, Map<ObjectId, Integer> inserted) {
+        try (RocksDBReference dbRef = dbhandle.getReference();
+                WriteOptions wo = new WriteOptions()) {
+            wo.setSync(true);
+            dbRef.db().write(wo, batch);
+        } catch (RocksDBException e) {
+            throw Throwables.propagate(e);
+        } finally {
+            batch.close();
+        }
+        return inserted;
+    }
+
+    private void notifyInserted(Map<ObjectId, Integer> inserted, BulkOpListener listener) {
+        for (Entry<ObjectId, Integer> entry : inserted.entrySet()) {
+            listener.inserted(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Bulk read iterator that partitions the incoming keys in batches of {@code batchSize}, fetches
+     * each batch with a single {@link RocksDB#multiGet(ReadOptions, List) multiGet} call, and
+     * deserializes the batch results on the shared decoder pool.
+     * <p>
+     * The {@link BulkOpListener} is only called from the iterating thread, and results are
+     * returned in the same order as the input elements.
+     *
+     * @param <I> the input element type (e.g. {@link ObjectId} or {@link NodeRef})
+     * @param <T> the type of {@link RevObject} to return
+     * @param <R> the iterator result type
+     */
+    private class MultiGetIterator<I, T extends RevObject, R> extends AbstractIterator<R> {
+
+        private final Iterator<I> source;
+
+        private final BulkOpListener listener;
+
+        private final Class<T> type;
+
+        private final int batchSize;
+
+        private final Function<I, ObjectId> idFunction;
+
+        private final BiFunction<I, T, R> resultFunction;
+
+        private Iterator<R> currentBatch = Collections.emptyIterator();
+
+        MultiGetIterator(Iterator<I> source, BulkOpListener listener, Class<T> type,
+                int batchSize, Function<I, ObjectId> idFunction,
+                BiFunction<I, T, R> resultFunction) {
+            this.source = source;
+            this.listener = listener;
+            this.type = type;
+            this.batchSize = batchSize;
+            this.idFunction = idFunction;
+            this.resultFunction = resultFunction;
+        }
+
+        @Override
+        protected R computeNext() {
+            while (!currentBatch.hasNext()) {
+                if (!source.hasNext()) {
+                    return endOfData();
+                }
+                List<I> batch = new ArrayList<>(batchSize);
+                Iterators.addAll(batch, Iterators.limit(source, batchSize));
+                currentBatch = fetch(batch);
+            }
+            return currentBatch.next();
+        }
+
+        private Iterator<R> fetch(final List<I> batch) {
+            checkOpen();
+            final int size = batch.size();
+            final ObjectId[] ids = new ObjectId[size];
+            for (int i = 0; i < size; i++) {
+                ids[i] = idFunction.apply(batch.get(i));
+            }
+
+            final byte[][] raw = multiGet(ids);
+            final RevObject[] decoded = decode(ids, raw);
+
+            List<R> results = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                final ObjectId id = ids[i];
+                final RevObject object = decoded[i];
+                if (object != null && type.isInstance(object)) {
+                    listener.found(id, Integer.valueOf(raw[i].length));
+                    results.add(resultFunction.apply(batch.get(i), type.cast(object)));
+                } else {
+                    listener.notFound(id);
+                }
+            }
+            return results.iterator();
+        }
+
+        private RevObject[] decode(final ObjectId[] ids, final byte[][] raw) {
+            final int size = ids.length;
+            final RevObject[] decoded = new RevObject[size];
+            final int parallelism = DECODE_POOL.getParallelism();
+            final int partitionSize = Math.max(MIN_DECODE_PARTITION_SIZE,
+                    (size + parallelism - 1) / parallelism);
+
+            if (size <= partitionSize) {
+                decodeRange(ids, raw, decoded, 0, size);
+                return decoded;
+            }
+            List<Future<?>> tasks = new ArrayList<>(parallelism);
+            for (int from = 0; from < size; from += partitionSize) {
+                final int start = from;
+                final int end = Math.min(size, from + partitionSize);
+                tasks.add(DECODE_POOL.submit(() -> decodeRange(ids, raw, decoded, start, end)));
+            }
+            try {
+                for (Future<?> task : tasks) {
+                    task.get();
+                }
+            } catch (Exception e) {
+                tasks.forEach((t) -> t.cancel(true));
+                throw Throwables.propagate(Throwables.getRootCause(e));
+            }
+            return decoded;
+        }
+    }
 }
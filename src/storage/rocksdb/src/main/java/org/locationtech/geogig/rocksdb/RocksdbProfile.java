@@ -0,0 +1,199 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.rocksdb;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.locationtech.geogig.storage.ConfigDatabase;
+import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.BloomFilter;
+import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.CompressionType;
+import org.rocksdb.DBOptions;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+
+/**
+ * Named sets of RocksDB engine settings, selected per repository through the
+ * {@link #KEY_PROFILE rocksdb.profile} config key.
+ * <p>
+ * {@link #DEFAULT} keeps the settings GeoGig has always used (no compression, no bloom filters,
+ * RocksDB's default block cache). The other profiles add a block cache of the given size to each
+ * column family, bloom filters on the data column families (all but {@code metadata}), and LZ4
+ * compression on the intermediate levels and ZSTD compression on the last level of the LSM tree.
+ * Compression is never enabled on Windows, where the native library is not built with it.
+ * <p>
+ * Databases opened with a profile other than {@link #DEFAULT} collect RocksDB statistics and
+ * publish them as a {@link RocksdbStatsBean} MBean.
+ * <p>
+ * Since database handles are shared by path, the profile in effect is the one of the first
+ * {@link RocksdbObjectStore}, {@link RocksdbIndexDatabase}, or {@link RocksdbGraphDatabase} that
+ * opened the database.
+ */
+public enum RocksdbProfile {
+
+    /**
+     * GeoGig's historical settings
+     */
+    DEFAULT("default", 0, 0, 0, 0, false),
+
+    /**
+     * Large block cache with cached index and filter blocks, and bloom filters, for servers that
+     * mostly read from big repositories
+     */
+    READ_HEAVY_SERVER("read-heavy-server", 512L << 20, 10, 64L << 20, 2, true),
+
+    /**
+     * Large write buffers and no compression on the first levels to speed up big imports and
+     * clones
+     */
+    BULK_IMPORT("bulk-import", 64L << 20, 10, 256L << 20, 3, true),
+
+    /**
+     * Small block cache and write buffers, with index and filter blocks accounted in the block
+     * cache so memory usage stays bounded
+     */
+    LOW_MEMORY("low-memory", 8L << 20, 10, 8L << 20, 1, true);
+
+    /**
+     * Repository config key used to select the engine profile by its {@link #getName() name}
+     */
+    public static final String KEY_PROFILE = "rocksdb.profile";
+
+    private final String name;
+
+    private final long blockCacheSize;
+
+    private final int bloomBitsPerKey;
+
+    private final long writeBufferSize;
+
+    private final int uncompressedLevels;
+
+    private final boolean collectStatistics;
+
+    private RocksdbProfile(String name, long blockCacheSize, int bloomBitsPerKey,
+            long writeBufferSize, int uncompressedLevels, boolean collectStatistics) {
+        this.name = name;
+        this.blockCacheSize = blockCacheSize;
+        this.bloomBitsPerKey = bloomBitsPerKey;
+        this.writeBufferSize = writeBufferSize;
+        this.uncompressedLevels = uncompressedLevels;
+        this.collectStatistics = collectStatistics;
+    }
+
+    /**
+     * @return the name the profile is selected by in the repository config
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return whether RocksDB statistics are collected and published through JMX
+     */
+    public boolean isCollectStatistics() {
+        return collectStatistics;
+    }
+
+    /**
+     * @return the profile with the given name
+     * @throws IllegalArgumentException if there's no profile with such name
+     */
+    public static RocksdbProfile fromName(final String name) {
+        Preconditions.checkNotNull(name);
+        for (RocksdbProfile p : values()) {
+            if (p.name.equals(name.trim())) {
+                return p;
+            }
+        }
+        throw new IllegalArgumentException(String.format(
+                "Unknown rocksdb profile '%s', expected one of default, read-heavy-server, "
+                        + "bulk-import, low-memory",
+                name));
+    }
+
+    /**
+     * @return the profile configured by {@link #KEY_PROFILE} in {@code configdb}, or
+     *         {@link #DEFAULT} if not set
+     * @throws IllegalStateException if the configured profile does not exist
+     */
+    public static RocksdbProfile resolve(ConfigDatabase configdb) {
+        Optional<String> configured = configdb.get(KEY_PROFILE);
+        if (!configured.isPresent()) {
+            return DEFAULT;
+        }
+        try {
+            return fromName(configured.get());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException(e.getMessage() + ". Check your config.");
+        }
+    }
+
+    void configure(DBOptions dbOptions) {
+        if (collectStatistics) {
+            dbOptions.createStatistics();
+        }
+        if (this == BULK_IMPORT) {
+            dbOptions.setIncreaseParallelism(Runtime.getRuntime().availableProcessors());
+            dbOptions.setMaxBackgroundFlushes(2);
+        }
+    }
+
+    /**
+     * Applies the profile to the options of the given column family, adding the native objects it
+     * creates (e.g. bloom filters) to {@code nativeObjects}, for the caller to close them once the
+     * database is closed
+     */
+    void configure(ColumnFamilyOptions options, String columnFamilyName, boolean isWindows,
+            List<AutoCloseable> nativeObjects) {
+        if (this == DEFAULT) {
+            // cause the Windows jar doesn't come with
+            // snappy and hence fails
+            options.setCompressionType(CompressionType.NO_COMPRESSION);
+            return;
+        }
+        final boolean isDataColumn = !"metadata".equals(columnFamilyName);
+
+        BlockBasedTableConfig tableConfig = new BlockBasedTableConfig();
+        tableConfig.setBlockCacheSize(blockCacheSize);
+        tableConfig.setCacheIndexAndFilterBlocks(this != BULK_IMPORT);
+        if (isDataColumn) {
+            BloomFilter filter = new BloomFilter(bloomBitsPerKey, false);
+            nativeObjects.add(filter);
+            tableConfig.setFilter(filter);
+        }
+        options.setTableFormatConfig(tableConfig);
+
+        if (isDataColumn) {
+            options.setWriteBufferSize(writeBufferSize);
+            options.setMaxWriteBufferNumber(this == BULK_IMPORT ? 4 : 2);
+        }
+
+        if (isWindows) {
+            options.setCompressionType(CompressionType.NO_COMPRESSION);
+        } else {
+            final int numLevels = options.numLevels();
+            List<CompressionType> perLevel = new ArrayList<>(numLevels);
+            for (int level = 0; level < numLevels; level++) {
+                if (level < uncompressedLevels) {
+                    perLevel.add(CompressionType.NO_COMPRESSION);
+                } else if (level < numLevels - 1) {
+                    perLevel.add(CompressionType.LZ4_COMPRESSION);
+                } else {
+                    perLevel.add(CompressionType.ZSTD_COMPRESSION);
+                }
+            }
+            options.setCompressionPerLevel(perLevel);
+        }
+    }
+}
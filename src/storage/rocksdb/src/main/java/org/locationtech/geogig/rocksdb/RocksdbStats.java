@@ -0,0 +1,135 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.rocksdb;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.rocksdb.Statistics;
+import org.rocksdb.TickerType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link RocksdbStatsBean} backed by the {@link Statistics} of a {@link DBHandle}'s options.
+ */
+class RocksdbStats implements RocksdbStatsBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RocksdbStats.class);
+
+    private final String path;
+
+    private final RocksdbProfile profile;
+
+    private final Statistics stats;
+
+    private @Nullable ObjectName beanName;
+
+    RocksdbStats(String path, RocksdbProfile profile, Statistics stats) {
+        this.path = path;
+        this.profile = profile;
+        this.stats = stats;
+    }
+
+    void register() {
+        MBeanServer mbeanserver = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName(
+                    "org.geogig:type=rocksdb,path=" + ObjectName.quote(path));
+            mbeanserver.registerMBean(this, name);
+            this.beanName = name;
+            LOG.debug("Registered rocksdb statistics MBean as {}", name);
+        } catch (Exception e) {
+            LOG.warn("Unable to register rocksdb statistics MBean for " + path, e);
+        }
+    }
+
+    void unregister() {
+        if (beanName == null) {
+            return;
+        }
+        MBeanServer mbeanserver = ManagementFactory.getPlatformMBeanServer();
+        try {
+            mbeanserver.unregisterMBean(beanName);
+        } catch (Exception e) {
+            LOG.warn("Unable to unregister rocksdb statistics MBean " + beanName, e);
+        }
+        beanName = null;
+    }
+
+    private long ticker(TickerType type) {
+        return stats.getTickerCount(type);
+    }
+
+    @Override
+    public String getPath() {
+        return path;
+    }
+
+    @Override
+    public String getProfile() {
+        return profile.getName();
+    }
+
+    @Override
+    public long getBlockCacheHitCount() {
+        return ticker(TickerType.BLOCK_CACHE_HIT);
+    }
+
+    @Override
+    public long getBlockCacheMissCount() {
+        return ticker(TickerType.BLOCK_CACHE_MISS);
+    }
+
+    @Override
+    public double getBlockCacheHitRate() {
+        long hits = getBlockCacheHitCount();
+        long total = hits + getBlockCacheMissCount();
+        return total == 0 ? 0d : (double) hits / total;
+    }
+
+    @Override
+    public long getBloomFilterUsefulCount() {
+        return ticker(TickerType.BLOOM_FILTER_USEFUL);
+    }
+
+    @Override
+    public long getMemtableHitCount() {
+        return ticker(TickerType.MEMTABLE_HIT);
+    }
+
+    @Override
+    public long getMemtableMissCount() {
+        return ticker(TickerType.MEMTABLE_MISS);
+    }
+
+    @Override
+    public long getKeysReadCount() {
+        return ticker(TickerType.NUMBER_KEYS_READ);
+    }
+
+    @Override
+    public long getKeysWrittenCount() {
+        return ticker(TickerType.NUMBER_KEYS_WRITTEN);
+    }
+
+    @Override
+    public long getBytesReadCount() {
+        return ticker(TickerType.BYTES_READ);
+    }
+
+    @Override
+    public long getBytesWrittenCount() {
+        return ticker(TickerType.BYTES_WRITTEN);
+    }
+}
@@ -0,0 +1,59 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.rocksdb;
+
+import javax.management.MXBean;
+
+/**
+ * Read only view of the statistics RocksDB collects for a database opened with a
+ * {@link RocksdbProfile} other than {@link RocksdbProfile#DEFAULT default}.
+ * <p>
+ * One bean is registered per open database, under the {@code org.geogig:type=rocksdb} domain and
+ * keyed by the database path, so it can be watched through a MBeans client such as JConsole.
+ */
+@MXBean
+public interface RocksdbStatsBean {
+
+    /**
+     * @return the database directory
+     */
+    String getPath();
+
+    /**
+     * @return the name of the {@link RocksdbProfile} the database was opened with
+     */
+    String getProfile();
+
+    long getBlockCacheHitCount();
+
+    long getBlockCacheMissCount();
+
+    /**
+     * @return ratio between block cache queries and those that were hits
+     */
+    double getBlockCacheHitRate();
+
+    /**
+     * @return number of times a bloom filter avoided a file read for a missing key
+     */
+    long getBloomFilterUsefulCount();
+
+    long getMemtableHitCount();
+
+    long getMemtableMissCount();
+
+    long getKeysReadCount();
+
+    long getKeysWrittenCount();
+
+    long getBytesReadCount();
+
+    long getBytesWrittenCount();
+}
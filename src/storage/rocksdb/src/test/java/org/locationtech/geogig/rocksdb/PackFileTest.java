@@ -0,0 +1,142 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.rocksdb;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.impl.RevObjectTestSupport;
+
+public class PackFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File packsDir;
+
+    @Before
+    public void before() throws IOException {
+        packsDir = folder.newFolder("packs");
+    }
+
+    private Map<ObjectId, byte[]> objects(int count) {
+        Map<ObjectId, byte[]> objects = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            ObjectId id = RevObjectTestSupport.hashString("object-" + i);
+            byte[] raw = new byte[i % 100];
+            for (int b = 0; b < raw.length; b++) {
+                raw[b] = (byte) (i + b);
+            }
+            objects.put(id, raw);
+        }
+        return objects;
+    }
+
+    private PackFile write(Map<ObjectId, byte[]> objects) throws IOException {
+        try (PackWriter writer = new PackWriter(packsDir)) {
+            for (Map.Entry<ObjectId, byte[]> e : objects.entrySet()) {
+                assertTrue(writer.add(e.getKey(), e.getValue()));
+            }
+            assertEquals(objects.size(), writer.size());
+            File file = writer.finish();
+            assertTrue(file.getName().startsWith("pack-"));
+            assertTrue(file.getName().endsWith(PackFile.EXTENSION));
+            return PackFile.open(file);
+        }
+    }
+
+    @Test
+    public void testWriteRead() throws IOException {
+        Map<ObjectId, byte[]> objects = objects(10_000);
+        PackFile pack = write(objects);
+        assertEquals(objects.size(), pack.size());
+        for (Map.Entry<ObjectId, byte[]> e : objects.entrySet()) {
+            ObjectId id = e.getKey();
+            assertTrue(pack.contains(id));
+            assertArrayEquals(e.getValue(), pack.getRaw(id));
+            int index = pack.indexOf(id);
+            assertEquals(id, pack.getId(index));
+        }
+        assertFalse(pack.contains(RevObjectTestSupport.hashString("not in pack")));
+        assertNull(pack.getRaw(RevObjectTestSupport.hashString("not in pack")));
+        assertFalse(pack.contains(ObjectId.NULL));
+    }
+
+    @Test
+    public void testIdsAreSorted() throws IOException {
+        PackFile pack = write(objects(1000));
+        for (int i = 1; i < pack.size(); i++) {
+            assertTrue(pack.getId(i - 1).compareTo(pack.getId(i)) < 0);
+        }
+    }
+
+    @Test
+    public void testDuplicates() throws IOException {
+        ObjectId id = RevObjectTestSupport.hashString("dup");
+        try (PackWriter writer = new PackWriter(packsDir)) {
+            assertTrue(writer.add(id, new byte[] { 1 }));
+            assertFalse(writer.add(id, new byte[] { 1 }));
+            PackFile pack = PackFile.open(writer.finish());
+            assertEquals(1, pack.size());
+        }
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        try (PackWriter writer = new PackWriter(packsDir)) {
+            assertTrue(writer.isEmpty());
+            assertNull(writer.finish());
+        }
+        // temporary files are cleaned up
+        assertEquals(0, packsDir.list().length);
+    }
+
+    @Test
+    public void testSameContentsSameFile() throws IOException {
+        Map<ObjectId, byte[]> objects = objects(100);
+        File f1 = write(objects).getFile();
+        File f2 = write(objects).getFile();
+        assertEquals(f1, f2);
+        assertEquals(1, packsDir.list().length);
+    }
+
+    @Test
+    public void testLookUp() throws IOException {
+        Map<ObjectId, byte[]> objects = objects(5000);
+        PackFile pack = write(objects);
+        for (ObjectId id : objects.keySet()) {
+            byte[] prefix = new byte[3];
+            id.getRawValue(prefix, prefix.length);
+            List<ObjectId> expected = new ArrayList<>();
+            for (ObjectId other : objects.keySet()) {
+                if (other.toString().startsWith(id.toString().substring(0, 6))) {
+                    expected.add(other);
+                }
+            }
+            expected.sort(null);
+            assertEquals(expected, pack.lookUp(prefix));
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.rocksdb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.List;
+
+import org.junit.Test;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.model.impl.RevObjectTestSupport;
+import org.locationtech.geogig.repository.Hints;
+import org.locationtech.geogig.repository.Platform;
+import org.locationtech.geogig.storage.fs.IniFileConfigDatabase;
+import org.locationtech.geogig.storage.impl.ObjectStoreConformanceTest;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Runs the {@link ObjectStoreConformanceTest} against a {@link PackObjectDatabase} that writes
+ * every {@code putAll} batch to a pack file, and {@code put} calls to the loose objects database.
+ */
+public class PackObjectDatabaseConformanceTest extends ObjectStoreConformanceTest {
+
+    @Override
+    protected PackObjectDatabase createOpen(Platform platform, Hints hints) {
+        IniFileConfigDatabase configdb = new IniFileConfigDatabase(platform);
+        PackObjectDatabase database = new PackObjectDatabase(platform, hints, configdb);
+        database.setPutAllThreshold(1);
+        database.open();
+        return database;
+    }
+
+    @Test
+    public void testRepack() {
+        PackObjectDatabase db = (PackObjectDatabase) super.db;
+        List<RevObject> packed = ImmutableList.of(RevObjectTestSupport.feature(0, "a"),
+                RevObjectTestSupport.feature(1, "b"));
+        List<RevObject> loose = ImmutableList.of(RevObjectTestSupport.feature(2, "c"),
+                RevObjectTestSupport.feature(3, "d"));
+        db.putAll(packed.iterator());
+        loose.forEach((o) -> assertTrue(db.put(o)));
+        assertEquals(1, db.getPackFiles().size());
+
+        db.repack();
+
+        List<File> packFiles = db.getPackFiles();
+        assertEquals(1, packFiles.size());
+        assertEquals(1, packFiles.get(0).getParentFile().list().length);
+        for (RevObject o : ImmutableList.<RevObject> builder().addAll(packed).addAll(loose)
+                .build()) {
+            assertEquals(o, db.get(o.getId()));
+        }
+        // loose objects are gone, hence they're served from the pack even once deleted
+        db.delete(loose.get(0).getId());
+        assertTrue(db.exists(loose.get(0).getId()));
+    }
+}
@@ -0,0 +1,31 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.rocksdb;
+
+import org.locationtech.geogig.repository.Hints;
+import org.locationtech.geogig.repository.Platform;
+import org.locationtech.geogig.storage.impl.ObjectStoreConformanceTest;
+
+/**
+ * Runs the {@link ObjectStoreConformanceTest} on a database opened with the
+ * {@link RocksdbProfile#READ_HEAVY_SERVER read-heavy-server} profile, which enables bloom filters,
+ * compression, and statistics.
+ */
+public class RocksdbObjectStoreReadHeavyProfileConformanceTest
+        extends ObjectStoreConformanceTest {
+
+    @Override
+    protected RocksdbObjectStore createOpen(Platform platform, Hints hints) {
+        RocksdbObjectStore database = new RocksdbObjectStore(platform, hints);
+        database.setProfile(RocksdbProfile.READ_HEAVY_SERVER);
+        database.open();
+        return database;
+    }
+}
@@ -0,0 +1,88 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.rocksdb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.locationtech.geogig.storage.ConfigDatabase;
+import org.rocksdb.BloomFilter;
+import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.RocksDB;
+
+import com.google.common.base.Optional;
+
+public class RocksdbProfileTest {
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    @Test
+    public void testFromName() {
+        assertEquals(RocksdbProfile.DEFAULT, RocksdbProfile.fromName("default"));
+        assertEquals(RocksdbProfile.READ_HEAVY_SERVER,
+                RocksdbProfile.fromName("read-heavy-server"));
+        assertEquals(RocksdbProfile.BULK_IMPORT, RocksdbProfile.fromName(" bulk-import "));
+        assertEquals(RocksdbProfile.LOW_MEMORY, RocksdbProfile.fromName("low-memory"));
+    }
+
+    @Test
+    public void testFromNameUnknown() {
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("Unknown rocksdb profile 'fast'");
+        RocksdbProfile.fromName("fast");
+    }
+
+    @Test
+    public void testResolve() {
+        ConfigDatabase configdb = mock(ConfigDatabase.class);
+        when(configdb.get(RocksdbProfile.KEY_PROFILE)).thenReturn(Optional.absent());
+        assertEquals(RocksdbProfile.DEFAULT, RocksdbProfile.resolve(configdb));
+
+        when(configdb.get(RocksdbProfile.KEY_PROFILE)).thenReturn(Optional.of("low-memory"));
+        assertEquals(RocksdbProfile.LOW_MEMORY, RocksdbProfile.resolve(configdb));
+    }
+
+    @Test
+    public void testConfigureTracksNativeObjects() {
+        RocksDB.loadLibrary();
+        List<AutoCloseable> nativeObjects = new ArrayList<>();
+        try (ColumnFamilyOptions options = new ColumnFamilyOptions()) {
+            RocksdbProfile.DEFAULT.configure(options, "objects", false, nativeObjects);
+            assertTrue(nativeObjects.isEmpty());
+
+            RocksdbProfile.LOW_MEMORY.configure(options, "metadata", false, nativeObjects);
+            assertTrue(nativeObjects.isEmpty());
+
+            RocksdbProfile.LOW_MEMORY.configure(options, "objects", false, nativeObjects);
+            assertEquals(1, nativeObjects.size());
+            assertTrue(nativeObjects.get(0) instanceof BloomFilter);
+        } finally {
+            nativeObjects.forEach((o) -> DBHandle.close(o));
+        }
+    }
+
+    @Test
+    public void testResolveUnknown() {
+        ConfigDatabase configdb = mock(ConfigDatabase.class);
+        when(configdb.get(RocksdbProfile.KEY_PROFILE)).thenReturn(Optional.of("fast"));
+        exception.expect(IllegalStateException.class);
+        exception.expectMessage("Check your config");
+        RocksdbProfile.resolve(configdb);
+    }
+}
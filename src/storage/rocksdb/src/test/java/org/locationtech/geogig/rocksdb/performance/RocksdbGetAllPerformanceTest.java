@@ -0,0 +1,154 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.rocksdb.performance;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevFeature;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.model.impl.RevObjectTestSupport;
+import org.locationtech.geogig.repository.Hints;
+import org.locationtech.geogig.rocksdb.RocksdbObjectStore;
+import org.locationtech.geogig.storage.BulkOpListener;
+import org.locationtech.geogig.test.TestPlatform;
+import org.locationtech.geogig.test.performance.EnablePerformanceTestRule;
+
+import com.google.common.base.Stopwatch;
+
+/**
+ * Compares {@link RocksdbObjectStore#getAll(Iterable, BulkOpListener, Class) getAll} throughput
+ * with one-at-a-time key lookups against batched {@code multiGet} lookups for several batch
+ * sizes.
+ * <p>
+ * Run with {@code -Dgeogig.runPerformanceTests=true}
+ */
+public class RocksdbGetAllPerformanceTest {
+
+    @ClassRule
+    public static EnablePerformanceTestRule performanceRule = new EnablePerformanceTestRule();
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static final int WARMUP_RUNS = 2;
+
+    private static final int MEASURED_RUNS = 5;
+
+    private RocksdbObjectStore db;
+
+    @Before
+    public void before() throws IOException {
+        tmp.newFolder(".geogig");
+        TestPlatform platform = new TestPlatform(tmp.getRoot());
+        db = new RocksdbObjectStore(platform, new Hints());
+        db.open();
+    }
+
+    @After
+    public void after() {
+        if (db != null) {
+            db.close();
+        }
+    }
+
+    @Test
+    public void testGetAll_100K() {
+        runComparison(100_000);
+    }
+
+    @Test
+    public void testGetAll_1M() {
+        runComparison(1_000_000);
+    }
+
+    private void runComparison(final int count) {
+        final List<ObjectId> ids = insert(count);
+        Collections.shuffle(ids, new Random(1));
+
+        System.err.printf("### %s: querying %,d random ids, %d runs per batch size\n",
+                getClass().getSimpleName(), count, MEASURED_RUNS);
+
+        run(ids, 1);
+        run(ids, 100);
+        run(ids, RocksdbObjectStore.DEFAULT_GETALL_BATCH_SIZE);
+        run(ids, 10_000);
+    }
+
+    private void run(final List<ObjectId> ids, final int batchSize) {
+        db.setGetAllBatchSize(batchSize);
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            traverse(ids);
+        }
+        long totalMillis = 0;
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            Stopwatch sw = Stopwatch.createStarted();
+            int size = traverse(ids);
+            totalMillis += sw.stop().elapsed(TimeUnit.MILLISECONDS);
+            assertEquals(ids.size(), size);
+        }
+        long avg = totalMillis / MEASURED_RUNS;
+        double throughput = avg == 0 ? 0 : (ids.size() * 1000d) / avg;
+        System.err.printf("batch size %,6d: avg %,6dms, %,12.0f objects/s\n", batchSize, avg,
+                throughput);
+    }
+
+    private int traverse(final List<ObjectId> ids) {
+        Iterator<RevFeature> it = db.getAll(ids, BulkOpListener.NOOP_LISTENER, RevFeature.class);
+        int size = 0;
+        Iterator<ObjectId> expected = ids.iterator();
+        while (it.hasNext()) {
+            RevObject next = it.next();
+            // verify iteration order is stable regardless of the batch size
+            assertEquals(expected.next(), next.getId());
+            size++;
+        }
+        return size;
+    }
+
+    private List<ObjectId> insert(final int count) {
+        List<ObjectId> ids = new ArrayList<>(count);
+        Iterator<RevFeature> features = new Iterator<RevFeature>() {
+            int i = 0;
+
+            @Override
+            public boolean hasNext() {
+                return i < count;
+            }
+
+            @Override
+            public RevFeature next() {
+                RevFeature f = RevObjectTestSupport.feature(Integer.valueOf(i),
+                        "some string value " + i, Long.valueOf(i * 1000L));
+                i++;
+                ids.add(f.getId());
+                return f;
+            }
+        };
+        Stopwatch sw = Stopwatch.createStarted();
+        db.putAll(features);
+        System.err.printf("inserted %,d features in %s\n", count, sw.stop());
+        return ids;
+    }
+}
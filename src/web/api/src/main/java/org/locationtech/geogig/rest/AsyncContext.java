@@ -9,19 +9,29 @@
  */
 package org.locationtech.geogig.rest;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
+import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.repository.AbstractGeoGigOp;
 import org.locationtech.geogig.repository.Context;
 import org.locationtech.geogig.repository.DefaultProgressListener;
@@ -29,8 +39,25 @@ import org.locationtech.geogig.repository.impl.GeogigTransaction;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
+/**
+ * Runs long running commands (imports, exports, etc) asynchronously, keeping track of them by task
+ * id.
+ * <p>
+ * Commands are queued per repository and dispatched to a fixed pool of threads: no more than
+ * {@code geogig.tasks.maxPerRepository} commands run at a time on the same repository, the
+ * repositories with waiting commands take turns on the free threads, and a repository's commands
+ * run by {@link Priority priority}, with waiting commands being promoted a priority class every
+ * minute so that they don't starve. Once a repository has {@code geogig.tasks.maxQueued} waiting
+ * commands, new ones are rejected with a {@link TooManyTasksException}.
+ * <p>
+ * The number of threads is given by the {@code geogig.tasks.threads} system property, and
+ * defaults to the number of processors.
+ */
 public class AsyncContext {
 
     public static final String CONTEXT_KEY = "GeoGigAsyncContext";
@@ -70,6 +97,32 @@ public class AsyncContext {
         public abstract boolean isTerminated();
     }
 
+    /**
+     * The priority classes of the commands waiting to run on a repository, from higher to lower
+     */
+    public static enum Priority {
+        /**
+         * Short commands a client is likely waiting on, like index updates
+         */
+        HIGH,
+        /**
+         * The default priority, for imports and other commands that modify the repository
+         */
+        NORMAL,
+        /**
+         * Bulk commands that may take long and whose clients are not in a hurry, like exports
+         */
+        LOW
+    }
+
+    /**
+     * How long a command waits before being promoted to the next priority class
+     */
+    private static final long AGING_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private static final int DEFAULT_THREADS = Integer.getInteger("geogig.tasks.threads",
+            Math.max(2, Runtime.getRuntime().availableProcessors()));
+
     private static AsyncContext INSTANCE;
 
     public static synchronized AsyncContext get() {
@@ -85,12 +138,24 @@ public class AsyncContext {
 
     private AtomicLong ID_SEQ = new AtomicLong();
 
+    private final Scheduler scheduler;
+
     private AsyncContext() {
-        int nThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        this(DEFAULT_THREADS,
+                Integer.getInteger("geogig.tasks.maxPerRepository", DEFAULT_THREADS / 2 + 1),
+                Integer.getInteger("geogig.tasks.maxQueued", 100));
+    }
+
+    private AsyncContext(int nThreads, int maxPerRepository, int maxQueued) {
+        checkArgument(nThreads > 0, "nThreads must be > 0");
+        checkArgument(maxPerRepository > 0, "maxPerRepository must be > 0");
+        checkArgument(maxQueued >= 0, "maxQueued must be >= 0");
         ThreadFactory threadFactory = new ThreadFactoryBuilder().setDaemon(true)
                 .setNameFormat("GeoGIG async tasks-%d").build();
-        this.commandExecutor = Executors.newScheduledThreadPool(nThreads, threadFactory);
+        // one more thread for the prune task, commands never take more than nThreads
+        this.commandExecutor = Executors.newScheduledThreadPool(nThreads + 1, threadFactory);
         this.commandExecutor.scheduleAtFixedRate(new PruneTask(), 0, 10, TimeUnit.MINUTES);
+        this.scheduler = new Scheduler(nThreads, maxPerRepository, maxQueued);
     }
 
     @VisibleForTesting
@@ -98,6 +163,17 @@ public class AsyncContext {
         return new AsyncContext();
     }
 
+    /**
+     * @param nThreads the maximum number of commands to run at a time
+     * @param maxPerRepository the maximum number of commands to run at a time on the same
+     *        repository
+     * @param maxQueued the maximum number of commands waiting to run on the same repository
+     */
+    @VisibleForTesting
+    public static AsyncContext createNew(int nThreads, int maxPerRepository, int maxQueued) {
+        return new AsyncContext(nThreads, maxPerRepository, maxQueued);
+    }
+
     @VisibleForTesting
     public void shutDown() {
         commandExecutor.shutdown();
@@ -118,15 +194,60 @@ public class AsyncContext {
     }
 
     public <T> AsyncCommand<T> run(AbstractGeoGigOp<T> command, String description) {
+        return run(command, description, Priority.NORMAL);
+    }
 
+    /**
+     * Queues the command to run once its repository has a free slot and there are no higher
+     * priority commands waiting on it.
+     * 
+     * @throws TooManyTasksException if the repository has too many commands waiting already
+     */
+    public <T> AsyncCommand<T> run(AbstractGeoGigOp<T> command, String description,
+            Priority priority) {
+        checkNotNull(priority);
         CommandCall<T> callable = new CommandCall<T>(command);
-        Future<T> future = commandExecutor.submit(callable);
+        QueuedTask<T> task = new QueuedTask<T>(callable, priority, repositoryKey(command));
+        scheduler.submit(task);
         String taskId = String.valueOf(ID_SEQ.incrementAndGet());
-        AsyncCommand<T> asyncCommand = new AsyncCommand<T>(taskId, callable, future, description);
+        AsyncCommand<T> asyncCommand = new AsyncCommand<T>(taskId, callable, task, description,
+                scheduler);
         commands.put(asyncCommand.getTaskId(), asyncCommand);
         return asyncCommand;
     }
 
+    private static String repositoryKey(AbstractGeoGigOp<?> command) {
+        return repositoryKey(command.context().repository().getLocation());
+    }
+
+    /**
+     * @return the repository location without user info nor query string, since the queue keys
+     *         are reported by {@link QueueMetrics} and some locations carry credentials (e.g.
+     *         {@code postgresql://host/db/schema/repo?user=...&password=...})
+     */
+    @VisibleForTesting
+    static String repositoryKey(@Nullable URI location) {
+        if (location == null) {
+            return String.valueOf(location);
+        }
+        if (location.isOpaque()) {
+            return location.getScheme() + ":";
+        }
+        try {
+            return new URI(location.getScheme(), null, location.getHost(), location.getPort(),
+                    location.getPath(), null, null).toString();
+        } catch (URISyntaxException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    /**
+     * @return a snapshot of the scheduler queues
+     */
+    public QueueMetrics getQueueMetrics() {
+        return scheduler.metrics();
+    }
+
     public Optional<AsyncCommand<?>> getAndPruneIfFinished(final String taskId) {
         Optional<AsyncCommand<?>> cmd = get(taskId);
         if (cmd.isPresent() && cmd.get().isDone()) {
@@ -144,18 +265,21 @@ public class AsyncContext {
 
         private final CommandCall<T> command;
 
-        private final Future<T> future;
+        private final QueuedTask<T> future;
 
         private final String taskId;
 
         private String description;
 
-        public AsyncCommand(String taskId, CommandCall<T> command, Future<T> future,
-                String description) {
+        private final Scheduler scheduler;
+
+        private AsyncCommand(String taskId, CommandCall<T> command, QueuedTask<T> future,
+                String description, Scheduler scheduler) {
             this.command = command;
             this.future = future;
             this.description = description;
             this.taskId = taskId;
+            this.scheduler = scheduler;
         }
 
         public Optional<UUID> getTransactionId() {
@@ -228,9 +352,18 @@ public class AsyncContext {
             return (Class<? extends AbstractGeoGigOp<?>>) command.commandClass;
         }
 
+        public Priority getPriority() {
+            return future.priority;
+        }
+
+        /**
+         * Cancels the command through its progress listener, which long running commands check
+         * periodically. A command that's still waiting is taken out of its queue right away.
+         */
         public void tryCancel() {
             if (!isDone()) {
-                command.command.getProgressListener().cancel();
+                command.progress.cancel();
+                scheduler.cancel(future);
             }
         }
     }
@@ -249,19 +382,21 @@ public class AsyncContext {
             this.command = command;
             this.commandClass = command.getClass();
             this.status = Status.WAITING;
+            // set up front, so that a waiting command can be cancelled without touching the
+            // listener it was created with, which may be shared
+            command.setProgressListener(progress);
         }
 
         @Override
         public T call() throws Exception {
-            if (command.getProgressListener().isCanceled()) {
+            if (progress.isCanceled()) {
                 this.status = Status.CANCELLED;
                 return null;
             }
             this.status = Status.RUNNING;
             try {
-                command.setProgressListener(progress);
                 T result = command.call();
-                if (command.getProgressListener().isCanceled()) {
+                if (progress.isCanceled()) {
                     this.status = Status.CANCELLED;
                 } else {
                     this.status = Status.FINISHED;
@@ -278,4 +413,330 @@ public class AsyncContext {
         return new ArrayList<>(commands.values());
     }
 
+    /**
+     * A command waiting to run, or running, on a repository
+     */
+    private static class QueuedTask<T> extends FutureTask<T> {
+
+        private static final AtomicLong SEQ = new AtomicLong();
+
+        private final Priority priority;
+
+        private final String repository;
+
+        private final long seq = SEQ.incrementAndGet();
+
+        private final long queuedAt = System.currentTimeMillis();
+
+        private long startedAt;
+
+        QueuedTask(CommandCall<T> callable, Priority priority, String repository) {
+            super(callable);
+            this.priority = priority;
+            this.repository = repository;
+        }
+
+        /**
+         * @return the priority of the task given how long it's been waiting, lower is higher
+         */
+        int effectivePriority(long now) {
+            return priority.ordinal() - (int) ((now - queuedAt) / AGING_MILLIS);
+        }
+    }
+
+    /**
+     * The commands waiting to run on a repository, and how many are running
+     */
+    private static class RepositoryQueue {
+
+        private final List<QueuedTask<?>> waiting = new ArrayList<>();
+
+        private int running;
+
+        /**
+         * Takes out the waiting task with the highest effective priority, the oldest one on ties
+         */
+        QueuedTask<?> take(long now) {
+            QueuedTask<?> next = null;
+            for (QueuedTask<?> task : waiting) {
+                if (next == null || task.effectivePriority(now) < next.effectivePriority(now)
+                        || (task.effectivePriority(now) == next.effectivePriority(now)
+                                && task.seq < next.seq)) {
+                    next = task;
+                }
+            }
+            waiting.remove(next);
+            return next;
+        }
+    }
+
+    /**
+     * Dispatches the queued tasks to {@link #commandExecutor} as threads and repository slots
+     * become available, so that its own work queue is always empty.
+     */
+    private class Scheduler {
+
+        private final int nThreads;
+
+        private final int maxPerRepository;
+
+        private final int maxQueued;
+
+        /**
+         * Queues by repository, in the order they take turns
+         */
+        private final LinkedHashMap<String, RepositoryQueue> queues = new LinkedHashMap<>();
+
+        private int running;
+
+        private long completed;
+
+        private long rejected;
+
+        /**
+         * Moving average of how long tasks run, to estimate when to retry a rejected one
+         */
+        private double avgRunMillis;
+
+        Scheduler(int nThreads, int maxPerRepository, int maxQueued) {
+            this.nThreads = nThreads;
+            this.maxPerRepository = maxPerRepository;
+            this.maxQueued = maxQueued;
+        }
+
+        synchronized void submit(QueuedTask<?> task) {
+            RepositoryQueue queue = queues.get(task.repository);
+            if (queue == null) {
+                queue = new RepositoryQueue();
+                queues.put(task.repository, queue);
+            }
+            if (queue.waiting.size() >= maxQueued && !canRun(queue)) {
+                rejected++;
+                if (queue.waiting.isEmpty() && queue.running == 0) {
+                    queues.remove(task.repository);
+                }
+                throw new TooManyTasksException(String.format(
+                        "Too many tasks queued for this repository (%d), try again later",
+                        queue.waiting.size()), retryAfterSeconds(queue));
+            }
+            queue.waiting.add(task);
+            dispatch();
+        }
+
+        /**
+         * Takes a waiting task out of its queue and runs it right away, in the calling thread,
+         * so that it completes as {@link Status#CANCELLED cancelled} without waiting for a slot
+         */
+        void cancel(QueuedTask<?> task) {
+            boolean removed;
+            synchronized (this) {
+                RepositoryQueue queue = queues.get(task.repository);
+                removed = queue != null && queue.waiting.remove(task);
+                if (removed && queue.waiting.isEmpty() && queue.running == 0) {
+                    queues.remove(task.repository);
+                }
+            }
+            if (removed) {
+                task.run();
+            }
+        }
+
+        private boolean canRun(RepositoryQueue queue) {
+            return running < nThreads && queue.running < maxPerRepository;
+        }
+
+        private void dispatch() {
+            final long now = System.currentTimeMillis();
+            while (running < nThreads) {
+                QueuedTask<?> next = null;
+                for (Iterator<Map.Entry<String, RepositoryQueue>> it = queues.entrySet()
+                        .iterator(); it.hasNext();) {
+                    Map.Entry<String, RepositoryQueue> e = it.next();
+                    RepositoryQueue queue = e.getValue();
+                    if (!queue.waiting.isEmpty() && queue.running < maxPerRepository) {
+                        next = queue.take(now);
+                        queue.running++;
+                        // send the repository to the back of the line
+                        it.remove();
+                        queues.put(e.getKey(), queue);
+                        break;
+                    }
+                }
+                if (next == null) {
+                    return;
+                }
+                running++;
+                final QueuedTask<?> task = next;
+                commandExecutor.execute(() -> {
+                    task.startedAt = System.currentTimeMillis();
+                    try {
+                        task.run();
+                    } finally {
+                        completed(task);
+                    }
+                });
+            }
+        }
+
+        private synchronized void completed(QueuedTask<?> task) {
+            running--;
+            completed++;
+            long runMillis = System.currentTimeMillis() - task.startedAt;
+            avgRunMillis = completed == 1 ? runMillis : 0.9 * avgRunMillis + 0.1 * runMillis;
+            RepositoryQueue queue = queues.get(task.repository);
+            queue.running--;
+            if (queue.waiting.isEmpty() && queue.running == 0) {
+                queues.remove(task.repository);
+            }
+            dispatch();
+        }
+
+        /**
+         * Estimates how long it'd take for the repository's queue to drain enough to accept
+         * another task
+         */
+        private int retryAfterSeconds(RepositoryQueue queue) {
+            double millis = avgRunMillis * Math.max(1, queue.waiting.size() - maxQueued + 1)
+                    / maxPerRepository;
+            return (int) Math.max(1, Math.min(300, Math.ceil(millis / 1000)));
+        }
+
+        synchronized QueueMetrics metrics() {
+            Map<Priority, Integer> waiting = new EnumMap<>(Priority.class);
+            for (Priority p : Priority.values()) {
+                waiting.put(p, 0);
+            }
+            Map<String, Integer> runningByRepository = new LinkedHashMap<>();
+            Map<String, Integer> waitingByRepository = new LinkedHashMap<>();
+            for (Map.Entry<String, RepositoryQueue> e : queues.entrySet()) {
+                RepositoryQueue queue = e.getValue();
+                for (QueuedTask<?> task : queue.waiting) {
+                    waiting.put(task.priority, waiting.get(task.priority) + 1);
+                }
+                runningByRepository.put(e.getKey(), queue.running);
+                waitingByRepository.put(e.getKey(), queue.waiting.size());
+            }
+            return new QueueMetrics(nThreads, maxPerRepository, maxQueued, running, waiting,
+                    runningByRepository, waitingByRepository, completed, rejected,
+                    (long) avgRunMillis);
+        }
+    }
+
+    /**
+     * A snapshot of the state of the {@link AsyncContext} queues
+     */
+    public static class QueueMetrics {
+
+        private final int threads;
+
+        private final int maxPerRepository;
+
+        private final int maxQueued;
+
+        private final int running;
+
+        private final ImmutableMap<Priority, Integer> waiting;
+
+        private final ImmutableMap<String, Integer> runningByRepository;
+
+        private final ImmutableMap<String, Integer> waitingByRepository;
+
+        private final long completed;
+
+        private final long rejected;
+
+        private final long averageRunMillis;
+
+        QueueMetrics(int threads, int maxPerRepository, int maxQueued, int running,
+                Map<Priority, Integer> waiting, Map<String, Integer> runningByRepository,
+                Map<String, Integer> waitingByRepository, long completed, long rejected,
+                long averageRunMillis) {
+            this.threads = threads;
+            this.maxPerRepository = maxPerRepository;
+            this.maxQueued = maxQueued;
+            this.running = running;
+            this.waiting = ImmutableMap.copyOf(waiting);
+            this.runningByRepository = ImmutableMap.copyOf(runningByRepository);
+            this.waitingByRepository = ImmutableMap.copyOf(waitingByRepository);
+            this.completed = completed;
+            this.rejected = rejected;
+            this.averageRunMillis = averageRunMillis;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public int getMaxPerRepository() {
+            return maxPerRepository;
+        }
+
+        public int getMaxQueued() {
+            return maxQueued;
+        }
+
+        /**
+         * @return the number of tasks running
+         */
+        public int getRunning() {
+            return running;
+        }
+
+        /**
+         * @return the number of tasks waiting to run, by priority class
+         */
+        public ImmutableMap<Priority, Integer> getWaiting() {
+            return waiting;
+        }
+
+        /**
+         * @return the number of tasks waiting to run, of all priority classes
+         */
+        public int getWaitingCount() {
+            int count = 0;
+            for (int c : waiting.values()) {
+                count += c;
+            }
+            return count;
+        }
+
+        /**
+         * @return the locations, without credentials, of the repositories with tasks running or
+         *         waiting to run
+         */
+        public ImmutableSet<String> getRepositories() {
+            return runningByRepository.keySet();
+        }
+
+        /**
+         * @return the number of tasks running on the given repository
+         */
+        public int getRunning(String repository) {
+            Integer count = runningByRepository.get(repository);
+            return count == null ? 0 : count.intValue();
+        }
+
+        /**
+         * @return the number of tasks waiting to run on the given repository
+         */
+        public int getWaiting(String repository) {
+            Integer count = waitingByRepository.get(repository);
+            return count == null ? 0 : count.intValue();
+        }
+
+        public long getCompleted() {
+            return completed;
+        }
+
+        /**
+         * @return the number of tasks rejected because their repository's queue was full
+         */
+        public long getRejected() {
+            return rejected;
+        }
+
+        public long getAverageRunMillis() {
+            return averageRunMillis;
+        }
+    }
 }
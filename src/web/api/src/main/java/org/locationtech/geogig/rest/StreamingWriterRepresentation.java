@@ -10,6 +10,7 @@
 package org.locationtech.geogig.rest;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Writer;
 
 import org.locationtech.geogig.web.api.RESTUtils;
@@ -35,11 +36,22 @@ public abstract class StreamingWriterRepresentation extends WriterRepresentation
         return StreamingWriterFactory.getStreamWriter(getMediaType(), writer);
     }
 
+    @Override
+    public void write(OutputStream out) throws IOException {
+        if (StreamingWriterFactory.isBinary(getMediaType())) {
+            writeDocument(StreamingWriterFactory.getStreamWriter(getMediaType(), out));
+        } else {
+            super.write(out);
+        }
+    }
+
     @Override
     public void write(Writer writer) throws IOException {
+        writeDocument(createWriter(writer));
+    }
 
+    private void writeDocument(StreamingWriter streamWriter) throws IOException {
         try {
-            StreamingWriter streamWriter = createWriter(writer);
             streamWriter.writeStartDocument();
             write(streamWriter);
             streamWriter.writeEndDocument();
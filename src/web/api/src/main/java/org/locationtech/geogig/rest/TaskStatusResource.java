@@ -9,14 +9,18 @@
  */
 package org.locationtech.geogig.rest;
 
+import static org.locationtech.geogig.rest.Variants.CBOR;
 import static org.locationtech.geogig.rest.Variants.JSON;
 import static org.locationtech.geogig.rest.Variants.XML;
 import static org.locationtech.geogig.rest.Variants.getVariantByExtension;
 import static org.locationtech.geogig.web.api.RESTUtils.getStringAttribute;
 
 import java.util.List;
+import java.util.Map;
 
 import org.locationtech.geogig.rest.AsyncContext.AsyncCommand;
+import org.locationtech.geogig.rest.AsyncContext.Priority;
+import org.locationtech.geogig.rest.AsyncContext.QueueMetrics;
 import org.locationtech.geogig.web.api.StreamWriterException;
 import org.restlet.Context;
 import org.restlet.data.MediaType;
@@ -38,8 +42,8 @@ import org.locationtech.geogig.web.api.StreamingWriter;
  * Params:
  * <ul>
  * <li>If no taskId is given, returns a list of tasks, whether they're in a waiting, running,
- * finished, or failed status. Done tasks (either finished or failed) are automatically pruned after
- * 10 minutes.
+ * finished, or failed status, followed by the metrics of the task queues. Done tasks (either
+ * finished or failed) are automatically pruned after 10 minutes.
  * <li>prune: boolean, whether to prune a finished task (requires a taskId)
  * <li>cancel: boolean, if true, an attempt to cancel the tasks given by {@code taskId} is made.
  * </ul>
@@ -52,6 +56,7 @@ public class TaskStatusResource extends Resource {
         List<Variant> variants = getVariants();
         variants.add(XML);
         variants.add(JSON);
+        variants.add(CBOR);
     }
 
     @Override
@@ -75,7 +80,8 @@ public class TaskStatusResource extends Resource {
 
         if (Strings.isNullOrEmpty(taskId)) {
             Iterable<AsyncCommand<? extends Object>> all = asyncContext.getAll();
-            return new TaskListResource(mediaType, rootPath, all);
+            QueueMetrics metrics = asyncContext.getQueueMetrics();
+            return new TaskListResource(mediaType, rootPath, all, metrics);
         }
 
         Optional<AsyncCommand<?>> cmd;
@@ -108,10 +114,13 @@ public class TaskStatusResource extends Resource {
 
         private Iterable<AsyncCommand<? extends Object>> all;
 
+        private QueueMetrics metrics;
+
         public TaskListResource(MediaType mediaType, String baseURL,
-                Iterable<AsyncCommand<? extends Object>> all) {
+                Iterable<AsyncCommand<? extends Object>> all, QueueMetrics metrics) {
             super(mediaType, baseURL);
             this.all = all;
+            this.metrics = metrics;
         }
 
         @Override
@@ -122,6 +131,33 @@ public class TaskStatusResource extends Resource {
                         getMediaType(), baseURL, false);
                 rep.write(w);
             }
+            writeQueue(w);
+            w.writeEndElement();
+        }
+
+        private void writeQueue(StreamingWriter w) throws StreamWriterException {
+            w.writeStartElement("queue");
+            w.writeElement("threads", metrics.getThreads());
+            w.writeElement("maxPerRepository", metrics.getMaxPerRepository());
+            w.writeElement("maxQueued", metrics.getMaxQueued());
+            w.writeElement("running", metrics.getRunning());
+            w.writeStartElement("waiting");
+            for (Map.Entry<Priority, Integer> e : metrics.getWaiting().entrySet()) {
+                w.writeElement(e.getKey().toString(), e.getValue());
+            }
+            w.writeEndElement();
+            w.writeElement("completed", metrics.getCompleted());
+            w.writeElement("rejected", metrics.getRejected());
+            w.writeElement("averageRunMillis", metrics.getAverageRunMillis());
+            w.writeStartArray("repository");
+            for (String repository : metrics.getRepositories()) {
+                w.writeStartArrayElement("repository");
+                w.writeElement("location", repository);
+                w.writeElement("running", metrics.getRunning(repository));
+                w.writeElement("waiting", metrics.getWaiting(repository));
+                w.writeEndArrayElement();
+            }
+            w.writeEndArray();
             w.writeEndElement();
         }
 
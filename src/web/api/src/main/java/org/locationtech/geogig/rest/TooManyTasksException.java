@@ -0,0 +1,56 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.rest;
+
+import org.restlet.data.Form;
+import org.restlet.data.Response;
+import org.restlet.data.Status;
+
+/**
+ * Thrown by {@link AsyncContext} when a repository has too many tasks waiting to run, to be
+ * reported as a {@code 429 Too Many Requests} response with a {@code Retry-After} header.
+ */
+public class TooManyTasksException extends RestletException {
+
+    private static final long serialVersionUID = 2868312435526434721L;
+
+    public static final Status TOO_MANY_REQUESTS = new Status(429, "Too Many Requests",
+            "The user has sent too many requests in a given amount of time",
+            "https://tools.ietf.org/html/rfc6585#section-4");
+
+    private static final String HEADERS_ATTRIBUTE = "org.restlet.http.headers";
+
+    private final int retryAfterSeconds;
+
+    public TooManyTasksException(String message, int retryAfterSeconds) {
+        super(message, TOO_MANY_REQUESTS);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * @return the estimated number of seconds until the task would be accepted
+     */
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    /**
+     * Sets the status and {@code Retry-After} header of the response
+     */
+    public void setStatus(Response response) {
+        response.setStatus(getStatus());
+        Form headers = (Form) response.getAttributes().get(HEADERS_ATTRIBUTE);
+        if (headers == null) {
+            headers = new Form();
+            response.getAttributes().put(HEADERS_ATTRIBUTE, headers);
+        }
+        headers.add("Retry-After", String.valueOf(retryAfterSeconds));
+    }
+}
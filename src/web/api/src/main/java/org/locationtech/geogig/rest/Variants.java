@@ -25,6 +25,9 @@ public class Variants {
     public static final MediaType GEOPKG_MEDIA_TYPE = new MediaType(
             "application/octet-stream;type=geopackage", "GeoPackage database file");
 
+    public static final MediaType CBOR_MEDIA_TYPE = new MediaType("application/cbor",
+            "Concise Binary Object Representation");
+
     public static final Variant JSON = new Variant(MediaType.APPLICATION_JSON);
 
     public static final Variant XML = new Variant(MediaType.APPLICATION_XML);
@@ -37,6 +40,8 @@ public class Variants {
 
     public static final Variant GEOPKG = new Variant(GEOPKG_MEDIA_TYPE);
 
+    public static final Variant CBOR = new Variant(CBOR_MEDIA_TYPE);
+
     public static Optional<Variant> getVariantByExtension(Request request, List<Variant> supported) {
         String extension = RESTUtils.getStringAttribute(request, "extension");
         Variant v = null;
@@ -50,6 +55,8 @@ public class Variants {
             v = GEOPKG;
         } else if ("txt".equals(extension) && supported.contains(TEXT_PLAIN)) {
             v = TEXT_PLAIN;
+        } else if ("cbor".equals(extension) && supported.contains(CBOR)) {
+            v = CBOR;
         }
         return Optional.fromNullable(v);
     }
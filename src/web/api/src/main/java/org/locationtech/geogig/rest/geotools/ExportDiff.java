@@ -19,6 +19,7 @@ import org.locationtech.geogig.geotools.plumbing.DataStoreExportOp;
 import org.locationtech.geogig.rest.AsyncCommandRepresentation;
 import org.locationtech.geogig.rest.AsyncContext;
 import org.locationtech.geogig.rest.AsyncContext.AsyncCommand;
+import org.locationtech.geogig.rest.AsyncContext.Priority;
 import org.locationtech.geogig.rest.Representations;
 import org.locationtech.geogig.rest.geopkg.GeoPkgExportDiffOutputFormat;
 import org.locationtech.geogig.rest.geotools.Export.OutputFormat;
@@ -147,7 +148,9 @@ public class ExportDiff extends AbstractWebAPICommand {
         if (asyncContext == null) {
             asyncContext = AsyncContext.get();
         }
-        final AsyncCommand<?> asyncCommand = asyncContext.run(command, commandDescription);
+        // exports may take long, let imports and other repository updates go first
+        final AsyncCommand<?> asyncCommand = asyncContext.run(command, commandDescription,
+                Priority.LOW);
 
         Function<MediaType, Representation> rep = new Function<MediaType, Representation>() {
 
@@ -24,6 +24,7 @@ import org.locationtech.geogig.geotools.plumbing.ImportOp;
 import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.repository.Context;
 import org.locationtech.geogig.rest.AsyncContext;
+import org.locationtech.geogig.rest.TooManyTasksException;
 import org.locationtech.geogig.rest.TransactionalResource;
 import org.locationtech.geogig.rest.Variants;
 import org.locationtech.geogig.rest.geotools.ImportRepresentation;
@@ -69,7 +70,13 @@ public class PGImport extends TransactionalResource {
         AsyncContext.AsyncCommand<RevTree> asyncCommand;
 
         URI repo = context.repository().getLocation();
-        asyncCommand = AsyncContext.get().run(command, getCommandDescription(table, all, repo));
+        try {
+            asyncCommand = AsyncContext.get().run(command,
+                    getCommandDescription(table, all, repo));
+        } catch (TooManyTasksException e) {
+            e.setStatus(getResponse());
+            return e.getRepresentation();
+        }
 
         final String rootPath = request.getRootRef().toString();
         MediaType mediaType = variant.getMediaType();
@@ -72,7 +72,7 @@ public class ApplyChangesResource extends Finder {
             InputStream input = null;
             ObjectId newCommitId = ObjectId.NULL;
             try {
-                input = getRequest().getEntity().getStream();
+                input = TransportEncoding.decode(getRequest().getEntity());
                 final Repository repository = getGeogig(getRequest()).get();
 
                 // read in commit object
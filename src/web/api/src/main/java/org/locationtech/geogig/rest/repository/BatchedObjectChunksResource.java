@@ -0,0 +1,256 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.rest.repository;
+
+import static org.locationtech.geogig.web.api.RESTUtils.getGeogig;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.plumbing.CreateDeduplicator;
+import org.locationtech.geogig.remote.http.ChunkedFetch;
+import org.locationtech.geogig.remote.http.ChunkedFetch.Plan;
+import org.locationtech.geogig.remote.http.DeltaPack;
+import org.locationtech.geogig.repository.Repository;
+import org.locationtech.geogig.repository.impl.Deduplicator;
+import org.locationtech.geogig.web.api.StreamResponse;
+import org.locationtech.geogig.web.api.StreamWriterRepresentation;
+import org.restlet.Context;
+import org.restlet.Finder;
+import org.restlet.data.Form;
+import org.restlet.data.MediaType;
+import org.restlet.data.Request;
+import org.restlet.data.Response;
+import org.restlet.data.Status;
+import org.restlet.resource.OutputRepresentation;
+import org.restlet.resource.Representation;
+import org.restlet.resource.Resource;
+import org.restlet.resource.StringRepresentation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Serves the objects of a fetch in independently addressable, checksummed chunks, as described in
+ * {@link ChunkedFetch}.
+ * <p>
+ * A {@code POST} with the {@code want}/{@code have} message {@link BatchedObjectResource} takes,
+ * plus an optional {@code chunkSize}, responds with the fetch's manifest. The list of objects to
+ * send is computed once and kept for an hour after it's last accessed, up to {@value #MAX_PLANS}
+ * fetches at a time, and each chunk is then served through
+ * {@code GET ?fetchId=<id>&chunk=<n>}, which responds with a {@code 404 Not Found} status if the
+ * fetch is unknown, so that the client requests the manifest again. Chunks are
+ * {@link DeltaPack delta packs} if the request sets the {@value DeltaPack#CAPABILITY} property.
+ */
+public class BatchedObjectChunksResource extends Finder {
+
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(BatchedObjectChunksResource.class);
+
+    private static final int MIN_CHUNK_SIZE = 100;
+
+    private static final int MAX_CHUNK_SIZE = 1_000_000;
+
+    private static final int MAX_PLANS = 100;
+
+    /**
+     * Closes evicted plans, which deletes their ids files once the requests still reading them
+     * are done
+     */
+    private static final RemovalListener<String, Plan> DISPOSER = (n) -> n.getValue().close();
+
+    /**
+     * Fetch plans by repository location and fetch id
+     */
+    private static final Cache<String, Plan> PLANS = CacheBuilder.newBuilder()
+            .maximumSize(MAX_PLANS).expireAfterAccess(1, TimeUnit.HOURS)
+            .removalListener(DISPOSER).build();
+
+    @Override
+    public Resource findTarget(Request request, Response response) {
+        return new ChunksResource(getContext(), request, response);
+    }
+
+    private static String key(Repository repository, String fetchId) {
+        return repository.getLocation() + "#" + fetchId;
+    }
+
+    private static class ChunksResource extends Resource {
+
+        public ChunksResource(Context context, Request request, Response response) {
+            super(context, request, response);
+        }
+
+        @Override
+        public boolean allowPost() {
+            return true;
+        }
+
+        @Override
+        public void post(Representation entity) {
+            final JsonElement messageJson;
+            try (InputStream in = entity.getStream(); Reader body = new InputStreamReader(in)) {
+                messageJson = new JsonParser().parse(body);
+            } catch (IOException e) {
+                throw Throwables.propagate(e);
+            }
+            LOGGER.debug("Serving request to plan chunked fetch based on message {}",
+                    messageJson);
+            final List<ObjectId> want = new ArrayList<ObjectId>();
+            final List<ObjectId> have = new ArrayList<ObjectId>();
+            int chunkSize = ChunkedFetch.DEFAULT_CHUNK_SIZE;
+            boolean deltas = false;
+            if (messageJson.isJsonObject()) {
+                final JsonObject message = messageJson.getAsJsonObject();
+                deltas = message.has(DeltaPack.CAPABILITY)
+                        && message.get(DeltaPack.CAPABILITY).getAsBoolean();
+                parseIds(message, "want", want);
+                parseIds(message, "have", have);
+                if (message.has("chunkSize")) {
+                    chunkSize = message.get("chunkSize").getAsInt();
+                    chunkSize = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, chunkSize));
+                }
+            }
+
+            final Repository repository = getGeogig(getRequest()).get();
+            final String fetchId = ChunkedFetch.fetchId(want, have, chunkSize, deltas);
+            final int planChunkSize = chunkSize;
+            final boolean planDeltas = deltas;
+            final Plan plan;
+            try {
+                plan = PLANS.get(key(repository, fetchId),
+                        () -> createPlan(repository, want, have, planChunkSize, planDeltas));
+            } catch (ExecutionException e) {
+                throw Throwables.propagate(e.getCause());
+            }
+            String manifest = new Gson().toJson(plan.getManifest().toJson());
+            getResponse().setEntity(new StringRepresentation(manifest, MediaType.APPLICATION_JSON));
+        }
+
+        private static void parseIds(JsonObject message, String property, List<ObjectId> target) {
+            if (message.has(property) && message.get(property).isJsonArray()) {
+                JsonArray array = message.get(property).getAsJsonArray();
+                for (final JsonElement e : array) {
+                    if (e.isJsonPrimitive()) {
+                        target.add(ObjectId.valueOf(e.getAsJsonPrimitive().getAsString()));
+                    }
+                }
+            }
+        }
+
+        private static Plan createPlan(Repository repository, List<ObjectId> want,
+                List<ObjectId> have, int chunkSize, boolean deltas) throws IOException {
+            final Deduplicator deduplicator = repository.command(CreateDeduplicator.class).call()
+                    .createDeduplicator();
+            try {
+                File tmpDir = new File(System.getProperty("java.io.tmpdir"));
+                Plan plan = Plan.create(repository.objectDatabase(), want, have, chunkSize, false,
+                        deltas, deduplicator, tmpDir);
+                LOGGER.info("Planned chunked fetch {}", plan.getManifest());
+                return plan;
+            } finally {
+                deduplicator.release();
+            }
+        }
+
+        @Override
+        public void handleGet() {
+            final Repository repository = getGeogig(getRequest()).get();
+            final Form options = getRequest().getResourceRef().getQueryAsForm();
+            final String fetchId = options.getFirstValue("fetchId");
+            final String chunkParam = options.getFirstValue("chunk");
+            if (fetchId == null || chunkParam == null) {
+                error(Status.CLIENT_ERROR_BAD_REQUEST, "fetchId and chunk are mandatory.");
+                return;
+            }
+            final int chunk;
+            try {
+                chunk = Integer.parseInt(chunkParam);
+            } catch (NumberFormatException e) {
+                error(Status.CLIENT_ERROR_BAD_REQUEST, "Invalid chunk index: " + chunkParam);
+                return;
+            }
+            final Plan plan = PLANS.getIfPresent(key(repository, fetchId));
+            // the plan may be evicted and closed concurrently
+            if (plan == null || !plan.retain()) {
+                error(Status.CLIENT_ERROR_NOT_FOUND, "Unknown fetch: " + fetchId);
+                return;
+            }
+            final List<ObjectId> ids;
+            try {
+                if (chunk < 0 || chunk >= plan.getManifest().getNumChunks()) {
+                    error(Status.CLIENT_ERROR_BAD_REQUEST, "Chunk index out of bounds: " + chunk);
+                    return;
+                }
+                // read the ids now, the representation is written after the plan is released
+                ids = plan.getChunkIds(chunk);
+            } catch (IOException e) {
+                throw Throwables.propagate(e);
+            } finally {
+                plan.release();
+            }
+            getResponse().setEntity(TransportEncoding.encode(getRequest(),
+                    new ChunkRepresentation(repository, plan, chunk, ids)));
+        }
+
+        private void error(Status status, String message) {
+            getResponse().setStatus(status);
+            getResponse().setEntity(new StreamWriterRepresentation(MediaType.TEXT_PLAIN,
+                    StreamResponse.error(message)));
+        }
+    }
+
+    private static class ChunkRepresentation extends OutputRepresentation {
+
+        private final Repository repository;
+
+        private final Plan plan;
+
+        private final int chunk;
+
+        private final List<ObjectId> ids;
+
+        public ChunkRepresentation(Repository repository, Plan plan, int chunk,
+                List<ObjectId> ids) {
+            super(MediaType.APPLICATION_OCTET_STREAM);
+            this.repository = repository;
+            this.plan = plan;
+            this.chunk = chunk;
+            this.ids = ids;
+        }
+
+        @Override
+        public void write(final OutputStream out) throws IOException {
+            plan.writeChunk(ids, repository.objectDatabase(), out);
+            if (plan.getManifest().isDeltas()) {
+                LOGGER.debug("Sent chunk {} of {}, {}", chunk, plan.getManifest().getFetchId(),
+                        plan.getPackStats());
+            }
+        }
+    }
+}
@@ -18,15 +18,20 @@ import java.io.OutputStream;
 import java.io.Reader;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
+import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.plumbing.CreateDeduplicator;
+import org.locationtech.geogig.porcelain.TransferSummary.PackStats;
 import org.locationtech.geogig.remote.ObjectFunnel;
 import org.locationtech.geogig.remote.ObjectFunnels;
 import org.locationtech.geogig.remote.http.BinaryPackedObjects;
+import org.locationtech.geogig.remote.http.DeltaPack;
 import org.locationtech.geogig.repository.Repository;
 import org.locationtech.geogig.repository.impl.DeduplicationService;
 import org.locationtech.geogig.repository.impl.Deduplicator;
+import org.locationtech.geogig.storage.ObjectStore;
 import org.locationtech.geogig.storage.datastream.DataStreamSerializationFactoryV1;
 import org.restlet.Context;
 import org.restlet.Finder;
@@ -48,11 +53,17 @@ import com.google.gson.JsonParser;
 
 /**
  * Takes a set of commit Ids and packs up their contents into a binary stream to send to the client.
+ * <p>
+ * The stream is a {@link DeltaPack delta pack} if the client asks for it setting the
+ * {@value DeltaPack#CAPABILITY} property of the request.
  */
 public class BatchedObjectResource extends Finder {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(BatchedObjectResource.class);
 
+    private static final MediaType DELTA_PACK_MEDIA_TYPE = new MediaType(DeltaPack.MEDIA_TYPE,
+            "Delta compressed GeoGig objects");
+
     @Override
     public Resource findTarget(Request request, Response response) {
         return new ObjectResource(getContext(), request, response);
@@ -86,9 +97,12 @@ public class BatchedObjectResource extends Finder {
             LOGGER.info("Serving request to send objects based on message {}", messageJson);
             final List<ObjectId> want = new ArrayList<ObjectId>();
             final List<ObjectId> have = new ArrayList<ObjectId>();
+            boolean deltas = false;
 
             if (messageJson.isJsonObject()) {
                 final JsonObject message = messageJson.getAsJsonObject();
+                deltas = message.has(DeltaPack.CAPABILITY)
+                        && message.get(DeltaPack.CAPABILITY).getAsBoolean();
                 final JsonArray wantArray;
                 final JsonArray haveArray;
                 if (message.has("want") && message.get("want").isJsonArray()) {
@@ -120,9 +134,9 @@ public class BatchedObjectResource extends Finder {
             final Deduplicator deduplicator = deduplicatorService.createDeduplicator();
             BinaryPackedObjects packer = new BinaryPackedObjects(repository.objectDatabase());
             Representation rep = new RevObjectBinaryRepresentation(packer, want, have,
-                    deduplicator);
+                    deduplicator, deltas ? repository.objectDatabase() : null);
             Response response = getResponse();
-            response.setEntity(rep);
+            response.setEntity(TransportEncoding.encode(request, rep));
         }
     }
 
@@ -135,17 +149,27 @@ public class BatchedObjectResource extends Finder {
 
         private Deduplicator deduplicator;
 
+        @Nullable
+        private final ObjectStore deltaBases;
+
+        /**
+         * @param deltaBases if not null, the database to find delta bases in to send a
+         *        {@link DeltaPack delta pack}
+         */
         public RevObjectBinaryRepresentation( //
                 BinaryPackedObjects packer, //
                 List<ObjectId> want, //
                 List<ObjectId> have, //
-                Deduplicator deduplicator) //
+                Deduplicator deduplicator, //
+                @Nullable ObjectStore deltaBases) //
         {
-            super(MediaType.APPLICATION_OCTET_STREAM);
+            super(deltaBases == null ? MediaType.APPLICATION_OCTET_STREAM
+                    : DELTA_PACK_MEDIA_TYPE);
             this.packer = packer;
             this.want = want;
             this.have = have;
             this.deduplicator = deduplicator;
+            this.deltaBases = deltaBases;
         }
 
         @Override
@@ -154,10 +178,21 @@ public class BatchedObjectResource extends Finder {
             OutputStream output = counting;
             try {
                 ObjectFunnel funnel;
-                funnel = ObjectFunnels.newFunnel(output, DataStreamSerializationFactoryV1.INSTANCE);
+                PackStats stats = null;
+                if (deltaBases == null) {
+                    funnel = ObjectFunnels.newFunnel(output,
+                            DataStreamSerializationFactoryV1.INSTANCE);
+                } else {
+                    stats = new PackStats();
+                    Map<ObjectId, ObjectId> bases = DeltaPack.findBases(deltaBases, want, have);
+                    funnel = DeltaPack.newFunnel(output, deltaBases, bases, stats);
+                }
                 packer.write(funnel, want, have, false, deduplicator);
                 counting.flush();
                 funnel.close();
+                if (stats != null) {
+                    LOGGER.info("Sent delta pack: {}", stats);
+                }
             } catch (IOException e) {
                 e.printStackTrace();
                 throw e;
@@ -33,7 +33,9 @@ public class BeginPush extends Resource {
         super.init(context, request, response);
         List<Variant> variants = getVariants();
 
-        variants.add(new BeginPushRepresentation());
+        // encoded with the client's preferred codec, so it knows the codecs objects can be pushed
+        // with
+        variants.add(TransportEncoding.encode(request, new BeginPushRepresentation()));
     }
 
     private class BeginPushRepresentation extends WriterRepresentation {
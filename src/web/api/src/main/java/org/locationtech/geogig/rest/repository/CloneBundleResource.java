@@ -0,0 +1,234 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.rest.repository;
+
+import static org.locationtech.geogig.web.api.RESTUtils.getGeogig;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.locationtech.geogig.model.Ref;
+import org.locationtech.geogig.model.SymRef;
+import org.locationtech.geogig.plumbing.RefParse;
+import org.locationtech.geogig.remote.http.CloneBundle;
+import org.locationtech.geogig.remote.http.CloneBundleStore;
+import org.locationtech.geogig.repository.Repository;
+import org.locationtech.geogig.web.api.StreamResponse;
+import org.locationtech.geogig.web.api.StreamWriterRepresentation;
+import org.restlet.data.Form;
+import org.restlet.data.MediaType;
+import org.restlet.data.Status;
+import org.restlet.resource.OutputRepresentation;
+import org.restlet.resource.Resource;
+import org.restlet.resource.StringRepresentation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.Gson;
+
+/**
+ * Serves the {@link CloneBundle clone bundles} of the repository's refs.
+ * <p>
+ * {@code GET ?ref=<ref name>} responds with the descriptor of the ref's bundle, or with a
+ * {@code 404 Not Found} status if there's none yet. Either way, if the bundle is missing or
+ * behind the ref, a refresh is scheduled in the background, so that no request waits for the
+ * history to be traversed.
+ * <p>
+ * {@code GET ?ref=<ref name>&generation=<generation>&size=<size>} responds with the first
+ * {@code size} bytes of the bundle, or the part of them given by a {@code Range: bytes=<from>-[to]}
+ * header with a {@code 206 Partial Content} status. It responds with a {@code 404 Not Found}
+ * status if the bundle generation was replaced, so that the client starts over.
+ */
+public class CloneBundleResource extends Resource {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CloneBundleResource.class);
+
+    private static final String HEADERS_ATTRIBUTE = "org.restlet.http.headers";
+
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d*)");
+
+    private static final ConcurrentMap<URI, CloneBundleStore> STORES = new ConcurrentHashMap<>();
+
+    /**
+     * Bundles being refreshed or waiting to, by repository location and ref name
+     */
+    private static final Set<String> REFRESHING = ConcurrentHashMap.newKeySet();
+
+    private static final ExecutorService REFRESHER = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("geogig-bundles-%d").build());
+
+    @Override
+    public void handleGet() {
+        final Repository repository = getGeogig(getRequest()).get();
+        final Form options = getRequest().getResourceRef().getQueryAsForm();
+        final String refName = options.getFirstValue("ref");
+        if (refName == null) {
+            error(Status.CLIENT_ERROR_BAD_REQUEST, "ref is mandatory.");
+            return;
+        }
+        final Optional<Ref> ref = repository.command(RefParse.class).setName(refName).call();
+        if (!ref.isPresent() || ref.get() instanceof SymRef) {
+            error(Status.CLIENT_ERROR_NOT_FOUND, "Unknown ref: " + refName);
+            return;
+        }
+        final CloneBundleStore store = STORES.computeIfAbsent(repository.getLocation(),
+                (location) -> new CloneBundleStore(CloneBundleStore.defaultDirectory(location)));
+        final Optional<CloneBundle> bundle;
+        try {
+            bundle = store.get(ref.get().getName());
+        } catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+        if (!bundle.isPresent() || !bundle.get().getTip().equals(ref.get().getObjectId())) {
+            scheduleRefresh(repository, store, ref.get().getName());
+        }
+        final String generation = options.getFirstValue("generation");
+        if (generation == null) {
+            if (bundle.isPresent()) {
+                getResponse().setEntity(new StringRepresentation(
+                        new Gson().toJson(bundle.get().toJson()), MediaType.APPLICATION_JSON));
+            } else {
+                error(Status.CLIENT_ERROR_NOT_FOUND,
+                        "No clone bundle for " + ref.get().getName() + " yet");
+            }
+            return;
+        }
+        final long size;
+        try {
+            size = Long.parseLong(options.getFirstValue("size"));
+        } catch (NumberFormatException e) {
+            error(Status.CLIENT_ERROR_BAD_REQUEST,
+                    "Invalid size: " + options.getFirstValue("size"));
+            return;
+        }
+        if (!bundle.isPresent() || !bundle.get().getGeneration().equals(generation)
+                || size < 0 || size > bundle.get().getSize()) {
+            error(Status.CLIENT_ERROR_NOT_FOUND,
+                    "Clone bundle no longer available: " + generation);
+            return;
+        }
+        serve(store, bundle.get(), size);
+    }
+
+    private void serve(final CloneBundleStore store, final CloneBundle bundle, final long size) {
+        long from = 0;
+        long to = size;
+        final Form headers = (Form) getRequest().getAttributes().get(HEADERS_ATTRIBUTE);
+        final String range = headers == null ? null : headers.getFirstValue("Range", true);
+        if (range != null) {
+            Matcher matcher = RANGE.matcher(range.trim());
+            if (matcher.matches()) {
+                from = Long.parseLong(matcher.group(1));
+                if (!matcher.group(2).isEmpty()) {
+                    to = Math.min(size, Long.parseLong(matcher.group(2)) + 1);
+                }
+                if (from >= to) {
+                    error(Status.CLIENT_ERROR_REQUESTED_RANGE_NOT_SATISFIABLE,
+                            "Invalid range: " + range);
+                    return;
+                }
+                getResponse().setStatus(Status.SUCCESS_PARTIAL_CONTENT);
+                addResponseHeader("Content-Range",
+                        String.format("bytes %d-%d/%d", from, to - 1, size));
+            }
+            // other range units and multiple ranges are not supported, send the whole bundle
+        }
+        LOGGER.debug("Serving bytes {} to {} of {}", from, to, bundle);
+        getResponse().setEntity(TransportEncoding.encode(getRequest(),
+                new BundleRepresentation(store, bundle, from, to)));
+    }
+
+    private void addResponseHeader(String name, String value) {
+        Form headers = (Form) getResponse().getAttributes().get(HEADERS_ATTRIBUTE);
+        if (headers == null) {
+            headers = new Form();
+            getResponse().getAttributes().put(HEADERS_ATTRIBUTE, headers);
+        }
+        headers.add(name, value);
+    }
+
+    private static void scheduleRefresh(final Repository repository, final CloneBundleStore store,
+            final String refName) {
+        final String key = repository.getLocation() + "#" + refName;
+        if (!REFRESHING.add(key)) {
+            return;
+        }
+        REFRESHER.execute(() -> {
+            try {
+                // the repository may have been closed (e.g. evicted from the repository cache)
+                // since the refresh was scheduled, the next request will schedule it again
+                if (!repository.isOpen()) {
+                    LOGGER.debug("Repository closed, not refreshing the clone bundle of {}", key);
+                    return;
+                }
+                // the ref may have moved since the refresh was scheduled
+                Optional<Ref> ref = repository.command(RefParse.class).setName(refName).call();
+                if (ref.isPresent()) {
+                    store.refresh(repository, ref.get());
+                }
+            } catch (Exception e) {
+                if (repository.isOpen()) {
+                    LOGGER.warn("Error refreshing the clone bundle of {}", key, e);
+                } else {
+                    // closed while refreshing, the partial contents are ignored by the store
+                    LOGGER.debug("Repository closed while refreshing the clone bundle of {}",
+                            key, e);
+                }
+            } finally {
+                REFRESHING.remove(key);
+            }
+        });
+    }
+
+    private void error(Status status, String message) {
+        getResponse().setStatus(status);
+        getResponse().setEntity(new StreamWriterRepresentation(MediaType.TEXT_PLAIN,
+                StreamResponse.error(message)));
+    }
+
+    private static class BundleRepresentation extends OutputRepresentation {
+
+        private final CloneBundleStore store;
+
+        private final CloneBundle bundle;
+
+        private final long from;
+
+        private final long to;
+
+        BundleRepresentation(CloneBundleStore store, CloneBundle bundle, long from, long to) {
+            super(MediaType.APPLICATION_OCTET_STREAM);
+            this.store = store;
+            this.bundle = bundle;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public void write(final OutputStream out) throws IOException {
+            try (InputStream in = ByteStreams.limit(store.open(bundle, from), to - from)) {
+                ByteStreams.copy(in, out);
+            }
+        }
+    }
+}
@@ -9,6 +9,8 @@
  */
 package org.locationtech.geogig.rest.repository;
 
+import static org.locationtech.geogig.rest.Variants.CBOR;
+import static org.locationtech.geogig.rest.Variants.CBOR_MEDIA_TYPE;
 import static org.locationtech.geogig.rest.Variants.CSV;
 import static org.locationtech.geogig.rest.Variants.CSV_MEDIA_TYPE;
 import static org.locationtech.geogig.rest.Variants.JSON;
@@ -33,6 +35,7 @@ import javax.xml.parsers.ParserConfigurationException;
 import org.locationtech.geogig.repository.Repository;
 import org.locationtech.geogig.repository.impl.RepositoryBusyException;
 import org.locationtech.geogig.rest.RestletException;
+import org.locationtech.geogig.rest.TooManyTasksException;
 import org.locationtech.geogig.web.api.CommandBuilder;
 import org.locationtech.geogig.web.api.CommandContext;
 import org.locationtech.geogig.web.api.CommandResponse;
@@ -78,6 +81,7 @@ public class CommandResource extends Resource {
         variants.add(XML);
         variants.add(JSON);
         variants.add(CSV);
+        variants.add(CBOR);
 
         final String commandName = getCommandName();
         command = buildCommand(commandName);
@@ -198,6 +202,9 @@ public class CommandResource extends Resource {
         } catch (CommandSpecException ex) {
             representation = formatException(ex, format);
             getResponse().setStatus(ex.getStatus());
+        } catch (TooManyTasksException ex) {
+            representation = ex.getRepresentation();
+            ex.setStatus(getResponse());
         } catch (RestletException ex) {
             representation = ex.getRepresentation();
             getResponse().setStatus(ex.getStatus());
@@ -316,6 +323,8 @@ public class CommandResource extends Resource {
                 retval = MediaType.APPLICATION_JSON;
             } else if (requested.equalsIgnoreCase("csv")) {
                 retval = CSV_MEDIA_TYPE;
+            } else if (requested.equalsIgnoreCase("cbor")) {
+                retval = CBOR_MEDIA_TYPE;
             } else {
                 throw new RestletException("Invalid output_format '" + requested + "'",
                         org.restlet.data.Status.CLIENT_ERROR_BAD_REQUEST);
@@ -367,9 +376,10 @@ public class CommandResource extends Resource {
                 }
                 return new StreamWriterRepresentation(format, streamContent);
             }
-            if (format != MediaType.APPLICATION_JSON && format != MediaType.APPLICATION_XML) {
+            if (format != MediaType.APPLICATION_JSON && format != MediaType.APPLICATION_XML
+                    && format != CBOR_MEDIA_TYPE) {
                 throw new CommandSpecException(
-                        "Unsupported Media Type: This response is only compatible with application/json and application/xml.");
+                        "Unsupported Media Type: This response is only compatible with application/json, application/xml and application/cbor.");
             }
             return new CommandResponseStreamingWriterRepresentation(format, responseContent, callback);
         }
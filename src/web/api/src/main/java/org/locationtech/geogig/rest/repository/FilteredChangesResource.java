@@ -164,8 +164,9 @@ public class FilteredChangesResource extends Finder {
                     }
                 };
 
-                getResponse().setEntity(new FilteredDiffIteratorRepresentation(
-                        new BinaryPackedChanges(repository), filteredChanges));
+                getResponse().setEntity(TransportEncoding.encode(getRequest(),
+                        new FilteredDiffIteratorRepresentation(new BinaryPackedChanges(repository),
+                                filteredChanges)));
 
             } catch (Exception e) {
                 throw new RuntimeException(e);
@@ -45,6 +45,10 @@ public class FixedEncoder extends Encoder {
     @Override
     public Representation encode(ClientInfo client, Representation representation) {
         Representation result = representation;
+        if (isEncoded(representation)) {
+            // already encoded by the resource, see TransportEncoding
+            return result;
+        }
         Encoding bestEncoding = getBestEncoding(client);
 
         if (bestEncoding != null && !Encoding.IDENTITY.equals(bestEncoding)) {
@@ -54,6 +58,15 @@ public class FixedEncoder extends Encoder {
         return result;
     }
 
+    private static boolean isEncoded(Representation representation) {
+        for (Encoding encoding : representation.getEncodings()) {
+            if (!Encoding.IDENTITY.equals(encoding)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private static final class FixedEncoderRepresentation extends EncodeRepresentation {
 
         public FixedEncoderRepresentation(Encoding encoding, Representation wrappedRepresentation) {
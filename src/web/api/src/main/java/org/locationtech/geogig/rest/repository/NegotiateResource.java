@@ -0,0 +1,134 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.rest.repository;
+
+import static org.locationtech.geogig.web.api.RESTUtils.getGeogig;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.remote.CommitNegotiator;
+import org.locationtech.geogig.repository.Repository;
+import org.locationtech.geogig.storage.ObjectDatabase;
+import org.locationtech.geogig.web.api.StreamResponse;
+import org.locationtech.geogig.web.api.StreamWriterRepresentation;
+import org.restlet.data.MediaType;
+import org.restlet.data.Status;
+import org.restlet.resource.Representation;
+import org.restlet.resource.Resource;
+import org.restlet.resource.StringRepresentation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Throwables;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * Server side of the commit negotiation performed by {@link CommitNegotiator}.
+ * <p>
+ * A {@code POST} with a JSON message of the form
+ * {@code {"have":["<commit id>",...], "want":["<commit id>",...]}} responds with the ids in
+ * {@code have} that exist in the repository as {@code common}, and, if {@code want} is given, the
+ * commits reachable from {@code want} and not from {@code have}, parents before children, as
+ * {@code commits}.
+ */
+public class NegotiateResource extends Resource {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NegotiateResource.class);
+
+    @Override
+    public boolean allowPost() {
+        return true;
+    }
+
+    @Override
+    public void post(Representation entity) {
+        final JsonObject message;
+        try (InputStream in = entity.getStream();
+                Reader body = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            JsonElement messageJson = new JsonParser().parse(body);
+            if (!messageJson.isJsonObject()) {
+                error("Expected a JSON object");
+                return;
+            }
+            message = messageJson.getAsJsonObject();
+        } catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+
+        final List<ObjectId> have;
+        final List<ObjectId> want;
+        try {
+            have = parseIds(message, "have");
+            want = parseIds(message, "want");
+        } catch (IllegalArgumentException e) {
+            error(e.getMessage());
+            return;
+        }
+
+        final Repository repository = getGeogig(getRequest()).get();
+        final ObjectDatabase db = repository.objectDatabase();
+        final List<ObjectId> common = new ArrayList<>();
+        for (ObjectId id : have) {
+            if (db.exists(id)) {
+                common.add(id);
+            }
+        }
+        final JsonObject response = new JsonObject();
+        response.add("common", toJsonArray(common));
+        if (!want.isEmpty()) {
+            for (ObjectId id : want) {
+                if (!repository.commitExists(id)) {
+                    error("Commit not found: " + id);
+                    return;
+                }
+            }
+            List<ObjectId> commits = CommitNegotiator.missingCommits(db, want, common);
+            LOGGER.debug("Negotiated {} missing commits for {} wanted and {} common",
+                    commits.size(), want.size(), common.size());
+            response.add("commits", toJsonArray(commits));
+        }
+        getResponse().setEntity(
+                new StringRepresentation(new Gson().toJson(response), MediaType.APPLICATION_JSON));
+    }
+
+    private void error(String message) {
+        getResponse().setStatus(Status.CLIENT_ERROR_BAD_REQUEST);
+        getResponse().setEntity(new StreamWriterRepresentation(MediaType.TEXT_PLAIN,
+                StreamResponse.error(message)));
+    }
+
+    private static List<ObjectId> parseIds(JsonObject message, String property) {
+        List<ObjectId> ids = new ArrayList<>();
+        if (message.has(property) && message.get(property).isJsonArray()) {
+            for (JsonElement e : message.get(property).getAsJsonArray()) {
+                ids.add(ObjectId.valueOf(e.getAsString()));
+            }
+        }
+        return ids;
+    }
+
+    private static JsonArray toJsonArray(List<ObjectId> ids) {
+        JsonArray array = new JsonArray();
+        ids.forEach((id) -> array.add(new JsonPrimitive(id.toString())));
+        return array;
+    }
+}
@@ -19,8 +19,11 @@ public class RepositoryRouter extends Router {
         attach("/manifest", ManifestResource.class);
         attach("/objects/{id}", new ObjectFinder());
         attach("/batchobjects", new BatchedObjectResource());
+        attach("/batchchunks", new BatchedObjectChunksResource());
         attach("/sendobject", SendObjectResource.class);
         attach("/exists", ObjectExistsResource.class);
+        attach("/negotiate", NegotiateResource.class);
+        attach("/bundle", CloneBundleResource.class);
         attach("/beginpush", BeginPush.class);
         attach("/endpush", EndPush.class);
         attach("/getdepth", DepthResource.class);
@@ -49,7 +49,7 @@ public class SendObjectResource extends Resource {
         try {
             LOGGER.info("Receiving objects from {}", request.getClientInfo().getAddress());
             Representation representation = request.getEntity();
-            input = representation.getStream();
+            input = TransportEncoding.decode(representation);
             final Repository repo = getGeogig(request).get();
             final BinaryPackedObjects unpacker = new BinaryPackedObjects(repo.objectDatabase());
 
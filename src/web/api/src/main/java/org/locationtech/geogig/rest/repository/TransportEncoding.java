@@ -0,0 +1,142 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.rest.repository;
+
+import static org.locationtech.geogig.web.api.RESTUtils.getGeogig;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.locationtech.geogig.porcelain.ConfigGet;
+import org.locationtech.geogig.remote.http.StreamCodec;
+import org.locationtech.geogig.repository.Repository;
+import org.restlet.data.Encoding;
+import org.restlet.data.Preference;
+import org.restlet.data.Request;
+import org.restlet.resource.OutputRepresentation;
+import org.restlet.resource.Representation;
+
+import com.google.common.base.Optional;
+
+/**
+ * Applies the {@link StreamCodec transport codecs} to the object and change streams exchanged with
+ * remote clients.
+ * <p>
+ * {@code gzip} is left to the application's encoder and decoder filters as for any other resource,
+ * while the codecs they don't know about ({@code zstd} and {@code lz4}) are applied here, and
+ * only when the client asks for them, so older clients keep getting gzip.
+ */
+final class TransportEncoding {
+
+    private TransportEncoding() {
+        // utility class
+    }
+
+    /**
+     * @return {@code representation} encoded with the codec the client prefers out of the ones
+     *         given by its {@code Accept-Encoding} header
+     */
+    static Representation encode(final Request request, final Representation representation) {
+        final StreamCodec codec = negotiate(request);
+        if (StreamCodec.IDENTITY.equals(codec) || StreamCodec.GZIP.equals(codec)) {
+            return representation;
+        }
+        return new EncodedRepresentation(codec, representation);
+    }
+
+    /**
+     * @return the contents of the request entity, decoded as given by its
+     *         {@code Content-Encoding}
+     */
+    static InputStream decode(final Representation entity) throws IOException {
+        InputStream in = entity.getStream();
+        for (Encoding encoding : entity.getEncodings()) {
+            Optional<StreamCodec> codec = StreamCodec.forName(encoding.getName());
+            if (codec.isPresent() && !StreamCodec.GZIP.equals(codec.get())) {
+                in = codec.get().decode(in);
+            }
+        }
+        return in;
+    }
+
+    static StreamCodec negotiate(final Request request) {
+        List<Preference<Encoding>> accepted = new ArrayList<>(
+                request.getClientInfo().getAcceptedEncodings());
+        // stable sort, the client's order breaks ties
+        accepted.sort((p1, p2) -> Float.compare(p2.getQuality(), p1.getQuality()));
+        List<String> names = new ArrayList<>(accepted.size());
+        for (Preference<Encoding> p : accepted) {
+            if (p.getQuality() > 0f) {
+                names.add(p.getMetadata().getName());
+            }
+        }
+        return StreamCodec.negotiate(names, zstdLevel(request));
+    }
+
+    private static int zstdLevel(final Request request) {
+        Optional<Repository> repository = getGeogig(request);
+        if (repository.isPresent()) {
+            Optional<String> level = repository.get().command(ConfigGet.class)
+                    .setName(StreamCodec.ZSTD_LEVEL_CONFIG_KEY).call();
+            if (level.isPresent()) {
+                try {
+                    int configured = Integer.parseInt(level.get().trim());
+                    StreamCodec.zstd(configured);
+                    return configured;
+                } catch (IllegalArgumentException e) {
+                    // use the default
+                }
+            }
+        }
+        return StreamCodec.DEFAULT_ZSTD_LEVEL;
+    }
+
+    private static class EncodedRepresentation extends OutputRepresentation {
+
+        private final StreamCodec codec;
+
+        private final Representation wrapped;
+
+        EncodedRepresentation(StreamCodec codec, Representation wrapped) {
+            super(wrapped.getMediaType());
+            this.codec = codec;
+            this.wrapped = wrapped;
+            setCharacterSet(wrapped.getCharacterSet());
+            getEncodings().add(new Encoding(codec.getName()));
+        }
+
+        @Override
+        public void write(final OutputStream out) throws IOException {
+            // finish the encoded stream without closing the response stream, nor letting the
+            // wrapped representation close the encoded stream before it's finished
+            OutputStream encoded = codec.encode(nonClosing(out));
+            wrapped.write(nonClosing(encoded));
+            encoded.close();
+        }
+
+        private static OutputStream nonClosing(OutputStream out) {
+            return new FilterOutputStream(out) {
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    flush();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,396 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.web.api;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Implementation of StreamingWriter for writing <a href="https://tools.ietf.org/html/rfc7049">CBOR
+ * </a>, the Concise Binary Object Representation.
+ * <p>
+ * The document has the same structure as the one written by {@link JSONStreamingWriter}: elements
+ * and attributes are map entries, and arrays are arrays of values or maps. Maps and arrays are
+ * written with indefinite length so that the response can be streamed, and values are typed the
+ * same way as in JSON, so that {@code "true"} is a boolean, a numeric string a number, and a
+ * series of zeros (i.e. the NULL ObjectId) a string. Decimal numbers are written as doubles
+ * unless that would lose precision, in which case they're written as decimal fractions.
+ */
+class CBORStreamingWriter implements StreamingWriter {
+
+    private static final int MAJOR_UNSIGNED = 0;
+
+    private static final int MAJOR_NEGATIVE = 1 << 5;
+
+    private static final int MAJOR_BYTES = 2 << 5;
+
+    private static final int MAJOR_TEXT = 3 << 5;
+
+    private static final int START_ARRAY = 0x9F;
+
+    private static final int START_MAP = 0xBF;
+
+    private static final int PAIR = 0x82;
+
+    private static final int TAG_POSITIVE_BIGNUM = 0xC2;
+
+    private static final int TAG_NEGATIVE_BIGNUM = 0xC3;
+
+    private static final int TAG_DECIMAL_FRACTION = 0xC4;
+
+    private static final int FALSE = 0xF4;
+
+    private static final int TRUE = 0xF5;
+
+    private static final int NULL = 0xF6;
+
+    private static final int FLOAT64 = 0xFB;
+
+    private static final int BREAK = 0xFF;
+
+    /**
+     * Upper bound for the number of encoded keys to cache, element names are mostly constants but
+     * some, like feature attribute names, come from the data
+     */
+    private static final int MAX_CACHED_KEYS = 512;
+
+    private final OutputStream out;
+
+    private final Map<String, byte[]> keys = new HashMap<>();
+
+    CBORStreamingWriter(OutputStream out) {
+        this.out = new BufferedOutputStream(out, 16 * 1024);
+    }
+
+    @Override
+    public void writeStartDocument() throws StreamWriterException {
+        write(START_MAP);
+    }
+
+    @Override
+    public void writeEndDocument() throws StreamWriterException {
+        write(BREAK);
+    }
+
+    @Override
+    public void writeStartElement(String name) throws StreamWriterException {
+        writeKey(name);
+        write(START_MAP);
+    }
+
+    @Override
+    public void writeEndElement() throws StreamWriterException {
+        write(BREAK);
+    }
+
+    @Override
+    public void writeElement(String name, @Nullable Object value) throws StreamWriterException {
+        writeKey(name);
+        writeValue(value);
+    }
+
+    @Override
+    public void writeCDataElement(String name, @Nullable Object value)
+            throws StreamWriterException {
+        writeElement(name, value);
+    }
+
+    @Override
+    public void writeStartArray(String name) throws StreamWriterException {
+        writeKey(name);
+        write(START_ARRAY);
+    }
+
+    @Override
+    public void writeEndArray() throws StreamWriterException {
+        write(BREAK);
+    }
+
+    @Override
+    public void writeStartArrayElement(String name) {
+        // array elements are anonymous maps
+        write(START_MAP);
+    }
+
+    @Override
+    public void writeEndArrayElement() {
+        write(BREAK);
+    }
+
+    @Override
+    public void writeArrayElement(String name, @Nullable Object value)
+            throws StreamWriterException {
+        writeValue(value);
+    }
+
+    @Override
+    public void writeCDataArrayElement(String name, @Nullable Object value)
+            throws StreamWriterException {
+        writeArrayElement(name, value);
+    }
+
+    @Override
+    public void writeAttribute(String name, String value) throws StreamWriterException {
+        // attributes are just regular map entries, and always strings, as in JSON
+        writeKey(name);
+        writeText(value);
+    }
+
+    @Override
+    public void close() throws Exception {
+        out.close();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    private void writeKey(String name) {
+        byte[] encoded = keys.get(name);
+        if (encoded == null) {
+            byte[] utf8 = name.getBytes(StandardCharsets.UTF_8);
+            encoded = new byte[headerLength(utf8.length) + utf8.length];
+            int offset = writeHeader(MAJOR_TEXT, utf8.length, encoded);
+            System.arraycopy(utf8, 0, encoded, offset, utf8.length);
+            if (keys.size() < MAX_CACHED_KEYS) {
+                keys.put(name, encoded);
+            }
+        }
+        write(encoded);
+    }
+
+    /**
+     * Writes a value typed as {@link JSONStreamingWriter} does, that is by the contents of its
+     * string representation rather than by its class.
+     */
+    private void writeValue(@Nullable Object value) {
+        final String valStr = value == null ? null : value.toString();
+        if (valStr == null) {
+            write(NULL);
+        } else if ("true".equals(valStr)) {
+            write(TRUE);
+        } else if ("false".equals(valStr)) {
+            write(FALSE);
+        } else if (isInteger(valStr)) {
+            writeInteger(valStr);
+        } else if (isDecimal(valStr)) {
+            writeDecimal(valStr);
+        } else {
+            writeText(valStr);
+        }
+    }
+
+    private void writeInteger(String valStr) {
+        final int digits = valStr.length() - (Character.isDigit(valStr.charAt(0)) ? 0 : 1);
+        if (digits < 19) {
+            long value = Long.parseLong(valStr);
+            if (value == 0 && valStr.length() > 1) {
+                // hack for NULL ObjectId, treat a bunch of zeros as a String
+                writeText(valStr);
+            } else {
+                writeInteger(value);
+            }
+            return;
+        }
+        BigInteger value = new BigInteger(valStr);
+        if (value.signum() == 0) {
+            writeText(valStr);
+        } else {
+            writeInteger(value);
+        }
+    }
+
+    private void writeInteger(long value) {
+        if (value >= 0) {
+            writeHeader(MAJOR_UNSIGNED, value);
+        } else {
+            writeHeader(MAJOR_NEGATIVE, -1 - value);
+        }
+    }
+
+    private void writeInteger(BigInteger value) {
+        if (value.bitLength() < 64) {
+            writeInteger(value.longValue());
+        } else if (value.signum() > 0) {
+            writeBignum(TAG_POSITIVE_BIGNUM, value);
+        } else {
+            writeBignum(TAG_NEGATIVE_BIGNUM, value.negate().subtract(BigInteger.ONE));
+        }
+    }
+
+    private void writeBignum(int tag, BigInteger magnitude) {
+        byte[] bytes = magnitude.toByteArray();
+        // drop the sign byte
+        int offset = bytes[0] == 0 && bytes.length > 1 ? 1 : 0;
+        write(tag);
+        writeHeader(MAJOR_BYTES, bytes.length - offset);
+        try {
+            out.write(bytes, offset, bytes.length - offset);
+        } catch (IOException e) {
+            throw new StreamWriterException(e);
+        }
+    }
+
+    /**
+     * Writes a decimal number as a double if that's lossless, or as a decimal fraction otherwise,
+     * so that the value is as exact as the one written to JSON
+     */
+    private void writeDecimal(String valStr) {
+        final BigDecimal decimal;
+        try {
+            decimal = new BigDecimal(valStr);
+        } catch (NumberFormatException nfe) {
+            // looked like a number but is not, i.e. "1-2"
+            writeText(valStr);
+            return;
+        }
+        final double value = decimal.doubleValue();
+        if (!Double.isInfinite(value) && BigDecimal.valueOf(value).equals(decimal)) {
+            long bits = Double.doubleToLongBits(value);
+            byte[] buff = new byte[9];
+            buff[0] = (byte) FLOAT64;
+            for (int i = 8; i > 0; i--) {
+                buff[i] = (byte) bits;
+                bits >>>= 8;
+            }
+            write(buff);
+        } else {
+            // decimal fraction, an array of exponent and mantissa
+            write(TAG_DECIMAL_FRACTION);
+            write(PAIR);
+            writeInteger(-(long) decimal.scale());
+            writeInteger(decimal.unscaledValue());
+        }
+    }
+
+    private void writeText(String value) {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        writeHeader(MAJOR_TEXT, utf8.length);
+        write(utf8);
+    }
+
+    private void writeHeader(int majorType, long value) {
+        byte[] buff = new byte[9];
+        int length = writeHeader(majorType, value, buff);
+        try {
+            out.write(buff, 0, length);
+        } catch (IOException e) {
+            throw new StreamWriterException(e);
+        }
+    }
+
+    private static int headerLength(long value) {
+        if (value < 24) {
+            return 1;
+        } else if (value < 0x100L) {
+            return 2;
+        } else if (value < 0x10000L) {
+            return 3;
+        } else if (value < 0x100000000L) {
+            return 5;
+        }
+        return 9;
+    }
+
+    /**
+     * Encodes the header of a data item of the given major type and argument, which is either the
+     * value itself for integers or the length of strings
+     *
+     * @return the number of bytes written to {@code buff}
+     */
+    private static int writeHeader(int majorType, long value, byte[] buff) {
+        final int length = headerLength(value);
+        switch (length) {
+        case 1:
+            buff[0] = (byte) (majorType | (int) value);
+            return 1;
+        case 2:
+            buff[0] = (byte) (majorType | 24);
+            break;
+        case 3:
+            buff[0] = (byte) (majorType | 25);
+            break;
+        case 5:
+            buff[0] = (byte) (majorType | 26);
+            break;
+        default:
+            buff[0] = (byte) (majorType | 27);
+        }
+        for (int i = length - 1; i > 0; i--) {
+            buff[i] = (byte) value;
+            value >>>= 8;
+        }
+        return length;
+    }
+
+    private void write(int b) {
+        try {
+            out.write(b);
+        } catch (IOException e) {
+            throw new StreamWriterException(e);
+        }
+    }
+
+    private void write(byte[] bytes) {
+        try {
+            out.write(bytes);
+        } catch (IOException e) {
+            throw new StreamWriterException(e);
+        }
+    }
+
+    /**
+     * @return whether the string is an optionally signed series of digits, as parsed by
+     *         {@link BigInteger#BigInteger(String)}
+     */
+    private static boolean isInteger(String s) {
+        final int length = s.length();
+        int i = 0;
+        if (length > 1 && (s.charAt(0) == '-' || s.charAt(0) == '+')) {
+            i = 1;
+        }
+        if (i == length) {
+            return false;
+        }
+        for (; i < length; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Cheap check for whether the string may be parsed by {@link BigDecimal#BigDecimal(String)},
+     * so that most strings are told apart without the cost of a {@link NumberFormatException}
+     */
+    private static boolean isDecimal(String s) {
+        boolean digit = false;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digit = true;
+            } else if (c != '.' && c != '-' && c != '+' && c != 'e' && c != 'E') {
+                return false;
+            }
+        }
+        return digit;
+    }
+}
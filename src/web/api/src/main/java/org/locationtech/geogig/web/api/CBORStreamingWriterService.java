@@ -0,0 +1,46 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.web.api;
+
+import static org.locationtech.geogig.rest.Variants.CBOR_MEDIA_TYPE;
+
+import java.io.OutputStream;
+import java.io.Writer;
+
+import org.restlet.data.MediaType;
+
+/**
+ * {@link StreamingWriterService} for the {@code application/cbor} binary format.
+ */
+public class CBORStreamingWriterService implements StreamingWriterService {
+
+    @Override
+    public StreamingWriter createWriter(Writer writer) throws StreamWriterException {
+        throw new StreamWriterException(CBOR_MEDIA_TYPE + " is a binary format, it can't be "
+                + "written to a character stream");
+    }
+
+    @Override
+    public StreamingWriter createWriter(OutputStream out) throws StreamWriterException {
+        return new CBORStreamingWriter(out);
+    }
+
+    @Override
+    public boolean isBinary() {
+        return true;
+    }
+
+    @Override
+    public boolean handles(MediaType mediaType) {
+        // true if the main/sub-types match, ignore extra parameters
+        return CBOR_MEDIA_TYPE.equals(mediaType, true);
+    }
+
+}
@@ -10,6 +10,7 @@
 package org.locationtech.geogig.web.api;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Writer;
 
 import org.locationtech.geogig.rest.WriterRepresentation;
@@ -32,22 +33,35 @@ public class CommandResponseStreamingWriterRepresentation extends WriterRepresen
         return StreamingWriterFactory.getStreamWriter(getMediaType(), writer);
     }
 
+    @Override
+    public void write(OutputStream out) throws IOException {
+        if (StreamingWriterFactory.isBinary(getMediaType())) {
+            // binary formats are written straight to the stream, JSONP doesn't apply to them
+            write(StreamingWriterFactory.getStreamWriter(getMediaType(), out));
+        } else {
+            super.write(out);
+        }
+    }
+
     @Override
     public void write(Writer writer) throws IOException {
         if (callback != null) {
             writer.write(callback);
             writer.write('(');
         }
+        write(createWriter(writer));
+        if (callback != null) {
+            writer.write(");");
+        }
+    }
+
+    private void write(StreamingWriter streamWriter) throws IOException {
         try {
-            final StreamingWriter streamWriter = createWriter(writer);
             impl.write(new ResponseWriter(streamWriter, getMediaType()));
             streamWriter.flush();
             impl.close();
         } catch (Exception ex) {
             throw new IOException(ex);
         }
-        if (callback != null) {
-            writer.write(");");
-        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,103 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.web.api;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.restlet.data.Status;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.BaseEncoding;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * An opaque continuation token for paginated command responses, encoding the position the
+ * command's walk shall resume from for the next page, so that a page doesn't need to walk past the
+ * entries of the previous ones.
+ * <p>
+ * Tokens are written as the {@code nextPageToken} element of a page that's followed by more, and
+ * given back through the command's {@code pageToken} parameter.
+ */
+public final class PageToken {
+
+    private static final BaseEncoding ENCODING = BaseEncoding.base64Url().omitPadding();
+
+    private final String kind;
+
+    private final ImmutableList<String> values;
+
+    private PageToken(String kind, List<String> values) {
+        this.kind = kind;
+        this.values = ImmutableList.copyOf(values);
+    }
+
+    /**
+     * @param kind identifies the command the token is for, so that a token for a command is not
+     *        accepted by another
+     * @param values the position of the command's walk
+     */
+    public static PageToken of(String kind, List<String> values) {
+        checkNotNull(kind);
+        return new PageToken(kind, values);
+    }
+
+    public static PageToken of(String kind, String... values) {
+        return of(kind, ImmutableList.copyOf(values));
+    }
+
+    /**
+     * Parses a token as returned by {@link #toString()}
+     *
+     * @throws CommandSpecException if the token is not a valid token of the given kind
+     */
+    public static PageToken parse(String kind, String token) {
+        final List<String> values;
+        try {
+            String json = new String(ENCODING.decode(token), StandardCharsets.UTF_8);
+            ImmutableList.Builder<String> builder = ImmutableList.builder();
+            for (JsonElement e : new JsonParser().parse(json).getAsJsonArray()) {
+                builder.add(e.getAsString());
+            }
+            values = builder.build();
+        } catch (RuntimeException e) {
+            throw invalid(token);
+        }
+        if (values.isEmpty() || !kind.equals(values.get(0))) {
+            throw invalid(token);
+        }
+        return new PageToken(kind, values.subList(1, values.size()));
+    }
+
+    private static CommandSpecException invalid(String token) {
+        return new CommandSpecException("Invalid page token: " + token,
+                Status.CLIENT_ERROR_BAD_REQUEST);
+    }
+
+    public List<String> getValues() {
+        return values;
+    }
+
+    /**
+     * @return the encoded token
+     */
+    @Override
+    public String toString() {
+        JsonArray array = new JsonArray();
+        array.add(new JsonPrimitive(kind));
+        values.forEach((v) -> array.add(new JsonPrimitive(v)));
+        return ENCODING.encode(array.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
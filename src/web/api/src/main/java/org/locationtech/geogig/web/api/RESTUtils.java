@@ -13,6 +13,7 @@ import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 
 import org.locationtech.geogig.repository.Repository;
+import org.locationtech.geogig.rest.Variants;
 import org.locationtech.geogig.rest.repository.RepositoryProvider;
 import org.restlet.data.MediaType;
 import org.restlet.data.Request;
@@ -64,7 +65,8 @@ public class RESTUtils {
                 w.writeAttribute("type", format.toString());
             }
             w.writeEndElement();
-        } else if (MediaType.APPLICATION_JSON.equals(format, true)) {
+        } else if (MediaType.APPLICATION_JSON.equals(format, true)
+                || Variants.CBOR_MEDIA_TYPE.equals(format, true)) {
             w.writeAttribute("href", href);
         }
     }
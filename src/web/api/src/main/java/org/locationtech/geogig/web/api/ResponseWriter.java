@@ -12,6 +12,7 @@ package org.locationtech.geogig.web.api;
 
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -59,6 +60,8 @@ import org.locationtech.geogig.repository.DiffEntry.ChangeType;
 import org.locationtech.geogig.repository.FeatureInfo;
 import org.locationtech.geogig.repository.IndexInfo;
 import org.locationtech.geogig.repository.Remote;
+import org.locationtech.geogig.storage.BulkOpListener;
+import org.locationtech.geogig.storage.ObjectStore;
 import org.locationtech.geogig.storage.text.CrsTextSerializer;
 import org.locationtech.geogig.storage.text.TextValueSerializer;
 import org.locationtech.geogig.web.api.commands.Branch;
@@ -80,8 +83,12 @@ import org.restlet.data.MediaType;
 
 import com.google.common.base.Function;
 import com.google.common.base.Optional;
+import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.Geometry;
 
@@ -90,6 +97,12 @@ import com.vividsolutions.jts.geom.Geometry;
  */
 public class ResponseWriter {
 
+    /**
+     * Number of entries whose objects are fetched in a single bulk query when writing geometry
+     * changes and conflicts
+     */
+    private static final int OBJECT_BATCH_SIZE = 1000;
+
     protected final StreamingWriter out;
 
     private final MediaType format;
@@ -241,14 +254,33 @@ public class ResponseWriter {
      */
     public void writeDiffEntries(String name, int start, int length, Iterator<DiffEntry> entries)
             throws StreamWriterException {
+        writeDiffEntries(name, start, length, entries, null);
+    }
+
+    /**
+     * Writes a set of {@link DiffEntry}s to the stream, followed by a {@code nextPageToken} element
+     * if there are more entries and {@code pageToken} is given.
+     * 
+     * @param name the element name
+     * @param start the change number to start writing from
+     * @param length the number of changes to write
+     * @param entries an iterator for the DiffEntries to write
+     * @param pageToken computes the token to resume the diff after the given last written entry,
+     *        or {@code null} if the diff can't be resumed
+     * @throws StreamWriterException
+     */
+    public void writeDiffEntries(String name, int start, int length, Iterator<DiffEntry> entries,
+            @Nullable Function<DiffEntry, PageToken> pageToken) throws StreamWriterException {
         Iterators.advance(entries, start);
         if (length < 0) {
             length = Integer.MAX_VALUE;
         }
         int counter = 0;
+        DiffEntry last = null;
         out.writeStartArray(name);
         while (entries.hasNext() && counter < length) {
             DiffEntry entry = entries.next();
+            last = entry;
             out.writeStartArrayElement(name);
             writeElement("changeType", entry.changeType().toString());
             NodeRef oldObject = entry.getOldObject();
@@ -274,7 +306,17 @@ public class ResponseWriter {
         }
         out.writeEndArray();
         if (entries.hasNext()) {
-            writeElement("nextPage", "true");
+            writeNextPage(pageToken == null || last == null ? null : pageToken.apply(last));
+        }
+    }
+
+    /**
+     * Writes the {@code nextPage} element, and the {@code nextPageToken} one if a token is given
+     */
+    private void writeNextPage(@Nullable PageToken pageToken) throws StreamWriterException {
+        writeElement("nextPage", "true");
+        if (pageToken != null) {
+            writeElement("nextPageToken", pageToken.toString());
         }
     }
 
@@ -499,7 +541,25 @@ public class ResponseWriter {
      */
     public void writeCommits(Iterator<RevCommit> entries, int elementsPerPage, boolean returnRange)
             throws StreamWriterException {
+        writeCommits(entries, elementsPerPage, returnRange, null);
+    }
+
+    /**
+     * Writes a set of {@link RevCommit}s to the stream, followed by a {@code nextPageToken} element
+     * if there are more commits and {@code pageToken} is given.
+     * 
+     * @param entries an iterator for the RevCommits to write
+     * @param elementsPerPage the number of commits per page
+     * @param returnRange only return the range if true, in which case no token is written
+     * @param pageToken computes the token to resume the history walk after the last written
+     *        commit, called right after it's taken from {@code entries}, or {@code null} if the
+     *        walk can't be resumed
+     * @throws StreamWriterException
+     */
+    public void writeCommits(Iterator<RevCommit> entries, int elementsPerPage, boolean returnRange,
+            @Nullable Supplier<PageToken> pageToken) throws StreamWriterException {
         int counter = 0;
+        PageToken token = null;
         RevCommit lastCommit = null;
         if (returnRange) {
             if (entries.hasNext()) {
@@ -509,11 +569,15 @@ public class ResponseWriter {
             }
         }
         out.writeStartArray("commit");
-        while (entries.hasNext() && (returnRange || counter < elementsPerPage)) {
+        // check the page size first, not to walk past the last commit before taking the token
+        while ((returnRange || counter < elementsPerPage) && entries.hasNext()) {
             lastCommit = entries.next();
 
             if (!returnRange) {
                 writeCommit(lastCommit, "commit", null, null, null, true);
+                if (pageToken != null && counter == elementsPerPage - 1) {
+                    token = pageToken.get();
+                }
             }
 
             counter++;
@@ -526,26 +590,42 @@ public class ResponseWriter {
             writeElement("numCommits", Integer.toString(counter));
         }
         if (entries.hasNext()) {
-            writeElement("nextPage", "true");
+            writeNextPage(token);
         }
     }
 
     public void writeCommitsWithChangeCounts(Iterator<CommitWithChangeCounts> entries,
             int elementsPerPage) throws StreamWriterException {
+        writeCommitsWithChangeCounts(entries, elementsPerPage, null);
+    }
+
+    /**
+     * Writes a set of commits with their change counts to the stream, followed by a
+     * {@code nextPageToken} element if there are more commits and {@code pageToken} is given.
+     * 
+     * @see #writeCommits(Iterator, int, boolean, Supplier)
+     */
+    public void writeCommitsWithChangeCounts(Iterator<CommitWithChangeCounts> entries,
+            int elementsPerPage, @Nullable Supplier<PageToken> pageToken)
+            throws StreamWriterException {
         int counter = 0;
+        PageToken token = null;
 
         out.writeStartArray("commit");
-        while (entries.hasNext() && counter < elementsPerPage) {
+        while (counter < elementsPerPage && entries.hasNext()) {
             CommitWithChangeCounts entry = entries.next();
 
             writeCommit(entry.getCommit(), "commit", entry.getAdds(), entry.getModifies(),
                     entry.getRemoves(), true);
+            if (pageToken != null && counter == elementsPerPage - 1) {
+                token = pageToken.get();
+            }
 
             counter++;
         }
         out.writeEndArray();
         if (entries.hasNext()) {
-            writeElement("nextPage", "true");
+            writeNextPage(token);
         }
 
     }
@@ -590,10 +670,32 @@ public class ResponseWriter {
      */
     public void writeLsTreeResponse(Iterator<NodeRef> iter, boolean verbose)
             throws StreamWriterException {
+        writeLsTreeResponse(iter, verbose, -1, null);
+    }
 
+    /**
+     * Writes a page of the response for the {@link LsTree} command to the stream, followed by the
+     * {@code nextPage} and {@code nextPageToken} elements if there are more nodes.
+     * 
+     * @param iter the iterator of {@link NodeRefs}
+     * @param verbose if true, more detailed information about each node will be provided
+     * @param length the number of nodes to write, or a negative number to write all of them
+     * @param pageToken computes the token to resume the listing after the given last written node,
+     *        or {@code null} if the listing can't be resumed
+     * @throws StreamWriterException
+     */
+    public void writeLsTreeResponse(Iterator<NodeRef> iter, boolean verbose, int length,
+            @Nullable Function<NodeRef, PageToken> pageToken) throws StreamWriterException {
+        if (length < 0) {
+            length = Integer.MAX_VALUE;
+        }
+        int counter = 0;
+        NodeRef last = null;
         out.writeStartArray("node");
-        while (iter.hasNext()) {
+        while (counter < length && iter.hasNext()) {
             NodeRef node = iter.next();
+            last = node;
+            counter++;
             out.writeStartArrayElement("node");
             writeElement("path", node.path());
             if (verbose) {
@@ -604,6 +706,9 @@ public class ResponseWriter {
             out.writeEndArrayElement();
         }
         out.writeEndArray();
+        if (iter.hasNext()) {
+            writeNextPage(pageToken == null || last == null ? null : pageToken.apply(last));
+        }
     }
 
     /**
@@ -900,87 +1005,76 @@ public class ResponseWriter {
      */
     public void writeGeometryChanges(final Context geogig, Iterator<DiffEntry> diff, int page,
             int elementsPerPage) throws StreamWriterException {
-        writeGeometryChanges(geogig, diff, page, elementsPerPage, false);
+        writeGeometryChanges(geogig, diff, page, elementsPerPage, null);
+    }
+
+    /**
+     * Writes the response for a set of diffs while also supplying the geometry, followed by a
+     * {@code nextPageToken} element if there are more diffs and {@code pageToken} is given.
+     * 
+     * @param geogig - a CommandLocator to call commands from
+     * @param diff - a DiffEntry iterator to build the response from
+     * @param pageToken - computes the token to resume the diff after the given last consumed
+     *        entry, or {@code null} if the diff can't be resumed
+     * @throws StreamWriterException
+     */
+    public void writeGeometryChanges(final Context geogig, Iterator<DiffEntry> diff, int page,
+            int elementsPerPage, @Nullable Function<DiffEntry, PageToken> pageToken)
+            throws StreamWriterException {
+        writeGeometryChanges(geogig, diff, page, elementsPerPage, false, pageToken);
     }
 
     private void writeGeometryChanges(final Context geogig, Iterator<DiffEntry> diff, int page,
-            int elementsPerPage, boolean alreadyInArray) throws StreamWriterException {
+            int elementsPerPage, boolean alreadyInArray,
+            @Nullable Function<DiffEntry, PageToken> pageToken) throws StreamWriterException {
 
         Iterators.advance(diff, page * elementsPerPage);
         int counter = 0;
 
-        Iterator<GeometryChange> changeIterator = Iterators.transform(diff,
-                new Function<DiffEntry, GeometryChange>() {
-                    @Override
-                    public GeometryChange apply(DiffEntry input) {
-                        Optional<RevObject> feature = Optional.absent();
-                        Optional<RevObject> type = Optional.absent();
-                        String path = null;
-                        String crsCode = null;
-                        GeometryChange change = null;
-                        if (input.changeType() == ChangeType.ADDED
-                                || input.changeType() == ChangeType.MODIFIED) {
-                            feature = geogig.command(RevObjectParse.class)
-                                    .setObjectId(input.newObjectId()).call();
-                            type = geogig.command(RevObjectParse.class)
-                                    .setObjectId(input.getNewObject().getMetadataId()).call();
-                            path = input.getNewObject().path();
-
-                        } else if (input.changeType() == ChangeType.REMOVED) {
-                            feature = geogig.command(RevObjectParse.class)
-                                    .setObjectId(input.oldObjectId()).call();
-                            type = geogig.command(RevObjectParse.class)
-                                    .setObjectId(input.getOldObject().getMetadataId()).call();
-                            path = input.getOldObject().path();
-                        }
-                        if (feature.isPresent() && feature.get() instanceof RevFeature
-                                && type.isPresent() && type.get() instanceof RevFeatureType) {
-                            RevFeatureType featureType = (RevFeatureType) type.get();
-                            Collection<PropertyDescriptor> attribs = featureType.type()
-                                    .getDescriptors();
-
-                            for (PropertyDescriptor attrib : attribs) {
-                                PropertyType attrType = attrib.getType();
-                                if (attrType instanceof GeometryType) {
-                                    GeometryType gt = (GeometryType) attrType;
-                                    CoordinateReferenceSystem crs = gt
-                                            .getCoordinateReferenceSystem();
-                                    if (crs != null) {
-                                        try {
-                                            crsCode = CRS.lookupIdentifier(Citations.EPSG, crs,
-                                                    false);
-                                        } catch (FactoryException e) {
-                                            crsCode = null;
-                                        }
-                                        if (crsCode != null) {
-                                            crsCode = "EPSG:" + crsCode;
-                                        }
-                                    }
-                                    break;
-                                }
-                            }
+        final ObjectStore db = geogig.objectDatabase();
+        final Map<ObjectId, RevFeatureType> featureTypes = new HashMap<>();
+        final Map<ObjectId, String> crsCodes = new HashMap<>();
+        DiffEntry last = null;
 
-                            RevFeature revFeature = (RevFeature) feature.get();
-                            FeatureBuilder builder = new FeatureBuilder(featureType);
-                            SimpleFeature simpleFeature = (SimpleFeature) builder
-                                    .build(revFeature.getId().toString(), revFeature);
-                            change = new GeometryChange(simpleFeature, input.changeType(), path,
-                                    crsCode);
-                        }
-                        return change;
-                    }
-                });
         if (!alreadyInArray) {
             out.writeStartArray("Feature");
         }
-        while (changeIterator.hasNext() && (elementsPerPage == 0 || counter < elementsPerPage)) {
-            GeometryChange next = changeIterator.next();
-            if (next != null) {
-                SimpleFeature feature = next.getFeature();
-                ChangeType change = next.getChangeType();
+        while (diff.hasNext() && (elementsPerPage == 0 || counter < elementsPerPage)) {
+            // entries that are not features don't count, so never take more than the remaining
+            final int batchSize = elementsPerPage == 0 ? OBJECT_BATCH_SIZE
+                    : Math.min(OBJECT_BATCH_SIZE, elementsPerPage - counter);
+            final List<DiffEntry> batch = Lists.newArrayList(Iterators.limit(diff, batchSize));
+            last = batch.get(batch.size() - 1);
+
+            Set<ObjectId> featureIds = new HashSet<>();
+            Set<ObjectId> metadataIds = new HashSet<>();
+            for (DiffEntry entry : batch) {
+                NodeRef ref = geometryChangeRef(entry);
+                if (ref != null) {
+                    featureIds.add(ref.getObjectId());
+                    metadataIds.add(ref.getMetadataId());
+                }
+            }
+            final Map<ObjectId, RevFeature> features = getAll(db, featureIds, RevFeature.class);
+            featureTypes.putAll(getAll(db, Sets.difference(metadataIds, featureTypes.keySet()),
+                    RevFeatureType.class));
+
+            for (DiffEntry entry : batch) {
+                NodeRef ref = geometryChangeRef(entry);
+                RevFeature revFeature = ref == null ? null : features.get(ref.getObjectId());
+                RevFeatureType featureType = ref == null ? null
+                        : featureTypes.get(ref.getMetadataId());
+                if (revFeature == null || featureType == null) {
+                    continue;
+                }
+                FeatureBuilder builder = new FeatureBuilder(featureType);
+                SimpleFeature feature = (SimpleFeature) builder
+                        .build(revFeature.getId().toString(), revFeature);
+                String crsCode = crsCode(featureType, crsCodes);
+
                 out.writeStartArrayElement("Feature");
-                writeElement("change", change.toString());
-                writeElement("id", next.getPath());
+                writeElement("change", entry.changeType().toString());
+                writeElement("id", ref.path());
                 List<Object> attributes = feature.getAttributes();
                 out.writeStartArray("geometry");
                 for (Object attribute : attributes) {
@@ -990,8 +1084,8 @@ public class ResponseWriter {
                     }
                 }
                 out.writeEndArray();
-                if (next.getCRS() != null) {
-                    writeElement("crs", next.getCRS());
+                if (crsCode != null) {
+                    writeElement("crs", crsCode);
                 }
                 out.writeEndArrayElement();
                 counter++;
@@ -1000,9 +1094,75 @@ public class ResponseWriter {
         if (!alreadyInArray) {
             out.writeEndArray();
         }
-        if (changeIterator.hasNext()) {
-            writeElement("nextPage", "true");
+        if (diff.hasNext()) {
+            writeNextPage(pageToken == null || last == null ? null : pageToken.apply(last));
+        }
+    }
+
+    /**
+     * @return the node holding the feature whose geometry a diff entry changes, the new one for
+     *         additions and modifications and the old one for removals
+     */
+    private static @Nullable NodeRef geometryChangeRef(DiffEntry entry) {
+        switch (entry.changeType()) {
+        case ADDED:
+        case MODIFIED:
+            return entry.getNewObject();
+        case REMOVED:
+            return entry.getOldObject();
+        default:
+            return null;
+        }
+    }
+
+    /**
+     * Fetches the objects of the given type with the given ids in a single bulk query
+     */
+    private static <T extends RevObject> Map<ObjectId, T> getAll(ObjectStore db,
+            Set<ObjectId> ids, Class<T> type) {
+        Map<ObjectId, T> objects = new HashMap<>();
+        if (!ids.isEmpty()) {
+            Iterator<T> found = db.getAll(ImmutableSet.copyOf(ids), BulkOpListener.NOOP_LISTENER,
+                    type);
+            while (found.hasNext()) {
+                T object = found.next();
+                objects.put(object.getId(), object);
+            }
         }
+        return objects;
+    }
+
+    /**
+     * @return the EPSG code of the CRS of the feature type's default geometry, if any, computed
+     *         only once per feature type since CRS lookups are expensive
+     */
+    private static @Nullable String crsCode(RevFeatureType featureType,
+            Map<ObjectId, String> crsCodes) {
+        if (crsCodes.containsKey(featureType.getId())) {
+            return crsCodes.get(featureType.getId());
+        }
+        String crsCode = null;
+        Collection<PropertyDescriptor> attribs = featureType.type().getDescriptors();
+        for (PropertyDescriptor attrib : attribs) {
+            PropertyType attrType = attrib.getType();
+            if (attrType instanceof GeometryType) {
+                GeometryType gt = (GeometryType) attrType;
+                CoordinateReferenceSystem crs = gt.getCoordinateReferenceSystem();
+                if (crs != null) {
+                    try {
+                        crsCode = CRS.lookupIdentifier(Citations.EPSG, crs, false);
+                    } catch (FactoryException e) {
+                        crsCode = null;
+                    }
+                    if (crsCode != null) {
+                        crsCode = "EPSG:" + crsCode;
+                    }
+                }
+                break;
+            }
+        }
+        crsCodes.put(featureType.getId(), crsCode);
+        return crsCode;
     }
 
     /**
@@ -1020,118 +1180,81 @@ public class ResponseWriter {
     private void writeConflicts(final Context geogig, Iterator<Conflict> conflicts,
             final ObjectId ours, final ObjectId theirs, boolean alreadyInArray)
             throws StreamWriterException {
-        Iterator<GeometryConflict> conflictIterator = Iterators.transform(conflicts,
-                new Function<Conflict, GeometryConflict>() {
-                    @Override
-                    public GeometryConflict apply(Conflict input) {
-                        ObjectId commitId = ours;
-                        if (input.getOurs().equals(ObjectId.NULL)) {
-                            commitId = theirs;
-                        }
-                        Optional<RevObject> object = geogig.command(RevObjectParse.class)
-                                .setObjectId(commitId).call();
-                        RevCommit commit = null;
-                        if (object.isPresent() && object.get() instanceof RevCommit) {
-                            commit = (RevCommit) object.get();
-                        } else {
-                            throw new CommandSpecException(
-                                    "Couldn't resolve id: " + commitId.toString() + " to a commit");
-                        }
 
-                        object = geogig.command(RevObjectParse.class)
-                                .setObjectId(commit.getTreeId()).call();
-                        Optional<NodeRef> node = Optional.absent();
-                        if (object.isPresent()) {
-                            RevTree tree = (RevTree) object.get();
-                            node = geogig.command(FindTreeChild.class).setParent(tree)
-                                    .setChildPath(input.getPath()).call();
-                        } else {
-                            throw new CommandSpecException("Couldn't resolve commit's treeId");
-                        }
+        final ObjectStore db = geogig.objectDatabase();
+        final Map<ObjectId, RevTree> commitTrees = new HashMap<>();
+        final Map<ObjectId, RevFeatureType> featureTypes = new HashMap<>();
+        final Map<ObjectId, String> crsCodes = new HashMap<>();
 
-                        RevFeatureType type = null;
-                        RevFeature feature = null;
-
-                        if (node.isPresent()) {
-                            object = geogig.command(RevObjectParse.class)
-                                    .setObjectId(node.get().getMetadataId()).call();
-                            if (object.isPresent() && object.get() instanceof RevFeatureType) {
-                                type = (RevFeatureType) object.get();
-                            } else {
-                                throw new CommandSpecException(
-                                        "Couldn't resolve newCommit's featureType");
-                            }
-                            object = geogig.command(RevObjectParse.class)
-                                    .setObjectId(node.get().getObjectId()).call();
-                            if (object.isPresent() && object.get() instanceof RevFeature) {
-                                feature = (RevFeature) object.get();
-                            } else {
-                                throw new CommandSpecException(
-                                        "Couldn't resolve newCommit's feature");
-                            }
-                        }
+        if (!alreadyInArray) {
+            out.writeStartArray("Feature");
+        }
+        while (conflicts.hasNext()) {
+            final List<Conflict> batch = Lists
+                    .newArrayList(Iterators.limit(conflicts, OBJECT_BATCH_SIZE));
+
+            final Map<Conflict, NodeRef> nodes = new HashMap<>();
+            for (Conflict conflict : batch) {
+                ObjectId commitId = conflict.getOurs().equals(ObjectId.NULL) ? theirs : ours;
+                RevTree tree = commitTrees.get(commitId);
+                if (tree == null) {
+                    tree = commitTree(geogig, commitId);
+                    commitTrees.put(commitId, tree);
+                }
+                Optional<NodeRef> node = geogig.command(FindTreeChild.class).setParent(tree)
+                        .setChildPath(conflict.getPath()).call();
+                if (node.isPresent()) {
+                    nodes.put(conflict, node.get());
+                }
+            }
 
-                        GeometryConflict conflict = null;
-
-                        if (feature != null && type != null) {
-                            String crsCode = null;
-                            Collection<PropertyDescriptor> attribs = type.type().getDescriptors();
-
-                            for (PropertyDescriptor attrib : attribs) {
-                                PropertyType attrType = attrib.getType();
-                                if (attrType instanceof GeometryType) {
-                                    GeometryType gt = (GeometryType) attrType;
-                                    CoordinateReferenceSystem crs = gt
-                                            .getCoordinateReferenceSystem();
-
-                                    if (crs != null) {
-                                        try {
-                                            crsCode = CRS.lookupIdentifier(Citations.EPSG, crs,
-                                                    false);
-                                        } catch (FactoryException e) {
-                                            crsCode = null;
-                                        }
-                                        if (crsCode != null) {
-                                            crsCode = "EPSG:" + crsCode;
-                                        }
-                                    }
-                                    break;
-                                }
-                            }
+            Set<ObjectId> featureIds = new HashSet<>();
+            Set<ObjectId> metadataIds = new HashSet<>();
+            for (NodeRef node : nodes.values()) {
+                featureIds.add(node.getObjectId());
+                metadataIds.add(node.getMetadataId());
+            }
+            final Map<ObjectId, RevFeature> features = getAll(db, featureIds, RevFeature.class);
+            featureTypes.putAll(getAll(db, Sets.difference(metadataIds, featureTypes.keySet()),
+                    RevFeatureType.class));
+
+            for (Conflict conflict : batch) {
+                NodeRef node = nodes.get(conflict);
+                if (node == null) {
+                    continue;
+                }
+                RevFeatureType type = featureTypes.get(node.getMetadataId());
+                if (type == null) {
+                    throw new CommandSpecException("Couldn't resolve newCommit's featureType");
+                }
+                RevFeature feature = features.get(node.getObjectId());
+                if (feature == null) {
+                    throw new CommandSpecException("Couldn't resolve newCommit's feature");
+                }
+                String crsCode = crsCode(type, crsCodes);
 
-                            FeatureBuilder builder = new FeatureBuilder(type);
-                            SimpleFeature simpleFeature = (SimpleFeature) builder
-                                    .build(feature.getId().toString(), feature);
-                            Geometry geom = null;
-                            List<Object> attributes = simpleFeature.getAttributes();
-                            for (Object attribute : attributes) {
-                                if (attribute instanceof Geometry) {
-                                    geom = (Geometry) attribute;
-                                    break;
-                                }
-                            }
-                            conflict = new GeometryConflict(input, geom, crsCode);
-                        }
-                        return conflict;
+                FeatureBuilder builder = new FeatureBuilder(type);
+                SimpleFeature simpleFeature = (SimpleFeature) builder
+                        .build(feature.getId().toString(), feature);
+                Geometry geom = null;
+                List<Object> attributes = simpleFeature.getAttributes();
+                for (Object attribute : attributes) {
+                    if (attribute instanceof Geometry) {
+                        geom = (Geometry) attribute;
+                        break;
                     }
-                });
+                }
 
-        if (!alreadyInArray) {
-            out.writeStartArray("Feature");
-        }
-        while (conflictIterator.hasNext()) {
-            GeometryConflict next = conflictIterator.next();
-            if (next != null) {
                 out.writeStartArrayElement("Feature");
                 writeElement("change", "CONFLICT");
-                writeElement("id", next.getConflict().getPath());
-                writeElement("ourvalue", next.getConflict().getOurs().toString());
-                writeElement("theirvalue", next.getConflict().getTheirs().toString());
+                writeElement("id", conflict.getPath());
+                writeElement("ourvalue", conflict.getOurs().toString());
+                writeElement("theirvalue", conflict.getTheirs().toString());
                 out.writeStartArray("geometry");
-                out.writeArrayElement("geometry", next.getGeometry().toText());
+                out.writeArrayElement("geometry", geom.toText());
                 out.writeEndArray();
-                if (next.getCRS() != null) {
-                    writeElement("crs", next.getCRS());
+                if (crsCode != null) {
+                    writeElement("crs", crsCode);
                 }
                 out.writeEndArrayElement();
             }
@@ -1141,6 +1264,21 @@ public class ResponseWriter {
         }
     }
 
+    private static RevTree commitTree(final Context geogig, final ObjectId commitId) {
+        Optional<RevObject> object = geogig.command(RevObjectParse.class).setObjectId(commitId)
+                .call();
+        if (!(object.isPresent() && object.get() instanceof RevCommit)) {
+            throw new CommandSpecException(
+                    "Couldn't resolve id: " + commitId.toString() + " to a commit");
+        }
+        RevCommit commit = (RevCommit) object.get();
+        object = geogig.command(RevObjectParse.class).setObjectId(commit.getTreeId()).call();
+        if (!object.isPresent()) {
+            throw new CommandSpecException("Couldn't resolve commit's treeId");
+        }
+        return (RevTree) object.get();
+    }
+
     /**
      * Writes the response for a set of merged features while also supplying the geometry.
      * 
@@ -1285,7 +1423,7 @@ public class ResponseWriter {
         }
         // start the Feature array
         out.writeStartArray("Feature");
-        writeGeometryChanges(context, consumer.getUnconflicted(), 0, 0, true);
+        writeGeometryChanges(context, consumer.getUnconflicted(), 0, 0, true, null);
         writeConflicts(context, consumer.getConflicted(), ours, theirs, true);
         writeMerged(context, consumer.getMerged(), true);
         out.writeEndArray();
@@ -1309,7 +1447,7 @@ public class ResponseWriter {
         out.writeStartElement("Merge");
         // start the Feature array
         out.writeStartArray("Feature");
-        writeGeometryChanges(context, consumer.getUnconflicted(), 0, 0, true);
+        writeGeometryChanges(context, consumer.getUnconflicted(), 0, 0, true, null);
         writeConflicts(context, consumer.getConflicted(), ours, theirs, true);
         writeMerged(context, consumer.getMerged(), true);
         out.writeEndArray();
@@ -1478,30 +1616,4 @@ public class ResponseWriter {
             return crs;
         }
     }
-
-    private class GeometryConflict {
-        private Conflict conflict;
-
-        private Geometry geom;
-
-        private String crs;
-
-        public GeometryConflict(Conflict conflict, Geometry geom, String crs) {
-            this.conflict = conflict;
-            this.geom = geom;
-            this.crs = crs;
-        }
-
-        public Conflict getConflict() {
-            return conflict;
-        }
-
-        public Geometry getGeometry() {
-            return geom;
-        }
-
-        public String getCRS() {
-            return crs;
-        }
-    }
 }
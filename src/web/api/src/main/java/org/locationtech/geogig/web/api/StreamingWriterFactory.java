@@ -9,6 +9,7 @@
  */
 package org.locationtech.geogig.web.api;
 
+import java.io.OutputStream;
 import java.io.Writer;
 import java.util.Iterator;
 import java.util.ServiceLoader;
@@ -21,12 +22,31 @@ import org.restlet.data.MediaType;
 public class StreamingWriterFactory {
 
     public static StreamingWriter getStreamWriter(MediaType format, Writer parent) {
+        return getService(format).createWriter(parent);
+    }
+
+    /**
+     * Creates a writer for the given byte stream, needed by {@link #isBinary binary} formats
+     */
+    public static StreamingWriter getStreamWriter(MediaType format, OutputStream out) {
+        return getService(format).createWriter(out);
+    }
+
+    /**
+     * @return whether the format is binary, and hence the writer needs to be
+     *         {@link #getStreamWriter(MediaType, OutputStream) created} out of a byte stream
+     */
+    public static boolean isBinary(MediaType format) {
+        return getService(format).isBinary();
+    }
+
+    private static StreamingWriterService getService(MediaType format) {
         final ServiceLoader<StreamingWriterService> svcLoader = ServiceLoader.load(StreamingWriterService.class);
         final Iterator<StreamingWriterService> writerServices = svcLoader.iterator();
         while (writerServices.hasNext()) {
             final StreamingWriterService writerService = writerServices.next();
             if (writerService.handles(format)) {
-                return writerService.createWriter(parent);
+                return writerService;
             }
         }
         // no supported writer found
@@ -9,7 +9,10 @@
  */
 package org.locationtech.geogig.web.api;
 
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 
 import org.restlet.data.MediaType;
 
@@ -19,4 +22,19 @@ import org.restlet.data.MediaType;
 public interface StreamingWriterService {
     public StreamingWriter createWriter(Writer writer) throws StreamWriterException;
     public boolean handles(MediaType mediaType);
+
+    /**
+     * @return {@code true} if the format is binary and hence the writer can only be created out of
+     *         an {@link OutputStream}, {@code false} if it's a text format
+     */
+    public default boolean isBinary() {
+        return false;
+    }
+
+    /**
+     * Creates a writer for the given byte stream, text formats are encoded as UTF-8
+     */
+    public default StreamingWriter createWriter(OutputStream out) throws StreamWriterException {
+        return createWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
 }
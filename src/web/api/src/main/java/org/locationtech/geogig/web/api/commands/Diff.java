@@ -9,6 +9,10 @@
  */
 package org.locationtech.geogig.web.api.commands;
 
+import java.util.List;
+
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.plumbing.ResolveTreeish;
 import org.locationtech.geogig.porcelain.DiffOp;
 import org.locationtech.geogig.repository.Context;
 import org.locationtech.geogig.repository.DiffEntry;
@@ -17,8 +21,13 @@ import org.locationtech.geogig.web.api.AbstractWebAPICommand;
 import org.locationtech.geogig.web.api.CommandContext;
 import org.locationtech.geogig.web.api.CommandResponse;
 import org.locationtech.geogig.web.api.CommandSpecException;
+import org.locationtech.geogig.web.api.PageToken;
 import org.locationtech.geogig.web.api.ParameterSet;
 import org.locationtech.geogig.web.api.ResponseWriter;
+import org.restlet.data.Status;
+
+import com.google.common.base.Function;
+import com.google.common.base.Optional;
 
 /**
  * Interface for the Diff operation in GeoGig.
@@ -39,6 +48,8 @@ public class Diff extends AbstractWebAPICommand {
 
     int elementsPerPage;
 
+    String pageToken;
+
     @Override
     protected void setParametersInternal(ParameterSet options) {
         setOldRefSpec(options.getRequiredValue("oldRefSpec"));
@@ -48,6 +59,7 @@ public class Diff extends AbstractWebAPICommand {
                 "false")));
         setPage(parseInt(options, "page", 0));
         setElementsPerPage(parseInt(options, "show", 30));
+        setPageToken(options.getFirstValue("pageToken", null));
     }
 
     @Override
@@ -109,6 +121,16 @@ public class Diff extends AbstractWebAPICommand {
         this.elementsPerPage = elementsPerPage;
     }
 
+    /**
+     * Mutator for the pageToken variable
+     * 
+     * @param pageToken - the {@code nextPageToken} of the previous page, to resume the diff after
+     *        it instead of skipping to the {@link #setPage(int) page}
+     */
+    public void setPageToken(String pageToken) {
+        this.pageToken = pageToken;
+    }
+
     /**
      * Runs the command and builds the appropriate response
      * 
@@ -124,21 +146,55 @@ public class Diff extends AbstractWebAPICommand {
 
         final Context geogig = this.getRepositoryContext(context);
 
+        // diff the resolved trees, so that the page tokens point to the same diff
+        final ObjectId oldTreeId = resolveTree(geogig, oldRefSpec);
+        final ObjectId newTreeId = newRefSpec == null ? geogig.workingTree().getTree().getId()
+                : resolveTree(geogig, newRefSpec);
+        final String startAfter;
+        final int page;
+        if (pageToken == null) {
+            startAfter = null;
+            page = this.page;
+        } else {
+            List<String> position = PageToken.parse("diff", pageToken).getValues();
+            if (position.size() != 3 || !oldTreeId.toString().equals(position.get(0))
+                    || !newTreeId.toString().equals(position.get(1))) {
+                throw new CommandSpecException(
+                        "The diff changed since the page token was issued, start over",
+                        Status.CLIENT_ERROR_CONFLICT);
+            }
+            startAfter = position.get(2);
+            page = 0;
+        }
+        final Function<DiffEntry, PageToken> nextPageToken = (entry) -> PageToken.of("diff",
+                oldTreeId.toString(), newTreeId.toString(), entry.path());
+
         context.setResponseContent(new CommandResponse() {
             @Override
             public void write(ResponseWriter out) throws Exception {
                 try (AutoCloseableIterator<DiffEntry> diff = geogig.command(DiffOp.class)
-                        .setOldVersion(oldRefSpec).setNewVersion(newRefSpec).setFilter(pathFilter)
-                        .setPreserveIterationOrder(true).call()) {
+                        .setOldVersion(oldTreeId).setNewVersion(newTreeId).setFilter(pathFilter)
+                        .setPreserveIterationOrder(true).setStartAfter(startAfter).call()) {
                     out.start();
                     if (showGeometryChanges) {
-                        out.writeGeometryChanges(geogig, diff, page, elementsPerPage);
+                        out.writeGeometryChanges(geogig, diff, page, elementsPerPage,
+                                nextPageToken);
                     } else {
-                        out.writeDiffEntries("diff", page * elementsPerPage, elementsPerPage, diff);
+                        out.writeDiffEntries("diff", page * elementsPerPage, elementsPerPage, diff,
+                                nextPageToken);
                     }
                     out.finish();
                 }
             }
         });
     }
+
+    private static ObjectId resolveTree(Context geogig, String refSpec) {
+        Optional<ObjectId> treeId = geogig.command(ResolveTreeish.class).setTreeish(refSpec)
+                .call();
+        if (!treeId.isPresent()) {
+            throw new CommandSpecException(refSpec + " did not resolve to a tree");
+        }
+        return treeId.get();
+    }
 }
@@ -41,6 +41,7 @@ import org.locationtech.geogig.web.api.AbstractWebAPICommand;
 import org.locationtech.geogig.web.api.CommandContext;
 import org.locationtech.geogig.web.api.CommandResponse;
 import org.locationtech.geogig.web.api.CommandSpecException;
+import org.locationtech.geogig.web.api.PageToken;
 import org.locationtech.geogig.web.api.ParameterSet;
 import org.locationtech.geogig.web.api.ResponseWriter;
 import org.locationtech.geogig.web.api.StreamResponse;
@@ -49,7 +50,10 @@ import org.opengis.feature.type.PropertyDescriptor;
 import com.google.common.base.Function;
 import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
 
 /**
  * Interface for the Log operation in GeoGig.
@@ -84,6 +88,8 @@ public class Log extends AbstractWebAPICommand {
 
     boolean summary = false;
 
+    String pageToken;
+
     @Override
     protected void setParametersInternal(ParameterSet options) {
         setLimit(parseInt(options, "limit", null));
@@ -99,6 +105,7 @@ public class Log extends AbstractWebAPICommand {
         setCountChanges(Boolean.valueOf(options.getFirstValue("countChanges", "false")));
         setReturnRange(Boolean.valueOf(options.getFirstValue("returnRange", "false")));
         setSummary(Boolean.valueOf(options.getFirstValue("summary", "false")));
+        setPageToken(options.getFirstValue("pageToken", null));
     }
 
     @Override
@@ -187,6 +194,17 @@ public class Log extends AbstractWebAPICommand {
         this.elementsPerPage = elementsPerPage;
     }
 
+    /**
+     * Mutator for the pageToken variable
+     * 
+     * @param pageToken - the {@code nextPageToken} of the previous page, to resume the history walk
+     *        where it left off instead of skipping to the {@link #setPage(int) page} or
+     *        {@link #setOffset(Integer) offset}
+     */
+    public void setPageToken(String pageToken) {
+        this.pageToken = pageToken;
+    }
+
     /**
      * Mutator for the firstParentOnly variable
      * 
@@ -236,9 +254,19 @@ public class Log extends AbstractWebAPICommand {
     protected void runInternal(final CommandContext context) {
         final Context geogig = this.getRepositoryContext(context);
 
-        LogOp op = geogig.command(LogOp.class).setFirstParentOnly(firstParentOnly);
+        final LogOp op = geogig.command(LogOp.class).setFirstParentOnly(firstParentOnly);
 
-        if (skip != null) {
+        if (pageToken != null) {
+            List<ObjectId> resumePoints = Lists.newArrayList();
+            try {
+                for (String id : PageToken.parse("log", pageToken).getValues()) {
+                    resumePoints.add(ObjectId.valueOf(id));
+                }
+            } catch (IllegalArgumentException e) {
+                throw new CommandSpecException("Invalid page token: " + pageToken);
+            }
+            op.setResumePoints(resumePoints);
+        } else if (skip != null) {
             op.setSkip(skip.intValue());
         }
         if (limit != null) {
@@ -278,7 +306,13 @@ public class Log extends AbstractWebAPICommand {
 
         final Iterator<RevCommit> log = op.call();
 
-        Iterators.advance(log, page * elementsPerPage);
+        if (pageToken == null) {
+            Iterators.advance(log, page * elementsPerPage);
+        }
+        final Supplier<PageToken> nextPageToken = () -> {
+            List<ObjectId> resumePoints = op.getResumePoints().or(ImmutableList.of());
+            return PageToken.of("log", Lists.transform(resumePoints, ObjectId::toString));
+        };
 
         if (countChanges) {
             final String pathFilter;
@@ -327,7 +361,8 @@ public class Log extends AbstractWebAPICommand {
                 @Override
                 public void write(ResponseWriter out) throws Exception {
                     out.start();
-                    out.writeCommitsWithChangeCounts(summarizedLog, elementsPerPage);
+                    out.writeCommitsWithChangeCounts(summarizedLog, elementsPerPage,
+                            nextPageToken);
                     out.finish();
                 }
             });
@@ -350,7 +385,7 @@ public class Log extends AbstractWebAPICommand {
                 @Override
                 public void write(ResponseWriter out) throws Exception {
                     out.start();
-                    out.writeCommits(log, elementsPerPage, rangeLog);
+                    out.writeCommits(log, elementsPerPage, rangeLog, nextPageToken);
                     out.finish();
                 }
             });
@@ -10,6 +10,7 @@
 package org.locationtech.geogig.web.api.commands;
 
 import java.util.Iterator;
+import java.util.List;
 
 import org.locationtech.geogig.model.NodeRef;
 import org.locationtech.geogig.plumbing.LsTreeOp;
@@ -17,6 +18,8 @@ import org.locationtech.geogig.repository.Context;
 import org.locationtech.geogig.web.api.AbstractWebAPICommand;
 import org.locationtech.geogig.web.api.CommandContext;
 import org.locationtech.geogig.web.api.CommandResponse;
+import org.locationtech.geogig.web.api.CommandSpecException;
+import org.locationtech.geogig.web.api.PageToken;
 import org.locationtech.geogig.web.api.ParameterSet;
 import org.locationtech.geogig.web.api.ResponseWriter;
 
@@ -37,6 +40,10 @@ public class LsTree extends AbstractWebAPICommand {
 
     String ref;
 
+    int elementsPerPage;
+
+    String pageToken;
+
     @Override
     protected void setParametersInternal(ParameterSet options) {
         setIncludeTrees(Boolean.valueOf(options.getFirstValue("showTree", "false")));
@@ -44,6 +51,8 @@ public class LsTree extends AbstractWebAPICommand {
         setRecursive(Boolean.valueOf(options.getFirstValue("recursive", "false")));
         setVerbose(Boolean.valueOf(options.getFirstValue("verbose", "false")));
         setRef(options.getFirstValue("path", null));
+        setElementsPerPage(parseInt(options, "show", -1));
+        setPageToken(options.getFirstValue("pageToken", null));
     }
 
     @Override
@@ -96,6 +105,26 @@ public class LsTree extends AbstractWebAPICommand {
         this.ref = ref;
     }
 
+    /**
+     * Mutator for the elementsPerPage variable
+     * 
+     * @param elementsPerPage - the number of nodes to display per page, or a negative number to
+     *        display all of them
+     */
+    public void setElementsPerPage(int elementsPerPage) {
+        this.elementsPerPage = elementsPerPage;
+    }
+
+    /**
+     * Mutator for the pageToken variable
+     * 
+     * @param pageToken - the {@code nextPageToken} of the previous page, to resume the listing
+     *        after its last node
+     */
+    public void setPageToken(String pageToken) {
+        this.pageToken = pageToken;
+    }
+
     /**
      * Runs the command and builds the appropriate response
      * 
@@ -120,6 +149,15 @@ public class LsTree extends AbstractWebAPICommand {
             }
         }
 
+        String startAfter = null;
+        if (pageToken != null) {
+            List<String> position = PageToken.parse("ls-tree", pageToken).getValues();
+            if (position.size() != 1 || position.get(0).isEmpty()) {
+                throw new CommandSpecException("Invalid page token: " + pageToken);
+            }
+            startAfter = position.get(0);
+        }
+        final String pageStart = startAfter;
         final Context geogig = this.getRepositoryContext(context);
 
         context.setResponseContent(new CommandResponse() {
@@ -127,9 +165,11 @@ public class LsTree extends AbstractWebAPICommand {
             @Override
             public void write(ResponseWriter out) throws Exception {
                 final Iterator<NodeRef> iter = geogig.command(LsTreeOp.class).setReference(ref)
-                        .setStrategy(lsStrategy).call();
+                        .setStrategy(lsStrategy).setStartAfter(pageStart).call();
                 out.start(true);
-                out.writeLsTreeResponse(iter, verbose);
+                // the listing is in canonical order, so the last path tells where to resume
+                out.writeLsTreeResponse(iter, verbose, elementsPerPage,
+                        (node) -> PageToken.of("ls-tree", node.path()));
                 out.finish();
             }
         });
@@ -0,0 +1,185 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.rest.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.Ref;
+import org.locationtech.geogig.plumbing.RefParse;
+import org.locationtech.geogig.remote.http.BinaryPackedObjects;
+import org.locationtech.geogig.remote.http.ChunkedFetch;
+import org.locationtech.geogig.remote.http.ChunkedFetch.Manifest;
+import org.locationtech.geogig.repository.Repository;
+import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.geogig.storage.memory.HeapObjectStore;
+import org.locationtech.geogig.web.api.TestContext;
+import org.locationtech.geogig.web.api.TestData;
+import org.restlet.data.MediaType;
+import org.restlet.data.Method;
+import org.restlet.data.Request;
+import org.restlet.data.Response;
+import org.restlet.data.Status;
+import org.restlet.resource.Resource;
+import org.restlet.resource.StringRepresentation;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.gson.JsonParser;
+
+public class BatchedObjectChunksResourceTest {
+
+    private static final String URI = "http://localhost/repos/testrepo/repo/batchchunks";
+
+    @Rule
+    public TestContext testContext = new TestContext();
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private Repository repo;
+
+    private ObjectId tip;
+
+    private ObjectStore target;
+
+    @Before
+    public void before() throws Exception {
+        repo = testContext.get().getRepository();
+        new TestData(repo).init().loadDefaultData();
+        tip = repo.command(RefParse.class).setName(Ref.MASTER).call().get().getObjectId();
+        target = new HeapObjectStore();
+        target.open();
+    }
+
+    @After
+    public void after() {
+        target.close();
+    }
+
+    private Response handle(Request request) {
+        request.getAttributes().put(RepositoryProvider.KEY, new SingleRepositoryProvider(repo));
+        Response response = new Response(request);
+        Resource resource = new BatchedObjectChunksResource().findTarget(request, response);
+        if (Method.POST.equals(request.getMethod())) {
+            resource.handlePost();
+        } else {
+            resource.handleGet();
+        }
+        return response;
+    }
+
+    private Manifest post(int chunkSize) throws Exception {
+        String message = String.format("{\"want\":[\"%s\"],\"have\":[],\"chunkSize\":%d}", tip,
+                chunkSize);
+        Request request = new Request(Method.POST, URI);
+        request.setEntity(new StringRepresentation(message, MediaType.APPLICATION_JSON));
+        Response response = handle(request);
+        assertEquals(Status.SUCCESS_OK, response.getStatus());
+        return Manifest.fromJson(
+                new JsonParser().parse(response.getEntity().getText()).getAsJsonObject());
+    }
+
+    private Response get(String fetchId, String chunk) {
+        StringBuilder uri = new StringBuilder(URI).append('?');
+        if (fetchId != null) {
+            uri.append("fetchId=").append(fetchId).append('&');
+        }
+        if (chunk != null) {
+            uri.append("chunk=").append(chunk);
+        }
+        return handle(new Request(Method.GET, uri.toString()));
+    }
+
+    @Test
+    public void testManifest() throws Exception {
+        Manifest manifest = post(500);
+        assertEquals(500, manifest.getChunkSize());
+        assertEquals(ChunkedFetch.fetchId(ImmutableList.of(tip), ImmutableList.of(), 500),
+                manifest.getFetchId());
+        assertTrue(manifest.getObjectCount() > 0);
+        assertEquals((manifest.getObjectCount() + 499) / 500, manifest.getNumChunks());
+        // the plan is reused
+        assertEquals(manifest, post(500));
+    }
+
+    @Test
+    public void testChunkSizeIsClamped() throws Exception {
+        assertEquals(100, post(1).getChunkSize());
+        assertEquals(1_000_000, post(Integer.MAX_VALUE).getChunkSize());
+    }
+
+    @Test
+    public void testGetChunks() throws Exception {
+        final Manifest manifest = post(100);
+        final BinaryPackedObjects unpacker = new BinaryPackedObjects(target);
+        long objects = 0;
+        for (int chunk = 0; chunk < manifest.getNumChunks(); chunk++) {
+            Response response = get(manifest.getFetchId(), String.valueOf(chunk));
+            assertEquals(Status.SUCCESS_OK, response.getStatus());
+            File file = tmp.newFile("chunk-" + chunk);
+            try (OutputStream out = new FileOutputStream(file)) {
+                response.getEntity().write(out);
+            }
+            assertTrue(ChunkedFetch.verifyChunk(file));
+            objects += ChunkedFetch.ingestChunk(file, unpacker, (o) -> {
+            }).total();
+        }
+        assertEquals(manifest.getObjectCount(), objects);
+        assertTrue(target.exists(tip));
+    }
+
+    @Test
+    public void testUnknownFetch() throws Exception {
+        Response response = get(ChunkedFetch.fetchId(ImmutableList.of(tip),
+                ImmutableList.of(), 100), "0");
+        assertEquals(Status.CLIENT_ERROR_NOT_FOUND, response.getStatus());
+    }
+
+    @Test
+    public void testBadRequests() throws Exception {
+        final Manifest manifest = post(100);
+        final String fetchId = manifest.getFetchId();
+        assertEquals(Status.CLIENT_ERROR_BAD_REQUEST, get(fetchId, null).getStatus());
+        assertEquals(Status.CLIENT_ERROR_BAD_REQUEST, get(null, "0").getStatus());
+        assertEquals(Status.CLIENT_ERROR_BAD_REQUEST, get(fetchId, "first").getStatus());
+        assertEquals(Status.CLIENT_ERROR_BAD_REQUEST, get(fetchId, "-1").getStatus());
+        String outOfBounds = String.valueOf(manifest.getNumChunks());
+        assertEquals(Status.CLIENT_ERROR_BAD_REQUEST, get(fetchId, outOfBounds).getStatus());
+    }
+
+    @Test
+    public void testChunkHash() throws Exception {
+        final Manifest manifest = post(100);
+        File file = tmp.newFile("chunk");
+        try (OutputStream out = new FileOutputStream(file)) {
+            get(manifest.getFetchId(), "0").getEntity().write(out);
+        }
+        final List<ObjectId> ids = new ArrayList<>();
+        ChunkedFetch.ingestChunk(file, new BinaryPackedObjects(target),
+                (o) -> ids.add(o.get().getId()));
+        Hasher hasher = Hashing.sha1().newHasher();
+        ids.forEach((id) -> hasher.putBytes(id.getRawValue()));
+        assertEquals(manifest.getChunkHash(0), hasher.hash().toString());
+    }
+}
@@ -0,0 +1,171 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.rest.repository;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.locationtech.geogig.model.Ref;
+import org.locationtech.geogig.plumbing.RefParse;
+import org.locationtech.geogig.remote.http.CloneBundle;
+import org.locationtech.geogig.remote.http.CloneBundleStore;
+import org.locationtech.geogig.repository.Repository;
+import org.locationtech.geogig.web.api.TestContext;
+import org.locationtech.geogig.web.api.TestData;
+import org.restlet.Context;
+import org.restlet.data.Form;
+import org.restlet.data.Method;
+import org.restlet.data.Request;
+import org.restlet.data.Response;
+import org.restlet.data.Status;
+
+import com.google.common.io.ByteStreams;
+
+public class CloneBundleResourceTest {
+
+    @Rule
+    public TestContext testContext = new TestContext();
+
+    private Repository repo;
+
+    private CloneBundle bundle;
+
+    private byte[] contents;
+
+    @Before
+    public void before() throws Exception {
+        repo = testContext.get().getRepository();
+        new TestData(repo).init().loadDefaultData();
+        Ref master = repo.command(RefParse.class).setName(Ref.MASTER).call().get();
+        CloneBundleStore store = new CloneBundleStore(
+                CloneBundleStore.defaultDirectory(repo.getLocation()));
+        bundle = store.refresh(repo, master);
+        try (InputStream in = store.open(bundle, 0)) {
+            contents = ByteStreams.toByteArray(in);
+        }
+        assertEquals(bundle.getSize(), contents.length);
+    }
+
+    private Response get(final long size, final String range) {
+        return get(bundle.getGeneration(), size, range);
+    }
+
+    private Response get(final String generation, final long size, final String range) {
+        String uri = String.format("http://localhost/repos/testrepo/bundle?%s",
+                String.format("ref=%s&generation=%s&size=%d", Ref.MASTER, generation, size));
+        Request request = new Request(Method.GET, uri);
+        request.getAttributes().put(RepositoryProvider.KEY, new SingleRepositoryProvider(repo));
+        if (range != null) {
+            Form headers = new Form();
+            headers.add("Range", range);
+            request.getAttributes().put("org.restlet.http.headers", headers);
+        }
+        Response response = new Response(request);
+        CloneBundleResource resource = new CloneBundleResource();
+        resource.init(new Context(), request, response);
+        resource.handleGet();
+        return response;
+    }
+
+    private static String contentRange(Response response) {
+        Form headers = (Form) response.getAttributes().get("org.restlet.http.headers");
+        return headers == null ? null : headers.getFirstValue("Content-Range", true);
+    }
+
+    private static byte[] entity(Response response) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getEntity().write(out);
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testFullContents() throws Exception {
+        Response response = get(contents.length, null);
+        assertEquals(Status.SUCCESS_OK, response.getStatus());
+        assertNull(contentRange(response));
+        assertArrayEquals(contents, entity(response));
+    }
+
+    @Test
+    public void testRange() throws Exception {
+        final int size = contents.length;
+        Response response = get(size, "bytes=10-19");
+        assertEquals(Status.SUCCESS_PARTIAL_CONTENT, response.getStatus());
+        assertEquals(String.format("bytes 10-19/%d", size), contentRange(response));
+        assertArrayEquals(Arrays.copyOfRange(contents, 10, 20), entity(response));
+    }
+
+    @Test
+    public void testRangeEndBeyondSize() throws Exception {
+        final int size = contents.length;
+        Response response = get(size, String.format("bytes=5-%d", size + 100));
+        assertEquals(Status.SUCCESS_PARTIAL_CONTENT, response.getStatus());
+        assertEquals(String.format("bytes 5-%d/%d", size - 1, size), contentRange(response));
+        assertArrayEquals(Arrays.copyOfRange(contents, 5, size), entity(response));
+    }
+
+    @Test
+    public void testResume() throws Exception {
+        final int size = contents.length;
+        final int received = size / 2;
+        Response response = get(size, String.format("bytes=%d-", received));
+        assertEquals(Status.SUCCESS_PARTIAL_CONTENT, response.getStatus());
+        assertEquals(String.format("bytes %d-%d/%d", received, size - 1, size),
+                contentRange(response));
+
+        ByteArrayOutputStream resumed = new ByteArrayOutputStream();
+        resumed.write(contents, 0, received);
+        resumed.write(entity(response));
+        assertArrayEquals(contents, resumed.toByteArray());
+    }
+
+    @Test
+    public void testResumeWithinRequestedSize() throws Exception {
+        // a client that asked for a prefix of the bundle only gets the rest of that prefix
+        final int size = contents.length / 2;
+        Response response = get(size, "bytes=10-");
+        assertEquals(Status.SUCCESS_PARTIAL_CONTENT, response.getStatus());
+        assertEquals(String.format("bytes 10-%d/%d", size - 1, size), contentRange(response));
+        assertArrayEquals(Arrays.copyOfRange(contents, 10, size), entity(response));
+    }
+
+    @Test
+    public void testRangeNotSatisfiable() throws Exception {
+        final int size = contents.length;
+        Response response = get(size, String.format("bytes=%d-", size));
+        assertEquals(Status.CLIENT_ERROR_REQUESTED_RANGE_NOT_SATISFIABLE, response.getStatus());
+        assertNull(contentRange(response));
+
+        response = get(size, "bytes=20-10");
+        assertEquals(Status.CLIENT_ERROR_REQUESTED_RANGE_NOT_SATISFIABLE, response.getStatus());
+    }
+
+    @Test
+    public void testUnsupportedRangeSendsWholeContents() throws Exception {
+        Response response = get(contents.length, "bytes=0-9,20-29");
+        assertEquals(Status.SUCCESS_OK, response.getStatus());
+        assertNull(contentRange(response));
+        assertArrayEquals(contents, entity(response));
+    }
+
+    @Test
+    public void testReplacedGeneration() throws Exception {
+        Response response = get("replaced", contents.length, null);
+        assertEquals(Status.CLIENT_ERROR_NOT_FOUND, response.getStatus());
+    }
+}
@@ -0,0 +1,238 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.web.api;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+import javax.json.Json;
+import javax.json.stream.JsonGenerator;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.Test;
+import org.locationtech.geogig.rest.Variants;
+import org.restlet.data.MediaType;
+
+/**
+ * Runs the JSON writer tests against the {@link CBORStreamingWriter}, by transcoding its output
+ * to JSON, since both formats have the same structure and typing.
+ */
+public class CBORStreamingWriterTest extends JSONStreaminWriterTest {
+
+    @Override
+    protected StreamingWriter createWriter(Writer sink) {
+        return new CBORStreamingWriter(new TranscodingStream((StringWriter) sink));
+    }
+
+    @Test
+    public void testEncoding() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StreamingWriter writer = StreamingWriterFactory.getStreamWriter(Variants.CBOR_MEDIA_TYPE,
+                out);
+        writer.writeStartDocument();
+        writer.writeElement("a", 1);
+        writer.writeElement("b", -500);
+        writer.writeStartArray("c");
+        writer.writeArrayElement("c", "true");
+        writer.writeArrayElement("c", null);
+        writer.writeArrayElement("c", 1.5);
+        writer.writeEndArray();
+        writer.writeEndDocument();
+        writer.flush();
+
+        byte[] expected = { (byte) 0xBF, //
+                0x61, 'a', 0x01, //
+                0x61, 'b', 0x39, 0x01, (byte) 0xF3, //
+                0x61, 'c', (byte) 0x9F, (byte) 0xF5, (byte) 0xF6, //
+                (byte) 0xFB, 0x3F, (byte) 0xF8, 0, 0, 0, 0, 0, 0, //
+                (byte) 0xFF, //
+                (byte) 0xFF };
+        assertArrayEquals(expected, out.toByteArray());
+    }
+
+    @Test
+    public void testFactory() {
+        assertTrue(StreamingWriterFactory.isBinary(Variants.CBOR_MEDIA_TYPE));
+        assertFalse(StreamingWriterFactory.isBinary(MediaType.APPLICATION_JSON));
+    }
+
+    /**
+     * Transcodes the CBOR document to JSON into the test's sink when flushed
+     */
+    private static class TranscodingStream extends ByteArrayOutputStream {
+
+        private final StringWriter sink;
+
+        TranscodingStream(StringWriter sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            sink.getBuffer().setLength(0);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(toByteArray()));
+            try (JsonGenerator json = Json.createGenerator(sink)) {
+                transcode(in, json, null, in.readUnsignedByte());
+            }
+        }
+    }
+
+    private static void transcode(DataInputStream in, JsonGenerator json, @Nullable String key,
+            final int initial) throws IOException {
+        switch (initial >>> 5) {
+        case 0:
+            write(json, key, new BigDecimal(readArgument(in, initial)));
+            break;
+        case 1:
+            write(json, key, new BigDecimal(-1 - readArgument(in, initial)));
+            break;
+        case 3:
+            if (key == null) {
+                json.write(readText(in, initial));
+            } else {
+                json.write(key, readText(in, initial));
+            }
+            break;
+        case 4:
+            assertEquals(0x9F, initial);
+            if (key == null) {
+                json.writeStartArray();
+            } else {
+                json.writeStartArray(key);
+            }
+            for (int b; (b = in.readUnsignedByte()) != 0xFF;) {
+                transcode(in, json, null, b);
+            }
+            json.writeEnd();
+            break;
+        case 5:
+            assertEquals(0xBF, initial);
+            if (key == null) {
+                json.writeStartObject();
+            } else {
+                json.writeStartObject(key);
+            }
+            for (int b; (b = in.readUnsignedByte()) != 0xFF;) {
+                transcode(in, json, readText(in, b), in.readUnsignedByte());
+            }
+            json.writeEnd();
+            break;
+        case 6:
+            write(json, key, readTagged(in, initial));
+            break;
+        default:
+            switch (initial) {
+            case 0xF4:
+                write(json, key, false);
+                break;
+            case 0xF5:
+                write(json, key, true);
+                break;
+            case 0xF6:
+                if (key == null) {
+                    json.writeNull();
+                } else {
+                    json.writeNull(key);
+                }
+                break;
+            case 0xFB:
+                write(json, key, BigDecimal.valueOf(in.readDouble()));
+                break;
+            default:
+                throw new IllegalStateException("Unexpected initial byte: " + initial);
+            }
+        }
+    }
+
+    private static BigDecimal readTagged(DataInputStream in, int initial) throws IOException {
+        switch (initial) {
+        case 0xC2:
+            return new BigDecimal(readBignum(in));
+        case 0xC3:
+            return new BigDecimal(readBignum(in).negate().subtract(BigInteger.ONE));
+        case 0xC4:
+            assertEquals(0x82, in.readUnsignedByte());
+            int exponent = readInteger(in).intValueExact();
+            BigInteger mantissa = readInteger(in).toBigIntegerExact();
+            return new BigDecimal(mantissa, -exponent);
+        default:
+            throw new IllegalStateException("Unexpected tag: " + initial);
+        }
+    }
+
+    private static BigDecimal readInteger(DataInputStream in) throws IOException {
+        int initial = in.readUnsignedByte();
+        if (initial >>> 5 == 0) {
+            return new BigDecimal(readArgument(in, initial));
+        } else if (initial >>> 5 == 1) {
+            return new BigDecimal(-1 - readArgument(in, initial));
+        }
+        return readTagged(in, initial);
+    }
+
+    private static BigInteger readBignum(DataInputStream in) throws IOException {
+        int initial = in.readUnsignedByte();
+        assertEquals(2, initial >>> 5);
+        byte[] bytes = new byte[(int) readArgument(in, initial)];
+        in.readFully(bytes);
+        return new BigInteger(1, bytes);
+    }
+
+    private static String readText(DataInputStream in, int initial) throws IOException {
+        assertEquals(3, initial >>> 5);
+        byte[] bytes = new byte[(int) readArgument(in, initial)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long readArgument(DataInputStream in, int initial) throws IOException {
+        final int info = initial & 0x1F;
+        switch (info) {
+        case 24:
+            return in.readUnsignedByte();
+        case 25:
+            return in.readUnsignedShort();
+        case 26:
+            return in.readInt() & 0xFFFFFFFFL;
+        case 27:
+            return in.readLong();
+        default:
+            return info;
+        }
+    }
+
+    private static void write(JsonGenerator json, @Nullable String key, BigDecimal value) {
+        if (key == null) {
+            json.write(value);
+        } else {
+            json.write(key, value);
+        }
+    }
+
+    private static void write(JsonGenerator json, @Nullable String key, boolean value) {
+        if (key == null) {
+            json.write(value);
+        } else {
+            json.write(key, value);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.web.api;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.locationtech.geogig.model.Node;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevObject.TYPE;
+import org.locationtech.geogig.model.impl.RevObjectTestSupport;
+import org.locationtech.geogig.repository.DiffEntry;
+import org.locationtech.geogig.rest.Variants;
+import org.locationtech.geogig.test.performance.EnablePerformanceTestRule;
+import org.restlet.data.MediaType;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingOutputStream;
+
+/**
+ * Compares the size and the time it takes to encode a response of {@code 100K}
+ * {@link ResponseWriter#writeDiffEntries diff entries} in each of the response formats, as written
+ * by {@link CommandResponseStreamingWriterRepresentation}.
+ * <p>
+ * The test is only run if the System property {@code geogig.runPerformanceTests} is set to
+ * {@code true}.
+ */
+public class ResponseFormatPerformanceTest {
+
+    private static final int NUM_ENTRIES = 100_000;
+
+    @ClassRule
+    public static EnablePerformanceTestRule performanceRule = new EnablePerformanceTestRule();
+
+    private static List<DiffEntry> entries;
+
+    @BeforeClass
+    public static void createEntries() {
+        ImmutableList.Builder<DiffEntry> builder = ImmutableList.builder();
+        for (int i = 0; i < NUM_ENTRIES; i++) {
+            String name = "feature." + i;
+            NodeRef oldObject = ref(name, "old" + i);
+            NodeRef newObject = ref(name, "new" + i);
+            switch (i % 3) {
+            case 0:
+                builder.add(new DiffEntry(null, newObject));
+                break;
+            case 1:
+                builder.add(new DiffEntry(oldObject, null));
+                break;
+            default:
+                builder.add(new DiffEntry(oldObject, newObject));
+            }
+        }
+        entries = builder.build();
+    }
+
+    private static NodeRef ref(String name, String contents) {
+        ObjectId id = RevObjectTestSupport.hashString(contents);
+        return NodeRef.create("roads", Node.create(name, id, ObjectId.NULL, TYPE.FEATURE, null));
+    }
+
+    @Test
+    public void testFormats() throws Exception {
+        List<MediaType> formats = ImmutableList.of(MediaType.APPLICATION_XML,
+                MediaType.APPLICATION_JSON, Variants.CBOR_MEDIA_TYPE);
+        long jsonBytes = 0;
+        long cborBytes = 0;
+        for (MediaType format : formats) {
+            long bytes = 0;
+            for (int run = 0; run < 3; run++) {
+                bytes = run(format, run == 0 ? "warm up" : "run " + run);
+            }
+            if (format == MediaType.APPLICATION_JSON) {
+                jsonBytes = bytes;
+            } else if (format == Variants.CBOR_MEDIA_TYPE) {
+                cborBytes = bytes;
+            }
+        }
+        assertTrue(cborBytes < jsonBytes);
+    }
+
+    private long run(MediaType format, String label) throws Exception {
+        CommandResponse response = new CommandResponse() {
+            @Override
+            public void write(ResponseWriter out) throws Exception {
+                out.start();
+                out.writeDiffEntries("diff", 0, -1, entries.iterator());
+                out.finish();
+            }
+        };
+        CountingOutputStream out = new CountingOutputStream(ByteStreams.nullOutputStream());
+        Stopwatch sw = Stopwatch.createStarted();
+        new CommandResponseStreamingWriterRepresentation(format, response, null).write(out);
+        sw.stop();
+        System.err.printf("%-18s %-8s %,d entries: %,12d bytes, %,6d ms\n", format, label,
+                NUM_ENTRIES, out.getCount(), sw.elapsed(TimeUnit.MILLISECONDS));
+        return out.getCount();
+    }
+}
@@ -9,6 +9,7 @@
  */
 package org.locationtech.geogig.web.api;
 
+import static org.locationtech.geogig.rest.Variants.CBOR_MEDIA_TYPE;
 import static org.locationtech.geogig.rest.Variants.CSV_MEDIA_TYPE;
 
 import java.util.function.Function;
@@ -130,9 +131,10 @@ public class TestContext extends ExternalResource {
                 }
                 return new StreamWriterRepresentation(format, streamResponse);
             }
-            if (format != MediaType.APPLICATION_JSON && format != MediaType.APPLICATION_XML) {
+            if (format != MediaType.APPLICATION_JSON && format != MediaType.APPLICATION_XML
+                    && format != CBOR_MEDIA_TYPE) {
                 throw new CommandSpecException(
-                        "Unsupported Media Type: This response is only compatible with application/json and application/xml.");
+                        "Unsupported Media Type: This response is only compatible with application/json, application/xml and application/cbor.");
             }
             return new CommandResponseStreamingWriterRepresentation(format, commandResponse, callback);
         }
@@ -12,6 +12,9 @@ package org.locationtech.geogig.web.api.commands;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.json.JsonArray;
 import javax.json.JsonObject;
 import javax.json.JsonValue;
@@ -19,8 +22,10 @@ import javax.json.JsonValue;
 import org.junit.Test;
 import org.locationtech.geogig.model.NodeRef;
 import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevCommit;
 import org.locationtech.geogig.model.RevFeature;
 import org.locationtech.geogig.model.impl.RevFeatureBuilder;
+import org.locationtech.geogig.porcelain.CommitOp;
 import org.locationtech.geogig.repository.Repository;
 import org.locationtech.geogig.web.api.AbstractWebAPICommand;
 import org.locationtech.geogig.web.api.AbstractWebOpTest;
@@ -137,4 +142,60 @@ public class DiffTest extends AbstractWebOpTest {
         assertEquals("EPSG:4326", feature.getString("crs"));
     }
 
+
+    @Test
+    public void testPageToken() throws Exception {
+        Repository geogig = testContext.get().getRepository();
+        TestData testData = new TestData(geogig);
+        testData.init();
+        testData.checkout("master");
+        testData.insert(TestData.point1);
+        testData.add();
+        RevCommit commit1 = geogig.command(CommitOp.class).setMessage("point1").call();
+        testData.insert(TestData.point2, TestData.point3, TestData.line1, TestData.line2,
+                TestData.line3, TestData.poly1, TestData.poly2);
+        testData.add();
+        geogig.command(CommitOp.class).setMessage("the rest").call();
+
+        final String oldRefSpec = commit1.getId().toString();
+        buildCommand(TestParams.of("oldRefSpec", oldRefSpec, "newRefSpec", "master"))
+                .run(testContext.get());
+        List<String> expected = newPaths(getJSONResponse().getJsonObject("response"));
+        assertEquals(7, expected.size());
+
+        List<String> paths = new ArrayList<>();
+        String pageToken = null;
+        do {
+            ParameterSet options = pageToken == null
+                    ? TestParams.of("oldRefSpec", oldRefSpec, "newRefSpec", "master", "show", "3")
+                    : TestParams.of("oldRefSpec", oldRefSpec, "newRefSpec", "master", "show", "3",
+                            "pageToken", pageToken);
+            buildCommand(options).run(testContext.get());
+            JsonObject response = getJSONResponse().getJsonObject("response");
+            assertTrue(response.getBoolean("success"));
+            List<String> page = newPaths(response);
+            assertTrue(page.size() <= 3);
+            paths.addAll(page);
+            pageToken = response.containsKey("nextPageToken")
+                    ? response.getString("nextPageToken") : null;
+        } while (pageToken != null);
+        assertEquals(expected, paths);
+
+        // a token for another diff is rejected
+        buildCommand(TestParams.of("oldRefSpec", oldRefSpec, "newRefSpec", "master", "show", "3"))
+                .run(testContext.get());
+        pageToken = getJSONResponse().getJsonObject("response").getString("nextPageToken");
+        ex.expect(CommandSpecException.class);
+        ex.expectMessage("The diff changed since the page token was issued");
+        buildCommand(TestParams.of("oldRefSpec", "master", "newRefSpec", "master", "pageToken",
+                pageToken)).run(testContext.get());
+    }
+
+    private List<String> newPaths(JsonObject response) {
+        List<String> paths = new ArrayList<>();
+        for (JsonObject diff : response.getJsonArray("diff").getValuesAs(JsonObject.class)) {
+            paths.add(diff.getString("newPath"));
+        }
+        return paths;
+    }
 }
@@ -13,6 +13,8 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.json.JsonArray;
 import javax.json.JsonObject;
@@ -126,6 +128,62 @@ public class LogTest extends AbstractWebOpTest {
                 false));
     }
 
+    @Test
+    public void testPageToken() throws Exception {
+        Repository geogig = testContext.get().getRepository();
+        TestData testData = new TestData(geogig);
+        testData.init();
+        testData.checkout("master");
+        testData.insert(TestData.point1, TestData.line1, TestData.poly1);
+        testData.add();
+        geogig.command(CommitOp.class).setMessage("point1, line1, poly1").call();
+        testData.branch("branch1");
+        testData.checkout("branch1");
+        testData.insert(TestData.point2, TestData.line2);
+        testData.add();
+        RevCommit commit2 = geogig.command(CommitOp.class).setMessage("point2, line2").call();
+        testData.insert(TestData.poly2);
+        testData.add();
+        RevCommit commit3 = geogig.command(CommitOp.class).setMessage("poly2").call();
+        testData.checkout("master");
+        testData.insert(TestData.point3, TestData.line3, TestData.poly3);
+        testData.add();
+        geogig.command(CommitOp.class).setMessage("point3, line3, poly3").call();
+        geogig.command(MergeOp.class).setNoFastForward(true).setMessage("merge branch1")
+                .addCommit(commit3.getId()).call();
+
+        buildCommand(TestParams.of()).run(testContext.get());
+        List<String> expected = commitIds(getJSONResponse().getJsonObject("response"));
+        assertEquals(5, expected.size());
+        assertTrue(expected.contains(commit2.getId().toString()));
+
+        List<String> ids = new ArrayList<>();
+        String pageToken = null;
+        do {
+            ParameterSet options = pageToken == null ? TestParams.of("show", "2")
+                    : TestParams.of("show", "2", "page", "1", "pageToken", pageToken);
+            buildCommand(options).run(testContext.get());
+            JsonObject response = getJSONResponse().getJsonObject("response");
+            assertTrue(response.getBoolean("success"));
+            List<String> page = commitIds(response);
+            assertTrue(page.size() <= 2);
+            ids.addAll(page);
+            pageToken = response.containsKey("nextPageToken")
+                    ? response.getString("nextPageToken") : null;
+        } while (pageToken != null);
+
+        // the page is ignored when resuming from a token
+        assertEquals(expected, ids);
+    }
+
+    private List<String> commitIds(JsonObject response) {
+        List<String> ids = new ArrayList<>();
+        for (JsonObject commit : response.getJsonArray("commit").getValuesAs(JsonObject.class)) {
+            ids.add(commit.getString("id"));
+        }
+        return ids;
+    }
+
     @Test
     public void testLogRange() throws Exception {
         Repository geogig = testContext.get().getRepository();
@@ -12,6 +12,9 @@ package org.locationtech.geogig.web.api.commands;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.json.JsonArray;
 import javax.json.JsonObject;
 
@@ -19,6 +22,7 @@ import org.junit.Test;
 import org.locationtech.geogig.repository.Repository;
 import org.locationtech.geogig.web.api.AbstractWebAPICommand;
 import org.locationtech.geogig.web.api.AbstractWebOpTest;
+import org.locationtech.geogig.web.api.CommandSpecException;
 import org.locationtech.geogig.web.api.ParameterSet;
 import org.locationtech.geogig.web.api.TestData;
 import org.locationtech.geogig.web.api.TestParams;
@@ -158,4 +162,56 @@ public class LsTreeTest extends AbstractWebOpTest {
         String expected = "[{\"path\":\"Point.1\"},{\"path\":\"Point.2\"},{\"path\":\"Point.3\"}]";
         assertTrue(TestData.jsonEquals(TestData.toJSONArray(expected), nodes, false));
     }
+
+    @Test
+    public void testPageToken() throws Exception {
+        Repository geogig = testContext.get().getRepository();
+        TestData testData = new TestData(geogig);
+        testData.init();
+        testData.loadDefaultData();
+
+        buildCommand(TestParams.of("showTree", "true", "recursive", "true"))
+                .run(testContext.get());
+        List<String> expected = paths(getJSONResponse().getJsonObject("response"));
+        assertEquals(12, expected.size());
+
+        List<String> paths = new ArrayList<>();
+        String pageToken = null;
+        do {
+            ParameterSet options = pageToken == null
+                    ? TestParams.of("showTree", "true", "recursive", "true", "show", "5")
+                    : TestParams.of("showTree", "true", "recursive", "true", "show", "5",
+                            "pageToken", pageToken);
+            buildCommand(options).run(testContext.get());
+            JsonObject response = getJSONResponse().getJsonObject("response");
+            assertTrue(response.getBoolean("success"));
+            List<String> page = paths(response);
+            assertTrue(page.size() <= 5);
+            paths.addAll(page);
+            pageToken = response.containsKey("nextPageToken")
+                    ? response.getString("nextPageToken") : null;
+        } while (pageToken != null);
+
+        assertEquals(expected, paths);
+    }
+
+    @Test
+    public void testInvalidPageToken() throws Exception {
+        Repository geogig = testContext.get().getRepository();
+        TestData testData = new TestData(geogig);
+        testData.init();
+        testData.loadDefaultData();
+
+        ex.expect(CommandSpecException.class);
+        ex.expectMessage("Invalid page token");
+        buildCommand(TestParams.of("pageToken", "not a token")).run(testContext.get());
+    }
+
+    private List<String> paths(JsonObject response) {
+        List<String> paths = new ArrayList<>();
+        for (JsonObject node : response.getJsonArray("node").getValuesAs(JsonObject.class)) {
+            paths.add(node.getString("path"));
+        }
+        return paths;
+    }
 }
@@ -13,13 +13,11 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static org.locationtech.geogig.rest.repository.InitCommandResource.INIT_CMD;
 import static org.locationtech.geogig.web.api.RESTUtils.getStringAttribute;
 
-import java.io.IOException;
 import java.io.Serializable;
 import java.net.URI;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
 
 import org.locationtech.geogig.plumbing.ResolveGeogigURI;
 import org.locationtech.geogig.repository.Context;
@@ -40,12 +38,6 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
-import com.google.common.cache.RemovalCause;
-import com.google.common.cache.RemovalListener;
-import com.google.common.cache.RemovalNotification;
 
 /**
  * {@link RepositoryProvider} that looks up the coresponding {@link GeoGIG} instance to a given
@@ -55,7 +47,7 @@ public class MultiRepositoryProvider implements RepositoryProvider {
 
     private static final Logger LOG = LoggerFactory.getLogger(MultiRepositoryProvider.class);
 
-    private LoadingCache<String, Repository> repositories;
+    private final RepositoryCache repositories;
 
     private final URI rootRepoURI;
 
@@ -68,11 +60,8 @@ public class MultiRepositoryProvider implements RepositoryProvider {
 
         this.rootRepoURI = rootRepoURI;
 
-        try {
-            this.repositories = buildCache();
-        } catch (IOException e) {
-            throw Throwables.propagate(e);
-        }
+        this.repositories = new RepositoryCache(this::loadGeoGIG);
+        this.repositories.registerMBean();
     }
 
     @Override
@@ -120,62 +109,6 @@ public class MultiRepositoryProvider implements RepositoryProvider {
         }
     }
 
-    private static final RemovalListener<String, Repository> removalListener = new RemovalListener<String, Repository>() {
-        @Override
-        public void onRemoval(RemovalNotification<String, Repository> notification) {
-            final RemovalCause cause = notification.getCause();
-            final String repositoryName = notification.getKey();
-            final Repository repo = notification.getValue();
-            LOG.info("Disposing repository {}. Cause: " + cause(cause));
-            try {
-                if (repo != null && repo.isOpen()) {
-                    repo.close();
-                }
-            } catch (RuntimeException e) {
-                LOG.warn("Error closing repository {}", repositoryName, e);
-            }
-        }
-
-        private String cause(RemovalCause cause) {
-            switch (cause) {
-            case COLLECTED:
-                return "removed automatically because its key or value was garbage-collected";
-            case EXPIRED:
-                return "expiration timestamp has passed";
-            case EXPLICIT:
-                return "manually removed by remove() or invalidateAll()";
-            case REPLACED:
-                return "manually replaced";
-            case SIZE:
-                return "evicted due to cache size constraints";
-            default:
-                return "Unknown";
-            }
-        }
-    };
-
-    private LoadingCache<String, Repository> buildCache() throws IOException {
-
-        CacheLoader<String, Repository> loader = new CacheLoader<String, Repository>() {
-
-            @Override
-            public Repository load(final String repoName) throws Exception {
-                Repository repo = loadGeoGIG(repoName);
-                return repo;
-            }
-
-        };
-
-        LoadingCache<String, Repository> cache = CacheBuilder.newBuilder()//
-                .concurrencyLevel(1)//
-                .expireAfterAccess(1, TimeUnit.MINUTES)//
-                .maximumSize(1024)//
-                .removalListener(removalListener)//
-                .build(loader);
-
-        return cache;
-    }
-
     @VisibleForTesting
     Repository loadGeoGIG(final String repoName) {
         LOG.info(
@@ -189,17 +122,12 @@ public class MultiRepositoryProvider implements RepositoryProvider {
 
         Repository repository = context.repository();
 
-        if (!repository.isOpen()) {
-            // Only open it if is was an existing repository.
-            for (String existingRepo : resolver.listRepoNamesUnderRootURI(rootRepoURI)) {
-                if (existingRepo.equals(repoName)) {
-                    try {
-                        repository.open();
-                    } catch (RepositoryConnectionException e) {
-                        throw Throwables.propagate(e);
-                    }
-                    break;
-                }
+        // Only open it if is was an existing repository.
+        if (!repository.isOpen() && resolver.repoExists(repoURI)) {
+            try {
+                repository.open();
+            } catch (RepositoryConnectionException e) {
+                throw Throwables.propagate(e);
             }
         }
 
@@ -231,7 +159,7 @@ public class MultiRepositoryProvider implements RepositoryProvider {
     }
 
     public void invalidateAll() {
-        this.repositories.invalidateAll();
+        this.repositories.closeAll();
     }
 
     private static class InitRequestHandler {
@@ -0,0 +1,374 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.web;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.Ref;
+import org.locationtech.geogig.porcelain.BranchListOp;
+import org.locationtech.geogig.repository.Repository;
+import org.locationtech.geogig.storage.ObjectDatabase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Keeps the repositories served by the web API open between requests, closing them once they've
+ * been idle for a while or to keep the number of open repositories bounded.
+ * <p>
+ * Freshly opened repositories get their caches pre-warmed with the root trees of their branches,
+ * working tree, and index, which is what most requests start with.
+ * <p>
+ * The defaults can be overridden through the following System properties:
+ * <ul>
+ * <li>{@code geogig.repositories.idleSeconds}: how long to keep a repository open without being
+ * used, defaults to {@code 60}
+ * <li>{@code geogig.repositories.maxOpen}: the maximum number of open repositories, defaults to
+ * {@code 1024}
+ * <li>{@code geogig.repositories.prewarm}: whether to pre-warm the caches of repositories as
+ * they're opened, defaults to {@code true}
+ * </ul>
+ * Note closing a repository doesn't necessarily release its storage resources right away, the
+ * PostgreSQL connection pools and the object caches outlive the repositories using them for a
+ * while, so reopening an evicted repository is cheap.
+ */
+public class RepositoryCache implements RepositoryCacheMXBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RepositoryCache.class);
+
+    /**
+     * Runs the periodic clean up of the caches, so that idle repositories are closed even if no
+     * other repository is requested
+     */
+    private static final ScheduledExecutorService CLEANER = Executors
+            .newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true)
+                    .setNameFormat("geogig-repository-cache-%d").build());
+
+    private final LoadingCache<String, Repository> repositories;
+
+    private final Function<String, Repository> loader;
+
+    private final long idleTimeoutSeconds;
+
+    private final long maxOpen;
+
+    private final boolean prewarm;
+
+    private final AtomicLong maxOpenNanos = new AtomicLong();
+
+    public RepositoryCache(Function<String, Repository> loader) {
+        this(loader, Long.getLong("geogig.repositories.idleSeconds", 60),
+                Long.getLong("geogig.repositories.maxOpen", 1024),
+                Boolean.parseBoolean(System.getProperty("geogig.repositories.prewarm", "true")));
+    }
+
+    public RepositoryCache(Function<String, Repository> loader, long idleTimeoutSeconds,
+            long maxOpen, boolean prewarm) {
+        checkNotNull(loader);
+        checkArgument(idleTimeoutSeconds > 0, "idle timeout must be positive");
+        checkArgument(maxOpen > 0, "maximum number of open repositories must be positive");
+        this.loader = loader;
+        this.idleTimeoutSeconds = idleTimeoutSeconds;
+        this.maxOpen = maxOpen;
+        this.prewarm = prewarm;
+
+        this.repositories = CacheBuilder.newBuilder()//
+                .concurrencyLevel(1)//
+                .expireAfterAccess(idleTimeoutSeconds, TimeUnit.SECONDS)//
+                .maximumSize(maxOpen)//
+                .recordStats()//
+                .removalListener(removalListener)//
+                .build(new CacheLoader<String, Repository>() {
+                    @Override
+                    public Repository load(final String repoName) throws Exception {
+                        return open(repoName);
+                    }
+                });
+
+        scheduleCleanUp(this, Math.max(1, idleTimeoutSeconds / 2));
+    }
+
+    public Repository get(final String repositoryName) throws ExecutionException {
+        return repositories.get(repositoryName);
+    }
+
+    public void invalidate(final String repositoryName) {
+        repositories.invalidate(repositoryName);
+    }
+
+    @Override
+    public void closeAll() {
+        repositories.invalidateAll();
+    }
+
+    private Repository open(final String repoName) {
+        final Stopwatch sw = Stopwatch.createStarted();
+        Repository repository = loader.apply(repoName);
+        if (prewarm && repository.isOpen()) {
+            prewarm(repository);
+        }
+        final long nanos = sw.elapsed(TimeUnit.NANOSECONDS);
+        maxOpenNanos.accumulateAndGet(nanos, Math::max);
+        LOG.debug("Opened repository {} in {}", repoName, sw);
+        return repository;
+    }
+
+    /**
+     * Loads the root trees of the repository's branches, working tree and index, and hence the
+     * refs pointing to them, into its caches. Failures are only logged, since the repository might
+     * still be usable.
+     */
+    static void prewarm(Repository repository) {
+        try {
+            ObjectDatabase objects = repository.objectDatabase();
+            for (Ref branch : repository.command(BranchListOp.class).call()) {
+                ObjectId commitId = branch.getObjectId();
+                if (!commitId.isNull()) {
+                    objects.getTree(objects.getCommit(commitId).getTreeId());
+                }
+            }
+            repository.workingTree().getTree();
+            repository.index().getTree();
+        } catch (RuntimeException e) {
+            LOG.warn("Error pre-warming the caches of repository {}", repository.getLocation(),
+                    e);
+        }
+    }
+
+    private static final RemovalListener<String, Repository> removalListener = //
+            new RemovalListener<String, Repository>() {
+        @Override
+        public void onRemoval(RemovalNotification<String, Repository> notification) {
+            final RemovalCause cause = notification.getCause();
+            final String repositoryName = notification.getKey();
+            final Repository repo = notification.getValue();
+            LOG.info("Disposing repository {}. Cause: {}", repositoryName, cause(cause));
+            try {
+                if (repo != null && repo.isOpen()) {
+                    repo.close();
+                }
+            } catch (RuntimeException e) {
+                LOG.warn("Error closing repository {}", repositoryName, e);
+            }
+        }
+
+        private String cause(RemovalCause cause) {
+            switch (cause) {
+            case COLLECTED:
+                return "removed automatically because its key or value was garbage-collected";
+            case EXPIRED:
+                return "expiration timestamp has passed";
+            case EXPLICIT:
+                return "manually removed by remove() or invalidateAll()";
+            case REPLACED:
+                return "manually replaced";
+            case SIZE:
+                return "evicted due to cache size constraints";
+            default:
+                return "Unknown";
+            }
+        }
+    };
+
+    /**
+     * Periodically cleans up the cache, without keeping it from being garbage collected
+     */
+    private static void scheduleCleanUp(RepositoryCache cache, long periodSeconds) {
+        final WeakReference<LoadingCache<String, Repository>> ref = new WeakReference<>(
+                cache.repositories);
+        final ScheduledFuture<?>[] task = new ScheduledFuture<?>[1];
+        task[0] = CLEANER.scheduleWithFixedDelay(() -> {
+            LoadingCache<String, Repository> repositories = ref.get();
+            if (repositories == null) {
+                task[0].cancel(false);
+            } else {
+                repositories.cleanUp();
+            }
+        }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Registers this cache as the {@code org.geogig:type=repository-cache} MBean, replacing the
+     * one previously registered, if any.
+     * <p>
+     * The MBean server keeps the registered MBeans for the lifetime of the JVM, so what's
+     * registered is a {@link WeakMXBean} rather than the cache itself, otherwise neither a
+     * discarded cache nor its repositories could ever be garbage collected.
+     */
+    void registerMBean() {
+        MBeanServer mbeanserver = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName beanName = new ObjectName("org.geogig:type=repository-cache");
+            if (mbeanserver.isRegistered(beanName)) {
+                mbeanserver.unregisterMBean(beanName);
+            }
+            mbeanserver.registerMBean(new WeakMXBean(this), beanName);
+            LOG.debug("Registered repository cache MBean as " + beanName);
+        } catch (Exception e) {
+            LOG.warn("Unable to register repository cache MBean", e);
+        }
+    }
+
+    @Override
+    public long getOpenRepositories() {
+        return repositories.size();
+    }
+
+    @Override
+    public long getMaximumOpenRepositories() {
+        return maxOpen;
+    }
+
+    @Override
+    public long getIdleTimeoutSeconds() {
+        return idleTimeoutSeconds;
+    }
+
+    @Override
+    public long getHitCount() {
+        return repositories.stats().hitCount();
+    }
+
+    @Override
+    public long getMissCount() {
+        return repositories.stats().missCount();
+    }
+
+    @Override
+    public double getHitRate() {
+        return repositories.stats().hitRate();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return repositories.stats().evictionCount();
+    }
+
+    @Override
+    public long getOpenFailureCount() {
+        return repositories.stats().loadExceptionCount();
+    }
+
+    @Override
+    public double getAverageOpenMillis() {
+        CacheStats stats = repositories.stats();
+        return stats.averageLoadPenalty() / 1_000_000d;
+    }
+
+    @Override
+    public double getMaximumOpenMillis() {
+        return maxOpenNanos.get() / 1_000_000d;
+    }
+
+    /**
+     * {@link RepositoryCacheMXBean} delegating to a {@link RepositoryCache} it doesn't keep from
+     * being garbage collected, reporting no activity once it's gone
+     */
+    private static class WeakMXBean implements RepositoryCacheMXBean {
+
+        private final WeakReference<RepositoryCache> cache;
+
+        WeakMXBean(RepositoryCache cache) {
+            this.cache = new WeakReference<>(cache);
+        }
+
+        @Override
+        public long getOpenRepositories() {
+            RepositoryCache c = cache.get();
+            return c == null ? 0L : c.getOpenRepositories();
+        }
+
+        @Override
+        public long getMaximumOpenRepositories() {
+            RepositoryCache c = cache.get();
+            return c == null ? 0L : c.getMaximumOpenRepositories();
+        }
+
+        @Override
+        public long getIdleTimeoutSeconds() {
+            RepositoryCache c = cache.get();
+            return c == null ? 0L : c.getIdleTimeoutSeconds();
+        }
+
+        @Override
+        public long getHitCount() {
+            RepositoryCache c = cache.get();
+            return c == null ? 0L : c.getHitCount();
+        }
+
+        @Override
+        public long getMissCount() {
+            RepositoryCache c = cache.get();
+            return c == null ? 0L : c.getMissCount();
+        }
+
+        @Override
+        public double getHitRate() {
+            RepositoryCache c = cache.get();
+            return c == null ? 0d : c.getHitRate();
+        }
+
+        @Override
+        public long getEvictionCount() {
+            RepositoryCache c = cache.get();
+            return c == null ? 0L : c.getEvictionCount();
+        }
+
+        @Override
+        public long getOpenFailureCount() {
+            RepositoryCache c = cache.get();
+            return c == null ? 0L : c.getOpenFailureCount();
+        }
+
+        @Override
+        public double getAverageOpenMillis() {
+            RepositoryCache c = cache.get();
+            return c == null ? 0d : c.getAverageOpenMillis();
+        }
+
+        @Override
+        public double getMaximumOpenMillis() {
+            RepositoryCache c = cache.get();
+            return c == null ? 0d : c.getMaximumOpenMillis();
+        }
+
+        @Override
+        public void closeAll() {
+            RepositoryCache c = cache.get();
+            if (c != null) {
+                c.closeAll();
+            }
+        }
+    }
+}
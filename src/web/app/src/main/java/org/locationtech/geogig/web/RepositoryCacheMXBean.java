@@ -0,0 +1,73 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.web;
+
+import javax.management.MXBean;
+
+/**
+ * Statistics of the {@link RepositoryCache} of the repositories served by the web API, registered
+ * as an {@link MXBean} so they can be watched through a MBeans client such as JConsole.
+ */
+@MXBean
+public interface RepositoryCacheMXBean {
+
+    /**
+     * @return the number of repositories currently open
+     */
+    long getOpenRepositories();
+
+    /**
+     * @return the maximum number of repositories kept open at any given time
+     */
+    long getMaximumOpenRepositories();
+
+    /**
+     * @return how long a repository is kept open without being used before it's closed
+     */
+    long getIdleTimeoutSeconds();
+
+    /**
+     * @return the number of requests for a repository that was already open
+     */
+    long getHitCount();
+
+    /**
+     * @return the number of requests for a repository that had to be opened
+     */
+    long getMissCount();
+
+    double getHitRate();
+
+    /**
+     * @return the number of repositories closed because they were idle for too long or to make
+     *         room for others
+     */
+    long getEvictionCount();
+
+    /**
+     * @return the number of times a repository failed to open
+     */
+    long getOpenFailureCount();
+
+    /**
+     * @return the average time it took to open a repository, including pre-warming its caches
+     */
+    double getAverageOpenMillis();
+
+    /**
+     * @return the longest time it took to open a repository, including pre-warming its caches
+     */
+    double getMaximumOpenMillis();
+
+    /**
+     * Closes all the open repositories
+     */
+    void closeAll();
+}
@@ -0,0 +1,324 @@
+/* Copyright (c) 2017 Boundless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan (Boundless) - initial implementation
+ */
+package org.locationtech.geogig.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.Ref;
+import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.porcelain.BranchListOp;
+import org.locationtech.geogig.repository.Repository;
+import org.locationtech.geogig.repository.StagingArea;
+import org.locationtech.geogig.repository.WorkingTree;
+import org.locationtech.geogig.storage.ObjectDatabase;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+public class RepositoryCacheTest {
+
+    private final AtomicInteger opens = new AtomicInteger();
+
+    private final Map<String, Repository> opened = new ConcurrentHashMap<>();
+
+    private final Set<String> closed = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Opens a mock repository that records when it's closed, those named {@code failing*} fail
+     * to close
+     */
+    private Repository open(String name) {
+        opens.incrementAndGet();
+        Repository repo = mock(Repository.class);
+        when(repo.isOpen()).thenReturn(true);
+        doAnswer((invocation) -> {
+            closed.add(name);
+            if (name.startsWith("failing")) {
+                throw new IllegalStateException("expected");
+            }
+            return null;
+        }).when(repo).close();
+        opened.put(name, repo);
+        return repo;
+    }
+
+    @Test
+    public void testCachesOpenRepositories() throws Exception {
+        RepositoryCache cache = new RepositoryCache(this::open, 60, 10, false);
+        Repository repo1 = cache.get("repo1");
+        assertSame(repo1, cache.get("repo1"));
+        assertSame(opened.get("repo1"), repo1);
+        cache.get("repo2");
+
+        assertEquals(2, opens.get());
+        assertEquals(2L, cache.getOpenRepositories());
+        assertEquals(10L, cache.getMaximumOpenRepositories());
+        assertEquals(60L, cache.getIdleTimeoutSeconds());
+        assertEquals(1L, cache.getHitCount());
+        assertEquals(2L, cache.getMissCount());
+        assertEquals(1d / 3, cache.getHitRate(), 1e-9);
+        assertEquals(0L, cache.getEvictionCount());
+        assertEquals(0L, cache.getOpenFailureCount());
+        assertTrue(closed.isEmpty());
+    }
+
+    @Test
+    public void testOpenTimes() throws Exception {
+        RepositoryCache cache = new RepositoryCache((name) -> {
+            try {
+                Thread.sleep(name.equals("slow") ? 100 : 10);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return open(name);
+        }, 60, 10, false);
+
+        cache.get("fast");
+        cache.get("slow");
+        assertTrue(cache.getMaximumOpenMillis() >= 100);
+        assertTrue(cache.getAverageOpenMillis() >= 55);
+        assertTrue(cache.getAverageOpenMillis() < cache.getMaximumOpenMillis());
+    }
+
+    @Test
+    public void testOpenFailure() throws Exception {
+        RepositoryCache cache = new RepositoryCache((name) -> {
+            opens.incrementAndGet();
+            throw new IllegalArgumentException("no such repository: " + name);
+        }, 60, 10, false);
+        for (int i = 1; i <= 2; i++) {
+            try {
+                cache.get("missing");
+                fail("expected UncheckedExecutionException");
+            } catch (UncheckedExecutionException e) {
+                assertTrue(e.getCause() instanceof IllegalArgumentException);
+            }
+            // failures are not cached
+            assertEquals(i, opens.get());
+            assertEquals(i, cache.getOpenFailureCount());
+        }
+        assertEquals(0L, cache.getOpenRepositories());
+    }
+
+    @Test
+    public void testMaxOpenEviction() throws Exception {
+        RepositoryCache cache = new RepositoryCache(this::open, 60, 2, false);
+        cache.get("a");
+        cache.get("b");
+        // make b the least recently used one
+        cache.get("a");
+        cache.get("c");
+
+        assertEquals(2L, cache.getOpenRepositories());
+        assertEquals(1L, cache.getEvictionCount());
+        assertEquals(ImmutableList.of("b"), ImmutableList.copyOf(closed));
+        verify(opened.get("b")).close();
+        verify(opened.get("a"), never()).close();
+
+        // reopened once evicted
+        assertSame(opened.get("a"), cache.get("a"));
+        cache.get("b");
+        assertEquals(4, opens.get());
+    }
+
+    @Test
+    public void testIdleTimeout() throws Exception {
+        RepositoryCache cache = new RepositoryCache(this::open, 1, 10, false);
+        final Repository repo = cache.get("idle");
+        // closed by the periodic clean up, without the cache being used
+        for (int i = 0; i < 100 && !closed.contains("idle"); i++) {
+            Thread.sleep(100);
+        }
+        assertTrue(closed.contains("idle"));
+        verify(repo).close();
+        assertEquals(0L, cache.getOpenRepositories());
+        assertEquals(1L, cache.getEvictionCount());
+
+        assertNotSame(repo, cache.get("idle"));
+        assertEquals(2, opens.get());
+    }
+
+    @Test
+    public void testInvalidateAndCloseAll() throws Exception {
+        RepositoryCache cache = new RepositoryCache(this::open, 60, 10, false);
+        cache.get("a");
+        cache.get("b");
+        cache.get("failing");
+
+        cache.invalidate("a");
+        assertEquals(ImmutableList.of("a"), ImmutableList.copyOf(closed));
+        assertEquals(2L, cache.getOpenRepositories());
+
+        // a failure closing one repository doesn't keep the others open
+        cache.closeAll();
+        assertEquals(3, closed.size());
+        assertEquals(0L, cache.getOpenRepositories());
+        // explicit removals are not evictions
+        assertEquals(0L, cache.getEvictionCount());
+    }
+
+    private static class PrewarmMocks {
+
+        final ObjectId commitId = ObjectId.valueOf("1111111111111111111111111111111111111111");
+
+        final ObjectId treeId = ObjectId.valueOf("2222222222222222222222222222222222222222");
+
+        final ObjectDatabase objects = mock(ObjectDatabase.class);
+
+        final WorkingTree workingTree = mock(WorkingTree.class);
+
+        final StagingArea index = mock(StagingArea.class);
+
+        final Repository repo = mock(Repository.class);
+
+        PrewarmMocks() {
+            RevCommit commit = mock(RevCommit.class);
+            when(commit.getTreeId()).thenReturn(treeId);
+            when(objects.getCommit(commitId)).thenReturn(commit);
+
+            final ImmutableList<Ref> branches = ImmutableList.of(
+                    new Ref("refs/heads/master", commitId),
+                    new Ref("refs/heads/unborn", ObjectId.NULL));
+            when(repo.command(BranchListOp.class)).thenReturn(new BranchListOp() {
+                @Override
+                protected ImmutableList<Ref> _call() {
+                    return branches;
+                }
+            });
+            when(repo.isOpen()).thenReturn(true);
+            when(repo.objectDatabase()).thenReturn(objects);
+            when(repo.workingTree()).thenReturn(workingTree);
+            when(repo.index()).thenReturn(index);
+        }
+    }
+
+    @Test
+    public void testPrewarm() throws Exception {
+        PrewarmMocks mocks = new PrewarmMocks();
+        RepositoryCache cache = new RepositoryCache((name) -> mocks.repo, 60, 10, true);
+        assertSame(mocks.repo, cache.get("repo"));
+
+        verify(mocks.objects, times(1)).getCommit(any(ObjectId.class));
+        verify(mocks.objects).getTree(mocks.treeId);
+        verify(mocks.workingTree).getTree();
+        verify(mocks.index).getTree();
+
+        // only when opened
+        cache.get("repo");
+        verify(mocks.index, times(1)).getTree();
+    }
+
+    @Test
+    public void testPrewarmDisabled() throws Exception {
+        PrewarmMocks mocks = new PrewarmMocks();
+        RepositoryCache cache = new RepositoryCache((name) -> mocks.repo, 60, 10, false);
+        assertSame(mocks.repo, cache.get("repo"));
+        verify(mocks.repo, never()).command(BranchListOp.class);
+        verifyZeroInteractions(mocks.objects, mocks.workingTree, mocks.index);
+    }
+
+    @Test
+    public void testPrewarmFailure() throws Exception {
+        PrewarmMocks mocks = new PrewarmMocks();
+        when(mocks.objects.getTree(mocks.treeId)).thenThrow(new IllegalStateException("expected"));
+        RepositoryCache cache = new RepositoryCache((name) -> mocks.repo, 60, 10, true);
+
+        // the repository is still served
+        assertSame(mocks.repo, cache.get("repo"));
+        assertEquals(0L, cache.getOpenFailureCount());
+        assertEquals(1L, cache.getOpenRepositories());
+        verifyZeroInteractions(mocks.workingTree, mocks.index);
+    }
+
+    private static long longAttribute(String attribute) throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("org.geogig:type=repository-cache");
+        return ((Long) server.getAttribute(name, attribute)).longValue();
+    }
+
+    private static void invokeCloseAll() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("org.geogig:type=repository-cache");
+        server.invoke(name, "closeAll", null, null);
+    }
+
+    @Test
+    public void testMBean() throws Exception {
+        RepositoryCache cache = new RepositoryCache(this::open, 60, 10, false);
+        cache.registerMBean();
+        cache.get("a");
+        cache.get("a");
+
+        assertEquals(1L, longAttribute("OpenRepositories"));
+        assertEquals(10L, longAttribute("MaximumOpenRepositories"));
+        assertEquals(60L, longAttribute("IdleTimeoutSeconds"));
+        assertEquals(1L, longAttribute("HitCount"));
+        assertEquals(1L, longAttribute("MissCount"));
+
+        invokeCloseAll();
+        assertTrue(closed.contains("a"));
+        assertEquals(0L, longAttribute("OpenRepositories"));
+
+        // registering another cache replaces the MBean
+        RepositoryCache other = new RepositoryCache(this::open, 30, 5, false);
+        other.registerMBean();
+        assertEquals(5L, longAttribute("MaximumOpenRepositories"));
+        assertEquals(30L, longAttribute("IdleTimeoutSeconds"));
+    }
+
+    @Test
+    public void testMBeanDoesNotKeepCacheAlive() throws Exception {
+        RepositoryCache cache = new RepositoryCache(this::open, 60, 10, false);
+        cache.registerMBean();
+        cache.get("a");
+        assertEquals(1L, longAttribute("OpenRepositories"));
+
+        // neither the registered MBean nor the periodic clean up hold on to the cache
+        final WeakReference<RepositoryCache> ref = new WeakReference<>(cache);
+        cache = null;
+        for (int i = 0; i < 100 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        assertNull(ref.get());
+
+        // the MBean reports no activity once the cache is gone, and closeAll is a no-op
+        assertEquals(0L, longAttribute("OpenRepositories"));
+        assertEquals(0L, longAttribute("MaximumOpenRepositories"));
+        invokeCloseAll();
+        assertFalse(closed.contains("a"));
+    }
+}